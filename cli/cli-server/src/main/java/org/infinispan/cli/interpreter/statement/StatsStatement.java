@@ -33,6 +33,7 @@
 import org.infinispan.factories.components.ComponentMetadataRepo;
 import org.infinispan.factories.components.JmxAttributeMetadata;
 import org.infinispan.factories.components.ManageableComponentMetadata;
+import org.infinispan.interceptors.InterceptorProfiler;
 import org.infinispan.interceptors.base.CommandInterceptor;
 import org.infinispan.manager.DefaultCacheManager;
 import org.infinispan.util.logging.LogFactory;
@@ -105,6 +106,7 @@ private void printCacheStats(PrintWriter pw, Cache<?, ?> cache) throws Statement
       }
       printComponentStats(pw, cache, cache.getAdvancedCache().getLockManager());
       printComponentStats(pw, cache, cache.getAdvancedCache().getRpcManager());
+      printComponentStats(pw, cache, cache.getAdvancedCache().getComponentRegistry().getComponent(InterceptorProfiler.class));
    }
 
    private void printComponentStats(PrintWriter pw, Cache<?, ?> cache, Object component) {
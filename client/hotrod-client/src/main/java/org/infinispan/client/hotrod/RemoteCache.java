@@ -45,10 +45,13 @@
  * is returned instead. E.g. {@link java.util.Map#put(Object, Object)} returns the previous value associated to the
  * supplied key. In case of RemoteCache, this returns null.
  * <p/>
- * <b>Synthetic operations</b>: aggregate operations are being implemented based on other Hot Rod operations. E.g. all
- * the {@link java.util.Map#putAll(java.util.Map)} is implemented through multiple individual puts. This means that the
- * these operations are not atomic and that they are costly, e.g. as the number of network round-trips is not one, but
- * the size of the added map. All these synthetic operations are documented as such.
+ * <b>Synthetic operations</b>: aggregate operations are being implemented based on other Hot Rod operations. E.g. with
+ * versions of the protocol prior to 1.3 the {@link java.util.Map#putAll(java.util.Map)} is implemented through multiple
+ * individual puts. This means that the these operations are not atomic and that they are costly, e.g. as the number of
+ * network round-trips is not one, but the size of the added map. Starting with protocol version 1.3, {@link
+ * #putAll(java.util.Map)}, {@link #getAll(java.util.Set)} and {@link #removeAll(java.util.Set)} send a single request
+ * to each server owning some of the keys, but they are still not atomic. All these synthetic operations are documented
+ * as such.
  * <p/>
  * <b>changing default behavior through {@link org.infinispan.client.hotrod.Flag}s</b>: it is possible to change the
  * default cache behaviour by using flags on an per invocation basis. E.g.
@@ -356,4 +359,20 @@
     * guarantee that "size" elements are returned( e.g. if the number of elements in the back-end server is smaller that "size")
     */
    Map<K, V> getBulk(int size);
+
+   /**
+    * Retrieves the values associated with the given keys. With protocol version 1.3 or later the keys are grouped by
+    * the server owning them and a single request is sent to each of these servers, otherwise this is a synthetic
+    * operation based on individual gets.
+    *
+    * @return an unmodifiable map containing only the keys for which a value was found
+    */
+   Map<K, V> getAll(Set<? extends K> keys);
+
+   /**
+    * Removes the given keys, with a single request per owning server if protocol version 1.3 or later is used. As with
+    * {@link #getAll(java.util.Set)} this is a synthetic operation when talking to older servers. The previous values are
+    * never returned.
+    */
+   void removeAll(Set<? extends K> keys);
 }
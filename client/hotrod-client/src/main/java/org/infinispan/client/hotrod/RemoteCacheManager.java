@@ -39,6 +39,7 @@
 import org.infinispan.client.hotrod.exceptions.HotRodClientException;
 import org.infinispan.client.hotrod.impl.ConfigurationProperties;
 import org.infinispan.client.hotrod.impl.RemoteCacheImpl;
+import org.infinispan.client.hotrod.impl.nearcache.NearCache;
 import org.infinispan.client.hotrod.impl.operations.OperationsFactory;
 import org.infinispan.client.hotrod.impl.operations.PingOperation.PingResult;
 import org.infinispan.client.hotrod.impl.protocol.Codec;
@@ -83,7 +84,7 @@
  * <li><tt>infinispan.client.hotrod.force_return_values</tt>, default = false.  Whether or not to implicitly {@link org.infinispan.client.hotrod.Flag#FORCE_RETURN_VALUE} for all calls.</li>
  * <li><tt>infinispan.client.hotrod.tcp_no_delay</tt>, default = true.  Affects TCP NODELAY on the TCP stack.</li>
  * <li><tt>infinispan.client.hotrod.ping_on_startup</tt>, default = true.  If true, a ping request is sent to a back end server in order to fetch cluster's topology.</li>
- * <li><tt>infinispan.client.hotrod.transport_factory</tt>, default = org.infinispan.client.hotrod.impl.transport.tcp.TcpTransportFactory - controls which transport to use.  Currently only the TcpTransport is supported.</li>
+ * <li><tt>infinispan.client.hotrod.transport_factory</tt>, default = org.infinispan.client.hotrod.impl.transport.tcp.TcpTransportFactory - controls which transport to use. org.infinispan.client.hotrod.impl.transport.nio.NioTransportFactory multiplexes requests over one non-blocking connection per server instead of using a connection pool, and executes asynchronous operations without the async executor.</li>
  * <li><tt>infinispan.client.hotrod.marshaller</tt>, default = org.infinispan.marshall.jboss.GenericJBossMarshaller.  Allows you to specify a custom {@link org.infinispan.marshall.Marshaller} implementation to serialize and deserialize user objects. For portable serialization payloads, you should configure the marshaller to be {@link org.infinispan.client.hotrod.marshall.ApacheAvroMarshaller}</li>
  * <li><tt>infinispan.client.hotrod.async_executor_factory</tt>, default = org.infinispan.client.hotrod.impl.async.DefaultAsyncExecutorFactory.  Allows you to specify a custom asynchroous executor for async calls.</li>
  * <li><tt>infinispan.client.hotrod.default_executor_factory.pool_size</tt>, default = 10.  If the default executor is used, this configures the number of threads to initialize the executor with.</li>
@@ -92,8 +93,11 @@
  * <li><tt>infinispan.client.hotrod.key_size_estimate</tt>, default = 64.  This hint allows sizing of byte buffers when serializing and deserializing keys, to minimize array resizing.</li>
  * <li><tt>infinispan.client.hotrod.value_size_estimate</tt>, default = 512.  This hint allows sizing of byte buffers when serializing and deserializing values, to minimize array resizing.</li>
  * <li><tt>infinispan.client.hotrod.socket_timeout</tt>, default = 60000 (60 seconds).  This property defines the maximum socket read timeout before giving up waiting for bytes from the server.</li>
- * <li><tt>infinispan.client.hotrod.protocol_version</tt>, default = 1.1 .This property defines the protocol version that this client should use. Other valid values include 1.0.</li>
+ * <li><tt>infinispan.client.hotrod.protocol_version</tt>, default = 1.2 .This property defines the protocol version that this client should use. Other valid values include 1.0, 1.1 and 1.3. Version 1.3 sends putAll, getAll and removeAll as single requests per server and enables the near cache, but is only understood by servers that support it.</li>
  * <li><tt>infinispan.client.hotrod.connect_timeout</tt>, default = 60000 (60 seconds).  This property defines the maximum socket connect timeout before giving up connecting to the server.</li>
+ * <li><tt>infinispan.client.hotrod.near_cache.enabled</tt>, default = false.  If true, each cache keeps the values it read in a near cache that the servers invalidate by pushing events over a dedicated connection per server. Requires protocol version 1.3; only entries without lifespan and max idle time are kept.</li>
+ * <li><tt>infinispan.client.hotrod.near_cache.max_entries</tt>, default = 1000.  The maximum number of entries kept in each near cache.</li>
+ * <li><tt>infinispan.client.hotrod.near_cache.eviction_strategy</tt>, default = LRU.  How the near cache picks the entries to evict, one of LRU, LIRS or TINY_LFU.</li>
  * </ul>
  * <br/>
  * <i>The following properties are related to connection pooling</i>:
@@ -328,6 +332,9 @@ public Properties getProperties() {
       properties.setProperty(ConfigurationProperties.FORCE_RETURN_VALUES, Boolean.toString(configuration.forceReturnValues()));
       properties.setProperty(ConfigurationProperties.KEY_SIZE_ESTIMATE, Integer.toString(configuration.keySizeEstimate()));
       properties.setProperty(ConfigurationProperties.MARSHALLER, configuration.marshallerClass().getName());
+      properties.setProperty(ConfigurationProperties.NEAR_CACHE_ENABLED, Boolean.toString(configuration.nearCache().enabled()));
+      properties.setProperty(ConfigurationProperties.NEAR_CACHE_MAX_ENTRIES, Integer.toString(configuration.nearCache().maxEntries()));
+      properties.setProperty(ConfigurationProperties.NEAR_CACHE_EVICTION_STRATEGY, configuration.nearCache().strategy().name());
       properties.setProperty(ConfigurationProperties.PING_ON_STARTUP, Boolean.toString(configuration.pingOnStartup()));
       properties.setProperty(ConfigurationProperties.PROTOCOL_VERSION, configuration.protocolVersion());
       properties.setProperty(ConfigurationProperties.SO_TIMEOUT, Integer.toString(configuration.socketTimeout()));
@@ -599,6 +606,11 @@ public void start() {
    @Override
    public void stop() {
       if (isStarted()) {
+         synchronized (cacheName2RemoteCache) {
+            for (RemoteCacheHolder rcc : cacheName2RemoteCache.values()) {
+               stopNearCache(rcc.remoteCache);
+            }
+         }
          transportFactory.destroy();
          asyncExecutorService.shutdownNow();
       }
@@ -631,6 +643,7 @@ private <K, V> RemoteCache<K, V> createRemoteCache(String cacheName, Boolean for
                // Default cache is always started, so don't do for it
                if (!cacheName.equals(BasicCacheContainer.DEFAULT_CACHE_NAME) &&
                      ping(result) == PingResult.CACHE_DOES_NOT_EXIST) {
+                  stopNearCache(result);
                   return null;
                }
             }
@@ -655,7 +668,24 @@ private void startRemoteCache(RemoteCacheHolder remoteCacheHolder) {
       RemoteCacheImpl<?, ?> remoteCache = remoteCacheHolder.remoteCache;
       OperationsFactory operationsFactory = new OperationsFactory(
             transportFactory, remoteCache.getName(), topologyId, remoteCacheHolder.forceReturnValue, codec);
-      remoteCache.init(marshaller, asyncExecutorService, operationsFactory, configuration.keySizeEstimate(), configuration.valueSizeEstimate());
+      // A cache restarted along with this manager drops the near cache it had
+      stopNearCache(remoteCache);
+      NearCache nearCache = null;
+      if (configuration.nearCache().enabled()) {
+         if (codec.isNearCacheInvalidationSupported()) {
+            nearCache = new NearCache(remoteCache.getName(), configuration.nearCache(), operationsFactory, transportFactory);
+            nearCache.start();
+         } else {
+            log.nearCacheNotSupported(remoteCache.getName(), configuration.protocolVersion());
+         }
+      }
+      remoteCache.init(marshaller, asyncExecutorService, operationsFactory, configuration.keySizeEstimate(), configuration.valueSizeEstimate(), nearCache);
+   }
+
+   private void stopNearCache(RemoteCacheImpl<?, ?> remoteCache) {
+      NearCache nearCache = remoteCache.getNearCache();
+      if (nearCache != null)
+         nearCache.stop();
    }
 
    public Marshaller getMarshaller() {
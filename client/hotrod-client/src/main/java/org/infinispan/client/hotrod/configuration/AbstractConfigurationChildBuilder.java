@@ -113,6 +113,11 @@ public ConfigurationBuilder marshaller(Marshaller marshaller) {
       return builder.marshaller(marshaller);
    }
 
+   @Override
+   public NearCacheConfigurationBuilder nearCache() {
+      return builder.nearCache();
+   }
+
    @Override
    public ConfigurationBuilder pingOnStartup(boolean pingOnStartup) {
       return builder.pingOnStartup(pingOnStartup);
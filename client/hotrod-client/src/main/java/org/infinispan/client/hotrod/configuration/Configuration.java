@@ -48,6 +48,7 @@ public class Configuration {
    private final int keySizeEstimate;
    private final Class<? extends Marshaller> marshallerClass;
    private final Marshaller marshaller;
+   private final NearCacheConfiguration nearCache;
    private final boolean pingOnStartup;
    private final String protocolVersion;
    private final List<ServerConfiguration> servers;
@@ -58,7 +59,7 @@ public class Configuration {
 
    Configuration(ExecutorFactoryConfiguration asyncExecutorFactory, Class<? extends RequestBalancingStrategy> balancingStrategy, ClassLoader classLoader,
          ConnectionPoolConfiguration connectionPool, int connectionTimeout, Class<? extends ConsistentHash>[] consistentHashImpl, boolean forceReturnValues, int keySizeEstimate, Class<? extends Marshaller> marshallerClass,
-         boolean pingOnStartup, String protocolVersion, List<ServerConfiguration> servers, int socketTimeout, boolean tcpNoDelay,
+         NearCacheConfiguration nearCache, boolean pingOnStartup, String protocolVersion, List<ServerConfiguration> servers, int socketTimeout, boolean tcpNoDelay,
          Class<? extends TransportFactory> transportFactory, int valueSizeEstimate) {
       this.asyncExecutorFactory = asyncExecutorFactory;
       this.balancingStrategy = balancingStrategy;
@@ -70,6 +71,7 @@ public class Configuration {
       this.keySizeEstimate = keySizeEstimate;
       this.marshallerClass = marshallerClass;
       this.marshaller = null;
+      this.nearCache = nearCache;
       this.pingOnStartup = pingOnStartup;
       this.protocolVersion = protocolVersion;
       this.servers = Collections.unmodifiableList(servers);
@@ -81,7 +83,7 @@ public class Configuration {
 
    Configuration(ExecutorFactoryConfiguration asyncExecutorFactory, Class<? extends RequestBalancingStrategy> balancingStrategy, ClassLoader classLoader,
          ConnectionPoolConfiguration connectionPool, int connectionTimeout, Class<? extends ConsistentHash>[] consistentHashImpl, boolean forceReturnValues, int keySizeEstimate, Marshaller marshaller,
-         boolean pingOnStartup, String protocolVersion, List<ServerConfiguration> servers, int socketTimeout, boolean tcpNoDelay,
+         NearCacheConfiguration nearCache, boolean pingOnStartup, String protocolVersion, List<ServerConfiguration> servers, int socketTimeout, boolean tcpNoDelay,
          Class<? extends TransportFactory> transportFactory, int valueSizeEstimate) {
       this.asyncExecutorFactory = asyncExecutorFactory;
       this.balancingStrategy = balancingStrategy;
@@ -93,6 +95,7 @@ public class Configuration {
       this.keySizeEstimate = keySizeEstimate;
       this.marshallerClass = null;
       this.marshaller = marshaller;
+      this.nearCache = nearCache;
       this.pingOnStartup = pingOnStartup;
       this.protocolVersion = protocolVersion;
       this.servers = Collections.unmodifiableList(servers);
@@ -146,6 +149,10 @@ public Class<? extends Marshaller> marshallerClass() {
       return marshallerClass;
    }
 
+   public NearCacheConfiguration nearCache() {
+      return nearCache;
+   }
+
    public boolean pingOnStartup() {
       return pingOnStartup;
    }
@@ -178,7 +185,7 @@ public int valueSizeEstimate() {
    public String toString() {
       return "Configuration [asyncExecutorFactory=" + asyncExecutorFactory + ", balancingStrategy=" + balancingStrategy + ", classLoader=" + classLoader + ", connectionPool="
             + connectionPool + ", connectionTimeout=" + connectionTimeout + ", consistentHashImpl=" + Arrays.toString(consistentHashImpl) + ", forceReturnValues="
-            + forceReturnValues + ", keySizeEstimate=" + keySizeEstimate + ", marshallerClass=" + marshallerClass + ", marshaller=" + marshaller + ", pingOnStartup="
+            + forceReturnValues + ", keySizeEstimate=" + keySizeEstimate + ", marshallerClass=" + marshallerClass + ", marshaller=" + marshaller + ", nearCache=" + nearCache + ", pingOnStartup="
             + pingOnStartup + ", protocolVersion=" + protocolVersion + ", servers=" + servers + ", socketTimeout=" + socketTimeout + ", tcpNoDelay=" + tcpNoDelay
             + ", transportFactory=" + transportFactory + ", valueSizeEstimate=" + valueSizeEstimate + "]";
    }
@@ -120,14 +120,20 @@ public interface ConfigurationChildBuilder {
     */
    ConfigurationBuilder marshaller(Marshaller marshaller);
 
+   /**
+    * Configures the near cache
+    */
+   NearCacheConfigurationBuilder nearCache();
+
    /**
     * If true, a ping request is sent to a back end server in order to fetch cluster's topology.
     */
    ConfigurationBuilder pingOnStartup(boolean pingOnStartup);
 
    /**
-    * This property defines the protocol version that this client should use. Defaults to 1.1. Other
-    * valid values include 1.0.
+    * This property defines the protocol version that this client should use. Defaults to 1.2. Other
+    * valid values include 1.0, 1.1 and 1.3. Version 1.3 is needed for single request multi-key
+    * operations and for the near cache, and is only understood by servers that support it.
     */
    ConfigurationBuilder protocolVersion(String protocolVersion);
 
@@ -143,12 +149,16 @@ public interface ConfigurationChildBuilder {
    ConfigurationBuilder tcpNoDelay(boolean tcpNoDelay);
 
    /**
-    * Controls which transport to use. Currently only the TcpTransport is supported.
+    * Controls which transport to use. The default TcpTransportFactory borrows a pooled connection for the duration
+    * of each operation, while the NioTransportFactory multiplexes all operations to a server over a single
+    * non-blocking connection and completes asynchronous operations without an executor thread.
     */
    ConfigurationBuilder transportFactory(String transportFactory);
 
    /**
-    * Controls which transport to use. Currently only the TcpTransport is supported.
+    * Controls which transport to use. The default TcpTransportFactory borrows a pooled connection for the duration
+    * of each operation, while the NioTransportFactory multiplexes all operations to a server over a single
+    * non-blocking connection and completes asynchronous operations without an executor thread.
     */
    ConfigurationBuilder transportFactory(Class<? extends TransportFactory> transportFactory);
 
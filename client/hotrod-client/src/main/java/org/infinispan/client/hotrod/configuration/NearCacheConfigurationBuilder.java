@@ -0,0 +1,109 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.infinispan.client.hotrod.configuration;
+
+import java.util.Properties;
+
+import org.infinispan.client.hotrod.impl.ConfigurationProperties;
+import org.infinispan.client.hotrod.impl.TypedProperties;
+import org.infinispan.config.ConfigurationException;
+import org.infinispan.configuration.Builder;
+import org.infinispan.eviction.EvictionStrategy;
+
+/**
+ * Configures the near cache, a bounded cache held by the client of the entries it read last. The server pushes an
+ * invalidation to the client whenever one of these entries changes, so reads of cached entries do not need to go
+ * to the server.
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+public class NearCacheConfigurationBuilder extends AbstractConfigurationChildBuilder implements Builder<NearCacheConfiguration> {
+   private boolean enabled;
+   private int maxEntries = ConfigurationProperties.DEFAULT_NEAR_CACHE_MAX_ENTRIES;
+   private EvictionStrategy strategy = EvictionStrategy.LRU;
+
+   NearCacheConfigurationBuilder(ConfigurationBuilder builder) {
+      super(builder);
+   }
+
+   /**
+    * Enables the near cache. Requires version 1.3 of the protocol. The default is disabled.
+    */
+   public NearCacheConfigurationBuilder enabled(boolean enabled) {
+      this.enabled = enabled;
+      return this;
+   }
+
+   /**
+    * Maximum number of entries the near cache holds. The default is 1000.
+    */
+   public NearCacheConfigurationBuilder maxEntries(int maxEntries) {
+      this.maxEntries = maxEntries;
+      return this;
+   }
+
+   /**
+    * The strategy choosing the entries to evict from a full near cache, one of LRU, LIRS or TINY_LFU. The default is
+    * LRU.
+    */
+   public NearCacheConfigurationBuilder strategy(EvictionStrategy strategy) {
+      this.strategy = strategy;
+      return this;
+   }
+
+   /**
+    * Configures the near cache from the given properties
+    */
+   public NearCacheConfigurationBuilder withNearCacheProperties(Properties properties) {
+      TypedProperties typed = TypedProperties.toTypedProperties(properties);
+      enabled(typed.getBooleanProperty(ConfigurationProperties.NEAR_CACHE_ENABLED, enabled));
+      maxEntries(typed.getIntProperty(ConfigurationProperties.NEAR_CACHE_MAX_ENTRIES, maxEntries));
+      strategy(EvictionStrategy.valueOf(typed.getProperty(ConfigurationProperties.NEAR_CACHE_EVICTION_STRATEGY, strategy.name())));
+      return this;
+   }
+
+   @Override
+   public void validate() {
+      if (!enabled)
+         return;
+      if (maxEntries <= 0)
+         throw new ConfigurationException("The near cache needs a positive maxEntries, was " + maxEntries);
+      if (strategy != EvictionStrategy.LRU && strategy != EvictionStrategy.LIRS && strategy != EvictionStrategy.TINY_LFU)
+         throw new ConfigurationException("The near cache does not support the " + strategy + " eviction strategy");
+   }
+
+   @Override
+   public NearCacheConfiguration create() {
+      return new NearCacheConfiguration(enabled, maxEntries, strategy);
+   }
+
+   @Override
+   public NearCacheConfigurationBuilder read(NearCacheConfiguration template) {
+      this.enabled = template.enabled();
+      this.maxEntries = template.maxEntries();
+      this.strategy = template.strategy();
+      return this;
+   }
+
+   @Override
+   public String toString() {
+      return "NearCacheConfigurationBuilder [enabled=" + enabled + ", maxEntries=" + maxEntries + ", strategy=" + strategy + "]";
+   }
+}
@@ -57,6 +57,9 @@ public class ConfigurationProperties {
    public static final String SO_TIMEOUT = "infinispan.client.hotrod.socket_timeout";
    public static final String CONNECT_TIMEOUT = "infinispan.client.hotrod.connect_timeout";
    public static final String PROTOCOL_VERSION = "infinispan.client.hotrod.protocol_version";
+   public static final String NEAR_CACHE_ENABLED = "infinispan.client.hotrod.near_cache.enabled";
+   public static final String NEAR_CACHE_MAX_ENTRIES = "infinispan.client.hotrod.near_cache.max_entries";
+   public static final String NEAR_CACHE_EVICTION_STRATEGY = "infinispan.client.hotrod.near_cache.eviction_strategy";
 
    // defaults
 
@@ -65,9 +68,12 @@ public class ConfigurationProperties {
    public static final int DEFAULT_HOTROD_PORT = 11222;
    public static final int DEFAULT_SO_TIMEOUT = 60000;
    public static final int DEFAULT_CONNECT_TIMEOUT = 60000;
+   public static final int DEFAULT_NEAR_CACHE_MAX_ENTRIES = 1000;
+   public static final String PROTOCOL_VERSION_13 = "1.3";
    public static final String PROTOCOL_VERSION_12 = "1.2";
    public static final String PROTOCOL_VERSION_11 = "1.1";
    public static final String PROTOCOL_VERSION_10 = "1.0";
+   // 1.3 adds putAll/getAll/removeAll and near cache invalidation, it is opt-in since older servers reject it
    public static final String DEFAULT_PROTOCOL_VERSION = PROTOCOL_VERSION_12;
 
    private final TypedProperties props;
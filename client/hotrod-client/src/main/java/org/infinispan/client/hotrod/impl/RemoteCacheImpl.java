@@ -28,9 +28,11 @@
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
@@ -45,6 +47,9 @@
 import org.infinispan.client.hotrod.exceptions.HotRodClientException;
 import org.infinispan.client.hotrod.exceptions.RemoteCacheManagerNotStartedException;
 import org.infinispan.client.hotrod.impl.async.NotifyingFutureImpl;
+import org.infinispan.client.hotrod.impl.async.ResponseFuture;
+import org.infinispan.client.hotrod.impl.nearcache.NearCache;
+import org.infinispan.client.hotrod.impl.operations.AbstractMultiKeyOperation;
 import org.infinispan.client.hotrod.impl.operations.BulkGetKeysOperation;
 import org.infinispan.client.hotrod.impl.operations.BulkGetOperation;
 import org.infinispan.client.hotrod.impl.operations.ClearOperation;
@@ -64,6 +69,8 @@
 import org.infinispan.client.hotrod.logging.Log;
 import org.infinispan.client.hotrod.logging.LogFactory;
 import org.infinispan.marshall.Marshaller;
+import org.infinispan.util.ByteArrayKey;
+import org.infinispan.util.concurrent.FutureListener;
 import org.infinispan.util.concurrent.NotifyingFuture;
 
 /**
@@ -81,6 +88,7 @@
    private OperationsFactory operationsFactory;
    private int estimateKeySize;
    private int estimateValueSize;
+   private NearCache nearCache;
 
 
    public RemoteCacheImpl(RemoteCacheManager rcm, String name) {
@@ -92,11 +100,23 @@ public RemoteCacheImpl(RemoteCacheManager rcm, String name) {
    }
 
    public void init(Marshaller marshaller, ExecutorService executorService, OperationsFactory operationsFactory, int estimateKeySize, int estimateValueSize) {
+      init(marshaller, executorService, operationsFactory, estimateKeySize, estimateValueSize, null);
+   }
+
+   public void init(Marshaller marshaller, ExecutorService executorService, OperationsFactory operationsFactory, int estimateKeySize, int estimateValueSize, NearCache nearCache) {
       this.marshaller = marshaller;
       this.executorService = executorService;
       this.operationsFactory = operationsFactory;
       this.estimateKeySize = estimateKeySize;
       this.estimateValueSize = estimateValueSize;
+      this.nearCache = nearCache;
+   }
+
+   /**
+    * Returns the near cache of this cache, or <code>null</code> if it has none.
+    */
+   public NearCache getNearCache() {
+      return nearCache;
    }
 
    @Override
@@ -108,13 +128,21 @@ public RemoteCacheManager getRemoteCacheManager() {
    public boolean removeWithVersion(K key, long version) {
       assertRemoteCacheManagerIsStarted();
       RemoveIfUnmodifiedOperation op = operationsFactory.newRemoveIfUnmodifiedOperation(obj2bytes(key, true), version);
-      VersionedOperationResponse response = op.execute();
-      return response.getCode().isUpdated();
+      try {
+         VersionedOperationResponse response = op.execute();
+         return response.getCode().isUpdated();
+      } finally {
+         invalidateNearCache(op.getKey());
+      }
    }
 
    @Override
    public NotifyingFuture<Boolean> removeWithVersionAsync(final K key, final long version) {
       assertRemoteCacheManagerIsStarted();
+      if (operationsFactory.isPipelined()) {
+         RemoveIfUnmodifiedOperation op = operationsFactory.newRemoveIfUnmodifiedOperation(obj2bytes(key, true), version);
+         return isUpdated(op.executeAsync(), op.getKey());
+      }
       final NotifyingFutureImpl<Boolean> result = new NotifyingFutureImpl<Boolean>();
       Future<Boolean> future = executorService.submit(new Callable<Boolean>() {
          @Override
@@ -132,13 +160,21 @@ public Boolean call() throws Exception {
    public boolean replaceWithVersion(K key, V newValue, long version, int lifespanSeconds, int maxIdleTimeSeconds) {
       assertRemoteCacheManagerIsStarted();
       ReplaceIfUnmodifiedOperation op = operationsFactory.newReplaceIfUnmodifiedOperation(obj2bytes(key, true), obj2bytes(newValue, false), lifespanSeconds, maxIdleTimeSeconds, version);
-      VersionedOperationResponse response = op.execute();
-      return response.getCode().isUpdated();
+      try {
+         VersionedOperationResponse response = op.execute();
+         return response.getCode().isUpdated();
+      } finally {
+         invalidateNearCache(op.getKey());
+      }
    }
 
    @Override
    public NotifyingFuture<Boolean> replaceWithVersionAsync(final K key, final V newValue, final long version, final int lifespanSeconds, final int maxIdleSeconds) {
       assertRemoteCacheManagerIsStarted();
+      if (operationsFactory.isPipelined()) {
+         ReplaceIfUnmodifiedOperation op = operationsFactory.newReplaceIfUnmodifiedOperation(obj2bytes(key, true), obj2bytes(newValue, false), lifespanSeconds, maxIdleSeconds, version);
+         return isUpdated(op.executeAsync(), op.getKey());
+      }
       final NotifyingFutureImpl<Boolean> result = new NotifyingFutureImpl<Boolean>();
       Future<Boolean> future = executorService.submit(new Callable<Boolean>() {
          @Override
@@ -171,8 +207,28 @@ public MetadataValue<V> getWithMetadata(K key) {
    @Override
    public void putAll(Map<? extends K, ? extends V> map, long lifespan, TimeUnit lifespanUnit, long maxIdleTime, TimeUnit maxIdleTimeUnit) {
       assertRemoteCacheManagerIsStarted();
+      if (!operationsFactory.isMultiKeyOperationSupported()) {
+         for (Entry<? extends K, ? extends V> entry : map.entrySet()) {
+            put(entry.getKey(), entry.getValue(), lifespan, lifespanUnit, maxIdleTime, maxIdleTimeUnit);
+         }
+         return;
+      }
+
+      int lifespanSecs = toSeconds(lifespan, lifespanUnit);
+      int maxIdleSecs = toSeconds(maxIdleTime, maxIdleTimeUnit);
+      applyDefaultExpirationFlags(lifespan, maxIdleTime);
+      if (log.isTraceEnabled()) {
+         log.tracef("About to add %d entries, lifespanSecs:%d, maxIdleSecs:%d", map.size(), lifespanSecs, maxIdleSecs);
+      }
+      Map<byte[], byte[]> entries = new HashMap<byte[], byte[]>(map.size() * 4 / 3 + 1);
       for (Entry<? extends K, ? extends V> entry : map.entrySet()) {
-         put(entry.getKey(), entry.getValue(), lifespan, lifespanUnit, maxIdleTime, maxIdleTimeUnit);
+         entries.put(obj2bytes(entry.getKey(), true), obj2bytes(entry.getValue(), false));
+      }
+      try {
+         AbstractMultiKeyOperation.executeAll(
+               operationsFactory.newPutAllOperations(entries, lifespanSecs, maxIdleSecs));
+      } finally {
+         invalidateNearCache(entries.keySet());
       }
    }
 
@@ -221,15 +277,23 @@ public ServerStatistics stats() {
    @SuppressWarnings("unchecked")
    public V put(K key, V value, long lifespan, TimeUnit lifespanUnit, long maxIdleTime, TimeUnit maxIdleTimeUnit) {
       assertRemoteCacheManagerIsStarted();
+      PutOperation op = newPutOperation(key, value, lifespan, lifespanUnit, maxIdleTime, maxIdleTimeUnit);
+      try {
+         byte[] result = op.execute();
+         return (V) bytes2obj(result);
+      } finally {
+         invalidateNearCache(op.getKey());
+      }
+   }
+
+   private PutOperation newPutOperation(K key, V value, long lifespan, TimeUnit lifespanUnit, long maxIdleTime, TimeUnit maxIdleTimeUnit) {
       int lifespanSecs = toSeconds(lifespan, lifespanUnit);
       int maxIdleSecs = toSeconds(maxIdleTime, maxIdleTimeUnit);
       applyDefaultExpirationFlags(lifespan, maxIdleTime);
       if (log.isTraceEnabled()) {
          log.tracef("About to add (K,V): (%s, %s) lifespanSecs:%d, maxIdleSecs:%d", key, value, lifespanSecs, maxIdleSecs);
       }
-      PutOperation op = operationsFactory.newPutKeyValueOperation(obj2bytes(key, true), obj2bytes(value, false), lifespanSecs, maxIdleSecs);
-      byte[] result = op.execute();
-      return (V) bytes2obj(result);
+      return operationsFactory.newPutKeyValueOperation(obj2bytes(key, true), obj2bytes(value, false), lifespanSecs, maxIdleSecs);
    }
 
 
@@ -237,29 +301,49 @@ public V put(K key, V value, long lifespan, TimeUnit lifespanUnit, long maxIdleT
    @SuppressWarnings("unchecked")
    public V putIfAbsent(K key, V value, long lifespan, TimeUnit lifespanUnit, long maxIdleTime, TimeUnit maxIdleTimeUnit) {
       assertRemoteCacheManagerIsStarted();
+      PutIfAbsentOperation op = newPutIfAbsentOperation(key, value, lifespan, lifespanUnit, maxIdleTime, maxIdleTimeUnit);
+      try {
+         byte[] bytes = op.execute();
+         return (V) bytes2obj(bytes);
+      } finally {
+         invalidateNearCache(op.getKey());
+      }
+   }
+
+   private PutIfAbsentOperation newPutIfAbsentOperation(K key, V value, long lifespan, TimeUnit lifespanUnit, long maxIdleTime, TimeUnit maxIdleTimeUnit) {
       int lifespanSecs = toSeconds(lifespan, lifespanUnit);
       int maxIdleSecs = toSeconds(maxIdleTime, maxIdleTimeUnit);
       applyDefaultExpirationFlags(lifespan, maxIdleTime);
-      PutIfAbsentOperation op = operationsFactory.newPutIfAbsentOperation(obj2bytes(key, true), obj2bytes(value, false), lifespanSecs, maxIdleSecs);
-      byte[] bytes = op.execute();
-      return (V) bytes2obj(bytes);
+      return operationsFactory.newPutIfAbsentOperation(obj2bytes(key, true), obj2bytes(value, false), lifespanSecs, maxIdleSecs);
    }
 
    @Override
    @SuppressWarnings("unchecked")
    public V replace(K key, V value, long lifespan, TimeUnit lifespanUnit, long maxIdleTime, TimeUnit maxIdleTimeUnit) {
       assertRemoteCacheManagerIsStarted();
+      ReplaceOperation op = newReplaceOperation(key, value, lifespan, lifespanUnit, maxIdleTime, maxIdleTimeUnit);
+      try {
+         byte[] bytes = op.execute();
+         return (V) bytes2obj(bytes);
+      } finally {
+         invalidateNearCache(op.getKey());
+      }
+   }
+
+   private ReplaceOperation newReplaceOperation(K key, V value, long lifespan, TimeUnit lifespanUnit, long maxIdleTime, TimeUnit maxIdleTimeUnit) {
       int lifespanSecs = toSeconds(lifespan, lifespanUnit);
       int maxIdleSecs = toSeconds(maxIdleTime, maxIdleTimeUnit);
       applyDefaultExpirationFlags(lifespan, maxIdleTime);
-      ReplaceOperation op = operationsFactory.newReplaceOperation(obj2bytes(key, true), obj2bytes(value, false), lifespanSecs, maxIdleSecs);
-      byte[] bytes = op.execute();
-      return (V) bytes2obj(bytes);
+      return operationsFactory.newReplaceOperation(obj2bytes(key, true), obj2bytes(value, false), lifespanSecs, maxIdleSecs);
    }
 
    @Override
    public NotifyingFuture<V> putAsync(final K key, final V value, final long lifespan, final TimeUnit lifespanUnit, final long maxIdle, final TimeUnit maxIdleUnit) {
       assertRemoteCacheManagerIsStarted();
+      if (operationsFactory.isPipelined()) {
+         PutOperation op = newPutOperation(key, value, lifespan, lifespanUnit, maxIdle, maxIdleUnit);
+         return unmarshall(op.executeAsync(), op.getKey());
+      }
       final NotifyingFutureImpl<V> result = new NotifyingFutureImpl<V>();
       Future<V> future = executorService.submit(new Callable<V>() {
          @Override
@@ -276,6 +360,20 @@ public V call() throws Exception {
    @Override
    public NotifyingFuture<Void> clearAsync() {
       assertRemoteCacheManagerIsStarted();
+      if (operationsFactory.isPipelined()) {
+         ResponseFuture<Void> response = operationsFactory.newClearOperation().executeAsync();
+         if (nearCache == null)
+            return response;
+         ResponseConverter<Void, Void> converter = new ResponseConverter<Void, Void>() {
+            @Override
+            Void convert(Void ignored) {
+               nearCache.clear();
+               return null;
+            }
+         };
+         response.attachListener(converter);
+         return converter.result;
+      }
       final NotifyingFutureImpl<Void> result = new NotifyingFutureImpl<Void>();
       Future<Void> future = executorService.submit(new Callable<Void>() {
          @Override
@@ -292,6 +390,10 @@ public Void call() throws Exception {
    @Override
    public NotifyingFuture<V> putIfAbsentAsync(final K key,final V value,final long lifespan,final TimeUnit lifespanUnit,final long maxIdle,final TimeUnit maxIdleUnit) {
       assertRemoteCacheManagerIsStarted();
+      if (operationsFactory.isPipelined()) {
+         PutIfAbsentOperation op = newPutIfAbsentOperation(key, value, lifespan, lifespanUnit, maxIdle, maxIdleUnit);
+         return unmarshall(op.executeAsync(), op.getKey());
+      }
       final NotifyingFutureImpl<V> result = new NotifyingFutureImpl<V>();
       Future<V> future = executorService.submit(new Callable<V>() {
          @Override
@@ -308,6 +410,10 @@ public V call() throws Exception {
    @Override
    public NotifyingFuture<V> removeAsync(final Object key) {
       assertRemoteCacheManagerIsStarted();
+      if (operationsFactory.isPipelined()) {
+         RemoveOperation op = operationsFactory.newRemoveOperation(obj2bytes(key, true));
+         return unmarshall(op.executeAsync(), op.getKey());
+      }
       final NotifyingFutureImpl<V> result = new NotifyingFutureImpl<V>();
       Future<V> future = executorService.submit(new Callable<V>() {
          @Override
@@ -324,6 +430,10 @@ public V call() throws Exception {
    @Override
    public NotifyingFuture<V> replaceAsync(final K key,final V value,final long lifespan,final TimeUnit lifespanUnit,final long maxIdle,final TimeUnit maxIdleUnit) {
       assertRemoteCacheManagerIsStarted();
+      if (operationsFactory.isPipelined()) {
+         ReplaceOperation op = newReplaceOperation(key, value, lifespan, lifespanUnit, maxIdle, maxIdleUnit);
+         return unmarshall(op.executeAsync(), op.getKey());
+      }
       final NotifyingFutureImpl<V> result = new NotifyingFutureImpl<V>();
       Future<V> future = executorService.submit(new Callable<V>() {
          @Override
@@ -349,15 +459,49 @@ public boolean containsKey(Object key) {
    public V get(Object key) {
       assertRemoteCacheManagerIsStarted();
       byte[] keyBytes = obj2bytes(key, true);
-      GetOperation gco = operationsFactory.newGetKeyOperation(keyBytes);
-      byte[] bytes = gco.execute();
-      V result = (V) bytes2obj(bytes);
+      V result;
+      if (nearCache != null) {
+         result = getThroughNearCache(keyBytes);
+      } else {
+         GetOperation gco = operationsFactory.newGetKeyOperation(keyBytes);
+         byte[] bytes = gco.execute();
+         result = (V) bytes2obj(bytes);
+      }
       if (log.isTraceEnabled()) {
          log.tracef("For key(%s) returning %s", key, result);
       }
       return result;
    }
 
+   @SuppressWarnings("unchecked")
+   private V getThroughNearCache(byte[] keyBytes) {
+      Object cached = nearCache.get(keyBytes);
+      if (cached != null) {
+         // Flags only apply to operations sent to the server
+         operationsFactory.clearFlags();
+         return (V) cached;
+      }
+      Object token = nearCache.startRead(keyBytes);
+      if (token == null) {
+         GetOperation gco = operationsFactory.newGetKeyOperation(keyBytes);
+         return (V) bytes2obj(gco.execute());
+      }
+      try {
+         MetadataValue<byte[]> value = operationsFactory.newGetWithMetadataOperation(keyBytes).execute();
+         if (value == null)
+            return null;
+         V result = (V) bytes2obj(value.getValue());
+         // Only immortal entries are kept, as the servers do not notify expirations
+         if (value.getLifespan() < 0 && value.getMaxIdle() < 0) {
+            nearCache.completeRead(keyBytes, token, result);
+            token = null;
+         }
+         return result;
+      } finally {
+         nearCache.completeRead(keyBytes, token, null);
+      }
+   }
+
    @Override
    public Map<K, V> getBulk() {
       return getBulk(0);
@@ -378,22 +522,85 @@ public Map<K, V> getBulk(int size) {
       return Collections.unmodifiableMap(toReturn);
    }
 
+   @Override
+   @SuppressWarnings("unchecked")
+   public Map<K, V> getAll(Set<? extends K> keys) {
+      assertRemoteCacheManagerIsStarted();
+      Map<K, V> toReturn = new HashMap<K, V>();
+      if (!operationsFactory.isMultiKeyOperationSupported()) {
+         for (K key : keys) {
+            V value = get(key);
+            if (value != null)
+               toReturn.put(key, value);
+         }
+         return Collections.unmodifiableMap(toReturn);
+      }
+
+      // Map the returned keys back to the instances passed in rather than unmarshalling them again
+      Map<ByteArrayKey, K> keysByBytes = new HashMap<ByteArrayKey, K>(keys.size() * 4 / 3 + 1);
+      Set<byte[]> keyBytes = new HashSet<byte[]>(keys.size() * 4 / 3 + 1);
+      for (K key : keys) {
+         byte[] bytes = obj2bytes(key, true);
+         keysByBytes.put(new ByteArrayKey(bytes), key);
+         keyBytes.add(bytes);
+      }
+      List<Map<byte[], byte[]>> results =
+            AbstractMultiKeyOperation.executeAll(operationsFactory.newGetAllOperations(keyBytes));
+      for (Map<byte[], byte[]> result : results) {
+         for (Map.Entry<byte[], byte[]> entry : result.entrySet()) {
+            K key = keysByBytes.get(new ByteArrayKey(entry.getKey()));
+            toReturn.put(key, (V) bytes2obj(entry.getValue()));
+         }
+      }
+      return Collections.unmodifiableMap(toReturn);
+   }
+
+   @Override
+   public void removeAll(Set<? extends K> keys) {
+      assertRemoteCacheManagerIsStarted();
+      if (!operationsFactory.isMultiKeyOperationSupported()) {
+         for (K key : keys) {
+            remove(key);
+         }
+         return;
+      }
+
+      Set<byte[]> keyBytes = new HashSet<byte[]>(keys.size() * 4 / 3 + 1);
+      for (K key : keys) {
+         keyBytes.add(obj2bytes(key, true));
+      }
+      try {
+         AbstractMultiKeyOperation.executeAll(operationsFactory.newRemoveAllOperations(keyBytes));
+      } finally {
+         invalidateNearCache(keyBytes);
+      }
+   }
+
    @Override
    @SuppressWarnings("unchecked")
    public V remove(Object key) {
       assertRemoteCacheManagerIsStarted();
       RemoveOperation removeOperation = operationsFactory.newRemoveOperation(obj2bytes(key, true));
-      byte[] existingValue = removeOperation.execute();
-      // TODO: It sucks that you need the prev value to see if it works...
-      // We need to find a better API for RemoteCache...
-      return (V) bytes2obj(existingValue);
+      try {
+         byte[] existingValue = removeOperation.execute();
+         // TODO: It sucks that you need the prev value to see if it works...
+         // We need to find a better API for RemoteCache...
+         return (V) bytes2obj(existingValue);
+      } finally {
+         invalidateNearCache(removeOperation.getKey());
+      }
    }
 
    @Override
    public void clear() {
       assertRemoteCacheManagerIsStarted();
       ClearOperation op = operationsFactory.newClearOperation() ;
-      op.execute();
+      try {
+         op.execute();
+      } finally {
+         if (nearCache != null)
+            nearCache.clear();
+      }
    }
 
    @Override
@@ -429,6 +636,9 @@ public RemoteCache<K, V> withFlags(Flag... flags) {
    @Override
    public NotifyingFuture<V> getAsync(final K key) {
       assertRemoteCacheManagerIsStarted();
+      // Pipelined reads go straight to the servers, bypassing the near cache
+      if (operationsFactory.isPipelined())
+         return unmarshall(operationsFactory.newGetKeyOperation(obj2bytes(key, true)).executeAsync(), null);
       final NotifyingFutureImpl<V> result = new NotifyingFutureImpl<V>();
       Future<V> future = executorService.submit(new Callable<V>() {
          @Override
@@ -446,6 +656,48 @@ public PingOperation.PingResult ping() {
       return operationsFactory.newFaultTolerantPingOperation().execute();
    }
 
+   /**
+    * @param writtenKey the key written by the operation, which is invalidated in the near cache before the returned
+    *        future completes, or <code>null</code> for reads
+    */
+   private NotifyingFuture<V> unmarshall(ResponseFuture<byte[]> response, final byte[] writtenKey) {
+      ResponseConverter<byte[], V> converter = new ResponseConverter<byte[], V>() {
+         @Override
+         @SuppressWarnings("unchecked")
+         V convert(byte[] bytes) {
+            if (writtenKey != null)
+               invalidateNearCache(writtenKey);
+            return (V) bytes2obj(bytes);
+         }
+      };
+      response.attachListener(converter);
+      return converter.result;
+   }
+
+   private NotifyingFuture<Boolean> isUpdated(ResponseFuture<VersionedOperationResponse> response, final byte[] writtenKey) {
+      ResponseConverter<VersionedOperationResponse, Boolean> converter = new ResponseConverter<VersionedOperationResponse, Boolean>() {
+         @Override
+         Boolean convert(VersionedOperationResponse response) {
+            invalidateNearCache(writtenKey);
+            return response.getCode().isUpdated();
+         }
+      };
+      response.attachListener(converter);
+      return converter.result;
+   }
+
+   private void invalidateNearCache(byte[] key) {
+      if (nearCache != null)
+         nearCache.invalidate(key);
+   }
+
+   private void invalidateNearCache(Set<byte[]> keys) {
+      if (nearCache != null) {
+         for (byte[] key : keys)
+            nearCache.invalidate(key);
+      }
+   }
+
    private byte[] obj2bytes(Object o, boolean isKey) {
       try {
          return marshaller.objectToByteBuffer(o, isKey ? estimateKeySize : estimateValueSize);
@@ -528,4 +780,26 @@ public Set<K> keySet() {
        }
        return Collections.unmodifiableSet(toReturn);
    };
+
+   /**
+    * Completes its result with the converted outcome of the operation it listens to. Conversion happens in the thread
+    * completing the operation.
+    */
+   private abstract static class ResponseConverter<S, T> implements FutureListener<S> {
+      final ResponseFuture<T> result = new ResponseFuture<T>();
+
+      @Override
+      public void futureDone(Future<S> future) {
+         try {
+            // listeners are only notified once the future is done, so this never waits
+            result.complete(convert(future.get(0, TimeUnit.MILLISECONDS)));
+         } catch (ExecutionException e) {
+            result.fail(e.getCause());
+         } catch (Throwable t) {
+            result.fail(t);
+         }
+      }
+
+      abstract T convert(S response);
+   }
 }
@@ -0,0 +1,171 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.infinispan.client.hotrod.impl.async;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.infinispan.client.hotrod.logging.Log;
+import org.infinispan.client.hotrod.logging.LogFactory;
+import org.infinispan.util.concurrent.FutureListener;
+import org.infinispan.util.concurrent.NotifyingFuture;
+
+/**
+ * Notifying future that is completed explicitly when the response of an asynchronous operation arrives, rather than
+ * by a task running in an executor. Listeners are invoked by the thread completing the future, or by the thread
+ * attaching them if the future is already done.
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+public class ResponseFuture<T> implements NotifyingFuture<T> {
+
+   private static final Log log = LogFactory.getLog(ResponseFuture.class, Log.class);
+
+   private final CountDownLatch latch = new CountDownLatch(1);
+
+   // guarded by this
+   private List<FutureListener<T>> listeners;
+   private boolean done;
+
+   private volatile T value;
+   private volatile Throwable failure;
+   private volatile boolean cancelled;
+
+   /**
+    * Completes this future with the given value, unless it is done already.
+    *
+    * @return <code>true</code> if this call completed the future
+    */
+   public boolean complete(T value) {
+      synchronized (this) {
+         if (done)
+            return false;
+         this.value = value;
+         done = true;
+      }
+      latch.countDown();
+      notifyListeners();
+      return true;
+   }
+
+   /**
+    * Completes this future with the given exception, unless it is done already.
+    *
+    * @return <code>true</code> if this call completed the future
+    */
+   public boolean fail(Throwable cause) {
+      synchronized (this) {
+         if (done)
+            return false;
+         this.failure = cause;
+         done = true;
+      }
+      latch.countDown();
+      notifyListeners();
+      return true;
+   }
+
+   /**
+    * Cancelling the future does not abort the request, whose response is discarded when it arrives.
+    */
+   @Override
+   public boolean cancel(boolean mayInterruptIfRunning) {
+      synchronized (this) {
+         if (done)
+            return false;
+         cancelled = true;
+         done = true;
+      }
+      latch.countDown();
+      notifyListeners();
+      return true;
+   }
+
+   @Override
+   public NotifyingFuture<T> attachListener(FutureListener<T> listener) {
+      synchronized (this) {
+         if (!done) {
+            if (listeners == null)
+               listeners = new ArrayList<FutureListener<T>>(2);
+            listeners.add(listener);
+            return this;
+         }
+      }
+      notifyListener(listener);
+      return this;
+   }
+
+   @Override
+   public boolean isCancelled() {
+      return cancelled;
+   }
+
+   @Override
+   public boolean isDone() {
+      return latch.getCount() == 0;
+   }
+
+   @Override
+   public T get() throws InterruptedException, ExecutionException {
+      latch.await();
+      return report();
+   }
+
+   @Override
+   public T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+      if (!latch.await(timeout, unit))
+         throw new TimeoutException();
+      return report();
+   }
+
+   private T report() throws ExecutionException {
+      if (cancelled)
+         throw new CancellationException();
+      if (failure != null)
+         throw new ExecutionException(failure);
+      return value;
+   }
+
+   private void notifyListeners() {
+      List<FutureListener<T>> toNotify;
+      synchronized (this) {
+         toNotify = listeners;
+         listeners = null;
+      }
+      if (toNotify != null) {
+         for (FutureListener<T> listener : toNotify)
+            notifyListener(listener);
+      }
+   }
+
+   private void notifyListener(FutureListener<T> listener) {
+      try {
+         listener.futureDone(this);
+      } catch (Throwable t) {
+         log.futureListenerFailed(t);
+      }
+   }
+
+}
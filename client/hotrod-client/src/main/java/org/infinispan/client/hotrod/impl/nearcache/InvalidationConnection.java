@@ -0,0 +1,156 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.infinispan.client.hotrod.impl.nearcache;
+
+import java.net.SocketAddress;
+
+import net.jcip.annotations.GuardedBy;
+
+import org.infinispan.client.hotrod.exceptions.TransportException;
+import org.infinispan.client.hotrod.impl.ConfigurationProperties;
+import org.infinispan.client.hotrod.impl.operations.AddNearCacheListenerOperation;
+import org.infinispan.client.hotrod.impl.operations.OperationsFactory;
+import org.infinispan.client.hotrod.impl.protocol.HeaderParams;
+import org.infinispan.client.hotrod.impl.protocol.HotRodConstants;
+import org.infinispan.client.hotrod.impl.transport.TransportFactory;
+import org.infinispan.client.hotrod.impl.transport.tcp.TcpTransport;
+
+/**
+ * Connection to a single server over which that server pushes the invalidation events of a {@link NearCache}. It is
+ * served by its own daemon thread, which reopens the connection with an increasing delay whenever it fails.
+ * <p/>
+ * Reads time out after the socket timeout: the server is then pinged, and the connection is deemed lost if it does
+ * not answer within another timeout either. Losing the connection clears the near cache, since invalidations may
+ * have been missed.
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+class InvalidationConnection implements Runnable {
+
+   private static final long MIN_RETRY_DELAY_MILLIS = 100;
+
+   private static final long MAX_RETRY_DELAY_MILLIS = 10000;
+
+   private final SocketAddress server;
+
+   private final NearCache nearCache;
+
+   private final OperationsFactory operationsFactory;
+
+   private final TransportFactory transportFactory;
+
+   private final Thread thread;
+
+   private volatile TcpTransport transport;
+
+   private volatile boolean stopped;
+
+   @GuardedBy("nearCache")
+   boolean registered;
+
+   InvalidationConnection(String cacheName, SocketAddress server, NearCache nearCache,
+                          OperationsFactory operationsFactory, TransportFactory transportFactory) {
+      this.server = server;
+      this.nearCache = nearCache;
+      this.operationsFactory = operationsFactory;
+      this.transportFactory = transportFactory;
+      this.thread = new Thread(this, "HotRod-NearCache-" + cacheName + "-" + server);
+      this.thread.setDaemon(true);
+   }
+
+   SocketAddress getServer() {
+      return server;
+   }
+
+   void start() {
+      thread.start();
+   }
+
+   void stop() {
+      stopped = true;
+      // unblocks the thread waiting for the next event
+      TcpTransport t = transport;
+      if (t != null)
+         t.destroy();
+      thread.interrupt();
+   }
+
+   @Override
+   public void run() {
+      long retryDelay = MIN_RETRY_DELAY_MILLIS;
+      while (!stopped) {
+         try {
+            transport = new TcpTransport(server, transportFactory, heartbeatInterval());
+            if (stopped)
+               break;
+            AddNearCacheListenerOperation op = operationsFactory.newAddNearCacheListenerOperation(transport);
+            HeaderParams params = op.execute();
+            boolean heartbeatPending = false;
+            while (!stopped) {
+               if (!transport.awaitData()) {
+                  // events may be far apart, so only a heartbeat left unanswered means the server is gone
+                  if (heartbeatPending)
+                     throw new TransportException("No heartbeat received from server " + server, server);
+                  op.sendHeartbeat();
+                  heartbeatPending = true;
+                  continue;
+               }
+               heartbeatPending = false;
+               short opCode = op.readMessage(params);
+               if (opCode == HotRodConstants.ADD_NEAR_CACHE_LISTENER_RESPONSE) {
+                  nearCache.registered(this);
+                  retryDelay = MIN_RETRY_DELAY_MILLIS;
+               } else if (opCode == HotRodConstants.INVALIDATION_EVENT) {
+                  byte[] key = op.readInvalidatedKey();
+                  if (key.length == 0) {
+                     // the cache was cleared
+                     nearCache.clear();
+                  } else {
+                     nearCache.invalidate(key);
+                  }
+               }
+            }
+         } catch (RuntimeException e) {
+            if (!stopped)
+               nearCache.disconnected(this, e);
+         } finally {
+            TcpTransport t = transport;
+            transport = null;
+            if (t != null)
+               t.destroy();
+         }
+
+         if (!stopped) {
+            try {
+               Thread.sleep(retryDelay);
+            } catch (InterruptedException e) {
+               Thread.currentThread().interrupt();
+               return;
+            }
+            retryDelay = Math.min(retryDelay * 2, MAX_RETRY_DELAY_MILLIS);
+         }
+      }
+   }
+
+   private int heartbeatInterval() {
+      int soTimeout = transportFactory.getSoTimeout();
+      return soTimeout > 0 ? soTimeout : ConfigurationProperties.DEFAULT_SO_TIMEOUT;
+   }
+}
@@ -0,0 +1,236 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.infinispan.client.hotrod.impl.nearcache;
+
+import java.net.SocketAddress;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+
+import org.infinispan.client.hotrod.configuration.NearCacheConfiguration;
+import org.infinispan.client.hotrod.impl.operations.OperationsFactory;
+import org.infinispan.client.hotrod.impl.transport.TransportFactory;
+import org.infinispan.client.hotrod.logging.Log;
+import org.infinispan.client.hotrod.logging.LogFactory;
+import org.infinispan.util.ByteArrayKey;
+import org.infinispan.util.concurrent.BoundedConcurrentHashMap;
+import org.infinispan.util.concurrent.BoundedConcurrentHashMap.Eviction;
+
+/**
+ * Client side copy of the entries of a remote cache that were recently read, kept consistent with the servers by
+ * the invalidation events they push over one {@link InvalidationConnection} per server.
+ * <p/>
+ * The near cache is only used while every server has acknowledged the registration of its connection: an entry
+ * modified on a server whose connection is down would otherwise never be invalidated. Losing a connection therefore
+ * clears the near cache, and it is only used again once the connection has been reestablished.
+ * <p/>
+ * A value read from the servers is only stored if no invalidation of its key arrived since the read started, which
+ * is detected by reserving the key with a placeholder before the read ({@link #startRead(byte[])}) and replacing that
+ * very placeholder afterwards ({@link #completeRead(byte[], Object, Object)}).
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+@ThreadSafe
+public class NearCache {
+
+   private static final Log log = LogFactory.getLog(NearCache.class, Log.class);
+
+   private final String cacheName;
+
+   private final OperationsFactory operationsFactory;
+
+   private final TransportFactory transportFactory;
+
+   private final BoundedConcurrentHashMap<ByteArrayKey, Object> entries;
+
+   @GuardedBy("this")
+   private final Map<SocketAddress, InvalidationConnection> connections = new HashMap<SocketAddress, InvalidationConnection>();
+
+   // the server list the connections were opened for, replaced by the transport factory when the topology changes
+   private volatile Collection<SocketAddress> servers;
+
+   private volatile boolean active;
+
+   @GuardedBy("this")
+   private boolean stopped;
+
+   public NearCache(String cacheName, NearCacheConfiguration configuration, OperationsFactory operationsFactory,
+                    TransportFactory transportFactory) {
+      this.cacheName = cacheName;
+      this.operationsFactory = operationsFactory;
+      this.transportFactory = transportFactory;
+      this.entries = new BoundedConcurrentHashMap<ByteArrayKey, Object>(configuration.maxEntries(),
+            Math.min(configuration.maxEntries(), 16), toEviction(configuration));
+   }
+
+   private static Eviction toEviction(NearCacheConfiguration configuration) {
+      switch (configuration.strategy()) {
+         case LIRS:
+            return Eviction.LIRS;
+         case TINY_LFU:
+            return Eviction.TINY_LFU;
+         default:
+            return Eviction.LRU;
+      }
+   }
+
+   /**
+    * Opens the invalidation connections. The near cache is used once all of them are registered.
+    */
+   public void start() {
+      refreshServers();
+   }
+
+   public synchronized void stop() {
+      stopped = true;
+      active = false;
+      for (InvalidationConnection connection : connections.values())
+         connection.stop();
+      connections.clear();
+      entries.clear();
+   }
+
+   /**
+    * Returns the value cached for the given key, or <code>null</code> if it has to be read from the servers. The
+    * value is shared by all callers.
+    */
+   public Object get(byte[] key) {
+      if (!active)
+         return null;
+      Object value = entries.get(new ByteArrayKey(key));
+      return value instanceof PendingRead ? null : value;
+   }
+
+   /**
+    * Called before reading the given key from the servers.
+    *
+    * @return the token to pass to {@link #completeRead(byte[], Object, Object)} once the value was read, or
+    *         <code>null</code> if the value must not be cached
+    */
+   public Object startRead(byte[] key) {
+      refreshServers();
+      if (!active)
+         return null;
+      PendingRead token = new PendingRead();
+      entries.put(new ByteArrayKey(key), token);
+      return token;
+   }
+
+   /**
+    * Caches the value read for the given key, unless the key was invalidated since {@link #startRead(byte[])}
+    * returned the token. A <code>null</code> value releases the key.
+    */
+   public void completeRead(byte[] key, Object token, Object value) {
+      if (token == null)
+         return;
+      if (value == null)
+         entries.remove(new ByteArrayKey(key), token);
+      else
+         entries.replace(new ByteArrayKey(key), token, value);
+   }
+
+   public void invalidate(byte[] key) {
+      entries.remove(new ByteArrayKey(key));
+   }
+
+   public void clear() {
+      entries.clear();
+   }
+
+   public int size() {
+      int size = 0;
+      for (Object value : entries.values()) {
+         if (!(value instanceof PendingRead))
+            size++;
+      }
+      return size;
+   }
+
+   public boolean isActive() {
+      return active;
+   }
+
+   synchronized void registered(InvalidationConnection connection) {
+      if (stopped || connections.get(connection.getServer()) != connection)
+         return;
+      connection.registered = true;
+      for (InvalidationConnection c : connections.values()) {
+         if (!c.registered)
+            return;
+      }
+      if (!active) {
+         // values may have been read while some server could not notify us of their changes
+         entries.clear();
+         active = true;
+      }
+   }
+
+   synchronized void disconnected(InvalidationConnection connection, Throwable cause) {
+      if (stopped || connections.get(connection.getServer()) != connection)
+         return;
+      boolean wasRegistered = connection.registered;
+      connection.registered = false;
+      active = false;
+      entries.clear();
+      if (wasRegistered)
+         log.nearCacheInvalidationsLost(connection.getServer(), cause);
+   }
+
+   /**
+    * Opens connections to the servers that joined the cluster and closes those to the servers that left it.
+    */
+   private void refreshServers() {
+      if (transportFactory.getServers() == servers)
+         return;
+      synchronized (this) {
+         Collection<SocketAddress> current = transportFactory.getServers();
+         if (stopped || current == servers)
+            return;
+         for (Iterator<Map.Entry<SocketAddress, InvalidationConnection>> it = connections.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<SocketAddress, InvalidationConnection> entry = it.next();
+            if (!current.contains(entry.getKey())) {
+               entry.getValue().stop();
+               it.remove();
+            }
+         }
+         for (SocketAddress server : current) {
+            if (!connections.containsKey(server)) {
+               InvalidationConnection connection = new InvalidationConnection(cacheName, server, this,
+                     operationsFactory, transportFactory);
+               connections.put(server, connection);
+               // keep serving nothing until the new server acknowledged the registration
+               active = false;
+               connection.start();
+            }
+         }
+         servers = current;
+      }
+   }
+
+   /**
+    * Placeholder reserving a key while its value is being read from the servers.
+    */
+   private static final class PendingRead {
+   }
+}
@@ -55,6 +55,10 @@ protected AbstractKeyOperation(Codec codec, TransportFactory transportFactory,
       this.key = key;
    }
 
+   public byte[] getKey() {
+      return key;
+   }
+
    @Override
    protected Transport getTransport(int retryCount) {
       if (retryCount == 0) {
@@ -64,14 +68,11 @@ protected Transport getTransport(int retryCount) {
       }
    }
 
-   protected short sendKeyOperation(byte[] key, Transport transport, byte opCode, byte opRespCode) {
-      // 1) write [header][key length][key]
+   //[header][key length][key]
+   protected HeaderParams writeKeyRequest(Transport transport, byte opCode) {
       HeaderParams params = writeHeader(transport, opCode);
       transport.writeArray(key);
-      transport.flush();
-
-      // 2) now read the header
-      return readHeaderAndValidate(transport, params);
+      return params;
    }
 
    protected byte[] returnPossiblePrevValue(Transport transport) {
@@ -0,0 +1,147 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.infinispan.client.hotrod.impl.operations;
+
+import net.jcip.annotations.Immutable;
+import org.infinispan.client.hotrod.Flag;
+import org.infinispan.client.hotrod.exceptions.RemoteNodeSuspectException;
+import org.infinispan.client.hotrod.exceptions.TransportException;
+import org.infinispan.client.hotrod.impl.async.ResponseFuture;
+import org.infinispan.client.hotrod.impl.protocol.Codec;
+import org.infinispan.client.hotrod.impl.protocol.HeaderParams;
+import org.infinispan.client.hotrod.impl.transport.PipelinedTransportFactory;
+import org.infinispan.client.hotrod.impl.transport.Transport;
+import org.infinispan.client.hotrod.impl.transport.TransportFactory;
+import org.infinispan.client.hotrod.logging.Log;
+import org.infinispan.client.hotrod.logging.LogFactory;
+
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Base class for the operations carrying several keys in a single request. Each instance is directed at the server
+ * owning its keys, so a multi-key cache invocation results in one request per server.
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ * @param T the return type of this operation
+ */
+@Immutable
+public abstract class AbstractMultiKeyOperation<T> extends RetryOnFailureOperation<T> {
+
+   private static final Log log = LogFactory.getLog(AbstractMultiKeyOperation.class, Log.class);
+
+   protected final SocketAddress server;
+
+   protected AbstractMultiKeyOperation(Codec codec, TransportFactory transportFactory, SocketAddress server,
+            byte[] cacheName, AtomicInteger topologyId, Flag[] flags) {
+      super(codec, transportFactory, cacheName, topologyId, flags);
+      this.server = server;
+   }
+
+   @Override
+   protected Transport getTransport(int retryCount) {
+      if (retryCount == 0 && server != null) {
+         return transportFactory.getTransport(server);
+      } else {
+         return transportFactory.getTransport();
+      }
+   }
+
+   /**
+    * Executes the given operations, writing the requests of all of them before reading the first response so that
+    * the servers process them in parallel without the need for a thread per request. An operation whose request or
+    * response fails because of the connection or a suspected node is executed again with the regular retry logic.
+    *
+    * @return the results of the operations, in the order of the operations
+    */
+   public static <T> List<T> executeAll(List<? extends AbstractMultiKeyOperation<T>> operations) {
+      int size = operations.size();
+      if (size == 1)
+         return Collections.singletonList(operations.get(0).execute());
+      if (operations.get(0).transportFactory instanceof PipelinedTransportFactory)
+         return executeAllAsync(operations);
+
+      List<T> results = new ArrayList<T>(size);
+      Transport[] transports = new Transport[size];
+      HeaderParams[] params = new HeaderParams[size];
+      try {
+         for (int i = 0; i < size; i++) {
+            AbstractMultiKeyOperation<T> op = operations.get(i);
+            try {
+               transports[i] = op.getTransport(0);
+               params[i] = op.writeRequest(transports[i]);
+               transports[i].flush();
+            } catch (TransportException te) {
+               log.tracef(te, "Unable to send request to %s, it will be retried", op.server);
+               op.transportFactory.invalidateTransport(te.getServerAddress(), transports[i]);
+               params[i] = null;
+            }
+         }
+
+         for (int i = 0; i < size; i++) {
+            AbstractMultiKeyOperation<T> op = operations.get(i);
+            boolean done = false;
+            T result = null;
+            if (params[i] != null) {
+               try {
+                  result = op.readResponse(transports[i], params[i]);
+                  done = true;
+               } catch (TransportException te) {
+                  log.tracef(te, "Unable to read response from %s, request will be retried", op.server);
+                  op.transportFactory.invalidateTransport(te.getServerAddress(), transports[i]);
+               } catch (RemoteNodeSuspectException e) {
+                  log.tracef(e, "Node suspected while %s processed the request, it will be retried", op.server);
+               }
+            }
+            op.releaseTransport(transports[i]);
+            transports[i] = null;
+            results.add(done ? result : op.execute());
+         }
+      } finally {
+         // On failure the responses of the remaining requests are still
+         // pending, so the connections cannot be reused
+         for (int i = 0; i < size; i++) {
+            if (transports[i] != null) {
+               transports[i].invalidate();
+               operations.get(i).releaseTransport(transports[i]);
+            }
+         }
+      }
+      return results;
+   }
+
+   private static <T> List<T> executeAllAsync(List<? extends AbstractMultiKeyOperation<T>> operations) {
+      List<ResponseFuture<T>> futures = new ArrayList<ResponseFuture<T>>(operations.size());
+      for (AbstractMultiKeyOperation<T> op : operations) {
+         futures.add(op.executeAsync());
+      }
+      List<T> results = new ArrayList<T>(futures.size());
+      for (int i = 0; i < futures.size(); i++) {
+         AbstractMultiKeyOperation<T> op = operations.get(i);
+         // each operation may be retried on as many transports as its synchronous execution
+         long timeout = (long) op.transportFactory.getSoTimeout() * Math.max(1, op.transportFactory.getTransportCount());
+         results.add(await(futures.get(i), timeout, op.server));
+      }
+      return results;
+   }
+}
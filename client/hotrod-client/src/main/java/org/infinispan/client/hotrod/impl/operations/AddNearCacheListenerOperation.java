@@ -0,0 +1,79 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.infinispan.client.hotrod.impl.operations;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.jcip.annotations.Immutable;
+
+import org.infinispan.client.hotrod.impl.protocol.Codec;
+import org.infinispan.client.hotrod.impl.protocol.HeaderParams;
+import org.infinispan.client.hotrod.impl.transport.Transport;
+
+/**
+ * Asks the server to push an invalidation event over the given transport whenever an entry of the cache is
+ * modified, removed or evicted. The transport is dedicated to these events once the request has been written:
+ * the response to the request, the events and the responses to the heartbeats sent with {@link #sendHeartbeat()}
+ * are read from it with {@link #readMessage(HeaderParams)}.
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+@Immutable
+public class AddNearCacheListenerOperation extends HotRodOperation {
+
+   private final Transport transport;
+
+   public AddNearCacheListenerOperation(Codec codec, AtomicInteger topologyId, Transport transport, byte[] cacheName) {
+      super(codec, null, cacheName, topologyId);
+      this.transport = transport;
+   }
+
+   @Override
+   public HeaderParams execute() {
+      HeaderParams params = writeHeader(transport, ADD_NEAR_CACHE_LISTENER_REQUEST);
+      transport.flush();
+      return params;
+   }
+
+   /**
+    * Pings the server over the transport, so that a connection over which no event arrives can be told from a lost
+    * one. The response is read as any other message.
+    */
+   public void sendHeartbeat() {
+      writeHeader(transport, PING_REQUEST);
+      transport.flush();
+   }
+
+   /**
+    * Reads the header of the next message and returns its operation code: {@link #ADD_NEAR_CACHE_LISTENER_RESPONSE}
+    * once the server sends events for all changes, {@link #PING_RESPONSE} in answer to a heartbeat, or
+    * {@link #INVALIDATION_EVENT}, in which case the key must be read with {@link #readInvalidatedKey()}.
+    */
+   public short readMessage(HeaderParams params) {
+      return codec.readEventHeader(transport, params);
+   }
+
+   /**
+    * Reads the key of the entry an invalidation event invalidates, empty if it invalidates all entries.
+    */
+   public byte[] readInvalidatedKey() {
+      return transport.readArray();
+   }
+}
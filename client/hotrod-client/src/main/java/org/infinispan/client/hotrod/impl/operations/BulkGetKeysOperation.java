@@ -52,14 +52,22 @@ protected Transport getTransport(int retryCount) {
    }
 
    @Override
-   protected Set<byte[]> executeOperation(Transport transport) {
+   protected HeaderParams writeRequest(Transport transport) {
       HeaderParams params = writeHeader(transport, BULK_GET_KEYS_REQUEST);
       transport.writeVInt(scope);
-      transport.flush();
-      readHeaderAndValidate(transport, params);
-      Set<byte[]> result = new HashSet<byte[]>();
+      return params;
+   }
+
+   @Override
+   protected Set<byte[]> readResponse(Transport transport, HeaderParams params) {
+      Set<byte[]> result = resumeState(transport);
+      if (result == null) {
+         readHeaderAndValidate(transport, params);
+         result = new HashSet<byte[]>();
+      }
       while ( transport.readByte() == 1) { //there's more!
          result.add(transport.readArray());
+         checkpoint(transport, result);
       }
       return result;
    }
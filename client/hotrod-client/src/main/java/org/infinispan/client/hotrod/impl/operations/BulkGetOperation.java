@@ -53,14 +53,22 @@ protected Transport getTransport(int retryCount) {
    }
 
    @Override
-   protected Map<byte[], byte[]> executeOperation(Transport transport) {
+   protected HeaderParams writeRequest(Transport transport) {
       HeaderParams params = writeHeader(transport, BULK_GET_REQUEST);
       transport.writeVInt(entryCount);
-      transport.flush();
-      readHeaderAndValidate(transport, params);
-      Map<byte[], byte[]> result = new HashMap<byte[], byte[]>();
+      return params;
+   }
+
+   @Override
+   protected Map<byte[], byte[]> readResponse(Transport transport, HeaderParams params) {
+      Map<byte[], byte[]> result = resumeState(transport);
+      if (result == null) {
+         readHeaderAndValidate(transport, params);
+         result = new HashMap<byte[], byte[]>();
+      }
       while ( transport.readByte() == 1) { //there's more!
          result.put(transport.readArray(), transport.readArray());
+         checkpoint(transport, result);
       }
       return result;
    }
@@ -28,11 +28,17 @@
 import org.infinispan.client.hotrod.Flag;
 import org.infinispan.client.hotrod.impl.protocol.Codec;
 import org.infinispan.client.hotrod.impl.protocol.HotRodConstants;
+import org.infinispan.client.hotrod.impl.transport.PipelinedTransportFactory;
 import org.infinispan.client.hotrod.impl.transport.Transport;
 import org.infinispan.client.hotrod.impl.transport.TransportFactory;
 
+import java.net.SocketAddress;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -146,6 +152,93 @@ public BulkGetKeysOperation newBulkGetKeysOperation(int scope) {
     		codec, transportFactory, cacheNameBytes, topologyId, flags(), scope);
    }
 
+   /**
+    * Whether the multi-key operations are part of the protocol version in use. If not, the cache falls back to single
+    * key operations.
+    */
+   public boolean isMultiKeyOperationSupported() {
+      return codec.isMultiKeyOperationSupported();
+   }
+
+   /**
+    * Whether operations can be executed asynchronously without a thread waiting for their response, see
+    * {@link RetryOnFailureOperation#executeAsync()}.
+    */
+   public boolean isPipelined() {
+      return transportFactory instanceof PipelinedTransportFactory;
+   }
+
+   /**
+    * Creates a get all operation for each server owning some of the given keys.
+    */
+   public List<GetAllOperation> newGetAllOperations(Set<byte[]> keys) {
+      Flag[] flags = flags();
+      Map<SocketAddress, Set<byte[]>> keysByServer = groupByServer(keys);
+      List<GetAllOperation> operations = new ArrayList<GetAllOperation>(keysByServer.size());
+      for (Map.Entry<SocketAddress, Set<byte[]>> entry : keysByServer.entrySet()) {
+         operations.add(new GetAllOperation(
+               codec, transportFactory, entry.getKey(), entry.getValue(), cacheNameBytes, topologyId, flags));
+      }
+      return operations;
+   }
+
+   /**
+    * Creates a remove all operation for each server owning some of the given keys.
+    */
+   public List<RemoveAllOperation> newRemoveAllOperations(Set<byte[]> keys) {
+      Flag[] flags = flags();
+      Map<SocketAddress, Set<byte[]>> keysByServer = groupByServer(keys);
+      List<RemoveAllOperation> operations = new ArrayList<RemoveAllOperation>(keysByServer.size());
+      for (Map.Entry<SocketAddress, Set<byte[]>> entry : keysByServer.entrySet()) {
+         operations.add(new RemoveAllOperation(
+               codec, transportFactory, entry.getKey(), entry.getValue(), cacheNameBytes, topologyId, flags));
+      }
+      return operations;
+   }
+
+   /**
+    * Creates a put all operation for each server owning some of the keys of the given entries.
+    */
+   public List<PutAllOperation> newPutAllOperations(Map<byte[], byte[]> entries,
+            int lifespanSecs, int maxIdleSecs) {
+      Flag[] flags = flags();
+      Map<SocketAddress, Map<byte[], byte[]>> entriesByServer = new HashMap<SocketAddress, Map<byte[], byte[]>>();
+      for (Map.Entry<byte[], byte[]> entry : entries.entrySet()) {
+         SocketAddress server = transportFactory.getServer(entry.getKey());
+         Map<byte[], byte[]> serverEntries = entriesByServer.get(server);
+         if (serverEntries == null) {
+            serverEntries = new HashMap<byte[], byte[]>();
+            entriesByServer.put(server, serverEntries);
+         }
+         serverEntries.put(entry.getKey(), entry.getValue());
+      }
+      List<PutAllOperation> operations = new ArrayList<PutAllOperation>(entriesByServer.size());
+      for (Map.Entry<SocketAddress, Map<byte[], byte[]>> entry : entriesByServer.entrySet()) {
+         operations.add(new PutAllOperation(
+               codec, transportFactory, entry.getKey(), entry.getValue(), cacheNameBytes, topologyId, flags,
+               lifespanSecs, maxIdleSecs));
+      }
+      return operations;
+   }
+
+   /**
+    * Groups the keys by the server owning them. If the owners are not known, e.g. because the cache is not distributed,
+    * all keys are grouped under <code>null</code> and the request goes to any server.
+    */
+   private Map<SocketAddress, Set<byte[]>> groupByServer(Set<byte[]> keys) {
+      Map<SocketAddress, Set<byte[]>> keysByServer = new HashMap<SocketAddress, Set<byte[]>>();
+      for (byte[] key : keys) {
+         SocketAddress server = transportFactory.getServer(key);
+         Set<byte[]> serverKeys = keysByServer.get(server);
+         if (serverKeys == null) {
+            serverKeys = new HashSet<byte[]>();
+            keysByServer.put(server, serverKeys);
+         }
+         serverKeys.add(key);
+      }
+      return keysByServer;
+   }
+
    /**
     * Construct a ping request directed to a particular node.
     *
@@ -156,6 +249,16 @@ public PingOperation newPingOperation(Transport transport) {
       return new PingOperation(codec, topologyId, transport, cacheNameBytes);
    }
 
+   /**
+    * Construct a request for near cache invalidation events sent over a transport dedicated to them.
+    *
+    * @param transport the transport the events are to be received on
+    * @return an operation registering the transport for invalidation events
+    */
+   public AddNearCacheListenerOperation newAddNearCacheListenerOperation(Transport transport) {
+      return new AddNearCacheListenerOperation(codec, topologyId, transport, cacheNameBytes);
+   }
+
    /**
     * Construct a fault tolerant ping request. This operation should be capable
     * to deal with nodes being down, so it will find the first node successful
@@ -188,6 +291,13 @@ public void setFlags(Flag[] flags) {
       this.flagsMap.set(list);
    }
 
+   /**
+    * Discards the flags set for the next operation, which the caller answered without contacting the server.
+    */
+   public void clearFlags() {
+      this.flagsMap.remove();
+   }
+
    public void addFlags(Flag... flags) {
       List<Flag> list = this.flagsMap.get();
       if (list == null) {
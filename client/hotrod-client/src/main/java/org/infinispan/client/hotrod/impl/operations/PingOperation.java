@@ -59,10 +59,16 @@ public PingOperation(Codec codec, AtomicInteger topologyId, Transport transport,
 
    @Override
    public PingResult execute() {
-      try {
-         HeaderParams params = writeHeader(transport, HotRodConstants.PING_REQUEST);
-         transport.flush();
+      HeaderParams params = writeHeader(transport, HotRodConstants.PING_REQUEST);
+      transport.flush();
+      return readResponse(params);
+   }
 
+   /**
+    * Reads the response of a ping request written by this or by a {@link FaultTolerantPingOperation}.
+    */
+   PingResult readResponse(HeaderParams params) {
+      try {
          short respStatus = readHeaderAndValidate(transport, params);
          if (respStatus == HotRodConstants.NO_ERROR_STATUS) {
             if (log.isTraceEnabled())
@@ -0,0 +1,75 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.infinispan.client.hotrod.impl.operations;
+
+import net.jcip.annotations.Immutable;
+import org.infinispan.client.hotrod.Flag;
+import org.infinispan.client.hotrod.impl.protocol.Codec;
+import org.infinispan.client.hotrod.impl.protocol.HeaderParams;
+import org.infinispan.client.hotrod.impl.transport.Transport;
+import org.infinispan.client.hotrod.impl.transport.TransportFactory;
+
+import java.net.SocketAddress;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stores several entries, all with the same expiration settings, with a single request.
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+@Immutable
+public class PutAllOperation extends AbstractMultiKeyOperation<Void> {
+
+   private final Map<byte[], byte[]> entries;
+
+   private final int lifespan;
+
+   private final int maxIdle;
+
+   public PutAllOperation(Codec codec, TransportFactory transportFactory, SocketAddress server,
+            Map<byte[], byte[]> entries, byte[] cacheName, AtomicInteger topologyId, Flag[] flags,
+            int lifespan, int maxIdle) {
+      super(codec, transportFactory, server, cacheName, topologyId, flags);
+      this.entries = entries;
+      this.lifespan = lifespan;
+      this.maxIdle = maxIdle;
+   }
+
+   //[header][lifespan][max idle][entry count]{[key length][key][value length][value]}*
+   @Override
+   protected HeaderParams writeRequest(Transport transport) {
+      HeaderParams params = writeHeader(transport, PUT_ALL_REQUEST);
+      transport.writeVInt(lifespan);
+      transport.writeVInt(maxIdle);
+      transport.writeVInt(entries.size());
+      for (Map.Entry<byte[], byte[]> entry : entries.entrySet()) {
+         transport.writeArray(entry.getKey());
+         transport.writeArray(entry.getValue());
+      }
+      return params;
+   }
+
+   @Override
+   protected Void readResponse(Transport transport, HeaderParams params) {
+      readHeaderAndValidate(transport, params);
+      return null;
+   }
+}
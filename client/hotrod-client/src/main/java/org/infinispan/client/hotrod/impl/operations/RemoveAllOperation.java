@@ -0,0 +1,65 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.infinispan.client.hotrod.impl.operations;
+
+import net.jcip.annotations.Immutable;
+import org.infinispan.client.hotrod.Flag;
+import org.infinispan.client.hotrod.impl.protocol.Codec;
+import org.infinispan.client.hotrod.impl.protocol.HeaderParams;
+import org.infinispan.client.hotrod.impl.transport.Transport;
+import org.infinispan.client.hotrod.impl.transport.TransportFactory;
+
+import java.net.SocketAddress;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Removes several keys with a single request. Previous values are never returned.
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+@Immutable
+public class RemoveAllOperation extends AbstractMultiKeyOperation<Void> {
+
+   private final Set<byte[]> keys;
+
+   public RemoveAllOperation(Codec codec, TransportFactory transportFactory, SocketAddress server, Set<byte[]> keys,
+            byte[] cacheName, AtomicInteger topologyId, Flag[] flags) {
+      super(codec, transportFactory, server, cacheName, topologyId, flags);
+      this.keys = keys;
+   }
+
+   //[header][key count]{[key length][key]}*
+   @Override
+   protected HeaderParams writeRequest(Transport transport) {
+      HeaderParams params = writeHeader(transport, REMOVE_ALL_REQUEST);
+      transport.writeVInt(keys.size());
+      for (byte[] key : keys) {
+         transport.writeArray(key);
+      }
+      return params;
+   }
+
+   @Override
+   protected Void readResponse(Transport transport, HeaderParams params) {
+      readHeaderAndValidate(transport, params);
+      return null;
+   }
+}
@@ -27,13 +27,23 @@
 import org.infinispan.client.hotrod.exceptions.HotRodClientException;
 import org.infinispan.client.hotrod.exceptions.RemoteNodeSuspectException;
 import org.infinispan.client.hotrod.exceptions.TransportException;
+import org.infinispan.client.hotrod.impl.async.ResponseFuture;
 import org.infinispan.client.hotrod.impl.protocol.Codec;
+import org.infinispan.client.hotrod.impl.protocol.HeaderParams;
+import org.infinispan.client.hotrod.impl.transport.PipelinedTransport;
+import org.infinispan.client.hotrod.impl.transport.ResponseHandler;
 import org.infinispan.client.hotrod.impl.transport.Transport;
 import org.infinispan.client.hotrod.impl.transport.TransportFactory;
 import org.infinispan.client.hotrod.logging.Log;
 import org.infinispan.client.hotrod.logging.LogFactory;
 
 
+import java.net.SocketAddress;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -87,6 +97,68 @@ public T execute() {
       throw new IllegalStateException("We should not reach here!");
    }
 
+   /**
+    * Executes this operation without blocking the calling thread. This requires a transport factory handing out
+    * {@link PipelinedTransport}s: the request is queued on a connection shared with other requests, and the returned
+    * future is completed by the thread receiving the response. Failures are retried the same way as by
+    * {@link #execute()}.
+    */
+   public ResponseFuture<T> executeAsync() {
+      ResponseFuture<T> future = new ResponseFuture<T>();
+      executeAsync(future, 0);
+      return future;
+   }
+
+   private void executeAsync(final ResponseFuture<T> future, final int retryCount) {
+      Transport transport = null;
+      try {
+         transport = getTransport(retryCount);
+         final Transport sent = transport;
+         final HeaderParams params = writeRequest(transport);
+         asPipelined(transport).send(new ResponseHandler<T>() {
+            @Override
+            public T readResponse(Transport transport) {
+               return RetryOnFailureOperation.this.readResponse(transport, params);
+            }
+
+            @Override
+            public void handleResponse(T response) {
+               future.complete(response);
+            }
+
+            @Override
+            public void handleFailure(Throwable cause) {
+               if (cause instanceof TransportException) {
+                  TransportException te = (TransportException) cause;
+                  transportFactory.invalidateTransport(te.getServerAddress(), sent);
+                  retryOrFail(future, retryCount, te);
+               } else if (cause instanceof RemoteNodeSuspectException) {
+                  retryOrFail(future, retryCount, (RemoteNodeSuspectException) cause);
+               } else {
+                  future.fail(cause);
+               }
+            }
+         });
+      } catch (TransportException te) {
+         transportFactory.invalidateTransport(te.getServerAddress(), transport);
+         retryOrFail(future, retryCount, te);
+      } catch (RuntimeException e) {
+         future.fail(e);
+      } finally {
+         releaseTransport(transport);
+      }
+   }
+
+   private void retryOrFail(ResponseFuture<T> future, int retryCount, HotRodClientException e) {
+      try {
+         logErrorAndThrowExceptionIfNeeded(retryCount, e);
+      } catch (HotRodClientException noRetriesLeft) {
+         future.fail(noRetriesLeft);
+         return;
+      }
+      executeAsync(future, retryCount + 1);
+   }
+
    protected boolean shouldRetry(int retryCount) {
       return retryCount < transportFactory.getTransportCount();
    }
@@ -108,5 +180,92 @@ protected void releaseTransport(Transport transport) {
 
    protected abstract Transport getTransport(int retryCount);
 
-   protected abstract T executeOperation(Transport transport);
+   protected T executeOperation(Transport transport) {
+      final HeaderParams params = writeRequest(transport);
+      if (transport instanceof PipelinedTransport) {
+         final ResponseFuture<T> response = new ResponseFuture<T>();
+         ((PipelinedTransport) transport).send(new ResponseHandler<T>() {
+            @Override
+            public T readResponse(Transport transport) {
+               return RetryOnFailureOperation.this.readResponse(transport, params);
+            }
+
+            @Override
+            public void handleResponse(T result) {
+               response.complete(result);
+            }
+
+            @Override
+            public void handleFailure(Throwable cause) {
+               response.fail(cause);
+            }
+         });
+         // the transport times the request out itself, this only guards against a response that never completes
+         return await(response, transportFactory.getSoTimeout(), transport.getRemoteSocketAddress());
+      }
+      transport.flush();
+      return readResponse(transport, params);
+   }
+
+   /**
+    * Writes header and body of the request, without flushing the transport.
+    */
+   protected abstract HeaderParams writeRequest(Transport transport);
+
+   /**
+    * Reads the response to the request written by {@link #writeRequest(Transport)}. On a {@link PipelinedTransport}
+    * this might be invoked several times for the same response, see {@link ResponseHandler#readResponse(Transport)}.
+    */
+   protected abstract T readResponse(Transport transport, HeaderParams params);
+
+   /**
+    * Lets a response made of many entries be read in a single pass on a {@link PipelinedTransport}: the given state,
+    * holding everything read so far, is handed back by {@link #resumeState(Transport)} if the rest of the response has
+    * not arrived yet. Does nothing on other transports.
+    */
+   protected static void checkpoint(Transport transport, Object state) {
+      if (transport instanceof PipelinedTransport)
+         ((PipelinedTransport) transport).checkpoint(state);
+   }
+
+   /**
+    * The state of the last {@link #checkpoint(Transport, Object)} taken while reading the response, or
+    * <code>null</code> if the response is read from its start.
+    */
+   @SuppressWarnings("unchecked")
+   protected static <S> S resumeState(Transport transport) {
+      return transport instanceof PipelinedTransport ? (S) ((PipelinedTransport) transport).getCheckpoint() : null;
+   }
+
+   /**
+    * Waits up to the given number of milliseconds, 0 meaning no limit, for the given future of an operation, rethrowing
+    * the exception it failed with. Running out of time fails with a {@link TransportException}, just like a socket
+    * read timing out.
+    */
+   protected static <T> T await(Future<T> future, long timeoutMillis, SocketAddress server) {
+      try {
+         if (timeoutMillis <= 0)
+            return future.get();
+         return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+      } catch (TimeoutException e) {
+         String message = String.format("No response received within %d ms", timeoutMillis);
+         throw new TransportException(message, new SocketTimeoutException(message), server);
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new HotRodClientException(e);
+      } catch (ExecutionException e) {
+         Throwable cause = e.getCause();
+         if (cause instanceof RuntimeException)
+            throw (RuntimeException) cause;
+         if (cause instanceof Error)
+            throw (Error) cause;
+         throw new HotRodClientException(cause);
+      }
+   }
+
+   private static PipelinedTransport asPipelined(Transport transport) {
+      if (!(transport instanceof PipelinedTransport))
+         throw new IllegalStateException("Asynchronous execution requires a pipelined transport, but got " + transport);
+      return (PipelinedTransport) transport;
+   }
 }
@@ -42,6 +42,26 @@ public interface Codec {
     */
    short readHeader(Transport transport, HeaderParams params);
 
+   /**
+    * Whether this version of the protocol provides the multi-key put, get
+    * and remove operations.
+    */
+   boolean isMultiKeyOperationSupported();
+
+   /**
+    * Whether this version of the protocol lets the server push near cache
+    * invalidation events to the client.
+    */
+   boolean isNearCacheInvalidationSupported();
+
+   /**
+    * Reads the header of the next message sent over a connection on which
+    * near cache invalidation events were requested, which is either the
+    * response to that request or an invalidation event, and returns its
+    * operation code.
+    */
+   short readEventHeader(Transport transport, HeaderParams params);
+
    /**
     * Logger for Hot Rod client codec
     */
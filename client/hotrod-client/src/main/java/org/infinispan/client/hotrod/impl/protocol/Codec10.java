@@ -80,18 +80,16 @@ protected HeaderParams writeHeader(
       return params;
    }
 
+   @Override
+   public boolean isMultiKeyOperationSupported() {
+      return false;
+   }
+
    @Override
    public short readHeader(Transport transport, HeaderParams params) {
-      short magic = transport.readByte();
+      readMagic(transport);
       final Log localLog = getLog();
       boolean isTrace = localLog.isTraceEnabled();
-      if (magic != HotRodConstants.RESPONSE_MAGIC) {
-         String message = "Invalid magic number. Expected %#x and received %#x";
-         localLog.invalidMagicNumber(HotRodConstants.RESPONSE_MAGIC, magic);
-         if (isTrace)
-            localLog.tracef("Socket dump: %s", hexDump(transport.dumpStream()));
-         throw new InvalidResponseException(String.format(message, HotRodConstants.RESPONSE_MAGIC, magic));
-      }
       long receivedMessageId = transport.readVLong();
       // If received id is 0, it could be that a failure was noted before the
       // message id was detected, so don't consider it to a message id error
@@ -114,18 +112,54 @@ public short readHeader(Transport transport, HeaderParams params) {
       // This avoids situatiations where an exceptional return ends up with
       // the socket containing data from previous request responses.
       if (receivedOpCode != params.opRespCode) {
-         if (receivedOpCode == HotRodConstants.ERROR_RESPONSE) {
-            checkForErrorsInResponseStatus(transport, params, status);
-         }
-         throw new InvalidResponseException(String.format(
-               "Invalid response operation. Expected %#x and received %#x",
-               params.opRespCode, receivedOpCode));
+         checkForUnexpectedResponse(transport, params, receivedOpCode, status);
       }
       localLog.tracef("Received operation code is: %#04x", receivedOpCode);
 
       return status;
    }
 
+   @Override
+   public boolean isNearCacheInvalidationSupported() {
+      return false;
+   }
+
+   @Override
+   public short readEventHeader(Transport transport, HeaderParams params) {
+      readMagic(transport);
+      // Events are not sent in response to a request, so they carry no message id
+      transport.readVLong();
+      short receivedOpCode = transport.readByte();
+      short status = transport.readByte();
+      readNewTopologyIfPresent(transport, params);
+      if (receivedOpCode != params.opRespCode && receivedOpCode != HotRodConstants.INVALIDATION_EVENT
+            && receivedOpCode != HotRodConstants.PING_RESPONSE) {
+         checkForUnexpectedResponse(transport, params, receivedOpCode, status);
+      }
+      return receivedOpCode;
+   }
+
+   private void readMagic(Transport transport) {
+      short magic = transport.readByte();
+      if (magic != HotRodConstants.RESPONSE_MAGIC) {
+         final Log localLog = getLog();
+         String message = "Invalid magic number. Expected %#x and received %#x";
+         localLog.invalidMagicNumber(HotRodConstants.RESPONSE_MAGIC, magic);
+         if (localLog.isTraceEnabled())
+            localLog.tracef("Socket dump: %s", hexDump(transport.dumpStream()));
+         throw new InvalidResponseException(String.format(message, HotRodConstants.RESPONSE_MAGIC, magic));
+      }
+   }
+
+   private void checkForUnexpectedResponse(Transport transport, HeaderParams params, short receivedOpCode, short status) {
+      if (receivedOpCode == HotRodConstants.ERROR_RESPONSE) {
+         checkForErrorsInResponseStatus(transport, params, status);
+      }
+      throw new InvalidResponseException(String.format(
+            "Invalid response operation. Expected %#x and received %#x",
+            params.opRespCode, receivedOpCode));
+   }
+
    @Override
    public Log getLog() {
       return log;
@@ -108,6 +108,14 @@ private short toOpRespCode(short opCode) {
             return HotRodConstants.GET_WITH_METADATA_RESPONSE;
          case HotRodConstants.BULK_GET_KEYS_REQUEST:
         	 return HotRodConstants.BULK_GET_KEYS_RESPONSE;
+         case HotRodConstants.PUT_ALL_REQUEST:
+            return HotRodConstants.PUT_ALL_RESPONSE;
+         case HotRodConstants.GET_ALL_REQUEST:
+            return HotRodConstants.GET_ALL_RESPONSE;
+         case HotRodConstants.REMOVE_ALL_REQUEST:
+            return HotRodConstants.REMOVE_ALL_RESPONSE;
+         case HotRodConstants.ADD_NEAR_CACHE_LISTENER_REQUEST:
+            return HotRodConstants.ADD_NEAR_CACHE_LISTENER_RESPONSE;
          default:
             throw new IllegalStateException("Unknown operation code: " + opCode);
       }
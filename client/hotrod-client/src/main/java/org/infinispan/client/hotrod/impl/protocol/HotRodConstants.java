@@ -38,6 +38,7 @@ public interface HotRodConstants {
    static final byte VERSION_10 = 10;
    static final byte VERSION_11 = 11;
    static final byte VERSION_12 = 12;
+   static final byte VERSION_13 = 13;
 
    //requests
    static final byte PUT_REQUEST = 0x01;
@@ -55,6 +56,10 @@ public interface HotRodConstants {
    static final byte BULK_GET_REQUEST = 0x19;
    static final byte GET_WITH_METADATA = 0x1B;
    static final byte BULK_GET_KEYS_REQUEST = 0x1D;
+   static final byte PUT_ALL_REQUEST = 0x1F;
+   static final byte GET_ALL_REQUEST = 0x21;
+   static final byte REMOVE_ALL_REQUEST = 0x23;
+   static final byte ADD_NEAR_CACHE_LISTENER_REQUEST = 0x25;
 
 
    //responses
@@ -73,8 +78,15 @@ public interface HotRodConstants {
    static final byte BULK_GET_RESPONSE = 0x1A;
    static final byte GET_WITH_METADATA_RESPONSE = 0x1C;
    static final byte BULK_GET_KEYS_RESPONSE = 0x1E;
+   static final byte PUT_ALL_RESPONSE = 0x20;
+   static final byte GET_ALL_RESPONSE = 0x22;
+   static final byte REMOVE_ALL_RESPONSE = 0x24;
+   static final byte ADD_NEAR_CACHE_LISTENER_RESPONSE = 0x26;
    static final byte ERROR_RESPONSE = 0x50;
 
+   //events pushed by the server
+   static final byte INVALIDATION_EVENT = 0x60;
+
    //response status
    static final byte NO_ERROR_STATUS = 0x00;
    static final int INVALID_MAGIC_OR_MESSAGE_ID_STATUS = 0x81;
@@ -0,0 +1,53 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.infinispan.client.hotrod.impl.transport;
+
+/**
+ * A {@link Transport} that does not own its connection for the duration of an operation. Instead of flushing the
+ * request and reading the response from the same thread, the request is queued on a connection shared with other
+ * requests and the response is handed to a {@link ResponseHandler} as soon as it arrives, so many requests can be
+ * outstanding on a single connection.
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+public interface PipelinedTransport extends Transport {
+
+   /**
+    * Sends the request written to this transport so far. The call does not wait for the request to be written to the
+    * network, let alone for the response, which is passed to the given handler from the thread reading from the
+    * connection.
+    */
+   void send(ResponseHandler<?> handler);
+
+   /**
+    * Marks everything read from the response so far as consumed. If the response turns out to be incomplete, reading it
+    * resumes from here instead of from its start, with {@link #getCheckpoint()} returning the given state, which must
+    * hold whatever the reader needs from the consumed part. This keeps responses made of many entries from being read
+    * again from the start each time more of them arrives.
+    */
+   void checkpoint(Object state);
+
+   /**
+    * The state passed to the last {@link #checkpoint(Object)} taken while reading the response, or <code>null</code>
+    * if reading starts from the beginning of the response.
+    */
+   Object getCheckpoint();
+
+}
@@ -0,0 +1,53 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.infinispan.client.hotrod.impl.transport;
+
+/**
+ * Receives the response of a request sent through a {@link PipelinedTransport}. The response is read by the thread
+ * reading from the connection, which must not block; acting on it is left to a separate thread, so that slow
+ * completions do not hold up the responses to other requests.
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+public interface ResponseHandler<T> {
+
+   /**
+    * Reads the response from the given transport, from the thread reading from the connection. If not all of the
+    * response has been received yet, the read that runs out of data aborts this method, which is invoked again once
+    * more data has arrived: from the start of the response, or from the last
+    * {@link PipelinedTransport#checkpoint(Object) checkpoint} taken while reading it. Implementations must therefore
+    * not act on the response, apart from side effects that can safely be repeated, such as applying a topology update.
+    */
+   T readResponse(Transport transport);
+
+   /**
+    * Acts on the response returned by {@link #readResponse(Transport)}. Invoked from a thread of the transport factory
+    * other than the one reading from the connection.
+    */
+   void handleResponse(T response);
+
+   /**
+    * Invoked instead of {@link #handleResponse(Object)} if the response could not be received because the connection
+    * failed, or if reading it threw an exception. Invoked from the same threads as {@link #handleResponse(Object)},
+    * or from the thread sending the request if the connection is closed already.
+    */
+   void handleFailure(Throwable cause);
+
+}
@@ -48,6 +48,12 @@ public interface TransportFactory {
 
    void updateServers(Collection<SocketAddress> newServers);
 
+   /**
+    * Returns the servers currently known to this factory. The returned collection is never modified; a new
+    * one is returned after the topology changed.
+    */
+   Collection<SocketAddress> getServers();
+
    void destroy();
 
    void updateHashFunction(Map<SocketAddress, Set<Integer>> servers2Hash, int numKeyOwners, short hashFunctionVersion, int hashSpace);
@@ -56,6 +62,14 @@ public interface TransportFactory {
 
    Transport getTransport(byte[] key);
 
+   /**
+    * Returns the server owning the given key according to the consistent hash
+    * sent by the cluster, or <code>null</code> if no consistent hash is known.
+    */
+   SocketAddress getServer(byte[] key);
+
+   Transport getTransport(SocketAddress server);
+
    boolean isTcpNoDelay();
 
    int getTransportCount();
@@ -0,0 +1,378 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.infinispan.client.hotrod.impl.transport.nio;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import net.jcip.annotations.ThreadSafe;
+
+import org.infinispan.client.hotrod.exceptions.HotRodClientException;
+import org.infinispan.client.hotrod.exceptions.InvalidResponseException;
+import org.infinispan.client.hotrod.exceptions.TransportException;
+import org.infinispan.client.hotrod.impl.transport.PipelinedTransport;
+import org.infinispan.client.hotrod.impl.transport.ResponseHandler;
+import org.infinispan.client.hotrod.logging.Log;
+import org.infinispan.client.hotrod.logging.LogFactory;
+import org.infinispan.util.Util;
+
+/**
+ * A non-blocking connection to a server, shared by all the requests sent to that server. Any thread may queue a
+ * request with {@link #send(java.nio.ByteBuffer, NioTransport, ResponseHandler)}; everything else happens in the
+ * {@link SelectorLoop}'s thread, which writes queued requests in batches and decodes the responses. Decoded responses
+ * and failures are handed to the handlers in the completion executor, keeping the I/O thread free of whatever the
+ * handlers do with them.
+ * <p/>
+ * A response that has only partly arrived is decoded again once more data has, resuming from the last
+ * {@link PipelinedTransport#checkpoint(Object) checkpoint} taken while decoding it; the data before the checkpoint is
+ * discarded, so large multi-entry responses are decoded in a single pass.
+ * <p/>
+ * The server answers the requests of a connection in the order they were sent, so the handlers of the outstanding
+ * requests are kept in a queue in the same order and each response goes to the handler at its head, the message id
+ * in the response header confirming the match. A response that doesn't fit a request means that the connection can
+ * no longer be trusted, so it is closed, which fails all outstanding requests with a {@link TransportException}.
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+@ThreadSafe
+class NioConnection {
+
+   private static final Log log = LogFactory.getLog(NioConnection.class, Log.class);
+
+   private static final int INITIAL_BUFFER_SIZE = 16 * 1024;
+
+   private final SocketAddress serverAddress;
+   private final SocketChannel channel;
+   private final NioTransportFactory transportFactory;
+   private final SelectorLoop loop;
+   private final Executor completionExecutor;
+   private final long timeoutNanos;
+   private final long connectTimeoutNanos;
+   private final long openedNanos = System.nanoTime();
+
+   private final Queue<ByteBuffer> outbound = new ConcurrentLinkedQueue<ByteBuffer>();
+   private final Queue<PendingResponse<?>> pending = new ConcurrentLinkedQueue<PendingResponse<?>>();
+
+   final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+   // guarded by this, makes sure nothing is queued after the pending requests have been failed
+   private boolean closed;
+
+   // only accessed by the I/O thread
+   private SelectionKey key;
+   private final ArrayDeque<ByteBuffer> writing = new ArrayDeque<ByteBuffer>();
+   private ByteBuffer inbound = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+   private int requiredBytes;
+   private long lastReadNanos;
+
+   private NioConnection(SocketAddress serverAddress, SocketChannel channel, NioTransportFactory transportFactory,
+            SelectorLoop loop) {
+      this.serverAddress = serverAddress;
+      this.channel = channel;
+      this.transportFactory = transportFactory;
+      this.loop = loop;
+      this.completionExecutor = transportFactory.getCompletionExecutor();
+      this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(transportFactory.getSoTimeout());
+      this.connectTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(transportFactory.getConnectTimeout());
+   }
+
+   /**
+    * Starts connecting to the given server and hands the connection to the given loop, without waiting for the
+    * connection to be established. Requests can be queued right away, they are written once it is.
+    */
+   static NioConnection open(SocketAddress serverAddress, NioTransportFactory transportFactory, SelectorLoop loop) {
+      SocketChannel channel = null;
+      try {
+         channel = SocketChannel.open();
+         channel.configureBlocking(false);
+         channel.socket().setTcpNoDelay(transportFactory.isTcpNoDelay());
+         channel.connect(serverAddress);
+      } catch (Exception e) {
+         Util.close(channel);
+         log.tracef(e, "Could not connect to server: %s", serverAddress);
+         throw new TransportException(String.format("Could not connect to server: %s", serverAddress), e, serverAddress);
+      }
+      NioConnection connection = new NioConnection(serverAddress, channel, transportFactory, loop);
+      loop.register(connection);
+      return connection;
+   }
+
+   /**
+    * Queues the given request. If the connection is closed already, the handler is failed right away, from the
+    * calling thread.
+    */
+   void send(ByteBuffer request, NioTransport transport, ResponseHandler<?> handler) {
+      boolean accepted;
+      synchronized (this) {
+         accepted = !closed;
+         if (accepted) {
+            pending.add(newPendingResponse(transport, handler));
+            outbound.add(request);
+         }
+      }
+      if (accepted)
+         loop.scheduleFlush(this);
+      else
+         handler.handleFailure(new TransportException("Connection closed", serverAddress));
+   }
+
+   private <T> PendingResponse<T> newPendingResponse(NioTransport transport, ResponseHandler<T> handler) {
+      return new PendingResponse<T>(transport, handler, System.nanoTime());
+   }
+
+   synchronized boolean isOpen() {
+      return !closed;
+   }
+
+   SocketAddress getServerAddress() {
+      return serverAddress;
+   }
+
+   void register(Selector selector) {
+      try {
+         int ops = channel.isConnectionPending() ? SelectionKey.OP_CONNECT : SelectionKey.OP_READ;
+         key = channel.register(selector, ops, this);
+         lastReadNanos = System.nanoTime();
+      } catch (ClosedChannelException e) {
+         close(new TransportException(e, serverAddress));
+      }
+   }
+
+   void finishConnect() {
+      try {
+         channel.finishConnect();
+      } catch (IOException e) {
+         close(new TransportException(String.format("Could not connect to server: %s", serverAddress), e, serverAddress));
+         return;
+      }
+      if (log.isTraceEnabled())
+         log.tracef("Connected to server %s", serverAddress);
+      lastReadNanos = System.nanoTime();
+      key.interestOps(SelectionKey.OP_READ);
+      flush();
+   }
+
+   /**
+    * Writes as many of the queued requests as the socket accepts, using a single gathering write for all of them
+    * where possible. Whatever is left is written once the selector reports the socket as writable again.
+    */
+   void flush() {
+      flushScheduled.set(false);
+      if (key == null || !key.isValid() || !channel.isConnected())
+         return;
+      for (ByteBuffer request = outbound.poll(); request != null; request = outbound.poll()) {
+         writing.add(request);
+      }
+      try {
+         while (!writing.isEmpty()) {
+            long written = channel.write(writing.toArray(new ByteBuffer[writing.size()]));
+            while (!writing.isEmpty() && !writing.peek().hasRemaining()) {
+               writing.poll();
+            }
+            if (written == 0)
+               break;
+         }
+      } catch (IOException e) {
+         close(new TransportException("Problems writing data to stream", e, serverAddress));
+         return;
+      }
+      key.interestOps(writing.isEmpty() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+   }
+
+   void read() {
+      try {
+         int minCapacity = Math.max(requiredBytes, inbound.position() + 1);
+         if (minCapacity > inbound.capacity()) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(minCapacity, inbound.capacity() * 2));
+            inbound.flip();
+            larger.put(inbound);
+            inbound = larger;
+         }
+         int read = channel.read(inbound);
+         if (read < 0) {
+            close(new TransportException("End of stream reached!", serverAddress));
+            return;
+         }
+         lastReadNanos = System.nanoTime();
+      } catch (IOException e) {
+         close(new TransportException(e, serverAddress));
+         return;
+      }
+      decode();
+   }
+
+   private void decode() {
+      int limit = inbound.position();
+      if (limit < requiredBytes)
+         return;
+      ByteBuffer data = inbound.duplicate();
+      data.flip();
+      int start = 0;
+      while (start < limit) {
+         PendingResponse<?> next = pending.peek();
+         if (next == null) {
+            close(new TransportException("Received data without any outstanding request", serverAddress));
+            return;
+         }
+         data.position(start);
+         next.transport.beginResponse(data);
+         Throwable failure = null;
+         try {
+            next.read();
+         } catch (ReplayError e) {
+            // keep the data from the last checkpoint on, that's where decoding resumes
+            start = next.transport.getResponseStart();
+            requiredBytes = next.transport.getRequiredBytes();
+            break;
+         } catch (Throwable t) {
+            failure = t;
+         }
+         pending.poll();
+         start = data.position();
+         requiredBytes = 0;
+         // Unlike an error status sent by the server, anything else means that
+         // the position in the stream might no longer be at a response boundary
+         boolean broken = !next.transport.isValid() || failure instanceof InvalidResponseException
+               || (failure != null && !(failure instanceof HotRodClientException));
+         if (broken)
+            close(new TransportException("Connection invalidated", failure, serverAddress));
+         if (failure != null)
+            fail(next.handler, failure);
+         else
+            next.complete();
+         if (broken)
+            return;
+      }
+      inbound.flip();
+      inbound.position(start);
+      inbound.compact();
+   }
+
+   /**
+    * Closes the connection if it could not be established within the connect timeout, or if the oldest outstanding
+    * request has neither been answered nor seen any data arrive within the socket timeout.
+    */
+   void checkTimeout(long now) {
+      if (!channel.isConnected()) {
+         if (connectTimeoutNanos > 0 && now - openedNanos > connectTimeoutNanos)
+            close(new TransportException(String.format("Could not connect to server %s within %d ms", serverAddress,
+                  TimeUnit.NANOSECONDS.toMillis(connectTimeoutNanos)), serverAddress));
+         return;
+      }
+      PendingResponse<?> oldest = pending.peek();
+      if (oldest != null && timeoutNanos > 0
+            && now - Math.max(oldest.sentNanos, lastReadNanos) > timeoutNanos) {
+         String message = String.format("No response received within %d ms", TimeUnit.NANOSECONDS.toMillis(timeoutNanos));
+         close(new TransportException(message, new SocketTimeoutException(message), serverAddress));
+      }
+   }
+
+   /**
+    * Closes the connection and fails all outstanding requests. Must only be invoked from the I/O thread; other threads
+    * go through {@link SelectorLoop#close(NioConnection, TransportException)}.
+    */
+   void close(TransportException cause) {
+      synchronized (this) {
+         if (closed)
+            return;
+         closed = true;
+      }
+      if (cause != null)
+         log.closingConnection(serverAddress, cause);
+      else
+         cause = new TransportException("Connection closed", serverAddress);
+      transportFactory.connectionClosed(this);
+      loop.deregister(this);
+      if (key != null)
+         key.cancel();
+      Util.close(channel);
+      outbound.clear();
+      writing.clear();
+      for (PendingResponse<?> p = pending.poll(); p != null; p = pending.poll()) {
+         fail(p.handler, cause);
+      }
+   }
+
+   private void fail(final ResponseHandler<?> handler, final Throwable cause) {
+      runCompletion(new Runnable() {
+         @Override
+         public void run() {
+            handler.handleFailure(cause);
+         }
+      });
+   }
+
+   private void runCompletion(Runnable completion) {
+      try {
+         completionExecutor.execute(completion);
+      } catch (RejectedExecutionException e) {
+         // the transport factory is shutting down, don't leave anybody waiting
+         completion.run();
+      }
+   }
+
+   @Override
+   public String toString() {
+      return "NioConnection{serverAddress=" + serverAddress + ", pending=" + pending.size() + "}";
+   }
+
+   private class PendingResponse<T> {
+      final NioTransport transport;
+      final ResponseHandler<T> handler;
+      final long sentNanos;
+
+      // only accessed by the I/O thread
+      T response;
+
+      PendingResponse(NioTransport transport, ResponseHandler<T> handler, long sentNanos) {
+         this.transport = transport;
+         this.handler = handler;
+         this.sentNanos = sentNanos;
+      }
+
+      void read() {
+         response = handler.readResponse(transport);
+      }
+
+      void complete() {
+         final T completed = response;
+         runCompletion(new Runnable() {
+            @Override
+            public void run() {
+               handler.handleResponse(completed);
+            }
+         });
+      }
+   }
+
+}
@@ -0,0 +1,220 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.infinispan.client.hotrod.impl.transport.nio;
+
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+
+import org.infinispan.client.hotrod.impl.transport.AbstractTransport;
+import org.infinispan.client.hotrod.impl.transport.PipelinedTransport;
+import org.infinispan.client.hotrod.impl.transport.ResponseHandler;
+import org.infinispan.io.ExposedByteArrayOutputStream;
+
+/**
+ * Transport for a single request sent over a {@link NioConnection}. The request is buffered in memory until
+ * {@link #send(ResponseHandler)} queues it on the connection; the response is then read by the I/O thread from the data
+ * received so far. A read that runs out of data aborts with a {@link ReplayError}, after which the connection decodes
+ * the response again once enough data has arrived, from the last {@link #checkpoint(Object) checkpoint} if one was
+ * taken and from the start of the response otherwise.
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+public class NioTransport extends AbstractTransport implements PipelinedTransport {
+
+   private final NioConnection connection;
+   private final ExposedByteArrayOutputStream request = new ExposedByteArrayOutputStream(128);
+
+   // only accessed by the I/O thread
+   private ByteBuffer response;
+   private int responseStart;
+   private int requiredBytes;
+   private Object checkpoint;
+
+   private volatile boolean invalid;
+
+   NioTransport(NioTransportFactory transportFactory, NioConnection connection) {
+      super(transportFactory);
+      this.connection = connection;
+   }
+
+   @Override
+   public void send(ResponseHandler<?> handler) {
+      connection.send(ByteBuffer.wrap(request.getRawBuffer(), 0, request.size()), this, handler);
+   }
+
+   @Override
+   public void writeByte(short toWrite) {
+      request.write(toWrite);
+   }
+
+   @Override
+   public void writeVInt(int vInt) {
+      while ((vInt & ~0x7F) != 0) {
+         request.write((vInt & 0x7F) | 0x80);
+         vInt >>>= 7;
+      }
+      request.write(vInt);
+   }
+
+   @Override
+   public void writeVLong(long l) {
+      while ((l & ~0x7F) != 0) {
+         request.write((int) ((l & 0x7F) | 0x80));
+         l >>>= 7;
+      }
+      request.write((int) l);
+   }
+
+   @Override
+   protected void writeBytes(byte[] toAppend) {
+      request.write(toAppend, 0, toAppend.length);
+   }
+
+   /**
+    * Requests are only written to the network by {@link #send(ResponseHandler)}, so there is nothing to flush.
+    */
+   @Override
+   public void flush() {
+   }
+
+   @Override
+   public void checkpoint(Object state) {
+      checkpoint = state;
+      responseStart = response.position();
+   }
+
+   @Override
+   public Object getCheckpoint() {
+      return checkpoint;
+   }
+
+   /**
+    * Positions this transport within the given buffer of received data, at the start of its response or, when
+    * resuming, at its last checkpoint.
+    */
+   void beginResponse(ByteBuffer data) {
+      response = data;
+      responseStart = data.position();
+      requiredBytes = 0;
+   }
+
+   /**
+    * Where in the buffer of received data the next attempt to decode the response starts: the start of the response,
+    * or the last checkpoint taken while decoding it.
+    */
+   int getResponseStart() {
+      return responseStart;
+   }
+
+   /**
+    * The number of bytes, counted from {@link #getResponseStart()}, that need to be available before decoding the
+    * response again can get further than the last attempt.
+    */
+   int getRequiredBytes() {
+      return requiredBytes;
+   }
+
+   private void require(int size) {
+      if (response.remaining() < size) {
+         requiredBytes = response.position() - responseStart + size;
+         throw ReplayError.INSTANCE;
+      }
+   }
+
+   @Override
+   public short readByte() {
+      require(1);
+      return (short) (response.get() & 0xFF);
+   }
+
+   @Override
+   public int readVInt() {
+      short b = readByte();
+      int i = b & 0x7F;
+      for (int shift = 7; (b & 0x80) != 0; shift += 7) {
+         b = readByte();
+         i |= (b & 0x7F) << shift;
+      }
+      return i;
+   }
+
+   @Override
+   public long readVLong() {
+      short b = readByte();
+      long l = b & 0x7F;
+      for (int shift = 7; (b & 0x80) != 0; shift += 7) {
+         b = readByte();
+         l |= (b & 0x7FL) << shift;
+      }
+      return l;
+   }
+
+   @Override
+   public byte[] readByteArray(int size) {
+      require(size);
+      byte[] result = new byte[size];
+      response.get(result);
+      return result;
+   }
+
+   /**
+    * The connection outlives the request, so there is nothing to release.
+    */
+   @Override
+   public void release() {
+   }
+
+   @Override
+   public byte[] dumpStream() {
+      if (response == null)
+         return new byte[0];
+      ByteBuffer remaining = response.duplicate();
+      byte[] dump = new byte[Math.min(remaining.remaining(), 32768)];
+      remaining.get(dump);
+      return dump;
+   }
+
+   @Override
+   public SocketAddress getRemoteSocketAddress() {
+      return connection.getServerAddress();
+   }
+
+   /**
+    * Marks the connection this request was sent on as unusable, which closes it once the response has been read.
+    */
+   @Override
+   public void invalidate() {
+      invalid = true;
+   }
+
+   boolean isValid() {
+      return !invalid;
+   }
+
+   NioConnection getConnection() {
+      return connection;
+   }
+
+   @Override
+   public String toString() {
+      return "NioTransport{connection=" + connection + "}";
+   }
+
+}
@@ -0,0 +1,316 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.infinispan.client.hotrod.impl.transport.nio;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.jcip.annotations.ThreadSafe;
+
+import org.infinispan.client.hotrod.configuration.Configuration;
+import org.infinispan.client.hotrod.configuration.ServerConfiguration;
+import org.infinispan.client.hotrod.exceptions.TransportException;
+import org.infinispan.client.hotrod.impl.consistenthash.ConsistentHash;
+import org.infinispan.client.hotrod.impl.consistenthash.ConsistentHashFactory;
+import org.infinispan.client.hotrod.impl.protocol.Codec;
+import org.infinispan.client.hotrod.impl.transport.PipelinedTransportFactory;
+import org.infinispan.client.hotrod.impl.transport.Transport;
+import org.infinispan.client.hotrod.impl.transport.tcp.RequestBalancingStrategy;
+import org.infinispan.client.hotrod.logging.Log;
+import org.infinispan.client.hotrod.logging.LogFactory;
+import org.infinispan.util.Util;
+
+/**
+ * Transport factory multiplexing all requests to a server over a single non-blocking connection. Instead of
+ * borrowing a connection from a pool for the duration of an operation, each operation gets a lightweight
+ * {@link NioTransport} that queues its request on the shared connection, and a single I/O thread writes the queued
+ * requests in batches and decodes the responses as they arrive. Asynchronous operations are therefore completed
+ * without occupying a thread while they are outstanding, and synchronous ones only block their calling thread.
+ * <p/>
+ * Responses are decoded by the I/O thread, but operations are completed, and the listeners attached to the futures of
+ * asynchronous operations notified, by a small pool of completion threads, so that listeners do not hold up the
+ * decoding of other responses. Listeners should still not block for long, since they occupy one of these threads.
+ * <p/>
+ * The connection pool settings do not apply to this transport factory.
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+@ThreadSafe
+public class NioTransportFactory implements PipelinedTransportFactory {
+
+   private static final Log log = LogFactory.getLog(NioTransportFactory.class, Log.class);
+
+   private static final AtomicInteger COMPLETION_THREAD_COUNTER = new AtomicInteger();
+
+   private final Object lock = new Object();
+   private RequestBalancingStrategy balancer;
+   private Collection<SocketAddress> servers;
+   private ConsistentHash consistentHash;
+   private final ConsistentHashFactory hashFactory = new ConsistentHashFactory();
+
+   private final ConcurrentMap<SocketAddress, NioConnection> connections =
+         new ConcurrentHashMap<SocketAddress, NioConnection>();
+   private volatile SelectorLoop loop;
+   private volatile ExecutorService completionExecutor;
+
+   private volatile boolean tcpNoDelay;
+   private volatile int soTimeout;
+   private volatile int connectTimeout;
+   private volatile int transportCount;
+
+   @Override
+   public void start(Codec codec, Configuration configuration, AtomicInteger topologyId) {
+      synchronized (lock) {
+         hashFactory.init(configuration);
+         servers = new ArrayList<SocketAddress>();
+         for (ServerConfiguration server : configuration.servers()) {
+            servers.add(new InetSocketAddress(server.host(), server.port()));
+         }
+         servers = Collections.unmodifiableCollection(servers);
+         balancer = Util.getInstance(configuration.balancingStrategy());
+         tcpNoDelay = configuration.tcpNoDelay();
+         soTimeout = configuration.socketTimeout();
+         connectTimeout = configuration.connectionTimeout();
+         if (log.isDebugEnabled()) {
+            log.debugf("Statically configured servers: %s", servers);
+            log.debugf("Load balancer class: %s", balancer.getClass().getName());
+            log.debugf("Tcp no delay = %b; client socket timeout = %d ms; connect timeout = %d ms",
+                       tcpNoDelay, soTimeout, connectTimeout);
+         }
+         balancer.setServers(servers);
+         updateTransportCount();
+         completionExecutor = newCompletionExecutor();
+         loop = new SelectorLoop(soTimeout);
+         loop.start();
+      }
+   }
+
+   @Override
+   public void destroy() {
+      SelectorLoop loop = this.loop;
+      this.loop = null;
+      if (loop != null)
+         loop.shutdown();
+      connections.clear();
+      // runs the failures of the requests outstanding when the loop closed their connections
+      ExecutorService completionExecutor = this.completionExecutor;
+      if (completionExecutor != null)
+         completionExecutor.shutdown();
+   }
+
+   @Override
+   public void updateHashFunction(Map<SocketAddress, Set<Integer>> servers2Hash, int numKeyOwners, short hashFunctionVersion, int hashSpace) {
+      synchronized (lock) {
+         ConsistentHash hash = hashFactory.newConsistentHash(hashFunctionVersion);
+         if (hash == null) {
+            log.noHasHFunctionConfigured(hashFunctionVersion);
+         } else {
+            hash.init(servers2Hash, numKeyOwners, hashSpace);
+         }
+         consistentHash = hash;
+      }
+   }
+
+   @Override
+   public Transport getTransport() {
+      SocketAddress server;
+      synchronized (lock) {
+         server = balancer.nextServer();
+      }
+      return getTransport(server);
+   }
+
+   @Override
+   public Transport getTransport(byte[] key) {
+      SocketAddress server;
+      synchronized (lock) {
+         if (consistentHash != null) {
+            server = consistentHash.getServer(key);
+            if (log.isTraceEnabled()) {
+               log.tracef("Using consistent hash for determining the server: " + server);
+            }
+         } else {
+            server = balancer.nextServer();
+            if (log.isTraceEnabled()) {
+               log.tracef("Using the balancer for determining the server: %s", server);
+            }
+         }
+      }
+      return getTransport(server);
+   }
+
+   @Override
+   public SocketAddress getServer(byte[] key) {
+      synchronized (lock) {
+         return consistentHash != null ? consistentHash.getServer(key) : null;
+      }
+   }
+
+   @Override
+   public Transport getTransport(SocketAddress server) {
+      return new NioTransport(this, getConnection(server));
+   }
+
+   private NioConnection getConnection(SocketAddress server) {
+      NioConnection connection = connections.get(server);
+      if (connection != null && connection.isOpen())
+         return connection;
+      synchronized (connections) {
+         connection = connections.get(server);
+         if (connection == null || !connection.isOpen()) {
+            SelectorLoop loop = this.loop;
+            if (loop == null)
+               throw new TransportException("Transport factory is not started", server);
+            connection = NioConnection.open(server, this, loop);
+            connections.put(server, connection);
+         }
+         return connection;
+      }
+   }
+
+   ExecutorService getCompletionExecutor() {
+      return completionExecutor;
+   }
+
+   void connectionClosed(NioConnection connection) {
+      connections.remove(connection.getServerAddress(), connection);
+   }
+
+   /**
+    * Transports only live for a single request, the connection they use is shared and stays open.
+    */
+   @Override
+   public void releaseTransport(Transport transport) {
+   }
+
+   @Override
+   public void invalidateTransport(SocketAddress serverAddress, Transport transport) {
+      NioConnection connection = transport != null
+            ? ((NioTransport) transport).getConnection() : connections.get(serverAddress);
+      SelectorLoop loop = this.loop;
+      if (connection != null && loop != null && connection.isOpen())
+         loop.close(connection, new TransportException("Connection invalidated", serverAddress));
+   }
+
+   @Override
+   public void updateServers(Collection<SocketAddress> newServers) {
+      synchronized (lock) {
+         Set<SocketAddress> addedServers = new HashSet<SocketAddress>(newServers);
+         addedServers.removeAll(servers);
+         Set<SocketAddress> failedServers = new HashSet<SocketAddress>(servers);
+         failedServers.removeAll(newServers);
+         if (log.isTraceEnabled()) {
+            log.tracef("Current list: %s", servers);
+            log.tracef("New list: %s", newServers);
+            log.tracef("Added servers: %s", addedServers);
+            log.tracef("Removed servers: %s", failedServers);
+         }
+         if (addedServers.isEmpty() && failedServers.isEmpty()) {
+            log.debug("Same list of servers, not changing the connections");
+            return;
+         }
+
+         // Connections to new servers are opened on first use
+         for (SocketAddress server : addedServers) {
+            log.newServerAdded(server);
+         }
+         balancer.setServers(newServers);
+
+         SelectorLoop loop = this.loop;
+         for (SocketAddress server : failedServers) {
+            log.removingServer(server);
+            NioConnection connection = connections.get(server);
+            if (connection != null && loop != null)
+               loop.close(connection, null);
+         }
+
+         servers = Collections.unmodifiableList(new ArrayList<SocketAddress>(newServers));
+         updateTransportCount();
+      }
+   }
+
+   @Override
+   public Collection<SocketAddress> getServers() {
+      synchronized (lock) {
+         return servers;
+      }
+   }
+
+   @Override
+   public ConsistentHashFactory getConsistentHashFactory() {
+      return hashFactory;
+   }
+
+   @Override
+   public boolean isTcpNoDelay() {
+      return tcpNoDelay;
+   }
+
+   @Override
+   public int getTransportCount() {
+      if (Thread.currentThread().isInterrupted()) {
+         return -1;
+      }
+      return transportCount;
+   }
+
+   @Override
+   public int getSoTimeout() {
+      return soTimeout;
+   }
+
+   @Override
+   public int getConnectTimeout() {
+      return connectTimeout;
+   }
+
+   private static ExecutorService newCompletionExecutor() {
+      int threads = Runtime.getRuntime().availableProcessors();
+      return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(),
+            new ThreadFactory() {
+               @Override
+               public Thread newThread(Runnable r) {
+                  Thread thread = new Thread(r, "HotRod-client-nio-completion-" + COMPLETION_THREAD_COUNTER.incrementAndGet());
+                  thread.setDaemon(true);
+                  return thread;
+               }
+            });
+   }
+
+   private void updateTransportCount() {
+      // Try every server twice, the second time over a freshly opened connection
+      transportCount = 2 * servers.size();
+   }
+
+}
@@ -0,0 +1,214 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.infinispan.client.hotrod.impl.transport.nio;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.infinispan.client.hotrod.exceptions.HotRodClientException;
+import org.infinispan.client.hotrod.exceptions.TransportException;
+import org.infinispan.client.hotrod.logging.Log;
+import org.infinispan.client.hotrod.logging.LogFactory;
+
+/**
+ * The thread doing all the I/O of the {@link NioConnection}s of a {@link NioTransportFactory}. Other threads interact
+ * with it by queueing tasks and connections to flush, waking up the selector at most once until it gets to them, so a
+ * burst of requests from many threads results in a single wake-up and one write per connection.
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+class SelectorLoop implements Runnable {
+
+   private static final Log log = LogFactory.getLog(SelectorLoop.class, Log.class);
+
+   private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+   private final Selector selector;
+   private final Thread thread;
+   private final long selectTimeoutMillis;
+   private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+   private final Queue<NioConnection> flushes = new ConcurrentLinkedQueue<NioConnection>();
+   private final AtomicBoolean wakenUp = new AtomicBoolean();
+   private volatile boolean running = true;
+
+   // only accessed by the I/O thread
+   private final Set<NioConnection> connections = new HashSet<NioConnection>();
+   private long lastTimeoutCheck = System.nanoTime();
+
+   SelectorLoop(int soTimeout) {
+      try {
+         selector = Selector.open();
+      } catch (IOException e) {
+         throw new HotRodClientException("Unable to open selector", e);
+      }
+      // Check for timed out requests often enough to detect them with a precision of about half the socket timeout
+      selectTimeoutMillis = soTimeout > 0 ? Math.max(10, Math.min(1000, soTimeout / 2)) : 1000;
+      thread = new Thread(this, "HotRod-client-nio-" + THREAD_COUNTER.incrementAndGet());
+      thread.setDaemon(true);
+   }
+
+   void start() {
+      thread.start();
+   }
+
+   /**
+    * Stops the loop, closing all connections and failing their outstanding requests.
+    */
+   void shutdown() {
+      running = false;
+      selector.wakeup();
+      if (Thread.currentThread() != thread) {
+         try {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+         }
+      }
+   }
+
+   void execute(Runnable task) {
+      tasks.add(task);
+      wakeup();
+   }
+
+   void register(final NioConnection connection) {
+      execute(new Runnable() {
+         @Override
+         public void run() {
+            connections.add(connection);
+            connection.register(selector);
+            connection.flush();
+         }
+      });
+   }
+
+   void deregister(NioConnection connection) {
+      connections.remove(connection);
+   }
+
+   void close(final NioConnection connection, final TransportException cause) {
+      execute(new Runnable() {
+         @Override
+         public void run() {
+            connection.close(cause);
+         }
+      });
+   }
+
+   void scheduleFlush(NioConnection connection) {
+      if (connection.flushScheduled.compareAndSet(false, true)) {
+         flushes.add(connection);
+         wakeup();
+      }
+   }
+
+   private void wakeup() {
+      if (Thread.currentThread() != thread && wakenUp.compareAndSet(false, true))
+         selector.wakeup();
+   }
+
+   @Override
+   public void run() {
+      try {
+         while (running) {
+            wakenUp.set(false);
+            if (tasks.isEmpty() && flushes.isEmpty())
+               selector.select(selectTimeoutMillis);
+            else
+               selector.selectNow();
+            runTasks();
+            processSelectedKeys();
+            runFlushes();
+            checkTimeouts();
+         }
+      } catch (Throwable t) {
+         log.ioThreadFailed(thread.getName(), t);
+      } finally {
+         runTasks();
+         for (NioConnection connection : new ArrayList<NioConnection>(connections)) {
+            connection.close(null);
+         }
+         try {
+            selector.close();
+         } catch (IOException e) {
+            log.tracef(e, "Error closing selector");
+         }
+      }
+   }
+
+   private void runTasks() {
+      for (Runnable task = tasks.poll(); task != null; task = tasks.poll()) {
+         try {
+            task.run();
+         } catch (RuntimeException e) {
+            log.ioThreadFailed(thread.getName(), e);
+         }
+      }
+   }
+
+   private void runFlushes() {
+      for (NioConnection connection = flushes.poll(); connection != null; connection = flushes.poll()) {
+         connection.flush();
+      }
+   }
+
+   private void processSelectedKeys() {
+      Set<SelectionKey> selected = selector.selectedKeys();
+      if (selected.isEmpty())
+         return;
+      for (Iterator<SelectionKey> it = selected.iterator(); it.hasNext(); ) {
+         SelectionKey key = it.next();
+         it.remove();
+         NioConnection connection = (NioConnection) key.attachment();
+         if (!key.isValid())
+            continue;
+         int ready = key.readyOps();
+         if ((ready & SelectionKey.OP_CONNECT) != 0) {
+            connection.finishConnect();
+         } else {
+            if ((ready & SelectionKey.OP_READ) != 0)
+               connection.read();
+            if ((ready & SelectionKey.OP_WRITE) != 0 && key.isValid())
+               connection.flush();
+         }
+      }
+   }
+
+   private void checkTimeouts() {
+      long now = System.nanoTime();
+      if (now - lastTimeoutCheck < TimeUnit.MILLISECONDS.toNanos(selectTimeoutMillis))
+         return;
+      lastTimeoutCheck = now;
+      for (NioConnection connection : new ArrayList<NioConnection>(connections)) {
+         connection.checkTimeout(now);
+      }
+   }
+
+}
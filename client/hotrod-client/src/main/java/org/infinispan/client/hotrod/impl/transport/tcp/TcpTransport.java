@@ -34,6 +34,7 @@
 import java.io.InputStream;
 import java.net.Socket;
 import java.net.SocketAddress;
+import java.net.SocketTimeoutException;
 import java.nio.channels.SocketChannel;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -71,6 +72,14 @@ public class TcpTransport extends AbstractTransport {
    private volatile boolean invalid;
 
    public TcpTransport(SocketAddress serverAddress, TransportFactory transportFactory) {
+      this(serverAddress, transportFactory, transportFactory.getSoTimeout());
+   }
+
+   /**
+    * Creates a transport whose reads time out after the given number of milliseconds rather than the socket timeout
+    * configured for the transport factory, 0 meaning that reads never time out.
+    */
+   public TcpTransport(SocketAddress serverAddress, TransportFactory transportFactory, int soTimeout) {
       super(transportFactory);
       this.serverAddress = serverAddress;
       try {
@@ -78,7 +87,7 @@ public TcpTransport(SocketAddress serverAddress, TransportFactory transportFacto
          socket = socketChannel.socket();
          socket.connect(serverAddress, transportFactory.getConnectTimeout());
          socket.setTcpNoDelay(transportFactory.isTcpNoDelay());
-         socket.setSoTimeout(transportFactory.getSoTimeout());
+         socket.setSoTimeout(soTimeout);
          socketInputStream = new BufferedInputStream(socket.getInputStream(), socket.getReceiveBufferSize());
          // ensure we don't send a packet for every output byte
          socketOutputStream = new BufferedOutputStream(socket.getOutputStream(), socket.getSendBufferSize());
@@ -189,6 +198,28 @@ public short readByte() {
       return (short) resultInt;
    }
 
+   /**
+    * Waits until data can be read or the read timeout of this transport expires, without consuming any data.
+    *
+    * @return <code>false</code> if the read timed out before any data arrived
+    */
+   public boolean awaitData() {
+      try {
+         socketInputStream.mark(1);
+         int resultInt = socketInputStream.read();
+         if (resultInt == -1) {
+            throw new TransportException("End of stream reached!", serverAddress);
+         }
+         socketInputStream.reset();
+         return true;
+      } catch (SocketTimeoutException e) {
+         return false;
+      } catch (IOException e) {
+         invalid = true;
+         throw new TransportException(e, serverAddress);
+      }
+   }
+
    @Override
    public void release() {
       try {
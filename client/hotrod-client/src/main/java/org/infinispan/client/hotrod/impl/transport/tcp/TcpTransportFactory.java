@@ -191,6 +191,18 @@ public Transport getTransport(byte[] key) {
       return borrowTransportFromPool(server);
    }
 
+   @Override
+   public SocketAddress getServer(byte[] key) {
+      synchronized (lock) {
+         return consistentHash != null ? consistentHash.getServer(key) : null;
+      }
+   }
+
+   @Override
+   public Transport getTransport(SocketAddress server) {
+      return borrowTransportFromPool(server);
+   }
+
    @Override
    public void releaseTransport(Transport transport) {
       // The invalidateObject()/returnObject() calls could take a long time, so we hold the lock only until we get the connection pool reference
@@ -273,6 +285,7 @@ public void updateServers(Collection<SocketAddress> newServers) {
       }
    }
 
+   @Override
    public Collection<SocketAddress> getServers() {
       synchronized (lock) {
          return servers;
@@ -133,4 +133,24 @@ public interface Log extends BasicLogger {
    @Message(value = "Unable to invalidate transport for server: %s", id = 4022)
    void unableToInvalidateTransport(SocketAddress serverAddress);
 
+   @LogMessage(level = WARN)
+   @Message(value = "Exception thrown by a listener of an asynchronous operation", id = 4023)
+   void futureListenerFailed(@Cause Throwable t);
+
+   @LogMessage(level = WARN)
+   @Message(value = "Closing connection to server %s, requests pending on it will be retried", id = 4024)
+   void closingConnection(SocketAddress serverAddress, @Cause Throwable cause);
+
+   @LogMessage(level = ERROR)
+   @Message(value = "Unexpected exception in I/O thread %s", id = 4025)
+   void ioThreadFailed(String threadName, @Cause Throwable t);
+
+   @LogMessage(level = WARN)
+   @Message(value = "Near cache of cache '%s' disabled, protocol version %s does not support invalidation events", id = 4026)
+   void nearCacheNotSupported(String cacheName, String protocolVersion);
+
+   @LogMessage(level = WARN)
+   @Message(value = "Lost the connection receiving near cache invalidations from server %s, the near cache is not used until it is reestablished", id = 4027)
+   void nearCacheInvalidationsLost(SocketAddress serverAddress, @Cause Throwable cause);
+
 }
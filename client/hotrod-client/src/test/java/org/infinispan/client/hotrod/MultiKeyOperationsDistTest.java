@@ -0,0 +1,138 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.infinispan.client.hotrod;
+
+import org.infinispan.client.hotrod.configuration.ConfigurationBuilder;
+import org.infinispan.client.hotrod.impl.ConfigurationProperties;
+import org.infinispan.configuration.cache.CacheMode;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.infinispan.server.hotrod.HotRodServer;
+import org.infinispan.test.MultipleCacheManagersTest;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.infinispan.client.hotrod.test.HotRodClientTestingUtil.killRemoteCacheManager;
+import static org.infinispan.client.hotrod.test.HotRodClientTestingUtil.killServers;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+/**
+ * Tests the multi-key put, get and remove operations against a distributed
+ * cluster, where the keys of a single invocation are owned by different
+ * servers.
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+@Test(testName = "client.hotrod.MultiKeyOperationsDistTest", groups = "functional")
+public class MultiKeyOperationsDistTest extends MultipleCacheManagersTest {
+
+   private static final int NUM_SERVERS = 3;
+
+   protected HotRodServer[] hotrodServers;
+   protected RemoteCacheManager remoteCacheManager;
+   protected RemoteCache<Object, Object> remoteCache;
+
+   @Override
+   protected void createCacheManagers() throws Throwable {
+      createCluster(getDefaultClusteredCacheConfig(CacheMode.DIST_SYNC, false), NUM_SERVERS);
+
+      hotrodServers = new HotRodServer[NUM_SERVERS];
+      for (int i = 0; i < NUM_SERVERS; i++) {
+         EmbeddedCacheManager cm = cacheManagers.get(i);
+         hotrodServers[i] = TestHelper.startHotRodServer(cm);
+      }
+
+      ConfigurationBuilder builder = new ConfigurationBuilder()
+            .addServers(TestHelper.getServersString(hotrodServers));
+      remoteCacheManager = new RemoteCacheManager(configure(builder).build());
+      remoteCache = remoteCacheManager.getCache();
+   }
+
+   protected ConfigurationBuilder configure(ConfigurationBuilder builder) {
+      return builder.protocolVersion(ConfigurationProperties.PROTOCOL_VERSION_13);
+   }
+
+   @AfterClass(alwaysRun = true)
+   public void release() {
+      killRemoteCacheManager(remoteCacheManager);
+      killServers(hotrodServers);
+   }
+
+   public void testPutAllAndGetAll() {
+      Map<Object, Object> data = new HashMap<Object, Object>();
+      for (int i = 0; i < 100; i++) {
+         data.put("k" + i, "v" + i);
+      }
+      remoteCache.putAll(data);
+
+      for (int i = 0; i < NUM_SERVERS; i++) {
+         assertTrue(cache(i).size() < 100);
+      }
+      for (int i = 0; i < 100; i++) {
+         assertEquals("v" + i, remoteCache.get("k" + i));
+      }
+
+      Set<Object> keys = new HashSet<Object>(data.keySet());
+      keys.add("missing");
+      Map<Object, Object> result = remoteCache.getAll(keys);
+      assertEquals(data, result);
+   }
+
+   public void testGetAllOfMissingKeys() {
+      Set<Object> keys = new HashSet<Object>();
+      keys.add("missing1");
+      keys.add("missing2");
+      assertTrue(remoteCache.getAll(keys).isEmpty());
+   }
+
+   public void testRemoveAll() {
+      Map<Object, Object> data = new HashMap<Object, Object>();
+      for (int i = 0; i < 50; i++) {
+         data.put("r" + i, i);
+      }
+      remoteCache.putAll(data);
+
+      Set<Object> keys = new HashSet<Object>();
+      for (int i = 0; i < 25; i++) {
+         keys.add("r" + i);
+      }
+      remoteCache.removeAll(keys);
+
+      for (int i = 0; i < 50; i++) {
+         if (i < 25)
+            assertNull(remoteCache.get("r" + i));
+         else
+            assertEquals(i, remoteCache.get("r" + i));
+      }
+   }
+
+   public void testEmptyOperations() {
+      remoteCache.putAll(new HashMap<Object, Object>());
+      assertTrue(remoteCache.getAll(new HashSet<Object>()).isEmpty());
+      remoteCache.removeAll(new HashSet<Object>());
+   }
+
+}
@@ -0,0 +1,150 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.infinispan.client.hotrod;
+
+import org.infinispan.client.hotrod.impl.ConfigurationProperties;
+import org.infinispan.client.hotrod.impl.RemoteCacheImpl;
+import org.infinispan.client.hotrod.impl.nearcache.NearCache;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.infinispan.server.hotrod.HotRodServer;
+import org.infinispan.test.SingleCacheManagerTest;
+import org.infinispan.test.fwk.TestCacheManagerFactory;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import static org.infinispan.client.hotrod.test.HotRodClientTestingUtil.killRemoteCacheManager;
+import static org.infinispan.client.hotrod.test.HotRodClientTestingUtil.killServers;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNull;
+
+/**
+ * Tests that values read through a near cache are served locally and invalidated when they change on the server.
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+@Test(groups = "functional", testName = "client.hotrod.NearCacheTest")
+public class NearCacheTest extends SingleCacheManagerTest {
+
+   private HotRodServer hotrodServer;
+   private RemoteCacheManager reader;
+   private RemoteCacheManager writer;
+   private RemoteCache<String, String> readerCache;
+   private RemoteCache<String, String> writerCache;
+   private NearCache nearCache;
+
+   @Override
+   protected EmbeddedCacheManager createCacheManager() throws Exception {
+      EmbeddedCacheManager cm = TestCacheManagerFactory.createLocalCacheManager(false);
+      cache = cm.getCache();
+      hotrodServer = TestHelper.startHotRodServer(cm);
+      reader = new RemoteCacheManager(clientProperties());
+      writer = new RemoteCacheManager(clientProperties());
+      readerCache = reader.getCache();
+      writerCache = writer.getCache();
+      nearCache = ((RemoteCacheImpl<String, String>) readerCache).getNearCache();
+      return cm;
+   }
+
+   private Properties clientProperties() {
+      Properties props = new Properties();
+      props.put(ConfigurationProperties.SERVER_LIST, "127.0.0.1:" + hotrodServer.getPort());
+      props.put(ConfigurationProperties.PROTOCOL_VERSION, ConfigurationProperties.PROTOCOL_VERSION_13);
+      props.put(ConfigurationProperties.NEAR_CACHE_ENABLED, "true");
+      props.put(ConfigurationProperties.NEAR_CACHE_MAX_ENTRIES, "100");
+      return props;
+   }
+
+   @AfterClass(alwaysRun = true)
+   @Override
+   protected void destroyAfterClass() {
+      super.destroyAfterClass();
+      killRemoteCacheManager(reader);
+      killRemoteCacheManager(writer);
+      killServers(hotrodServer);
+   }
+
+   @BeforeMethod
+   public void waitForRegistration() {
+      eventually(new Condition() {
+         @Override
+         public boolean isSatisfied() throws Exception {
+            return nearCache.isActive();
+         }
+      });
+      readerCache.clear();
+   }
+
+   public void testReadIsServedLocally() {
+      writerCache.put("k1", "v1");
+      assertEquals("v1", readerCache.get("k1"));
+      assertEquals(1, nearCache.size());
+      assertEquals("v1", readerCache.get("k1"));
+   }
+
+   public void testRemoteModificationInvalidates() {
+      writerCache.put("k2", "v1");
+      assertEquals("v1", readerCache.get("k2"));
+      writerCache.put("k2", "v2");
+      eventually(new Condition() {
+         @Override
+         public boolean isSatisfied() throws Exception {
+            return "v2".equals(readerCache.get("k2"));
+         }
+      });
+      writerCache.remove("k2");
+      eventually(new Condition() {
+         @Override
+         public boolean isSatisfied() throws Exception {
+            return readerCache.get("k2") == null;
+         }
+      });
+   }
+
+   public void testLocalModificationIsVisibleAtOnce() {
+      readerCache.put("k3", "v1");
+      assertEquals("v1", readerCache.get("k3"));
+      readerCache.put("k3", "v2");
+      assertEquals("v2", readerCache.get("k3"));
+      readerCache.remove("k3");
+      assertNull(readerCache.get("k3"));
+   }
+
+   public void testRemoteClearInvalidatesAll() {
+      writerCache.put("k4", "v1");
+      assertEquals("v1", readerCache.get("k4"));
+      writerCache.clear();
+      eventually(new Condition() {
+         @Override
+         public boolean isSatisfied() throws Exception {
+            return readerCache.get("k4") == null;
+         }
+      });
+   }
+
+   public void testMortalEntriesAreNotCached() {
+      writerCache.put("k5", "v1", 60, TimeUnit.SECONDS);
+      assertEquals("v1", readerCache.get("k5"));
+      assertEquals(0, nearCache.size());
+   }
+}
@@ -0,0 +1,42 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.infinispan.client.hotrod;
+
+import org.infinispan.client.hotrod.impl.transport.nio.NioTransportFactory;
+import org.testng.annotations.Test;
+
+import java.util.Properties;
+
+/**
+ * Runs the synchronous API tests over the non-blocking, pipelined {@link NioTransportFactory}.
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+@Test(groups = "functional", testName = "client.hotrod.NioHotRodIntegrationTest")
+public class NioHotRodIntegrationTest extends HotRodIntegrationTest {
+
+   @Override
+   protected RemoteCacheManager getRemoteCacheManager() {
+      Properties config = new Properties();
+      config.put("infinispan.client.hotrod.server_list", "127.0.0.1:" + hotrodServer.getPort());
+      config.put("infinispan.client.hotrod.transport_factory", NioTransportFactory.class.getName());
+      return new RemoteCacheManager(config);
+   }
+}
@@ -0,0 +1,141 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.infinispan.client.hotrod;
+
+import org.infinispan.client.hotrod.impl.transport.nio.NioTransportFactory;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.infinispan.server.hotrod.HotRodServer;
+import org.infinispan.test.SingleCacheManagerTest;
+import org.infinispan.test.fwk.TestCacheManagerFactory;
+import org.infinispan.util.concurrent.FutureListener;
+import org.infinispan.util.concurrent.NotifyingFuture;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.infinispan.client.hotrod.test.HotRodClientTestingUtil.killRemoteCacheManager;
+import static org.infinispan.client.hotrod.test.HotRodClientTestingUtil.killServers;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+/**
+ * Tests many requests outstanding at once on the single connection of the {@link NioTransportFactory}, and responses
+ * too large to arrive in a single read.
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+@Test(groups = "functional", testName = "client.hotrod.NioPipelinedRequestsTest")
+public class NioPipelinedRequestsTest extends SingleCacheManagerTest {
+
+   private static final int REQUESTS = 1000;
+
+   private HotRodServer hotrodServer;
+   private RemoteCacheManager rcm;
+   private RemoteCache<String, byte[]> remoteCache;
+
+   @Override
+   protected EmbeddedCacheManager createCacheManager() throws Exception {
+      EmbeddedCacheManager cm = TestCacheManagerFactory.createLocalCacheManager(false);
+      cache = cm.getCache();
+      hotrodServer = TestHelper.startHotRodServer(cm);
+      Properties props = new Properties();
+      props.put("infinispan.client.hotrod.server_list", "127.0.0.1:" + hotrodServer.getPort());
+      props.put("infinispan.client.hotrod.transport_factory", NioTransportFactory.class.getName());
+      rcm = new RemoteCacheManager(props);
+      remoteCache = rcm.getCache();
+      return cm;
+   }
+
+   @AfterClass(alwaysRun = true)
+   @Override
+   protected void destroyAfterClass() {
+      super.destroyAfterClass();
+      killRemoteCacheManager(rcm);
+      killServers(hotrodServer);
+   }
+
+   public void testPipelinedRequests(Method m) throws Exception {
+      List<NotifyingFuture<byte[]>> puts = new ArrayList<NotifyingFuture<byte[]>>(REQUESTS);
+      for (int i = 0; i < REQUESTS; i++)
+         puts.add(remoteCache.putAsync(m.getName() + i, value(i, 16)));
+      for (NotifyingFuture<byte[]> put : puts)
+         assertNull(put.get(10, TimeUnit.SECONDS));
+
+      List<NotifyingFuture<byte[]>> gets = new ArrayList<NotifyingFuture<byte[]>>(REQUESTS);
+      for (int i = 0; i < REQUESTS; i++)
+         gets.add(remoteCache.getAsync(m.getName() + i));
+      for (int i = 0; i < REQUESTS; i++)
+         assertTrue(Arrays.equals(value(i, 16), gets.get(i).get(10, TimeUnit.SECONDS)));
+   }
+
+   public void testLargeValue(Method m) {
+      byte[] value = value(7, 4 * 1024 * 1024);
+      remoteCache.put(m.getName(), value);
+      assertTrue(Arrays.equals(value, remoteCache.get(m.getName())));
+   }
+
+   public void testManyEntriesInOneResponse(Method m) {
+      Map<String, byte[]> entries = new HashMap<String, byte[]>();
+      for (int i = 0; i < 5000; i++)
+         entries.put(m.getName() + i, value(i, 256));
+      remoteCache.putAll(entries);
+
+      Map<String, byte[]> bulk = remoteCache.getBulk();
+      for (Map.Entry<String, byte[]> entry : entries.entrySet())
+         assertTrue(Arrays.equals(entry.getValue(), bulk.get(entry.getKey())));
+      assertEquals(entries.size(), remoteCache.getAll(entries.keySet()).size());
+   }
+
+   public void testListenersNotifiedOutsideIoThread(Method m) throws Exception {
+      remoteCache.put(m.getName(), value(1, 16));
+      final AtomicReference<String> notifyingThread = new AtomicReference<String>();
+      final CountDownLatch notified = new CountDownLatch(1);
+      NotifyingFuture<byte[]> get = remoteCache.getAsync(m.getName());
+      get.attachListener(new FutureListener<byte[]>() {
+         @Override
+         public void futureDone(java.util.concurrent.Future<byte[]> future) {
+            notifyingThread.set(Thread.currentThread().getName());
+            notified.countDown();
+         }
+      });
+      assertTrue(notified.await(10, TimeUnit.SECONDS));
+      // the listener may be attached after completion, in which case it runs in this thread
+      String name = notifyingThread.get();
+      assertTrue(name, name.startsWith("HotRod-client-nio-completion-") || name.equals(Thread.currentThread().getName()));
+   }
+
+   private static byte[] value(int seed, int size) {
+      byte[] value = new byte[size];
+      for (int i = 0; i < size; i++)
+         value[i] = (byte) (seed + i);
+      return value;
+   }
+}
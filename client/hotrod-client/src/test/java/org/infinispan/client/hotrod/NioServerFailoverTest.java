@@ -0,0 +1,82 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.infinispan.client.hotrod;
+
+import org.infinispan.client.hotrod.impl.transport.nio.NioTransportFactory;
+import org.infinispan.client.hotrod.test.MultiHotRodServersTest;
+import org.infinispan.configuration.cache.CacheMode;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Method;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import static org.infinispan.client.hotrod.impl.ConfigurationProperties.*;
+import static org.infinispan.client.hotrod.test.HotRodClientTestingUtil.killRemoteCacheManager;
+import static org.infinispan.client.hotrod.test.HotRodClientTestingUtil.killServers;
+import static org.testng.AssertJUnit.assertEquals;
+
+/**
+ * Checks that the {@link NioTransportFactory} fails over to the remaining server when the server its connection leads
+ * to goes away, for both synchronous and asynchronous operations.
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+@Test(groups = "functional", testName = "client.hotrod.NioServerFailoverTest")
+public class NioServerFailoverTest extends MultiHotRodServersTest {
+
+   private RemoteCacheManager nioClient;
+
+   @Override
+   protected void createCacheManagers() throws Throwable {
+      ConfigurationBuilder builder = getDefaultClusteredCacheConfig(CacheMode.REPL_SYNC, false);
+      createHotRodServers(2, builder);
+      Properties props = new Properties();
+      props.put(SERVER_LIST, String.format("localhost:%d;localhost:%d", server(0).getPort(), server(1).getPort()));
+      props.put(TRANSPORT_FACTORY, NioTransportFactory.class.getName());
+      props.put(SO_TIMEOUT, "5000");
+      props.put(FORCE_RETURN_VALUES, "true");
+      nioClient = new RemoteCacheManager(props);
+   }
+
+   @AfterClass(alwaysRun = true)
+   @Override
+   protected void destroy() {
+      killRemoteCacheManager(nioClient);
+      super.destroy();
+   }
+
+   public void testFailover(Method m) throws Exception {
+      RemoteCache<String, String> remoteCache = nioClient.getCache();
+      // the balancer alternates between both servers, so connections to both get opened
+      for (int i = 0; i < 10; i++)
+         remoteCache.put(m.getName() + i, "v" + i);
+
+      killServers(server(0));
+
+      for (int i = 0; i < 10; i++) {
+         assertEquals("v" + i, remoteCache.get(m.getName() + i));
+         assertEquals("v" + i, remoteCache.putAsync(m.getName() + i, "w" + i).get(10, TimeUnit.SECONDS));
+         assertEquals("w" + i, remoteCache.getAsync(m.getName() + i).get(10, TimeUnit.SECONDS));
+      }
+   }
+}
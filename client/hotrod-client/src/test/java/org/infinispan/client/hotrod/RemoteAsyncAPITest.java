@@ -57,11 +57,15 @@ protected EmbeddedCacheManager createCacheManager() throws Exception {
       props.put("infinispan.client.hotrod.server_list", "127.0.0.1:" + hotrodServer.getPort());
       props.put("infinispan.client.hotrod.force_return_values","true");
       props.put("testOnBorrow", "false");
+      configureClient(props);
       rcm = new RemoteCacheManager(props);
       c = rcm.getCache(true);
       return cm;
    }
 
+   protected void configureClient(Properties props) {
+   }
+
    @AfterClass(alwaysRun = true)
    @Override
    protected void destroyAfterClass() {
@@ -32,6 +32,7 @@
 import org.infinispan.eviction.EvictionManager;
 import org.infinispan.factories.ComponentRegistry;
 import org.infinispan.interceptors.base.CommandInterceptor;
+import org.infinispan.notifications.KeyFilter;
 import org.infinispan.remoting.rpc.RpcManager;
 import org.infinispan.util.concurrent.locks.LockManager;
 import org.infinispan.stats.Stats;
@@ -41,6 +42,8 @@
 import java.util.Collection;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Similar to {@link org.infinispan.AbstractDelegatingCache}, but for {@link AdvancedCache}.
@@ -196,6 +199,16 @@ public CacheEntry getCacheEntry(Object key, EnumSet<Flag> explicitFlags, ClassLo
       return cache.getCacheEntry(key, explicitFlags, explicitClassLoader);
    }
 
+   @Override
+   public Map<K, V> getAll(Set<?> keys) {
+      return cache.getAll(keys);
+   }
+
+   @Override
+   public void addListener(Object listener, KeyFilter filter) {
+      cache.addListener(listener, filter);
+   }
+
    protected final void putForExternalRead(K key, V value, EnumSet<Flag> flags, ClassLoader classLoader) {
       ((CacheImpl<K, V>) cache).putForExternalRead(key, value, flags, classLoader);
    }
@@ -32,6 +32,8 @@
 import org.infinispan.eviction.EvictionManager;
 import org.infinispan.factories.ComponentRegistry;
 import org.infinispan.interceptors.base.CommandInterceptor;
+import org.infinispan.notifications.FilteringListenable;
+import org.infinispan.notifications.KeyFilter;
 import org.infinispan.remoting.rpc.RpcManager;
 import org.infinispan.stats.Stats;
 import org.infinispan.util.concurrent.locks.LockManager;
@@ -41,6 +43,8 @@
 import java.util.Collection;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * An advanced interface that exposes additional methods not available on {@link Cache}.
@@ -48,7 +52,7 @@
  * @author Manik Surtani
  * @since 4.0
  */
-public interface AdvancedCache<K, V> extends Cache<K, V> {
+public interface AdvancedCache<K, V> extends Cache<K, V>, FilteringListenable {
 
    /**
     * A method that adds flags to any API call.  For example, consider the following code snippet:
@@ -303,4 +307,25 @@
     * @return
     */
    CacheEntry getCacheEntry(Object key, EnumSet<Flag> explicitFlags, ClassLoader explicitClassLoader);
+
+   /**
+    * Retrieves the values mapped to several keys in a single invocation.  This is functionally equivalent to calling
+    * {@link #get(Object)} for each key, but in a clustered cache the keys missing locally are fetched with one remote
+    * call per owner, and these calls are issued in parallel.
+    *
+    * @param keys keys to retrieve, none of which may be null
+    * @return a map containing the keys that are mapped to a value, and their values
+    */
+   Map<K, V> getAll(Set<?> keys);
+
+   /**
+    * Adds a listener which is only notified about operations on the keys accepted by the given filter.  The filter is
+    * evaluated before any event is created, which makes this considerably cheaper than filtering in the listener if it
+    * is only interested in a small subset of the keys.
+    *
+    * @param listener listener to add, see {@link org.infinispan.notifications.Listener}
+    * @param filter   filter to apply to the keys, must not be null
+    */
+   @Override
+   void addListener(Object listener, KeyFilter filter);
 }
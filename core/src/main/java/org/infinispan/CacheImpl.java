@@ -29,6 +29,7 @@
 import org.infinispan.commands.control.LockControlCommand;
 import org.infinispan.commands.read.EntrySetCommand;
 import org.infinispan.commands.read.GetCacheEntryCommand;
+import org.infinispan.commands.read.GetAllCommand;
 import org.infinispan.commands.read.GetKeyValueCommand;
 import org.infinispan.commands.read.KeySetCommand;
 import org.infinispan.commands.read.SizeCommand;
@@ -69,6 +70,7 @@
 import org.infinispan.manager.EmbeddedCacheManager;
 import org.infinispan.marshall.MarshalledValue;
 import org.infinispan.marshall.StreamingMarshaller;
+import org.infinispan.notifications.KeyFilter;
 import org.infinispan.notifications.cachelistener.CacheNotifier;
 import org.infinispan.remoting.rpc.RpcManager;
 import org.infinispan.stats.Stats;
@@ -77,6 +79,7 @@
 import org.infinispan.transaction.TransactionTable;
 import org.infinispan.transaction.xa.TransactionXaAdapter;
 import org.infinispan.transaction.xa.recovery.RecoveryManager;
+import org.infinispan.util.InfinispanCollections;
 import org.infinispan.util.Util;
 import org.infinispan.util.concurrent.AbstractInProcessNotifyingFuture;
 import org.infinispan.util.concurrent.NotifyingFuture;
@@ -284,6 +287,23 @@ final V get(Object key, EnumSet<Flag> explicitFlags, ClassLoader explicitClassLo
       return (V) invoker.invoke(ctx, command);
    }
 
+   @Override
+   public final Map<K, V> getAll(Set<?> keys) {
+      return getAll(keys, null, null);
+   }
+
+   @SuppressWarnings("unchecked")
+   final Map<K, V> getAll(Set<?> keys, EnumSet<Flag> explicitFlags, ClassLoader explicitClassLoader) {
+      if (keys == null) {
+         throw new NullPointerException("Expected set cannot be null");
+      }
+      for (Object key : keys) assertKeyNotNull(key);
+      if (keys.isEmpty()) return InfinispanCollections.emptyMap();
+      InvocationContext ctx = getInvocationContextForRead(null, explicitClassLoader, keys.size());
+      GetAllCommand command = commandsFactory.buildGetAllCommand(keys, explicitFlags, false);
+      return (Map<K, V>) invoker.invoke(ctx, command);
+   }
+
    @Override
    public final CacheEntry getCacheEntry(Object key, EnumSet<Flag> explicitFlags, ClassLoader explicitClassLoader) {
       assertKeyNotNull(key);
@@ -446,6 +466,11 @@ public void addListener(Object listener) {
       notifier.addListener(listener);
    }
 
+   @Override
+   public void addListener(Object listener, KeyFilter filter) {
+      notifier.addListener(listener, filter);
+   }
+
    @Override
    public void removeListener(Object listener) {
       notifier.removeListener(listener);
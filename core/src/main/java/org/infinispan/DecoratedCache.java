@@ -31,7 +31,9 @@
 import java.util.concurrent.TimeUnit;
 
 import org.infinispan.context.Flag;
+import org.infinispan.notifications.ClassLoaderAwareFilteringListenable;
 import org.infinispan.notifications.ClassLoaderAwareListenable;
+import org.infinispan.notifications.KeyFilter;
 import org.infinispan.util.concurrent.NotifyingFuture;
 
 /**
@@ -316,6 +318,11 @@ public V get(Object key) {
       return cacheImplementation.get(key, flags, classLoader.get());
    }
 
+   @Override
+   public Map<K, V> getAll(Set<?> keys) {
+      return cacheImplementation.getAll(keys, flags, classLoader.get());
+   }
+
    @Override
    public V put(K key, V value) {
       return cacheImplementation.put(key, value, cacheImplementation.defaultLifespan, MILLISECONDS, cacheImplementation.defaultMaxIdleTime, MILLISECONDS, flags, classLoader.get());
@@ -384,4 +391,13 @@ public void addListener(Object listener) {
          throw new IllegalStateException("The CacheNotifier does not implement the ClassLoaderAwareListenable interface");
       }
    }
+
+   @Override
+   public void addListener(Object listener, KeyFilter filter) {
+      if (cacheImplementation.notifier instanceof ClassLoaderAwareFilteringListenable) {
+         ((ClassLoaderAwareFilteringListenable)cacheImplementation.notifier).addListener(listener, filter, classLoader.get());
+      } else {
+         throw new IllegalStateException("The CacheNotifier does not implement the ClassLoaderAwareFilteringListenable interface");
+      }
+   }
 }
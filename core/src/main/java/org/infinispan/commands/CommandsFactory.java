@@ -26,6 +26,7 @@
 import org.infinispan.commands.control.LockControlCommand;
 import org.infinispan.commands.read.DistributedExecuteCommand;
 import org.infinispan.commands.read.EntrySetCommand;
+import org.infinispan.commands.read.GetAllCommand;
 import org.infinispan.commands.read.GetCacheEntryCommand;
 import org.infinispan.commands.read.GetKeyValueCommand;
 import org.infinispan.commands.read.KeySetCommand;
@@ -33,6 +34,7 @@
 import org.infinispan.commands.read.ReduceCommand;
 import org.infinispan.commands.read.SizeCommand;
 import org.infinispan.commands.read.ValuesCommand;
+import org.infinispan.commands.remote.ClusteredGetAllCommand;
 import org.infinispan.commands.remote.ClusteredGetCommand;
 import org.infinispan.commands.remote.MultipleRpcCommand;
 import org.infinispan.commands.remote.SingleRpcCommand;
@@ -168,6 +170,14 @@ public interface CommandsFactory {
     */
    GetCacheEntryCommand buildGetCacheEntryCommand(Object key, Set<Flag> flags);
 
+   /**
+    * Builds a GetAllCommand
+    * @param keys keys to get
+    * @param returnEntries whether the command should return cache entries rather than values
+    * @return a GetAllCommand
+    */
+   GetAllCommand buildGetAllCommand(Collection<?> keys, Set<Flag> flags, boolean returnEntries);
+
    /**
     * Builds a KeySetCommand
     * @return a KeySetCommand
@@ -282,6 +292,13 @@ public interface CommandsFactory {
     */
    ClusteredGetCommand buildClusteredGetCommand(Object key, Set<Flag> flags, boolean acquireRemoteLock, GlobalTransaction gtx);
 
+   /**
+    * Builds a ClusteredGetAllCommand, which is a remote lookup command for several keys
+    * @param keys keys to look up
+    * @return a ClusteredGetAllCommand
+    */
+   ClusteredGetAllCommand buildClusteredGetAllCommand(Collection<Object> keys, Set<Flag> flags);
+
    /**
     * Builds a LockControlCommand to control explicit remote locking
     *
@@ -28,6 +28,7 @@
 import org.infinispan.commands.module.ModuleCommandInitializer;
 import org.infinispan.commands.read.DistributedExecuteCommand;
 import org.infinispan.commands.read.EntrySetCommand;
+import org.infinispan.commands.read.GetAllCommand;
 import org.infinispan.commands.read.GetCacheEntryCommand;
 import org.infinispan.commands.read.GetKeyValueCommand;
 import org.infinispan.commands.read.KeySetCommand;
@@ -35,6 +36,7 @@
 import org.infinispan.commands.read.ReduceCommand;
 import org.infinispan.commands.read.SizeCommand;
 import org.infinispan.commands.read.ValuesCommand;
+import org.infinispan.commands.remote.ClusteredGetAllCommand;
 import org.infinispan.commands.remote.ClusteredGetCommand;
 import org.infinispan.commands.remote.MultipleRpcCommand;
 import org.infinispan.commands.remote.SingleRpcCommand;
@@ -262,6 +264,11 @@ public GetCacheEntryCommand buildGetCacheEntryCommand(Object key, Set<Flag> flag
       return new GetCacheEntryCommand(key, flags);
    }
 
+   @Override
+   public GetAllCommand buildGetAllCommand(Collection<?> keys, Set<Flag> flags, boolean returnEntries) {
+      return new GetAllCommand(keys, flags, returnEntries);
+   }
+
    @Override
    public PutMapCommand buildPutMapCommand(Map<?, ?> map, long lifespan, long maxIdleTimeMillis, Set<Flag> flags) {
       return new PutMapCommand(map, notifier, lifespan, maxIdleTimeMillis, flags);
@@ -321,6 +328,11 @@ public ClusteredGetCommand buildClusteredGetCommand(Object key, Set<Flag> flags,
       return new ClusteredGetCommand(key, cacheName, flags, acquireRemoteLock, gtx);
    }
 
+   @Override
+   public ClusteredGetAllCommand buildClusteredGetAllCommand(Collection<Object> keys, Set<Flag> flags) {
+      return new ClusteredGetAllCommand(keys, cacheName, flags);
+   }
+
    /**
     * @param isRemote true if the command is deserialized and is executed remote.
     */
@@ -403,6 +415,10 @@ public void initializeReplicableCommand(ReplicableCommand c, boolean isRemote) {
             ClusteredGetCommand clusteredGetCommand = (ClusteredGetCommand) c;
             clusteredGetCommand.initialize(icc, this, entryFactory, interceptorChain, distributionManager, txTable);
             break;
+         case ClusteredGetAllCommand.COMMAND_ID:
+            ClusteredGetAllCommand clusteredGetAllCommand = (ClusteredGetAllCommand) c;
+            clusteredGetAllCommand.initialize(icc, this, entryFactory, interceptorChain, distributionManager);
+            break;
          case LockControlCommand.COMMAND_ID:
             LockControlCommand lcc = (LockControlCommand) c;
             lcc.init(interceptorChain, icc, txTable);
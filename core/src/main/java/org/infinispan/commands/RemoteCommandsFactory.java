@@ -27,10 +27,12 @@
 import org.infinispan.commands.module.ExtendedModuleCommandFactory;
 import org.infinispan.commands.module.ModuleCommandFactory;
 import org.infinispan.commands.read.DistributedExecuteCommand;
+import org.infinispan.commands.read.GetAllCommand;
 import org.infinispan.commands.read.GetKeyValueCommand;
 import org.infinispan.commands.read.MapCombineCommand;
 import org.infinispan.commands.read.ReduceCommand;
 import org.infinispan.commands.remote.CacheRpcCommand;
+import org.infinispan.commands.remote.ClusteredGetAllCommand;
 import org.infinispan.commands.remote.ClusteredGetCommand;
 import org.infinispan.commands.remote.MultipleRpcCommand;
 import org.infinispan.commands.remote.SingleRpcCommand;
@@ -134,6 +136,9 @@ public ReplicableCommand fromStream(byte id, Object[] parameters, byte type) {
             case GetKeyValueCommand.COMMAND_ID:
                command = new GetKeyValueCommand();
                break;
+            case GetAllCommand.COMMAND_ID:
+               command = new GetAllCommand();
+               break;
             case ClearCommand.COMMAND_ID:
                command = new ClearCommand();
                break;
@@ -218,6 +223,9 @@ public CacheRpcCommand fromStream(byte id, Object[] parameters, byte type, Strin
             case ClusteredGetCommand.COMMAND_ID:
                command = new ClusteredGetCommand(cacheName);
                break;
+            case ClusteredGetAllCommand.COMMAND_ID:
+               command = new ClusteredGetAllCommand(cacheName);
+               break;
             case StateRequestCommand.COMMAND_ID:
                command = new StateRequestCommand(cacheName);
                break;
@@ -0,0 +1,172 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.infinispan.commands.read;
+
+import org.infinispan.commands.AbstractFlagAffectedCommand;
+import org.infinispan.commands.VisitableCommand;
+import org.infinispan.commands.Visitor;
+import org.infinispan.container.entries.CacheEntry;
+import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.context.Flag;
+import org.infinispan.context.InvocationContext;
+import org.infinispan.lifecycle.ComponentStatus;
+import org.infinispan.util.InfinispanCollections;
+import org.infinispan.util.logging.Log;
+import org.infinispan.util.logging.LogFactory;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Retrieves the values of several keys in a single invocation of the interceptor chain.  Implements the functionality
+ * defined by {@link org.infinispan.AdvancedCache#getAll(java.util.Set)}.
+ * <p/>
+ * The command returns a map containing only the keys that have a value.  When {@link #isReturnEntries()} is
+ * <tt>true</tt> the map values are the {@link CacheEntry} instances found in the invocation context instead of the
+ * plain values; this is what {@link org.infinispan.commands.remote.ClusteredGetAllCommand} uses on the owner side.
+ * <p/>
+ * Entries fetched from other nodes while the command travels through the chain are recorded with
+ * {@link #addRemotelyFetchedValue(Object, InternalCacheEntry)} so that the L1 interceptors can store them.
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+public class GetAllCommand extends AbstractFlagAffectedCommand implements VisitableCommand {
+   public static final byte COMMAND_ID = 40;
+   private static final Log log = LogFactory.getLog(GetAllCommand.class);
+   private static final boolean trace = log.isTraceEnabled();
+
+   private Collection<Object> keys;
+   private boolean returnEntries;
+   private Map<Object, InternalCacheEntry> remotelyFetched;
+
+   public GetAllCommand(Collection<?> keys, Set<Flag> flags, boolean returnEntries) {
+      this.keys = new LinkedHashSet<Object>(keys);
+      this.flags = flags;
+      this.returnEntries = returnEntries;
+   }
+
+   public GetAllCommand() {
+   }
+
+   @Override
+   public Object acceptVisitor(InvocationContext ctx, Visitor visitor) throws Throwable {
+      return visitor.visitGetAllCommand(ctx, this);
+   }
+
+   @Override
+   public Map<Object, Object> perform(InvocationContext ctx) throws Throwable {
+      Map<Object, Object> map = new HashMap<Object, Object>(keys.size());
+      for (Object key : keys) {
+         CacheEntry entry = ctx.lookupEntry(key);
+         if (entry == null || entry.isNull() || entry.isRemoved()) {
+            if (trace) log.tracef("Entry for key %s not found", key);
+            continue;
+         }
+         map.put(key, returnEntries ? entry : entry.getValue());
+      }
+      if (trace) log.tracef("Found %d out of %d keys", map.size(), keys.size());
+      return map;
+   }
+
+   public Collection<Object> getKeys() {
+      return keys;
+   }
+
+   /**
+    * Replaces the keys of this command, e.g. with their {@link org.infinispan.marshall.MarshalledValue} wrappers.
+    */
+   public void setKeys(Collection<?> keys) {
+      this.keys = new LinkedHashSet<Object>(keys);
+   }
+
+   public boolean isReturnEntries() {
+      return returnEntries;
+   }
+
+   /**
+    * @see #getRemotelyFetchedValues()
+    */
+   public void addRemotelyFetchedValue(Object key, InternalCacheEntry entry) {
+      if (remotelyFetched == null) remotelyFetched = new HashMap<Object, InternalCacheEntry>();
+      remotelyFetched.put(key, entry);
+   }
+
+   /**
+    * If the cache needs to go remotely in order to obtain the values associated to some of the keys, then the remote
+    * entries are stored here, keyed by the (possibly wrapped) key they were requested with.  Never null.
+    */
+   public Map<Object, InternalCacheEntry> getRemotelyFetchedValues() {
+      if (remotelyFetched == null) return InfinispanCollections.emptyMap();
+      return remotelyFetched;
+   }
+
+   @Override
+   public byte getCommandId() {
+      return COMMAND_ID;
+   }
+
+   @Override
+   @SuppressWarnings("unchecked")
+   public void setParameters(int commandId, Object[] parameters) {
+      if (commandId != COMMAND_ID) throw new IllegalStateException("Invalid method id");
+      keys = (Collection<Object>) parameters[0];
+      flags = (Set<Flag>) parameters[1];
+      returnEntries = (Boolean) parameters[2];
+   }
+
+   @Override
+   public Object[] getParameters() {
+      return new Object[]{keys, Flag.copyWithoutRemotableFlags(flags), returnEntries};
+   }
+
+   @Override
+   public boolean shouldInvoke(InvocationContext ctx) {
+      return true;
+   }
+
+   @Override
+   public boolean ignoreCommandOnStatus(ComponentStatus status) {
+      return false;
+   }
+
+   @Override
+   public boolean isReturnValueExpected() {
+      return true;
+   }
+
+   @Override
+   public boolean canBlock() {
+      return false;
+   }
+
+   @Override
+   public String toString() {
+      return new StringBuilder()
+            .append("GetAllCommand{keys=")
+            .append(keys)
+            .append(", returnEntries=").append(returnEntries)
+            .append(", flags=").append(flags)
+            .append("}")
+            .toString();
+   }
+}
@@ -53,6 +53,8 @@
    private String taskId;
    private boolean reducePhaseDistributed;
    private boolean emitCompositeIntermediateKeys;
+   private int parallelism = 1;
+   private int spillThreshold;
    private MapReduceManager mrManager;
    private UUID uuid;
 
@@ -111,6 +113,28 @@ public void setReducePhaseDistributed(boolean reducePhaseDistributed) {
       this.reducePhaseDistributed = reducePhaseDistributed;
    }
 
+   /**
+    * The number of threads the map and combine phases may use on the target node
+    */
+   public int getParallelism() {
+      return parallelism;
+   }
+
+   public void setParallelism(int parallelism) {
+      this.parallelism = parallelism;
+   }
+
+   /**
+    * The number of intermediate values the target node keeps in memory before spilling them to disk, 0 to never spill
+    */
+   public int getSpillThreshold() {
+      return spillThreshold;
+   }
+
+   public void setSpillThreshold(int spillThreshold) {
+      this.spillThreshold = spillThreshold;
+   }
+
    public Set<KIn> getKeys() {
       return keys;
    }
@@ -140,7 +164,7 @@ public UUID getUUID() {
    @Override
    public Object[] getParameters() {
       return new Object[] { taskId, keys, mapper, combiner, reducePhaseDistributed,
-               emitCompositeIntermediateKeys, uuid };
+               emitCompositeIntermediateKeys, parallelism, spillThreshold, uuid };
    }
 
    @SuppressWarnings("unchecked")
@@ -155,6 +179,8 @@ public void setParameters(int commandId, Object[] args) {
       combiner = (Reducer<KOut,VOut>) args[i++];
       reducePhaseDistributed = (Boolean) args[i++];
       emitCompositeIntermediateKeys = (Boolean) args[i++];
+      parallelism = (Integer) args[i++];
+      spillThreshold = (Integer) args[i++];
       uuid = (UUID) args[i++];
    }
 
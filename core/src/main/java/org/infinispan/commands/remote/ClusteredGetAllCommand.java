@@ -0,0 +1,240 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.infinispan.commands.remote;
+
+import org.infinispan.commands.CommandsFactory;
+import org.infinispan.commands.FlagAffectedCommand;
+import org.infinispan.commands.Visitor;
+import org.infinispan.commands.read.GetAllCommand;
+import org.infinispan.container.InternalEntryFactory;
+import org.infinispan.container.entries.CacheEntry;
+import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.container.entries.InternalCacheValue;
+import org.infinispan.container.entries.MVCCEntry;
+import org.infinispan.context.Flag;
+import org.infinispan.context.InvocationContext;
+import org.infinispan.context.InvocationContextContainer;
+import org.infinispan.distribution.DistributionManager;
+import org.infinispan.interceptors.InterceptorChain;
+import org.infinispan.lifecycle.ComponentStatus;
+import org.infinispan.util.logging.Log;
+import org.infinispan.util.logging.LogFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Issues a remote lookup of several keys at once.  It is the multi-key counterpart of {@link ClusteredGetCommand} and
+ * is sent by the initiator of a {@link GetAllCommand} to the primary owner of each group of keys.
+ * <p/>
+ * The response maps every key the owner could answer for to its {@link InternalCacheValue}, or to <tt>null</tt> if
+ * the owner has no value for it.  Keys affected by an ongoing state transfer are left out of the response
+ * altogether, so the requestor knows it has to look them up on the other owners.
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+public class ClusteredGetAllCommand extends BaseRpcCommand implements FlagAffectedCommand {
+
+   public static final byte COMMAND_ID = 41;
+   private static final Log log = LogFactory.getLog(ClusteredGetAllCommand.class);
+   private static final boolean trace = log.isTraceEnabled();
+
+   private Collection<Object> keys;
+   private Set<Flag> flags;
+
+   private InvocationContextContainer icc;
+   private CommandsFactory commandsFactory;
+   private InterceptorChain invoker;
+   private DistributionManager distributionManager;
+   private InternalEntryFactory entryFactory;
+   private int topologyId;
+
+   private ClusteredGetAllCommand() {
+      super(null); // For command id uniqueness test
+   }
+
+   public ClusteredGetAllCommand(String cacheName) {
+      super(cacheName);
+   }
+
+   public ClusteredGetAllCommand(Collection<Object> keys, String cacheName, Set<Flag> flags) {
+      super(cacheName);
+      this.keys = keys;
+      this.flags = flags;
+   }
+
+   public void initialize(InvocationContextContainer icc, CommandsFactory commandsFactory, InternalEntryFactory entryFactory,
+                          InterceptorChain interceptorChain, DistributionManager distributionManager) {
+      this.icc = icc;
+      this.commandsFactory = commandsFactory;
+      this.entryFactory = entryFactory;
+      this.invoker = interceptorChain;
+      this.distributionManager = distributionManager;
+   }
+
+   /**
+    * Invokes a logical "getAll(keys)" on a remote cache and returns results.
+    *
+    * @param context invocation context, ignored.
+    * @return a map of the keys this node could answer for to their <code>InternalCacheValue</code>, or to null if no
+    *         entry was found
+    */
+   @Override
+   public Map<Object, InternalCacheValue> perform(InvocationContext context) throws Throwable {
+      List<Object> answerable = new ArrayList<Object>(keys.size());
+      for (Object key : keys) {
+         if (distributionManager != null && distributionManager.isAffectedByRehash(key)) {
+            if (trace) log.tracef("Key %s is affected by rehash, leaving it out of the response", key);
+         } else {
+            answerable.add(key);
+         }
+      }
+      Map<Object, InternalCacheValue> values = new HashMap<Object, InternalCacheValue>(answerable.size());
+      if (answerable.isEmpty()) return values;
+
+      // make sure the get command doesn't perform a remote call
+      // as our caller is already calling the ClusteredGetAllCommand on all the relevant nodes
+      Set<Flag> commandFlags = EnumSet.of(Flag.SKIP_REMOTE_LOOKUP, Flag.CACHE_MODE_LOCAL);
+      if (this.flags != null) commandFlags.addAll(this.flags);
+      GetAllCommand command = commandsFactory.buildGetAllCommand(answerable, commandFlags, true);
+      InvocationContext invocationContext = icc.createRemoteInvocationContextForCommand(command, getOrigin());
+      Map<?, ?> entries = (Map<?, ?>) invoker.invoke(invocationContext, command);
+      for (Object key : answerable) {
+         CacheEntry cacheEntry = (CacheEntry) entries.get(key);
+         values.put(key, cacheEntry == null ? null : toInternalCacheValue(cacheEntry));
+      }
+      return values;
+   }
+
+   private InternalCacheValue toInternalCacheValue(CacheEntry cacheEntry) {
+      //this might happen if the value was fetched from a cache loader
+      if (cacheEntry instanceof MVCCEntry) {
+         return entryFactory.createValue(cacheEntry);
+      } else {
+         return ((InternalCacheEntry) cacheEntry).toInternalCacheValue();
+      }
+   }
+
+   @Override
+   public byte getCommandId() {
+      return COMMAND_ID;
+   }
+
+   @Override
+   public Object[] getParameters() {
+      return new Object[]{keys, flags};
+   }
+
+   @Override
+   @SuppressWarnings("unchecked")
+   public void setParameters(int commandId, Object[] args) {
+      keys = (Collection<Object>) args[0];
+      flags = (Set<Flag>) args[1];
+   }
+
+   @Override
+   public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+
+      ClusteredGetAllCommand that = (ClusteredGetAllCommand) o;
+
+      return !(keys != null ? !keys.equals(that.keys) : that.keys != null);
+   }
+
+   @Override
+   public int hashCode() {
+      return keys != null ? keys.hashCode() : 0;
+   }
+
+   @Override
+   public String toString() {
+      return new StringBuilder()
+         .append("ClusteredGetAllCommand{keys=")
+         .append(keys)
+         .append(", flags=").append(flags)
+         .append("}")
+         .toString();
+   }
+
+   public Collection<Object> getKeys() {
+      return keys;
+   }
+
+   @Override
+   public Set<Flag> getFlags() {
+      return flags;
+   }
+
+   @Override
+   public void setFlags(Set<Flag> flags) {
+      this.flags = flags;
+   }
+
+   @Override
+   public void setFlags(Flag... flags) {
+      if (flags == null || flags.length == 0) return;
+      if (this.flags == null)
+         this.flags = EnumSet.copyOf(Arrays.asList(flags));
+      else
+         this.flags.addAll(Arrays.asList(flags));
+   }
+
+   @Override
+   public boolean hasFlag(Flag flag) {
+      return flags != null && flags.contains(flag);
+   }
+
+   @Override
+   public boolean isReturnValueExpected() {
+      return true;
+   }
+
+   @Override
+   public int getTopologyId() {
+      return topologyId;
+   }
+
+   @Override
+   public void setTopologyId(int topologyId) {
+      this.topologyId = topologyId;
+   }
+
+   @Override
+   public Object acceptVisitor(InvocationContext ctx, Visitor visitor) throws Throwable {
+      return visitor.visitUnknownCommand(ctx, this);
+   }
+
+   @Override
+   public boolean shouldInvoke(InvocationContext ctx) {
+      return true;
+   }
+
+   @Override
+   public boolean ignoreCommandOnStatus(ComponentStatus status) {
+      return false;
+   }
+}
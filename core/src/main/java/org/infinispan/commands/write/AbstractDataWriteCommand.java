@@ -24,6 +24,7 @@
 
 import org.infinispan.commands.read.AbstractDataCommand;
 import org.infinispan.context.Flag;
+import org.infinispan.marshall.MarshalledValue;
 
 import java.util.Collections;
 import java.util.Set;
@@ -74,4 +75,13 @@ public final boolean wasPreviousRead() {
    public boolean canBlock() {
       return true;
    }
+
+   /**
+    * Lets the {@link ValueMatcher} passed as the expected value of a conditional write decide whether the current
+    * value matches it.
+    */
+   protected static boolean matches(ValueMatcher matcher, Object current) {
+      if (current instanceof MarshalledValue) current = ((MarshalledValue) current).get();
+      return matcher.matches(current);
+   }
 }
@@ -89,7 +89,7 @@ public Object perform(InvocationContext ctx) throws Throwable {
 
       if (!(e instanceof MVCCEntry)) ctx.putLookedUpEntry(key, null);
 
-      if (!ignorePreviousValue && value != null && e.getValue() != null && !e.getValue().equals(value)) {
+      if (!ignorePreviousValue && value != null && e.getValue() != null && !matchesValue(e.getValue())) {
          successful = false;
          e.rollback();
          return false;
@@ -109,6 +109,10 @@ public Object perform(InvocationContext ctx) throws Throwable {
       return value == null ? removedValue : true;
    }
 
+   private boolean matchesValue(Object current) {
+      return value instanceof ValueMatcher ? matches((ValueMatcher) value, current) : current.equals(value);
+   }
+
    protected void notify(InvocationContext ctx, Object value, boolean isPre) {
       notifier.notifyCacheEntryRemoved(key, value, value, isPre, ctx, this);
    }
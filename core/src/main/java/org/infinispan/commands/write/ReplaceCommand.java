@@ -81,7 +81,7 @@ public Object perform(InvocationContext ctx) throws Throwable {
             }
          }
 
-         if (oldValue == null || oldValue.equals(e.getValue()) || ignorePreviousValue) {
+         if (oldValue == null || ignorePreviousValue || matchesOldValue(e.getValue())) {
             e.setChanged(true);
             Object old = e.setValue(newValue);
             e.setLifespan(lifespanMillis);
@@ -95,15 +95,18 @@ public Object perform(InvocationContext ctx) throws Throwable {
       return returnValue(null, false, ctx);
    }
 
+   private boolean matchesOldValue(Object current) {
+      return oldValue instanceof ValueMatcher ? matches((ValueMatcher) oldValue, current) : oldValue.equals(current);
+   }
+
    private Object returnValue(Object beingReplaced, boolean successful, 
          InvocationContext ctx) {
       this.successful = successful;
       
-      Object previousValue = oldValue == null ? beingReplaced : oldValue;
-
       if (successful) {
+         // Notify the value actually replaced, the expected value only needs to be equal to it
          notifier.notifyCacheEntryModified(
-               key, previousValue, previousValue == null, true, ctx, this);
+               key, beingReplaced, beingReplaced == null, true, ctx, this);
       }
 
       if (oldValue == null) {
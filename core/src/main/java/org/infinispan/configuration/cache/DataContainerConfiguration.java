@@ -31,10 +31,14 @@
 public class DataContainerConfiguration extends AbstractTypedPropertiesConfiguration {
 
    private final DataContainer dataContainer;
+   private final boolean segmented;
+   private final boolean offHeap;
 
-   DataContainerConfiguration(DataContainer dataContainer, TypedProperties properties) {
+   DataContainerConfiguration(DataContainer dataContainer, boolean segmented, boolean offHeap, TypedProperties properties) {
       super(properties);
       this.dataContainer = dataContainer;
+      this.segmented = segmented;
+      this.offHeap = offHeap;
    }
    
    /**
@@ -45,10 +49,28 @@ public DataContainer dataContainer() {
       return dataContainer;
    }
 
+   /**
+    * Whether the default data container of a distributed cache partitions its entries by consistent hash segment
+    * @return
+    */
+   public boolean segmented() {
+      return segmented;
+   }
+
+   /**
+    * Whether the default data container stores its entries marshalled in off-heap memory
+    * @return
+    */
+   public boolean offHeap() {
+      return offHeap;
+   }
+
    @Override
    public String toString() {
       return "DataContainerConfiguration{" +
             "dataContainer=" + dataContainer +
+            ", segmented=" + segmented +
+            ", offHeap=" + offHeap +
             '}';
    }
 
@@ -59,6 +81,10 @@ public boolean equals(Object o) {
 
       DataContainerConfiguration that = (DataContainerConfiguration) o;
 
+      if (segmented != that.segmented)
+         return false;
+      if (offHeap != that.offHeap)
+         return false;
       if (dataContainer != null ? !dataContainer.equals(that.dataContainer) : that.dataContainer != null)
          return false;
 
@@ -67,7 +93,10 @@ public boolean equals(Object o) {
 
    @Override
    public int hashCode() {
-      return dataContainer != null ? dataContainer.hashCode() : 0;
+      int result = dataContainer != null ? dataContainer.hashCode() : 0;
+      result = 31 * result + (segmented ? 1 : 0);
+      result = 31 * result + (offHeap ? 1 : 0);
+      return result;
    }
 
 }
@@ -20,6 +20,7 @@
 
 import java.util.Properties;
 
+import org.infinispan.config.ConfigurationException;
 import org.infinispan.configuration.Builder;
 import org.infinispan.container.DataContainer;
 import org.infinispan.util.TypedProperties;
@@ -34,6 +35,8 @@ public class DataContainerConfigurationBuilder extends AbstractConfigurationChil
 
    // No default here. DataContainerFactory figures out default.
    private DataContainer dataContainer;
+   private boolean segmented = false;
+   private boolean offHeap = false;
    private Properties properties = new Properties();
 
    DataContainerConfigurationBuilder(ConfigurationBuilder builder) {
@@ -50,6 +53,41 @@ public DataContainerConfigurationBuilder dataContainer(DataContainer dataContain
       return this;
    }
 
+   /**
+    * If true, the default data container of a distributed cache keeps its entries partitioned by consistent hash
+    * segment, so that state transfer only needs to visit the segments that are actually moving. Cannot be used
+    * together with eviction. Ignored if a custom data container is specified or the cache is not distributed.
+    *
+    * @param segmented
+    * @return
+    */
+   public DataContainerConfigurationBuilder segmented(boolean segmented) {
+      this.segmented = segmented;
+      return this;
+   }
+
+   boolean segmented() {
+      return segmented;
+   }
+
+   /**
+    * If true, the default data container keeps keys, values and expiration metadata marshalled in
+    * off-heap memory, and only materializes entries on the heap while they are being used. Eviction
+    * of such a container can be bounded with {@link EvictionConfigurationBuilder#maxMemory(long)}.
+    * Ignored if a custom data container is specified.
+    *
+    * @param offHeap
+    * @return
+    */
+   public DataContainerConfigurationBuilder offHeap(boolean offHeap) {
+      this.offHeap = offHeap;
+      return this;
+   }
+
+   boolean offHeap() {
+      return offHeap;
+   }
+
    /**
     * Add key/value property pair to this data container configuration
     *
@@ -76,17 +114,21 @@ public DataContainerConfigurationBuilder withProperties(Properties props) {
    @Override
    public
    void validate() {
+      if (segmented && offHeap)
+         throw new ConfigurationException("A data container cannot be both segmented and off-heap");
    }
 
    @Override
    public
    DataContainerConfiguration create() {
-      return new DataContainerConfiguration(dataContainer, TypedProperties.toTypedProperties(properties));
+      return new DataContainerConfiguration(dataContainer, segmented, offHeap, TypedProperties.toTypedProperties(properties));
    }
 
    @Override
    public DataContainerConfigurationBuilder read(DataContainerConfiguration template) {
       this.dataContainer = template.dataContainer();
+      this.segmented = template.segmented();
+      this.offHeap = template.offHeap();
       this.properties = template.properties();
 
       return this;
@@ -96,6 +138,8 @@ public DataContainerConfigurationBuilder read(DataContainerConfiguration templat
    public String toString() {
       return "DataContainerConfigurationBuilder{" +
             "dataContainer=" + dataContainer +
+            ", segmented=" + segmented +
+            ", offHeap=" + offHeap +
             ", properties=" + properties +
             '}';
    }
@@ -18,6 +18,7 @@
  */
 package org.infinispan.configuration.cache;
 
+import org.infinispan.eviction.EntrySizeCalculator;
 import org.infinispan.eviction.EvictionStrategy;
 import org.infinispan.eviction.EvictionThreadPolicy;
 
@@ -27,17 +28,22 @@
 public class EvictionConfiguration {
    
    private final int maxEntries;
+   private final long maxMemory;
+   private final EntrySizeCalculator<Object, Object> sizeCalculator;
    private final EvictionStrategy strategy;
    private final EvictionThreadPolicy threadPolicy;
    
-   EvictionConfiguration(int maxEntries, EvictionStrategy strategy, EvictionThreadPolicy threadPolicy) {
+   EvictionConfiguration(int maxEntries, long maxMemory, EntrySizeCalculator<Object, Object> sizeCalculator,
+                         EvictionStrategy strategy, EvictionThreadPolicy threadPolicy) {
       this.maxEntries = maxEntries;
+      this.maxMemory = maxMemory;
+      this.sizeCalculator = sizeCalculator;
       this.strategy = strategy;
       this.threadPolicy = threadPolicy;
    }
    
    /**
-    * Eviction strategy. Available options are 'UNORDERED', 'LRU', 'LIRS' and 'NONE' (to disable
+    * Eviction strategy. Available options are 'UNORDERED', 'LRU', 'LIRS', 'TINY_LFU' and 'NONE' (to disable
     * eviction).
     */
    public EvictionStrategy strategy() {
@@ -60,10 +66,28 @@ public int maxEntries() {
       return maxEntries;
    }
 
+   /**
+    * Maximum amount of memory, in bytes, used by the entries of a cache instance, or a negative
+    * value if eviction is not bounded by memory.
+    */
+   public long maxMemory() {
+      return maxMemory;
+   }
+
+   /**
+    * Estimates the size of entries when eviction is bounded by {@link #maxMemory()}, or null to use
+    * the {@link org.infinispan.eviction.DefaultEntrySizeCalculator}.
+    */
+   public EntrySizeCalculator<Object, Object> sizeCalculator() {
+      return sizeCalculator;
+   }
+
    @Override
    public String toString() {
       return "EvictionConfiguration{" +
             "maxEntries=" + maxEntries +
+            ", maxMemory=" + maxMemory +
+            ", sizeCalculator=" + sizeCalculator +
             ", strategy=" + strategy +
             ", threadPolicy=" + threadPolicy +
             '}';
@@ -77,6 +101,9 @@ public boolean equals(Object o) {
       EvictionConfiguration that = (EvictionConfiguration) o;
 
       if (maxEntries != that.maxEntries) return false;
+      if (maxMemory != that.maxMemory) return false;
+      if (sizeCalculator != null ? !sizeCalculator.equals(that.sizeCalculator) : that.sizeCalculator != null)
+         return false;
       if (strategy != that.strategy) return false;
       if (threadPolicy != that.threadPolicy) return false;
 
@@ -86,6 +113,8 @@ public boolean equals(Object o) {
    @Override
    public int hashCode() {
       int result = maxEntries;
+      result = 31 * result + (int) (maxMemory ^ (maxMemory >>> 32));
+      result = 31 * result + (sizeCalculator != null ? sizeCalculator.hashCode() : 0);
       result = 31 * result + (strategy != null ? strategy.hashCode() : 0);
       result = 31 * result + (threadPolicy != null ? threadPolicy.hashCode() : 0);
       return result;
@@ -20,6 +20,7 @@
 
 import org.infinispan.config.ConfigurationException;
 import org.infinispan.configuration.Builder;
+import org.infinispan.eviction.EntrySizeCalculator;
 import org.infinispan.eviction.EvictionStrategy;
 import org.infinispan.eviction.EvictionThreadPolicy;
 import org.infinispan.util.logging.Log;
@@ -33,6 +34,8 @@ public class EvictionConfigurationBuilder extends AbstractConfigurationChildBuil
    private static final Log log = LogFactory.getLog(EvictionConfigurationBuilder.class);
 
    private int maxEntries = -1;
+   private long maxMemory = -1;
+   private EntrySizeCalculator<Object, Object> sizeCalculator;
    private EvictionStrategy strategy = EvictionStrategy.NONE;
    private EvictionThreadPolicy threadPolicy = EvictionThreadPolicy.DEFAULT;
 
@@ -42,7 +45,7 @@ public class EvictionConfigurationBuilder extends AbstractConfigurationChildBuil
 
 
    /**
-    * Eviction strategy. Available options are 'UNORDERED', 'LRU', 'LIRS' and 'NONE' (to disable
+    * Eviction strategy. Available options are 'UNORDERED', 'LRU', 'LIRS', 'TINY_LFU' and 'NONE' (to disable
     * eviction).
     *
     * @param evictionStrategy
@@ -74,28 +77,66 @@ public EvictionConfigurationBuilder maxEntries(int maxEntries) {
       return this;
    }
 
+   /**
+    * Maximum amount of memory, in bytes, used by the entries of a cache instance. This is an
+    * alternative to {@link #maxEntries(int)} for caches whose entries vary a lot in size. The
+    * off-heap data container (see {@link DataContainerConfigurationBuilder#offHeap(boolean)})
+    * accounts for the exact size of the marshalled entries, the default data container estimates
+    * the size of entries with the {@link #sizeCalculator(EntrySizeCalculator) size calculator}.
+    *
+    * @param maxMemory
+    */
+   public EvictionConfigurationBuilder maxMemory(long maxMemory) {
+      this.maxMemory = maxMemory;
+      return this;
+   }
+
+   /**
+    * Estimates the size of entries when eviction is bounded by {@link #maxMemory(long)}. Defaults
+    * to {@link org.infinispan.eviction.DefaultEntrySizeCalculator}, which is exact for byte arrays
+    * and strings only. Ignored by the off-heap data container.
+    *
+    * @param sizeCalculator
+    */
+   public EvictionConfigurationBuilder sizeCalculator(EntrySizeCalculator<Object, Object> sizeCalculator) {
+      this.sizeCalculator = sizeCalculator;
+      return this;
+   }
+
    @Override
    public void validate() {
       if (!strategy.isEnabled() && getBuilder().loaders().passivation())
          log.passivationWithoutEviction();
       if(strategy == EvictionStrategy.FIFO)
          log.warn("FIFO strategy is deprecated, LRU will be used instead");
-      if (strategy.isEnabled() && maxEntries <= 0)
+      if (maxEntries > 0 && maxMemory > 0)
+         throw new ConfigurationException("Eviction can either be bounded by maxEntries or by maxMemory, not both");
+      if (maxEntries > 0 && getBuilder().dataContainer().offHeap())
+         throw new ConfigurationException("Eviction of the off-heap data container can only be bounded by maxMemory");
+      if (strategy.isEnabled() && maxEntries <= 0 && maxMemory <= 0)
          throw new ConfigurationException("Eviction maxEntries value cannot be less than or equal to zero if eviction is enabled");
       if (maxEntries > 0 && !strategy.isEnabled()) {
          strategy = EvictionStrategy.LIRS;
          log.debugf("Max entries configured (%d) without eviction strategy. Eviction strategy overriden to %s", maxEntries, strategy);
       }
+      if (maxMemory > 0 && !strategy.isEnabled()) {
+         strategy = EvictionStrategy.LIRS;
+         log.debugf("Max memory configured (%d) without eviction strategy. Eviction strategy overriden to %s", maxMemory, strategy);
+      }
+      if (strategy.isEnabled() && getBuilder().dataContainer().segmented())
+         throw new ConfigurationException("Eviction cannot be enabled when using a segmented data container");
    }
 
    @Override
    public EvictionConfiguration create() {
-      return new EvictionConfiguration(maxEntries, strategy, threadPolicy);
+      return new EvictionConfiguration(maxEntries, maxMemory, sizeCalculator, strategy, threadPolicy);
    }
 
    @Override
    public EvictionConfigurationBuilder read(EvictionConfiguration template) {
       this.maxEntries = template.maxEntries();
+      this.maxMemory = template.maxMemory();
+      this.sizeCalculator = template.sizeCalculator();
       this.strategy = template.strategy();
       this.threadPolicy = template.threadPolicy();
 
@@ -106,6 +147,8 @@ public EvictionConfigurationBuilder read(EvictionConfiguration template) {
    public String toString() {
       return "EvictionConfigurationBuilder{" +
             "maxEntries=" + maxEntries +
+            ", maxMemory=" + maxMemory +
+            ", sizeCalculator=" + sizeCalculator +
             ", strategy=" + strategy +
             ", threadPolicy=" + threadPolicy +
             '}';
@@ -30,13 +30,16 @@ public class L1Configuration {
    private final long lifespan;
    private final boolean onRehash;
    private final long cleanupTaskFrequency;
+   private final long invalidationBatchWindow;
 
-   L1Configuration(boolean enabled, int invalidationThreshold, long lifespan, boolean onRehash, long cleanupTaskFrequency) {
+   L1Configuration(boolean enabled, int invalidationThreshold, long lifespan, boolean onRehash, long cleanupTaskFrequency,
+                   long invalidationBatchWindow) {
       this.enabled = enabled;
       this.invalidationThreshold = invalidationThreshold;
       this.lifespan = lifespan;
       this.onRehash = onRehash;
       this.cleanupTaskFrequency = cleanupTaskFrequency;
+      this.invalidationBatchWindow = invalidationBatchWindow;
    }
 
    public boolean enabled() {
@@ -68,6 +71,13 @@ public long cleanupTaskFrequency() {
       return cleanupTaskFrequency;
    }
 
+   /**
+    * How long, in milliseconds, unicast L1 invalidations are held back so that invalidations of several keys bound
+    * for the same node can be sent as a single command. 0, the default, sends every invalidation right away.
+    */
+   public long invalidationBatchWindow() {
+      return invalidationBatchWindow;
+   }
 
    /**
     * Maximum lifespan of an entry placed in the L1 cache. Default 10 minutes.
@@ -92,6 +102,7 @@ public String toString() {
             ", lifespan=" + lifespan +
             ", onRehash=" + onRehash +
             ", cleanupTaskFrequency=" + cleanupTaskFrequency +
+            ", invalidationBatchWindow=" + invalidationBatchWindow +
             '}';
    }
 
@@ -107,6 +118,7 @@ public boolean equals(Object o) {
       if (lifespan != that.lifespan) return false;
       if (onRehash != that.onRehash) return false;
       if (cleanupTaskFrequency != that.cleanupTaskFrequency) return false;
+      if (invalidationBatchWindow != that.invalidationBatchWindow) return false;
 
       return true;
    }
@@ -118,6 +130,7 @@ public int hashCode() {
       result = 31 * result + (int) (lifespan ^ (lifespan >>> 32));
       result = 31 * result + (onRehash ? 1 : 0);
       result = 31 * result + (int) (cleanupTaskFrequency ^ (cleanupTaskFrequency >>> 32));
+      result = 31 * result + (int) (invalidationBatchWindow ^ (invalidationBatchWindow >>> 32));
       return result;
    }
 
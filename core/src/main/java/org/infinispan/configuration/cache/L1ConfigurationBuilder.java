@@ -39,6 +39,7 @@ public class L1ConfigurationBuilder extends AbstractClusteringConfigurationChild
    private long lifespan = TimeUnit.MINUTES.toMillis(10);
    private Boolean onRehash = null;
    private long cleanupTaskFrequency = TimeUnit.MINUTES.toMillis(10);
+   private long invalidationBatchWindow = 0;
 
    L1ConfigurationBuilder(ClusteringConfigurationBuilder builder) {
       super(builder);
@@ -96,6 +97,23 @@ public L1ConfigurationBuilder cleanupTaskFrequency(long frequencyMillis, TimeUni
       return cleanupTaskFrequency(unit.toMillis(frequencyMillis));
    }
 
+   /**
+    * How long unicast L1 invalidations are held back so that invalidations of several keys bound for the same node
+    * are sent as a single command. 0, the default, sends every invalidation right away.
+    */
+   public L1ConfigurationBuilder invalidationBatchWindow(long windowMillis) {
+      this.invalidationBatchWindow = windowMillis;
+      return this;
+   }
+
+   /**
+    * How long unicast L1 invalidations are held back so that invalidations of several keys bound for the same node
+    * are sent as a single command. 0, the default, sends every invalidation right away.
+    */
+   public L1ConfigurationBuilder invalidationBatchWindow(long window, TimeUnit unit) {
+      return invalidationBatchWindow(unit.toMillis(window));
+   }
+
    /**
     * Entries removed due to a rehash will be moved to L1 rather than being removed altogether.
     */
@@ -151,6 +169,9 @@ public void validate() {
          if (lifespan < 1)
             throw new ConfigurationException("Using a L1 lifespan of 0 or a negative value is meaningless");
 
+         if (invalidationBatchWindow < 0)
+            throw new ConfigurationException("Using a negative L1 invalidation batch window is meaningless");
+
       }
       else {
          // If L1 is disabled, L1ForRehash should also be disabled
@@ -171,7 +192,8 @@ public L1Configuration create() {
             finalOnRehash = true;
          }
       }
-      return new L1Configuration(enabled, invalidationThreshold, lifespan, finalOnRehash, cleanupTaskFrequency);
+      return new L1Configuration(enabled, invalidationThreshold, lifespan, finalOnRehash, cleanupTaskFrequency,
+            invalidationBatchWindow);
    }
 
    @Override
@@ -181,6 +203,7 @@ public L1ConfigurationBuilder read(L1Configuration template) {
       lifespan = template.lifespan();
       onRehash = template.onRehash();
       cleanupTaskFrequency = template.cleanupTaskFrequency();
+      invalidationBatchWindow = template.invalidationBatchWindow();
       return this;
    }
 
@@ -191,6 +214,7 @@ public String toString() {
             ", invalidationThreshold=" + invalidationThreshold +
             ", lifespan=" + lifespan +
             ", cleanupTaskFrequency=" + cleanupTaskFrequency +
+            ", invalidationBatchWindow=" + invalidationBatchWindow +
             ", onRehash=" + onRehash +
             '}';
    }
@@ -40,6 +40,7 @@
 import org.infinispan.loaders.LockSupportCacheStoreConfig;
 import org.infinispan.loaders.cluster.ClusterCacheLoaderConfig;
 import org.infinispan.loaders.file.FileCacheStoreConfig;
+import org.infinispan.loaders.file.LogFileCacheStoreConfig;
 import org.infinispan.remoting.ReplicationQueue;
 import org.infinispan.transaction.lookup.TransactionManagerLookup;
 import org.infinispan.util.Util;
@@ -508,6 +509,23 @@ public static void adapt(ClassLoader cl, ConfigurationBuilder builder, CacheLoad
          fcsBuilder.fsyncMode(FileCacheStoreConfigurationBuilder.FsyncMode.valueOf(csc.getFsyncMode().name()));
          fcsBuilder.streamBufferSize(csc.getStreamBufferSize());
          loaderBuilder = fcsBuilder;
+      } else if (clc instanceof LogFileCacheStoreConfig) {
+         LogFileCacheStoreConfig csc = (LogFileCacheStoreConfig) clc;
+         LogFileCacheStoreConfigurationBuilder lfcsBuilder = builder.loaders().addLogFileCacheStore();
+
+         lfcsBuilder.fetchPersistentState(csc.isFetchPersistentState());
+         lfcsBuilder.ignoreModifications(csc.isIgnoreModifications());
+         lfcsBuilder.purgeOnStartup(csc.isPurgeOnStartup());
+         lfcsBuilder.purgerThreads(csc.getPurgerThreads());
+         lfcsBuilder.purgeSynchronously(csc.isPurgeSynchronously());
+
+         lfcsBuilder.location(csc.getLocation());
+         lfcsBuilder.maxFileSize(csc.getMaxFileSize());
+         lfcsBuilder.compactionThreshold(csc.getCompactionThreshold());
+         lfcsBuilder.fsyncInterval(csc.getFsyncInterval());
+         lfcsBuilder.fsyncMode(FileCacheStoreConfigurationBuilder.FsyncMode.valueOf(csc.getFsyncMode().name()));
+         lfcsBuilder.memoryMappedReads(csc.isMemoryMappedReads());
+         loaderBuilder = lfcsBuilder;
       } else if (clc instanceof CacheStoreConfig) {
          LegacyStoreConfigurationBuilder tmpStoreBuilder = builder.loaders().addStore();
          tmpStoreBuilder.cacheStore(Util.<CacheStore>getInstance(clc.getCacheLoaderClassName(), cl));
@@ -202,6 +202,15 @@ public FileCacheStoreConfigurationBuilder addFileCacheStore() {
       return builder;
    }
 
+   /**
+    * Adds a log-structured file cache store
+    */
+   public LogFileCacheStoreConfigurationBuilder addLogFileCacheStore() {
+      LogFileCacheStoreConfigurationBuilder builder = new LogFileCacheStoreConfigurationBuilder(this);
+      this.cacheLoaders.add(builder);
+      return builder;
+   }
+
    /**
     * Removes any configured cache loaders and stores from this builder
     */
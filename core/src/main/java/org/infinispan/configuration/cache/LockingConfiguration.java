@@ -32,15 +32,17 @@ public class LockingConfiguration {
    private final IsolationLevel isolationLevel;
    private long lockAcquisitionTimeout;
    private final boolean useLockStriping;
+   private final boolean useLockTable;
    private final boolean writeSkewCheck;
    private boolean supportsConcurrentUpdates;
 
    LockingConfiguration(int concurrencyLevel, IsolationLevel isolationLevel, long lockAcquisitionTimeout,
-         boolean useLockStriping, boolean writeSkewCheck, boolean supportsConcurrentUpdates) {
+         boolean useLockStriping, boolean useLockTable, boolean writeSkewCheck, boolean supportsConcurrentUpdates) {
       this.concurrencyLevel = concurrencyLevel;
       this.isolationLevel = isolationLevel;
       this.lockAcquisitionTimeout = lockAcquisitionTimeout;
       this.useLockStriping = useLockStriping;
+      this.useLockTable = useLockTable;
       this.writeSkewCheck = writeSkewCheck;
       this.supportsConcurrentUpdates = supportsConcurrentUpdates;
    }
@@ -94,6 +96,16 @@ public boolean useLockStriping() {
       return useLockStriping;
    }
 
+   /**
+    * If true, entries are locked in a shared table of lock slots, claimed per key and released as
+    * soon as the key is unlocked. Unlike lock striping two keys never share a lock, and unlike the
+    * default lock-per-entry containers, locking and unlocking an uncontended key does not allocate
+    * any objects. Takes precedence over {@link #useLockStriping()}.
+    */
+   public boolean useLockTable() {
+      return useLockTable;
+   }
+
    /**
     * This setting is only applicable in the case of REPEATABLE_READ. When write skew check is set
     * to false, if the writer at commit time discovers that the working entry and the underlying
@@ -111,6 +123,7 @@ public String toString() {
             ", isolationLevel=" + isolationLevel +
             ", lockAcquisitionTimeout=" + lockAcquisitionTimeout +
             ", useLockStriping=" + useLockStriping +
+            ", useLockTable=" + useLockTable +
             ", writeSkewCheck=" + writeSkewCheck +
             '}';
    }
@@ -125,6 +138,7 @@ public boolean equals(Object o) {
       if (concurrencyLevel != that.concurrencyLevel) return false;
       if (lockAcquisitionTimeout != that.lockAcquisitionTimeout) return false;
       if (useLockStriping != that.useLockStriping) return false;
+      if (useLockTable != that.useLockTable) return false;
       if (writeSkewCheck != that.writeSkewCheck) return false;
       if (isolationLevel != that.isolationLevel) return false;
 
@@ -137,6 +151,7 @@ public int hashCode() {
       result = 31 * result + (isolationLevel != null ? isolationLevel.hashCode() : 0);
       result = 31 * result + (int) (lockAcquisitionTimeout ^ (lockAcquisitionTimeout >>> 32));
       result = 31 * result + (useLockStriping ? 1 : 0);
+      result = 31 * result + (useLockTable ? 1 : 0);
       result = 31 * result + (writeSkewCheck ? 1 : 0);
       return result;
    }
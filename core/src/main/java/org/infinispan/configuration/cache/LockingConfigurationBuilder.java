@@ -37,6 +37,7 @@ public class LockingConfigurationBuilder extends AbstractConfigurationChildBuild
    IsolationLevel isolationLevel = IsolationLevel.READ_COMMITTED;
    private long lockAcquisitionTimeout = TimeUnit.SECONDS.toMillis(10);
    private boolean useLockStriping = false;
+   private boolean useLockTable = false;
    boolean writeSkewCheck = false;
    boolean supportsConcurrentUpdates = true;
 
@@ -98,6 +99,17 @@ public LockingConfigurationBuilder useLockStriping(boolean b) {
       return this;
    }
 
+   /**
+    * If true, entries are locked in a shared table of lock slots, claimed per key and released as
+    * soon as the key is unlocked. Unlike lock striping two keys never share a lock, and unlike the
+    * default lock-per-entry containers, locking and unlocking an uncontended key does not allocate
+    * any objects. Takes precedence over {@link #useLockStriping(boolean)}.
+    */
+   public LockingConfigurationBuilder useLockTable(boolean b) {
+      this.useLockTable = b;
+      return this;
+   }
+
    /**
     * This setting is only applicable in the case of REPEATABLE_READ. When write skew check is set
     * to false, if the writer at commit time discovers that the working entry and the underlying
@@ -137,7 +149,7 @@ && clustering().cacheMode() != CacheMode.LOCAL)
 
    @Override
    public LockingConfiguration create() {
-      return new LockingConfiguration(concurrencyLevel, isolationLevel, lockAcquisitionTimeout, useLockStriping, writeSkewCheck, supportsConcurrentUpdates);
+      return new LockingConfiguration(concurrencyLevel, isolationLevel, lockAcquisitionTimeout, useLockStriping, useLockTable, writeSkewCheck, supportsConcurrentUpdates);
    }
 
    @Override
@@ -146,6 +158,7 @@ public LockingConfigurationBuilder read(LockingConfiguration template) {
       isolationLevel = template.isolationLevel();
       lockAcquisitionTimeout = template.lockAcquisitionTimeout();
       useLockStriping = template.useLockStriping();
+      useLockTable = template.useLockTable();
       writeSkewCheck = template.writeSkewCheck();
       supportsConcurrentUpdates = template.supportsConcurrentUpdates();
 
@@ -159,6 +172,7 @@ public String toString() {
             ", isolationLevel=" + isolationLevel +
             ", lockAcquisitionTimeout=" + lockAcquisitionTimeout +
             ", useLockStriping=" + useLockStriping +
+            ", useLockTable=" + useLockTable +
             ", writeSkewCheck=" + writeSkewCheck +
             ", supportsConcurrentUpdates=" + supportsConcurrentUpdates +
             '}';
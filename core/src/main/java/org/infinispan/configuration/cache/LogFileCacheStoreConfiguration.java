@@ -0,0 +1,154 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.infinispan.configuration.cache;
+
+import org.infinispan.config.parsing.XmlConfigHelper;
+import org.infinispan.configuration.BuiltBy;
+import org.infinispan.configuration.cache.FileCacheStoreConfigurationBuilder.FsyncMode;
+import org.infinispan.loaders.file.FileCacheStoreConfig;
+import org.infinispan.loaders.file.LogFileCacheStoreConfig;
+import org.infinispan.util.TypedProperties;
+
+/**
+ * Log file cache store configuration.
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+@BuiltBy(LogFileCacheStoreConfigurationBuilder.class)
+public class LogFileCacheStoreConfiguration extends AbstractStoreConfiguration implements LegacyLoaderAdapter<LogFileCacheStoreConfig> {
+
+   private final String location;
+   private final long maxFileSize;
+   private final double compactionThreshold;
+   private final long fsyncInterval;
+   private final FsyncMode fsyncMode;
+   private final boolean memoryMappedReads;
+
+   LogFileCacheStoreConfiguration(String location, long maxFileSize, double compactionThreshold,
+         long fsyncInterval, FsyncMode fsyncMode, boolean memoryMappedReads, boolean purgeOnStartup,
+         boolean purgeSynchronously,
+         int purgerThreads, boolean fetchPersistentState, boolean ignoreModifications,
+         TypedProperties properties, AsyncStoreConfiguration async,
+         SingletonStoreConfiguration singletonStore) {
+      super(purgeOnStartup, purgeSynchronously, purgerThreads, fetchPersistentState,
+            ignoreModifications, properties, async, singletonStore);
+      this.location = location;
+      this.maxFileSize = maxFileSize;
+      this.compactionThreshold = compactionThreshold;
+      this.fsyncInterval = fsyncInterval;
+      this.fsyncMode = fsyncMode;
+      this.memoryMappedReads = memoryMappedReads;
+   }
+
+   public String location() {
+      return location;
+   }
+
+   public long maxFileSize() {
+      return maxFileSize;
+   }
+
+   public double compactionThreshold() {
+      return compactionThreshold;
+   }
+
+   public long fsyncInterval() {
+      return fsyncInterval;
+   }
+
+   public FsyncMode fsyncMode() {
+      return fsyncMode;
+   }
+
+   public boolean memoryMappedReads() {
+      return memoryMappedReads;
+   }
+
+   @Override
+   public String toString() {
+      return "LogFileCacheStoreConfiguration{" +
+            "location='" + location + '\'' +
+            ", maxFileSize=" + maxFileSize +
+            ", compactionThreshold=" + compactionThreshold +
+            ", fsyncInterval=" + fsyncInterval +
+            ", fsyncMode=" + fsyncMode +
+            ", memoryMappedReads=" + memoryMappedReads +
+            ", purgeOnStartup=" + purgeOnStartup() +
+            ", purgeSynchronously=" + purgeSynchronously() +
+            ", purgerThreads=" + purgerThreads() +
+            ", fetchPersistentState=" + fetchPersistentState() +
+            ", ignoreModifications=" + ignoreModifications() +
+            ", properties=" + properties() +
+            ", async=" + async() +
+            ", singletonStore=" + singletonStore() +
+            '}';
+   }
+
+   @Override
+   public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+      if (!super.equals(o)) return false;
+
+      LogFileCacheStoreConfiguration that = (LogFileCacheStoreConfiguration) o;
+
+      if (maxFileSize != that.maxFileSize) return false;
+      if (Double.compare(that.compactionThreshold, compactionThreshold) != 0) return false;
+      if (fsyncInterval != that.fsyncInterval) return false;
+      if (fsyncMode != that.fsyncMode) return false;
+      if (memoryMappedReads != that.memoryMappedReads) return false;
+      if (location != null ? !location.equals(that.location) : that.location != null)
+         return false;
+
+      return true;
+   }
+
+   @Override
+   public int hashCode() {
+      int result = super.hashCode();
+      long temp = Double.doubleToLongBits(compactionThreshold);
+      result = 31 * result + (location != null ? location.hashCode() : 0);
+      result = 31 * result + (int) (maxFileSize ^ (maxFileSize >>> 32));
+      result = 31 * result + (int) (temp ^ (temp >>> 32));
+      result = 31 * result + (int) (fsyncInterval ^ (fsyncInterval >>> 32));
+      result = 31 * result + (fsyncMode != null ? fsyncMode.hashCode() : 0);
+      result = 31 * result + (memoryMappedReads ? 1 : 0);
+      return result;
+   }
+
+   @Override
+   public LogFileCacheStoreConfig adapt() {
+      LogFileCacheStoreConfig config = new LogFileCacheStoreConfig();
+
+      LegacyConfigurationAdaptor.adapt(this, config);
+
+      config.location(location);
+      config.maxFileSize(maxFileSize);
+      config.compactionThreshold(compactionThreshold);
+      config.fsyncInterval(fsyncInterval);
+      config.fsyncMode(FileCacheStoreConfig.FsyncMode.valueOf(fsyncMode.name()));
+      config.memoryMappedReads(memoryMappedReads);
+
+      XmlConfigHelper.setValues(config, properties(), false, true);
+
+      return config;
+   }
+
+}
@@ -0,0 +1,165 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.infinispan.configuration.cache;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.infinispan.config.ConfigurationException;
+import org.infinispan.config.parsing.XmlConfigHelper;
+import org.infinispan.configuration.cache.FileCacheStoreConfigurationBuilder.FsyncMode;
+import org.infinispan.util.TypedProperties;
+
+/**
+ * Configures a {@link org.infinispan.loaders.file.LogFileCacheStore}
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+public class LogFileCacheStoreConfigurationBuilder extends AbstractStoreConfigurationBuilder<LogFileCacheStoreConfiguration, LogFileCacheStoreConfigurationBuilder> {
+
+   private String location = "Infinispan-LogFileCacheStore";
+   private long maxFileSize = 16 * 1024 * 1024;
+   private double compactionThreshold = 0.5;
+   private long fsyncInterval = TimeUnit.SECONDS.toMillis(1);
+   private FsyncMode fsyncMode = FsyncMode.DEFAULT;
+   private boolean memoryMappedReads = false;
+
+   public LogFileCacheStoreConfigurationBuilder(LoadersConfigurationBuilder builder) {
+      super(builder);
+   }
+
+   @Override
+   public LogFileCacheStoreConfigurationBuilder self() {
+      return this;
+   }
+
+   /**
+    * A location on disk where the store writes its log files. Defaults to "Infinispan-LogFileCacheStore"
+    */
+   public LogFileCacheStoreConfigurationBuilder location(String location) {
+      this.location = location;
+      return this;
+   }
+
+   /**
+    * The size, in bytes, after which the store starts a new log file. Defaults to 16 MB
+    */
+   public LogFileCacheStoreConfigurationBuilder maxFileSize(long maxFileSize) {
+      this.maxFileSize = maxFileSize;
+      return this;
+   }
+
+   /**
+    * The fraction of a log file taken by stale records above which the file is compacted. Defaults to 0.5
+    */
+   public LogFileCacheStoreConfigurationBuilder compactionThreshold(double compactionThreshold) {
+      this.compactionThreshold = compactionThreshold;
+      return this;
+   }
+
+   public LogFileCacheStoreConfigurationBuilder fsyncInterval(long fsyncInterval) {
+      this.fsyncInterval = fsyncInterval;
+      return this;
+   }
+
+   public LogFileCacheStoreConfigurationBuilder fsyncInterval(long fsyncInterval, TimeUnit unit) {
+      return fsyncInterval(unit.toMillis(fsyncInterval));
+   }
+
+   public LogFileCacheStoreConfigurationBuilder fsyncMode(FsyncMode fsyncMode) {
+      this.fsyncMode = fsyncMode;
+      return this;
+   }
+
+   /**
+    * Whether log files that are no longer appended to are memory-mapped and entries are loaded straight out of the
+    * mapped regions. Defaults to false
+    */
+   public LogFileCacheStoreConfigurationBuilder memoryMappedReads(boolean memoryMappedReads) {
+      this.memoryMappedReads = memoryMappedReads;
+      return this;
+   }
+
+   @Override
+   public LogFileCacheStoreConfigurationBuilder withProperties(Properties p) {
+      this.properties = p;
+      // TODO: Remove this and any sign of properties when switching to new cache store configs
+      XmlConfigHelper.setValues(this, properties, false, true);
+      return this;
+   }
+
+   @Override
+   public void validate() {
+      if (maxFileSize <= 0)
+         throw new ConfigurationException("The maximum log file size must be positive");
+      if (compactionThreshold <= 0 || compactionThreshold > 1)
+         throw new ConfigurationException("The compaction threshold must be greater than 0 and at most 1");
+   }
+
+   @Override
+   public LogFileCacheStoreConfiguration create() {
+      return new LogFileCacheStoreConfiguration(location, maxFileSize, compactionThreshold, fsyncInterval, fsyncMode,
+            memoryMappedReads, purgeOnStartup, purgeSynchronously, purgerThreads, fetchPersistentState, ignoreModifications,
+            TypedProperties.toTypedProperties(properties), async.create(), singletonStore.create());
+   }
+
+   @Override
+   public LogFileCacheStoreConfigurationBuilder read(LogFileCacheStoreConfiguration template) {
+      // LogFileCacheStore-specific configuration
+      location = template.location();
+      maxFileSize = template.maxFileSize();
+      compactionThreshold = template.compactionThreshold();
+      fsyncInterval = template.fsyncInterval();
+      fsyncMode = template.fsyncMode();
+      memoryMappedReads = template.memoryMappedReads();
+
+      // AbstractStore-specific configuration
+      fetchPersistentState = template.fetchPersistentState();
+      ignoreModifications = template.ignoreModifications();
+      properties = template.properties();
+      purgeOnStartup = template.purgeOnStartup();
+      purgeSynchronously = template.purgeSynchronously();
+      purgerThreads = template.purgerThreads();
+      async.read(template.async());
+      singletonStore.read(template.singletonStore());
+
+      return this;
+   }
+
+   @Override
+   public String toString() {
+      return "LogFileCacheStoreConfigurationBuilder{" +
+            "fetchPersistentState=" + fetchPersistentState +
+            ", location='" + location + '\'' +
+            ", maxFileSize=" + maxFileSize +
+            ", compactionThreshold=" + compactionThreshold +
+            ", fsyncInterval=" + fsyncInterval +
+            ", fsyncMode=" + fsyncMode +
+            ", memoryMappedReads=" + memoryMappedReads +
+            ", ignoreModifications=" + ignoreModifications +
+            ", purgeOnStartup=" + purgeOnStartup +
+            ", purgerThreads=" + purgerThreads +
+            ", purgeSynchronously=" + purgeSynchronously +
+            ", properties=" + properties +
+            ", async=" + async +
+            ", singletonStore=" + singletonStore +
+            '}';
+   }
+}
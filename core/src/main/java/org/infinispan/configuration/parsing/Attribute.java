@@ -65,6 +65,7 @@ public enum Attribute {
     INDEX("index"),
     INDEX_LOCAL_ONLY("indexLocalOnly"),
     INITIAL_RETRY_WAIT_TIME("initialRetryWaitTime"),
+    INVALIDATION_BATCH_WINDOW("invalidationBatchWindow"),
     INVALIDATION_THRESHOLD("invalidationThreshold"),
     ISOLATION_LEVEL("isolationLevel"),
     JMX_DOMAIN("jmxDomain"),
@@ -78,6 +79,7 @@ public enum Attribute {
     MARSHALLER_CLASS("marshallerClass"),
     MAX_ENTRIES("maxEntries"),
     MAX_IDLE("maxIdle"),
+    MAX_MEMORY("maxMemory"),
     MAX_NON_PROGRESSING_LOG_WRITES("maxProgressingLogWrites"),
     MBEAN_SERVER_LOOKUP("mBeanServerLookup"),
     MODE("mode"),
@@ -88,6 +90,7 @@ public enum Attribute {
     NUM_SEGMENTS("numSegments"),
     NUM_RETRIES("numRetries"),
     NUM_VIRTUAL_NODES("numVirtualNodes"),
+    OFF_HEAP("offHeap"),
     ON_REHASH("onRehash"),
     PASSIVATION("passivation"),
     POSITION("position"),
@@ -106,12 +109,15 @@ public enum Attribute {
     REMOTE_CALL_TIMEOUT("remoteCallTimeout"),
     REPL_QUEUE_INTERVAL("replQueueInterval"),
     REPL_QUEUE_CLASS("replQueueClass"),
+    REPL_QUEUE_MAX_BYTES("replQueueMaxBytes"),
     REPL_QUEUE_MAX_ELEMENTS("replQueueMaxElements"),
     REPL_TIMEOUT("replTimeout"),
     RETRY_WAIT_TIME_INCREASE_FACTOR("retryWaitTimeIncreaseFactor"),
+    SEGMENTED("segmented"),
     SHARED("shared"),
     SHUTDOWN_TIMEOUT("shutdownTimeout"),
     SITE_ID("siteId"),
+    SIZE_CALCULATOR("sizeCalculator"),
     SPIN_DURATION("spinDuration"),
     STORE_KEYS_AS_BINARY("storeKeysAsBinary"),
     STORE_VALUES_AS_BINARY("storeValuesAsBinary"),
@@ -130,6 +136,7 @@ public enum Attribute {
     UNRELIABLE_RETURN_VALUES("unreliableReturnValues"),
     USE_EAGER_LOCKING("useEagerLocking"),
     USE_LOCK_STRIPING("useLockStriping"),
+    USE_LOCK_TABLE("useLockTable"),
     SUPPORTS_CONCURRENT_UPDATES("supportsConcurrentUpdates"),
     USE_REPL_QUEUE("useReplQueue"),
     USE_SYNCHRONIZAION("useSynchronization"),
@@ -30,6 +30,7 @@
 import org.infinispan.container.DataContainer;
 import org.infinispan.distribution.ch.ConsistentHashFactory;
 import org.infinispan.distribution.group.Grouper;
+import org.infinispan.eviction.EntrySizeCalculator;
 import org.infinispan.eviction.EvictionStrategy;
 import org.infinispan.eviction.EvictionThreadPolicy;
 import org.infinispan.executors.ExecutorFactory;
@@ -534,6 +535,9 @@ private void parseLocking(final XMLExtendedStreamReader reader, final Configurat
             case USE_LOCK_STRIPING:
                builder.locking().useLockStriping(Boolean.parseBoolean(value));
                break;
+            case USE_LOCK_TABLE:
+               builder.locking().useLockTable(Boolean.parseBoolean(value));
+               break;
             case WRITE_SKEW_CHECK:
                builder.locking().writeSkewCheck(Boolean.parseBoolean(value));
                break;
@@ -1072,6 +1076,12 @@ private void parseEviction(final XMLExtendedStreamReader reader, final Configura
             case MAX_ENTRIES:
                builder.eviction().maxEntries(Integer.parseInt(value));
                break;
+            case MAX_MEMORY:
+               builder.eviction().maxMemory(Long.parseLong(value));
+               break;
+            case SIZE_CALCULATOR:
+               builder.eviction().sizeCalculator(Util.<EntrySizeCalculator<Object, Object>>getInstance(value, holder.getClassLoader()));
+               break;
             case STRATEGY:
                builder.eviction().strategy(EvictionStrategy.valueOf(value));
                break;
@@ -1123,6 +1133,12 @@ private void parseDataContainer(final XMLExtendedStreamReader reader, final Conf
             case CLASS:
                builder.dataContainer().dataContainer(Util.<DataContainer>getInstance(value, holder.getClassLoader()));
                break;
+            case SEGMENTED:
+               builder.dataContainer().segmented(Boolean.parseBoolean(value));
+               break;
+            case OFF_HEAP:
+               builder.dataContainer().offHeap(Boolean.parseBoolean(value));
+               break;
             default:
                throw ParseUtils.unexpectedAttribute(reader, i);
          }
@@ -1363,6 +1379,9 @@ private void parseL1reader(final XMLExtendedStreamReader reader, final Configura
             case INVALIDATION_CLEANUP_TASK_FREQUENCY:
                builder.clustering().l1().cleanupTaskFrequency(Long.parseLong(value));
                break;
+            case INVALIDATION_BATCH_WINDOW:
+               builder.clustering().l1().invalidationBatchWindow(Long.parseLong(value));
+               break;
             case ON_REHASH:
                if (Boolean.parseBoolean(value)) {
                   builder.clustering().l1().enableOnRehash();
@@ -1473,6 +1492,9 @@ private void parseAsync(final XMLExtendedStreamReader reader, final Configuratio
             case REPL_QUEUE_INTERVAL:
                builder.clustering().async().replQueueInterval(Long.parseLong(value));
                break;
+            case REPL_QUEUE_MAX_BYTES:
+               builder.clustering().async().replQueueMaxBytes(Long.parseLong(value));
+               break;
             case REPL_QUEUE_MAX_ELEMENTS:
                builder.clustering().async().replQueueMaxElements(Integer.parseInt(value));
                break;
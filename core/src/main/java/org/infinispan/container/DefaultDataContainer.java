@@ -27,6 +27,7 @@
 import org.infinispan.container.entries.InternalCacheEntry;
 import org.infinispan.container.versioning.EntryVersion;
 import org.infinispan.eviction.ActivationManager;
+import org.infinispan.eviction.EntrySizeCalculator;
 import org.infinispan.eviction.EvictionManager;
 import org.infinispan.eviction.EvictionStrategy;
 import org.infinispan.eviction.EvictionThreadPolicy;
@@ -67,6 +68,7 @@ public class DefaultDataContainer implements DataContainer {
    final protected ConcurrentMap<Object, InternalCacheEntry> entries;
    protected InternalEntryFactory entryFactory;
    final protected DefaultEvictionListener evictionListener;
+   final protected ExpirationWheel expirationWheel = new ExpirationWheel();
    private EvictionManager evictionManager;
    private PassivationManager passivator;
    private ActivationManager activator;
@@ -79,30 +81,42 @@ public DefaultDataContainer(int concurrencyLevel) {
    }
 
    protected DefaultDataContainer(int concurrencyLevel, int maxEntries, EvictionStrategy strategy, EvictionThreadPolicy policy) {
+      evictionListener = createEvictionListener(policy);
+      entries = new BoundedConcurrentHashMap<Object, InternalCacheEntry>(maxEntries, concurrencyLevel,
+            translateStrategy(strategy), evictionListener);
+   }
+
+   protected DefaultDataContainer(int concurrencyLevel, long maxMemory, EvictionStrategy strategy, EvictionThreadPolicy policy,
+                                  EntrySizeCalculator<Object, Object> sizeCalculator) {
+      evictionListener = createEvictionListener(policy);
+      entries = new BoundedConcurrentHashMap<Object, InternalCacheEntry>(maxMemory, concurrencyLevel,
+            translateStrategy(strategy), evictionListener, new InternalCacheEntrySizeCalculator(sizeCalculator));
+   }
+
+   private DefaultEvictionListener createEvictionListener(EvictionThreadPolicy policy) {
       // translate eviction policy and strategy
       switch (policy) {
          case PIGGYBACK:
          case DEFAULT:
-            evictionListener = new DefaultEvictionListener();
-            break;
+            return new DefaultEvictionListener();
          default:
-            throw new IllegalArgumentException("No such eviction thread policy " + strategy);
+            throw new IllegalArgumentException("No such eviction thread policy " + policy);
       }
+   }
 
-      Eviction eviction;
+   private static Eviction translateStrategy(EvictionStrategy strategy) {
       switch (strategy) {
          case FIFO:
          case UNORDERED:
          case LRU:
-            eviction = Eviction.LRU;
-            break;
+            return Eviction.LRU;
          case LIRS:
-            eviction = Eviction.LIRS;
-            break;
+            return Eviction.LIRS;
+         case TINY_LFU:
+            return Eviction.TINY_LFU;
          default:
             throw new IllegalArgumentException("No such eviction strategy " + strategy);
       }
-      entries = new BoundedConcurrentHashMap<Object, InternalCacheEntry>(maxEntries, concurrencyLevel, eviction, evictionListener);
    }
 
    @Inject
@@ -120,6 +134,11 @@ public static DataContainer boundedDataContainer(int concurrencyLevel, int maxEn
       return new DefaultDataContainer(concurrencyLevel, maxEntries, strategy, policy);
    }
 
+   public static DataContainer boundedDataContainer(int concurrencyLevel, long maxMemory,
+            EvictionStrategy strategy, EvictionThreadPolicy policy, EntrySizeCalculator<Object, Object> sizeCalculator) {
+      return new DefaultDataContainer(concurrencyLevel, maxMemory, strategy, policy, sizeCalculator);
+   }
+
    public static DataContainer unBoundedDataContainer(int concurrencyLevel) {
       return new DefaultDataContainer(concurrencyLevel);
    }
@@ -136,6 +155,7 @@ public InternalCacheEntry get(Object k) {
          long currentTimeMillis = System.currentTimeMillis();
          if (e.isExpired(currentTimeMillis)) {
             entries.remove(k);
+            expirationWheel.cancel(k, e);
             e = null;
          } else {
             e.touch(currentTimeMillis);
@@ -146,10 +166,10 @@ public InternalCacheEntry get(Object k) {
 
    @Override
    public void put(Object k, Object v, EntryVersion version, long lifespan, long maxIdle) {
-      InternalCacheEntry e = entries.get(k);
+      InternalCacheEntry original = entries.get(k);
+      InternalCacheEntry e = original;
       if (e != null) {
          e.setValue(v);
-         InternalCacheEntry original = e;
          e.setVersion(version);
          e = entryFactory.update(e, lifespan, maxIdle);
          // we have the same instance. So we need to reincarnate.
@@ -161,6 +181,11 @@ public void put(Object k, Object v, EntryVersion version, long lifespan, long ma
          e = entryFactory.create(k, v, version, lifespan, maxIdle);
       }
       entries.put(k, e);
+      if (e.canExpire()) {
+         expirationWheel.register(k, e, System.currentTimeMillis());
+      } else if (original != null && original != e) {
+         expirationWheel.cancel(k, original);
+      }
    }
 
    @Override
@@ -168,6 +193,7 @@ public boolean containsKey(Object k) {
       InternalCacheEntry ice = peek(k);
       if (ice != null && ice.canExpire() && ice.isExpired(System.currentTimeMillis())) {
          entries.remove(k);
+         expirationWheel.cancel(k, ice);
          ice = null;
       }
       return ice != null;
@@ -176,6 +202,9 @@ public boolean containsKey(Object k) {
    @Override
    public InternalCacheEntry remove(Object k) {
       InternalCacheEntry e = entries.remove(k);
+      if (e != null && e.canExpire()) {
+         expirationWheel.cancel(k, e);
+      }
       return e == null || (e.canExpire() && e.isExpired(System.currentTimeMillis())) ? null : e;
    }
 
@@ -187,6 +216,7 @@ public int size() {
    @Override
    public void clear() {
       entries.clear();
+      expirationWheel.clear();
    }
 
    @Override
@@ -206,13 +236,7 @@ public Set<InternalCacheEntry> entrySet() {
 
    @Override
    public void purgeExpired() {
-      long currentTimeMillis = System.currentTimeMillis();
-      for (Iterator<InternalCacheEntry> purgeCandidates = entries.values().iterator(); purgeCandidates.hasNext();) {
-         InternalCacheEntry e = purgeCandidates.next();
-         if (e.isExpired(currentTimeMillis)) {
-            purgeCandidates.remove();
-         }
-      }
+      expirationWheel.purge(System.currentTimeMillis(), this);
    }
 
    @Override
@@ -224,6 +248,11 @@ private final class DefaultEvictionListener implements EvictionListener<Object,
 
       @Override
       public void onEntryEviction(Map<Object, InternalCacheEntry> evicted) {
+         for (Map.Entry<Object, InternalCacheEntry> entry : evicted.entrySet()) {
+            if (entry.getValue().canExpire()) {
+               expirationWheel.cancel(entry.getKey(), entry.getValue());
+            }
+         }
          evictionManager.onEntryEviction(evicted);
       }
 
@@ -249,6 +278,29 @@ public void onEntryRemoved(Object key) {
       }
    }
 
+   /**
+    * Sizes the entries of the map with the configured calculator, which knows nothing about the internal cache entries
+    * wrapping the values.
+    */
+   private static final class InternalCacheEntrySizeCalculator implements EntrySizeCalculator<Object, InternalCacheEntry> {
+
+      /**
+       * Estimated size of an internal cache entry and of the map entry holding it, excluding the key and the value.
+       */
+      static final int ENTRY_OVERHEAD = 96;
+
+      private final EntrySizeCalculator<Object, Object> sizeCalculator;
+
+      InternalCacheEntrySizeCalculator(EntrySizeCalculator<Object, Object> sizeCalculator) {
+         this.sizeCalculator = sizeCalculator;
+      }
+
+      @Override
+      public long getEntrySize(Object key, InternalCacheEntry entry) {
+         return ENTRY_OVERHEAD + sizeCalculator.getEntrySize(key, entry.getValue());
+      }
+   }
+
    private static class ImmutableEntryIterator extends EntryIterator {
       ImmutableEntryIterator(Iterator<InternalCacheEntry> it){
          super(it);
@@ -0,0 +1,212 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+
+package org.infinispan.container;
+
+import net.jcip.annotations.ThreadSafe;
+import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.util.concurrent.ConcurrentHashSet;
+import org.infinispan.util.concurrent.ConcurrentMapFactory;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Keeps track of the keys of the entries which can expire, so that purging expired entries only needs to visit
+ * entries which are actually due rather than the whole data container.
+ * <p/>
+ * Keys are kept in buckets ordered by deadline. The further away an expiry time is, the coarser the bucket it is
+ * placed in: the width of a bucket is at most a 64th of the time left until the entry expires. A bucket is due no
+ * later than the entries it holds, and when it is purged the entries which have not expired yet are placed in finer
+ * buckets again, much like a hierarchical timing wheel cascades its timers. An entry is moved a handful of times at
+ * most, whatever its lifespan, and the number of buckets stays small however many entries there are.
+ * <p/>
+ * Entries are not rescheduled when they are accessed: the expiry time of transient entries is checked again when
+ * their bucket is due. Each key is scheduled at most once; registering the same entry again with a later expiry time
+ * is a no-op.
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+@ThreadSafe
+public class ExpirationWheel {
+
+   /**
+    * Number of buckets an entry can be placed in between now and its expiry time.
+    */
+   static final int BUCKETS_PER_LEVEL = 64;
+
+   private final ConcurrentSkipListMap<Long, Set<Deadline>> buckets = new ConcurrentSkipListMap<Long, Set<Deadline>>();
+
+   private final ConcurrentMap<Object, Deadline> deadlines = ConcurrentMapFactory.makeConcurrentMap();
+
+   /**
+    * Schedules an entry for expiration.
+    *
+    * @param key the key of the entry
+    * @param entry an entry which can expire
+    * @param now the current time
+    */
+   public void register(Object key, InternalCacheEntry entry, long now) {
+      // entries expire once their expiry time has passed
+      Deadline deadline = new Deadline(key, entry, deadline(entry.getExpiryTime() + 1, now));
+      while (true) {
+         Deadline previous = deadlines.putIfAbsent(key, deadline);
+         if (previous == null) {
+            break;
+         }
+         if (previous.entry == entry && previous.time <= deadline.time) {
+            // checked earlier anyway, and rescheduled then if it hasn't expired yet
+            return;
+         }
+         if (deadlines.replace(key, previous, deadline)) {
+            dequeue(previous);
+            break;
+         }
+      }
+      enqueue(deadline);
+   }
+
+   /**
+    * Forgets about an entry which has been removed. Does nothing if the key has been registered again with another
+    * entry since.
+    */
+   public void cancel(Object key, InternalCacheEntry entry) {
+      Deadline deadline = deadlines.get(key);
+      if (deadline != null && deadline.entry == entry && deadlines.remove(key, deadline)) {
+         dequeue(deadline);
+      }
+   }
+
+   public void clear() {
+      deadlines.clear();
+      buckets.clear();
+   }
+
+   /**
+    * Returns the number of entries scheduled for expiration.
+    */
+   public int size() {
+      return deadlines.size();
+   }
+
+   /**
+    * Returns the number of checks waiting in the buckets, including those which are not due yet.
+    */
+   int scheduled() {
+      int scheduled = 0;
+      for (Set<Deadline> bucket : buckets.values()) {
+         scheduled += bucket.size();
+      }
+      return scheduled;
+   }
+
+   /**
+    * Removes the entries which have expired from the data container, visiting only the buckets which are due.
+    *
+    * @param now the current time
+    * @param container the data container holding the entries
+    */
+   public void purge(long now, DataContainer container) {
+      Map.Entry<Long, Set<Deadline>> bucket;
+      while ((bucket = buckets.firstEntry()) != null && bucket.getKey() <= now) {
+         Set<Deadline> due = bucket.getValue();
+         if (!buckets.remove(bucket.getKey(), due)) {
+            continue;
+         }
+         for (Deadline deadline : due) {
+            if (!deadlines.remove(deadline.key, deadline)) {
+               // cancelled, or scheduled again
+               continue;
+            }
+            InternalCacheEntry entry = container.peek(deadline.key);
+            if (entry == null || !entry.canExpire()) {
+               continue;
+            }
+            if (entry.isExpired(now)) {
+               container.remove(deadline.key);
+            } else {
+               // accessed or updated since it was scheduled
+               register(deadline.key, entry, now);
+            }
+         }
+      }
+   }
+
+   /**
+    * Returns the bucket for an expiry time: the expiry time itself, rounded down to a resolution no coarser than a
+    * 64th of the time left. Always in the future, so that a purge never sees an entry it has just rescheduled.
+    */
+   static long deadline(long expiryTime, long now) {
+      long delay = expiryTime - now;
+      if (delay < BUCKETS_PER_LEVEL) {
+         return Math.max(expiryTime, now + 1);
+      }
+      long resolution = Long.highestOneBit(delay / BUCKETS_PER_LEVEL);
+      return expiryTime - expiryTime % resolution;
+   }
+
+   private void enqueue(Deadline deadline) {
+      Long time = deadline.time;
+      while (true) {
+         Set<Deadline> bucket = buckets.get(time);
+         if (bucket == null) {
+            Set<Deadline> newBucket = new ConcurrentHashSet<Deadline>();
+            bucket = buckets.putIfAbsent(time, newBucket);
+            if (bucket == null) {
+               bucket = newBucket;
+            }
+         }
+         bucket.add(deadline);
+         // a concurrent purge may have taken the bucket before the deadline was added
+         if (buckets.get(time) == bucket) {
+            return;
+         }
+      }
+   }
+
+   /**
+    * Drops a check which has been cancelled or superseded from its bucket, so that entries which are removed before
+    * they expire do not pile up in the buckets until these are due. An emptied bucket is left in place, as an
+    * entry may be enqueued in it concurrently; it is dropped when it is due.
+    */
+   private void dequeue(Deadline deadline) {
+      Set<Deadline> bucket = buckets.get(deadline.time);
+      if (bucket != null) {
+         bucket.remove(deadline);
+      }
+   }
+
+   /**
+    * A scheduled check of an entry. Compared by identity, so that a check only ever cancels or completes itself.
+    */
+   private static final class Deadline {
+      final Object key;
+      final InternalCacheEntry entry;
+      final long time;
+
+      Deadline(Object key, InternalCacheEntry entry, long time) {
+         this.key = key;
+         this.entry = entry;
+         this.time = time;
+      }
+   }
+}
@@ -0,0 +1,1099 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+
+package org.infinispan.container;
+
+import net.jcip.annotations.ThreadSafe;
+import org.infinispan.CacheException;
+import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.container.versioning.EntryVersion;
+import org.infinispan.eviction.ActivationManager;
+import org.infinispan.eviction.EvictionManager;
+import org.infinispan.eviction.EvictionStrategy;
+import org.infinispan.eviction.EvictionThreadPolicy;
+import org.infinispan.eviction.PassivationManager;
+import org.infinispan.factories.annotations.ComponentName;
+import org.infinispan.factories.annotations.Inject;
+import org.infinispan.marshall.StreamingMarshaller;
+import org.infinispan.util.Immutables;
+import org.infinispan.util.Util;
+import org.infinispan.util.logging.Log;
+import org.infinispan.util.logging.LogFactory;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.infinispan.factories.KnownComponentNames.CACHE_MARSHALLER;
+
+/**
+ * A {@link DataContainer} which keeps keys, values, versions and expiration metadata marshalled in direct (off-heap)
+ * memory. Only the {@link InternalCacheEntry} instances handed out to callers live on the heap, and only for as long as
+ * the callers hold on to them, so very large containers do not put any pressure on the garbage collector.
+ * <p/>
+ * Like {@link org.infinispan.util.concurrent.BoundedConcurrentHashMap}, the container is split into lock-protected
+ * segments. Each segment appends its records to direct memory slabs and finds them through a compact open-addressing
+ * index made of two primitive arrays (record addresses and key hashes). Removed or overwritten records leave dead
+ * space behind, which is reclaimed by releasing empty slabs and by compacting the segment when less than half of its
+ * memory is live.
+ * <p/>
+ * The container can be bounded in bytes. When a segment runs out of memory the oldest slab is recycled: its live
+ * records are evicted (passivated if needed), except that with the {@link EvictionStrategy#LRU},
+ * {@link EvictionStrategy#LIRS} and {@link EvictionStrategy#TINY_LFU} strategies records which have been read since
+ * they were written get a second chance and are copied forward, which approximates LRU order. {@link EvictionStrategy#FIFO} and
+ * {@link EvictionStrategy#UNORDERED} evict in insertion order.
+ * <p/>
+ * Keys are compared by their marshalled form first and by {@link Object#equals(Object)} only if that fails, so keys
+ * whose equal instances marshall differently are still found, albeit more slowly.
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+@ThreadSafe
+public class OffHeapDataContainer implements DataContainer {
+
+   private static final Log log = LogFactory.getLog(OffHeapDataContainer.class);
+
+   static final int DEFAULT_SLAB_SIZE = 1 << 20;
+   static final int MIN_SLAB_SIZE = 1 << 12;
+
+   // record layout: a fixed size header followed by the key, value and version bytes
+   private static final int HASH = 0;
+   private static final int FLAGS = 4;
+   private static final int KEY_LENGTH = 5;
+   private static final int VALUE_LENGTH = 9;
+   private static final int VERSION_LENGTH = 13;
+   private static final int CREATED = 17;
+   private static final int LAST_USED = 25;
+   private static final int LIFESPAN = 33;
+   private static final int MAX_IDLE = 41;
+   private static final int HEADER_SIZE = 49;
+
+   private static final byte LIVE = 1;
+   private static final byte ACCESSED = 2;
+
+   private final Segment[] segments;
+   private final int segmentShift;
+   private final int segmentMask;
+   private final long maxSegmentMemory;
+   private final int slabSize;
+   private final boolean secondChance;
+
+   private StreamingMarshaller marshaller;
+   protected InternalEntryFactory entryFactory;
+   private EvictionManager evictionManager;
+   private PassivationManager passivator;
+   private ActivationManager activator;
+
+   public OffHeapDataContainer(int concurrencyLevel) {
+      this(concurrencyLevel, -1, EvictionStrategy.NONE, EvictionThreadPolicy.DEFAULT);
+   }
+
+   public OffHeapDataContainer(int concurrencyLevel, long maxMemory, EvictionStrategy strategy, EvictionThreadPolicy policy) {
+      switch (policy) {
+         case PIGGYBACK:
+         case DEFAULT:
+            break;
+         default:
+            throw new IllegalArgumentException("No such eviction thread policy " + policy);
+      }
+
+      switch (strategy) {
+         case NONE:
+         case FIFO:
+         case UNORDERED:
+            secondChance = false;
+            break;
+         case LRU:
+         case LIRS:
+         case TINY_LFU:
+            secondChance = true;
+            break;
+         default:
+            throw new IllegalArgumentException("No such eviction strategy " + strategy);
+      }
+
+      // Find power-of-two sizes best matching arguments
+      int sshift = 0;
+      int ssize = 1;
+      while (ssize < concurrencyLevel) {
+         ++sshift;
+         ssize <<= 1;
+      }
+      segmentShift = 32 - sshift;
+      segmentMask = ssize - 1;
+
+      if (maxMemory > 0) {
+         maxSegmentMemory = Math.max(1, maxMemory / ssize);
+         // keep a handful of slabs per segment, so that recycling the oldest one only evicts a fraction of the segment
+         slabSize = (int) Math.max(MIN_SLAB_SIZE, Math.min(DEFAULT_SLAB_SIZE, maxSegmentMemory / 8));
+      } else {
+         maxSegmentMemory = -1;
+         slabSize = DEFAULT_SLAB_SIZE;
+      }
+
+      segments = new Segment[ssize];
+      for (int i = 0; i < segments.length; i++) {
+         segments[i] = new Segment();
+      }
+   }
+
+   @Inject
+   public void initialize(@ComponentName(CACHE_MARSHALLER) StreamingMarshaller marshaller, InternalEntryFactory entryFactory,
+                          EvictionManager evictionManager, PassivationManager passivator, ActivationManager activator) {
+      this.marshaller = marshaller;
+      this.entryFactory = entryFactory;
+      this.evictionManager = evictionManager;
+      this.passivator = passivator;
+      this.activator = activator;
+   }
+
+   private boolean isBounded() {
+      return maxSegmentMemory > 0;
+   }
+
+   private static int hash(int h) {
+      // Spread bits to regularize both segment and index locations,
+      // using variant of single-word Wang/Jenkins hash.
+      h += h <<  15 ^ 0xffffcd7d;
+      h ^= h >>> 10;
+      h += h <<   3;
+      h ^= h >>>  6;
+      h += (h <<   2) + (h << 14);
+      return h ^ h >>> 16;
+   }
+
+   private Segment segmentFor(int hash) {
+      return segments[hash >>> segmentShift & segmentMask];
+   }
+
+   private byte[] marshall(Object o) {
+      try {
+         return marshaller.objectToByteBuffer(o);
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new CacheException(e);
+      } catch (Exception e) {
+         throw new CacheException("Unable to marshall " + o + " for the off-heap data container", e);
+      }
+   }
+
+   private Object unmarshall(byte[] bytes) {
+      try {
+         return marshaller.objectFromByteBuffer(bytes);
+      } catch (Exception e) {
+         throw new CacheException("Unable to unmarshall an entry of the off-heap data container", e);
+      }
+   }
+
+   @Override
+   public InternalCacheEntry peek(Object k) {
+      byte[] keyBytes = marshall(k);
+      int hash = hash(k.hashCode());
+      Segment segment = segmentFor(hash);
+      OffHeapEntry entry;
+      segment.lock();
+      try {
+         int index = segment.indexOf(hash, k, keyBytes);
+         entry = index < 0 ? null : segment.read(segment.addresses[index], false);
+      } finally {
+         segment.unlock();
+      }
+      return entry == null ? null : entry.toInternalCacheEntry(k);
+   }
+
+   @Override
+   public InternalCacheEntry get(Object k) {
+      byte[] keyBytes = marshall(k);
+      int hash = hash(k.hashCode());
+      Segment segment = segmentFor(hash);
+      OffHeapEntry entry = null;
+      segment.lock();
+      try {
+         int index = segment.indexOf(hash, k, keyBytes);
+         if (index >= 0) {
+            long address = segment.addresses[index];
+            long currentTimeMillis = System.currentTimeMillis();
+            if (segment.isExpired(address, currentTimeMillis)) {
+               segment.removeAt(index);
+            } else {
+               segment.touch(address, currentTimeMillis);
+               entry = segment.read(address, false);
+            }
+         }
+      } finally {
+         segment.unlock();
+      }
+      return entry == null ? null : entry.toInternalCacheEntry(k);
+   }
+
+   @Override
+   public void put(Object k, Object v, EntryVersion version, long lifespan, long maxIdle) {
+      byte[] keyBytes = marshall(k);
+      byte[] valueBytes = marshall(v);
+      byte[] versionBytes = version == null ? null : marshall(version);
+      int hash = hash(k.hashCode());
+      Segment segment = segmentFor(hash);
+      List<OffHeapEntry> evicted = null;
+      boolean created;
+      segment.lock();
+      try {
+         long now = System.currentTimeMillis();
+         if (isBounded()) {
+            evicted = new ArrayList<OffHeapEntry>(0);
+         }
+         // write the record first: making room for it may evict the previous value of the key
+         long address = segment.append(hash, k, keyBytes, valueBytes, versionBytes, now, now, lifespan, maxIdle, evicted);
+         int index = segment.indexOf(hash, k, keyBytes);
+         if (index >= 0) {
+            long previous = segment.addresses[index];
+            segment.addresses[index] = address;
+            segment.release(previous);
+            created = false;
+         } else {
+            segment.insert(hash, address);
+            // the previous value of the key may just have been evicted to make room, which makes this an update
+            created = !removeKey(evicted, hash, k, keyBytes);
+         }
+      } finally {
+         segment.unlock();
+      }
+      if (isBounded()) {
+         if (created) {
+            activator.activate(k);
+         }
+         passivateAndNotifyEviction(evicted);
+      }
+   }
+
+   private boolean removeKey(List<OffHeapEntry> evicted, int hash, Object k, byte[] keyBytes) {
+      if (evicted != null) {
+         for (Iterator<OffHeapEntry> it = evicted.iterator(); it.hasNext();) {
+            OffHeapEntry entry = it.next();
+            if (entry.hash == hash && (Arrays.equals(entry.key, keyBytes) || k.equals(unmarshall(entry.key)))) {
+               it.remove();
+               return true;
+            }
+         }
+      }
+      return false;
+   }
+
+   @Override
+   public boolean containsKey(Object k) {
+      byte[] keyBytes = marshall(k);
+      int hash = hash(k.hashCode());
+      Segment segment = segmentFor(hash);
+      segment.lock();
+      try {
+         int index = segment.indexOf(hash, k, keyBytes);
+         if (index >= 0 && segment.isExpired(segment.addresses[index], System.currentTimeMillis())) {
+            segment.removeAt(index);
+            index = -1;
+         }
+         return index >= 0;
+      } finally {
+         segment.unlock();
+      }
+   }
+
+   @Override
+   public InternalCacheEntry remove(Object k) {
+      byte[] keyBytes = marshall(k);
+      int hash = hash(k.hashCode());
+      Segment segment = segmentFor(hash);
+      OffHeapEntry entry = null;
+      segment.lock();
+      try {
+         int index = segment.indexOf(hash, k, keyBytes);
+         if (index >= 0) {
+            long address = segment.addresses[index];
+            if (!segment.isExpired(address, System.currentTimeMillis())) {
+               entry = segment.read(address, false);
+            }
+            segment.removeAt(index);
+         }
+      } finally {
+         segment.unlock();
+      }
+      return entry == null ? null : entry.toInternalCacheEntry(k);
+   }
+
+   @Override
+   public int size() {
+      int size = 0;
+      for (Segment segment : segments) {
+         size += segment.count;
+      }
+      return size;
+   }
+
+   @Override
+   public void clear() {
+      for (Segment segment : segments) {
+         segment.lock();
+         try {
+            segment.clear();
+         } finally {
+            segment.unlock();
+         }
+      }
+   }
+
+   @Override
+   public Set<Object> keySet() {
+      return new KeySet();
+   }
+
+   @Override
+   public Collection<Object> values() {
+      return new Values();
+   }
+
+   @Override
+   public Set<InternalCacheEntry> entrySet() {
+      return new EntrySet();
+   }
+
+   @Override
+   public void purgeExpired() {
+      long currentTimeMillis = System.currentTimeMillis();
+      for (Segment segment : segments) {
+         segment.lock();
+         try {
+            segment.purgeExpired(currentTimeMillis);
+         } finally {
+            segment.unlock();
+         }
+      }
+   }
+
+   @Override
+   public Iterator<InternalCacheEntry> iterator() {
+      return new EntryIterator();
+   }
+
+   /**
+    * @return the number of bytes of direct memory currently allocated by this container
+    */
+   public long getAllocatedMemory() {
+      long allocated = 0;
+      for (Segment segment : segments) {
+         allocated += segment.allocated;
+      }
+      return allocated;
+   }
+
+   private void passivateAndNotifyEviction(List<OffHeapEntry> evicted) {
+      if (evicted == null || evicted.isEmpty()) {
+         return;
+      }
+      Map<Object, InternalCacheEntry> evictedEntries = new HashMap<Object, InternalCacheEntry>(evicted.size());
+      for (OffHeapEntry entry : evicted) {
+         InternalCacheEntry ice = entry.toInternalCacheEntry();
+         if (passivator.isEnabled()) {
+            passivator.passivate(ice);
+         }
+         evictedEntries.put(ice.getKey(), ice);
+      }
+      evictionManager.onEntryEviction(Collections.unmodifiableMap(evictedEntries));
+   }
+
+   /**
+    * A region of direct memory that records are appended to.
+    */
+   private static final class Slab {
+      final int id;
+      final ByteBuffer buffer;
+      int position;
+      int live;
+
+      Slab(int id, int capacity) {
+         this.id = id;
+         this.buffer = ByteBuffer.allocateDirect(capacity);
+      }
+
+      int capacity() {
+         return buffer.capacity();
+      }
+
+      int remaining() {
+         return buffer.capacity() - position;
+      }
+   }
+
+   /**
+    * A record copied to the heap, which can be turned into an {@link InternalCacheEntry} outside of the segment lock.
+    */
+   private final class OffHeapEntry {
+      final int hash;
+      final byte[] key;
+      final byte[] value;
+      final byte[] version;
+      final long created;
+      final long lastUsed;
+      final long lifespan;
+      final long maxIdle;
+
+      OffHeapEntry(int hash, byte[] key, byte[] value, byte[] version, long created, long lastUsed, long lifespan,
+                   long maxIdle) {
+         this.hash = hash;
+         this.key = key;
+         this.value = value;
+         this.version = version;
+         this.created = created;
+         this.lastUsed = lastUsed;
+         this.lifespan = lifespan;
+         this.maxIdle = maxIdle;
+      }
+
+      InternalCacheEntry toInternalCacheEntry() {
+         return toInternalCacheEntry(unmarshall(key));
+      }
+
+      InternalCacheEntry toInternalCacheEntry(Object k) {
+         EntryVersion v = version == null ? null : (EntryVersion) unmarshall(version);
+         return entryFactory.create(k, unmarshall(value), v, created, lifespan, lastUsed, maxIdle);
+      }
+   }
+
+   /**
+    * Segments are specialized versions of hash tables, like the segments of
+    * {@link org.infinispan.util.concurrent.BoundedConcurrentHashMap}. All access happens with the lock held.
+    */
+   private final class Segment extends ReentrantLock {
+
+      /** The serialVersionUID */
+      private static final long serialVersionUID = 5823458720487720658L;
+
+      /**
+       * Open-addressing index: record addresses ((slab id + 1) << 32 | offset, 0 means empty) and the matching hashes.
+       */
+      long[] addresses = new long[16];
+      int[] hashes = new int[16];
+      volatile int count;
+
+      Slab[] slabs = new Slab[4];
+      final ArrayDeque<Slab> allocationOrder = new ArrayDeque<Slab>();
+      Slab current;
+      Slab spare;
+      long allocated;
+      long live;
+
+      // ------------------------------------------------------------------ index
+
+      int indexOf(int hash, Object key, byte[] keyBytes) {
+         int mask = addresses.length - 1;
+         for (int i = hash & mask; addresses[i] != 0; i = (i + 1) & mask) {
+            if (hashes[i] == hash && keyEquals(addresses[i], key, keyBytes)) {
+               return i;
+            }
+         }
+         return -1;
+      }
+
+      int indexOfAddress(int hash, long address) {
+         int mask = addresses.length - 1;
+         for (int i = hash & mask; addresses[i] != 0; i = (i + 1) & mask) {
+            if (addresses[i] == address) {
+               return i;
+            }
+         }
+         return -1;
+      }
+
+      boolean keyEquals(long address, Object key, byte[] keyBytes) {
+         ByteBuffer buffer = slabOf(address).buffer;
+         int offset = offsetOf(address);
+         int keyLength = buffer.getInt(offset + KEY_LENGTH);
+         if (keyLength == keyBytes.length) {
+            int keyOffset = offset + HEADER_SIZE;
+            boolean sameBytes = true;
+            for (int i = 0; i < keyLength; i++) {
+               if (buffer.get(keyOffset + i) != keyBytes[i]) {
+                  sameBytes = false;
+                  break;
+               }
+            }
+            if (sameBytes) {
+               return true;
+            }
+         }
+         // equal keys do not necessarily marshall to the same bytes
+         return key.equals(unmarshall(copy(buffer, offset + HEADER_SIZE, keyLength)));
+      }
+
+      void insert(int hash, long address) {
+         if (count + 1 > addresses.length >> 1) {
+            resize();
+         }
+         int mask = addresses.length - 1;
+         int i = hash & mask;
+         while (addresses[i] != 0) {
+            i = (i + 1) & mask;
+         }
+         addresses[i] = address;
+         hashes[i] = hash;
+         count++;
+      }
+
+      void resize() {
+         long[] oldAddresses = addresses;
+         int[] oldHashes = hashes;
+         addresses = new long[oldAddresses.length << 1];
+         hashes = new int[oldHashes.length << 1];
+         int mask = addresses.length - 1;
+         for (int j = 0; j < oldAddresses.length; j++) {
+            if (oldAddresses[j] != 0) {
+               int i = oldHashes[j] & mask;
+               while (addresses[i] != 0) {
+                  i = (i + 1) & mask;
+               }
+               addresses[i] = oldAddresses[j];
+               hashes[i] = oldHashes[j];
+            }
+         }
+      }
+
+      /**
+       * Removes the record at the given index position and releases its memory.
+       */
+      void removeAt(int index) {
+         long address = addresses[index];
+         unlinkAt(index);
+         release(address);
+      }
+
+      /**
+       * Removes an index position, shifting back the following positions of the probe sequence so that no tombstones
+       * are needed.
+       */
+      void unlinkAt(int index) {
+         int mask = addresses.length - 1;
+         int hole = index;
+         int i = index;
+         while (true) {
+            i = (i + 1) & mask;
+            if (addresses[i] == 0) {
+               break;
+            }
+            int home = hashes[i] & mask;
+            // leave the position alone if its home lies cyclically in (hole, i]
+            boolean stays = hole <= i ? hole < home && home <= i : hole < home || home <= i;
+            if (!stays) {
+               addresses[hole] = addresses[i];
+               hashes[hole] = hashes[i];
+               hole = i;
+            }
+         }
+         addresses[hole] = 0;
+         hashes[hole] = 0;
+         count--;
+      }
+
+      void clear() {
+         for (Slab slab : slabs) {
+            if (slab != null) {
+               Util.freeDirectBuffer(slab.buffer);
+            }
+         }
+         addresses = new long[16];
+         hashes = new int[16];
+         slabs = new Slab[4];
+         allocationOrder.clear();
+         current = null;
+         spare = null;
+         allocated = 0;
+         live = 0;
+         count = 0;
+      }
+
+      void purgeExpired(long currentTimeMillis) {
+         for (int i = 0; i < addresses.length;) {
+            if (addresses[i] != 0 && isExpired(addresses[i], currentTimeMillis)) {
+               // a following position may have been shifted into this one, so look at it again
+               removeAt(i);
+            } else {
+               i++;
+            }
+         }
+      }
+
+      // ---------------------------------------------------------------- records
+
+      Slab slabOf(long address) {
+         return slabs[(int) (address >>> 32) - 1];
+      }
+
+      int offsetOf(long address) {
+         return (int) address;
+      }
+
+      long addressOf(Slab slab, int offset) {
+         return ((long) (slab.id + 1) << 32) | (offset & 0xFFFFFFFFL);
+      }
+
+      int recordSize(ByteBuffer buffer, int offset) {
+         return HEADER_SIZE + buffer.getInt(offset + KEY_LENGTH) + buffer.getInt(offset + VALUE_LENGTH)
+               + buffer.getInt(offset + VERSION_LENGTH);
+      }
+
+      boolean isExpired(long address, long currentTimeMillis) {
+         ByteBuffer buffer = slabOf(address).buffer;
+         int offset = offsetOf(address);
+         long lifespan = buffer.getLong(offset + LIFESPAN);
+         if (lifespan > -1 && buffer.getLong(offset + CREATED) + lifespan < currentTimeMillis) {
+            return true;
+         }
+         long maxIdle = buffer.getLong(offset + MAX_IDLE);
+         return maxIdle > -1 && buffer.getLong(offset + LAST_USED) + maxIdle < currentTimeMillis;
+      }
+
+      void touch(long address, long currentTimeMillis) {
+         ByteBuffer buffer = slabOf(address).buffer;
+         int offset = offsetOf(address);
+         buffer.putLong(offset + LAST_USED, currentTimeMillis);
+         buffer.put(offset + FLAGS, (byte) (buffer.get(offset + FLAGS) | ACCESSED));
+      }
+
+      OffHeapEntry read(long address, boolean withKey) {
+         ByteBuffer buffer = slabOf(address).buffer;
+         int offset = offsetOf(address);
+         int keyLength = buffer.getInt(offset + KEY_LENGTH);
+         int valueLength = buffer.getInt(offset + VALUE_LENGTH);
+         int versionLength = buffer.getInt(offset + VERSION_LENGTH);
+         int keyOffset = offset + HEADER_SIZE;
+         byte[] key = withKey ? copy(buffer, keyOffset, keyLength) : null;
+         byte[] value = copy(buffer, keyOffset + keyLength, valueLength);
+         byte[] version = versionLength == 0 ? null : copy(buffer, keyOffset + keyLength + valueLength, versionLength);
+         return new OffHeapEntry(buffer.getInt(offset + HASH), key, value, version, buffer.getLong(offset + CREATED),
+                                 buffer.getLong(offset + LAST_USED), buffer.getLong(offset + LIFESPAN),
+                                 buffer.getLong(offset + MAX_IDLE));
+      }
+
+      byte[] copy(ByteBuffer buffer, int offset, int length) {
+         byte[] bytes = new byte[length];
+         ByteBuffer source = buffer.duplicate();
+         source.position(offset);
+         source.get(bytes);
+         return bytes;
+      }
+
+      /**
+       * Writes a new record and returns its address. The record is not yet part of the index.
+       */
+      long append(int hash, Object key, byte[] keyBytes, byte[] valueBytes, byte[] versionBytes, long created,
+                  long lastUsed, long lifespan, long maxIdle, List<OffHeapEntry> evicted) {
+         int versionLength = versionBytes == null ? 0 : versionBytes.length;
+         int size = HEADER_SIZE + keyBytes.length + valueBytes.length + versionLength;
+         if (isBounded() && size > maxSegmentMemory) {
+            log.offHeapEntryExceedsSegmentMemory(key, size, maxSegmentMemory);
+         }
+         Slab slab = reserve(size, evicted);
+         ByteBuffer buffer = slab.buffer;
+         int offset = slab.position;
+         buffer.putInt(offset + HASH, hash);
+         buffer.put(offset + FLAGS, LIVE);
+         buffer.putInt(offset + KEY_LENGTH, keyBytes.length);
+         buffer.putInt(offset + VALUE_LENGTH, valueBytes.length);
+         buffer.putInt(offset + VERSION_LENGTH, versionLength);
+         buffer.putLong(offset + CREATED, created);
+         buffer.putLong(offset + LAST_USED, lastUsed);
+         buffer.putLong(offset + LIFESPAN, lifespan);
+         buffer.putLong(offset + MAX_IDLE, maxIdle);
+         ByteBuffer target = buffer.duplicate();
+         target.position(offset + HEADER_SIZE);
+         target.put(keyBytes);
+         target.put(valueBytes);
+         if (versionBytes != null) {
+            target.put(versionBytes);
+         }
+         slab.position += size;
+         slab.live += size;
+         live += size;
+         return addressOf(slab, offset);
+      }
+
+      /**
+       * Copies an existing record into the current slab, clearing its access mark, and returns the new address.
+       */
+      long copyForward(ByteBuffer source, int offset, int size) {
+         Slab slab = reserve(size, null);
+         ByteBuffer target = slab.buffer.duplicate();
+         target.position(slab.position);
+         ByteBuffer record = source.duplicate();
+         record.position(offset);
+         record.limit(offset + size);
+         target.put(record);
+         slab.buffer.put(slab.position + FLAGS, LIVE);
+         int newOffset = slab.position;
+         slab.position += size;
+         slab.live += size;
+         live += size;
+         return addressOf(slab, newOffset);
+      }
+
+      /**
+       * Marks a record as dead and gives its memory back once the whole slab is unused.
+       */
+      void release(long address) {
+         Slab slab = slabOf(address);
+         int offset = offsetOf(address);
+         int size = recordSize(slab.buffer, offset);
+         slab.buffer.put(offset + FLAGS, (byte) 0);
+         slab.live -= size;
+         live -= size;
+         if (slab.live == 0 && slab != current) {
+            freeSlab(slab);
+         } else if (!isBounded() && allocated > 2L * slabSize && live < allocated >> 1) {
+            compact();
+         }
+      }
+
+      /**
+       * Returns a slab with at least {@code size} bytes remaining, allocating (and, for a bounded container, evicting)
+       * as needed.
+       */
+      Slab reserve(int size, List<OffHeapEntry> evicted) {
+         if (current != null && current.remaining() >= size) {
+            return current;
+         }
+         int capacity = Math.max(size, slabSize);
+         if (isBounded() && evicted != null) {
+            // recycle the oldest slabs until the new one fits; always make progress so a huge record still gets stored
+            // survivors of a second chance lose their access mark, so two passes over all slabs are always enough
+            int attempts = 2 * allocationOrder.size() + 2;
+            while (allocated + capacity > maxSegmentMemory && !allocationOrder.isEmpty() && attempts-- > 0) {
+               evictOldestSlab(evicted);
+               if (current != null && current.remaining() >= size) {
+                  return current;
+               }
+            }
+         }
+         if (current != null && current.live == 0) {
+            freeSlab(current);
+         }
+         current = allocateSlab(capacity);
+         return current;
+      }
+
+      void evictOldestSlab(List<OffHeapEntry> evicted) {
+         Slab victim = allocationOrder.peekFirst();
+         if (victim == current) {
+            current = null;
+         }
+         ByteBuffer buffer = victim.buffer;
+         List<Integer> survivors = null;
+         for (int offset = 0; offset < victim.position; offset += recordSize(buffer, offset)) {
+            byte flags = buffer.get(offset + FLAGS);
+            if ((flags & LIVE) == 0) {
+               continue;
+            }
+            long address = addressOf(victim, offset);
+            int index = indexOfAddress(buffer.getInt(offset + HASH), address);
+            if (secondChance && (flags & ACCESSED) != 0 && victim.capacity() == slabSize) {
+               if (survivors == null) {
+                  survivors = new ArrayList<Integer>();
+               }
+               survivors.add(offset);
+            } else {
+               // evicted records are passivated by the caller once the segment lock has been released
+               evicted.add(read(address, true));
+               unlinkAt(index);
+            }
+         }
+         if (survivors == null) {
+            freeSlab(victim);
+         } else {
+            // recently read records get a second chance: move them into a fresh slab which replaces the victim
+            // the segment briefly exceeds its limit by one slab until the victim is freed below
+            Slab target = allocateSlab(slabSize);
+            Slab previous = current;
+            current = target;
+            for (int offset : survivors) {
+               long oldAddress = addressOf(victim, offset);
+               int hash = buffer.getInt(offset + HASH);
+               int index = indexOfAddress(hash, oldAddress);
+               addresses[index] = copyForward(buffer, offset, recordSize(buffer, offset));
+            }
+            live -= victim.live;
+            victim.live = 0;
+            freeSlab(victim);
+            // keep appending to the slab holding the survivors if it still has room, the previous one is full anyway
+            if (previous != null && previous.live == 0 && previous != target) {
+               freeSlab(previous);
+            }
+         }
+      }
+
+      Slab allocateSlab(int capacity) {
+         Slab slab;
+         if (capacity == slabSize && spare != null) {
+            slab = spare;
+            spare = null;
+         } else {
+            slab = new Slab(nextSlabId(), capacity);
+            slabs[slab.id] = slab;
+         }
+         allocated += capacity;
+         allocationOrder.addLast(slab);
+         return slab;
+      }
+
+      void freeSlab(Slab slab) {
+         allocationOrder.remove(slab);
+         allocated -= slab.capacity();
+         live -= slab.live;
+         if (slab == current) {
+            current = null;
+         }
+         if (slab.capacity() == slabSize && spare == null) {
+            // keep a single slab around to avoid reallocating direct memory when the segment size oscillates
+            slab.position = 0;
+            slab.live = 0;
+            spare = slab;
+         } else {
+            slabs[slab.id] = null;
+            Util.freeDirectBuffer(slab.buffer);
+         }
+      }
+
+      int nextSlabId() {
+         for (int i = 0; i < slabs.length; i++) {
+            if (slabs[i] == null) {
+               return i;
+            }
+         }
+         Slab[] newSlabs = new Slab[slabs.length << 1];
+         System.arraycopy(slabs, 0, newSlabs, 0, slabs.length);
+         int id = slabs.length;
+         slabs = newSlabs;
+         return id;
+      }
+
+      /**
+       * Copies all live records into fresh slabs, one slab at a time, and releases the old ones.
+       */
+      void compact() {
+         List<Slab> oldSlabs = new ArrayList<Slab>(allocationOrder);
+         current = null;
+         for (Slab slab : oldSlabs) {
+            ByteBuffer buffer = slab.buffer;
+            for (int offset = 0; offset < slab.position; offset += recordSize(buffer, offset)) {
+               if ((buffer.get(offset + FLAGS) & LIVE) == 0) {
+                  continue;
+               }
+               int size = recordSize(buffer, offset);
+               int index = indexOfAddress(buffer.getInt(offset + HASH), addressOf(slab, offset));
+               addresses[index] = copyForward(buffer, offset, size);
+               // copyForward() clears the access mark, restore it
+               if ((buffer.get(offset + FLAGS) & ACCESSED) != 0) {
+                  touch(addresses[index], buffer.getLong(offset + LAST_USED));
+               }
+            }
+            live -= slab.live;
+            slab.live = 0;
+            freeSlab(slab);
+         }
+      }
+
+      /**
+       * @return heap copies of all the live records of this segment, including their keys
+       */
+      List<OffHeapEntry> snapshot() {
+         List<OffHeapEntry> entries = new ArrayList<OffHeapEntry>(count);
+         for (long address : addresses) {
+            if (address != 0) {
+               entries.add(read(address, true));
+            }
+         }
+         return entries;
+      }
+   }
+
+   /**
+    * Iterates over the entries one segment at a time; each segment is copied to the heap while holding its lock and
+    * unmarshalled lazily.
+    */
+   private class EntryIterator implements Iterator<InternalCacheEntry> {
+
+      private int nextSegment;
+      private Iterator<OffHeapEntry> current = Collections.<OffHeapEntry>emptyList().iterator();
+
+      @Override
+      public boolean hasNext() {
+         while (!current.hasNext()) {
+            if (nextSegment >= segments.length) {
+               return false;
+            }
+            Segment segment = segments[nextSegment++];
+            segment.lock();
+            try {
+               current = segment.snapshot().iterator();
+            } finally {
+               segment.unlock();
+            }
+         }
+         return true;
+      }
+
+      @Override
+      public InternalCacheEntry next() {
+         if (!hasNext()) {
+            throw new NoSuchElementException();
+         }
+         return current.next().toInternalCacheEntry();
+      }
+
+      @Override
+      public void remove() {
+         throw new UnsupportedOperationException();
+      }
+   }
+
+   /**
+    * Minimal implementation needed for unmodifiable Set
+    *
+    */
+   private class KeySet extends AbstractSet<Object> {
+
+      @Override
+      public boolean contains(Object o) {
+         return peek(o) != null;
+      }
+
+      @Override
+      public Iterator<Object> iterator() {
+         final Iterator<InternalCacheEntry> it = new EntryIterator();
+         return new Iterator<Object>() {
+            @Override
+            public boolean hasNext() {
+               return it.hasNext();
+            }
+
+            @Override
+            public Object next() {
+               return it.next().getKey();
+            }
+
+            @Override
+            public void remove() {
+               throw new UnsupportedOperationException();
+            }
+         };
+      }
+
+      @Override
+      public int size() {
+         return OffHeapDataContainer.this.size();
+      }
+   }
+
+   /**
+    * Minimal implementation needed for unmodifiable Set
+    *
+    */
+   private class EntrySet extends AbstractSet<InternalCacheEntry> {
+
+      @Override
+      public boolean contains(Object o) {
+         if (!(o instanceof Map.Entry)) {
+            return false;
+         }
+
+         @SuppressWarnings("rawtypes")
+         Map.Entry e = (Map.Entry) o;
+         InternalCacheEntry ice = peek(e.getKey());
+         if (ice == null) {
+            return false;
+         }
+         return ice.getValue().equals(e.getValue());
+      }
+
+      @Override
+      public Iterator<InternalCacheEntry> iterator() {
+         final Iterator<InternalCacheEntry> it = new EntryIterator();
+         return new Iterator<InternalCacheEntry>() {
+            @Override
+            public boolean hasNext() {
+               return it.hasNext();
+            }
+
+            @Override
+            public InternalCacheEntry next() {
+               return Immutables.immutableInternalCacheEntry(it.next());
+            }
+
+            @Override
+            public void remove() {
+               throw new UnsupportedOperationException();
+            }
+         };
+      }
+
+      @Override
+      public int size() {
+         return OffHeapDataContainer.this.size();
+      }
+   }
+
+   /**
+    * Minimal implementation needed for unmodifiable Collection
+    *
+    */
+   private class Values extends AbstractCollection<Object> {
+      @Override
+      public Iterator<Object> iterator() {
+         final Iterator<InternalCacheEntry> it = new EntryIterator();
+         return new Iterator<Object>() {
+            @Override
+            public boolean hasNext() {
+               return it.hasNext();
+            }
+
+            @Override
+            public Object next() {
+               return it.next().getValue();
+            }
+
+            @Override
+            public void remove() {
+               throw new UnsupportedOperationException();
+            }
+         };
+      }
+
+      @Override
+      public int size() {
+         return OffHeapDataContainer.this.size();
+      }
+   }
+}
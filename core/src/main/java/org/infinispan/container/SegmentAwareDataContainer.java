@@ -0,0 +1,74 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+
+package org.infinispan.container;
+
+import java.util.Collection;
+import java.util.Set;
+
+import org.infinispan.container.entries.InternalCacheEntry;
+
+/**
+ * A {@link DataContainer} that partitions its entries by consistent hash segment, so that operations which only
+ * concern a subset of the segments (e.g. pushing state to a joiner or dropping segments that are no longer owned)
+ * cost time in proportion to the entries in those segments rather than to the size of the whole container.
+ * <p/>
+ * The segment of a key as seen by the container must match {@link org.infinispan.distribution.ch.ConsistentHash#getSegment(Object)},
+ * and callers are expected to check that {@link #getNumSegments()} agrees with the consistent hash in use before
+ * relying on the segment-scoped operations.
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+public interface SegmentAwareDataContainer extends DataContainer {
+
+   /**
+    * @return the number of segments the entries of this container are partitioned into
+    */
+   int getNumSegments();
+
+   /**
+    * @param key a key
+    * @return the segment the given key is (or would be) stored in
+    */
+   int getSegment(Object key);
+
+   /**
+    * Returns the entries stored in a segment. Like iterating the container itself, this does not expire or touch
+    * the entries.
+    *
+    * @param segment the segment id
+    * @return a live, unmodifiable view of the entries in the given segment
+    */
+   Collection<InternalCacheEntry> segmentEntries(int segment);
+
+   /**
+    * @param segment the segment id
+    * @return count of the number of entries stored in the given segment
+    */
+   int segmentSize(int segment);
+
+   /**
+    * Removes all entries in the given segments.
+    *
+    * @param segments the segment ids
+    * @return the entries that were removed
+    */
+   Collection<InternalCacheEntry> removeSegments(Set<Integer> segments);
+}
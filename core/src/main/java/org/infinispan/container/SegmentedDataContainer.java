@@ -0,0 +1,411 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+
+package org.infinispan.container;
+
+import net.jcip.annotations.ThreadSafe;
+import org.infinispan.commons.hash.Hash;
+import org.infinispan.configuration.cache.Configuration;
+import org.infinispan.configuration.cache.HashConfiguration;
+import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.container.versioning.EntryVersion;
+import org.infinispan.distribution.group.GroupManager;
+import org.infinispan.factories.annotations.Inject;
+import org.infinispan.util.Immutables;
+import org.infinispan.util.concurrent.ConcurrentMapFactory;
+
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * An unbounded {@link SegmentAwareDataContainer} which keeps one concurrent map per consistent hash segment.
+ * <p/>
+ * Keys are assigned to segments the same way {@link org.infinispan.distribution.ch.DefaultConsistentHash} does it
+ * (taking key groups into account), using the hash function and number of segments configured in
+ * {@link HashConfiguration}. This container is meant for distributed caches: state transfer then only needs to visit
+ * the segments that are actually moving. It does not support eviction.
+ * <p/>
+ * When created through its no-arg constructor (e.g. when configured by class name) the container sizes itself from
+ * the cache configuration at injection time.
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+@ThreadSafe
+public class SegmentedDataContainer implements SegmentAwareDataContainer {
+
+   private ConcurrentMap<Object, InternalCacheEntry>[] segments;
+   private int segmentSize;
+   private Hash hashFunction;
+   private GroupManager groupManager;
+   protected InternalEntryFactory entryFactory;
+   private final ExpirationWheel expirationWheel = new ExpirationWheel();
+
+   public SegmentedDataContainer() {
+   }
+
+   public SegmentedDataContainer(int concurrencyLevel, int numSegments, Hash hashFunction) {
+      initSegments(concurrencyLevel, numSegments, hashFunction);
+   }
+
+   @Inject
+   public void initialize(Configuration configuration, InternalEntryFactory entryFactory, GroupManager groupManager) {
+      this.entryFactory = entryFactory;
+      this.groupManager = groupManager;
+      if (segments == null) {
+         HashConfiguration hashConfiguration = configuration.clustering().hash();
+         initSegments(configuration.locking().concurrencyLevel(), hashConfiguration.numSegments(), hashConfiguration.hash());
+      }
+   }
+
+   @SuppressWarnings("unchecked")
+   private void initSegments(int concurrencyLevel, int numSegments, Hash hashFunction) {
+      if (numSegments < 1)
+         throw new IllegalArgumentException("The number of segments must be strictly positive");
+      if (hashFunction == null)
+         throw new IllegalArgumentException("The hash function cannot be null");
+      // spread the configured concurrency over the segments, keys are already partitioned between the maps
+      int segmentConcurrencyLevel = Math.max(1, concurrencyLevel / numSegments);
+      ConcurrentMap<Object, InternalCacheEntry>[] maps = new ConcurrentMap[numSegments];
+      for (int i = 0; i < numSegments; i++) {
+         maps[i] = ConcurrentMapFactory.makeConcurrentMap(16, segmentConcurrencyLevel);
+      }
+      this.hashFunction = hashFunction;
+      // must match DefaultConsistentHash.getSegment()
+      this.segmentSize = (int) Math.ceil((double) Integer.MAX_VALUE / numSegments);
+      this.segments = maps;
+   }
+
+   @Override
+   public int getNumSegments() {
+      return segments.length;
+   }
+
+   @Override
+   public int getSegment(Object key) {
+      if (groupManager != null) {
+         String groupKey = groupManager.getGroup(key);
+         if (groupKey != null) {
+            key = groupKey;
+         }
+      }
+      return (hashFunction.hash(key) & Integer.MAX_VALUE) / segmentSize;
+   }
+
+   private ConcurrentMap<Object, InternalCacheEntry> segmentFor(Object key) {
+      return segments[getSegment(key)];
+   }
+
+   @Override
+   public InternalCacheEntry peek(Object key) {
+      return segmentFor(key).get(key);
+   }
+
+   @Override
+   public InternalCacheEntry get(Object k) {
+      ConcurrentMap<Object, InternalCacheEntry> segment = segmentFor(k);
+      InternalCacheEntry e = segment.get(k);
+      if (e != null && e.canExpire()) {
+         long currentTimeMillis = System.currentTimeMillis();
+         if (e.isExpired(currentTimeMillis)) {
+            segment.remove(k);
+            expirationWheel.cancel(k, e);
+            e = null;
+         } else {
+            e.touch(currentTimeMillis);
+         }
+      }
+      return e;
+   }
+
+   @Override
+   public void put(Object k, Object v, EntryVersion version, long lifespan, long maxIdle) {
+      ConcurrentMap<Object, InternalCacheEntry> segment = segmentFor(k);
+      InternalCacheEntry original = segment.get(k);
+      InternalCacheEntry e = original;
+      if (e != null) {
+         e.setValue(v);
+         e.setVersion(version);
+         e = entryFactory.update(e, lifespan, maxIdle);
+         // we have the same instance. So we need to reincarnate.
+         if (original == e) {
+            e.reincarnate();
+         }
+      } else {
+         // this is a brand-new entry
+         e = entryFactory.create(k, v, version, lifespan, maxIdle);
+      }
+      segment.put(k, e);
+      if (e.canExpire()) {
+         expirationWheel.register(k, e, System.currentTimeMillis());
+      } else if (original != null && original != e) {
+         expirationWheel.cancel(k, original);
+      }
+   }
+
+   @Override
+   public boolean containsKey(Object k) {
+      ConcurrentMap<Object, InternalCacheEntry> segment = segmentFor(k);
+      InternalCacheEntry ice = segment.get(k);
+      if (ice != null && ice.canExpire() && ice.isExpired(System.currentTimeMillis())) {
+         segment.remove(k);
+         expirationWheel.cancel(k, ice);
+         ice = null;
+      }
+      return ice != null;
+   }
+
+   @Override
+   public InternalCacheEntry remove(Object k) {
+      InternalCacheEntry e = segmentFor(k).remove(k);
+      if (e != null && e.canExpire()) {
+         expirationWheel.cancel(k, e);
+      }
+      return e == null || (e.canExpire() && e.isExpired(System.currentTimeMillis())) ? null : e;
+   }
+
+   @Override
+   public int size() {
+      int size = 0;
+      for (ConcurrentMap<Object, InternalCacheEntry> segment : segments) {
+         size += segment.size();
+      }
+      return size;
+   }
+
+   @Override
+   public void clear() {
+      for (ConcurrentMap<Object, InternalCacheEntry> segment : segments) {
+         segment.clear();
+      }
+      expirationWheel.clear();
+   }
+
+   @Override
+   public Set<Object> keySet() {
+      return new KeySet();
+   }
+
+   @Override
+   public Collection<Object> values() {
+      return new Values();
+   }
+
+   @Override
+   public Set<InternalCacheEntry> entrySet() {
+      return new EntrySet();
+   }
+
+   @Override
+   public void purgeExpired() {
+      expirationWheel.purge(System.currentTimeMillis(), this);
+   }
+
+   @Override
+   public Iterator<InternalCacheEntry> iterator() {
+      return new EntryIterator();
+   }
+
+   @Override
+   public Collection<InternalCacheEntry> segmentEntries(int segment) {
+      return Collections.unmodifiableCollection(segments[segment].values());
+   }
+
+   @Override
+   public int segmentSize(int segment) {
+      return segments[segment].size();
+   }
+
+   @Override
+   public Collection<InternalCacheEntry> removeSegments(Set<Integer> segmentIds) {
+      List<InternalCacheEntry> removed = new ArrayList<InternalCacheEntry>();
+      for (int segmentId : segmentIds) {
+         ConcurrentMap<Object, InternalCacheEntry> segment = segments[segmentId];
+         for (Iterator<InternalCacheEntry> it = segment.values().iterator(); it.hasNext();) {
+            InternalCacheEntry e = it.next();
+            removed.add(e);
+            it.remove();
+            if (e.canExpire()) {
+               expirationWheel.cancel(e.getKey(), e);
+            }
+         }
+      }
+      return removed;
+   }
+
+   /**
+    * Iterates over the entries of all segments, one segment after the other.
+    */
+   private class EntryIterator implements Iterator<InternalCacheEntry> {
+
+      private int nextSegment;
+      private Iterator<InternalCacheEntry> current = Collections.<InternalCacheEntry>emptySet().iterator();
+
+      @Override
+      public boolean hasNext() {
+         while (!current.hasNext()) {
+            if (nextSegment >= segments.length) {
+               return false;
+            }
+            current = segments[nextSegment++].values().iterator();
+         }
+         return true;
+      }
+
+      @Override
+      public InternalCacheEntry next() {
+         if (!hasNext()) {
+            throw new NoSuchElementException();
+         }
+         return current.next();
+      }
+
+      @Override
+      public void remove() {
+         throw new UnsupportedOperationException();
+      }
+   }
+
+   /**
+    * Minimal implementation needed for unmodifiable Set
+    *
+    */
+   private class KeySet extends AbstractSet<Object> {
+
+      @Override
+      public boolean contains(Object o) {
+         return segmentFor(o).containsKey(o);
+      }
+
+      @Override
+      public Iterator<Object> iterator() {
+         final Iterator<InternalCacheEntry> it = new EntryIterator();
+         return new Iterator<Object>() {
+            @Override
+            public boolean hasNext() {
+               return it.hasNext();
+            }
+
+            @Override
+            public Object next() {
+               return it.next().getKey();
+            }
+
+            @Override
+            public void remove() {
+               throw new UnsupportedOperationException();
+            }
+         };
+      }
+
+      @Override
+      public int size() {
+         return SegmentedDataContainer.this.size();
+      }
+   }
+
+   /**
+    * Minimal implementation needed for unmodifiable Set
+    *
+    */
+   private class EntrySet extends AbstractSet<InternalCacheEntry> {
+
+      @Override
+      public boolean contains(Object o) {
+         if (!(o instanceof Map.Entry)) {
+            return false;
+         }
+
+         @SuppressWarnings("rawtypes")
+         Map.Entry e = (Map.Entry) o;
+         InternalCacheEntry ice = peek(e.getKey());
+         if (ice == null) {
+            return false;
+         }
+         return ice.getValue().equals(e.getValue());
+      }
+
+      @Override
+      public Iterator<InternalCacheEntry> iterator() {
+         final Iterator<InternalCacheEntry> it = new EntryIterator();
+         return new Iterator<InternalCacheEntry>() {
+            @Override
+            public boolean hasNext() {
+               return it.hasNext();
+            }
+
+            @Override
+            public InternalCacheEntry next() {
+               return Immutables.immutableInternalCacheEntry(it.next());
+            }
+
+            @Override
+            public void remove() {
+               throw new UnsupportedOperationException();
+            }
+         };
+      }
+
+      @Override
+      public int size() {
+         return SegmentedDataContainer.this.size();
+      }
+   }
+
+   /**
+    * Minimal implementation needed for unmodifiable Collection
+    *
+    */
+   private class Values extends AbstractCollection<Object> {
+      @Override
+      public Iterator<Object> iterator() {
+         final Iterator<InternalCacheEntry> it = new EntryIterator();
+         return new Iterator<Object>() {
+            @Override
+            public boolean hasNext() {
+               return it.hasNext();
+            }
+
+            @Override
+            public Object next() {
+               return it.next().getValue();
+            }
+
+            @Override
+            public void remove() {
+               throw new UnsupportedOperationException();
+            }
+         };
+      }
+
+      @Override
+      public int size() {
+         return SegmentedDataContainer.this.size();
+      }
+   }
+}
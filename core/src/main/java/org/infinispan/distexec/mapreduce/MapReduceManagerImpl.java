@@ -22,16 +22,18 @@
 import static org.infinispan.factories.KnownComponentNames.ASYNC_TRANSPORT_EXECUTOR;
 
 import java.io.Serializable;
+import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 
 import org.infinispan.Cache;
@@ -43,6 +45,7 @@
 import org.infinispan.container.entries.InternalCacheEntry;
 import org.infinispan.distexec.mapreduce.spi.MapReduceTaskLifecycleService;
 import org.infinispan.distribution.DistributionManager;
+import org.infinispan.distribution.ch.ConsistentHash;
 import org.infinispan.factories.annotations.ComponentName;
 import org.infinispan.factories.annotations.Inject;
 import org.infinispan.loaders.CacheLoader;
@@ -50,8 +53,10 @@
 import org.infinispan.loaders.CacheLoaderManager;
 import org.infinispan.manager.EmbeddedCacheManager;
 import org.infinispan.marshall.MarshalledValue;
+import org.infinispan.marshall.StreamingMarshaller;
 import org.infinispan.remoting.transport.Address;
 import org.infinispan.util.InfinispanCollections;
+import org.infinispan.util.Util;
 import org.infinispan.util.concurrent.ConcurrentMapFactory;
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
@@ -69,6 +74,7 @@ public class MapReduceManagerImpl implements MapReduceManager {
 
    private static final Log log = LogFactory.getLog(MapReduceManagerImpl.class);
    private static final int CANCELLATION_CHECK_FREQUENCY = 20;
+   private static final int INTERMEDIATE_CHUNK_SIZE = 512;
    private Address localAddress;
    private EmbeddedCacheManager cacheManager;
    private CacheLoaderManager cacheLoaderManager;
@@ -168,11 +174,17 @@ protected <KIn, VIn, KOut, VOut> CollectableCollector<KOut, VOut> map(
       } else {
          inputKeysCopy = new HashSet<KIn>(keys);
       }
+      int parallelism = parallelism(mcc);
+      if (parallelism > 1) {
+         return mapInParallel(mcc, cache, inputKeys, inputKeysSpecified, dm, parallelism);
+      }
       // hook map function into lifecycle and execute it
       MapReduceTaskLifecycleService taskLifecycleService = MapReduceTaskLifecycleService.getInstance();     
-      DefaultCollector<KOut, VOut> collector = new DefaultCollector<KOut, VOut>();
+      CollectableCollector<KOut, VOut> collector = newCollector(mcc,
+            cache.getAdvancedCache().getComponentRegistry().getCacheMarshaller(), 1);
       log.tracef("For m/r task %s invoking %s with input keys %s",  mcc.getTaskId(), mcc, inputKeys);
       int interruptCount = 0;
+      boolean mapped = false;
       try {
          taskLifecycleService.onPreExecute(mapper, cache);
          for (KIn key : inputKeys) {            
@@ -204,8 +216,11 @@ protected <KIn, VIn, KOut, VOut> CollectableCollector<KOut, VOut> map(
                mapper.map(key, value, collector);
             }
          }
+         mapped = true;
       } finally {
          taskLifecycleService.onPostExecute(mapper);
+         // don't leave spilled values behind if the map phase failed
+         if (!mapped) collector.dispose();
       }
       return collector;            
    }
@@ -229,29 +244,15 @@ protected <KIn, VIn, KOut, VOut> Set<KOut> combine(MapCombineCommand<KIn, VIn, K
       }
       DistributionManager dm = tmpCache.getAdvancedCache().getDistributionManager();
 
-      if (combiner != null) {
-         Cache<?, ?> cache = cacheManager.getCache(mcc.getCacheName());
-         log.tracef("For m/r task %s invoking combiner %s at %s",  taskId, mcc, localAddress);
-         MapReduceTaskLifecycleService taskLifecycleService = MapReduceTaskLifecycleService.getInstance();
-         Map<KOut, VOut> combinedMap = new ConcurrentHashMap<KOut, VOut>();
+      if (collector.hasSpilled()) {
          try {
-            taskLifecycleService.onPreExecute(combiner, cache);
-            Map<KOut, List<VOut>> collectedValues = collector.collectedValues();
-            for (Entry<KOut, List<VOut>> e : collectedValues.entrySet()) {
-               List<VOut> list = e.getValue();
-               VOut combined;
-               if (list.size() > 1) {
-                  combined = combiner.reduce(e.getKey(), list.iterator());
-                  combinedMap.put(e.getKey(), combined);
-               } else {
-                  combined = list.get(0);
-                  combinedMap.put(e.getKey(), combined);
-               }               
-               log.tracef("For m/r task %s combined %s to %s at %s" , taskId, e.getKey(), combined, localAddress);               
-            }
+            return migrateSpilled(mcc, collector, tmpCache);
          } finally {
-            taskLifecycleService.onPostExecute(combiner);
+            collector.dispose();
          }
+      }
+      if (combiner != null) {
+         Map<KOut, VOut> combinedMap = combineValues(mcc, collector.collectedValues());
          Map<Address, List<KOut>> keysToNodes = mapKeysToNodes(dm, taskId, combinedMap.keySet(),
                   emitCompositeIntermediateKeys);
 
@@ -306,33 +307,22 @@ private <KIn, VIn, KOut, VOut> Map<KOut, List<VOut>> combineForLocalReduction(
             MapCombineCommand<KIn, VIn, KOut, VOut> mcc, 
             CollectableCollector<KOut, VOut> collector) {
 
-      String taskId =  mcc.getTaskId();      
       Reducer <KOut,VOut> combiner = mcc.getCombiner();
       Map<KOut, List<VOut>> result = null;      
 
-      if (combiner != null) {
-         result = new HashMap<KOut, List<VOut>>();   
-         log.tracef("For m/r task %s invoking combiner %s at %s",  taskId, mcc, localAddress);
-         MapReduceTaskLifecycleService taskLifecycleService = MapReduceTaskLifecycleService.getInstance();
+      if (collector.hasSpilled()) {
          try {
-            Cache<?, ?> cache = cacheManager.getCache(mcc.getCacheName());
-            taskLifecycleService.onPreExecute(combiner, cache);
-            Map<KOut, List<VOut>> collectedValues = collector.collectedValues();
-            for (Entry<KOut, List<VOut>> e : collectedValues.entrySet()) {
-               VOut combined;
-               List<VOut> list = e.getValue();               
-               List<VOut> l = new LinkedList<VOut>();
-               if (list.size() > 1) {
-                  combined = combiner.reduce(e.getKey(), list.iterator());
-               } else {
-                  combined = list.get(0);                  
-               }                              
-               l.add(combined);
-               result.put(e.getKey(), l);
-               log.tracef("For m/r task %s combined %s to %s at %s" , taskId, e.getKey(), combined, localAddress);               
-            }
+            return combineSpilledForLocalReduction(mcc, collector);
          } finally {
-            taskLifecycleService.onPostExecute(combiner);
+            collector.dispose();
+         }
+      }
+      if (combiner != null) {
+         result = new HashMap<KOut, List<VOut>>();
+         for (Entry<KOut, VOut> e : combineValues(mcc, collector.collectedValues()).entrySet()) {
+            List<VOut> l = new LinkedList<VOut>();
+            l.add(e.getValue());
+            result.put(e.getKey(), l);
          }
       } else {
          // Combiner not specified     
@@ -341,6 +331,289 @@ private <KIn, VIn, KOut, VOut> Map<KOut, List<VOut>> combineForLocalReduction(
       return result;
    }
    
+   /**
+    * Applies the combiner of the task to the values collected for each intermediate key.
+    */
+   private <KIn, VIn, KOut, VOut> Map<KOut, VOut> combineValues(MapCombineCommand<KIn, VIn, KOut, VOut> mcc,
+            Map<KOut, List<VOut>> collectedValues) {
+      final String taskId = mcc.getTaskId();
+      final Reducer<KOut, VOut> combiner = mcc.getCombiner();
+      final Cache<?, ?> cache = cacheManager.getCache(mcc.getCacheName());
+      final MapReduceTaskLifecycleService taskLifecycleService = MapReduceTaskLifecycleService.getInstance();
+      log.tracef("For m/r task %s invoking combiner %s at %s",  taskId, mcc, localAddress);
+      int parallelism = parallelism(mcc);
+      if (parallelism > 1 && collectedValues.size() > 1) {
+         final StreamingMarshaller marshaller = cache.getAdvancedCache().getComponentRegistry().getCacheMarshaller();
+         List<List<Entry<KOut, List<VOut>>>> partitions = partition(collectedValues.entrySet(), parallelism * 4);
+         ParallelPhase<List<Entry<KOut, List<VOut>>>, CombineWorker<KOut, VOut>> phase =
+               new ParallelPhase<List<Entry<KOut, List<VOut>>>, CombineWorker<KOut, VOut>>(partitions) {
+            @Override
+            protected CombineWorker<KOut, VOut> createWorker(int index) {
+               Reducer<KOut, VOut> workerCombiner = index == 0 ? combiner : Util.cloneWithMarshaller(marshaller, combiner);
+               taskLifecycleService.onPreExecute(workerCombiner, cache);
+               return new CombineWorker<KOut, VOut>(workerCombiner);
+            }
+
+            @Override
+            protected void process(CombineWorker<KOut, VOut> worker, List<Entry<KOut, List<VOut>>> partition) {
+               for (Entry<KOut, List<VOut>> e : partition) {
+                  combineEntry(taskId, worker.combiner, e, worker.combined);
+               }
+            }
+
+            @Override
+            protected void releaseWorker(CombineWorker<KOut, VOut> worker) {
+               taskLifecycleService.onPostExecute(worker.combiner);
+            }
+         };
+         List<CombineWorker<KOut, VOut>> workers;
+         try {
+            workers = phase.execute(executorService, parallelism);
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CacheException("Combine phase of m/r task " + taskId + " interrupted", e);
+         }
+         Map<KOut, VOut> combinedMap = workers.get(0).combined;
+         for (int i = 1; i < workers.size(); i++) combinedMap.putAll(workers.get(i).combined);
+         return combinedMap;
+      }
+
+      Map<KOut, VOut> combinedMap = new HashMap<KOut, VOut>();
+      try {
+         taskLifecycleService.onPreExecute(combiner, cache);
+         for (Entry<KOut, List<VOut>> e : collectedValues.entrySet()) {
+            combineEntry(taskId, combiner, e, combinedMap);
+         }
+      } finally {
+         taskLifecycleService.onPostExecute(combiner);
+      }
+      return combinedMap;
+   }
+
+   private <KOut, VOut> void combineEntry(String taskId, Reducer<KOut, VOut> combiner, Entry<KOut, List<VOut>> e,
+            Map<KOut, VOut> combinedMap) {
+      combinedMap.put(e.getKey(), combineEntry(taskId, combiner, e));
+   }
+
+   private <KOut, VOut> VOut combineEntry(String taskId, Reducer<KOut, VOut> combiner, Entry<KOut, List<VOut>> e) {
+      List<VOut> list = e.getValue();
+      VOut combined;
+      if (list.size() > 1) {
+         combined = combiner.reduce(e.getKey(), list.iterator());
+      } else {
+         combined = list.get(0);
+      }
+      log.tracef("For m/r task %s combined %s to %s at %s" , taskId, e.getKey(), combined, localAddress);
+      return combined;
+   }
+
+   /**
+    * Streams the collected values back from disk, combines them if the task has a combiner, and moves them into the
+    * temporary cache one chunk at a time.
+    */
+   private <KIn, VIn, KOut, VOut> Set<KOut> migrateSpilled(MapCombineCommand<KIn, VIn, KOut, VOut> mcc,
+            CollectableCollector<KOut, VOut> collector, Cache<Object, DeltaAwareList<VOut>> tmpCache) {
+      String taskId = mcc.getTaskId();
+      Reducer<KOut, VOut> combiner = mcc.getCombiner();
+      Set<KOut> mapPhaseKeys = new HashSet<KOut>();
+      List<Entry<Object, DeltaAwareList<VOut>>> chunk = new ArrayList<Entry<Object, DeltaAwareList<VOut>>>(INTERMEDIATE_CHUNK_SIZE);
+      MapReduceTaskLifecycleService taskLifecycleService = MapReduceTaskLifecycleService.getInstance();
+      if (combiner != null) {
+         log.tracef("For m/r task %s invoking combiner %s at %s",  taskId, mcc, localAddress);
+         taskLifecycleService.onPreExecute(combiner, cacheManager.getCache(mcc.getCacheName()));
+      }
+      try {
+         for (Iterator<Entry<KOut, List<VOut>>> it = collector.iterator(); it.hasNext(); ) {
+            Entry<KOut, List<VOut>> e = it.next();
+            KOut key = e.getKey();
+            DeltaAwareList<VOut> delta = combiner != null ? new DeltaAwareList<VOut>(combineEntry(taskId, combiner, e))
+                  : new DeltaAwareList<VOut>(e.getValue());
+            Object intermediateKey = mcc.isEmitCompositeIntermediateKeys() ? new IntermediateCompositeKey<KOut>(taskId, key) : key;
+            chunk.add(new SimpleImmutableEntry<Object, DeltaAwareList<VOut>>(intermediateKey, delta));
+            mapPhaseKeys.add(key);
+            if (chunk.size() == INTERMEDIATE_CHUNK_SIZE) {
+               migrateChunk(mcc, chunk, tmpCache);
+               chunk.clear();
+            }
+         }
+         if (!chunk.isEmpty()) migrateChunk(mcc, chunk, tmpCache);
+      } finally {
+         if (combiner != null) taskLifecycleService.onPostExecute(combiner);
+      }
+      return mapPhaseKeys;
+   }
+
+   private <KIn, VIn, KOut, VOut> void migrateChunk(MapCombineCommand<KIn, VIn, KOut, VOut> mcc,
+            List<Entry<Object, DeltaAwareList<VOut>>> chunk, final Cache<Object, DeltaAwareList<VOut>> tmpCache) {
+      String taskId = mcc.getTaskId();
+      log.tracef("For m/r task %s migrating a chunk of %s intermediate keys", taskId, chunk.size());
+      int parallelism = parallelism(mcc);
+      ParallelPhase<List<Entry<Object, DeltaAwareList<VOut>>>, Object> phase =
+            new ParallelPhase<List<Entry<Object, DeltaAwareList<VOut>>>, Object>(partition(chunk, parallelism)) {
+         @Override
+         protected Object createWorker(int index) {
+            return tmpCache;
+         }
+
+         @Override
+         protected void process(Object worker, List<Entry<Object, DeltaAwareList<VOut>>> partition) {
+            for (Entry<Object, DeltaAwareList<VOut>> e : partition) tmpCache.put(e.getKey(), e.getValue());
+         }
+
+         @Override
+         protected void releaseWorker(Object worker) {
+         }
+      };
+      try {
+         phase.execute(executorService, parallelism);
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new CacheException("Could not move intermediate keys/values for M/R task " + taskId, e);
+      } catch (CacheException e) {
+         throw e;
+      } catch (RuntimeException e) {
+         throw new CacheException("Could not move intermediate keys/values for M/R task " + taskId, e);
+      }
+   }
+
+   private <KIn, VIn, KOut, VOut> Map<KOut, List<VOut>> combineSpilledForLocalReduction(
+            MapCombineCommand<KIn, VIn, KOut, VOut> mcc, CollectableCollector<KOut, VOut> collector) {
+      String taskId = mcc.getTaskId();
+      Reducer<KOut, VOut> combiner = mcc.getCombiner();
+      if (combiner == null) return collector.collectedValues();
+      Map<KOut, List<VOut>> result = new HashMap<KOut, List<VOut>>();
+      MapReduceTaskLifecycleService taskLifecycleService = MapReduceTaskLifecycleService.getInstance();
+      log.tracef("For m/r task %s invoking combiner %s at %s",  taskId, mcc, localAddress);
+      taskLifecycleService.onPreExecute(combiner, cacheManager.getCache(mcc.getCacheName()));
+      try {
+         for (Iterator<Entry<KOut, List<VOut>>> it = collector.iterator(); it.hasNext(); ) {
+            Entry<KOut, List<VOut>> e = it.next();
+            List<VOut> l = new LinkedList<VOut>();
+            l.add(combineEntry(taskId, combiner, e));
+            result.put(e.getKey(), l);
+         }
+      } finally {
+         taskLifecycleService.onPostExecute(combiner);
+      }
+      return result;
+   }
+
+   /**
+    * Creates the collector for the map phase of a task, or for one of its threads.
+    */
+   private <KOut, VOut> CollectableCollector<KOut, VOut> newCollector(MapCombineCommand<?, ?, KOut, VOut> mcc,
+            StreamingMarshaller marshaller, int parallelism) {
+      if (mcc.getSpillThreshold() > 0) {
+         // the threads of a parallel map phase share the threshold
+         return new SpillingCollector<KOut, VOut>(mcc.getSpillThreshold() / parallelism, marshaller);
+      }
+      return new DefaultCollector<KOut, VOut>();
+   }
+
+   /**
+    * Maps the input keys on several threads. The keys are partitioned by segment, and every thread maps whole segments
+    * with its own copy of the mapper into its own collector. The collectors are merged once all segments are mapped.
+    */
+   private <KIn, VIn, KOut, VOut> CollectableCollector<KOut, VOut> mapInParallel(
+            final MapCombineCommand<KIn, VIn, KOut, VOut> mcc, final Cache<KIn, VIn> cache, Set<KIn> inputKeys,
+            boolean inputKeysSpecified, DistributionManager dm, final int parallelism) throws InterruptedException {
+      final Mapper<KIn, VIn, KOut, VOut> mapper = mcc.getMapper();
+      final StreamingMarshaller marshaller = cache.getAdvancedCache().getComponentRegistry().getCacheMarshaller();
+      final MapReduceTaskLifecycleService taskLifecycleService = MapReduceTaskLifecycleService.getInstance();
+      log.tracef("For m/r task %s invoking %s with input keys %s on %s threads",  mcc.getTaskId(), mcc, inputKeys, parallelism);
+
+      // specified input keys are all read through the cache, which loads them if needed
+      Set<KIn> keysFromCacheLoader = inputKeysSpecified ? InfinispanCollections.<KIn>emptySet()
+            : filterLocalPrimaryOwner(loadAllKeysFromCacheLoaderUsingFilter(inputKeys), dm);
+      log.tracef("For m/r task %s cache loader input keys %s", mcc.getTaskId(), keysFromCacheLoader);
+      ConsistentHash ch = dm.getReadConsistentHash();
+      List<InputPartition<KIn>> partitions = new ArrayList<InputPartition<KIn>>();
+      partitionBySegment(inputKeys, ch, false, partitions);
+      partitionBySegment(keysFromCacheLoader, ch, true, partitions);
+
+      final List<CollectableCollector<KOut, VOut>> collectors = Collections.synchronizedList(
+            new ArrayList<CollectableCollector<KOut, VOut>>(parallelism));
+      ParallelPhase<InputPartition<KIn>, MapWorker<KIn, VIn, KOut, VOut>> phase =
+            new ParallelPhase<InputPartition<KIn>, MapWorker<KIn, VIn, KOut, VOut>>(partitions) {
+         @Override
+         protected MapWorker<KIn, VIn, KOut, VOut> createWorker(int index) {
+            Mapper<KIn, VIn, KOut, VOut> workerMapper = index == 0 ? mapper : Util.cloneWithMarshaller(marshaller, mapper);
+            taskLifecycleService.onPreExecute(workerMapper, cache);
+            CollectableCollector<KOut, VOut> collector = newCollector(mcc, marshaller, parallelism);
+            collectors.add(collector);
+            return new MapWorker<KIn, VIn, KOut, VOut>(workerMapper, collector);
+         }
+
+         @Override
+         protected void process(MapWorker<KIn, VIn, KOut, VOut> worker, InputPartition<KIn> partition) throws InterruptedException {
+            int interruptCount = 0;
+            for (KIn key : partition.keys) {
+               if (checkInterrupt(interruptCount++) && shouldStop())
+                  throw new InterruptedException();
+               VIn value = partition.fromCacheLoader ? MapReduceManagerImpl.this.<KIn, VIn>loadValueFromCacheLoader(key) : cache.get(key);
+               if (value != null || !partition.fromCacheLoader) {
+                  worker.mapper.map(key, value, worker.collector);
+               }
+            }
+         }
+
+         @Override
+         protected void releaseWorker(MapWorker<KIn, VIn, KOut, VOut> worker) {
+            taskLifecycleService.onPostExecute(worker.mapper);
+         }
+      };
+      List<MapWorker<KIn, VIn, KOut, VOut>> workers;
+      boolean mapped = false;
+      try {
+         workers = phase.execute(executorService, parallelism);
+         mapped = true;
+      } finally {
+         if (!mapped) {
+            for (CollectableCollector<KOut, VOut> collector : collectors) collector.dispose();
+         }
+      }
+      CollectableCollector<KOut, VOut> collector = workers.get(0).collector;
+      for (int i = 1; i < workers.size(); i++) collector.mergeFrom(workers.get(i).collector);
+      return collector;
+   }
+
+   private <KIn> void partitionBySegment(Set<KIn> keys, ConsistentHash ch, boolean fromCacheLoader,
+            List<InputPartition<KIn>> partitions) {
+      if (keys.isEmpty()) return;
+      List<List<KIn>> keysBySegment = new ArrayList<List<KIn>>(ch.getNumSegments());
+      for (int i = 0; i < ch.getNumSegments(); i++) keysBySegment.add(null);
+      for (KIn key : keys) {
+         int segment = ch.getSegment(key);
+         List<KIn> segmentKeys = keysBySegment.get(segment);
+         if (segmentKeys == null) {
+            segmentKeys = new ArrayList<KIn>();
+            keysBySegment.set(segment, segmentKeys);
+         }
+         segmentKeys.add(key);
+      }
+      for (List<KIn> segmentKeys : keysBySegment) {
+         if (segmentKeys != null) partitions.add(new InputPartition<KIn>(segmentKeys, fromCacheLoader));
+      }
+   }
+
+   private static <T> List<List<T>> partition(Collection<T> elements, int count) {
+      int size = Math.max(1, (elements.size() + count - 1) / count);
+      List<List<T>> partitions = new ArrayList<List<T>>(count);
+      List<T> current = null;
+      for (T element : elements) {
+         if (current == null || current.size() == size) {
+            current = new ArrayList<T>(size);
+            partitions.add(current);
+         }
+         current.add(element);
+      }
+      return partitions;
+   }
+
+   private int parallelism(MapCombineCommand<?, ?, ?, ?> mcc) {
+      return Math.min(mcc.getParallelism(), Runtime.getRuntime().availableProcessors());
+   }
+
    private boolean checkInterrupt(int counter) {
       return counter % CANCELLATION_CHECK_FREQUENCY == 0;
    }
@@ -437,13 +710,86 @@ public void emit(KOut key, VOut value) {
          list.add(value);
       }
 
+      @Override
       public Map<KOut, List<VOut>> collectedValues() {
          return store;
       }
+
+      @Override
+      public Iterator<Entry<KOut, List<VOut>>> iterator() {
+         return store.entrySet().iterator();
+      }
+
+      @Override
+      public boolean hasSpilled() {
+         return false;
+      }
+
+      @Override
+      public void dispose() {
+      }
+
+      @Override
+      public void mergeFrom(CollectableCollector<KOut, VOut> other) {
+         for (Entry<KOut, List<VOut>> e : ((DefaultCollector<KOut, VOut>) other).store.entrySet()) {
+            List<VOut> list = store.get(e.getKey());
+            if (list == null) {
+               store.put(e.getKey(), e.getValue());
+            } else {
+               list.addAll(e.getValue());
+            }
+         }
+      }
+   }
+
+   private static class InputPartition<KIn> {
+      final List<KIn> keys;
+      final boolean fromCacheLoader;
+
+      InputPartition(List<KIn> keys, boolean fromCacheLoader) {
+         this.keys = keys;
+         this.fromCacheLoader = fromCacheLoader;
+      }
+   }
+
+   private static class MapWorker<KIn, VIn, KOut, VOut> {
+      final Mapper<KIn, VIn, KOut, VOut> mapper;
+      final CollectableCollector<KOut, VOut> collector;
+
+      MapWorker(Mapper<KIn, VIn, KOut, VOut> mapper, CollectableCollector<KOut, VOut> collector) {
+         this.mapper = mapper;
+         this.collector = collector;
+      }
+   }
+
+   private static class CombineWorker<KOut, VOut> {
+      final Reducer<KOut, VOut> combiner;
+      final Map<KOut, VOut> combined = new HashMap<KOut, VOut>();
+
+      CombineWorker(Reducer<KOut, VOut> combiner) {
+         this.combiner = combiner;
+      }
    }
    
-   private interface CollectableCollector<K,V> extends Collector<K, V>{      
+   interface CollectableCollector<K,V> extends Collector<K, V>{      
       Map<K, List<V>> collectedValues();
+
+      /**
+       * Iterates over the collected keys and their values, reading back whatever was spilled to disk
+       */
+      Iterator<Entry<K, List<V>>> iterator();
+
+      boolean hasSpilled();
+
+      /**
+       * Moves everything another collector of the same kind collected into this one
+       */
+      void mergeFrom(CollectableCollector<K, V> other);
+
+      /**
+       * Releases the resources held by this collector, once its values are no longer needed
+       */
+      void dispose();
    }
    
    private static class DeltaAwareList<E> extends LinkedList<E> implements DeltaAware, Delta{
@@ -55,17 +55,20 @@
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -165,6 +168,8 @@
    protected Reducer<KOut, VOut> combiner;
    protected final boolean distributeReducePhase;
    protected final boolean useIntermediateSharedCache;
+   protected int parallelism = 1;
+   protected int spillThreshold;
 
    protected final Collection<KIn> keys;
    protected final AdvancedCache<KIn, VIn> cache;
@@ -305,19 +310,111 @@ public MapReduceTask<KIn, VIn, KOut, VOut> combinedWith(Reducer<KOut, VOut> comb
       return this;
    }
 
+   /**
+    * Specifies how many threads each node may use to run the map and combine phases of this task.
+    * <p>
+    * The input keys of a node are then split by segment among the threads, and every additional
+    * thread works on its own copy of the {@link Mapper} and of the combiner, cloned through
+    * marshalling. The number of threads is capped by the number of processors of each node. The
+    * default, 1, runs both phases on a single thread.
+    * 
+    * @param parallelism the maximum number of threads used per node
+    * @return this MapReduceTask itself
+    * @since 5.3
+    */
+   public MapReduceTask<KIn, VIn, KOut, VOut> usingParallelism(int parallelism) {
+      if (parallelism < 1)
+         throw new IllegalArgumentException("Parallelism has to be at least 1, was " + parallelism);
+      this.parallelism = parallelism;
+      return this;
+   }
+
+   /**
+    * Bounds the number of intermediate values each node keeps in memory during the map phase.
+    * <p>
+    * Once a node has collected that many values, they are sorted and written to a run file in the
+    * temporary directory of the node. The runs are merged back when the values are combined and
+    * moved to the reducers, so that only the values of a few keys are in memory at any time. Keys
+    * and values emitted by the {@link Mapper} then need to be marshallable. The default, 0, keeps
+    * all intermediate values in memory.
+    * 
+    * @param maxValuesInMemory the number of intermediate values kept in memory per node
+    * @return this MapReduceTask itself
+    * @since 5.3
+    */
+   public MapReduceTask<KIn, VIn, KOut, VOut> usingSpillThreshold(int maxValuesInMemory) {
+      if (maxValuesInMemory < 0)
+         throw new IllegalArgumentException("Spill threshold can not be negative, was " + maxValuesInMemory);
+      this.spillThreshold = maxValuesInMemory;
+      return this;
+   }
+
    /**
     * Executes this task across Infinispan cluster nodes.
     * 
     * @return a Map where each key is an output key and value is reduced value for that output key
     */
    public Map<KOut, VOut> execute() throws CacheException {
+      final Map<KOut, VOut> reduceResult = new HashMap<KOut, VOut>();
+      execute(new ReducedResultListener<KOut, VOut>() {
+
+         @Override
+         public boolean onResult(KOut key, VOut reducedValue) {
+            reduceResult.put(key, reducedValue);
+            return true;
+         }
+      });
+      return reduceResult;
+   }
+
+   /**
+    * Executes this task across Infinispan cluster nodes and hands each reduced key to the given
+    * listener as soon as the reduce phase that produced it has finished.
+    * <p>
+    * With a distributed reduce phase the results of a node are delivered as soon as that node is
+    * done, while the other nodes are still reducing. Otherwise the keys are reduced and delivered
+    * one by one on this node, without assembling the whole result first. Returning false from
+    * {@link ReducedResultListener#onResult(Object, Object)} cancels the rest of the task.
+    * 
+    * @param listener
+    *           the listener receiving the reduced results, invoked on the calling thread
+    * @since 5.3
+    */
+   public void execute(ReducedResultListener<KOut, VOut> listener) throws CacheException {
+      execute(listener, Integer.MAX_VALUE);
+   }
+
+   /**
+    * Executes this task across Infinispan cluster nodes and hands each reduced key to the given
+    * listener as soon as the reduce phase that produced it has finished.
+    * <p>
+    * With a distributed reduce phase at most maxPendingReduceParts nodes are asked to reduce at
+    * any time; the next node only starts once the results of a previous one have been handed to
+    * the listener. This bounds the amount of reduced results waiting on this node for a slow
+    * listener.
+    * 
+    * @param listener
+    *           the listener receiving the reduced results, invoked on the calling thread
+    * @param maxPendingReduceParts
+    *           the maximum number of nodes reducing, or holding reduced results not yet handed to
+    *           the listener, at any time
+    * @since 5.3
+    */
+   public void execute(ReducedResultListener<KOut, VOut> listener, int maxPendingReduceParts)
+            throws CacheException {
       if (mapper == null)
          throw new NullPointerException("A valid reference of Mapper is not set " + mapper);
 
       if (reducer == null)
          throw new NullPointerException("A valid reference of Reducer is not set " + reducer);
-      
-      
+
+      if (listener == null)
+         throw new NullPointerException("A valid reference of ReducedResultListener is not set");
+
+      if (maxPendingReduceParts < 1)
+         throw new IllegalArgumentException("At least one pending reduce part is needed, was "
+                  + maxPendingReduceParts);
+
       if(distributeReducePhase()){
          boolean useCompositeKeys = useIntermediateSharedCache();
          String intermediateCacheName = DEFAULT_TMP_CACHE_CONFIGURATION_NAME;
@@ -333,7 +430,8 @@ public Map<KOut, VOut> execute() throws CacheException {
             Set<KOut> allMapPhasesResponses = executeMapPhase(useCompositeKeys);
 
             // reduce
-            return executeReducePhase(allMapPhasesResponses, useCompositeKeys);
+            executeReducePhase(allMapPhasesResponses, useCompositeKeys, listener,
+                     maxPendingReduceParts);
          }
          catch (Exception cause){
             throw new CacheException(cause);
@@ -347,7 +445,7 @@ public Map<KOut, VOut> execute() throws CacheException {
          }
       } else {
          try {
-            return executeMapPhaseWithLocalReduction();
+            executeMapPhaseWithLocalReduction(listener);
          } catch (Exception cause){
             throw new CacheException(cause);
          }
@@ -436,8 +534,8 @@ protected Set<KOut> executeMapPhase(boolean useCompositeKeys) throws Interrupted
       return mapPhasesResult;
    }
 
-   protected Map<KOut, VOut> executeMapPhaseWithLocalReduction() throws InterruptedException,
-            ExecutionException {
+   protected void executeMapPhaseWithLocalReduction(ReducedResultListener<KOut, VOut> listener)
+            throws InterruptedException, ExecutionException {
       RpcManager rpc = cache.getRpcManager();
       MapCombineCommand<KIn, VIn, KOut, VOut> cmd = null;
       Map<KOut, List<VOut>> mapPhasesResult = new HashMap<KOut, List<VOut>>();
@@ -470,7 +568,6 @@ protected Map<KOut, VOut> executeMapPhaseWithLocalReduction() throws Interrupted
             futures.add(part);
          }
       }      
-      Map<KOut, VOut> reducedResult = new HashMap<KOut, VOut>();
       try {
          for (MapTaskPart<Map<KOut, List<VOut>>> mapTaskPart : futures) {
             // TODO in parallel with futures
@@ -486,14 +583,16 @@ protected Map<KOut, VOut> executeMapPhaseWithLocalReduction() throws Interrupted
       log.tracef("For m/r task %s invoking %s locally", taskId, reducer);
       try {
          taskLifecycleService.onPreExecute(reducer, cache);
-         for (Entry<KOut, List<VOut>> e : mapPhasesResult.entrySet()) {
+         for (Iterator<Entry<KOut, List<VOut>>> i = mapPhasesResult.entrySet().iterator(); i.hasNext();) {
             // TODO in parallel with futures
-            reducedResult.put(e.getKey(), reducer.reduce(e.getKey(), e.getValue().iterator()));
+            Entry<KOut, List<VOut>> e = i.next();
+            i.remove();
+            if (!listener.onResult(e.getKey(), reducer.reduce(e.getKey(), e.getValue().iterator())))
+               break;
          }
       } finally {
          taskLifecycleService.onPostExecute(reducer);
       }
-      return reducedResult;
    }
 
    protected <V> MapTaskPart<V> createTaskMapPart(MapCombineCommand<KIn, VIn, KOut, VOut> cmd,
@@ -503,8 +602,9 @@ protected <V> MapTaskPart<V> createTaskMapPart(MapCombineCommand<KIn, VIn, KOut,
       return mapTaskPart;
    }
 
-   protected Map<KOut, VOut> executeReducePhase(Set<KOut> allMapPhasesResponses,
-            boolean useCompositeKeys) throws InterruptedException, ExecutionException {
+   protected void executeReducePhase(Set<KOut> allMapPhasesResponses, boolean useCompositeKeys,
+            ReducedResultListener<KOut, VOut> listener, int maxPendingReduceParts)
+            throws InterruptedException, ExecutionException {
       RpcManager rpc = cache.getRpcManager();
       String destCache = null;
       if (useCompositeKeys) {
@@ -515,8 +615,8 @@ protected Map<KOut, VOut> executeReducePhase(Set<KOut> allMapPhasesResponses,
       Cache<Object, Object> dstCache = cache.getCacheManager().getCache(destCache);
       Map<Address, List<KOut>> keysToNodes = mapKeysToNodes(dstCache.getAdvancedCache()
                .getDistributionManager(), allMapPhasesResponses, useCompositeKeys);
-      Map<KOut, VOut> reduceResult = new HashMap<KOut, VOut>();
-      List<ReduceTaskPart<Map<KOut, VOut>>> reduceTasks = new ArrayList<ReduceTaskPart<Map<KOut, VOut>>>();
+      LinkedList<ReduceCommand<KOut, VOut>> reduceCommands = new LinkedList<ReduceCommand<KOut, VOut>>();
+      LinkedList<Address> reduceTargets = new LinkedList<Address>();
       ReduceCommand<KOut, VOut> reduceCommand = null;
       for (Entry<Address, List<KOut>> e : keysToNodes.entrySet()) {
          Address address = e.getKey();
@@ -528,18 +628,43 @@ protected Map<KOut, VOut> executeReducePhase(Set<KOut> allMapPhasesResponses,
             reduceCommand = buildReduceCommand(taskId.toString(), destCache, reducer, keys,
                      useCompositeKeys);
          }
-         ReduceTaskPart<Map<KOut, VOut>> part = createReducePart(reduceCommand, address, destCache);
-         part.execute();
-         reduceTasks.add(part);
+         reduceCommands.add(reduceCommand);
+         reduceTargets.add(address);
       }
+      // parts report to this queue once done, so results are handed out in completion order
+      BlockingQueue<TaskPart<Map<KOut, VOut>>> completedParts = new LinkedBlockingQueue<TaskPart<Map<KOut, VOut>>>();
+      int runningParts = 0;
+      boolean listening = true;
       try {
-         for (ReduceTaskPart<Map<KOut, VOut>> reduceTaskPart : reduceTasks) {
-            reduceResult.putAll(reduceTaskPart.get());
+         while (listening && (runningParts > 0 || !reduceCommands.isEmpty())) {
+            while (runningParts < maxPendingReduceParts && !reduceCommands.isEmpty()) {
+               ReduceTaskPart<Map<KOut, VOut>> part = createReducePart(reduceCommands.removeFirst(),
+                        reduceTargets.removeFirst(), destCache);
+               part.notifyCompletionTo(completedParts);
+               part.execute();
+               runningParts++;
+            }
+            TaskPart<Map<KOut, VOut>> part = completedParts.take();
+            runningParts--;
+            cancellableTasks.remove(part);
+            for (Entry<KOut, VOut> e : part.get().entrySet()) {
+               if (!listener.onResult(e.getKey(), e.getValue())) {
+                  listening = false;
+                  break;
+               }
+            }
          }
       } finally {
+         // no need to cancel parts that are already done
+         for (TaskPart<Map<KOut, VOut>> part = completedParts.poll(); part != null; part = completedParts.poll()) {
+            cancellableTasks.remove(part);
+         }
+         if (!cancellableTasks.isEmpty()) {
+            log.debugf("Cancelling remaining reduce parts of m/r task %s", taskId);
+            cancelTaskParts();
+         }
          cancellableTasks.clear();
       }
-      return reduceResult;
    }
 
    protected <V> ReduceTaskPart<V> createReducePart(ReduceCommand<KOut, VOut> cmd, Address target,
@@ -572,6 +697,8 @@ private MapCombineCommand<KIn, VIn, KOut, VOut> buildMapCombineCommand(
       MapCombineCommand<KIn, VIn, KOut, VOut> c = factory.buildMapCombineCommand(taskId, m, r, keys);
       c.setReducePhaseDistributed(reducePhaseDistributed);
       c.setEmitCompositeIntermediateKeys(emitCompositeIntermediateKeys);
+      c.setParallelism(parallelism);
+      c.setSpillThreshold(spillThreshold);
       return c;
    }
 
@@ -590,6 +717,34 @@ private CancelCommand buildCancelCommand(CancellableTaskPart taskPart){
       return factory.buildCancelCommandCommand(taskPart.getUUID());
    }
 
+   /**
+    * Cancels all currently running task parts through the {@link CancellationService} of their
+    * execution targets.
+    */
+   private void cancelTaskParts() {
+      synchronized (cancellableTasks) {
+         for (CancellableTaskPart task : cancellableTasks) {
+            cancelTaskPart(task);
+         }
+      }
+   }
+
+   private void cancelTaskPart(CancellableTaskPart task) {
+      RpcManager rpc = cache.getRpcManager();
+      boolean sendingToSelf = task.getExecutionTarget().equals(rpc.getTransport().getAddress());
+      CancelCommand cc = buildCancelCommand(task);
+      if (sendingToSelf) {
+         cc.init(cancellationService);
+         try {
+            cc.perform(null);
+         } catch (Throwable e) {
+            log.couldNotExecuteCancellationLocally(e.getLocalizedMessage());
+         }
+      } else {
+         rpc.invokeRemotely(Collections.singletonList(task.getExecutionTarget()), cc, rpc.getDefaultRpcOptions(true));
+      }
+   }
+
    /**
     * Executes this task across Infinispan cluster nodes asynchronously.
     * 
@@ -754,22 +909,9 @@ public R get() throws InterruptedException, ExecutionException {
       @Override
       public boolean cancel(boolean mayInterruptIfRunning) {
          if (!isCancelled()) {
-            RpcManager rpc = cache.getRpcManager();
             synchronized (cancellableTasks) {
                for (CancellableTaskPart task : cancellableTasks) {
-                  boolean sendingToSelf = task.getExecutionTarget().equals(
-                           rpc.getTransport().getAddress());
-                  CancelCommand cc = buildCancelCommand(task);
-                  if (sendingToSelf) {
-                     cc.init(cancellationService);
-                     try {
-                        cc.perform(null);
-                     } catch (Throwable e) {
-                        log.couldNotExecuteCancellationLocally(e.getLocalizedMessage());
-                     }
-                  } else {
-                     rpc.invokeRemotely(Collections.singletonList(task.getExecutionTarget()), cc, rpc.getDefaultRpcOptions(true));
-                  }
+                  cancelTaskPart(task);
                   cancelled = true;
                   done = true;
                }
@@ -796,6 +938,7 @@ public boolean isDone() {
 
       private Future<V> f;
       private final Address executionTarget;
+      private volatile BlockingQueue<? super TaskPart<V>> completionQueue;
 
       public TaskPart(Address executionTarget) {
          this.executionTarget = executionTarget;
@@ -841,6 +984,24 @@ protected boolean locallyExecuted(){
 
       public abstract void execute();
 
+      /**
+       * Makes this part add itself to the given queue once its result is available. Has to be
+       * called before {@link #execute()}.
+       */
+      public void notifyCompletionTo(BlockingQueue<? super TaskPart<V>> queue) {
+         this.completionQueue = queue;
+      }
+
+      protected FutureTask<V> newLocalFuture(Callable<V> callable) {
+         return new FutureTask<V>(callable) {
+
+            @Override
+            protected void done() {
+               notifyDone();
+            }
+         };
+      }
+
       @SuppressWarnings("unchecked")
       private V retrieveResult(Object response) throws ExecutionException {
          if (response == null) {
@@ -869,6 +1030,10 @@ public V get(long timeout, TimeUnit unit) throws InterruptedException, Execution
 
       @Override
       public void notifyDone() {
+         BlockingQueue<? super TaskPart<V>> queue = completionQueue;
+         if (queue != null) {
+            queue.offer(this);
+         }
       }
 
       @Override
@@ -915,7 +1080,7 @@ public void execute() {
                   }
                };
             }
-            FutureTask<V> futureTask = new FutureTask<V>((Callable<V>) callable);
+            FutureTask<V> futureTask = newLocalFuture((Callable<V>) callable);
             setNetworkFuture(futureTask);
             mapReduceManager.getExecutorService().submit(futureTask);
          } else {
@@ -988,7 +1153,7 @@ public void execute() {
                   return Collections.singletonMap(getAddress(), SuccessfulResponse.create(result));
                }
             };
-            FutureTask<V> futureTask = new FutureTask<V>((Callable<V>) callable);
+            FutureTask<V> futureTask = newLocalFuture((Callable<V>) callable);
             setNetworkFuture(futureTask);
             mapReduceManager.getExecutorService().submit(futureTask);
          } else {
@@ -0,0 +1,176 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.infinispan.distexec.mapreduce;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.infinispan.CacheException;
+
+/**
+ * Runs one phase of a map/reduce task, such as map or combine, over a list of partitions on several threads.
+ * <p>
+ * Every thread owns a worker, the state it accumulates its results in, and keeps taking the next unprocessed
+ * partition until none is left. The calling thread takes part as well, and helpers that did not get a thread from the
+ * executor by the time the caller runs out of partitions are simply dropped. The phase therefore completes even if the
+ * executor is saturated, possibly by other phases waiting for their own helpers.
+ * <p>
+ * This is an internal class, not intended to be used by clients.
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+abstract class ParallelPhase<P, W> {
+
+   private final List<P> partitions;
+   private final AtomicInteger nextPartition = new AtomicInteger();
+   private volatile boolean aborted;
+
+   ParallelPhase(List<P> partitions) {
+      this.partitions = partitions;
+   }
+
+   /**
+    * Creates the worker of a thread. The worker with index 0 belongs to the calling thread.
+    */
+   protected abstract W createWorker(int index) throws Exception;
+
+   protected abstract void process(W worker, P partition) throws Exception;
+
+   /**
+    * Invoked once the thread owning the worker has finished, even if it failed.
+    */
+   protected abstract void releaseWorker(W worker);
+
+   /**
+    * Whether the worker should stop, because the caller was interrupted or another worker failed.
+    */
+   protected final boolean shouldStop() {
+      return aborted || Thread.currentThread().isInterrupted();
+   }
+
+   /**
+    * Processes all partitions using at most <tt>parallelism</tt> threads, the calling thread included.
+    *
+    * @return the workers that took part, starting with the one of the calling thread
+    */
+   final List<W> execute(ExecutorService executor, int parallelism) throws InterruptedException {
+      int helperCount = Math.min(parallelism, partitions.size()) - 1;
+      List<Helper> helpers = new ArrayList<Helper>(Math.max(helperCount, 0));
+      for (int i = 1; i <= helperCount; i++) {
+         Helper helper = new Helper(i);
+         helpers.add(helper);
+         try {
+            executor.execute(helper);
+         } catch (RejectedExecutionException e) {
+            // the caller will pick up the partitions this helper would have processed
+            helper.claim();
+            helper.done.countDown();
+         }
+      }
+
+      List<W> workers = new ArrayList<W>(helperCount + 1);
+      Throwable failure = null;
+      try {
+         W own = createWorker(0);
+         workers.add(own);
+         try {
+            drain(own);
+         } finally {
+            releaseWorker(own);
+         }
+      } catch (Throwable t) {
+         aborted = true;
+         failure = t;
+      }
+
+      boolean interrupted = false;
+      for (Helper helper : helpers) {
+         // a helper that never started won't start anymore
+         if (helper.claim()) continue;
+         while (true) {
+            try {
+               helper.done.await();
+               break;
+            } catch (InterruptedException e) {
+               aborted = true;
+               interrupted = true;
+            }
+         }
+         if (helper.failure != null && failure == null) failure = helper.failure;
+         if (helper.worker != null) workers.add(helper.worker);
+      }
+      if (interrupted) Thread.currentThread().interrupt();
+
+      if (failure instanceof InterruptedException) throw (InterruptedException) failure;
+      if (failure instanceof RuntimeException) throw (RuntimeException) failure;
+      if (failure instanceof Error) throw (Error) failure;
+      if (failure != null) throw new CacheException(failure);
+      if (interrupted) throw new InterruptedException();
+      return workers;
+   }
+
+   private void drain(W worker) throws Exception {
+      int size = partitions.size();
+      int index;
+      while ((index = nextPartition.getAndIncrement()) < size) {
+         if (shouldStop()) throw new InterruptedException();
+         process(worker, partitions.get(index));
+      }
+   }
+
+   private final class Helper implements Runnable {
+      private final int index;
+      private final AtomicBoolean claimed = new AtomicBoolean();
+      private final CountDownLatch done = new CountDownLatch(1);
+      private W worker;
+      private Throwable failure;
+
+      Helper(int index) {
+         this.index = index;
+      }
+
+      boolean claim() {
+         return claimed.compareAndSet(false, true);
+      }
+
+      @Override
+      public void run() {
+         if (!claim()) return;
+         try {
+            worker = createWorker(index);
+            try {
+               drain(worker);
+            } finally {
+               releaseWorker(worker);
+            }
+         } catch (Throwable t) {
+            aborted = true;
+            failure = t;
+         } finally {
+            done.countDown();
+         }
+      }
+   }
+}
@@ -0,0 +1,45 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.infinispan.distexec.mapreduce;
+
+/**
+ * ReducedResultListener receives the results of a MapReduceTask one reduced key at a time, as soon
+ * as the reducers that produced them have finished, instead of waiting for the whole task to
+ * complete.
+ * <p>
+ * Results are delivered one at a time on the thread that invoked
+ * {@link MapReduceTask#execute(ReducedResultListener)}.
+ * 
+ * @see MapReduceTask#execute(ReducedResultListener)
+ * @see MapReduceTask#execute(ReducedResultListener, int)
+ * 
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+public interface ReducedResultListener<KOut, VOut> {
+
+   /**
+    * Invoked once for every reduced key of a task.
+    * 
+    * @param key an output key
+    * @param reducedValue the reduced value for that output key
+    * @return true to receive further results, false to cancel the rest of the task
+    */
+   boolean onResult(KOut key, VOut reducedValue);
+}
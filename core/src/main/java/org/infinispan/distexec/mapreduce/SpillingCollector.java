@@ -0,0 +1,362 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.infinispan.distexec.mapreduce;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.OutputStream;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+import org.infinispan.CacheException;
+import org.infinispan.distexec.mapreduce.MapReduceManagerImpl.CollectableCollector;
+import org.infinispan.marshall.StreamingMarshaller;
+import org.infinispan.util.Util;
+import org.infinispan.util.logging.Log;
+import org.infinispan.util.logging.LogFactory;
+
+/**
+ * A collector that holds a bounded number of values in memory.
+ * <p>
+ * Once the number of buffered values reaches the threshold, the buffered keys are sorted by hash code and written to
+ * a run file in the temporary directory, together with their values. {@link #iterator()} merges all runs and what is
+ * still buffered, so that each key comes up once with all its values, and only the values of a single hash code are
+ * held in memory at a time. Keys don't need to be {@link Comparable}, but keys and values must be marshallable.
+ * <p>
+ * A collector is used by a single thread. This is an internal class, not intended to be used by clients.
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+final class SpillingCollector<K, V> implements CollectableCollector<K, V> {
+
+   private static final Log log = LogFactory.getLog(SpillingCollector.class);
+   private static final int BUFFER_SIZE = 64 * 1024;
+
+   private static final Comparator<Entry<?, ?>> BY_KEY_HASH = new Comparator<Entry<?, ?>>() {
+      @Override
+      public int compare(Entry<?, ?> e1, Entry<?, ?> e2) {
+         int h1 = hash(e1.getKey()), h2 = hash(e2.getKey());
+         return h1 < h2 ? -1 : (h1 == h2 ? 0 : 1);
+      }
+   };
+
+   private final int maxBufferedValues;
+   private final StreamingMarshaller marshaller;
+   private final List<File> runs = new ArrayList<File>();
+   private final List<FileRun> openRuns = new ArrayList<FileRun>();
+   private Map<K, List<V>> buffer = new HashMap<K, List<V>>();
+   private int bufferedValues;
+
+   SpillingCollector(int maxBufferedValues, StreamingMarshaller marshaller) {
+      this.maxBufferedValues = Math.max(1, maxBufferedValues);
+      this.marshaller = marshaller;
+   }
+
+   @Override
+   public void emit(K key, V value) {
+      List<V> list = buffer.get(key);
+      if (list == null) {
+         list = new LinkedList<V>();
+         buffer.put(key, list);
+      }
+      list.add(value);
+      if (++bufferedValues >= maxBufferedValues) spill();
+   }
+
+   @Override
+   public Map<K, List<V>> collectedValues() {
+      if (runs.isEmpty()) return buffer;
+      Map<K, List<V>> all = new HashMap<K, List<V>>();
+      for (Iterator<Entry<K, List<V>>> it = iterator(); it.hasNext(); ) {
+         Entry<K, List<V>> e = it.next();
+         all.put(e.getKey(), e.getValue());
+      }
+      return all;
+   }
+
+   @Override
+   public boolean hasSpilled() {
+      return !runs.isEmpty();
+   }
+
+   @Override
+   public void mergeFrom(CollectableCollector<K, V> collector) {
+      SpillingCollector<K, V> other = (SpillingCollector<K, V>) collector;
+      runs.addAll(other.runs);
+      other.runs.clear();
+      for (Entry<K, List<V>> e : other.buffer.entrySet()) {
+         List<V> list = buffer.get(e.getKey());
+         if (list == null) {
+            buffer.put(e.getKey(), e.getValue());
+         } else {
+            list.addAll(e.getValue());
+         }
+         bufferedValues += e.getValue().size();
+      }
+      other.buffer = new HashMap<K, List<V>>();
+      other.bufferedValues = 0;
+      if (bufferedValues >= maxBufferedValues) spill();
+   }
+
+   @Override
+   public Iterator<Entry<K, List<V>>> iterator() {
+      List<Run<K, V>> sources = new ArrayList<Run<K, V>>(runs.size() + 1);
+      for (File file : runs) {
+         FileRun run = new FileRun(file);
+         openRuns.add(run);
+         sources.add(run);
+      }
+      if (!buffer.isEmpty()) sources.add(new BufferRun<K, V>(sortedByKeyHash(buffer)));
+      return new MergingIterator<K, V>(sources);
+   }
+
+   @Override
+   public void dispose() {
+      for (FileRun run : openRuns) run.close();
+      openRuns.clear();
+      for (File file : runs) {
+         if (!file.delete()) log.debugf("Could not delete map/reduce run file %s", file);
+      }
+      runs.clear();
+      buffer = new HashMap<K, List<V>>();
+      bufferedValues = 0;
+   }
+
+   private void spill() {
+      List<Entry<K, List<V>>> entries = sortedByKeyHash(buffer);
+      File file = null;
+      OutputStream os = null;
+      try {
+         file = File.createTempFile("infinispan-mapreduce-", ".run");
+         os = new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE);
+         ObjectOutput out = marshaller.startObjectOutput(os, true, BUFFER_SIZE);
+         try {
+            out.writeInt(entries.size());
+            for (Entry<K, List<V>> e : entries) {
+               marshaller.objectToObjectStream(e.getKey(), out);
+               out.writeInt(e.getValue().size());
+               for (V value : e.getValue()) marshaller.objectToObjectStream(value, out);
+            }
+            out.flush();
+         } finally {
+            marshaller.finishObjectOutput(out);
+         }
+         os.close();
+         os = null;
+      } catch (IOException e) {
+         Util.close(os);
+         if (file != null) file.delete();
+         throw new CacheException("Could not spill intermediate map/reduce results to disk", e);
+      }
+      log.tracef("Spilled %s values of %s keys to %s", bufferedValues, entries.size(), file);
+      runs.add(file);
+      buffer = new HashMap<K, List<V>>();
+      bufferedValues = 0;
+   }
+
+   private static <K, V> List<Entry<K, List<V>>> sortedByKeyHash(Map<K, List<V>> map) {
+      List<Entry<K, List<V>>> entries = new ArrayList<Entry<K, List<V>>>(map.entrySet());
+      Collections.sort(entries, BY_KEY_HASH);
+      return entries;
+   }
+
+   private static int hash(Object key) {
+      return key == null ? 0 : key.hashCode();
+   }
+
+   /**
+    * A sequence of keys and their values, ordered by key hash code.
+    */
+   private interface Run<K, V> {
+      /**
+       * Moves to the next key, returns false once the run is exhausted.
+       */
+      boolean advance();
+
+      K key();
+
+      List<V> values();
+   }
+
+   private static final class BufferRun<K, V> implements Run<K, V> {
+      private final Iterator<Entry<K, List<V>>> entries;
+      private Entry<K, List<V>> current;
+
+      BufferRun(List<Entry<K, List<V>>> entries) {
+         this.entries = entries.iterator();
+      }
+
+      @Override
+      public boolean advance() {
+         current = entries.hasNext() ? entries.next() : null;
+         return current != null;
+      }
+
+      @Override
+      public K key() {
+         return current.getKey();
+      }
+
+      @Override
+      public List<V> values() {
+         return current.getValue();
+      }
+   }
+
+   private final class FileRun implements Run<K, V> {
+      private final File file;
+      private InputStream is;
+      private ObjectInput in;
+      private int remaining = -1;
+      private K key;
+      private List<V> values;
+
+      FileRun(File file) {
+         this.file = file;
+      }
+
+      @Override
+      @SuppressWarnings("unchecked")
+      public boolean advance() {
+         try {
+            if (remaining < 0) {
+               is = new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE);
+               in = marshaller.startObjectInput(is, true);
+               remaining = in.readInt();
+            }
+            if (remaining == 0) {
+               close();
+               return false;
+            }
+            remaining--;
+            key = (K) marshaller.objectFromObjectStream(in);
+            int count = in.readInt();
+            values = new LinkedList<V>();
+            for (int i = 0; i < count; i++) values.add((V) marshaller.objectFromObjectStream(in));
+            return true;
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close();
+            throw new CacheException("Interrupted while reading map/reduce run file " + file, e);
+         } catch (Exception e) {
+            close();
+            throw new CacheException("Could not read map/reduce run file " + file, e);
+         }
+      }
+
+      @Override
+      public K key() {
+         return key;
+      }
+
+      @Override
+      public List<V> values() {
+         return values;
+      }
+
+      void close() {
+         if (in != null) {
+            marshaller.finishObjectInput(in);
+            in = null;
+         }
+         Util.close(is);
+         is = null;
+      }
+   }
+
+   /**
+    * Merges runs ordered by key hash code. Keys with equal hash codes are compared with equals, so that the values of
+    * a key spread across several runs come up together.
+    */
+   private static final class MergingIterator<K, V> implements Iterator<Entry<K, List<V>>> {
+      private final PriorityQueue<Run<K, V>> heads;
+      private Iterator<Entry<K, List<V>>> pending = Collections.<Entry<K, List<V>>>emptyList().iterator();
+
+      MergingIterator(List<Run<K, V>> runs) {
+         heads = new PriorityQueue<Run<K, V>>(Math.max(1, runs.size()), new Comparator<Run<K, V>>() {
+            @Override
+            public int compare(Run<K, V> r1, Run<K, V> r2) {
+               int h1 = hash(r1.key()), h2 = hash(r2.key());
+               return h1 < h2 ? -1 : (h1 == h2 ? 0 : 1);
+            }
+         });
+         for (Run<K, V> run : runs) {
+            if (run.advance()) heads.add(run);
+         }
+      }
+
+      @Override
+      public boolean hasNext() {
+         if (pending.hasNext()) return true;
+         if (heads.isEmpty()) return false;
+         // gather everything with the lowest hash code from all runs
+         int hash = hash(heads.peek().key());
+         Map<K, List<V>> group = new LinkedHashMap<K, List<V>>(4);
+         while (!heads.isEmpty() && hash(heads.peek().key()) == hash) {
+            Run<K, V> run = heads.poll();
+            boolean more;
+            do {
+               List<V> values = group.get(run.key());
+               if (values == null) {
+                  group.put(run.key(), run.values());
+               } else {
+                  values.addAll(run.values());
+               }
+            } while ((more = run.advance()) && hash(run.key()) == hash);
+            if (more) heads.add(run);
+         }
+         List<Entry<K, List<V>>> entries = new ArrayList<Entry<K, List<V>>>(group.size());
+         for (Entry<K, List<V>> e : group.entrySet()) {
+            entries.add(new SimpleImmutableEntry<K, List<V>>(e.getKey(), e.getValue()));
+         }
+         pending = entries.iterator();
+         return true;
+      }
+
+      @Override
+      public Entry<K, List<V>> next() {
+         if (!hasNext()) throw new NoSuchElementException();
+         return pending.next();
+      }
+
+      @Override
+      public void remove() {
+         throw new UnsupportedOperationException();
+      }
+   }
+}
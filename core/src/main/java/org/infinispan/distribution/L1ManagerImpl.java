@@ -46,17 +46,22 @@
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
-import java.util.Map;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import static org.infinispan.factories.KnownComponentNames.ASYNC_TRANSPORT_EXECUTOR;
 
@@ -69,11 +74,12 @@ public class L1ManagerImpl implements L1Manager {
    private RpcManager rpcManager;
    private CommandsFactory commandsFactory;
    private int threshold;
-   private long l1Lifespan;
+   private int maxRequestorAge;
+   private long invalidationBatchWindow;
    private ExecutorService asyncTransportExecutor;
 
-   // TODO replace this with a custom, expirable collection
-   private final ConcurrentMap<Object, ConcurrentMap<Address, Long>> requestors;
+   private final L1RequestorIndex requestors;
+   private final ConcurrentMap<Address, InvalidationBatch> pendingBatches;
    private ScheduledExecutorService scheduledExecutor;
    private ScheduledFuture<?> scheduledRequestorsCleanupTask;
 
@@ -81,7 +87,8 @@ public class L1ManagerImpl implements L1Manager {
    private RpcOptions syncIgnoreLeaversRpcOptions;
 
    public L1ManagerImpl() {
-	   requestors = ConcurrentMapFactory.makeConcurrentMap();
+      requestors = new L1RequestorIndex();
+      pendingBatches = ConcurrentMapFactory.makeConcurrentMap();
    }
 
    @Inject
@@ -98,15 +105,18 @@ public void init(Configuration configuration, RpcManager rpcManager, CommandsFac
    @Start (priority = 3)
    public void start() {
       this.threshold = configuration.clustering().l1().invalidationThreshold();
-      this.l1Lifespan = configuration.clustering().l1().lifespan();
-      if (configuration.clustering().l1().cleanupTaskFrequency() > 0) {
+      this.invalidationBatchWindow = configuration.clustering().l1().invalidationBatchWindow();
+      long cleanupTaskFrequency = configuration.clustering().l1().cleanupTaskFrequency();
+      if (cleanupTaskFrequency > 0) {
+         // a key is only dropped once a whole lifespan has passed since the generation in which it was last requested
+         long lifespan = configuration.clustering().l1().lifespan();
+         maxRequestorAge = (int) Math.min(Integer.MAX_VALUE / 2, (lifespan + cleanupTaskFrequency - 1) / cleanupTaskFrequency);
          scheduledRequestorsCleanupTask = scheduledExecutor.scheduleAtFixedRate(new Runnable() {
             @Override
             public void run() {
                cleanUpRequestors();
             }
-         }, configuration.clustering().l1().cleanupTaskFrequency(),
-               configuration.clustering().l1().cleanupTaskFrequency(), TimeUnit.MILLISECONDS);
+         }, cleanupTaskFrequency, cleanupTaskFrequency, TimeUnit.MILLISECONDS);
       } else {
          log.warn("Not using an L1 invalidation reaper thread. This could lead to memory leaks as the requestors map may grow indefinitely!");
       }
@@ -118,42 +128,18 @@ public void run() {
    @Stop (priority = 3)
    public void stop() {
       if (scheduledRequestorsCleanupTask != null) scheduledRequestorsCleanupTask.cancel(true);
+      // don't leave writers waiting for batches whose timer will never fire
+      for (InvalidationBatch batch : pendingBatches.values()) batch.task.run();
    }
 
    private void cleanUpRequestors() {
-      long expiryTime = System.currentTimeMillis() - l1Lifespan;
-      for (Map.Entry<Object, ConcurrentMap<Address, Long>> entry: requestors.entrySet()) {
-         Object key = entry.getKey();
-         ConcurrentMap<Address, Long> reqs = entry.getValue();
-         prune(reqs, expiryTime);
-         if (reqs.isEmpty()) requestors.remove(key);
-      }
-   }
-   
-   private void prune(ConcurrentMap<Address, Long> reqs, long expiryTime) {
-      for (Map.Entry<Address, Long> req: reqs.entrySet()) {
-         if (req.getValue() < expiryTime) reqs.remove(req.getKey());
-      }
+      requestors.age(maxRequestorAge);
    }
-   
+
    @Override
    public void addRequestor(Object key, Address origin) {
-      //we do a plain get first as that's likely to be enough
-      ConcurrentMap<Address, Long> as = requestors.get(key);
-      log.tracef("Registering requestor %s for key '%s'", origin, key);
-      long now = System.currentTimeMillis();
-      if (as == null) {
-         // only if needed we create a new HashSet, but make sure we don't replace another one being created
-         as = ConcurrentMapFactory.makeConcurrentMap();
-         as.put(origin, now);
-         ConcurrentMap<Address, Long> previousAs = requestors.putIfAbsent(key, as);
-         if (previousAs != null) {
-            //another thread added it already, so use his copy and discard our proposed instance
-            previousAs.put(origin, now);
-         }
-      } else {
-         as.put(origin, now);
-      }
+      if (trace) log.tracef("Registering requestor %s for key '%s'", origin, key);
+      requestors.add(key, origin);
    }
 
    @Override
@@ -183,6 +169,8 @@ public void run() {
                   rpcManager.invokeRemotely(null, rpcCommand, rpcManager.getDefaultRpcOptions(true));
                }
             };
+         } else if (invalidationBatchWindow > 0) {
+            return invalidateInBatches(invalidationAddresses, keys, origin, null);
          } else {
             toExecute = new Runnable() {
                @Override
@@ -229,6 +217,9 @@ public Object call() throws Exception {
                   }
                });
             }
+         } else if (invalidationBatchWindow > 0 && !useNotifyingFuture) {
+            if (trace) log.tracef("Keys %s need invalidation on %s, batching them", keys, invalidationAddresses);
+            return invalidateInBatches(invalidationAddresses, keys, origin, retval);
          } else {
             final CacheRpcCommand rpc = commandsFactory.buildSingleRpcCommand(
                   commandsFactory.buildInvalidateFromL1Command(origin, false,
@@ -259,9 +250,8 @@ private Collection<Address> buildInvalidationAddressList(Collection<Object> keys
       Collection<Address> addresses = new HashSet<Address>(2);
       boolean originIsInRequestorsList = false;
       for (Object key : keys) {
-         ConcurrentMap<Address, Long> as = requestors.remove(key);
-         if (as != null) {
-            Set<Address> requestorAddresses = as.keySet();
+         Set<Address> requestorAddresses = requestors.remove(key);
+         if (requestorAddresses != null) {
             addresses.addAll(requestorAddresses);
             if (assumeOriginKeptEntryInL1 && origin != null && requestorAddresses.contains(origin)) {
                originIsInRequestorsList = true;
@@ -285,4 +275,127 @@ private boolean isUseMulticast(int nodes) {
       // we decide:
       return nodes > threshold;
    }
+
+   /**
+    * Adds the keys to the pending invalidation batch of every target, starting a new batch where there is none.
+    */
+   private Future<Object> invalidateInBatches(Collection<Address> targets, Collection<Object> keys, Address origin, Object retval) {
+      List<Future<Object>> batchFutures = new ArrayList<Future<Object>>(targets.size());
+      for (Address target : targets) {
+         while (true) {
+            InvalidationBatch batch = pendingBatches.get(target);
+            if (batch == null) {
+               InvalidationBatch created = new InvalidationBatch(target);
+               batch = pendingBatches.putIfAbsent(target, created);
+               if (batch == null) {
+                  batch = created;
+                  scheduleBatch(created);
+               }
+            }
+            if (batch.add(keys, origin)) {
+               batchFutures.add(batch.task);
+               break;
+            }
+            // the batch is already being sent, retry with a fresh one
+            pendingBatches.remove(target, batch);
+         }
+      }
+      return new BatchedInvalidationFuture(batchFutures, retval);
+   }
+
+   private void scheduleBatch(final InvalidationBatch batch) {
+      scheduledExecutor.schedule(new Runnable() {
+         @Override
+         public void run() {
+            asyncTransportExecutor.execute(batch.task);
+         }
+      }, invalidationBatchWindow, TimeUnit.MILLISECONDS);
+   }
+
+   /**
+    * The keys waiting to be invalidated on a single node.
+    */
+   private final class InvalidationBatch implements Callable<Object> {
+      final Address target;
+      final FutureTask<Object> task = new FutureTask<Object>(this);
+      private final Set<Object> keys = new HashSet<Object>();
+      private Address writeOrigin;
+      private boolean closed;
+
+      InvalidationBatch(Address target) {
+         this.target = target;
+      }
+
+      synchronized boolean add(Collection<Object> keysToAdd, Address origin) {
+         if (closed) return false;
+         // the write origin is only informative, keep it only as long as all the writes came from the same node
+         if (keys.isEmpty()) writeOrigin = origin;
+         else if (writeOrigin != null && !writeOrigin.equals(origin)) writeOrigin = null;
+         keys.addAll(keysToAdd);
+         return true;
+      }
+
+      @Override
+      public Object call() throws Exception {
+         Collection<Object> toInvalidate;
+         Address origin;
+         synchronized (this) {
+            closed = true;
+            toInvalidate = keys;
+            origin = writeOrigin;
+         }
+         pendingBatches.remove(target, this);
+         if (toInvalidate.isEmpty()) return null;
+         if (trace) log.tracef("Invalidating batch of keys %s on %s", toInvalidate, target);
+         CacheRpcCommand rpc = commandsFactory.buildSingleRpcCommand(
+               commandsFactory.buildInvalidateFromL1Command(origin, false, InfinispanCollections.<Flag>emptySet(), toInvalidate));
+         rpcManager.invokeRemotely(Collections.singleton(target), rpc, syncRpcOptions);
+         return null;
+      }
+   }
+
+   /**
+    * Completes once the batches of all the targets of an invalidation have been sent.
+    */
+   private static final class BatchedInvalidationFuture implements Future<Object> {
+      private final List<Future<Object>> batchFutures;
+      private final Object retval;
+
+      BatchedInvalidationFuture(List<Future<Object>> batchFutures, Object retval) {
+         this.batchFutures = batchFutures;
+         this.retval = retval;
+      }
+
+      @Override
+      public boolean cancel(boolean mayInterruptIfRunning) {
+         // batches are shared with other writers, so they cannot be cancelled on behalf of a single one
+         return false;
+      }
+
+      @Override
+      public boolean isCancelled() {
+         return false;
+      }
+
+      @Override
+      public boolean isDone() {
+         for (Future<Object> f : batchFutures) {
+            if (!f.isDone()) return false;
+         }
+         return true;
+      }
+
+      @Override
+      public Object get() throws InterruptedException, ExecutionException {
+         for (Future<Object> f : batchFutures) f.get();
+         return retval;
+      }
+
+      @Override
+      public Object get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+         long deadline = System.nanoTime() + unit.toNanos(timeout);
+         for (Future<Object> f : batchFutures) f.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+         return retval;
+      }
+   }
 }
@@ -0,0 +1,151 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.infinispan.distribution;
+
+import org.infinispan.remoting.transport.Address;
+import org.infinispan.util.concurrent.ConcurrentMapFactory;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Keeps track of the nodes that hold a key in their L1 cache.
+ * <p/>
+ * Instead of a map of addresses and timestamps per key, every node that ever requested a key is given a small integer
+ * index, and each key only keeps a bitset of these indices plus the generation in which it was last requested.
+ * Generations are advanced by {@link #age(int)}, which also drops the keys that were not requested for more than the
+ * given number of generations. Indices are never reused, so a node that left the cluster keeps its slot; this costs
+ * one reference per departed node.
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+final class L1RequestorIndex {
+
+   private final ConcurrentMap<Object, Requestors> requestors = ConcurrentMapFactory.makeConcurrentMap();
+   private final ConcurrentMap<Address, Integer> memberIndices = ConcurrentMapFactory.makeConcurrentMap();
+   private volatile Address[] members = new Address[0];
+   private volatile int generation;
+
+   /**
+    * Records that the given node requested the key.
+    */
+   void add(Object key, Address requestor) {
+      int index = indexOf(requestor);
+      int currentGeneration = generation;
+      Requestors existing = requestors.get(key);
+      if (existing == null) {
+         Requestors created = new Requestors(index, currentGeneration);
+         existing = requestors.putIfAbsent(key, created);
+         if (existing == null) return;
+      }
+      existing.add(index, currentGeneration);
+   }
+
+   /**
+    * Removes the key and returns the nodes that requested it, or null if no node did.
+    */
+   Set<Address> remove(Object key) {
+      Requestors removed = requestors.remove(key);
+      return removed == null ? null : removed.toAddresses(members);
+   }
+
+   /**
+    * Starts a new generation and drops the keys that were last requested more than <tt>maxAge</tt> generations ago.
+    * Only one thread at a time may age the index.
+    */
+   void age(int maxAge) {
+      int currentGeneration = generation + 1;
+      generation = currentGeneration;
+      for (Map.Entry<Object, Requestors> entry : requestors.entrySet()) {
+         Requestors value = entry.getValue();
+         if (currentGeneration - value.generation > maxAge) requestors.remove(entry.getKey(), value);
+      }
+   }
+
+   int size() {
+      return requestors.size();
+   }
+
+   private int indexOf(Address member) {
+      Integer index = memberIndices.get(member);
+      if (index == null) {
+         synchronized (this) {
+            index = memberIndices.get(member);
+            if (index == null) {
+               Address[] current = members;
+               Address[] updated = Arrays.copyOf(current, current.length + 1);
+               updated[current.length] = member;
+               // publish the address before its index, so anyone who sees the index can resolve it
+               members = updated;
+               index = current.length;
+               memberIndices.put(member, index);
+            }
+         }
+      }
+      return index;
+   }
+
+   private static final class Requestors {
+      private static final AtomicReferenceFieldUpdater<Requestors, long[]> BITS_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(Requestors.class, long[].class, "bits");
+
+      private volatile long[] bits;
+      private volatile int generation;
+
+      Requestors(int index, int generation) {
+         long[] initial = new long[(index >>> 6) + 1];
+         initial[index >>> 6] = 1L << index;
+         this.bits = initial;
+         this.generation = generation;
+      }
+
+      void add(int index, int currentGeneration) {
+         int word = index >>> 6;
+         long mask = 1L << index;
+         while (true) {
+            long[] current = bits;
+            if (word < current.length && (current[word] & mask) != 0) break;
+            long[] updated = Arrays.copyOf(current, Math.max(current.length, word + 1));
+            updated[word] |= mask;
+            if (BITS_UPDATER.compareAndSet(this, current, updated)) break;
+         }
+         // avoid dirtying the cache line when the key is requested repeatedly within a generation
+         if (generation != currentGeneration) generation = currentGeneration;
+      }
+
+      Set<Address> toAddresses(Address[] members) {
+         long[] current = bits;
+         Set<Address> addresses = new HashSet<Address>(4);
+         for (int word = 0; word < current.length; word++) {
+            long remaining = current[word];
+            while (remaining != 0) {
+               int bit = Long.numberOfTrailingZeros(remaining);
+               addresses.add(members[(word << 6) + bit]);
+               remaining &= remaining - 1;
+            }
+         }
+         return addresses;
+      }
+   }
+}
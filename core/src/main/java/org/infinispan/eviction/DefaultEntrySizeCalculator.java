@@ -0,0 +1,81 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+
+package org.infinispan.eviction;
+
+import org.infinispan.util.ByteArrayKey;
+
+/**
+ * The default {@link EntrySizeCalculator}. The sizes of {@code byte[]}, {@link ByteArrayKey}, {@link String} and the
+ * primitive wrappers are computed exactly, assuming a 64 bit JVM with compressed references. Any other object is
+ * counted as {@link #UNKNOWN_OBJECT_SIZE} bytes; caches storing other types should subclass this calculator and
+ * override {@link #getObjectSize(Object)}, or plug in a calculator of their own.
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+public class DefaultEntrySizeCalculator implements EntrySizeCalculator<Object, Object> {
+
+   public static final int OBJECT_HEADER = 12;
+   public static final int ARRAY_HEADER = 16;
+   public static final int REFERENCE = 4;
+
+   /**
+    * The size assumed for objects whose type this calculator does not know about.
+    */
+   protected static final int UNKNOWN_OBJECT_SIZE = 64;
+
+   @Override
+   public long getEntrySize(Object key, Object value) {
+      return getObjectSize(key) + getObjectSize(value);
+   }
+
+   /**
+    * @return the estimated size of the given object, including the objects it references
+    */
+   protected long getObjectSize(Object o) {
+      if (o == null)
+         return 0;
+      if (o instanceof byte[])
+         return byteArraySize(((byte[]) o).length);
+      if (o instanceof ByteArrayKey)
+         // reference to the array and cached hash code
+         return align(OBJECT_HEADER + REFERENCE + 4) + byteArraySize(((ByteArrayKey) o).getData().length);
+      if (o instanceof String)
+         // reference to the array, offset, count and cached hash code
+         return align(OBJECT_HEADER + REFERENCE + 12) + align(ARRAY_HEADER + 2L * ((String) o).length());
+      if (o instanceof Long || o instanceof Double)
+         return align(OBJECT_HEADER + 8);
+      if (o instanceof Integer || o instanceof Float || o instanceof Short || o instanceof Byte
+            || o instanceof Character || o instanceof Boolean)
+         return align(OBJECT_HEADER + 4);
+      return UNKNOWN_OBJECT_SIZE;
+   }
+
+   public static long byteArraySize(int length) {
+      return align(ARRAY_HEADER + (long) length);
+   }
+
+   /**
+    * Rounds the given size up to the 8 byte granularity of object allocation.
+    */
+   public static long align(long size) {
+      return (size + 7) & ~7L;
+   }
+}
@@ -0,0 +1,40 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+
+package org.infinispan.eviction;
+
+/**
+ * Estimates how much memory a cache entry occupies, so that eviction can be bounded by memory rather than by
+ * number of entries (see {@link org.infinispan.configuration.cache.EvictionConfigurationBuilder#maxMemory(long)}).
+ * <p/>
+ * Implementations are invoked on every write, while holding the lock of the container segment the entry belongs
+ * to, so they must be cheap and must not block. Estimates must be consistent: the same key and value must always
+ * yield the same size.
+ *
+ * @author Olaf Bergner
+ * @see DefaultEntrySizeCalculator
+ * @since 5.3
+ */
+public interface EntrySizeCalculator<K, V> {
+
+   /**
+    * @return the estimated number of bytes occupied by the given key and value, never negative
+    */
+   long getEntrySize(K key, V value);
+}
@@ -38,7 +38,11 @@ public enum EvictionStrategy {
    @Deprecated
    FIFO, 
    LRU, 
-   LIRS;
+   LIRS,
+   /*
+    * Window TinyLFU: recency and frequency based eviction which records reads without locking
+    */
+   TINY_LFU;
 
    public boolean isEnabled() {
       return this != NONE;
@@ -23,8 +23,13 @@
 package org.infinispan.factories;
 
 import org.infinispan.config.ConfigurationException;
+import org.infinispan.configuration.cache.HashConfiguration;
 import org.infinispan.container.DataContainer;
 import org.infinispan.container.DefaultDataContainer;
+import org.infinispan.container.OffHeapDataContainer;
+import org.infinispan.container.SegmentedDataContainer;
+import org.infinispan.eviction.DefaultEntrySizeCalculator;
+import org.infinispan.eviction.EntrySizeCalculator;
 import org.infinispan.eviction.EvictionStrategy;
 import org.infinispan.eviction.EvictionThreadPolicy;
 import org.infinispan.factories.annotations.DefaultFactoryFor;
@@ -48,20 +53,40 @@ public <T> T construct(Class<T> componentType) {
       } else {
          EvictionStrategy st = configuration.eviction().strategy();
          int level = configuration.locking().concurrencyLevel();
+
+         if (configuration.dataContainer().offHeap()) {
+            if (!st.isEnabled())
+               return (T) new OffHeapDataContainer(level);
+            return (T) new OffHeapDataContainer(level, configuration.eviction().maxMemory(), st,
+                                                configuration.eviction().threadPolicy());
+         }
         
          switch (st) {
-            case NONE:         
+            case NONE:
+               if (configuration.dataContainer().segmented() && configuration.clustering().cacheMode().isDistributed()) {
+                  HashConfiguration hash = configuration.clustering().hash();
+                  return (T) new SegmentedDataContainer(level, hash.numSegments(), hash.hash());
+               }
                return (T) DefaultDataContainer.unBoundedDataContainer(level);
             case UNORDERED:   
             case LRU:
             case FIFO:
             case LIRS:
+            case TINY_LFU:
+               EvictionThreadPolicy policy = configuration.eviction().threadPolicy();
+               long maxMemory = configuration.eviction().maxMemory();
+               if (maxMemory > 0) {
+                  EntrySizeCalculator<Object, Object> sizeCalculator = configuration.eviction().sizeCalculator();
+                  if (sizeCalculator == null) {
+                     sizeCalculator = new DefaultEntrySizeCalculator();
+                  }
+                  return (T) DefaultDataContainer.boundedDataContainer(level, maxMemory, st, policy, sizeCalculator);
+               }
                int maxEntries = configuration.eviction().maxEntries();
                //handle case when < 0 value signifies unbounded container 
                if(maxEntries < 0) {
                    return (T) DefaultDataContainer.unBoundedDataContainer(level);
                }
-               EvictionThreadPolicy policy = configuration.eviction().threadPolicy();
                return (T) DefaultDataContainer.boundedDataContainer(level, maxEntries, st, policy);
             default:
                throw new ConfigurationException("Unknown eviction strategy "
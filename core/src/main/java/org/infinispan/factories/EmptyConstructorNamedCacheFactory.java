@@ -40,6 +40,7 @@
 import org.infinispan.eviction.PassivationManager;
 import org.infinispan.eviction.PassivationManagerImpl;
 import org.infinispan.factories.annotations.DefaultFactoryFor;
+import org.infinispan.interceptors.InterceptorProfiler;
 import org.infinispan.interceptors.locking.ClusteringDependentLogic;
 import org.infinispan.loaders.CacheLoaderManager;
 import org.infinispan.loaders.CacheLoaderManagerImpl;
@@ -51,7 +52,9 @@
 import org.infinispan.transaction.totalorder.TotalOrderManager;
 import org.infinispan.transaction.xa.TransactionFactory;
 import org.infinispan.transaction.xa.recovery.RecoveryAdminOperations;
+import org.infinispan.util.concurrent.locks.containers.KeyLockContainer;
 import org.infinispan.util.concurrent.locks.containers.LockContainer;
+import org.infinispan.util.concurrent.locks.containers.LockTableContainer;
 import org.infinispan.util.concurrent.locks.containers.OwnableReentrantPerEntryLockContainer;
 import org.infinispan.util.concurrent.locks.containers.OwnableReentrantStripedLockContainer;
 import org.infinispan.util.concurrent.locks.containers.ReentrantPerEntryLockContainer;
@@ -73,9 +76,9 @@
                               PassivationManager.class, ActivationManager.class,
                               BatchContainer.class, EvictionManager.class,
                               TransactionCoordinator.class, RecoveryAdminOperations.class, StateTransferLock.class,
-                              ClusteringDependentLogic.class, LockContainer.class,
+                              ClusteringDependentLogic.class, LockContainer.class, KeyLockContainer.class,
                               L1Manager.class, TransactionFactory.class, BackupSender.class,
-                              TotalOrderManager.class})
+                              TotalOrderManager.class, InterceptorProfiler.class})
 public class EmptyConstructorNamedCacheFactory extends AbstractNamedCacheComponentFactory implements AutoInstantiableFactory {
 
    @Override
@@ -119,6 +122,11 @@ public <T> T construct(Class<T> componentType) {
             return (T) new StateTransferLockImpl();
          } else if (componentType.equals(EvictionManager.class)) {
             return (T) new EvictionManagerImpl();
+         } else if (componentType.equals(KeyLockContainer.class)) {
+            if (configuration.locking().useLockTable()) {
+               return (T) new LockTableContainer(configuration.locking().concurrencyLevel());
+            }
+            return (T) componentRegistry.getOrCreateComponent(LockContainer.class);
          } else if (componentType.equals(LockContainer.class)) {
             boolean  notTransactional = !isTransactional;
             LockContainer<?> lockContainer = configuration.locking().useLockStriping() ?
@@ -135,6 +143,8 @@ public <T> T construct(Class<T> componentType) {
             return (T) new BackupSenderImpl(globalConfiguration.sites().localSite());
          } else if (componentType.equals(TotalOrderManager.class)) {
             return (T) new TotalOrderManager();
+         } else if (componentType.equals(InterceptorProfiler.class)) {
+            return (T) new InterceptorProfiler();
          }
       }
 
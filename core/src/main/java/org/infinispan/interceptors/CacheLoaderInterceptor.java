@@ -23,6 +23,7 @@
 package org.infinispan.interceptors;
 
 import org.infinispan.commands.FlagAffectedCommand;
+import org.infinispan.commands.read.GetAllCommand;
 import org.infinispan.commands.read.GetKeyValueCommand;
 import org.infinispan.commands.write.InvalidateCommand;
 import org.infinispan.commands.write.PutKeyValueCommand;
@@ -115,6 +116,16 @@ public Object visitGetKeyValueCommand(InvocationContext ctx, GetKeyValueCommand
       return invokeNextInterceptor(ctx, command);
    }
 
+   @Override
+   public Object visitGetAllCommand(InvocationContext ctx, GetAllCommand command) throws Throwable {
+      if (enabled) {
+         for (Object key : command.getKeys()) {
+            loadIfNeededAndUpdateStats(ctx, key, true, command);
+         }
+      }
+      return invokeNextInterceptor(ctx, command);
+   }
+
    @Override
    public Object visitInvalidateCommand(InvocationContext ctx, InvalidateCommand command) throws Throwable {
       if (enabled) {
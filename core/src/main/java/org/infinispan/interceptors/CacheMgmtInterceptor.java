@@ -22,6 +22,7 @@
  */
 package org.infinispan.interceptors;
 
+import org.infinispan.commands.read.GetAllCommand;
 import org.infinispan.commands.read.GetKeyValueCommand;
 import org.infinispan.commands.write.EvictCommand;
 import org.infinispan.commands.write.PutKeyValueCommand;
@@ -37,6 +38,9 @@
 import org.infinispan.jmx.annotations.ManagedOperation;
 import org.infinispan.jmx.annotations.MeasurementType;
 import org.infinispan.jmx.annotations.Units;
+import org.infinispan.stats.LatencyHistogram;
+import org.infinispan.stats.LatencySnapshot;
+import org.infinispan.util.concurrent.jdk8backported.LongAdder;
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
 
@@ -52,17 +56,22 @@
  */
 @MBean(objectName = "Statistics", description = "General statistics such as timings, hit/miss ratio, etc.")
 public class CacheMgmtInterceptor extends JmxStatsCommandInterceptor {
-   private final AtomicLong hitTimes = new AtomicLong(0);
-   private final AtomicLong missTimes = new AtomicLong(0);
-   private final AtomicLong storeTimes = new AtomicLong(0);
-   private final AtomicLong hits = new AtomicLong(0);
-   private final AtomicLong misses = new AtomicLong(0);
-   private final AtomicLong stores = new AtomicLong(0);
-   private final AtomicLong evictions = new AtomicLong(0);
+   private final LongAdder hitTimes = new LongAdder();
+   private final LongAdder missTimes = new LongAdder();
+   private final LongAdder storeTimes = new LongAdder();
+   private final LongAdder hits = new LongAdder();
+   private final LongAdder misses = new LongAdder();
+   private final LongAdder stores = new LongAdder();
+   private final LongAdder evictions = new LongAdder();
    private final AtomicLong startNanoseconds = new AtomicLong(System.nanoTime());
    private final AtomicLong resetNanoseconds = new AtomicLong(startNanoseconds.get());
-   private final AtomicLong removeHits = new AtomicLong(0);
-   private final AtomicLong removeMisses = new AtomicLong(0);
+   private final LongAdder removeHits = new LongAdder();
+   private final LongAdder removeMisses = new LongAdder();
+   // latencies of single key operations; hitTimes, missTimes and storeTimes also include bulk operations
+   private final LatencyHistogram hitLatency = new LatencyHistogram();
+   private final LatencyHistogram missLatency = new LatencyHistogram();
+   private final LatencyHistogram storeLatency = new LatencyHistogram();
+   private final LatencyHistogram removeLatency = new LatencyHistogram();
 
    private DataContainer dataContainer;
 
@@ -82,7 +91,7 @@ public void setDependencies(DataContainer dataContainer) {
    @Override
    public Object visitEvictCommand(InvocationContext ctx, EvictCommand command) throws Throwable {
       Object returnValue = invokeNextInterceptor(ctx, command);
-      evictions.incrementAndGet();
+      evictions.increment();
       return returnValue;
    }
 
@@ -91,29 +100,49 @@ public Object visitGetKeyValueCommand(InvocationContext ctx, GetKeyValueCommand
       long t1 = System.nanoTime();
       Object retval = invokeNextInterceptor(ctx, command);
       long t2 = System.nanoTime();
-      long intervalMilliseconds = nanosecondsIntervalToMilliseconds(t1, t2);
+      long intervalNanoseconds = t2 - t1;
       if (ctx.isOriginLocal()) {
          if (retval == null) {
-            missTimes.getAndAdd(intervalMilliseconds);
-            misses.incrementAndGet();
+            missTimes.add(intervalNanoseconds);
+            misses.increment();
+            missLatency.record(intervalNanoseconds);
          } else {
-            hitTimes.getAndAdd(intervalMilliseconds);
-            hits.incrementAndGet();
+            hitTimes.add(intervalNanoseconds);
+            hits.increment();
+            hitLatency.record(intervalNanoseconds);
          }
       }
       return retval;
    }
 
+   @Override
+   public Object visitGetAllCommand(InvocationContext ctx, GetAllCommand command) throws Throwable {
+      final long t1 = System.nanoTime();
+      final Map<?, ?> retval = (Map<?, ?>) invokeNextInterceptor(ctx, command);
+      final long t2 = System.nanoTime();
+      final int requests = command.getKeys().size();
+      if (ctx.isOriginLocal() && requests > 0) {
+         // the time spent is shared between hits and misses in proportion to their number
+         final long intervalNanoseconds = t2 - t1;
+         final int found = retval.size();
+         final long hitNanoseconds = intervalNanoseconds * found / requests;
+         hitTimes.add(hitNanoseconds);
+         hits.add(found);
+         missTimes.add(intervalNanoseconds - hitNanoseconds);
+         misses.add(requests - found);
+      }
+      return retval;
+   }
+
    @Override
    public Object visitPutMapCommand(InvocationContext ctx, PutMapCommand command) throws Throwable {
       final Map<Object, Object> data = command.getMap();
       final long t1 = System.nanoTime();
       final Object retval = invokeNextInterceptor(ctx, command);
       final long t2 = System.nanoTime();
-      final long intervalMilliseconds = nanosecondsIntervalToMilliseconds(t1, t2);
       if (data != null && ctx.isOriginLocal() && !data.isEmpty()) {
-         storeTimes.getAndAdd(intervalMilliseconds);
-         stores.getAndAdd(data.size());
+         storeTimes.add(t2 - t1);
+         stores.add(data.size());
       }
       return retval;
    }
@@ -125,21 +154,24 @@ public Object visitPutKeyValueCommand(InvocationContext ctx, PutKeyValueCommand
       Object retval = invokeNextInterceptor(ctx, command);
       if (ctx.isOriginLocal() && command.isSuccessful()) {
          long t2 = System.nanoTime();
-         long intervalMilliseconds = nanosecondsIntervalToMilliseconds(t1, t2);
-         storeTimes.getAndAdd(intervalMilliseconds);
-         stores.incrementAndGet();
+         long intervalNanoseconds = t2 - t1;
+         storeTimes.add(intervalNanoseconds);
+         stores.increment();
+         storeLatency.record(intervalNanoseconds);
       }
       return retval;
    }
 
    @Override
    public Object visitRemoveCommand(InvocationContext ctx, RemoveCommand command) throws Throwable {
+      long t1 = System.nanoTime();
       Object retval = invokeNextInterceptor(ctx, command);
       if (ctx.isOriginLocal()) {
+         removeLatency.record(System.nanoTime() - t1);
          if (retval == null) {
-            removeMisses.incrementAndGet();
+            removeMisses.increment();
          } else {
-            removeHits.incrementAndGet();
+            removeHits.increment();
          }
       }
       return retval;
@@ -151,7 +183,7 @@ public Object visitRemoveCommand(InvocationContext ctx, RemoveCommand command) t
          measurementType = MeasurementType.TRENDSUP,
          displayType = DisplayType.SUMMARY)
    public long getHits() {
-      return hits.get();
+      return hits.sum();
    }
 
    @ManagedAttribute(
@@ -161,7 +193,7 @@ public long getHits() {
          displayType = DisplayType.SUMMARY
    )
    public long getMisses() {
-      return misses.get();
+      return misses.sum();
    }
 
    @ManagedAttribute(
@@ -171,7 +203,7 @@ public long getMisses() {
          displayType = DisplayType.SUMMARY
    )
    public long getRemoveHits() {
-      return removeHits.get();
+      return removeHits.sum();
    }
 
    @ManagedAttribute(
@@ -181,7 +213,7 @@ public long getRemoveHits() {
          displayType = DisplayType.SUMMARY
    )
    public long getRemoveMisses() {
-      return removeMisses.get();
+      return removeMisses.sum();
    }
 
    @ManagedAttribute(
@@ -191,7 +223,7 @@ public long getRemoveMisses() {
          displayType = DisplayType.SUMMARY
    )
    public long getStores() {
-      return stores.get();
+      return stores.sum();
    }
 
    @ManagedAttribute(
@@ -201,7 +233,7 @@ public long getStores() {
          displayType = DisplayType.SUMMARY
    )
    public long getEvictions() {
-      return evictions.get();
+      return evictions.sum();
    }
 
    @ManagedAttribute(
@@ -212,8 +244,8 @@ public long getEvictions() {
    )
    @SuppressWarnings("unused")
    public double getHitRatio() {
-      long hitsL = hits.get();
-      double total = hitsL + misses.get();
+      long hitsL = hits.sum();
+      double total = hitsL + misses.sum();
       // The reason for <= is that equality checks
       // should be avoided for floating point numbers.
       if (total <= 0)
@@ -229,9 +261,9 @@ public double getHitRatio() {
    )
    @SuppressWarnings("unused")
    public double getReadWriteRatio() {
-      if (stores.get() == 0)
+      if (stores.sum() == 0)
          return 0;
-      return (((double) (hits.get() + misses.get()) / (double) stores.get()));
+      return (((double) (hits.sum() + misses.sum()) / (double) stores.sum()));
    }
 
    @ManagedAttribute(
@@ -242,10 +274,10 @@ public double getReadWriteRatio() {
    )
    @SuppressWarnings("unused")
    public long getAverageReadTime() {
-      long total = hits.get() + misses.get();
+      long total = hits.sum() + misses.sum();
       if (total == 0)
          return 0;
-      return (hitTimes.get() + missTimes.get()) / total;
+      return TimeUnit.NANOSECONDS.toMillis((hitTimes.sum() + missTimes.sum()) / total);
    }
 
    @ManagedAttribute(
@@ -256,9 +288,10 @@ public long getAverageReadTime() {
    )
    @SuppressWarnings("unused")
    public long getAverageWriteTime() {
-      if (stores.get() == 0)
+      long total = stores.sum();
+      if (total == 0)
          return 0;
-      return (storeTimes.get()) / stores.get();
+      return TimeUnit.NANOSECONDS.toMillis(storeTimes.sum() / total);
    }
 
    @ManagedAttribute(
@@ -292,31 +325,229 @@ public long getTimeSinceReset() {
       return TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - resetNanoseconds.get());
    }
 
+   @ManagedAttribute(
+         description = "Median time of single key cache hits, in microseconds",
+         displayName = "Read hit time median",
+         units = Units.MICROSECONDS,
+         displayType = DisplayType.SUMMARY
+   )
+   @SuppressWarnings("unused")
+   public long getHitTimePercentile50() {
+      return hitLatency.snapshot().getPercentile(50, TimeUnit.MICROSECONDS);
+   }
+
+   @ManagedAttribute(
+         description = "99th percentile time of single key cache hits, in microseconds",
+         displayName = "Read hit time 99th percentile",
+         units = Units.MICROSECONDS,
+         displayType = DisplayType.SUMMARY
+   )
+   @SuppressWarnings("unused")
+   public long getHitTimePercentile99() {
+      return hitLatency.snapshot().getPercentile(99, TimeUnit.MICROSECONDS);
+   }
+
+   @ManagedAttribute(
+         description = "99.9th percentile time of single key cache hits, in microseconds",
+         displayName = "Read hit time 99.9th percentile",
+         units = Units.MICROSECONDS,
+         displayType = DisplayType.SUMMARY
+   )
+   @SuppressWarnings("unused")
+   public long getHitTimePercentile999() {
+      return hitLatency.snapshot().getPercentile(99.9, TimeUnit.MICROSECONDS);
+   }
+
+   @ManagedAttribute(
+         description = "Maximum time of single key cache hits, in microseconds",
+         displayName = "Read hit time maximum",
+         units = Units.MICROSECONDS,
+         displayType = DisplayType.SUMMARY
+   )
+   @SuppressWarnings("unused")
+   public long getHitTimeMax() {
+      return hitLatency.snapshot().getMax(TimeUnit.MICROSECONDS);
+   }
+
+   @ManagedAttribute(
+         description = "Median time of single key cache misses, in microseconds",
+         displayName = "Read miss time median",
+         units = Units.MICROSECONDS,
+         displayType = DisplayType.SUMMARY
+   )
+   @SuppressWarnings("unused")
+   public long getMissTimePercentile50() {
+      return missLatency.snapshot().getPercentile(50, TimeUnit.MICROSECONDS);
+   }
+
+   @ManagedAttribute(
+         description = "99th percentile time of single key cache misses, in microseconds",
+         displayName = "Read miss time 99th percentile",
+         units = Units.MICROSECONDS,
+         displayType = DisplayType.SUMMARY
+   )
+   @SuppressWarnings("unused")
+   public long getMissTimePercentile99() {
+      return missLatency.snapshot().getPercentile(99, TimeUnit.MICROSECONDS);
+   }
+
+   @ManagedAttribute(
+         description = "99.9th percentile time of single key cache misses, in microseconds",
+         displayName = "Read miss time 99.9th percentile",
+         units = Units.MICROSECONDS,
+         displayType = DisplayType.SUMMARY
+   )
+   @SuppressWarnings("unused")
+   public long getMissTimePercentile999() {
+      return missLatency.snapshot().getPercentile(99.9, TimeUnit.MICROSECONDS);
+   }
+
+   @ManagedAttribute(
+         description = "Maximum time of single key cache misses, in microseconds",
+         displayName = "Read miss time maximum",
+         units = Units.MICROSECONDS,
+         displayType = DisplayType.SUMMARY
+   )
+   @SuppressWarnings("unused")
+   public long getMissTimeMax() {
+      return missLatency.snapshot().getMax(TimeUnit.MICROSECONDS);
+   }
+
+   @ManagedAttribute(
+         description = "Median time of single key cache puts, in microseconds",
+         displayName = "Write time median",
+         units = Units.MICROSECONDS,
+         displayType = DisplayType.SUMMARY
+   )
+   @SuppressWarnings("unused")
+   public long getStoreTimePercentile50() {
+      return storeLatency.snapshot().getPercentile(50, TimeUnit.MICROSECONDS);
+   }
+
+   @ManagedAttribute(
+         description = "99th percentile time of single key cache puts, in microseconds",
+         displayName = "Write time 99th percentile",
+         units = Units.MICROSECONDS,
+         displayType = DisplayType.SUMMARY
+   )
+   @SuppressWarnings("unused")
+   public long getStoreTimePercentile99() {
+      return storeLatency.snapshot().getPercentile(99, TimeUnit.MICROSECONDS);
+   }
+
+   @ManagedAttribute(
+         description = "99.9th percentile time of single key cache puts, in microseconds",
+         displayName = "Write time 99.9th percentile",
+         units = Units.MICROSECONDS,
+         displayType = DisplayType.SUMMARY
+   )
+   @SuppressWarnings("unused")
+   public long getStoreTimePercentile999() {
+      return storeLatency.snapshot().getPercentile(99.9, TimeUnit.MICROSECONDS);
+   }
+
+   @ManagedAttribute(
+         description = "Maximum time of single key cache puts, in microseconds",
+         displayName = "Write time maximum",
+         units = Units.MICROSECONDS,
+         displayType = DisplayType.SUMMARY
+   )
+   @SuppressWarnings("unused")
+   public long getStoreTimeMax() {
+      return storeLatency.snapshot().getMax(TimeUnit.MICROSECONDS);
+   }
+
+   @ManagedAttribute(
+         description = "Median time of single key cache removals, in microseconds",
+         displayName = "Removal time median",
+         units = Units.MICROSECONDS,
+         displayType = DisplayType.SUMMARY
+   )
+   @SuppressWarnings("unused")
+   public long getRemoveTimePercentile50() {
+      return removeLatency.snapshot().getPercentile(50, TimeUnit.MICROSECONDS);
+   }
+
+   @ManagedAttribute(
+         description = "99th percentile time of single key cache removals, in microseconds",
+         displayName = "Removal time 99th percentile",
+         units = Units.MICROSECONDS,
+         displayType = DisplayType.SUMMARY
+   )
+   @SuppressWarnings("unused")
+   public long getRemoveTimePercentile99() {
+      return removeLatency.snapshot().getPercentile(99, TimeUnit.MICROSECONDS);
+   }
+
+   @ManagedAttribute(
+         description = "99.9th percentile time of single key cache removals, in microseconds",
+         displayName = "Removal time 99.9th percentile",
+         units = Units.MICROSECONDS,
+         displayType = DisplayType.SUMMARY
+   )
+   @SuppressWarnings("unused")
+   public long getRemoveTimePercentile999() {
+      return removeLatency.snapshot().getPercentile(99.9, TimeUnit.MICROSECONDS);
+   }
+
+   @ManagedAttribute(
+         description = "Maximum time of single key cache removals, in microseconds",
+         displayName = "Removal time maximum",
+         units = Units.MICROSECONDS,
+         displayType = DisplayType.SUMMARY
+   )
+   @SuppressWarnings("unused")
+   public long getRemoveTimeMax() {
+      return removeLatency.snapshot().getMax(TimeUnit.MICROSECONDS);
+   }
+
+   /**
+    * @return the latency distribution of single key get operations that found an entry
+    */
+   public LatencySnapshot getHitLatency() {
+      return hitLatency.snapshot();
+   }
+
+   /**
+    * @return the latency distribution of single key get operations that did not find an entry
+    */
+   public LatencySnapshot getMissLatency() {
+      return missLatency.snapshot();
+   }
+
+   /**
+    * @return the latency distribution of successful single key put operations
+    */
+   public LatencySnapshot getStoreLatency() {
+      return storeLatency.snapshot();
+   }
+
+   /**
+    * @return the latency distribution of single key remove operations
+    */
+   public LatencySnapshot getRemoveLatency() {
+      return removeLatency.snapshot();
+   }
+
    @Override
    @ManagedOperation(
          description = "Resets statistics gathered by this component",
          displayName = "Reset Statistics (Statistics)"
    )
    public void resetStatistics() {
-      hits.set(0);
-      misses.set(0);
-      stores.set(0);
-      evictions.set(0);
-      hitTimes.set(0);
-      missTimes.set(0);
-      storeTimes.set(0);
-      removeHits.set(0);
-      removeMisses.set(0);
+      hits.reset();
+      misses.reset();
+      stores.reset();
+      evictions.reset();
+      hitTimes.reset();
+      missTimes.reset();
+      storeTimes.reset();
+      removeHits.reset();
+      removeMisses.reset();
+      hitLatency.reset();
+      missLatency.reset();
+      storeLatency.reset();
+      removeLatency.reset();
       resetNanoseconds.set(System.nanoTime());
    }
-
-   /**
-    * @param nanoStart start time
-    * @param nanoEnd end time
-    * @return the interval rounded in milliseconds
-    */
-   private long nanosecondsIntervalToMilliseconds(final long nanoStart, final long nanoEnd) {
-      return TimeUnit.MILLISECONDS.convert(nanoEnd - nanoStart, TimeUnit.NANOSECONDS);
-   }
 }
-
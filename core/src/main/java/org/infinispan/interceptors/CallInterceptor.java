@@ -25,6 +25,7 @@
 
 import org.infinispan.commands.VisitableCommand;
 import org.infinispan.commands.control.LockControlCommand;
+import org.infinispan.commands.read.GetAllCommand;
 import org.infinispan.commands.read.GetCacheEntryCommand;
 import org.infinispan.commands.read.GetKeyValueCommand;
 import org.infinispan.commands.tx.CommitCommand;
@@ -40,6 +41,8 @@
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
 
+import java.util.Map;
+
 /**
  * Always at the end of the chain, directly in front of the cache. Simply calls into the cache using reflection. If the
  * call resulted in a modification, add the Modification to the end of the modification list keyed by the current
@@ -106,6 +109,18 @@ public Object visitGetKeyValueCommand(InvocationContext ctx, GetKeyValueCommand
       return ret;
    }
 
+   @Override
+   public Object visitGetAllCommand(InvocationContext ctx, GetAllCommand command) throws Throwable {
+      if (trace) log.trace("Executing command: " + command + ".");
+      Map<Object, Object> ret = command.perform(ctx);
+      for (Map.Entry<Object, Object> e : ret.entrySet()) {
+         Object value = command.isReturnEntries() ? ((CacheEntry) e.getValue()).getValue() : e.getValue();
+         notifier.notifyCacheEntryVisited(e.getKey(), value, true, ctx, command);
+         notifier.notifyCacheEntryVisited(e.getKey(), value, false, ctx, command);
+      }
+      return ret;
+   }
+
    @Override
    final public Object handleDefault(InvocationContext ctx, VisitableCommand command) throws Throwable {
       if (trace) log.trace("Executing command: " + command + ".");
@@ -25,20 +25,38 @@
 import org.infinispan.commands.CommandsFactory;
 import org.infinispan.commands.FlagAffectedCommand;
 import org.infinispan.commands.read.AbstractDataCommand;
+import org.infinispan.commands.remote.ClusteredGetAllCommand;
 import org.infinispan.commands.write.WriteCommand;
 import org.infinispan.container.DataContainer;
 import org.infinispan.container.EntryFactory;
 import org.infinispan.container.entries.CacheEntry;
 import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.container.entries.InternalCacheValue;
 import org.infinispan.context.Flag;
 import org.infinispan.context.InvocationContext;
 import org.infinispan.distribution.ch.ConsistentHash;
 import org.infinispan.factories.annotations.Inject;
 import org.infinispan.factories.annotations.Start;
 import org.infinispan.interceptors.base.BaseRpcInterceptor;
+import org.infinispan.remoting.responses.Response;
+import org.infinispan.remoting.responses.SuccessfulResponse;
+import org.infinispan.remoting.rpc.ResponseMode;
+import org.infinispan.remoting.rpc.RpcOptions;
+import org.infinispan.remoting.transport.Address;
 import org.infinispan.statetransfer.StateTransferManager;
+import org.infinispan.util.concurrent.DeferredReturnFuture;
+import org.infinispan.util.concurrent.NotifyingNotifiableFuture;
 import org.infinispan.util.concurrent.locks.LockManager;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
 /**
  * Base class for replication and distribution interceptors.
  *
@@ -76,15 +94,18 @@ protected boolean isNeedReliableReturnValues(FlagAffectedCommand command) {
    }
 
    protected boolean needsRemoteGet(InvocationContext ctx, AbstractDataCommand command) {
+      return needsRemoteGet(ctx, command.getKey(), command);
+   }
+
+   protected boolean needsRemoteGet(InvocationContext ctx, Object key, FlagAffectedCommand command) {
       if (command.hasFlag(Flag.CACHE_MODE_LOCAL)
             || command.hasFlag(Flag.SKIP_REMOTE_LOOKUP)
             || command.hasFlag(Flag.IGNORE_RETURN_VALUES)) {
          return false;
       }
       boolean shouldFetchFromRemote = false;
-      CacheEntry entry = ctx.lookupEntry(command.getKey());
+      CacheEntry entry = ctx.lookupEntry(key);
       if (entry == null || entry.isNull() || entry.isLockPlaceholder()) {
-         Object key = command.getKey();
          ConsistentHash ch = stateTransferManager.getCacheTopology().getReadConsistentHash();
          shouldFetchFromRemote = ctx.isOriginLocal() && !ch.isKeyLocalToNode(rpcManager.getAddress(), key) && !dataContainer.containsKey(key);
          if (!shouldFetchFromRemote && getLog().isTraceEnabled()) {
@@ -117,4 +138,68 @@ protected boolean ignorePreviousValueOnBackup(WriteCommand command, InvocationCo
     * @return an internal cache entry, or null if it cannot be located
     */
    protected abstract InternalCacheEntry retrieveFromRemoteSource(Object key, InvocationContext ctx, boolean acquireRemoteLock, FlagAffectedCommand command) throws Exception;
+
+   /**
+    * Retrieves several cache entries from remote sources using a single {@link ClusteredGetAllCommand} per target
+    * node.  The commands are sent in parallel, the last one from the calling thread.  Keys a target could not answer
+    * for, e.g. because they are affected by a state transfer or because the target left the cluster, are looked up
+    * one by one with {@link #retrieveFromRemoteSource(Object, InvocationContext, boolean, FlagAffectedCommand)}.
+    *
+    * @param keysByTarget keys to look up, grouped by the node to ask for them
+    * @return the entries found; keys that have no value anywhere are not contained
+    */
+   @SuppressWarnings("unchecked")
+   protected Map<Object, InternalCacheEntry> retrieveFromRemoteSources(Map<Address, List<Object>> keysByTarget, InvocationContext ctx, FlagAffectedCommand command) throws Throwable {
+      Map<Object, InternalCacheEntry> entries = new HashMap<Object, InternalCacheEntry>();
+      List<Object> unanswered = new ArrayList<Object>();
+      RpcOptions options = rpcManager.getRpcOptionsBuilder(ResponseMode.SYNCHRONOUS_IGNORE_LEAVERS, false).build();
+      Map<Address, NotifyingNotifiableFuture<Object>> futures = new LinkedHashMap<Address, NotifyingNotifiableFuture<Object>>();
+      for (Iterator<Map.Entry<Address, List<Object>>> it = keysByTarget.entrySet().iterator(); it.hasNext(); ) {
+         Map.Entry<Address, List<Object>> e = it.next();
+         ClusteredGetAllCommand get = cf.buildClusteredGetAllCommand(e.getValue(), command.getFlags());
+         List<Address> target = Collections.singletonList(e.getKey());
+         if (it.hasNext()) {
+            NotifyingNotifiableFuture<Object> future = new DeferredReturnFuture<Object>();
+            rpcManager.invokeRemotelyInFuture(target, get, options, future);
+            futures.put(e.getKey(), future);
+         } else {
+            Map<Address, Response> responses = rpcManager.invokeRemotely(target, get, options);
+            addRemoteEntries(e.getKey(), e.getValue(), responses, entries, unanswered);
+         }
+      }
+      for (Map.Entry<Address, NotifyingNotifiableFuture<Object>> e : futures.entrySet()) {
+         Map<Address, Response> responses;
+         try {
+            responses = (Map<Address, Response>) e.getValue().get();
+         } catch (ExecutionException ee) {
+            throw ee.getCause();
+         }
+         addRemoteEntries(e.getKey(), keysByTarget.get(e.getKey()), responses, entries, unanswered);
+      }
+      for (Object key : unanswered) {
+         InternalCacheEntry ice = retrieveFromRemoteSource(key, ctx, false, command);
+         if (ice != null) entries.put(key, ice);
+      }
+      return entries;
+   }
+
+   @SuppressWarnings("unchecked")
+   private void addRemoteEntries(Address target, List<Object> keys, Map<Address, Response> responses,
+                                 Map<Object, InternalCacheEntry> entries, List<Object> unanswered) {
+      Response response = responses.get(target);
+      if (!(response instanceof SuccessfulResponse)) {
+         if (getLog().isTraceEnabled()) getLog().tracef("Got %s from %s, looking up keys %s one by one", response, target, keys);
+         unanswered.addAll(keys);
+         return;
+      }
+      Map<Object, InternalCacheValue> values = (Map<Object, InternalCacheValue>) ((SuccessfulResponse) response).getResponseValue();
+      for (Object key : keys) {
+         if (!values.containsKey(key)) {
+            unanswered.add(key);
+         } else {
+            InternalCacheValue value = values.get(key);
+            if (value != null) entries.put(key, value.toInternalCacheEntry(key));
+         }
+      }
+   }
 }
@@ -64,6 +64,8 @@ public class InterceptorChain {
    final ReentrantLock lock = new ReentrantLock();
    final ComponentMetadataRepo componentMetadataRepo;
 
+   private InterceptorProfiler profiler;
+
    /**
     * Constructs an interceptor chain having the supplied interceptor as first.
     */
@@ -71,6 +73,11 @@ public InterceptorChain(ComponentMetadataRepo componentMetadataRepo) {
       this.componentMetadataRepo = componentMetadataRepo;
    }
 
+   @Inject
+   public void injectProfiler(InterceptorProfiler profiler) {
+      this.profiler = profiler;
+   }
+
    @Start
    private void printChainInfo() {
       if (log.isDebugEnabled()) {
@@ -340,6 +347,9 @@ public void appendInterceptor(CommandInterceptor ci, boolean isCustom) {
     */
    public Object invoke(InvocationContext ctx, VisitableCommand command) {
       try {
+         if (profiler != null && profiler.isEnabled()) {
+            return profiler.invoke(ctx, command, firstInChain);
+         }
          return command.acceptVisitor(ctx, firstInChain);
       } catch (CacheException e) {
          if (e.getCause() instanceof InterruptedException)
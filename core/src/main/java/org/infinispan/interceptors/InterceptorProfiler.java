@@ -0,0 +1,205 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.infinispan.interceptors;
+
+import net.jcip.annotations.ThreadSafe;
+import org.infinispan.commands.VisitableCommand;
+import org.infinispan.context.InvocationContext;
+import org.infinispan.factories.ComponentRegistry;
+import org.infinispan.factories.annotations.Inject;
+import org.infinispan.factories.scopes.Scope;
+import org.infinispan.factories.scopes.Scopes;
+import org.infinispan.interceptors.base.CommandInterceptor;
+import org.infinispan.jmx.annotations.DataType;
+import org.infinispan.jmx.annotations.MBean;
+import org.infinispan.jmx.annotations.ManagedAttribute;
+import org.infinispan.jmx.annotations.ManagedOperation;
+import org.infinispan.util.concurrent.ConcurrentMapFactory;
+import org.infinispan.util.concurrent.jdk8backported.LongAdder;
+
+import java.util.ArrayList;
+import java.util.Formatter;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Samples the time spent in each interceptor of the {@link InterceptorChain}, broken down by command type. Profiling
+ * is disabled by default, in which case the only cost on the invocation path is a single read of the
+ * {@link #isEnabled() enabled} flag per interceptor.
+ * <p />
+ * When enabled, one out of every {@link #getSamplingInterval() samplingInterval} calls into an interceptor is timed,
+ * chosen at random.
+ * The time recorded for an interceptor includes the time spent in all the interceptors after it, so the time spent in
+ * an interceptor itself is derived by subtracting the mean time recorded for the next interceptor in the chain.
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+@ThreadSafe
+@Scope(Scopes.NAMED_CACHE)
+@MBean(objectName = "InterceptorProfiler", description = "Samples the time spent in each interceptor, by command type")
+public class InterceptorProfiler {
+
+   private static final int DEFAULT_SAMPLING_INTERVAL = 16;
+
+   private final ConcurrentMap<CommandInterceptor, ConcurrentMap<Class<?>, Timings>> timings =
+         ConcurrentMapFactory.makeConcurrentMap();
+   // a counter would always select the same interceptors, as every command passes through the same number of them
+   private final ThreadLocal<int[]> random = new ThreadLocal<int[]>() {
+      @Override
+      protected int[] initialValue() {
+         return new int[]{(int) System.nanoTime() | 1};
+      }
+   };
+   private volatile boolean enabled;
+   private volatile int samplingInterval = DEFAULT_SAMPLING_INTERVAL;
+   private ComponentRegistry componentRegistry;
+
+   @Inject
+   public void injectDependencies(ComponentRegistry componentRegistry) {
+      // the chain itself is looked up lazily, as its interceptors depend on this component
+      this.componentRegistry = componentRegistry;
+   }
+
+   @ManagedAttribute(description = "Whether the time spent in interceptors is being sampled", displayName = "Profiling enabled", dataType = DataType.TRAIT, writable = true)
+   public boolean isEnabled() {
+      return enabled;
+   }
+
+   public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+   }
+
+   @ManagedAttribute(description = "Only one out of this many calls into an interceptor is timed", displayName = "Sampling interval", dataType = DataType.TRAIT, writable = true)
+   public int getSamplingInterval() {
+      return samplingInterval;
+   }
+
+   public void setSamplingInterval(int samplingInterval) {
+      if (samplingInterval < 1)
+         throw new IllegalArgumentException("Sampling interval must be positive: " + samplingInterval);
+      this.samplingInterval = samplingInterval;
+   }
+
+   @ManagedOperation(description = "Discards all samples collected so far", displayName = "Reset statistics")
+   public void resetStatistics() {
+      timings.clear();
+   }
+
+   /**
+    * Passes the command to the given interceptor, timing the call if it is selected as a sample.
+    */
+   public Object invoke(InvocationContext ctx, VisitableCommand command, CommandInterceptor interceptor) throws Throwable {
+      if (!isSampled()) {
+         return command.acceptVisitor(ctx, interceptor);
+      }
+      long start = System.nanoTime();
+      try {
+         return command.acceptVisitor(ctx, interceptor);
+      } finally {
+         timingsFor(interceptor, command.getClass()).record(System.nanoTime() - start);
+      }
+   }
+
+   private boolean isSampled() {
+      int[] seed = random.get();
+      int x = seed[0];
+      x ^= x << 13;
+      x ^= x >>> 17;
+      x ^= x << 5;
+      seed[0] = x;
+      return (x >>> 1) % samplingInterval == 0;
+   }
+
+   private Timings timingsFor(CommandInterceptor interceptor, Class<?> commandType) {
+      ConcurrentMap<Class<?>, Timings> byCommand = timings.get(interceptor);
+      if (byCommand == null) {
+         byCommand = ConcurrentMapFactory.makeConcurrentMap();
+         ConcurrentMap<Class<?>, Timings> existing = timings.putIfAbsent(interceptor, byCommand);
+         if (existing != null) byCommand = existing;
+      }
+      Timings t = byCommand.get(commandType);
+      if (t == null) {
+         t = new Timings();
+         Timings existing = byCommand.putIfAbsent(commandType, t);
+         if (existing != null) t = existing;
+      }
+      return t;
+   }
+
+   @ManagedAttribute(description = "Sampled time spent in each interceptor, by command type", displayName = "Interceptor profile", dataType = DataType.MEASUREMENT)
+   public String getProfile() {
+      List<CommandInterceptor> chain = componentRegistry.getComponent(InterceptorChain.class).asList();
+      Set<Class<?>> commandTypes = new LinkedHashSet<Class<?>>();
+      for (CommandInterceptor interceptor : chain) {
+         Map<Class<?>, Timings> byCommand = timings.get(interceptor);
+         if (byCommand != null) commandTypes.addAll(byCommand.keySet());
+      }
+      Formatter f = new Formatter();
+      f.format("Sampling 1 in %d calls, times in microseconds%n", samplingInterval);
+      for (Class<?> commandType : commandTypes) {
+         f.format("%s:%n", commandType.getSimpleName());
+         List<long[]> rows = new ArrayList<long[]>(chain.size());
+         for (CommandInterceptor interceptor : chain) {
+            rows.add(snapshot(interceptor, commandType));
+         }
+         double chainMean = mean(rows.get(0));
+         for (int i = 0; i < chain.size(); i++) {
+            long[] row = rows.get(i);
+            if (row[0] == 0) continue;
+            // samples are taken independently for each interceptor, so compare means rather than totals
+            double mean = mean(row);
+            double self = Math.max(0, mean - (i + 1 < rows.size() ? mean(rows.get(i + 1)) : 0));
+            f.format("  %-45s samples=%-8d mean=%-10.1f self=%-10.1f %5.1f%%%n",
+                     chain.get(i).getClass().getSimpleName(), row[0], mean, self,
+                     chainMean > 0 ? self * 100 / chainMean : 0d);
+         }
+      }
+      return f.toString();
+   }
+
+   /**
+    * @return the mean of the samples in microseconds
+    */
+   private static double mean(long[] row) {
+      return row[0] == 0 ? 0 : row[1] / 1000d / row[0];
+   }
+
+   /**
+    * @return the number of samples and their total time in nanoseconds
+    */
+   private long[] snapshot(CommandInterceptor interceptor, Class<?> commandType) {
+      Map<Class<?>, Timings> byCommand = timings.get(interceptor);
+      Timings t = byCommand == null ? null : byCommand.get(commandType);
+      return t == null ? new long[2] : new long[]{t.count.sum(), t.nanos.sum()};
+   }
+
+   private static class Timings {
+      final LongAdder count = new LongAdder();
+      final LongAdder nanos = new LongAdder();
+
+      void record(long nanos) {
+         count.increment();
+         this.nanos.add(nanos);
+      }
+   }
+}
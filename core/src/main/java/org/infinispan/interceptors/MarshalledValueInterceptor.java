@@ -24,6 +24,7 @@
 
 import org.infinispan.commands.control.LockControlCommand;
 import org.infinispan.commands.read.EntrySetCommand;
+import org.infinispan.commands.read.GetAllCommand;
 import org.infinispan.commands.read.GetKeyValueCommand;
 import org.infinispan.commands.read.KeySetCommand;
 import org.infinispan.commands.read.ValuesCommand;
@@ -32,6 +33,7 @@
 import org.infinispan.commands.write.PutMapCommand;
 import org.infinispan.commands.write.RemoveCommand;
 import org.infinispan.commands.write.ReplaceCommand;
+import org.infinispan.commands.write.ValueMatcher;
 import org.infinispan.container.InternalEntryFactory;
 import org.infinispan.container.entries.InternalCacheEntry;
 import org.infinispan.context.InvocationContext;
@@ -206,6 +208,31 @@ public Object visitGetKeyValueCommand(InvocationContext ctx, GetKeyValueCommand
       return processRetVal(retVal, ctx);
    }
 
+   @Override
+   public Object visitGetAllCommand(InvocationContext ctx, GetAllCommand command) throws Throwable {
+      if (!wrapKeys && !wrapValues) return invokeNextInterceptor(ctx, command);
+
+      Map<Object, Object> wrappedToOriginal = new HashMap<Object, Object>(command.getKeys().size());
+      if (wrapKeys) {
+         for (Object key : command.getKeys()) {
+            Object wrapped = isTypeExcluded(key.getClass()) ? key : createMarshalledValue(key, ctx);
+            wrappedToOriginal.put(wrapped, key);
+         }
+         command.setKeys(wrappedToOriginal.keySet());
+      }
+      Map<?, ?> retVal = (Map<?, ?>) invokeNextInterceptor(ctx, command);
+      Map<Object, Object> processed = new HashMap<Object, Object>(retVal.size());
+      for (Map.Entry<?, ?> e : retVal.entrySet()) {
+         Object key = e.getKey();
+         if (key instanceof MarshalledValue) {
+            compact((MarshalledValue) key);
+            if (ctx.isOriginLocal() && wrappedToOriginal.containsKey(key)) key = wrappedToOriginal.get(key);
+         }
+         processed.put(key, processRetVal(e.getValue(), ctx));
+      }
+      return processed;
+   }
+
    @Override
    @SuppressWarnings("unchecked")
    public Object visitKeySetCommand(InvocationContext ctx, KeySetCommand command) throws Throwable {
@@ -273,7 +300,9 @@ public Object visitReplaceCommand(InvocationContext ctx, ReplaceCommand command)
          newValue = createMarshalledValue(command.getNewValue(), ctx);
          command.setNewValue(newValue);
       }
-      if (wrapValues && command.getOldValue() != null && !isTypeExcluded(command.getOldValue().getClass())) {
+      // A value matcher inspects the current value itself, so it is passed on as is
+      if (wrapValues && command.getOldValue() != null && !(command.getOldValue() instanceof ValueMatcher)
+            && !isTypeExcluded(command.getOldValue().getClass())) {
          oldValue = createMarshalledValue(command.getOldValue(), ctx);
          command.setOldValue(oldValue);
       }
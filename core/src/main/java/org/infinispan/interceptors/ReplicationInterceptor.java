@@ -25,6 +25,7 @@
 import org.infinispan.commands.FlagAffectedCommand;
 import org.infinispan.commands.control.LockControlCommand;
 import org.infinispan.commands.read.AbstractDataCommand;
+import org.infinispan.commands.read.GetAllCommand;
 import org.infinispan.commands.read.GetCacheEntryCommand;
 import org.infinispan.commands.read.GetKeyValueCommand;
 import org.infinispan.commands.remote.ClusteredGetCommand;
@@ -142,6 +143,39 @@ public Object visitGetKeyValueCommand(InvocationContext ctx, GetKeyValueCommand
          return visitGetKeyValueCommand(ctx, command);
       }
    }
+
+   @Override
+   @SuppressWarnings("unchecked")
+   public Object visitGetAllCommand(InvocationContext ctx, GetAllCommand command) throws Throwable {
+      try {
+         Map<Object, Object> values = (Map<Object, Object>) invokeNextInterceptor(ctx, command);
+         if (ctx.isOriginLocal() && values.size() < command.getKeys().size()) {
+            List<Object> remoteKeys = new ArrayList<Object>();
+            for (Object key : command.getKeys()) {
+               if (!values.containsKey(key) && needsRemoteGet(ctx, key, command)) remoteKeys.add(key);
+            }
+            if (!remoteKeys.isEmpty()) {
+               if (trace) log.tracef("Keys %s are not yet available on %s, looking them up on the primary owner", remoteKeys, rpcManager.getAddress());
+               Map<Address, List<Object>> keysByTarget = Collections.singletonMap(getPrimaryOwner(), remoteKeys);
+               for (Map.Entry<Object, InternalCacheEntry> e : retrieveFromRemoteSources(keysByTarget, ctx, command).entrySet()) {
+                  Object key = e.getKey();
+                  InternalCacheEntry ice = e.getValue();
+                  if (!ctx.replaceValue(key, ice)) ctx.putLookedUpEntry(key, ice);
+                  values.put(key, command.isReturnEntries() ? ice : ice.getValue());
+               }
+            }
+            for (Object key : command.getKeys()) {
+               if (values.containsKey(key)) continue;
+               Object value = localGet(ctx, key, false, command);
+               if (value != null) values.put(key, command.isReturnEntries() ? ctx.lookupEntry(key) : value);
+            }
+         }
+         return values;
+      } catch (SuspectException e) {
+         // retry
+         return visitGetAllCommand(ctx, command);
+      }
+   }
    
    @Override
    public Object visitLockControlCommand(TxInvocationContext ctx, LockControlCommand command) throws Throwable {
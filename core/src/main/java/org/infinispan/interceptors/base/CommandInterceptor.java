@@ -36,6 +36,7 @@
 import org.infinispan.factories.scopes.Scope;
 import org.infinispan.factories.scopes.Scopes;
 import org.infinispan.interceptors.InterceptorChain;
+import org.infinispan.interceptors.InterceptorProfiler;
 import org.infinispan.remoting.InboundInvocationHandler;
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
@@ -71,6 +72,8 @@ public abstract class CommandInterceptor extends AbstractVisitor {
 
    protected Configuration cacheConfiguration;
 
+   private InterceptorProfiler profiler;
+
    protected Log getLog() {
       return LogFactory.getLog(CommandInterceptor.class);
    }
@@ -80,6 +83,11 @@ public void injectConfiguration(Configuration configuration) {
       this.cacheConfiguration = configuration;
    }
 
+   @Inject
+   public void injectProfiler(InterceptorProfiler profiler) {
+      this.profiler = profiler;
+   }
+
    /**
     * Retrieves the next interceptor in the chain.
     *
@@ -115,6 +123,9 @@ public final void setNext(CommandInterceptor next) {
     * @throws Throwable in the event of problems
     */
    public final Object invokeNextInterceptor(InvocationContext ctx, VisitableCommand command) throws Throwable {
+      if (profiler != null && profiler.isEnabled()) {
+         return profiler.invoke(ctx, command, next);
+      }
       return command.acceptVisitor(ctx, next);
    }
 
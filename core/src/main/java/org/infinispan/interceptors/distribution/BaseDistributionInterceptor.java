@@ -33,6 +33,7 @@
 import org.infinispan.context.InvocationContext;
 import org.infinispan.context.impl.TxInvocationContext;
 import org.infinispan.distribution.DistributionManager;
+import org.infinispan.distribution.ch.ConsistentHash;
 import org.infinispan.factories.annotations.Inject;
 import org.infinispan.interceptors.ClusteringInterceptor;
 import org.infinispan.interceptors.locking.ClusteringDependentLogic;
@@ -106,6 +107,31 @@ protected InternalCacheEntry retrieveFromRemoteSource(Object key, InvocationCont
       return null;
    }
 
+   /**
+    * Groups keys by the node a multi-key remote get should ask for them: the first owner in the read consistent hash
+    * that is still a member of the cluster.  Keys none of whose owners is a member are left out.
+    */
+   protected Map<Address, List<Object>> groupByPrimaryOwner(Collection<Object> keys) {
+      ConsistentHash ch = stateTransferManager.getCacheTopology().getReadConsistentHash();
+      List<Address> members = rpcManager.getTransport().getMembers();
+      Map<Address, List<Object>> keysByOwner = new HashMap<Address, List<Object>>();
+      for (Object key : keys) {
+         for (Address owner : ch.locateOwners(key)) {
+            // if the primary owner has left the cluster since the command was issued, ask the next one
+            if (members.contains(owner)) {
+               List<Object> ownerKeys = keysByOwner.get(owner);
+               if (ownerKeys == null) {
+                  ownerKeys = new ArrayList<Object>();
+                  keysByOwner.put(owner, ownerKeys);
+               }
+               ownerKeys.add(key);
+               break;
+            }
+         }
+      }
+      return keysByOwner;
+   }
+
    @Override
    public Object visitPutMapCommand(InvocationContext ctx, PutMapCommand command) throws Throwable {
       // don't bother with a remote get for the PutMapCommand!
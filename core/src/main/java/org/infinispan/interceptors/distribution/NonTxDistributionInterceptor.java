@@ -21,6 +21,7 @@
 
 import org.infinispan.CacheException;
 import org.infinispan.commands.FlagAffectedCommand;
+import org.infinispan.commands.read.GetAllCommand;
 import org.infinispan.commands.read.GetCacheEntryCommand;
 import org.infinispan.commands.read.GetKeyValueCommand;
 import org.infinispan.commands.write.ClearCommand;
@@ -38,6 +39,7 @@
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -79,6 +81,37 @@ public Object visitGetKeyValueCommand(InvocationContext ctx, GetKeyValueCommand
       }
    }
 
+   @Override
+   @SuppressWarnings("unchecked")
+   public Object visitGetAllCommand(InvocationContext ctx, GetAllCommand command) throws Throwable {
+      try {
+         Map<Object, Object> values = (Map<Object, Object>) invokeNextInterceptor(ctx, command);
+         if (values.size() < command.getKeys().size()) {
+            List<Object> remoteKeys = new ArrayList<Object>();
+            for (Object key : command.getKeys()) {
+               if (!values.containsKey(key) && needsRemoteGet(ctx, key, command)) remoteKeys.add(key);
+            }
+            if (!remoteKeys.isEmpty()) {
+               if (trace) log.tracef("Doing a remote get for keys %s", remoteKeys);
+               Map<Object, InternalCacheEntry> entries = retrieveFromRemoteSources(groupByPrimaryOwner(remoteKeys), ctx, command);
+               for (Map.Entry<Object, InternalCacheEntry> e : entries.entrySet()) {
+                  command.addRemotelyFetchedValue(e.getKey(), e.getValue());
+                  values.put(e.getKey(), command.isReturnEntries() ? e.getValue() : e.getValue().getValue());
+               }
+            }
+            for (Object key : command.getKeys()) {
+               if (values.containsKey(key)) continue;
+               Object value = localGet(ctx, key, false, command);
+               if (value != null) values.put(key, command.isReturnEntries() ? ctx.lookupEntry(key) : value);
+            }
+         }
+         return values;
+      } catch (SuspectException e) {
+         // retry
+         return visitGetAllCommand(ctx, command);
+      }
+   }
+
    @Override
    public Object visitPutKeyValueCommand(InvocationContext ctx, PutKeyValueCommand command) throws Throwable {
       SingleKeyRecipientGenerator skrg = new SingleKeyRecipientGenerator(command.getKey());
@@ -21,6 +21,7 @@
 
 import org.infinispan.commands.FlagAffectedCommand;
 import org.infinispan.commands.control.LockControlCommand;
+import org.infinispan.commands.read.GetAllCommand;
 import org.infinispan.commands.read.GetCacheEntryCommand;
 import org.infinispan.commands.read.GetKeyValueCommand;
 import org.infinispan.commands.tx.CommitCommand;
@@ -47,8 +48,10 @@
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeoutException;
 
@@ -176,6 +179,44 @@ public Object visitGetKeyValueCommand(InvocationContext ctx, GetKeyValueCommand
       }
    }
 
+   @Override
+   @SuppressWarnings("unchecked")
+   public Object visitGetAllCommand(InvocationContext ctx, GetAllCommand command) throws Throwable {
+      try {
+         Map<Object, Object> values = (Map<Object, Object>) invokeNextInterceptor(ctx, command);
+         // see visitGetKeyValueCommand
+         if (isL1CacheEnabled && !ctx.isOriginLocal()) {
+            for (Object key : values.keySet()) l1Manager.addRequestor(key, ctx.getOrigin());
+         }
+
+         if (values.size() < command.getKeys().size()) {
+            List<Object> remoteKeys = new ArrayList<Object>();
+            for (Object key : command.getKeys()) {
+               if (!values.containsKey(key) && needsRemoteGet(ctx, key, command) && isRemoteGetNeeded(ctx, key)) {
+                  remoteKeys.add(key);
+               }
+            }
+            if (!remoteKeys.isEmpty()) {
+               if (trace) log.tracef("Doing a remote get for keys %s", remoteKeys);
+               Map<Object, InternalCacheEntry> entries = retrieveFromRemoteSources(groupByPrimaryOwner(remoteKeys), ctx, command);
+               for (Map.Entry<Object, InternalCacheEntry> e : entries.entrySet()) {
+                  Object value = storeRemotelyFetchedEntry(ctx, e.getKey(), e.getValue(), false, command);
+                  values.put(e.getKey(), command.isReturnEntries() ? e.getValue() : value);
+               }
+            }
+            for (Object key : command.getKeys()) {
+               if (values.containsKey(key)) continue;
+               Object value = localGet(ctx, key, false, command);
+               if (value != null) values.put(key, command.isReturnEntries() ? ctx.lookupEntry(key) : value);
+            }
+         }
+         return values;
+      } catch (SuspectException e) {
+         // retry
+         return visitGetAllCommand(ctx, command);
+      }
+   }
+
    protected void lockAndWrap(InvocationContext ctx, Object key, InternalCacheEntry ice, FlagAffectedCommand command) throws InterruptedException {
       boolean skipLocking = hasSkipLocking(command);
       long lockTimeout = getLockAcquisitionTimeout(command, skipLocking);
@@ -329,9 +370,7 @@ private boolean isNotInL1(Object key) {
    }
 
    private Object remoteGetAndStoreInL1(InvocationContext ctx, Object key, boolean isWrite, FlagAffectedCommand command) throws Throwable {
-      boolean isKeyLocalToNode = dm.getReadConsistentHash().isKeyLocalToNode(rpcManager.getAddress(), key);
-
-      if (ctx.isOriginLocal() && !isKeyLocalToNode && isNotInL1(key) || dm.isAffectedByRehash(key) && !dataContainer.containsKey(key)) {
+      if (isRemoteGetNeeded(ctx, key)) {
          if (trace) log.tracef("Doing a remote get for key %s", key);
 
          boolean acquireRemoteLock = false;
@@ -347,46 +386,60 @@ private Object remoteGetAndStoreInL1(InvocationContext ctx, Object key, boolean
          }
 
          if (ice != null) {
-            if (useClusteredWriteSkewCheck && ctx.isInTxScope()) {
-               ((TxInvocationContext)ctx).getCacheTransaction().putLookedUpRemoteVersion(key, ice.getVersion());
-            }
+            return storeRemotelyFetchedEntry(ctx, key, ice, isWrite, command);
+         }
+      } else {
+         if (trace) log.tracef("Not doing a remote get for key %s since entry is mapped to current node (%s), or is in L1.  Owners are %s", key, rpcManager.getAddress(), dm.locate(key));
+      }
+      return null;
+   }
 
-            if (isL1CacheEnabled) {
-               // We've requested the key only from the owners current (read) CH.
-               // If the intersection of owners in the current and pending CHs is empty,
-               // the requestor information might be lost, so we shouldn't store the entry in L1.
-               if (dm.isAffectedByRehash(key)) {
-                  if (trace) log.tracef("State transfer in progress for key %s, not storing to L1");
-                  return ice.getValue();
-               }
+   private boolean isRemoteGetNeeded(InvocationContext ctx, Object key) {
+      boolean isKeyLocalToNode = dm.getReadConsistentHash().isKeyLocalToNode(rpcManager.getAddress(), key);
+      return ctx.isOriginLocal() && !isKeyLocalToNode && isNotInL1(key) || dm.isAffectedByRehash(key) && !dataContainer.containsKey(key);
+   }
 
-               if (trace) log.tracef("Caching remotely retrieved entry for key %s in L1", key);
-               // This should be fail-safe
-               try {
-                  long l1Lifespan = cacheConfiguration.clustering().l1().lifespan();
-                  long lifespan = ice.getLifespan() < 0 ? l1Lifespan : Math.min(ice.getLifespan(), l1Lifespan);
-                  PutKeyValueCommand put = cf.buildPutKeyValueCommand(ice.getKey(), ice.getValue(), lifespan, -1, command.getFlags());
-                  lockAndWrap(ctx, key, ice, command);
-                  invokeNextInterceptor(ctx, put);
-               } catch (Exception e) {
-                  // Couldn't store in L1 for some reason.  But don't fail the transaction!
-                  log.infof("Unable to store entry %s in L1 cache", key);
-                  log.debug("Inability to store in L1 caused by", e);
-               }
-            } else {
-               if (!ctx.replaceValue(key, ice)) {
-                  if (isWrite)
-                     lockAndWrap(ctx, key, ice, command);
-                  else
-                     ctx.putLookedUpEntry(key, ice);
-               }
-            }
+   /**
+    * Records an entry fetched from a remote owner in the invocation context, storing it in L1 if enabled.
+    *
+    * @return the entry's value
+    */
+   private Object storeRemotelyFetchedEntry(InvocationContext ctx, Object key, InternalCacheEntry ice, boolean isWrite, FlagAffectedCommand command) throws Throwable {
+      if (useClusteredWriteSkewCheck && ctx.isInTxScope()) {
+         ((TxInvocationContext)ctx).getCacheTransaction().putLookedUpRemoteVersion(key, ice.getVersion());
+      }
+
+      if (isL1CacheEnabled) {
+         // We've requested the key only from the owners current (read) CH.
+         // If the intersection of owners in the current and pending CHs is empty,
+         // the requestor information might be lost, so we shouldn't store the entry in L1.
+         if (dm.isAffectedByRehash(key)) {
+            if (trace) log.tracef("State transfer in progress for key %s, not storing to L1");
             return ice.getValue();
          }
+
+         if (trace) log.tracef("Caching remotely retrieved entry for key %s in L1", key);
+         // This should be fail-safe
+         try {
+            long l1Lifespan = cacheConfiguration.clustering().l1().lifespan();
+            long lifespan = ice.getLifespan() < 0 ? l1Lifespan : Math.min(ice.getLifespan(), l1Lifespan);
+            PutKeyValueCommand put = cf.buildPutKeyValueCommand(ice.getKey(), ice.getValue(), lifespan, -1, command.getFlags());
+            lockAndWrap(ctx, key, ice, command);
+            invokeNextInterceptor(ctx, put);
+         } catch (Exception e) {
+            // Couldn't store in L1 for some reason.  But don't fail the transaction!
+            log.infof("Unable to store entry %s in L1 cache", key);
+            log.debug("Inability to store in L1 caused by", e);
+         }
       } else {
-         if (trace) log.tracef("Not doing a remote get for key %s since entry is mapped to current node (%s), or is in L1.  Owners are %s", key, rpcManager.getAddress(), dm.locate(key));
+         if (!ctx.replaceValue(key, ice)) {
+            if (isWrite)
+               lockAndWrap(ctx, key, ice, command);
+            else
+               ctx.putLookedUpEntry(key, ice);
+         }
       }
-      return null;
+      return ice.getValue();
    }
 
    protected Future<?> flushL1Caches(InvocationContext ctx) {
@@ -28,6 +28,7 @@
 import org.infinispan.commands.FlagAffectedCommand;
 import org.infinispan.commands.control.LockControlCommand;
 import org.infinispan.commands.read.AbstractDataCommand;
+import org.infinispan.commands.read.GetAllCommand;
 import org.infinispan.commands.read.GetKeyValueCommand;
 import org.infinispan.commands.tx.PrepareCommand;
 import org.infinispan.commands.write.ApplyDeltaCommand;
@@ -93,7 +94,10 @@ public void start() {
    }
 
    private void markKeyAsRead(InvocationContext ctx, AbstractDataCommand command) {
-      Object key = command.getKey();
+      markKeyAsRead(ctx, command.getKey(), command);
+   }
+
+   private void markKeyAsRead(InvocationContext ctx, Object key, FlagAffectedCommand command) {
       if (needToMarkReads && !command.hasFlag(Flag.IGNORE_RETURN_VALUES) && ctx.isInTxScope()) {
          TxInvocationContext tctx = (TxInvocationContext) ctx;
          tctx.getCacheTransaction().addReadKey(key);
@@ -135,6 +139,14 @@ public Object visitGetKeyValueCommand(InvocationContext ctx, GetKeyValueCommand
       markKeyAsRead(ctx, command);
       return super.visitGetKeyValueCommand(ctx, command);
    }
+
+   @Override
+   public Object visitGetAllCommand(InvocationContext ctx, GetAllCommand command) throws Throwable {
+      for (Object key : command.getKeys()) {
+         markKeyAsRead(ctx, key, command);
+      }
+      return super.visitGetAllCommand(ctx, command);
+   }
    
    @Override
    public Object visitApplyDeltaCommand(InvocationContext ctx, ApplyDeltaCommand command) throws Throwable {
@@ -0,0 +1,63 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.infinispan.io;
+
+import java.io.InputStream;
+
+/**
+ * An {@link InputStream} reading the remaining bytes of a {@link java.nio.ByteBuffer}, which allows unmarshalling
+ * straight out of direct or memory-mapped buffers without copying them to the heap first.  Reading advances the
+ * position of the buffer.
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+public class ByteBufferInputStream extends InputStream {
+   private final java.nio.ByteBuffer buffer;
+
+   public ByteBufferInputStream(java.nio.ByteBuffer buffer) {
+      this.buffer = buffer;
+   }
+
+   @Override
+   public int read() {
+      return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+   }
+
+   @Override
+   public int read(byte[] b, int off, int len) {
+      if (len == 0) return 0;
+      if (!buffer.hasRemaining()) return -1;
+      int n = Math.min(len, buffer.remaining());
+      buffer.get(b, off, n);
+      return n;
+   }
+
+   @Override
+   public long skip(long n) {
+      int skipped = (int) Math.min(Math.max(n, 0), buffer.remaining());
+      buffer.position(buffer.position() + skipped);
+      return skipped;
+   }
+
+   @Override
+   public int available() {
+      return buffer.remaining();
+   }
+}
@@ -19,7 +19,7 @@
 package org.infinispan.jmx.annotations;
 
 public enum Units {
-   NONE, MILLISECONDS, SECONDS, PERCENTAGE;
+   NONE, MILLISECONDS, SECONDS, PERCENTAGE, MICROSECONDS;
 
    @Override
    public String toString() {
@@ -0,0 +1,956 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.infinispan.loaders.file;
+
+import org.infinispan.Cache;
+import org.infinispan.config.ConfigurationException;
+import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.container.entries.InternalCacheValue;
+import org.infinispan.io.ByteBufferInputStream;
+import org.infinispan.loaders.AbstractCacheStore;
+import org.infinispan.loaders.CacheLoaderConfig;
+import org.infinispan.loaders.CacheLoaderException;
+import org.infinispan.loaders.CacheLoaderMetadata;
+import org.infinispan.loaders.file.FileCacheStoreConfig.FsyncMode;
+import org.infinispan.marshall.StreamingMarshaller;
+import org.infinispan.util.Util;
+import org.infinispan.util.concurrent.ConcurrentHashSet;
+import org.infinispan.util.concurrent.ConcurrentMapFactory;
+import org.infinispan.util.logging.Log;
+import org.infinispan.util.logging.LogFactory;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * A log-structured, append-only filesystem-based {@link org.infinispan.loaders.CacheStore}.
+ * <p/>
+ * Unlike the {@link FileCacheStore}, which reads, modifies and rewrites a whole bucket file for every modification,
+ * this store appends every stored entry and every removal to the end of the current log file and keeps an in-memory
+ * index mapping each key to the file and offset of its latest record.  Writes are therefore sequential and loads
+ * need a single positional read.  Log files are stored in the following format:
+ * <tt>/{location}/cache name/file_number.log</tt>, each of them holding a sequence of records made of a header (key
+ * length, value length, expiry time and CRC32 checksum) followed by the marshalled key and
+ * {@link InternalCacheValue}.  Removals are recorded as tombstones, whose value length is <tt>-1</tt>.
+ * <p/>
+ * Records that have been overwritten, removed or that have expired are garbage.  Once the garbage of a log file that
+ * is no longer being appended to exceeds the {@link LogFileCacheStoreConfig#getCompactionThreshold() compaction threshold},
+ * a background thread copies its live records to the end of the log and deletes it.  A tombstone is only copied as
+ * long as an older file still holds a record it overrides, so that tombstones are eventually dropped.  The index is
+ * rebuilt on startup
+ * by scanning the log files in order, truncating any incomplete record left behind by a crash.
+ * <p/>
+ * {@link #containsKey(Object)} and {@link #loadAllKeys(java.util.Set)} are answered from the index alone.  With
+ * {@link LogFileCacheStoreConfig#isMemoryMappedReads() memory-mapped reads} enabled, files that are no longer being
+ * appended to are mapped and {@link #load(Object)} unmarshalls the requested value straight out of the mapped region.
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+@CacheLoaderMetadata(configurationClass = LogFileCacheStoreConfig.class)
+public class LogFileCacheStore extends AbstractCacheStore {
+
+   static final Log log = LogFactory.getLog(LogFileCacheStore.class);
+   private static final boolean trace = log.isTraceEnabled();
+
+   static final String LOG_FILE_SUFFIX = ".log";
+
+   /**
+    * Record header: key length, value length (<tt>-1</tt> for tombstones), expiry time and checksum.
+    */
+   static final int HEADER_SIZE = 4 + 4 + 8 + 4;
+
+   private static final FilenameFilter LOG_FILES_FILTER = new FilenameFilter() {
+      @Override
+      public boolean accept(File dir, String name) {
+         return parseFileId(name) >= 0;
+      }
+   };
+
+   private static final Comparator<Map.Entry<Object, EntryPointer>> FILE_ORDER = new Comparator<Map.Entry<Object, EntryPointer>>() {
+      @Override
+      public int compare(Map.Entry<Object, EntryPointer> e1, Map.Entry<Object, EntryPointer> e2) {
+         EntryPointer p1 = e1.getValue();
+         EntryPointer p2 = e2.getValue();
+         if (p1.file.id != p2.file.id) return p1.file.id < p2.file.id ? -1 : 1;
+         return p1.offset < p2.offset ? -1 : (p1.offset == p2.offset ? 0 : 1);
+      }
+   };
+
+   private final ConcurrentMap<Object, EntryPointer> index = ConcurrentMapFactory.makeConcurrentMap();
+   private final ConcurrentSkipListMap<Integer, LogFile> files = new ConcurrentSkipListMap<Integer, LogFile>();
+   private final ReentrantLock writeLock = new ReentrantLock();
+   private final ReentrantLock compactionLock = new ReentrantLock();
+   private final AtomicBoolean compactionScheduled = new AtomicBoolean(false);
+
+   LogFileCacheStoreConfig config;
+   File root;
+   private volatile LogFile current;
+   private int nextFileId;
+   private volatile ExecutorService compactor;
+   private ScheduledExecutorService flusher;
+   private volatile boolean stopping;
+
+   /**
+    * @return root directory where all files for this {@link org.infinispan.loaders.CacheStore CacheStore} are written.
+    */
+   public File getRoot() {
+      return root;
+   }
+
+   @Override
+   public void init(CacheLoaderConfig config, Cache<?, ?> cache, StreamingMarshaller m) throws CacheLoaderException {
+      super.init(config, cache, m);
+      this.config = (LogFileCacheStoreConfig) config;
+   }
+
+   @Override
+   public Class<? extends CacheLoaderConfig> getConfigurationClass() {
+      return LogFileCacheStoreConfig.class;
+   }
+
+   @Override
+   public void start() throws CacheLoaderException {
+      super.start();
+      String location = config.getLocation();
+      if (location == null || location.trim().length() == 0) {
+         location = "Infinispan-LogFileCacheStore"; // use relative path!
+      }
+      location += File.separator + cache.getName();
+      root = new File(location);
+      if (!root.exists()) {
+         if (!root.mkdirs()) {
+            log.problemsCreatingDirectory(root);
+         }
+      }
+      if (!root.exists()) {
+         throw new ConfigurationException("Directory " + root.getAbsolutePath() + " does not exist and cannot be created!");
+      }
+
+      stopping = false;
+      rebuildIndex();
+
+      final String threadName = (cache == null ? "" : cache.getName() + '-') + getClass().getSimpleName();
+      compactor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+         @Override
+         public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, threadName + "-Compactor");
+            t.setDaemon(true);
+            return t;
+         }
+      });
+      FsyncMode fsyncMode = config.getFsyncMode();
+      if (fsyncMode == FsyncMode.PERIODIC) {
+         flusher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+               Thread t = new Thread(r, threadName + "-Flusher");
+               t.setDaemon(true);
+               return t;
+            }
+         });
+         long interval = config.getFsyncInterval();
+         flusher.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+               LogFile file = current;
+               if (file == null) return;
+               try {
+                  file.force();
+               } catch (IOException e) {
+                  log.errorFlushingToFileChannel(file.channel, e);
+               }
+            }
+         }, interval, interval, TimeUnit.MILLISECONDS);
+      }
+      log.debugf("Using %s file sync mode, %d log files and %d entries found", fsyncMode, files.size(), index.size());
+      scheduleCompaction();
+   }
+
+   @Override
+   public void stop() throws CacheLoaderException {
+      super.stop();
+      stopping = true;
+      if (flusher != null) {
+         flusher.shutdown();
+         flusher = null;
+      }
+      if (compactor != null) {
+         compactor.shutdown();
+         try {
+            compactor.awaitTermination(10, TimeUnit.SECONDS);
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+         }
+         compactor = null;
+      }
+      writeLock.lock();
+      try {
+         for (LogFile file : files.values()) {
+            try {
+               file.force();
+            } catch (IOException e) {
+               log.errorFlushingToFileChannel(file.channel, e);
+            }
+            file.close();
+         }
+         files.clear();
+         index.clear();
+         current = null;
+      } finally {
+         writeLock.unlock();
+      }
+   }
+
+   @Override
+   public void store(InternalCacheEntry entry) throws CacheLoaderException {
+      Object key = entry.getKey();
+      LogRecord record = new LogRecord(marshall(key), marshall(entry.toInternalCacheValue()), entry.getExpiryTime());
+      writeLock.lock();
+      try {
+         EntryPointer pointer = append(key, record);
+         discard(key, index.put(key, pointer));
+      } catch (IOException e) {
+         throw new CacheLoaderException("Error while appending to log file", e);
+      } finally {
+         writeLock.unlock();
+      }
+   }
+
+   @Override
+   public boolean remove(Object key) throws CacheLoaderException {
+      if (!index.containsKey(key)) return false;
+      LogRecord tombstone = new LogRecord(marshall(key), null, -1);
+      writeLock.lock();
+      try {
+         EntryPointer previous = index.remove(key);
+         if (previous == null) return false;
+         discard(key, previous);
+         discard(append(key, tombstone));
+         return !previous.isExpired(System.currentTimeMillis());
+      } catch (IOException e) {
+         throw new CacheLoaderException("Error while appending to log file", e);
+      } finally {
+         writeLock.unlock();
+      }
+   }
+
+   @Override
+   public void clear() throws CacheLoaderException {
+      writeLock.lock();
+      try {
+         index.clear();
+         for (LogFile file : files.values()) {
+            file.delete();
+            if (file.file.exists()) {
+               log.problemsRemovingFile(file.file);
+            }
+         }
+         files.clear();
+         current = null;
+      } finally {
+         writeLock.unlock();
+      }
+   }
+
+   @Override
+   public InternalCacheEntry load(Object key) throws CacheLoaderException {
+      while (true) {
+         EntryPointer pointer = index.get(key);
+         if (pointer == null) return null;
+         if (pointer.isExpired(System.currentTimeMillis())) {
+            expire(key, pointer);
+            return null;
+         }
+         InternalCacheValue value;
+         // keeps the file from being unmapped while the value is unmarshalled straight out of the mapping
+         Lock mappingLock = config.isMemoryMappedReads() ? pointer.file.mappingLock.readLock() : null;
+         if (mappingLock != null) mappingLock.lock();
+         try {
+            ByteBuffer record = mappingLock != null ? pointer.file.mappedRecord(pointer.offset, pointer.length) : null;
+            if (record == null) {
+               record = ByteBuffer.wrap(pointer.file.read(pointer.offset, pointer.length));
+            }
+            value = (InternalCacheValue) unmarshall(valueOf(record));
+         } catch (ClosedChannelException e) {
+            // the file has been compacted or cleared in the meantime, look the key up again
+            if (index.get(key) != pointer) continue;
+            throw new CacheLoaderException("Error while reading from log file " + pointer.file.file, e);
+         } catch (IOException e) {
+            throw new CacheLoaderException("Error while reading from log file " + pointer.file.file, e);
+         } finally {
+            if (mappingLock != null) mappingLock.unlock();
+         }
+         return value.toInternalCacheEntry(key);
+      }
+   }
+
+   /**
+    * Narrows a buffer holding a whole record down to its marshalled value, leaving the key alone.
+    */
+   private static ByteBuffer valueOf(ByteBuffer record) {
+      int start = record.position();
+      int keyLength = record.getInt(start);
+      int valueLength = record.getInt(start + 4);
+      record.position(start + HEADER_SIZE + keyLength);
+      record.limit(record.position() + valueLength);
+      return record;
+   }
+
+   @Override
+   public boolean containsKey(Object key) throws CacheLoaderException {
+      EntryPointer pointer = index.get(key);
+      if (pointer == null) return false;
+      if (pointer.isExpired(System.currentTimeMillis())) {
+         expire(key, pointer);
+         return false;
+      }
+      return true;
+   }
+
+   @Override
+   public Set<InternalCacheEntry> loadAll() throws CacheLoaderException {
+      return load(Integer.MAX_VALUE);
+   }
+
+   @Override
+   public Set<InternalCacheEntry> load(int numEntries) throws CacheLoaderException {
+      // visit the records in file order, so that preloading reads the log sequentially
+      List<Map.Entry<Object, EntryPointer>> entries = new ArrayList<Map.Entry<Object, EntryPointer>>(index.entrySet());
+      Collections.sort(entries, FILE_ORDER);
+      Set<InternalCacheEntry> result = new HashSet<InternalCacheEntry>();
+      for (Map.Entry<Object, EntryPointer> e : entries) {
+         if (result.size() >= numEntries) break;
+         InternalCacheEntry entry = load(e.getKey());
+         if (entry != null) result.add(entry);
+      }
+      return result;
+   }
+
+   @Override
+   public Set<Object> loadAllKeys(Set<Object> keysToExclude) throws CacheLoaderException {
+      long now = System.currentTimeMillis();
+      Set<Object> result = new HashSet<Object>();
+      for (Map.Entry<Object, EntryPointer> entry : index.entrySet()) {
+         Object key = entry.getKey();
+         if (!entry.getValue().isExpired(now) && (keysToExclude == null || !keysToExclude.contains(key)))
+            result.add(key);
+      }
+      return result;
+   }
+
+   /**
+    * Writes all entries to the stream, followed by a <tt>null</tt> marker.
+    */
+   @Override
+   public void toStream(ObjectOutput outputStream) throws CacheLoaderException {
+      try {
+         for (InternalCacheEntry entry : loadAll()) {
+            marshaller.objectToObjectStream(entry, outputStream);
+         }
+         marshaller.objectToObjectStream(null, outputStream);
+      } catch (IOException e) {
+         throw new CacheLoaderException("I/O exception while generating stream", e);
+      }
+   }
+
+   @Override
+   public void fromStream(ObjectInput inputStream) throws CacheLoaderException {
+      try {
+         while (true) {
+            InternalCacheEntry entry = (InternalCacheEntry) marshaller.objectFromObjectStream(inputStream);
+            if (entry == null) break;
+            store(entry);
+         }
+      } catch (IOException e) {
+         throw new CacheLoaderException("I/O error", e);
+      } catch (ClassNotFoundException e) {
+         throw new CacheLoaderException("Unexpected exception", e);
+      } catch (InterruptedException ie) {
+         if (trace) log.trace("Interrupted while reading from stream");
+         Thread.currentThread().interrupt();
+      }
+   }
+
+   @Override
+   protected void purgeInternal() throws CacheLoaderException {
+      if (trace) log.trace("purgeInternal()");
+      long now = System.currentTimeMillis();
+      for (Map.Entry<Object, EntryPointer> entry : index.entrySet()) {
+         EntryPointer pointer = entry.getValue();
+         if (pointer.isExpired(now)) {
+            expire(entry.getKey(), pointer);
+         }
+      }
+   }
+
+   /**
+    * Compacts, in the calling thread, every log file whose garbage exceeds the configured compaction threshold.
+    *
+    * @return false if compacting one of the files failed
+    */
+   boolean compact() {
+      compactionLock.lock();
+      try {
+         LogFile candidate;
+         while (!stopping && (candidate = nextCompactionCandidate()) != null) {
+            try {
+               compact(candidate);
+            } catch (Exception e) {
+               log.problemsCompactingLogFile(candidate.file, e);
+               return false;
+            }
+         }
+         return true;
+      } finally {
+         compactionLock.unlock();
+      }
+   }
+
+   int getLogFileCount() {
+      return files.size();
+   }
+
+   long getLogSize() {
+      long size = 0;
+      for (LogFile file : files.values()) {
+         size += file.size;
+      }
+      return size;
+   }
+
+   private LogFile nextCompactionCandidate() {
+      LogFile candidate = null;
+      double candidateRatio = 0;
+      for (LogFile file : files.values()) {
+         if (file == current) continue;
+         double ratio = file.garbageRatio();
+         if (ratio >= config.getCompactionThreshold() && ratio > candidateRatio) {
+            candidate = file;
+            candidateRatio = ratio;
+         }
+      }
+      return candidate;
+   }
+
+   private void scheduleCompaction() {
+      final ExecutorService executor = compactor;
+      if (executor == null || stopping || nextCompactionCandidate() == null
+            || !compactionScheduled.compareAndSet(false, true))
+         return;
+      try {
+         executor.execute(new Runnable() {
+            @Override
+            public void run() {
+               boolean compacted = false;
+               try {
+                  compacted = compact();
+               } finally {
+                  compactionScheduled.set(false);
+               }
+               // pick up files that qualified while the flag was still set
+               if (compacted) scheduleCompaction();
+            }
+         });
+      } catch (RejectedExecutionException e) {
+         // stopping
+         compactionScheduled.set(false);
+      }
+   }
+
+   /**
+    * Copies the live records of the given file to the end of the log and deletes it.  Records whose key has been
+    * removed or has expired are turned into tombstones, and tombstones are carried over, as long as an older file
+    * still holds a superseded record for that key which would otherwise come back to life on restart.
+    */
+   private void compact(LogFile file) throws IOException, CacheLoaderException {
+      if (trace) log.tracef("Compacting %s", file.file);
+      DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file.file), 65536));
+      try {
+         long offset = 0;
+         long end = file.size;
+         while (offset < end) {
+            LogRecord record = LogRecord.read(in, end - offset);
+            if (record == null) break;
+            Object key = unmarshall(record.key, 0, record.key.length);
+            writeLock.lock();
+            try {
+               if (stopping || !files.containsKey(file.id)) return;
+               EntryPointer pointer = index.get(key);
+               if (pointer != null && pointer.file == file && pointer.offset == offset) {
+                  if (!pointer.isExpired(System.currentTimeMillis())) {
+                     EntryPointer moved = append(key, record);
+                     if (!index.replace(key, pointer, moved)) discard(key, moved);
+                  } else if (index.remove(key, pointer) && isShadowed(key, file)) {
+                     discard(append(key, record.toTombstone()));
+                  }
+               } else if (pointer == null && isShadowed(key, file)) {
+                  discard(append(key, record.toTombstone()));
+               }
+            } finally {
+               writeLock.unlock();
+            }
+            offset += record.size();
+         }
+      } finally {
+         Util.close(in);
+      }
+
+      writeLock.lock();
+      try {
+         if (!files.containsKey(file.id)) return;
+         // make sure the copied records are durable before dropping the originals
+         if (current != null) current.force();
+         files.remove(file.id);
+         file.delete();
+         if (file.file.exists()) log.problemsRemovingFile(file.file);
+      } finally {
+         writeLock.unlock();
+      }
+   }
+
+   /**
+    * Returns whether a file older than the given one holds a superseded record for the key.
+    */
+   private boolean isShadowed(Object key, LogFile file) {
+      for (LogFile older : files.headMap(file.id).values()) {
+         if (older.shadowed.contains(key)) return true;
+      }
+      return false;
+   }
+
+   /**
+    * Appends a record to the current log file, rolling over to a new file once the current one is full.  Must be
+    * called while holding the write lock.
+    */
+   private EntryPointer append(Object key, LogRecord record) throws IOException {
+      LogFile file = current;
+      if (file == null || file.size >= config.getMaxFileSize()) {
+         LogFile previous = file;
+         file = new LogFile(nextFileId++, root);
+         files.put(file.id, file);
+         current = file;
+         if (previous != null) {
+            previous.force();
+            previous.seal();
+            scheduleCompaction();
+         }
+      }
+      long offset = file.append(record.toBuffer());
+      if (config.getFsyncMode() == FsyncMode.PER_WRITE) file.force();
+      return new EntryPointer(file, offset, record.size(), record.expiryTime);
+   }
+
+   /**
+    * Accounts the record a pointer refers to as garbage, scheduling a compaction if its file qualifies.
+    */
+   private void discard(EntryPointer pointer) {
+      if (pointer == null) return;
+      LogFile file = pointer.file;
+      file.garbage.addAndGet(pointer.length);
+      if (file != current && file.garbageRatio() >= config.getCompactionThreshold()) {
+         scheduleCompaction();
+      }
+   }
+
+   /**
+    * Like {@link #discard(EntryPointer)}, for a record of the given key which has been superseded, removed or has
+    * expired, remembering that its file holds a record a tombstone may have to override.
+    */
+   private void discard(Object key, EntryPointer pointer) {
+      if (pointer == null) return;
+      pointer.file.shadowed.add(key);
+      discard(pointer);
+   }
+
+   private void expire(Object key, EntryPointer pointer) {
+      if (index.remove(key, pointer)) {
+         discard(key, pointer);
+      }
+   }
+
+   private void rebuildIndex() throws CacheLoaderException {
+      File[] logFiles = root.listFiles(LOG_FILES_FILTER);
+      if (logFiles == null) {
+         throw new CacheLoaderException("Unable to list the log files in " + root);
+      }
+      int[] ids = new int[logFiles.length];
+      for (int i = 0; i < logFiles.length; i++) {
+         ids[i] = parseFileId(logFiles[i].getName());
+      }
+      Arrays.sort(ids);
+      nextFileId = 0;
+      long now = System.currentTimeMillis();
+      try {
+         for (int id : ids) {
+            LogFile file = new LogFile(id, root);
+            files.put(id, file);
+            current = file;
+            nextFileId = id + 1;
+            scan(file, now);
+         }
+         for (LogFile file : files.values()) {
+            if (file != current) file.seal();
+         }
+      } catch (IOException e) {
+         throw new CacheLoaderException("Error while reading log files from " + root, e);
+      }
+   }
+
+   private void scan(LogFile file, long now) throws IOException, CacheLoaderException {
+      long length = file.file.length();
+      long offset = 0;
+      DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file.file), 65536));
+      try {
+         while (offset < length) {
+            LogRecord record = LogRecord.read(in, length - offset);
+            if (record == null) {
+               log.truncatingLogFile(file.file, offset);
+               file.channel().truncate(offset);
+               break;
+            }
+            Object key = unmarshall(record.key, 0, record.key.length);
+            EntryPointer pointer = new EntryPointer(file, offset, record.size(), record.expiryTime);
+            if (record.isTombstone()) {
+               discard(key, index.remove(key));
+               discard(pointer);
+            } else if (pointer.isExpired(now)) {
+               discard(key, index.remove(key));
+               discard(key, pointer);
+            } else {
+               discard(key, index.put(key, pointer));
+            }
+            offset += record.size();
+         }
+      } finally {
+         Util.close(in);
+      }
+      file.size = offset;
+   }
+
+   private byte[] marshall(Object o) throws CacheLoaderException {
+      try {
+         return marshaller.objectToByteBuffer(o);
+      } catch (IOException e) {
+         throw new CacheLoaderException("Unable to marshall " + o, e);
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new CacheLoaderException("Interrupted while marshalling " + o, e);
+      }
+   }
+
+   private Object unmarshall(ByteBuffer buffer) throws CacheLoaderException {
+      if (buffer.hasArray()) {
+         return unmarshall(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+      }
+      try {
+         ObjectInput in = marshaller.startObjectInput(new ByteBufferInputStream(buffer), false);
+         try {
+            return marshaller.objectFromObjectStream(in);
+         } finally {
+            marshaller.finishObjectInput(in);
+         }
+      } catch (IOException e) {
+         throw new CacheLoaderException("Unable to unmarshall log record", e);
+      } catch (ClassNotFoundException e) {
+         throw new CacheLoaderException("Unable to unmarshall log record", e);
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new CacheLoaderException("Interrupted while unmarshalling log record", e);
+      }
+   }
+
+   private Object unmarshall(byte[] bytes, int offset, int length) throws CacheLoaderException {
+      try {
+         return marshaller.objectFromByteBuffer(bytes, offset, length);
+      } catch (IOException e) {
+         throw new CacheLoaderException("Unable to unmarshall log record", e);
+      } catch (ClassNotFoundException e) {
+         throw new CacheLoaderException("Unable to unmarshall log record", e);
+      }
+   }
+
+   static int parseFileId(String name) {
+      if (!name.endsWith(LOG_FILE_SUFFIX)) return -1;
+      String id = name.substring(0, name.length() - LOG_FILE_SUFFIX.length());
+      if (id.length() == 0 || id.length() > 9) return -1;
+      for (int i = 0; i < id.length(); i++) {
+         if (!Character.isDigit(id.charAt(i))) return -1;
+      }
+      return Integer.parseInt(id);
+   }
+
+   /**
+    * Location of the latest record of a key.
+    */
+   private static final class EntryPointer {
+      final LogFile file;
+      final long offset;
+      final int length;
+      final long expiryTime;
+
+      EntryPointer(LogFile file, long offset, int length, long expiryTime) {
+         this.file = file;
+         this.offset = offset;
+         this.length = length;
+         this.expiryTime = expiryTime;
+      }
+
+      boolean isExpired(long now) {
+         return expiryTime > -1 && now > expiryTime;
+      }
+   }
+
+   /**
+    * A single record: the header fields plus the marshalled key and value, the latter being <tt>null</tt> for
+    * tombstones.
+    */
+   private static final class LogRecord {
+      final byte[] key;
+      final byte[] value;
+      final long expiryTime;
+
+      LogRecord(byte[] key, byte[] value, long expiryTime) {
+         this.key = key;
+         this.value = value;
+         this.expiryTime = expiryTime;
+      }
+
+      boolean isTombstone() {
+         return value == null;
+      }
+
+      LogRecord toTombstone() {
+         return isTombstone() ? this : new LogRecord(key, null, -1);
+      }
+
+      int size() {
+         return HEADER_SIZE + key.length + (value == null ? 0 : value.length);
+      }
+
+      ByteBuffer toBuffer() {
+         ByteBuffer buffer = ByteBuffer.allocate(size());
+         buffer.putInt(key.length);
+         buffer.putInt(value == null ? -1 : value.length);
+         buffer.putLong(expiryTime);
+         buffer.putInt(checksum(key, value));
+         buffer.put(key);
+         if (value != null) buffer.put(value);
+         buffer.flip();
+         return buffer;
+      }
+
+      /**
+       * Reads the next record out of the given number of available bytes, returning <tt>null</tt> if it is
+       * incomplete or corrupt.
+       */
+      static LogRecord read(DataInputStream in, long available) throws IOException {
+         if (available < HEADER_SIZE) return null;
+         try {
+            int keyLength = in.readInt();
+            int valueLength = in.readInt();
+            long expiryTime = in.readLong();
+            int checksum = in.readInt();
+            if (keyLength <= 0 || valueLength < -1
+                  || (long) HEADER_SIZE + keyLength + Math.max(valueLength, 0) > available) return null;
+            byte[] key = new byte[keyLength];
+            in.readFully(key);
+            byte[] value = null;
+            if (valueLength >= 0) {
+               value = new byte[valueLength];
+               in.readFully(value);
+            }
+            if (checksum(key, value) != checksum) return null;
+            return new LogRecord(key, value, expiryTime);
+         } catch (EOFException e) {
+            return null;
+         }
+      }
+
+      static int checksum(byte[] key, byte[] value) {
+         CRC32 crc = new CRC32();
+         crc.update(key);
+         if (value != null) crc.update(value);
+         return (int) crc.getValue();
+      }
+   }
+
+   /**
+    * A log file, written to and read from with positional operations only.  Once sealed, i.e. no longer appended
+    * to, the file may be memory-mapped as a whole.
+    */
+   private static final class LogFile {
+      final int id;
+      final File file;
+      volatile FileChannel channel;
+      final AtomicLong garbage = new AtomicLong();
+      /**
+       * Keys of the records in this file which have been superseded, removed or have expired.
+       */
+      final Set<Object> shadowed = new ConcurrentHashSet<Object>();
+      /**
+       * Held for reading while a record is read out of the mapping, and for writing while it is unmapped.
+       */
+      final ReentrantReadWriteLock mappingLock = new ReentrantReadWriteLock();
+      volatile long size;
+      private volatile boolean deleted;
+      private volatile boolean sealed;
+      private volatile MappedByteBuffer mapped;
+
+      LogFile(int id, File root) throws IOException {
+         this.id = id;
+         this.file = new File(root, id + LOG_FILE_SUFFIX);
+         this.channel = new RandomAccessFile(file, "rw").getChannel();
+         this.size = channel.size();
+      }
+
+      double garbageRatio() {
+         long s = size;
+         return s == 0 ? 0 : (double) garbage.get() / s;
+      }
+
+      long append(ByteBuffer buffer) throws IOException {
+         long offset = size;
+         long position = offset;
+         FileChannel c = channel();
+         while (buffer.hasRemaining()) {
+            position += c.write(buffer, position);
+         }
+         size = position;
+         return offset;
+      }
+
+      byte[] read(long offset, int length) throws IOException {
+         byte[] bytes = new byte[length];
+         ByteBuffer buffer = ByteBuffer.wrap(bytes);
+         FileChannel c = channel();
+         while (buffer.hasRemaining()) {
+            if (c.read(buffer, offset + buffer.position()) < 0) {
+               throw new EOFException("Unexpected end of " + file + " at offset " + offset);
+            }
+         }
+         return bytes;
+      }
+
+      void seal() {
+         sealed = true;
+      }
+
+      /**
+       * Returns a read-only view of a record, mapping the file on first use, or <tt>null</tt> if the file is still
+       * being appended to or is too large to be mapped in one go.  The view may only be used while holding the read
+       * lock of the {@link #mappingLock}.
+       */
+      ByteBuffer mappedRecord(long offset, int length) throws IOException {
+         MappedByteBuffer m = mapped;
+         if (m == null) {
+            if (!sealed || size > Integer.MAX_VALUE) return null;
+            m = map();
+         }
+         ByteBuffer record = m.duplicate();
+         record.limit((int) offset + length);
+         record.position((int) offset);
+         return record;
+      }
+
+      private synchronized MappedByteBuffer map() throws IOException {
+         if (deleted) throw new ClosedChannelException();
+         if (mapped == null) {
+            mapped = channel().map(FileChannel.MapMode.READ_ONLY, 0, size);
+         }
+         return mapped;
+      }
+
+      void force() throws IOException {
+         if (!deleted) channel().force(false);
+      }
+
+      /**
+       * Channels are closed when a thread blocked on them is interrupted, in which case it is reopened.
+       */
+      FileChannel channel() throws IOException {
+         FileChannel c = channel;
+         return c.isOpen() ? c : reopen();
+      }
+
+      private synchronized FileChannel reopen() throws IOException {
+         if (deleted) throw new ClosedChannelException();
+         if (!channel.isOpen()) {
+            channel = new RandomAccessFile(file, "rw").getChannel();
+         }
+         return channel;
+      }
+
+      void close() {
+         // taken before the monitor, like readers mapping the file do
+         mappingLock.writeLock().lock();
+         try {
+            synchronized (this) {
+               deleted = true;
+               // release the mapping right away rather than once the buffer has been collected, which keeps the
+               // address space and, on some platforms, the deleted file itself in use until then
+               Util.freeDirectBuffer(mapped);
+               mapped = null;
+               Util.close(channel);
+            }
+         } finally {
+            mappingLock.writeLock().unlock();
+         }
+      }
+
+      void delete() {
+         close();
+         file.delete();
+      }
+   }
+}
@@ -0,0 +1,181 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.infinispan.loaders.file;
+
+import org.infinispan.loaders.AbstractCacheStoreConfig;
+import org.infinispan.loaders.file.FileCacheStoreConfig.FsyncMode;
+
+/**
+ * Configures {@link LogFileCacheStore}.  This allows you to tune a number of characteristics of the
+ * {@link LogFileCacheStore}.
+ * <p/>
+ *    <ul>
+ *       <li><tt>location</tt> - a location on disk where the store writes its log files.  This defaults to
+ * <tt>Infinispan-LogFileCacheStore</tt> in the current working directory.</li>
+ *       <li><tt>maxFileSize</tt> - the size, in bytes, after which the store stops appending to the current log file
+ * and starts a new one.  Only full files are compacted, so smaller files reclaim space sooner at the price of more
+ * open files.  By default, this is set to <tt>16777216</tt> (16 MB).</li>
+ *       <li><tt>compactionThreshold</tt> - the fraction of a log file that must be taken by stale records (overwritten,
+ * removed or expired entries) before the file is compacted in the background.  By default, this is set to
+ * <tt>0.5</tt>.</li>
+ *       <li><tt>fsyncMode</tt> - configures how appended records are synchronized with the underlying file system,
+ * using the same values as {@link FileCacheStoreConfig#getFsyncMode()}:
+ *       <ul>
+ *          <li><tt>default</tt> - the file system is synchronized when the OS buffer is full or when the store
+ *       stops.</li>
+ *          <li><tt>perWrite</tt> - every append is synchronized before the write returns.</li>
+ *          <li><tt>periodic</tt> - the current log file is synchronized every <tt>fsyncInterval</tt>
+ *       milliseconds.</li>
+ *       </ul>
+ *       <li><tt>fsyncInterval</tt> - specifies the time after which appended records need to be flushed. This option
+ * has only effect when <tt>periodic</tt> fsync mode is in use. The default fsync interval is 1 second.</li>
+ *       <li><tt>memoryMappedReads</tt> - whether log files that are no longer appended to are memory-mapped, so that
+ * loads unmarshall entries straight out of the mapped (page cache) region rather than copying them through a read
+ * call first.  Mapped regions count against the virtual address space of the process, not against the heap.  By
+ * default, this is set to <tt>false</tt>.</li>
+ *    </ul>
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+public class LogFileCacheStoreConfig extends AbstractCacheStoreConfig {
+
+   private static final long serialVersionUID = -7634569152098325124L;
+
+   private String location = "Infinispan-LogFileCacheStore";
+   private long maxFileSize = 16 * 1024 * 1024;
+   private double compactionThreshold = 0.5;
+   private FsyncMode fsyncMode = FsyncMode.DEFAULT;
+   private long fsyncInterval = 1000;
+   private boolean memoryMappedReads = false;
+
+   public LogFileCacheStoreConfig() {
+      setCacheLoaderClassName(LogFileCacheStore.class.getName());
+   }
+
+   public String getLocation() {
+      return location;
+   }
+
+   public void setLocation(String location) {
+      testImmutability("location");
+      this.location = location;
+   }
+
+   public LogFileCacheStoreConfig location(String location) {
+      setLocation(location);
+      return this;
+   }
+
+   public long getMaxFileSize() {
+      return maxFileSize;
+   }
+
+   public void setMaxFileSize(long maxFileSize) {
+      testImmutability("maxFileSize");
+      this.maxFileSize = maxFileSize;
+   }
+
+   public LogFileCacheStoreConfig maxFileSize(long maxFileSize) {
+      setMaxFileSize(maxFileSize);
+      return this;
+   }
+
+   public double getCompactionThreshold() {
+      return compactionThreshold;
+   }
+
+   public void setCompactionThreshold(double compactionThreshold) {
+      testImmutability("compactionThreshold");
+      this.compactionThreshold = compactionThreshold;
+   }
+
+   public LogFileCacheStoreConfig compactionThreshold(double compactionThreshold) {
+      setCompactionThreshold(compactionThreshold);
+      return this;
+   }
+
+   public FsyncMode getFsyncMode() {
+      return fsyncMode;
+   }
+
+   public void setFsyncMode(FsyncMode fsyncMode) {
+      testImmutability("fsyncMode");
+      this.fsyncMode = fsyncMode;
+   }
+
+   public LogFileCacheStoreConfig fsyncMode(FsyncMode fsyncMode) {
+      setFsyncMode(fsyncMode);
+      return this;
+   }
+
+   public long getFsyncInterval() {
+      return fsyncInterval;
+   }
+
+   public void setFsyncInterval(long fsyncInterval) {
+      testImmutability("fsyncInterval");
+      this.fsyncInterval = fsyncInterval;
+   }
+
+   public LogFileCacheStoreConfig fsyncInterval(long fsyncInterval) {
+      setFsyncInterval(fsyncInterval);
+      return this;
+   }
+
+   public boolean isMemoryMappedReads() {
+      return memoryMappedReads;
+   }
+
+   public void setMemoryMappedReads(boolean memoryMappedReads) {
+      testImmutability("memoryMappedReads");
+      this.memoryMappedReads = memoryMappedReads;
+   }
+
+   public LogFileCacheStoreConfig memoryMappedReads(boolean memoryMappedReads) {
+      setMemoryMappedReads(memoryMappedReads);
+      return this;
+   }
+
+   // Method overrides below are used to make configuration more fluent.
+
+   @Override
+   public LogFileCacheStoreConfig purgeOnStartup(Boolean purgeOnStartup) {
+      super.purgeOnStartup(purgeOnStartup);
+      return this;
+   }
+
+   @Override
+   public LogFileCacheStoreConfig purgeSynchronously(Boolean purgeSynchronously) {
+      super.purgeSynchronously(purgeSynchronously);
+      return this;
+   }
+
+   @Override
+   public LogFileCacheStoreConfig fetchPersistentState(Boolean fetchPersistentState) {
+      super.fetchPersistentState(fetchPersistentState);
+      return this;
+   }
+
+   @Override
+   public LogFileCacheStoreConfig ignoreModifications(Boolean ignoreModifications) {
+      super.ignoreModifications(ignoreModifications);
+      return this;
+   }
+}
@@ -28,6 +28,7 @@
 import org.infinispan.commands.read.MapCombineCommand;
 import org.infinispan.commands.read.ReduceCommand;
 import org.infinispan.commands.remote.CacheRpcCommand;
+import org.infinispan.commands.remote.ClusteredGetAllCommand;
 import org.infinispan.commands.remote.ClusteredGetCommand;
 import org.infinispan.commands.remote.MultipleRpcCommand;
 import org.infinispan.commands.remote.SingleRpcCommand;
@@ -92,7 +93,7 @@ public Set<Class<? extends CacheRpcCommand>> getTypeClasses() {
       Set<Class<? extends CacheRpcCommand>> coreCommands = Util.asSet(MapCombineCommand.class,
                ReduceCommand.class, DistributedExecuteCommand.class, LockControlCommand.class,
                StateRequestCommand.class, StateResponseCommand.class, ClusteredGetCommand.class,
-               MultipleRpcCommand.class, SingleRpcCommand.class, CommitCommand.class,
+               ClusteredGetAllCommand.class, MultipleRpcCommand.class, SingleRpcCommand.class, CommitCommand.class,
                PrepareCommand.class, RollbackCommand.class, RemoveCacheCommand.class,
                TxCompletionNotificationCommand.class, GetInDoubtTransactionsCommand.class,
                GetInDoubtTxInfoCommand.class, CompleteTransactionCommand.class,
@@ -27,6 +27,7 @@
 import org.infinispan.commands.ReplicableCommand;
 import org.infinispan.commands.TopologyAffectedCommand;
 import org.infinispan.commands.read.DistributedExecuteCommand;
+import org.infinispan.commands.read.GetAllCommand;
 import org.infinispan.commands.read.GetKeyValueCommand;
 import org.infinispan.commands.remote.CacheRpcCommand;
 import org.infinispan.commands.write.ApplyDeltaCommand;
@@ -145,7 +146,7 @@ public Integer getId() {
    public Set<Class<? extends ReplicableCommand>> getTypeClasses() {
        Set<Class<? extends ReplicableCommand>> coreCommands = Util.<Class<? extends ReplicableCommand>>asSet(
             CacheTopologyControlCommand.class, DistributedExecuteCommand.class, GetKeyValueCommand.class,
-            ClearCommand.class, EvictCommand.class, ApplyDeltaCommand.class,
+            GetAllCommand.class, ClearCommand.class, EvictCommand.class, ApplyDeltaCommand.class,
             InvalidateCommand.class, InvalidateL1Command.class,
             PutKeyValueCommand.class, PutMapCommand.class,
             RemoveCommand.class, ReplaceCommand.class);
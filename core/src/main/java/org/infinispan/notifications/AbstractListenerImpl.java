@@ -29,7 +29,6 @@
 import org.infinispan.factories.annotations.Start;
 import org.infinispan.factories.annotations.Stop;
 import org.infinispan.util.ReflectionUtil;
-import org.infinispan.util.concurrent.WithinThreadExecutor;
 import org.infinispan.util.logging.Log;
 
 import java.lang.annotation.Annotation;
@@ -44,8 +43,11 @@
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Functionality common to both {@link org.infinispan.notifications.cachemanagerlistener.CacheManagerNotifierImpl} and
@@ -55,11 +57,11 @@
  */
 public abstract class AbstractListenerImpl {
 
-   protected final Map<Class<? extends Annotation>, List<ListenerInvocation>> listenersMap = new HashMap<Class<? extends Annotation>, List<ListenerInvocation>>(16, 0.99f);
+   private static final int MAX_BATCH_SIZE = 256;
 
+   protected final Map<Class<? extends Annotation>, List<ListenerInvocation>> listenersMap = new HashMap<Class<? extends Annotation>, List<ListenerInvocation>>(16, 0.99f);
 
-   // two separate executor services, one for sync and one for async listeners
-   protected ExecutorService syncProcessor;
+   // sync listeners are invoked directly in the caller's thread
    protected ExecutorService asyncProcessor;
 
 
@@ -68,9 +70,13 @@ void injectExecutor(@ComponentName(KnownComponentNames.ASYNC_NOTIFICATION_EXECUT
       this.asyncProcessor = executor;
    }
 
+   /**
+    * @deprecated sync listeners are invoked in the caller's thread and no longer need an executor to be started, so
+    *             this does nothing
+    */
+   @Deprecated
    @Start (priority = 9)
    public void start() {
-      syncProcessor = new WithinThreadExecutor();
    }
 
    /**
@@ -81,8 +87,6 @@ void stop() {
       for (List<ListenerInvocation> list : listenersMap.values()) {
          if (list != null) list.clear();
       }
-
-      if (syncProcessor != null) syncProcessor.shutdownNow();
    }
 
    protected abstract Log getLog();
@@ -111,11 +115,20 @@ private void removeListenerInvocation(Class<? extends Annotation> annotation, Ob
    }
 
    public void addListener(Object listener) {
-      addListener(listener, null);
+      addListener(listener, (ClassLoader) null);
    }
 
    public void addListener(Object listener, ClassLoader classLoader) {
-      validateAndAddListenerInvocation(listener, classLoader);
+      validateAndAddListenerInvocation(listener, null, classLoader);
+   }
+
+   public void addListener(Object listener, KeyFilter filter) {
+      addListener(listener, filter, null);
+   }
+
+   public void addListener(Object listener, KeyFilter filter, ClassLoader classLoader) {
+      if (filter == null) throw new NullPointerException("Key filter cannot be null");
+      validateAndAddListenerInvocation(listener, filter, classLoader);
    }
 
    public Set<Object> getListeners() {
@@ -133,8 +146,11 @@ public Set<Object> getListeners() {
     * @param listener object to be considered as a listener.
     */
    @SuppressWarnings("unchecked")
-   private void validateAndAddListenerInvocation(Object listener, ClassLoader classLoader) {
+   private void validateAndAddListenerInvocation(Object listener, KeyFilter filter, ClassLoader classLoader) {
       boolean sync = testListenerClassValidity(listener.getClass());
+      Listener annotation = ReflectionUtil.getAnnotation(listener.getClass(), Listener.class);
+      // all methods of a listener share the queue, so that its events are delivered in order
+      BatchingDelivery batch = !sync && annotation.batching() ? new BatchingDelivery() : null;
       boolean foundMethods = false;
       Map<Class<? extends Annotation>, Class<?>> allowedListeners = getAllowedMethodAnnotations();
       // now try all methods on the listener for anything that we like.  Note that only PUBLIC methods are scanned.
@@ -145,7 +161,7 @@ private void validateAndAddListenerInvocation(Object listener, ClassLoader class
             Class<?> value = annotationEntry.getValue();
             if (m.isAnnotationPresent(key)) {
                testListenerMethodValidity(m, value, key.getName());
-               addListenerInvocation(key, new ListenerInvocation(listener, m, sync, classLoader));
+               addListenerInvocation(key, new ListenerInvocation(listener, m, sync, classLoader, annotation.observation(), filter, batch));
                foundMethods = true;
             }
          }
@@ -183,6 +199,38 @@ protected static void testListenerMethodValidity(Method m, Class<?> allowedParam
          throw new IncorrectListenerException("Methods annotated with " + annotationName + " should have a return type of void.");
    }
 
+   /**
+    * Returns whether any of the given listeners observes the pre or post phase of a notification, so that the event
+    * need not be created if none does.
+    */
+   protected static boolean isObserved(List<ListenerInvocation> listeners, boolean pre) {
+      for (ListenerInvocation li : listeners) {
+         if (li.observation.observes(pre)) return true;
+      }
+      return false;
+   }
+
+   /**
+    * Returns whether any of the given listeners observes the pre or post phase of a notification about the given key,
+    * so that the event need not be created if none does.
+    */
+   protected static boolean isObserved(List<ListenerInvocation> listeners, boolean pre, Object key) {
+      for (ListenerInvocation li : listeners) {
+         if (li.observes(pre) && li.accepts(key)) return true;
+      }
+      return false;
+   }
+
+   /**
+    * Returns whether any of the given listeners accepts notifications about the given key.
+    */
+   protected static boolean isAccepted(List<ListenerInvocation> listeners, Object key) {
+      for (ListenerInvocation li : listeners) {
+         if (li.accepts(key)) return true;
+      }
+      return false;
+   }
+
    /**
     * Class that encapsulates a valid invocation for a given registered listener - containing a reference to the method
     * to be invoked as well as the target object.
@@ -192,52 +240,131 @@ protected class ListenerInvocation {
       public final Method method;
       public final boolean sync;
       public final WeakReference<ClassLoader> classLoader;
+      public final Listener.Observation observation;
+      public final KeyFilter filter;
+      private final BatchingDelivery batch;
 
       public ListenerInvocation(Object target, Method method, boolean sync, ClassLoader classLoader) {
+         this(target, method, sync, classLoader, Listener.Observation.BOTH, null, null);
+      }
+
+      ListenerInvocation(Object target, Method method, boolean sync, ClassLoader classLoader,
+                         Listener.Observation observation, KeyFilter filter, BatchingDelivery batch) {
          this.target = target;
          this.method = method;
          this.sync = sync;
-         this.classLoader = new WeakReference<ClassLoader>(classLoader);
+         this.classLoader = classLoader == null ? null : new WeakReference<ClassLoader>(classLoader);
+         this.observation = observation;
+         this.filter = filter;
+         this.batch = batch;
+         // skips the access check on every invocation; the method is public anyway
+         makeAccessible(method);
       }
 
-      public void invoke(final Object event) {
-         Runnable r = new Runnable() {
+      /**
+       * @return whether the listener observes the pre (or post) phase of a notification
+       */
+      public boolean observes(boolean pre) {
+         return observation.observes(pre);
+      }
 
-            @Override
-            public void run() {
-               ClassLoader contextClassLoader = null;
-               if (classLoader != null && classLoader.get() != null) {
-                  contextClassLoader = setContextClassLoader(classLoader.get());
-               }
-               try {
-                  method.invoke(target, event);
-               }
-               catch (InvocationTargetException exception) {
-                  Throwable cause = getRealException(exception);
-                  if (sync) {
-                     throw new CacheException(String.format(
-                        "Caught exception [%s] while invoking method [%s] on listener instance: %s"
-                        , cause.getClass().getName(), method, target
-                     ), cause);
-                  } else {
-                     getLog().unableToInvokeListenerMethod(method, target, cause);
-                  }
-               }
-               catch (IllegalAccessException exception) {
-                  getLog().unableToInvokeListenerMethod(method, target, exception);
-                  removeListener(target);
-               } finally {
-                  if (classLoader != null && classLoader.get() != null) {
-                     setContextClassLoader(contextClassLoader);
-                  }
+      /**
+       * @return whether the listener wants to be notified about the given key
+       */
+      public boolean accepts(Object key) {
+         return filter == null || filter.accept(key);
+      }
+
+      public void invoke(final Object event) {
+         if (sync) {
+            doInvoke(event);
+         } else if (batch != null) {
+            batch.enqueue(this, event);
+         } else {
+            asyncProcessor.execute(new Runnable() {
+               @Override
+               public void run() {
+                  doInvoke(event);
                }
+            });
+         }
+      }
+
+      private void doInvoke(Object event) {
+         ClassLoader listenerClassLoader = classLoader == null ? null : classLoader.get();
+         ClassLoader contextClassLoader = null;
+         boolean swapClassLoader = listenerClassLoader != null && listenerClassLoader != getContextClassLoader();
+         if (swapClassLoader) {
+            contextClassLoader = setContextClassLoader(listenerClassLoader);
+         }
+         try {
+            method.invoke(target, event);
+         }
+         catch (InvocationTargetException exception) {
+            Throwable cause = getRealException(exception);
+            if (sync) {
+               throw new CacheException(String.format(
+                  "Caught exception [%s] while invoking method [%s] on listener instance: %s"
+                  , cause.getClass().getName(), method, target
+               ), cause);
+            } else {
+               getLog().unableToInvokeListenerMethod(method, target, cause);
             }
-         };
+         }
+         catch (IllegalAccessException exception) {
+            getLog().unableToInvokeListenerMethod(method, target, exception);
+            removeListener(target);
+         } finally {
+            if (swapClassLoader) {
+               setContextClassLoader(contextClassLoader);
+            }
+         }
+      }
+   }
 
-         if (sync)
-            syncProcessor.execute(r);
-         else
-            asyncProcessor.execute(r);
+   /**
+    * Delivers the events of an asynchronous listener in the order they were raised.  Instead of submitting a task per
+    * event, events are queued and at most one task per listener drains the queue, in batches of at most {@link
+    * #MAX_BATCH_SIZE} events so that a busy listener does not monopolize a notification thread.
+    */
+   private class BatchingDelivery implements Runnable {
+      private final Queue<PendingEvent> queue = new ConcurrentLinkedQueue<PendingEvent>();
+      private final AtomicBoolean scheduled = new AtomicBoolean();
+
+      void enqueue(ListenerInvocation invocation, Object event) {
+         queue.add(new PendingEvent(invocation, event));
+         schedule();
+      }
+
+      private void schedule() {
+         if (scheduled.compareAndSet(false, true)) {
+            asyncProcessor.execute(this);
+         }
+      }
+
+      @Override
+      public void run() {
+         try {
+            for (int i = 0; i < MAX_BATCH_SIZE; i++) {
+               PendingEvent pending = queue.poll();
+               if (pending == null) break;
+               pending.invocation.doInvoke(pending.event);
+            }
+         } finally {
+            scheduled.set(false);
+            // events queued after the last poll would otherwise wait for the next one
+            if (!queue.isEmpty()) schedule();
+         }
+      }
+   }
+
+   private static class PendingEvent {
+      final ListenerInvocation invocation;
+      final Object event;
+
+      PendingEvent(ListenerInvocation invocation, Object event) {
+         this.invocation = invocation;
+         this.event = event;
       }
    }
 
@@ -250,6 +377,32 @@ private Throwable getRealException(Throwable re) {
          return re;
    }
 
+   private static void makeAccessible(final Method method) {
+      try {
+         AccessController.doPrivileged(new PrivilegedAction<Void>() {
+            @Override
+            public Void run() {
+               method.setAccessible(true);
+               return null;
+            }
+         });
+      } catch (SecurityException e) {
+         // fall back to checked invocations
+      }
+   }
+
+   static ClassLoader getContextClassLoader() {
+      if (System.getSecurityManager() == null) {
+         return Thread.currentThread().getContextClassLoader();
+      }
+      return AccessController.doPrivileged(new PrivilegedAction<ClassLoader>() {
+         @Override
+         public ClassLoader run() {
+            return Thread.currentThread().getContextClassLoader();
+         }
+      });
+   }
+
    static ClassLoader setContextClassLoader(final ClassLoader loader) {
       PrivilegedAction<ClassLoader> action = new PrivilegedAction<ClassLoader>() {
          @Override
@@ -0,0 +1,39 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.infinispan.notifications;
+
+/**
+ * A {@link Listenable} that allows listeners to be registered together with a {@link KeyFilter}.  The filter only
+ * applies to notifications about specific keys; notifications about several keys at once, such as
+ * {@link org.infinispan.notifications.cachelistener.annotation.CacheEntriesEvicted}, are delivered if the filter
+ * accepts at least one of them, and notifications without keys are always delivered.
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+public interface FilteringListenable extends Listenable {
+
+   /**
+    * Adds a listener which is only notified about the keys accepted by the given filter.
+    *
+    * @param listener must not be null.
+    * @param filter   must not be null.
+    */
+   void addListener(Object listener, KeyFilter filter);
+}
@@ -0,0 +1,38 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.infinispan.notifications;
+
+/**
+ * A filter for the keys a listener is notified about, registered through {@link FilteringListenable}.  The filter is
+ * evaluated before a notification is created, so a listener interested in a small subset of the keys does not pay for
+ * notifications about the others.
+ * <p />
+ * Implementations are invoked in the thread performing the operation, so they must be thread safe and fast.
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+public interface KeyFilter {
+
+   /**
+    * @param key the key affected by an operation, never null
+    * @return true if the listener should be notified about the operation
+    */
+   boolean accept(Object key);
+}
@@ -224,4 +224,50 @@
     * @since 4.0
     */
    boolean sync() default true;
+
+   /**
+    * Specifies whether the callbacks on this listener are interested in the notification sent before an operation is
+    * applied, the one sent after it has been applied, or both.  Notifications that a listener does not observe are not
+    * created in the first place, so listeners that only need one of them should say so.  Defaults to {@link
+    * Observation#BOTH}.  Notifications that do not have a pre and post phase are always delivered.
+    *
+    * @return the notification phases this listener observes
+    * @since 5.3
+    */
+   Observation observation() default Observation.BOTH;
+
+   /**
+    * Only applies to asynchronous listeners.  If enabled, the events for this listener are queued and delivered in the
+    * order they were raised, by at most one thread at a time, which drains them in batches.  Otherwise every event is
+    * submitted to the notification executor as a separate task, so events may be delivered concurrently and out of
+    * order.  Defaults to <tt>false</tt>.
+    *
+    * @return true if events should be delivered in order, in batches
+    * @since 5.3
+    */
+   boolean batching() default false;
+
+   /**
+    * The notification phases a listener may observe.
+    *
+    * @since 5.3
+    */
+   enum Observation {
+      /**
+       * Observe notifications sent before an operation is applied.
+       */
+      PRE,
+      /**
+       * Observe notifications sent after an operation has been applied.
+       */
+      POST,
+      /**
+       * Observe both notifications.
+       */
+      BOTH;
+
+      public boolean observes(boolean pre) {
+         return this == BOTH || (this == PRE) == pre;
+      }
+   }
 }
@@ -28,7 +28,7 @@
 import org.infinispan.distribution.ch.ConsistentHash;
 import org.infinispan.factories.scopes.Scope;
 import org.infinispan.factories.scopes.Scopes;
-import org.infinispan.notifications.Listenable;
+import org.infinispan.notifications.FilteringListenable;
 import org.infinispan.transaction.xa.GlobalTransaction;
 
 import java.util.Collection;
@@ -40,7 +40,7 @@
  * @since 4.0
  */
 @Scope(Scopes.NAMED_CACHE)
-public interface CacheNotifier extends Listenable {
+public interface CacheNotifier extends FilteringListenable {
 
    /**
     * Notifies all registered listeners of a CacheEntryCreated event.
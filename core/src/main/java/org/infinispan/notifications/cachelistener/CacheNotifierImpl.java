@@ -31,7 +31,7 @@
 import org.infinispan.distribution.ch.ConsistentHash;
 import org.infinispan.factories.annotations.Inject;
 import org.infinispan.notifications.AbstractListenerImpl;
-import org.infinispan.notifications.ClassLoaderAwareListenable;
+import org.infinispan.notifications.ClassLoaderAwareFilteringListenable;
 import org.infinispan.notifications.cachelistener.annotation.*;
 import org.infinispan.notifications.cachelistener.event.*;
 import org.infinispan.transaction.xa.GlobalTransaction;
@@ -57,7 +57,7 @@
  * @author Mircea.Markus@jboss.com
  * @since 4.0
  */
-public final class CacheNotifierImpl extends AbstractListenerImpl implements CacheNotifier, ClassLoaderAwareListenable {
+public final class CacheNotifierImpl extends AbstractListenerImpl implements CacheNotifier, ClassLoaderAwareFilteringListenable {
 
    private static final Log log = LogFactory.getLog(CacheNotifierImpl.class);
 
@@ -139,7 +139,7 @@ protected Map<Class<? extends Annotation>, Class<?>> getAllowedMethodAnnotations
    @Override
    public void notifyCacheEntryCreated(Object key, Object value, boolean pre,
          InvocationContext ctx, FlagAffectedCommand command) {
-      if (!cacheEntryCreatedListeners.isEmpty()) {
+      if (isObserved(cacheEntryCreatedListeners, pre, key)) {
          boolean originLocal = ctx.isOriginLocal();
          EventImpl<Object, Object> e = EventImpl.createEvent(cache, CACHE_ENTRY_CREATED);
          e.setOriginLocal(originLocal);
@@ -150,7 +150,9 @@ public void notifyCacheEntryCreated(Object key, Object value, boolean pre,
          e.setPre(pre);
          e.setKey(key);
          setTx(ctx, e);
-         for (ListenerInvocation listener : cacheEntryCreatedListeners) listener.invoke(e);
+         for (ListenerInvocation listener : cacheEntryCreatedListeners) {
+            if (listener.observes(pre) && listener.accepts(key)) listener.invoke(e);
+         }
       }
    }
 
@@ -158,7 +160,7 @@ public void notifyCacheEntryCreated(Object key, Object value, boolean pre,
    public void notifyCacheEntryModified(Object key, Object value,
          boolean created, boolean pre, InvocationContext ctx,
          FlagAffectedCommand command) {
-      if (!cacheEntryModifiedListeners.isEmpty()) {
+      if (isObserved(cacheEntryModifiedListeners, pre, key)) {
          boolean originLocal = ctx.isOriginLocal();
          EventImpl<Object, Object> e = EventImpl.createEvent(cache, CACHE_ENTRY_MODIFIED);
          e.setOriginLocal(originLocal);
@@ -174,14 +176,16 @@ public void notifyCacheEntryModified(Object key, Object value,
          // want to fire it when isPre=false.
          e.setCreated(created);
          setTx(ctx, e);
-         for (ListenerInvocation listener : cacheEntryModifiedListeners) listener.invoke(e);
+         for (ListenerInvocation listener : cacheEntryModifiedListeners) {
+            if (listener.observes(pre) && listener.accepts(key)) listener.invoke(e);
+         }
       }
    }
 
    @Override
    public void notifyCacheEntryRemoved(Object key, Object value, Object oldValue,
          boolean pre, InvocationContext ctx, FlagAffectedCommand command) {
-      if (isNotificationAllowed(command, cacheEntryRemovedListeners)) {
+      if (isNotificationAllowed(command, cacheEntryRemovedListeners, pre, key)) {
          boolean originLocal = ctx.isOriginLocal();
          EventImpl<Object, Object> e = EventImpl.createEvent(cache, CACHE_ENTRY_REMOVED);
          e.setOriginLocal(originLocal);
@@ -190,19 +194,23 @@ public void notifyCacheEntryRemoved(Object key, Object value, Object oldValue,
          e.setPre(pre);
          e.setKey(key);
          setTx(ctx, e);
-         for (ListenerInvocation listener : cacheEntryRemovedListeners) listener.invoke(e);
+         for (ListenerInvocation listener : cacheEntryRemovedListeners) {
+            if (listener.observes(pre) && listener.accepts(key)) listener.invoke(e);
+         }
       }
    }
 
    @Override
    public void notifyCacheEntryVisited(Object key, Object value, boolean pre, InvocationContext ctx, FlagAffectedCommand command) {
-      if (isNotificationAllowed(command, cacheEntryVisitedListeners)) {
+      if (isNotificationAllowed(command, cacheEntryVisitedListeners, pre, key)) {
          EventImpl<Object, Object> e = EventImpl.createEvent(cache, CACHE_ENTRY_VISITED);
          e.setPre(pre);
          e.setKey(key);
          e.setValue(value);
          setTx(ctx, e);
-         for (ListenerInvocation listener : cacheEntryVisitedListeners) listener.invoke(e);
+         for (ListenerInvocation listener : cacheEntryVisitedListeners) {
+            if (listener.observes(pre) && listener.accepts(key)) listener.invoke(e);
+         }
       }
    }
 
@@ -236,16 +244,32 @@ public Object setValue(Object value) {
             );
 
             e.setEntries(evictedKeysAndValues);
-            for (ListenerInvocation listener : cacheEntriesEvictedListeners) listener.invoke(e);
+            for (ListenerInvocation listener : cacheEntriesEvictedListeners) {
+               if (listener.filter == null) {
+                  listener.invoke(e);
+               } else {
+                  // Filtered listeners only get to see the evicted keys they accept
+                  Map<Object, Object> accepted = acceptedEntries(listener, entries);
+                  if (!accepted.isEmpty()) {
+                     EventImpl<Object, Object> filtered = EventImpl.createEvent(cache, CACHE_ENTRY_EVICTED);
+                     filtered.setEntries(accepted);
+                     listener.invoke(filtered);
+                  }
+               }
+            }
          }
 
          // For backward compat
          if (isNotificationAllowed(command, cacheEntryEvictedListeners)) {
             for (InternalCacheEntry ice : entries) {
+               Object key = ice.getKey();
+               if (!isAccepted(cacheEntryEvictedListeners, key)) continue;
                EventImpl<Object, Object> e = EventImpl.createEvent(cache, CACHE_ENTRY_EVICTED);
-               e.setKey(ice.getKey());
+               e.setKey(key);
                e.setValue(ice.getValue());
-               for (ListenerInvocation listener : cacheEntryEvictedListeners) listener.invoke(e);
+               for (ListenerInvocation listener : cacheEntryEvictedListeners) {
+                  if (listener.accepts(key)) listener.invoke(e);
+               }
             }
          }
       }
@@ -254,25 +278,29 @@ public Object setValue(Object value) {
    @Override
    public void notifyCacheEntryEvicted(Object key, Object value,
          InvocationContext ctx, FlagAffectedCommand command) {
-      if (isNotificationAllowed(command, cacheEntriesEvictedListeners)) {
+      if (isNotificationAllowed(command, cacheEntriesEvictedListeners, key)) {
          EventImpl<Object, Object> e = EventImpl.createEvent(cache, CACHE_ENTRY_EVICTED);
          e.setEntries(Collections.singletonMap(key, value));
-         for (ListenerInvocation listener : cacheEntriesEvictedListeners) listener.invoke(e);
+         for (ListenerInvocation listener : cacheEntriesEvictedListeners) {
+            if (listener.accepts(key)) listener.invoke(e);
+         }
       }
 
       // For backward compat
-      if (isNotificationAllowed(command, cacheEntryEvictedListeners)) {
+      if (isNotificationAllowed(command, cacheEntryEvictedListeners, key)) {
          EventImpl<Object, Object> e = EventImpl.createEvent(cache, CACHE_ENTRY_EVICTED);
          e.setKey(key);
          e.setValue(value);
-         for (ListenerInvocation listener : cacheEntryEvictedListeners) listener.invoke(e);
+         for (ListenerInvocation listener : cacheEntryEvictedListeners) {
+            if (listener.accepts(key)) listener.invoke(e);
+         }
       }
    }
 
    @Override
    public void notifyCacheEntryInvalidated(final Object key, Object value, final boolean pre,
          InvocationContext ctx, FlagAffectedCommand command) {
-      if (isNotificationAllowed(command, cacheEntryInvalidatedListeners)) {
+      if (isNotificationAllowed(command, cacheEntryInvalidatedListeners, pre, key)) {
          final boolean originLocal = ctx.isOriginLocal();
          EventImpl<Object, Object> e = EventImpl.createEvent(cache, CACHE_ENTRY_INVALIDATED);
          e.setOriginLocal(originLocal);
@@ -280,14 +308,16 @@ public void notifyCacheEntryInvalidated(final Object key, Object value, final bo
          e.setKey(key);
          e.setValue(value);
          setTx(ctx, e);
-         for (ListenerInvocation listener : cacheEntryInvalidatedListeners) listener.invoke(e);
+         for (ListenerInvocation listener : cacheEntryInvalidatedListeners) {
+            if (listener.observes(pre) && listener.accepts(key)) listener.invoke(e);
+         }
       }
    }
 
    @Override
    public void notifyCacheEntryLoaded(Object key, Object value, boolean pre,
          InvocationContext ctx, FlagAffectedCommand command) {
-      if (isNotificationAllowed(command, cacheEntryLoadedListeners)) {
+      if (isNotificationAllowed(command, cacheEntryLoadedListeners, pre, key)) {
          boolean originLocal = ctx.isOriginLocal();
          EventImpl<Object, Object> e = EventImpl.createEvent(cache, CACHE_ENTRY_LOADED);
          e.setOriginLocal(originLocal);
@@ -295,13 +325,15 @@ public void notifyCacheEntryLoaded(Object key, Object value, boolean pre,
          e.setKey(key);
          e.setValue(value);
          setTx(ctx, e);
-         for (ListenerInvocation listener : cacheEntryLoadedListeners) listener.invoke(e);
+         for (ListenerInvocation listener : cacheEntryLoadedListeners) {
+            if (listener.observes(pre) && listener.accepts(key)) listener.invoke(e);
+         }
       }
    }
 
    @Override
    public void notifyCacheEntryActivated(Object key, Object value, boolean pre, InvocationContext ctx, FlagAffectedCommand command) {
-      if (isNotificationAllowed(command, cacheEntryActivatedListeners)) {
+      if (isNotificationAllowed(command, cacheEntryActivatedListeners, pre, key)) {
          boolean originLocal = ctx.isOriginLocal();
          EventImpl<Object, Object> e = EventImpl.createEvent(cache, CACHE_ENTRY_ACTIVATED);
          e.setOriginLocal(originLocal);
@@ -309,10 +341,20 @@ public void notifyCacheEntryActivated(Object key, Object value, boolean pre, Inv
          e.setKey(key);
          e.setValue(value);
          setTx(ctx, e);
-         for (ListenerInvocation listener : cacheEntryActivatedListeners) listener.invoke(e);
+         for (ListenerInvocation listener : cacheEntryActivatedListeners) {
+            if (listener.observes(pre) && listener.accepts(key)) listener.invoke(e);
+         }
       }
    }
 
+   private static Map<Object, Object> acceptedEntries(ListenerInvocation listener, Collection<InternalCacheEntry> entries) {
+      Map<Object, Object> accepted = new HashMap<Object, Object>();
+      for (InternalCacheEntry ice : entries) {
+         if (listener.filter.accept(ice.getKey())) accepted.put(ice.getKey(), ice.getValue());
+      }
+      return accepted;
+   }
+
    private void setTx(InvocationContext ctx, EventImpl<Object, Object> e) {
       if (ctx != null && ctx.isInTxScope()) {
          GlobalTransaction tx = ((TxInvocationContext) ctx).getGlobalTransaction();
@@ -322,12 +364,14 @@ private void setTx(InvocationContext ctx, EventImpl<Object, Object> e) {
 
    @Override
    public void notifyCacheEntryPassivated(Object key, Object value, boolean pre, InvocationContext ctx, FlagAffectedCommand command) {
-      if (isNotificationAllowed(command, cacheEntryPassivatedListeners)) {
+      if (isNotificationAllowed(command, cacheEntryPassivatedListeners, pre, key)) {
          EventImpl<Object, Object> e = EventImpl.createEvent(cache, CACHE_ENTRY_PASSIVATED);
          e.setPre(pre);
          e.setKey(key);
          e.setValue(value);
-         for (ListenerInvocation listener : cacheEntryPassivatedListeners) listener.invoke(e);
+         for (ListenerInvocation listener : cacheEntryPassivatedListeners) {
+            if (listener.observes(pre) && listener.accepts(key)) listener.invoke(e);
+         }
       }
    }
 
@@ -356,25 +400,29 @@ public void notifyTransactionRegistered(GlobalTransaction globalTransaction, Inv
 
    @Override
    public void notifyDataRehashed(ConsistentHash oldCH, ConsistentHash newCH, int newTopologyId, boolean pre) {
-      if (!dataRehashedListeners.isEmpty()) {
+      if (isObserved(dataRehashedListeners, pre)) {
          EventImpl<Object, Object> e = EventImpl.createEvent(cache, DATA_REHASHED);
          e.setPre(pre);
          e.setConsistentHashAtStart(oldCH);
          e.setConsistentHashAtEnd(newCH);
          e.setNewTopologyId(newTopologyId);
-         for (ListenerInvocation listener : dataRehashedListeners) listener.invoke(e);
+         for (ListenerInvocation listener : dataRehashedListeners) {
+            if (listener.observes(pre)) listener.invoke(e);
+         }
       }
    }
 
    @Override
    public void notifyTopologyChanged(ConsistentHash oldConsistentHash, ConsistentHash newConsistentHash, int newTopologyId, boolean pre) {
-      if (!topologyChangedListeners.isEmpty()) {
+      if (isObserved(topologyChangedListeners, pre)) {
          EventImpl<Object, Object> e = EventImpl.createEvent(cache, TOPOLOGY_CHANGED);
          e.setPre(pre);
          e.setConsistentHashAtStart(oldConsistentHash);
          e.setConsistentHashAtEnd(newConsistentHash);
          e.setNewTopologyId(newTopologyId);
-         for (ListenerInvocation listener : topologyChangedListeners) listener.invoke(e);
+         for (ListenerInvocation listener : topologyChangedListeners) {
+            if (listener.observes(pre)) listener.invoke(e);
+         }
       }
    }
 
@@ -384,4 +432,16 @@ public boolean isNotificationAllowed(
             && !listeners.isEmpty();
    }
 
+   private boolean isNotificationAllowed(
+         FlagAffectedCommand cmd, List<ListenerInvocation> listeners, boolean pre, Object key) {
+      return (cmd == null || !cmd.hasFlag(Flag.SKIP_LISTENER_NOTIFICATION))
+            && isObserved(listeners, pre, key);
+   }
+
+   private boolean isNotificationAllowed(
+         FlagAffectedCommand cmd, List<ListenerInvocation> listeners, Object key) {
+      return (cmd == null || !cmd.hasFlag(Flag.SKIP_LISTENER_NOTIFICATION))
+            && isAccepted(listeners, key);
+   }
+
 }
@@ -0,0 +1,243 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.infinispan.remoting;
+
+import org.infinispan.atomic.Delta;
+import org.infinispan.commands.ReplicableCommand;
+import org.infinispan.commands.write.PutKeyValueCommand;
+import org.infinispan.commands.write.RemoveCommand;
+import org.infinispan.configuration.cache.AsyncConfiguration;
+import org.infinispan.factories.annotations.ComponentName;
+import org.infinispan.factories.annotations.Inject;
+import org.infinispan.marshall.StreamingMarshaller;
+import org.infinispan.util.concurrent.ConcurrentMapFactory;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+import static org.infinispan.factories.KnownComponentNames.CACHE_MARSHALLER;
+
+/**
+ * A replication queue that coalesces the writes to each key queued between two flushes, so that
+ * only the last write to a key is replicated.
+ * <p/>
+ * Unconditional puts and removes of the same key replace each other in the queue, keeping the
+ * lifespan and max idle of the last write. All other commands, such as conditional writes, clears
+ * or transaction commands, are replicated as they are and act as barriers: writes queued after
+ * them are never merged with writes queued before them, so the replicated order of a key's writes
+ * is preserved. Writes with a {@link Delta} value are never merged, as they depend on the previous
+ * value.
+ * <p/>
+ * Besides the count and interval based flushes of {@link ReplicationQueueImpl}, the queue is also
+ * flushed once the estimated marshalled size of the queued commands reaches
+ * {@link AsyncConfiguration#replQueueMaxBytes()}. Threads adding commands never block each other,
+ * the queue only synchronizes on flushes. Configure it through
+ * {@link org.infinispan.configuration.cache.AsyncConfigurationBuilder#replQueue(ReplicationQueue)}.
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+public class CoalescingReplicationQueue extends ReplicationQueueImpl {
+
+   /**
+    * Holds the queued writes and barriers, in the order they were first queued.
+    */
+   private final Queue<QueuedCommand> queued = new ConcurrentLinkedQueue<QueuedCommand>();
+
+   /**
+    * The queued writes that later writes to the same key may still replace, by key.
+    */
+   private final ConcurrentMap<Object, QueuedCommand> pendingWrites = ConcurrentMapFactory.makeConcurrentMap();
+
+   /**
+    * Incremented for every barrier, so that a write is only replaced by writes queued in the same epoch.
+    */
+   private final AtomicInteger epoch = new AtomicInteger();
+   private final AtomicInteger elementsCount = new AtomicInteger();
+   private final AtomicLong estimatedBytes = new AtomicLong();
+   private StreamingMarshaller marshaller;
+
+   @Inject
+   public void injectMarshaller(@ComponentName(CACHE_MARSHALLER) StreamingMarshaller marshaller) {
+      this.marshaller = marshaller;
+   }
+
+   @Override
+   public void add(ReplicableCommand job) {
+      if (job == null)
+         throw new NullPointerException("job is null");
+      int size = estimateSize(job);
+      Object key = coalescingKey(job);
+      if (key == null) {
+         epoch.incrementAndGet();
+         enqueue(new QueuedCommand(null, job, size, -1));
+      } else {
+         int currentEpoch = epoch.get();
+         while (true) {
+            QueuedCommand pending = pendingWrites.get(key);
+            if (pending != null && pending.epoch == currentEpoch && pending.replace(job)) {
+               estimatedBytes.addAndGet(pending.resize(size));
+               break;
+            }
+            QueuedCommand write = new QueuedCommand(key, job, size, currentEpoch);
+            boolean installed = pending == null ? pendingWrites.putIfAbsent(key, write) == null
+                  : pendingWrites.replace(key, pending, write);
+            if (installed) {
+               enqueue(write);
+               break;
+            }
+         }
+      }
+
+      AsyncConfiguration async = getConfiguration().clustering().async();
+      long maxBytes = async.replQueueMaxBytes();
+      if (elementsCount.get() >= async.replQueueMaxElements() || (maxBytes > 0 && estimatedBytes.get() >= maxBytes))
+         flush();
+   }
+
+   private void enqueue(QueuedCommand command) {
+      elementsCount.incrementAndGet();
+      estimatedBytes.addAndGet(command.size);
+      queued.offer(command);
+   }
+
+   /**
+    * @return the key of a write that may be replaced by a later write to the same key, or null if the
+    *         command has to be replicated as it is
+    */
+   private Object coalescingKey(ReplicableCommand command) {
+      if (command instanceof PutKeyValueCommand) {
+         PutKeyValueCommand put = (PutKeyValueCommand) command;
+         if (!put.isConditional() && !(put.getValue() instanceof Delta)) return put.getKey();
+      } else if (command instanceof RemoveCommand) {
+         RemoveCommand remove = (RemoveCommand) command;
+         if (!remove.isConditional()) return remove.getKey();
+      }
+      return null;
+   }
+
+   private int estimateSize(ReplicableCommand command) {
+      return Math.max(1, estimateCommandSize(command));
+   }
+
+   private int estimateCommandSize(ReplicableCommand command) {
+      if (command instanceof PutKeyValueCommand) {
+         PutKeyValueCommand put = (PutKeyValueCommand) command;
+         return estimateSize(put.getKey()) + estimateSize(put.getValue());
+      } else if (command instanceof RemoveCommand) {
+         return estimateSize(((RemoveCommand) command).getKey());
+      }
+      return estimateSize((Object) command);
+   }
+
+   private int estimateSize(Object o) {
+      if (o == null) return 1;
+      if (o instanceof byte[]) return ((byte[]) o).length;
+      if (o instanceof String) return ((String) o).length();
+      if (o instanceof Number || o instanceof Boolean || o instanceof Character) return 8;
+      return marshaller.getBufferSizePredictor(o).nextSize(o);
+   }
+
+   @Override
+   protected List<ReplicableCommand> drainReplQueue() {
+      List<ReplicableCommand> toReplicate = new LinkedList<ReplicableCommand>();
+      for (QueuedCommand command = queued.poll(); command != null; command = queued.poll()) {
+         ReplicableCommand job = command.seal();
+         if (command.key != null) pendingWrites.remove(command.key, command);
+         elementsCount.decrementAndGet();
+         estimatedBytes.addAndGet(-QueuedCommand.SIZE_OF.getAndSet(command, QueuedCommand.FLUSHED));
+         toReplicate.add(job);
+      }
+      return toReplicate;
+   }
+
+   @Override
+   public int getElementsCount() {
+      return elementsCount.get();
+   }
+
+   /**
+    * @return the estimated marshalled size of the queued commands, in bytes
+    */
+   public long getEstimatedBytes() {
+      return estimatedBytes.get();
+   }
+
+   @Override
+   public synchronized void reset() {
+      drainReplQueue();
+   }
+
+   private static final class QueuedCommand {
+
+      static final int FLUSHED = 0;
+      static final AtomicIntegerFieldUpdater<QueuedCommand> SIZE_OF =
+            AtomicIntegerFieldUpdater.newUpdater(QueuedCommand.class, "size");
+
+      private static final AtomicReferenceFieldUpdater<QueuedCommand, ReplicableCommand> COMMAND =
+            AtomicReferenceFieldUpdater.newUpdater(QueuedCommand.class, ReplicableCommand.class, "command");
+
+      final Object key;
+      final int epoch;
+      volatile ReplicableCommand command;
+      volatile int size;
+
+      QueuedCommand(Object key, ReplicableCommand command, int size, int epoch) {
+         this.key = key;
+         this.command = command;
+         this.size = size;
+         this.epoch = epoch;
+      }
+
+      /**
+       * Replaces the queued write, unless it is already being flushed.
+       */
+      boolean replace(ReplicableCommand newCommand) {
+         while (true) {
+            ReplicableCommand current = command;
+            if (current == null) return false;
+            if (COMMAND.compareAndSet(this, current, newCommand)) return true;
+         }
+      }
+
+      /**
+       * Updates the estimated size after a replacement, unless the write has been flushed meanwhile.
+       *
+       * @return the change of the estimated size of the queue
+       */
+      int resize(int newSize) {
+         while (true) {
+            int current = size;
+            if (current == FLUSHED) return 0;
+            if (SIZE_OF.compareAndSet(this, current, newSize)) return newSize - current;
+         }
+      }
+
+      ReplicableCommand seal() {
+         return COMMAND.getAndSet(this, null);
+      }
+   }
+}
@@ -42,6 +42,8 @@
 import org.infinispan.jmx.annotations.Parameter;
 import org.infinispan.jmx.annotations.Units;
 import org.infinispan.statetransfer.StateTransferManager;
+import org.infinispan.stats.LatencyHistogram;
+import org.infinispan.stats.LatencySnapshot;
 import org.infinispan.remoting.ReplicationQueue;
 import org.infinispan.remoting.RpcException;
 import org.infinispan.remoting.responses.Response;
@@ -50,6 +52,7 @@
 import org.infinispan.topology.CacheTopology;
 import org.infinispan.topology.LocalTopologyManager;
 import org.infinispan.util.concurrent.NotifyingNotifiableFuture;
+import org.infinispan.util.concurrent.jdk8backported.LongAdder;
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
 
@@ -61,7 +64,6 @@
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicLong;
 
 import static org.infinispan.factories.KnownComponentNames.ASYNC_TRANSPORT_EXECUTOR;
 
@@ -83,9 +85,12 @@ public class RpcManagerImpl implements RpcManager {
    private static final boolean trace = log.isTraceEnabled();
 
    private Transport t;
-   private final AtomicLong replicationCount = new AtomicLong(0);
-   private final AtomicLong replicationFailures = new AtomicLong(0);
-   private final AtomicLong totalReplicationTime = new AtomicLong(0);
+   private final LongAdder replicationCount = new LongAdder();
+   private final LongAdder replicationFailures = new LongAdder();
+   private final LongAdder totalReplicationTime = new LongAdder();
+   // includes failed replications, as timeouts are what dominates the tail
+   private final LatencyHistogram syncReplicationLatency = new LatencyHistogram();
+   private final LatencyHistogram asyncReplicationLatency = new LatencyHistogram();
 
    private boolean statisticsEnabled = false; // by default, don't gather statistics.
    private Configuration configuration;
@@ -303,7 +308,7 @@ public Map<Address, Response> invokeRemotely(Collection<Address> recipients, Rep
          Map<Address, Response> result = t.invokeRemotely(recipients, rpc, options.responseMode(), options.timeUnit().toMillis(options.timeout()),
                                                           !options.fifoOrder(), options.responseFilter(), options.totalOrder(),
                                                           configuration.clustering().cacheMode().isDistributed());
-         if (statisticsEnabled) replicationCount.incrementAndGet();
+         if (statisticsEnabled) replicationCount.increment();
          if (trace) log.tracef("Response(s) to %s is %s", rpc, result);
          if (options.responseMode().isSynchronous()) {
             checkResponses(result);
@@ -311,16 +316,21 @@ public Map<Address, Response> invokeRemotely(Collection<Address> recipients, Rep
          return result;
       } catch (CacheException e) {
          log.trace("replication exception: ", e);
-         if (statisticsEnabled) replicationFailures.incrementAndGet();
+         if (statisticsEnabled) replicationFailures.increment();
          throw e;
       } catch (Throwable th) {
          log.unexpectedErrorReplicating(th);
-         if (statisticsEnabled) replicationFailures.incrementAndGet();
+         if (statisticsEnabled) replicationFailures.increment();
          throw new CacheException(th);
       } finally {
          if (statisticsEnabled) {
-            long timeTaken = TimeUnit.MILLISECONDS.convert(System.nanoTime() - startTimeNanos, TimeUnit.NANOSECONDS);
-            totalReplicationTime.getAndAdd(timeTaken);
+            long timeTaken = System.nanoTime() - startTimeNanos;
+            totalReplicationTime.add(timeTaken);
+            if (options.responseMode().isSynchronous()) {
+               syncReplicationLatency.record(timeTaken);
+            } else {
+               asyncReplicationLatency.record(timeTaken);
+            }
          }
       }
    }
@@ -384,9 +394,11 @@ private void checkResponses(Map<Address, Response> rsps) {
 
    @ManagedOperation(description = "Resets statistics gathered by this component", displayName = "Reset statistics")
    public void resetStatistics() {
-      replicationCount.set(0);
-      replicationFailures.set(0);
-      totalReplicationTime.set(0);
+      replicationCount.reset();
+      replicationFailures.reset();
+      totalReplicationTime.reset();
+      syncReplicationLatency.reset();
+      asyncReplicationLatency.reset();
    }
 
    @ManagedAttribute(description = "Number of successful replications", displayName = "Number of successful replications", measurementType = MeasurementType.TRENDSUP, displayType = DisplayType.SUMMARY)
@@ -394,7 +406,7 @@ public long getReplicationCount() {
       if (!isStatisticsEnabled()) {
          return -1;
       }
-      return replicationCount.get();
+      return replicationCount.sum();
    }
 
    @ManagedAttribute(description = "Number of failed replications", displayName = "Number of failed replications", measurementType = MeasurementType.TRENDSUP, displayType = DisplayType.SUMMARY)
@@ -402,7 +414,7 @@ public long getReplicationFailures() {
       if (!isStatisticsEnabled()) {
          return -1;
       }
-      return replicationFailures.get();
+      return replicationFailures.sum();
    }
 
    @ManagedAttribute(description = "Statistics enabled", displayName = "Statistics enabled", dataType = DataType.TRAIT, writable = true)
@@ -421,7 +433,7 @@ public void setStatisticsEnabled(@Parameter(name = "enabled", description = "Whe
 
    @ManagedAttribute(description = "Successful replications as a ratio of total replications", displayName = "Successful replications ratio")
    public String getSuccessRatio() {
-      if (replicationCount.get() == 0 || !statisticsEnabled) {
+      if (replicationCount.sum() == 0 || !statisticsEnabled) {
          return "N/A";
       }
       double ration = calculateSuccessRatio() * 100d;
@@ -430,21 +442,76 @@ public String getSuccessRatio() {
 
    @ManagedAttribute(description = "Successful replications as a ratio of total replications in numeric double format", displayName = "Successful replication ratio", units = Units.PERCENTAGE, displayType = DisplayType.SUMMARY)
    public double getSuccessRatioFloatingPoint() {
-      if (replicationCount.get() == 0 || !statisticsEnabled) return 0;
+      if (replicationCount.sum() == 0 || !statisticsEnabled) return 0;
       return calculateSuccessRatio();
    }
 
    private double calculateSuccessRatio() {
-      double totalCount = replicationCount.get() + replicationFailures.get();
-      return replicationCount.get() / totalCount;
+      double totalCount = replicationCount.sum() + replicationFailures.sum();
+      return replicationCount.sum() / totalCount;
    }
 
    @ManagedAttribute(description = "The average time spent in the transport layer, in milliseconds", displayName = "Average time spent in the transport layer", units = Units.MILLISECONDS, displayType = DisplayType.SUMMARY)
    public long getAverageReplicationTime() {
-      if (replicationCount.get() == 0) {
+      long count = replicationCount.sum();
+      if (count == 0) {
          return 0;
       }
-      return totalReplicationTime.get() / replicationCount.get();
+      return TimeUnit.NANOSECONDS.toMillis(totalReplicationTime.sum() / count);
+   }
+
+   @ManagedAttribute(description = "Median time spent in the transport layer by sync replications, in microseconds", displayName = "Sync replication time median", units = Units.MICROSECONDS, displayType = DisplayType.SUMMARY)
+   public long getSyncReplicationTimePercentile50() {
+      return syncReplicationLatency.snapshot().getPercentile(50, TimeUnit.MICROSECONDS);
+   }
+
+   @ManagedAttribute(description = "99th percentile time spent in the transport layer by sync replications, in microseconds", displayName = "Sync replication time 99th percentile", units = Units.MICROSECONDS, displayType = DisplayType.SUMMARY)
+   public long getSyncReplicationTimePercentile99() {
+      return syncReplicationLatency.snapshot().getPercentile(99, TimeUnit.MICROSECONDS);
+   }
+
+   @ManagedAttribute(description = "99.9th percentile time spent in the transport layer by sync replications, in microseconds", displayName = "Sync replication time 99.9th percentile", units = Units.MICROSECONDS, displayType = DisplayType.SUMMARY)
+   public long getSyncReplicationTimePercentile999() {
+      return syncReplicationLatency.snapshot().getPercentile(99.9, TimeUnit.MICROSECONDS);
+   }
+
+   @ManagedAttribute(description = "Maximum time spent in the transport layer by sync replications, in microseconds", displayName = "Sync replication time maximum", units = Units.MICROSECONDS, displayType = DisplayType.SUMMARY)
+   public long getSyncReplicationTimeMax() {
+      return syncReplicationLatency.snapshot().getMax(TimeUnit.MICROSECONDS);
+   }
+
+   @ManagedAttribute(description = "Median time spent in the transport layer by async replications, in microseconds", displayName = "Async replication time median", units = Units.MICROSECONDS, displayType = DisplayType.SUMMARY)
+   public long getAsyncReplicationTimePercentile50() {
+      return asyncReplicationLatency.snapshot().getPercentile(50, TimeUnit.MICROSECONDS);
+   }
+
+   @ManagedAttribute(description = "99th percentile time spent in the transport layer by async replications, in microseconds", displayName = "Async replication time 99th percentile", units = Units.MICROSECONDS, displayType = DisplayType.SUMMARY)
+   public long getAsyncReplicationTimePercentile99() {
+      return asyncReplicationLatency.snapshot().getPercentile(99, TimeUnit.MICROSECONDS);
+   }
+
+   @ManagedAttribute(description = "99.9th percentile time spent in the transport layer by async replications, in microseconds", displayName = "Async replication time 99.9th percentile", units = Units.MICROSECONDS, displayType = DisplayType.SUMMARY)
+   public long getAsyncReplicationTimePercentile999() {
+      return asyncReplicationLatency.snapshot().getPercentile(99.9, TimeUnit.MICROSECONDS);
+   }
+
+   @ManagedAttribute(description = "Maximum time spent in the transport layer by async replications, in microseconds", displayName = "Async replication time maximum", units = Units.MICROSECONDS, displayType = DisplayType.SUMMARY)
+   public long getAsyncReplicationTimeMax() {
+      return asyncReplicationLatency.snapshot().getMax(TimeUnit.MICROSECONDS);
+   }
+
+   /**
+    * @return the latency distribution of synchronous remote invocations, including failed ones
+    */
+   public LatencySnapshot getSyncReplicationLatency() {
+      return syncReplicationLatency.snapshot();
+   }
+
+   /**
+    * @return the latency distribution of asynchronous remote invocations, including failed ones
+    */
+   public LatencySnapshot getAsyncReplicationLatency() {
+      return asyncReplicationLatency.snapshot();
    }
 
    // mainly for unit testing
@@ -25,6 +25,7 @@
 
 import org.infinispan.commands.CommandsFactory;
 import org.infinispan.container.DataContainer;
+import org.infinispan.container.SegmentAwareDataContainer;
 import org.infinispan.container.entries.InternalCacheEntry;
 import org.infinispan.distribution.ch.ConsistentHash;
 import org.infinispan.loaders.CacheLoaderException;
@@ -154,11 +155,24 @@ public Set<Integer> getSegments() {
    public void run() {
       try {
          // send data container entries
-         for (InternalCacheEntry ice : dataContainer) {
-            Object key = ice.getKey();  //todo [anistor] should we check for expired entries?
-            int segmentId = readCh.getSegment(key);
-            if (segments.contains(segmentId)) {
-               sendEntry(ice, segmentId);
+         if (isSegmentAwareDataContainer()) {
+            // only visit the requested segments instead of hashing every key in the container
+            SegmentAwareDataContainer segmentAwareDataContainer = (SegmentAwareDataContainer) dataContainer;
+            for (int segmentId : segments) {
+               for (InternalCacheEntry ice : segmentAwareDataContainer.segmentEntries(segmentId)) {
+                  if (!segments.contains(segmentId)) {
+                     break;   // the segment was cancelled meanwhile
+                  }
+                  sendEntry(ice, segmentId);
+               }
+            }
+         } else {
+            for (InternalCacheEntry ice : dataContainer) {
+               Object key = ice.getKey();  //todo [anistor] should we check for expired entries?
+               int segmentId = readCh.getSegment(key);
+               if (segments.contains(segmentId)) {
+                  sendEntry(ice, segmentId);
+               }
             }
          }
 
@@ -203,6 +217,15 @@ public void run() {
       }
    }
 
+   /**
+    * The segments of a SegmentAwareDataContainer can only be used directly if they match the segments of the
+    * read consistent hash.
+    */
+   private boolean isSegmentAwareDataContainer() {
+      return dataContainer instanceof SegmentAwareDataContainer
+            && ((SegmentAwareDataContainer) dataContainer).getNumSegments() == readCh.getNumSegments();
+   }
+
    /**
     * Obtains the CacheStore that will be used for pulling segments that will be sent to other new owners on request.
     * The CacheStore is ignored if it is disabled or if it is shared or if fetchPersistentState is disabled.
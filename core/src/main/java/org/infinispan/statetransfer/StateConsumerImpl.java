@@ -31,6 +31,7 @@
 import org.infinispan.configuration.cache.Configuration;
 import org.infinispan.configuration.cache.Configurations;
 import org.infinispan.container.DataContainer;
+import org.infinispan.container.SegmentAwareDataContainer;
 import org.infinispan.container.entries.InternalCacheEntry;
 import org.infinispan.context.Flag;
 import org.infinispan.context.InvocationContext;
@@ -843,13 +844,27 @@ private void invalidateSegments(Set<Integer> newSegments, Set<Integer> segmentsT
       Set<Object> keysToRemove = new HashSet<Object>();
 
       // gather all keys from data container that belong to the segments that are being removed/moved to L1
-      for (InternalCacheEntry ice : dataContainer) {
-         Object key = ice.getKey();
-         int keySegment = getSegment(key);
-         if (segmentsToL1.contains(keySegment)) {
-            keysToL1.add(key);
-         } else if (!newSegments.contains(keySegment)) {
-            keysToRemove.add(key);
+      if (isSegmentAwareDataContainer()) {
+         // only visit the segments we no longer own instead of hashing every key in the container
+         SegmentAwareDataContainer segmentAwareDataContainer = (SegmentAwareDataContainer) dataContainer;
+         for (int segmentId = 0; segmentId < segmentAwareDataContainer.getNumSegments(); segmentId++) {
+            if (newSegments.contains(segmentId)) {
+               continue;
+            }
+            Set<Object> keys = segmentsToL1.contains(segmentId) ? keysToL1 : keysToRemove;
+            for (InternalCacheEntry ice : segmentAwareDataContainer.segmentEntries(segmentId)) {
+               keys.add(ice.getKey());
+            }
+         }
+      } else {
+         for (InternalCacheEntry ice : dataContainer) {
+            Object key = ice.getKey();
+            int keySegment = getSegment(key);
+            if (segmentsToL1.contains(keySegment)) {
+               keysToL1.add(key);
+            } else if (!newSegments.contains(keySegment)) {
+               keysToRemove.add(key);
+            }
          }
       }
 
@@ -906,6 +921,15 @@ private void invalidateSegments(Set<Integer> newSegments, Set<Integer> segmentsT
       }
    }
 
+   /**
+    * The segments of a SegmentAwareDataContainer can only be used directly if they match the segments of the
+    * read consistent hash.
+    */
+   private boolean isSegmentAwareDataContainer() {
+      return dataContainer instanceof SegmentAwareDataContainer
+            && ((SegmentAwareDataContainer) dataContainer).getNumSegments() == cacheTopology.getReadConsistentHash().getNumSegments();
+   }
+
    private int getSegment(Object key) {
       // there we can use any CH version because the routing table is not involved
       return cacheTopology.getReadConsistentHash().getSegment(key);
@@ -57,7 +57,7 @@
  * @author anistor@redhat.com
  * @since 5.2
  */
-@Listener
+@Listener(observation = Listener.Observation.POST)
 public class StateProviderImpl implements StateProvider {
 
    private static final Log log = LogFactory.getLog(StateProviderImpl.class);
@@ -0,0 +1,147 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.infinispan.stats;
+
+import net.jcip.annotations.ThreadSafe;
+import org.infinispan.util.concurrent.jdk8backported.LongAdder;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A concurrent histogram of latencies recorded in nanoseconds. Values are grouped into log-linear buckets, i.e. every
+ * power of two is split into {@link #SUB_BUCKETS} equally sized buckets, so the value reported for a percentile is
+ * within 12.5% of the recorded one regardless of its magnitude. Values above 2<sup>40</sup> nanoseconds (about 18
+ * minutes) are counted in the highest bucket, but are still reflected accurately by the maximum and the mean.
+ * <p />
+ * The bucket counts are striped by thread so that concurrent writers rarely touch the same cache line. Reading is
+ * comparatively expensive and is meant for management clients only: see {@link #snapshot()}.
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+@ThreadSafe
+public class LatencyHistogram {
+
+   static final int SUB_BUCKET_BITS = 3;
+   static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+   static final int MAX_EXPONENT = 40;
+   static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+   private static final long MAX_TRACKABLE_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+   private static final int MAX_STRIPES = 16;
+
+   private final AtomicLongArray[] stripes;
+   private final int stripeMask;
+   private final LongAdder count = new LongAdder();
+   private final LongAdder totalNanos = new LongAdder();
+   private final AtomicLong maxNanos = new AtomicLong();
+
+   public LatencyHistogram() {
+      int cpus = Math.min(Runtime.getRuntime().availableProcessors(), MAX_STRIPES);
+      int stripeCount = Integer.highestOneBit(cpus);
+      if (stripeCount < cpus) stripeCount <<= 1;
+      stripes = new AtomicLongArray[stripeCount];
+      for (int i = 0; i < stripeCount; i++) {
+         stripes[i] = new AtomicLongArray(BUCKETS);
+      }
+      stripeMask = stripeCount - 1;
+   }
+
+   /**
+    * Records a single latency.
+    *
+    * @param nanos the latency in nanoseconds. Negative values, which {@link System#nanoTime()} may produce on some
+    *              platforms, are recorded as zero.
+    */
+   public void record(long nanos) {
+      if (nanos < 0) nanos = 0;
+      AtomicLongArray stripe = stripes[(int) Thread.currentThread().getId() & stripeMask];
+      stripe.incrementAndGet(bucketIndex(nanos));
+      count.increment();
+      totalNanos.add(nanos);
+      long max = maxNanos.get();
+      while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+         max = maxNanos.get();
+      }
+   }
+
+   /**
+    * @return the number of latencies recorded since creation or the last {@link #reset()}.
+    */
+   public long getCount() {
+      return count.sum();
+   }
+
+   /**
+    * @return the sum of all latencies recorded since creation or the last {@link #reset()}, in nanoseconds.
+    */
+   public long getTotalNanos() {
+      return totalNanos.sum();
+   }
+
+   /**
+    * Clears all recorded latencies. Latencies recorded concurrently with a reset may or may not be retained.
+    */
+   public void reset() {
+      for (AtomicLongArray stripe : stripes) {
+         for (int i = 0; i < BUCKETS; i++) {
+            if (stripe.get(i) != 0) stripe.set(i, 0);
+         }
+      }
+      count.reset();
+      totalNanos.reset();
+      maxNanos.set(0);
+   }
+
+   /**
+    * @return an immutable view of the latencies recorded so far. The snapshot is not atomic with regards to concurrent
+    *         writers, but its bucket counts are always consistent with each other.
+    */
+   public LatencySnapshot snapshot() {
+      long[] buckets = new long[BUCKETS];
+      long total = 0;
+      for (AtomicLongArray stripe : stripes) {
+         for (int i = 0; i < BUCKETS; i++) {
+            long c = stripe.get(i);
+            buckets[i] += c;
+            total += c;
+         }
+      }
+      return new LatencySnapshot(buckets, total, totalNanos.sum(), maxNanos.get());
+   }
+
+   static int bucketIndex(long nanos) {
+      long value = Math.min(nanos, MAX_TRACKABLE_VALUE);
+      if (value < 2 * SUB_BUCKETS) return (int) value;
+      int exponent = 63 - Long.numberOfLeadingZeros(value);
+      int shift = exponent - SUB_BUCKET_BITS;
+      int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+      return (shift + 1) * SUB_BUCKETS + subBucket;
+   }
+
+   /**
+    * @return the highest value that is counted in the bucket with the given index
+    */
+   static long highestValueInBucket(int index) {
+      if (index < 2 * SUB_BUCKETS) return index;
+      int shift = index / SUB_BUCKETS - 1;
+      long lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+      return lowest + (1L << shift) - 1;
+   }
+}
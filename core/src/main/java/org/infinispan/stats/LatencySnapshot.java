@@ -0,0 +1,105 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.infinispan.stats;
+
+import net.jcip.annotations.Immutable;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An immutable view of the latencies recorded by a {@link LatencyHistogram}. Percentiles are reported as the highest
+ * value of the bucket they fall into, capped by the recorded maximum, so they never under-estimate the actual
+ * latency.
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+@Immutable
+public class LatencySnapshot {
+
+   /**
+    * A snapshot without any recorded latencies.
+    */
+   public static final LatencySnapshot EMPTY = new LatencySnapshot(new long[LatencyHistogram.BUCKETS], 0, 0, 0);
+
+   private final long[] buckets;
+   private final long count;
+   private final long totalNanos;
+   private final long maxNanos;
+
+   LatencySnapshot(long[] buckets, long count, long totalNanos, long maxNanos) {
+      this.buckets = buckets;
+      this.count = count;
+      this.totalNanos = totalNanos;
+      this.maxNanos = maxNanos;
+   }
+
+   /**
+    * @return the number of recorded latencies.
+    */
+   public long getCount() {
+      return count;
+   }
+
+   /**
+    * @return the mean of the recorded latencies in the given unit, or 0 if nothing has been recorded.
+    */
+   public long getMean(TimeUnit unit) {
+      return count == 0 ? 0 : unit.convert(totalNanos / count, TimeUnit.NANOSECONDS);
+   }
+
+   /**
+    * @return the highest recorded latency in the given unit.
+    */
+   public long getMax(TimeUnit unit) {
+      return unit.convert(maxNanos, TimeUnit.NANOSECONDS);
+   }
+
+   /**
+    * @param percentile a percentile between 0 and 100, e.g. 99.9
+    * @return the latency, in the given unit, which is not exceeded by the given percentage of the recorded latencies,
+    *         or 0 if nothing has been recorded.
+    */
+   public long getPercentile(double percentile, TimeUnit unit) {
+      if (percentile < 0 || percentile > 100)
+         throw new IllegalArgumentException("Percentile must be between 0 and 100: " + percentile);
+      if (count == 0) return 0;
+      long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+      long seen = 0;
+      for (int i = 0; i < buckets.length; i++) {
+         seen += buckets[i];
+         if (seen >= rank) {
+            return unit.convert(Math.min(LatencyHistogram.highestValueInBucket(i), maxNanos), TimeUnit.NANOSECONDS);
+         }
+      }
+      return getMax(unit);
+   }
+
+   @Override
+   public String toString() {
+      return "LatencySnapshot{" +
+            "count=" + count +
+            ", meanNanos=" + getMean(TimeUnit.NANOSECONDS) +
+            ", p50Nanos=" + getPercentile(50, TimeUnit.NANOSECONDS) +
+            ", p99Nanos=" + getPercentile(99, TimeUnit.NANOSECONDS) +
+            ", p999Nanos=" + getPercentile(99.9, TimeUnit.NANOSECONDS) +
+            ", maxNanos=" + maxNanos +
+            '}';
+   }
+}
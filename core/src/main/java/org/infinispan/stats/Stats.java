@@ -85,4 +85,24 @@ public interface Stats {
     * @return Number of cache eviction.
     */   
    long getEvictions();
+
+   /**
+    * @return Latency distribution of single key get operations that found an entry.
+    */
+   LatencySnapshot getHitLatency();
+
+   /**
+    * @return Latency distribution of single key get operations that did not find an entry.
+    */
+   LatencySnapshot getMissLatency();
+
+   /**
+    * @return Latency distribution of successful single key put operations.
+    */
+   LatencySnapshot getStoreLatency();
+
+   /**
+    * @return Latency distribution of single key remove operations.
+    */
+   LatencySnapshot getRemoveLatency();
 }
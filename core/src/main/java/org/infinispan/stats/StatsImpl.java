@@ -48,6 +48,10 @@ public class StatsImpl implements Stats {
    final long removeHits;
    final long removeMisses;
    final long evictions;
+   final LatencySnapshot hitLatency;
+   final LatencySnapshot missLatency;
+   final LatencySnapshot storeLatency;
+   final LatencySnapshot removeLatency;
    
    public StatsImpl(InterceptorChain chain) {
       List<CommandInterceptor> interceptors = chain.getInterceptorsWhichExtend(CacheMgmtInterceptor.class);
@@ -63,6 +67,10 @@ public StatsImpl(InterceptorChain chain) {
          removeHits = mgmtInterceptor.getRemoveHits();
          removeMisses = mgmtInterceptor.getRemoveMisses();
          evictions = mgmtInterceptor.getEvictions();
+         hitLatency = mgmtInterceptor.getHitLatency();
+         missLatency = mgmtInterceptor.getMissLatency();
+         storeLatency = mgmtInterceptor.getStoreLatency();
+         removeLatency = mgmtInterceptor.getRemoveLatency();
       } else {
          timeSinceStart = -1;
          currentNumberOfEntries = -1;
@@ -74,6 +82,10 @@ public StatsImpl(InterceptorChain chain) {
          removeHits = -1;
          removeMisses = -1;
          evictions = -1;
+         hitLatency = LatencySnapshot.EMPTY;
+         missLatency = LatencySnapshot.EMPTY;
+         storeLatency = LatencySnapshot.EMPTY;
+         removeLatency = LatencySnapshot.EMPTY;
       }
    }
 
@@ -127,4 +139,24 @@ public long getEvictions() {
       return evictions;
    }
 
+   @Override
+   public LatencySnapshot getHitLatency() {
+      return hitLatency;
+   }
+
+   @Override
+   public LatencySnapshot getMissLatency() {
+      return missLatency;
+   }
+
+   @Override
+   public LatencySnapshot getStoreLatency() {
+      return storeLatency;
+   }
+
+   @Override
+   public LatencySnapshot getRemoveLatency() {
+      return removeLatency;
+   }
+
 }
@@ -350,6 +350,27 @@ public static void close(Context ctx) {
       }
    }
 
+   /**
+    * Releases the memory of a direct or memory mapped buffer right away instead of when the buffer is garbage
+    * collected, which may be too late to stay within the direct memory limit. The buffer must not be used afterwards.
+    * Does nothing if the JVM does not allow it.
+    */
+   public static void freeDirectBuffer(ByteBuffer buffer) {
+      if (buffer == null || !buffer.isDirect()) return;
+      try {
+         Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+         cleanerMethod.setAccessible(true);
+         Object cleaner = cleanerMethod.invoke(buffer);
+         if (cleaner != null) {
+            Method cleanMethod = cleaner.getClass().getMethod("clean");
+            cleanMethod.setAccessible(true);
+            cleanMethod.invoke(cleaner);
+         }
+      } catch (Exception e) {
+         log.tracef(e, "Unable to free direct buffer %s, leaving it to the garbage collector", buffer);
+      }
+   }
+
    public static void flushAndCloseStream(OutputStream o) {
       if (o == null) return;
       try {
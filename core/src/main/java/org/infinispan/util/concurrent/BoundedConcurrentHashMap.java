@@ -32,6 +32,7 @@
 
 package org.infinispan.util.concurrent;
 import org.infinispan.container.entries.CacheEntry;
+import org.infinispan.eviction.EntrySizeCalculator;
 import org.infinispan.util.InfinispanCollections;
 import org.infinispan.util.Util;
 import org.infinispan.util.logging.Log;
@@ -43,6 +44,8 @@
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.concurrent.locks.ReentrantLock;
 
 
@@ -156,6 +159,13 @@
     */
    static final int MAX_SEGMENTS = 1 << 16; // slightly conservative
 
+   /**
+    * The initial table capacity of the segments of a map bounded by
+    * memory, whose tables grow as needed since the number of entries
+    * is not known in advance.
+    */
+   static final int DEFAULT_SEGMENT_CAPACITY = 16;
+
    /**
     * Number of unsynchronized retries in size and containsValue
     * methods before resorting to locking. This is used to avoid
@@ -235,6 +245,13 @@ final Segment<K,V> segmentFor(int hash) {
       volatile V value;
       final HashEntry<K, V> next;
 
+      /**
+       * What the entry counts for towards the bound of its segment: 1,
+       * unless the map is bounded by memory, in which case it is the
+       * estimated size of the entry. Only accessed under segment lock.
+       */
+      int weight = 1;
+
       HashEntry(K key, int hash, HashEntry<K, V> next, V value) {
          this.key = key;
          this.hash = hash;
@@ -242,6 +259,13 @@ final Segment<K,V> segmentFor(int hash) {
          this.value = value;
       }
 
+      /**
+       * Changes the weight of an entry which is already part of its segment.
+       */
+      void reweigh(int newWeight) {
+         weight = newWeight;
+      }
+
       @Override
       public int hashCode() {
          int result = 17;
@@ -296,6 +320,12 @@ public <K, V> EvictionPolicy<K, V> make(Segment<K, V> s, int capacity, float lf)
          public <K, V> EvictionPolicy<K, V> make(Segment<K, V> s, int capacity, float lf) {
             return new LIRS<K,V>(s,capacity,capacity*10,lf);
          }
+      },
+      TINY_LFU {
+         @Override
+         public <K, V> EvictionPolicy<K, V> make(Segment<K, V> s, int capacity, float lf) {
+            return new TinyLFU<K, V>(s, capacity);
+         }
       };
 
       abstract <K, V> EvictionPolicy<K, V> make(Segment<K, V> s, int capacity, float lf);
@@ -380,6 +410,17 @@ public void onEntryRemoved(Object key) {
        */
       void onEntryRemove(HashEntry<K, V> e);
 
+      /**
+       * Invoked to notify EvictionPolicy implementation that Segment has been rehashed and
+       * entry e has been replaced by a copy, which takes over its position.
+       *
+       * @param e
+       *            replaced entry in Segment
+       * @param copy
+       *            new entry in Segment
+       */
+      void onEntryReplaced(HashEntry<K, V> e, HashEntry<K, V> copy);
+
       /**
        * Invoked to notify EvictionPolicy implementation that all Segment entries have been
        * cleared.
@@ -431,6 +472,11 @@ public void onEntryRemove(HashEntry<K, V> e) {
          // Do nothing.
       }
 
+      @Override
+      public void onEntryReplaced(HashEntry<K, V> e, HashEntry<K, V> copy) {
+         // Do nothing.
+      }
+
       @Override
       public boolean thresholdExpired() {
          return false;
@@ -476,6 +522,7 @@ public Set<HashEntry<K, V>> execute() {
          for (HashEntry<K, V> e : accessQueue) {
             put(e, e.value);
          }
+         evictOverweight();
          evictedCopy.addAll(evicted);
          accessQueue.clear();
          accessQueueSize.set(0);
@@ -486,6 +533,11 @@ public Set<HashEntry<K, V>> execute() {
       @Override
       public Set<HashEntry<K, V>> onEntryMiss(HashEntry<K, V> e) {
          put(e, e.value);
+         if (!segment.isEvictionAllowed()) {
+            // re-inserted while evicting: leave the pending evictions alone
+            return InfinispanCollections.emptySet();
+         }
+         evictOverweight();
          if (!evicted.isEmpty()) {
             Set<HashEntry<K, V>> evictedCopy = new HashSet<HashEntry<K, V>>();
             evictedCopy.addAll(evicted);
@@ -523,6 +575,11 @@ public void onEntryRemove(HashEntry<K, V> e) {
          }
       }
 
+      @Override
+      public void onEntryReplaced(HashEntry<K, V> e, HashEntry<K, V> copy) {
+         // Do nothing: keys of this map are compared by key, so e keeps the position of copy.
+      }
+
       @Override
       public void clear() {
          super.clear();
@@ -539,9 +596,30 @@ protected boolean isAboveThreshold(){
          return size() > trimDownSize;
       }
 
+      /**
+       * Evicts the least recently used entries until a segment bounded by memory fits
+       * its bound again. The most recently used entry is always kept, however heavy.
+       */
+      private void evictOverweight() {
+         if (!segment.isWeighted() || !segment.isEvictionAllowed()) {
+            return;
+         }
+         while (size() > 1 && segment.isOverweight()) {
+            HashEntry<K, V> eldest = keySet().iterator().next();
+            V value = segment.remove(eldest.key, eldest.hash, null, true);
+            // make sure to make progress, even if the entry had already left the segment
+            remove(eldest);
+            if (value != null) {
+               // after a rehash, eldest may be an outdated copy of the entry
+               evicted.add(new HashEntry<K, V>(eldest.key, eldest.hash, null, value));
+            }
+         }
+      }
+
       @Override
       protected boolean removeEldestEntry(Map.Entry<HashEntry<K,V>,V> eldest){
-         boolean aboveThreshold = isAboveThreshold();
+         // segments bounded by memory evict in evictOverweight() instead
+         boolean aboveThreshold = !segment.isWeighted() && isAboveThreshold();
          if(aboveThreshold){
             HashEntry<K, V> evictedEntry = eldest.getKey();
             segment.remove(evictedEntry.key, evictedEntry.hash, null, true);
@@ -589,7 +667,11 @@ public IBMLRU(Segment<K,V> s, int capacity, float lf, int maxBatchSize, float ba
       @Override
       public Set<HashEntry<K, V>> execute() {
          Set<HashEntry<K, V>> evictedCopy = new HashSet<HashEntry<K, V>>();
-         for (HashEntry<K, V> e : accessQueue) {
+         for (LRUHashEntry<K, V> e : accessQueue) {
+            if (e.nextEntry == null) {
+               // replaced by a copy during a rehash
+               continue;
+            }
             put(e, e.value);
             addAndRemoveEldest(e);
          }
@@ -604,6 +686,10 @@ public Set<HashEntry<K, V>> execute() {
       public Set<HashEntry<K, V>> onEntryMiss(HashEntry<K, V> e) {
          put(e, e.value);
          addAndRemoveEldest(e);
+         if (!segment.isEvictionAllowed()) {
+            // re-inserted while evicting: leave the pending evictions alone
+            return InfinispanCollections.emptySet();
+         }
          if (!evicted.isEmpty()) {
             Set<HashEntry<K, V>> evictedCopy = new HashSet<HashEntry<K, V>>();
             evictedCopy.addAll(evicted);
@@ -616,7 +702,9 @@ public Set<HashEntry<K, V>> onEntryMiss(HashEntry<K, V> e) {
 
       public void addAndRemoveEldest(HashEntry<K, V> entry) {
          ((LRUHashEntry<K, V>)entry).addBefore(head);
-         if (isAboveThreshold()) {
+         if (segment.isWeighted()) {
+            evictOverweight();
+         } else if (isAboveThreshold()) {
             remove(head.nextEntry);
             LRUHashEntry<K, V> evictedEntry = head.nextEntry;
             //remove eldest entry from doubly-linked list
@@ -644,6 +732,25 @@ public boolean thresholdExpired() {
          return accessQueueSize.get() >= maxBatchQueueSize;
       }
 
+      /**
+       * Evicts the least recently used entries until a segment bounded by memory fits
+       * its bound again. The most recently used entry is always kept, however heavy.
+       */
+      private void evictOverweight() {
+         if (!segment.isEvictionAllowed()) {
+            return;
+         }
+         while (size() > 1 && head.nextEntry != head && segment.isOverweight()) {
+            LRUHashEntry<K, V> eldest = head.nextEntry;
+            remove(eldest);
+            eldest.remove();
+            V value = segment.remove(eldest.key, eldest.hash, null, true);
+            if (value != null) {
+               evicted.add(new HashEntry<K, V>(eldest.key, eldest.hash, null, value));
+            }
+         }
+      }
+
       @Override
       public void onEntryRemove(HashEntry<K, V> e) {
          remove(e);
@@ -655,6 +762,14 @@ public void onEntryRemove(HashEntry<K, V> e) {
          }
       }
 
+      @Override
+      public void onEntryReplaced(HashEntry<K, V> e, HashEntry<K, V> copy) {
+         ((LRUHashEntry<K, V>) e).replaceWith((LRUHashEntry<K, V>) copy);
+         while (accessQueue.remove(e)) {
+            accessQueueSize.decrementAndGet();
+         }
+      }
+
       @Override
       public void clear() {
          super.clear();
@@ -702,6 +817,19 @@ private void addBefore(LRUHashEntry<K,V> entry) {
          nextEntry.previousEntry = this;
       }
 
+      /**
+       * Puts copy at the position of this entry in the doubly-linked list and unlinks this entry.
+       */
+      private void replaceWith(LRUHashEntry<K,V> copy) {
+         if (nextEntry != null) {
+            copy.previousEntry = previousEntry;
+            copy.nextEntry = nextEntry;
+            previousEntry.nextEntry = copy;
+            nextEntry.previousEntry = copy;
+         }
+         previousEntry = nextEntry = null;
+      }
+
       @Override
       public boolean equals(Object o) {
          if (this == o) {
@@ -768,6 +896,19 @@ public boolean equals(Object o) {
          return hash == other.hash && key.equals(other.key);
       }
 
+      @Override
+      void reweigh(int newWeight) {
+         // keep the resident and hot sizes of the owner in line with the new weight
+         if (owner != null && isResident()) {
+            int delta = newWeight - weight;
+            owner.size += delta;
+            if (state == Recency.LIR_RESIDENT) {
+               owner.hotSize += delta;
+            }
+         }
+         super.reweigh(newWeight);
+      }
+
       /**
        * Returns true if this entry is in the stack, false otherwise.
        */
@@ -859,7 +1000,7 @@ private void coldHit(Set<HashEntry<K, V>> evicted) {
        */
       private Set<HashEntry<K, V>> miss() {
          Set<HashEntry<K, V>> evicted = InfinispanCollections.emptySet();
-        if (owner.hotSize < owner.maximumHotSize) {
+        if (owner.hotSize + weight <= owner.maximumHotSize) {
           warmupMiss();
         } else {
           evicted = new HashSet<HashEntry<K,V>>(); 
@@ -867,7 +1008,7 @@ private Set<HashEntry<K, V>> miss() {
         }
 
         // now the missed item is in the cache
-        owner.size++;
+        owner.size += weight;
         return evicted;
       }
 
@@ -892,11 +1033,29 @@ private void fullMiss(Set<HashEntry<K, V>> evicted) {
 
         // This condition is unspecified in the paper, but appears to be
         // necessary.
-        if (owner.size >= owner.maximumSize) {
+        // Weighted entries may require the removal of more than one block,
+        // which happens after the miss. Re-inserted entries never evict.
+        long excess = owner.size + weight - owner.maximumSize;
+        if (excess > 0 && owner.segment.isEvictionAllowed()) {
           // "We remove the HIR resident block at the front of list Q (it then
           // becomes a non-resident block), and replace it out of the cache."
-          LIRSHashEntry<K, V> evictedNode = owner.queueFront();          
-          evicted.add(evictedNode);
+          LIRSHashEntry<K, V> evictedNode = owner.queueFront();
+          while (excess > 0) {
+            if (evictedNode == null) {
+              // A heavy entry may need more room than the cold entries hold:
+              // demote the least recent hot entry and evict it as well.
+              LIRSHashEntry<K, V> bottom = owner.stackBottom();
+              if (!owner.segment.isWeighted() || bottom == null || bottom == this) {
+                break;
+              }
+              bottom.migrateToQueue();
+              owner.pruneStack(evicted);
+              evictedNode = bottom;
+            }
+            evicted.add(evictedNode);
+            excess -= evictedNode.weight;
+            evictedNode = evictedNode.nextInQueue == owner.header ? null : evictedNode.nextInQueue;
+          }
         }
 
         // "Then we load the requested block X into the freed buffer and place
@@ -924,7 +1083,7 @@ private void fullMiss(Set<HashEntry<K, V>> evicted) {
        */
       private void hot() {
         if (state != Recency.LIR_RESIDENT) {
-          owner.hotSize++;
+          owner.hotSize += weight;
         }
         state = Recency.LIR_RESIDENT;
       }
@@ -934,7 +1093,7 @@ private void hot() {
        */
       private void cold() {
         if (state == Recency.LIR_RESIDENT) {
-          owner.hotSize--;
+          owner.hotSize -= weight;
         }
         state = Recency.HIR_RESIDENT;
         moveToQueueEnd();
@@ -947,10 +1106,10 @@ private void cold() {
       private void nonResident() {
         switch (state) {
           case LIR_RESIDENT:
-            owner.hotSize--;
+            owner.hotSize -= weight;
             // fallthrough
           case HIR_RESIDENT:
-            owner.size--;
+            owner.size -= weight;
             break;
         }
         state = Recency.HIR_NONRESIDENT;
@@ -1051,6 +1210,40 @@ private void moveToQueueEnd() {
         addToQueueBefore(owner.header);
       }
 
+      /**
+       * Puts copy at the positions of this entry in the stack and the queue, with the same
+       * status. This entry becomes non-resident without affecting the sizes of the owner,
+       * so hits recorded on it by concurrent readers are ignored.
+       */
+      private void replaceWith(LIRSHashEntry<K,V> copy) {
+        copy.owner = owner;
+        copy.state = state;
+        if (inStack()) {
+          copy.previousInStack = previousInStack;
+          copy.nextInStack = nextInStack;
+          previousInStack.nextInStack = copy;
+          nextInStack.previousInStack = copy;
+        } else {
+          copy.previousInStack = null;
+          copy.nextInStack = null;
+        }
+        if (inQueue()) {
+          copy.previousInQueue = previousInQueue;
+          copy.nextInQueue = nextInQueue;
+          previousInQueue.nextInQueue = copy;
+          nextInQueue.previousInQueue = copy;
+        } else {
+          copy.previousInQueue = null;
+          copy.nextInQueue = null;
+        }
+        previousInStack = null;
+        nextInStack = null;
+        previousInQueue = null;
+        nextInQueue = null;
+        state = Recency.HIR_NONRESIDENT;
+        owner = null;
+      }
+
 
       /**
        * Moves this entry from the stack to the queue, marking it cold
@@ -1140,8 +1333,8 @@ private V remove() {
        * */
       private final int maxBatchQueueSize;     
       
-      /** The number of LIRS entries in a segment */
-      private int size;
+      /** The number (or, if bounded by memory, the weight) of LIRS entries in a segment */
+      private long size;
       
       private final float batchQueueSizeThreshold;
       
@@ -1166,28 +1359,28 @@ private V remove() {
        */
       private final LIRSHashEntry<K,V> header = new LIRSHashEntry<K,V>(null, null,0,null,null);
 
-      /** The maximum number of hot entries (L_lirs in the paper). */
-      private final int maximumHotSize;
+      /** The maximum number (or weight) of hot entries (L_lirs in the paper). */
+      private final long maximumHotSize;
 
-      /** The maximum number of resident entries (L in the paper). */
-      private final int maximumSize ;
+      /** The maximum number (or weight) of resident entries (L in the paper). */
+      private final long maximumSize ;
 
-      /** The actual number of hot entries. */
-      private int hotSize = 0;
+      /** The actual number (or weight) of hot entries. */
+      private long hotSize = 0;
 
             
 
       public LIRS(Segment<K,V> s, int capacity, int maxBatchSize, float batchThresholdFactor) {
          this.segment = s;
-         this.maximumSize = capacity;
-         this.maximumHotSize = calculateLIRSize(capacity);
+         this.maximumSize = s.isWeighted() ? s.maxWeight : capacity;
+         this.maximumHotSize = calculateLIRSize(maximumSize);
          this.maxBatchQueueSize = maxBatchSize > MAX_BATCH_SIZE ? MAX_BATCH_SIZE : maxBatchSize;
          this.batchQueueSizeThreshold = batchThresholdFactor * this.maxBatchQueueSize;
          this.accessQueue = new ConcurrentLinkedQueue<LIRSHashEntry<K, V>>();                         
       }
       
-      private static int calculateLIRSize(int maximumSize) {
-         int result = (int) (L_LIRS * maximumSize);
+      private static long calculateLIRSize(long maximumSize) {
+         long result = (long) (L_LIRS * maximumSize);
          return (result == maximumSize) ? maximumSize - 1 : result;
        }
 
@@ -1278,6 +1471,14 @@ public void onEntryRemove(HashEntry<K, V> e) {
          }
       }
 
+      @Override
+      public void onEntryReplaced(HashEntry<K, V> e, HashEntry<K, V> copy) {
+         ((LIRSHashEntry<K,V>)e).replaceWith((LIRSHashEntry<K,V>)copy);
+         while (accessQueue.remove(e)) {
+            accessQueueSize.decrementAndGet();
+         }
+      }
+
       @Override
       public void clear() {
          accessQueue.clear();
@@ -1320,6 +1521,495 @@ public HashEntry<K, V> createNewEntry(K key, int hash, HashEntry<K, V> next, V v
       }
    }
 
+   /**
+    * The lists an entry of the {@link TinyLFU} policy can be part of.
+    */
+   private enum TinyLFUQueue {
+      WINDOW, PROBATION, PROTECTED, NONE
+   }
+
+   private static final class TinyLFUHashEntry<K, V> extends HashEntry<K, V> {
+
+      private TinyLFUHashEntry<K, V> previousEntry;
+      private TinyLFUHashEntry<K, V> nextEntry;
+
+      /** Only accessed under segment lock, so stale references in the read buffers can be detected */
+      private TinyLFUQueue queue = TinyLFUQueue.NONE;
+
+      private final TinyLFU<K, V> owner;
+
+      TinyLFUHashEntry(TinyLFU<K, V> owner, K key, int hash, HashEntry<K, V> next, V value) {
+         super(key, hash, next, value);
+         this.owner = owner;
+         this.previousEntry = this;
+         this.nextEntry = this;
+      }
+
+      @Override
+      void reweigh(int newWeight) {
+         owner.onEntryReweighed(this, newWeight);
+         super.reweigh(newWeight);
+      }
+   }
+
+   /**
+    * A count-min sketch of 4-bit counters estimating how often a key has been accessed
+    * recently. Every counter is halved once the sketch has been incremented ten times as
+    * often as it has counters per row, so that estimates follow changes in popularity.
+    * <p>
+    * Only accessed under segment lock.
+    */
+   static final class FrequencySketch {
+
+      private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+      private static final long RESET_MASK = 0x7777777777777777L;
+      private static final int MAXIMUM_TABLE_SIZE = 1 << 24;
+
+      private long[] table;
+      private int tableMask;
+      private int sampleSize;
+      private int additions;
+
+      FrequencySketch(int expectedEntries) {
+         ensureCapacity(expectedEntries);
+      }
+
+      /**
+       * Grows the sketch so that it can tell apart the given number of entries. Growing
+       * the sketch forgets all frequencies recorded so far.
+       */
+      void ensureCapacity(int expectedEntries) {
+         int size = 16;
+         while (size < expectedEntries && size < MAXIMUM_TABLE_SIZE) {
+            size <<= 1;
+         }
+         if (table == null || size > table.length) {
+            table = new long[size];
+            tableMask = size - 1;
+            sampleSize = 10 * size;
+            additions = 0;
+         }
+      }
+
+      /**
+       * Returns the estimated number of recent accesses of a hash, at most 15.
+       */
+      int frequency(int hash) {
+         int start = (hash & 3) << 2;
+         int frequency = Integer.MAX_VALUE;
+         for (int i = 0; i < 4; i++) {
+            int index = indexOf(hash, i);
+            int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+            frequency = Math.min(frequency, count);
+         }
+         return frequency;
+      }
+
+      /**
+       * Records an access of a hash.
+       */
+      void increment(int hash) {
+         int start = (hash & 3) << 2;
+         boolean added = false;
+         for (int i = 0; i < 4; i++) {
+            added |= incrementAt(indexOf(hash, i), start + i);
+         }
+         if (added && ++additions == sampleSize) {
+            reset();
+         }
+      }
+
+      private boolean incrementAt(int index, int counter) {
+         int offset = counter << 2;
+         long mask = 0xfL << offset;
+         if ((table[index] & mask) != mask) {
+            table[index] += 1L << offset;
+            return true;
+         }
+         return false;
+      }
+
+      private void reset() {
+         for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+         }
+         additions >>>= 1;
+      }
+
+      private int indexOf(int hash, int depth) {
+         long h = (hash + SEEDS[depth]) * SEEDS[depth];
+         h += h >>> 32;
+         return (int) h & tableMask;
+      }
+   }
+
+   /**
+    * A bounded ring buffer recording accessed entries. Producers claim a slot with a single
+    * CAS and never block or retry: when the buffer is full or contended the access is just
+    * not recorded, which only makes the recency information slightly less accurate.
+    * <p>
+    * Drained under segment lock.
+    */
+   static final class ReadBuffer<E> {
+
+      static final int SIZE = 16;
+      private static final int MASK = SIZE - 1;
+
+      private final AtomicLong writeCounter = new AtomicLong();
+      /** Only written under segment lock */
+      private volatile long readCounter;
+      private final AtomicReferenceArray<E> slots = new AtomicReferenceArray<E>(SIZE);
+
+      /**
+       * Records an element, unless the buffer is full.
+       *
+       * @return the number of elements waiting to be drained
+       */
+      int offer(E e) {
+         long head = readCounter;
+         long tail = writeCounter.get();
+         int size = (int) (tail - head);
+         if (size >= SIZE) {
+            return size;
+         }
+         if (writeCounter.compareAndSet(tail, tail + 1)) {
+            slots.lazySet((int) tail & MASK, e);
+            return size + 1;
+         }
+         return size;
+      }
+
+      /**
+       * Removes the eldest element, or returns null if there is none or if it has not been
+       * published yet.
+       */
+      E poll() {
+         long head = readCounter;
+         int index = (int) head & MASK;
+         E e = slots.get(index);
+         if (e == null) {
+            return null;
+         }
+         slots.lazySet(index, null);
+         readCounter = head + 1;
+         return e;
+      }
+
+      int pending() {
+         return (int) (writeCounter.get() - readCounter);
+      }
+   }
+
+   /**
+    * Window TinyLFU, as described in "TinyLFU: A Highly Efficient Cache Admission Policy" by
+    * Einziger and Friedman.
+    * <p>
+    * New entries are admitted to a small LRU window. Entries leaving the window compete with
+    * the least recently used entry of the main space, which is a segmented LRU made of a
+    * probation and a protected part: whichever of the two has been accessed more often,
+    * according to a {@link FrequencySketch}, stays in the cache. This keeps entries which
+    * are read often, but not recently, in the cache when a burst of one-hit wonders passes.
+    * <p>
+    * Accesses are recorded in striped {@link ReadBuffer}s without locking and applied in
+    * batches by whichever thread manages to lock the segment, so reads never block.
+    */
+   static final class TinyLFU<K, V> implements EvictionPolicy<K, V> {
+
+      /** The share of the cache which is dedicated to the admission window */
+      private static final float WINDOW_RATIO = 0.01f;
+
+      /** The share of the main space which is dedicated to protected entries */
+      private static final float PROTECTED_RATIO = 0.8f;
+
+      private static final int DRAIN_THRESHOLD = ReadBuffer.SIZE / 2;
+
+      private static final int READ_BUFFERS;
+
+      static {
+         int buffers = 1;
+         while (buffers < Runtime.getRuntime().availableProcessors() && buffers < 4) {
+            buffers <<= 1;
+         }
+         READ_BUFFERS = buffers;
+      }
+
+      private final Segment<K, V> segment;
+
+      private final ReadBuffer<TinyLFUHashEntry<K, V>>[] readBuffers;
+
+      private final FrequencySketch sketch;
+
+      /** The maximum number (or, if bounded by memory, the weight) of entries in a segment */
+      private final long maximumSize;
+      private final long maximumWindowSize;
+      private final long maximumProtectedSize;
+
+      private long size;
+      private long windowSize;
+      private long protectedSize;
+
+      private final TinyLFUHashEntry<K, V> window = new TinyLFUHashEntry<K, V>(this, null, 0, null, null);
+      private final TinyLFUHashEntry<K, V> probation = new TinyLFUHashEntry<K, V>(this, null, 0, null, null);
+      private final TinyLFUHashEntry<K, V> protectedEntries = new TinyLFUHashEntry<K, V>(this, null, 0, null, null);
+
+      @SuppressWarnings("unchecked")
+      public TinyLFU(Segment<K, V> s, int capacity) {
+         this.segment = s;
+         this.maximumSize = s.isWeighted() ? s.maxWeight : capacity;
+         this.maximumWindowSize = Math.max(1, (long) (WINDOW_RATIO * maximumSize));
+         this.maximumProtectedSize = (long) (PROTECTED_RATIO * (maximumSize - maximumWindowSize));
+         this.sketch = new FrequencySketch(s.isWeighted() ? DEFAULT_SEGMENT_CAPACITY : capacity);
+         this.readBuffers = new ReadBuffer[READ_BUFFERS];
+         for (int i = 0; i < readBuffers.length; i++) {
+            readBuffers[i] = new ReadBuffer<TinyLFUHashEntry<K, V>>();
+         }
+      }
+
+      @Override
+      public HashEntry<K, V> createNewEntry(K key, int hash, HashEntry<K, V> next, V value) {
+         return new TinyLFUHashEntry<K, V>(this, key, hash, next, value);
+      }
+
+      @Override
+      public Set<HashEntry<K, V>> execute() {
+         drainReadBuffers();
+         // values may have grown since the last insertion; the caller adds to the returned set
+         return new HashSet<HashEntry<K, V>>(evict());
+      }
+
+      @Override
+      public Set<HashEntry<K, V>> onEntryMiss(HashEntry<K, V> en) {
+         TinyLFUHashEntry<K, V> e = (TinyLFUHashEntry<K, V>) en;
+         linkLast(window, e, TinyLFUQueue.WINDOW);
+         size += e.weight;
+         windowSize += e.weight;
+         if (!segment.isEvictionAllowed()) {
+            // re-inserted copy of an entry which has been accessed before
+            return InfinispanCollections.emptySet();
+         }
+         if (segment.isWeighted()) {
+            sketch.ensureCapacity(segment.count);
+         }
+         sketch.increment(e.hash);
+         return evict();
+      }
+
+      /*
+       * Invoked without holding a lock on Segment
+       */
+      @Override
+      public boolean onEntryHit(HashEntry<K, V> e) {
+         return readBuffer().offer((TinyLFUHashEntry<K, V>) e) >= DRAIN_THRESHOLD;
+      }
+
+      /*
+       * Invoked without holding a lock on Segment
+       */
+      @Override
+      public boolean thresholdExpired() {
+         for (ReadBuffer<TinyLFUHashEntry<K, V>> buffer : readBuffers) {
+            if (buffer.pending() >= DRAIN_THRESHOLD) {
+               return true;
+            }
+         }
+         return false;
+      }
+
+      @Override
+      public void onEntryRemove(HashEntry<K, V> e) {
+         // evicted entries have been unlinked already
+         unlink((TinyLFUHashEntry<K, V>) e);
+      }
+
+      @Override
+      public void onEntryReplaced(HashEntry<K, V> e, HashEntry<K, V> copy) {
+         TinyLFUHashEntry<K, V> original = (TinyLFUHashEntry<K, V>) e;
+         TinyLFUHashEntry<K, V> replacement = (TinyLFUHashEntry<K, V>) copy;
+         if (original.queue == TinyLFUQueue.NONE) {
+            return;
+         }
+         replacement.queue = original.queue;
+         replacement.previousEntry = original.previousEntry;
+         replacement.nextEntry = original.nextEntry;
+         replacement.previousEntry.nextEntry = replacement;
+         replacement.nextEntry.previousEntry = replacement;
+         original.queue = TinyLFUQueue.NONE;
+         original.previousEntry = original;
+         original.nextEntry = original;
+      }
+
+      @Override
+      public void clear() {
+         for (ReadBuffer<TinyLFUHashEntry<K, V>> buffer : readBuffers) {
+            while (buffer.poll() != null) {
+               // discard
+            }
+         }
+         for (TinyLFUHashEntry<K, V> header : Arrays.asList(window, probation, protectedEntries)) {
+            while (header.nextEntry != header) {
+               unlink(header.nextEntry);
+            }
+         }
+      }
+
+      @Override
+      public Eviction strategy() {
+         return Eviction.TINY_LFU;
+      }
+
+      void onEntryReweighed(TinyLFUHashEntry<K, V> e, int newWeight) {
+         int delta = newWeight - e.weight;
+         switch (e.queue) {
+            case WINDOW:
+               windowSize += delta;
+               break;
+            case PROTECTED:
+               protectedSize += delta;
+               break;
+            case NONE:
+               return;
+            default:
+               break;
+         }
+         size += delta;
+      }
+
+      private ReadBuffer<TinyLFUHashEntry<K, V>> readBuffer() {
+         return readBuffers[(int) Thread.currentThread().getId() & (READ_BUFFERS - 1)];
+      }
+
+      private void drainReadBuffers() {
+         for (ReadBuffer<TinyLFUHashEntry<K, V>> buffer : readBuffers) {
+            TinyLFUHashEntry<K, V> e;
+            while ((e = buffer.poll()) != null) {
+               onAccess(e);
+            }
+         }
+      }
+
+      private void onAccess(TinyLFUHashEntry<K, V> e) {
+         switch (e.queue) {
+            case WINDOW:
+               moveToEnd(window, e);
+               break;
+            case PROBATION:
+               unlink(e);
+               linkLast(protectedEntries, e, TinyLFUQueue.PROTECTED);
+               size += e.weight;
+               protectedSize += e.weight;
+               demoteProtected();
+               break;
+            case PROTECTED:
+               moveToEnd(protectedEntries, e);
+               break;
+            default:
+               // removed, or replaced by a copy, since it was accessed
+               return;
+         }
+         sketch.increment(e.hash);
+      }
+
+      /**
+       * Moves the least recently used protected entries to probation until the protected
+       * part of the main space fits its bound again.
+       */
+      private void demoteProtected() {
+         while (protectedSize > maximumProtectedSize && protectedEntries.nextEntry != protectedEntries.previousEntry) {
+            TinyLFUHashEntry<K, V> demoted = protectedEntries.nextEntry;
+            unlink(demoted);
+            linkLast(probation, demoted, TinyLFUQueue.PROBATION);
+            size += demoted.weight;
+         }
+      }
+
+      /**
+       * Evicts entries until the segment fits its bound again. The most recently inserted
+       * entry is always kept, however heavy.
+       */
+      private Set<HashEntry<K, V>> evict() {
+         TinyLFUHashEntry<K, V> newest = window.previousEntry;
+         // entries leaving the window become candidates for the main space
+         while (windowSize > maximumWindowSize && window.nextEntry != newest) {
+            TinyLFUHashEntry<K, V> candidate = window.nextEntry;
+            unlink(candidate);
+            linkLast(probation, candidate, TinyLFUQueue.PROBATION);
+            size += candidate.weight;
+         }
+         if (size <= maximumSize) {
+            return InfinispanCollections.emptySet();
+         }
+
+         Set<HashEntry<K, V>> evicted = new HashSet<HashEntry<K, V>>();
+         while (size > maximumSize) {
+            TinyLFUHashEntry<K, V> victim = probation.nextEntry;
+            TinyLFUHashEntry<K, V> candidate = probation.previousEntry;
+            if (victim == probation) {
+               // nothing on probation: fall back to plain LRU order
+               victim = protectedEntries.nextEntry != protectedEntries ? protectedEntries.nextEntry : window.nextEntry;
+               if (victim == window || victim == newest) {
+                  break;
+               }
+            } else if (candidate != victim && sketch.frequency(candidate.hash) > sketch.frequency(victim.hash)) {
+               // admit the candidate at the expense of the victim
+            } else if (candidate != victim) {
+               victim = candidate;
+            }
+            unlink(victim);
+            evicted.add(victim);
+         }
+         removeFromSegment(evicted);
+         return evicted;
+      }
+
+      private void removeFromSegment(Set<HashEntry<K, V>> evicted) {
+         for (HashEntry<K, V> e : evicted) {
+            segment.remove(e.key, e.hash, null, true);
+         }
+      }
+
+      private void linkLast(TinyLFUHashEntry<K, V> header, TinyLFUHashEntry<K, V> e, TinyLFUQueue queue) {
+         e.queue = queue;
+         e.nextEntry = header;
+         e.previousEntry = header.previousEntry;
+         header.previousEntry.nextEntry = e;
+         header.previousEntry = e;
+      }
+
+      private void moveToEnd(TinyLFUHashEntry<K, V> header, TinyLFUHashEntry<K, V> e) {
+         e.previousEntry.nextEntry = e.nextEntry;
+         e.nextEntry.previousEntry = e.previousEntry;
+         e.nextEntry = header;
+         e.previousEntry = header.previousEntry;
+         header.previousEntry.nextEntry = e;
+         header.previousEntry = e;
+      }
+
+      /**
+       * Removes an entry from its list and the size of the segment.
+       */
+      private void unlink(TinyLFUHashEntry<K, V> e) {
+         switch (e.queue) {
+            case WINDOW:
+               windowSize -= e.weight;
+               break;
+            case PROTECTED:
+               protectedSize -= e.weight;
+               break;
+            case NONE:
+               return;
+            default:
+               break;
+         }
+         size -= e.weight;
+         e.previousEntry.nextEntry = e.nextEntry;
+         e.nextEntry.previousEntry = e.previousEntry;
+         e.previousEntry = e;
+         e.nextEntry = e;
+         e.queue = TinyLFUQueue.NONE;
+      }
+   }
+
    /**
     * Segments are specialized versions of hash tables.  This
     * subclasses from ReentrantLock opportunistically, just to
@@ -1402,13 +2092,40 @@ public HashEntry<K, V> createNewEntry(K key, int hash, HashEntry<K, V> next, V v
 
       final int evictCap;
 
+      /**
+       * The upper bound of the weight of this segment if it is bounded
+       * by memory, -1 if it is bounded by number of entries.
+       */
+      final long maxWeight;
+
+      /**
+       * The total weight of the entries of this segment, only
+       * maintained if it is bounded by memory. Guarded by the lock.
+       */
+      transient long weight;
+
+      /**
+       * Set while the entries preceding a removed one are re-inserted,
+       * which must not evict anything. Guarded by the lock.
+       */
+      transient boolean reinserting;
+
+      transient final EntrySizeCalculator<? super K, ? super V> sizeCalculator;
+
       transient final EvictionPolicy<K, V> eviction;
 
       transient final EvictionListener<K, V> evictionListener;
 
       Segment(int cap, int evictCap, float lf, Eviction es, EvictionListener<K, V> listener) {
+         this(cap, evictCap, -1, null, lf, es, listener);
+      }
+
+      Segment(int cap, int evictCap, long maxWeight, EntrySizeCalculator<? super K, ? super V> sizeCalculator,
+              float lf, Eviction es, EvictionListener<K, V> listener) {
          loadFactor = lf;
          this.evictCap = evictCap;
+         this.maxWeight = maxWeight;
+         this.sizeCalculator = sizeCalculator;
          eviction = es.make(this, evictCap, lf);
          evictionListener = listener;
          setTable(HashEntry.<K, V> newArray(cap));
@@ -1423,6 +2140,41 @@ EvictionListener<K, V> getEvictionListener() {
          return evictionListener;
       }
 
+      boolean isWeighted() {
+         return maxWeight > 0;
+      }
+
+      boolean isOverweight() {
+         return weight > maxWeight;
+      }
+
+      boolean isEvictionAllowed() {
+         return !reinserting;
+      }
+
+      /**
+       * Returns the weight of a new entry. Call only while holding lock.
+       */
+      int weigh(K key, V value) {
+         if (!isWeighted()) {
+            return 1;
+         }
+         long size = sizeCalculator.getEntrySize(key, value);
+         return (int) Math.max(1, Math.min(Integer.MAX_VALUE, size));
+      }
+
+      /**
+       * Updates the weight of an entry whose value has just changed.
+       * Call only while holding lock.
+       */
+      void reweigh(HashEntry<K, V> e, V newValue) {
+         if (isWeighted()) {
+            int newWeight = weigh(e.key, newValue);
+            weight += newWeight - e.weight;
+            e.reweigh(newWeight);
+         }
+      }
+
       /**
        * Sets table to new HashEntry array.
        * Call only while holding lock or in constructor.
@@ -1533,6 +2285,7 @@ boolean replace(K key, int hash, V oldValue, V newValue) {
             if (e != null && oldValue.equals(e.value)) {
                replaced = true;
                e.value = newValue;
+               reweigh(e, newValue);
                if (eviction.onEntryHit(e)) {
                   evicted = attemptEviction(true);
                }
@@ -1557,6 +2310,7 @@ V replace(K key, int hash, V newValue) {
             if (e != null) {
                oldValue = e.value;
                e.value = newValue;
+               reweigh(e, newValue);
                if (eviction.onEntryHit(e)) {
                   evicted = attemptEviction(true);
                }
@@ -1573,7 +2327,8 @@ V put(K key, int hash, V value, boolean onlyIfAbsent) {
          Set<HashEntry<K, V>> evicted = null;
          try {
             int c = count;
-            if (c++ > threshold && eviction.strategy() == Eviction.NONE) {
+            // tables bounded by memory cannot be sized upfront
+            if (c++ > threshold && (eviction.strategy() == Eviction.NONE || isWeighted())) {
                rehash();
             }
             HashEntry<K, V>[] tab = table;
@@ -1589,6 +2344,7 @@ V put(K key, int hash, V value, boolean onlyIfAbsent) {
                oldValue = e.value;
                if (!onlyIfAbsent) {
                   e.value = value;
+                  reweigh(e, value);
                   eviction.onEntryHit(e);
                }
             } else {
@@ -1596,14 +2352,20 @@ V put(K key, int hash, V value, boolean onlyIfAbsent) {
                ++modCount;
                count = c; // write-volatile
                if (eviction.strategy() != Eviction.NONE) {
-                  if (c > evictCap) {
+                  int w = weigh(key, value);
+                  if (isWeighted() ? weight + w > maxWeight : c > evictCap) {
                      // remove entries;lower count
                      evicted = eviction.execute();
                      // re-read first
                      first = tab[index];
                   }
                   // add a new entry
-                  tab[index] = eviction.createNewEntry(key, hash, first, value);
+                  HashEntry<K, V> newEntry = eviction.createNewEntry(key, hash, first, value);
+                  newEntry.weight = w;
+                  if (isWeighted()) {
+                     weight += w;
+                  }
+                  tab[index] = newEntry;
                   // notify a miss
                   Set<HashEntry<K, V>> newlyEvicted = eviction.onEntryMiss(tab[index]);
                   if (!newlyEvicted.isEmpty()) {
@@ -1681,7 +2443,10 @@ void rehash() {
                   for (HashEntry<K,V> p = e; p != lastRun; p = p.next) {
                      int k = p.hash & sizeMask;
                      HashEntry<K,V> n = newTable[k];
-                     newTable[k] = eviction.createNewEntry(p.key, p.hash, n, p.value);
+                     HashEntry<K,V> copy = eviction.createNewEntry(p.key, p.hash, n, p.value);
+                     copy.weight = p.weight;
+                     eviction.onEntryReplaced(p, copy);
+                     newTable[k] = copy;
                   }
                }
             }
@@ -1722,15 +2487,25 @@ V remove(Object key, int hash, Object value, boolean isEvict) {
 
                   // e was removed
                   eviction.onEntryRemove(e);
+                  if (isWeighted()) {
+                     weight -= e.weight;
+                  }
 
                   HashEntry<K, V> newFirst = e.next;
-                  for (HashEntry<K, V> p = first; p != e; p = p.next) {
-                     // TODO A remove operation makes the map behave like all the other keys in the bucket were just added???
-                     // allow p to be GC-ed
-                     eviction.onEntryRemove(p);
-                     newFirst = eviction.createNewEntry(p.key, p.hash, newFirst, p.value);
-                     // and notify eviction algorithm about new hash entries
-                     eviction.onEntryMiss(newFirst);
+                  boolean wasReinserting = reinserting;
+                  reinserting = true;
+                  try {
+                     for (HashEntry<K, V> p = first; p != e; p = p.next) {
+                        // TODO A remove operation makes the map behave like all the other keys in the bucket were just added???
+                        // allow p to be GC-ed
+                        eviction.onEntryRemove(p);
+                        newFirst = eviction.createNewEntry(p.key, p.hash, newFirst, p.value);
+                        newFirst.weight = p.weight;
+                        // and notify eviction algorithm about new hash entries
+                        eviction.onEntryMiss(newFirst);
+                     }
+                  } finally {
+                     reinserting = wasReinserting;
                   }
 
                   tab[index] = newFirst;
@@ -1767,6 +2542,7 @@ void clear() {
                }
                ++modCount;
                eviction.clear();
+               weight = 0;
                count = 0; // write-volatile
             } finally {
                unlock();
@@ -1893,6 +2669,67 @@ public BoundedConcurrentHashMap(int capacity, int concurrencyLevel,
       }
    }
 
+   /**
+    * Creates a new, empty map bounded by the estimated size of its entries
+    * rather than by their number. Each segment is bounded by an equal share
+    * of the maximum memory, and evicts entries according to the eviction
+    * strategy until the entries fit again; the most recently added entry
+    * is never evicted on insertion, even if it exceeds the share on its own.
+    *
+    * @param maxMemory
+    *            is the upper bound of the total size of the entries of this map, in
+    *            the unit used by the size calculator (usually bytes)
+    *
+    * @param concurrencyLevel
+    *            the estimated number of concurrently updating threads. The implementation performs
+    *            internal sizing to try to accommodate this many threads.
+    *
+    * @param evictionStrategy
+    *            the algorithm used to evict elements from this map
+    *
+    * @param evictionListener
+    *            the evicton listener callback to be notified about evicted elements
+    *
+    * @param sizeCalculator
+    *            estimates the size of each entry
+    *
+    * @throws IllegalArgumentException
+    *             if the maximum memory or concurrencyLevel are nonpositive, or if the eviction
+    *             strategy is {@link Eviction#NONE}.
+    */
+   public BoundedConcurrentHashMap(long maxMemory, int concurrencyLevel, Eviction evictionStrategy,
+         EvictionListener<K, V> evictionListener, EntrySizeCalculator<? super K, ? super V> sizeCalculator) {
+      if (maxMemory <= 0 || concurrencyLevel <= 0) {
+         throw new IllegalArgumentException();
+      }
+
+      if (evictionStrategy == null || evictionStrategy == Eviction.NONE || evictionListener == null
+            || sizeCalculator == null) {
+         throw new IllegalArgumentException();
+      }
+
+      if (concurrencyLevel > MAX_SEGMENTS) {
+         concurrencyLevel = MAX_SEGMENTS;
+      }
+
+      // Find power-of-two sizes best matching arguments
+      int sshift = 0;
+      int ssize = 1;
+      while (ssize < concurrencyLevel) {
+         ++sshift;
+         ssize <<= 1;
+      }
+      segmentShift = 32 - sshift;
+      segmentMask = ssize - 1;
+      this.segments = Segment.newArray(ssize);
+
+      long segmentMemory = Math.max(1, maxMemory / ssize);
+      for (int i = 0; i < this.segments.length; ++i) {
+         this.segments[i] = new Segment<K, V>(DEFAULT_SEGMENT_CAPACITY, DEFAULT_SEGMENT_CAPACITY, segmentMemory,
+                                              sizeCalculator, DEFAULT_LOAD_FACTOR, evictionStrategy, evictionListener);
+      }
+   }
+
    /**
     * Creates a new, empty map with the specified maximum capacity, load factor, concurrency
     * level and LRU eviction policy.
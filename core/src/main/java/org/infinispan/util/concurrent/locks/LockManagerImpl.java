@@ -41,7 +41,6 @@
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.locks.Lock;
 
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
@@ -55,13 +54,13 @@
 @MBean(objectName = "LockManager", description = "Manager that handles MVCC locks for entries")
 public class LockManagerImpl implements LockManager {
    protected Configuration configuration;
-   protected volatile LockContainer<?> lockContainer;
+   protected volatile KeyLockContainer<?> lockContainer;
    private static final Log log = LogFactory.getLog(LockManagerImpl.class);
    protected static final boolean trace = log.isTraceEnabled();
    private static final String ANOTHER_THREAD = "(another thread)";
 
    @Inject
-   public void injectDependencies(Configuration configuration, LockContainer<?> lockContainer) {
+   public void injectDependencies(Configuration configuration, KeyLockContainer<?> lockContainer) {
       this.configuration = configuration;
       this.lockContainer = lockContainer;
    }
@@ -120,7 +119,7 @@ public boolean isLocked(Object key) {
    @Override
    public Object getOwner(Object key) {
       if (lockContainer.isLocked(key)) {
-         Lock l = lockContainer.getLock(key);
+         Object l = lockContainer.getLock(key);
 
          if (l instanceof OwnableReentrantLock) {
             return ((OwnableReentrantLock) l).getOwner();
@@ -130,6 +129,10 @@ public Object getOwner(Object key) {
             // JDK ReentrantLocks can return null e.g. if another thread is in the process of acquiring the lock
             if (owner != null)
                return owner;
+         } else if (l instanceof LockTableContainer.LockSlot) {
+            Object owner = ((LockTableContainer.LockSlot) l).getOwner();
+            if (owner != null)
+               return owner;
          }
 
          return ANOTHER_THREAD;
@@ -0,0 +1,91 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.infinispan.util.concurrent.locks.containers;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A container that locks keys on behalf of lock owners. Unlike {@link LockContainer}, it does not require the locks
+ * it hands out to be {@link java.util.concurrent.locks.Lock}s, as they are only ever acquired and released through
+ * the container. This is what the {@link org.infinispan.util.concurrent.locks.LockManager} works with, so that it can
+ * also use a {@link LockTableContainer}.
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+public interface KeyLockContainer<L> {
+   /**
+    * Tests if a give owner owns a lock on a specified object.
+    *
+    * @param key   object to check
+    * @param owner owner to test
+    * @return true if owner owns lock, false otherwise
+    */
+   boolean ownsLock(Object key, Object owner);
+
+   /**
+    * @param key object
+    * @return true if an object is locked, false otherwise
+    */
+   boolean isLocked(Object key);
+
+   /**
+    * @param key object
+    * @return the lock for a specific object.  May be null if the object is not locked, but may also be an unlocked lock.
+    */
+   L getLock(Object key);
+
+   /**
+    * @return number of locks held
+    */
+   int getNumLocksHeld();
+
+   /**
+    * @return the size of the shared lock pool
+    */
+   int size();
+
+   /**
+    * Attempts to acquire a lock for the given object within certain time boundaries defined by the timeout and
+    * time unit parameters.
+    *
+    * @param key Object to acquire lock on
+    * @param timeout Time after which the lock acquisition will fail
+    * @param unit Time unit of the given timeout
+    * @return If lock was acquired it returns the corresponding lock. If lock was not acquired, it returns null
+    * @throws InterruptedException If the lock acquisition was interrupted
+    */
+   L acquireLock(Object lockOwner, Object key, long timeout, TimeUnit unit) throws InterruptedException;
+
+   /**
+    * Release lock on the given key.
+    *
+    * @param key Object on which lock is to be removed
+    */
+   void releaseLock(Object lockOwner, Object key);
+
+   /**
+    * Returns the 'id' of the lock that will be used to guard access to a given key in the cache.
+    *
+    * @param key key to test for
+    * @return the ID of the lock.
+    * @see LockContainer#getLockId(Object)
+    */
+   int getLockId(Object key);
+}
@@ -32,7 +32,7 @@
  * @author Mircea.Markus@jboss.com
  * @since 4.0
  */
-public interface LockContainer<L extends Lock> {
+public interface LockContainer<L extends Lock> extends KeyLockContainer<L> {
    /**
     * Tests if a give owner owns a lock on a specified object.
     *
@@ -0,0 +1,420 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.infinispan.util.concurrent.locks.containers;
+
+import net.jcip.annotations.ThreadSafe;
+import org.infinispan.util.Util;
+import org.infinispan.util.logging.Log;
+import org.infinispan.util.logging.LogFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A lock container that keeps the locks of all keys in an open-addressed table of preallocated
+ * {@link LockSlot}s.
+ * <p/>
+ * A key is locked by claiming a free slot close to its hash with a CAS on the slot's owner, and the
+ * slot is freed again as soon as the key is unlocked. Locking and unlocking an uncontended key
+ * therefore neither allocates nor blocks, and, unlike with lock striping, two keys never share a
+ * lock. Only a thread that finds its key locked by another owner parks, on the monitor of that
+ * key's slot.
+ * <p/>
+ * Each key is looked up in a small window of consecutive slots. As two owners may claim different
+ * slots for the same key concurrently, an owner publishes its claim and then checks the window for
+ * other claims of the same key; if there is one, it backs off and retries. When all the windows of
+ * a key are taken by other keys, a new table twice the size of the last one is added, so a large
+ * number of locked keys never leads to contention between unrelated keys. There are at most
+ * {@link #MAX_TABLES} tables: beyond that, a key whose windows are all taken waits for one of their
+ * slots to be freed. The tables that have been added are dropped again once all of their slots
+ * are free.
+ * <p/>
+ * Locks are reentrant per owner, like {@link org.infinispan.util.concurrent.locks.OwnableReentrantLock},
+ * so this container can be used for transactional as well as for non-transactional caches.
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+@ThreadSafe
+public class LockTableContainer implements KeyLockContainer<LockTableContainer.LockSlot> {
+
+   private static final Log log = LogFactory.getLog(LockTableContainer.class);
+   private static final boolean trace = log.isTraceEnabled();
+
+   /**
+    * Number of consecutive slots of each table in which a key may be locked.
+    */
+   public static final int PROBE_WINDOW = 8;
+
+   /**
+    * Number of times a contended slot is checked again before parking on it.
+    */
+   private static final int SPINS = 32;
+
+   /**
+    * Maximum number of tables, the first one included.
+    */
+   public static final int MAX_TABLES = 8;
+
+   /**
+    * How long a key whose probe windows are all taken waits before checking them again.
+    */
+   private static final long CLAIM_BACKOFF_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+   /**
+    * The owner of the slots of a table which is being or has been dropped, so that they can no
+    * longer be claimed.
+    */
+   private static final Object RETIRED = new Object();
+
+   private static final AtomicReferenceFieldUpdater<LockTableContainer, LockSlot[][]> TABLES =
+         AtomicReferenceFieldUpdater.newUpdater(LockTableContainer.class, LockSlot[][].class, "tables");
+
+   private volatile LockSlot[][] tables;
+
+   /**
+    * @param concurrencyLevel the expected number of threads locking concurrently, used to size the
+    *                         initial table
+    */
+   public LockTableContainer(int concurrencyLevel) {
+      int capacity = 16;
+      while (capacity < concurrencyLevel * 16 && capacity < (1 << 24)) capacity <<= 1;
+      tables = new LockSlot[][]{newTable(capacity, 0, null)};
+   }
+
+   /**
+    * @param locked counts the locked slots of the table, null for the first table which is never
+    *               dropped
+    */
+   private static LockSlot[] newTable(int capacity, int firstId, AtomicInteger locked) {
+      LockSlot[] table = new LockSlot[capacity];
+      for (int i = 0; i < capacity; i++) table[i] = new LockSlot(firstId + i, locked);
+      return table;
+   }
+
+   private static int hash(Object key) {
+      // the same spreader as ConcurrentHashMap, tables use the low bits
+      int h = key.hashCode();
+      h += (h << 15) ^ 0xffffcd7d;
+      h ^= (h >>> 10);
+      h += (h << 3);
+      h ^= (h >>> 6);
+      h += (h << 2) + (h << 14);
+      return h ^ (h >>> 16);
+   }
+
+   /**
+    * Looks up the slots of a key. If owner is not null, a slot locked by owner is preferred to other
+    * slots locked on the same key, which may exist while a claim is backed off.
+    */
+   private LockSlot find(Object key, int hash, Object owner) {
+      LockSlot found = null;
+      for (LockSlot[] table : tables) {
+         int mask = table.length - 1;
+         for (int i = 0; i < PROBE_WINDOW; i++) {
+            LockSlot slot = table[(hash + i) & mask];
+            if (slot.holds(key, hash)) {
+               if (owner == null || owner.equals(slot.owner)) return slot;
+               if (found == null) found = slot;
+            }
+         }
+      }
+      return found;
+   }
+
+   private boolean claimedElsewhere(Object key, int hash, LockSlot claimed) {
+      for (LockSlot[] table : tables) {
+         int mask = table.length - 1;
+         for (int i = 0; i < PROBE_WINDOW; i++) {
+            LockSlot slot = table[(hash + i) & mask];
+            if (slot != claimed && slot.holds(key, hash)) return true;
+         }
+      }
+      return false;
+   }
+
+   /**
+    * Claims a free slot for the key, waiting for one to be freed if all of the key's windows are
+    * taken and no table can be added.
+    *
+    * @return null if the deadline passed first
+    */
+   private LockSlot claim(Object owner, Object key, int hash, long deadline) throws InterruptedException {
+      while (true) {
+         LockSlot[][] current = tables;
+         for (LockSlot[] table : current) {
+            int mask = table.length - 1;
+            for (int i = 0; i < PROBE_WINDOW; i++) {
+               LockSlot slot = table[(hash + i) & mask];
+               if (slot.owner == null && LockSlot.OWNER.compareAndSet(slot, null, owner)) {
+                  if (slot.locked != null) slot.locked.incrementAndGet();
+                  slot.holdCount = 1;
+                  slot.hash = hash;
+                  slot.key = key;
+                  return slot;
+               }
+            }
+         }
+         if (current.length < MAX_TABLES) {
+            addTable(current);
+            continue;
+         }
+         if (deadline - System.nanoTime() <= 0) return null;
+         LockSupport.parkNanos(CLAIM_BACKOFF_NANOS);
+         if (Thread.interrupted()) throw new InterruptedException();
+      }
+   }
+
+   private void addTable(LockSlot[][] current) {
+      LockSlot[] last = current[current.length - 1];
+      LockSlot[][] grown = Arrays.copyOf(current, current.length + 1);
+      grown[current.length] = newTable(last.length << 1, last[0].id + last.length, new AtomicInteger());
+      if (TABLES.compareAndSet(this, current, grown) && trace)
+         log.tracef("Added a lock table of %s slots", last.length << 1);
+   }
+
+   private void free(LockSlot slot) {
+      slot.free();
+      if (slot.locked != null && slot.locked.decrementAndGet() == 0) retireEmptyTables();
+   }
+
+   /**
+    * Drops the tables that have been added, last first, as long as all of their slots are free.
+    * The slots of a table are retired before the table is dropped, so that no key can be locked in
+    * a table that is no longer looked up.
+    */
+   private void retireEmptyTables() {
+      while (true) {
+         LockSlot[][] current = tables;
+         if (current.length == 1) return;
+         LockSlot[] last = current[current.length - 1];
+         if (last[0].locked.get() != 0 || !retire(last)) return;
+         if (!TABLES.compareAndSet(this, current, Arrays.copyOf(current, current.length - 1))) {
+            // a table has been added or dropped concurrently
+            reinstate(last, last.length);
+            return;
+         }
+         if (trace) log.tracef("Dropped a lock table of %s slots", last.length);
+      }
+   }
+
+   private static boolean retire(LockSlot[] table) {
+      for (int i = 0; i < table.length; i++) {
+         if (!LockSlot.OWNER.compareAndSet(table[i], null, RETIRED)) {
+            // claimed in the meantime
+            reinstate(table, i);
+            return false;
+         }
+      }
+      return true;
+   }
+
+   private static void reinstate(LockSlot[] table, int retired) {
+      for (int i = 0; i < retired; i++) table[i].owner = null;
+   }
+
+   @Override
+   public LockSlot acquireLock(Object lockOwner, Object key, long timeout, TimeUnit unit) throws InterruptedException {
+      if (Thread.interrupted()) throw new InterruptedException();
+      final long deadline = System.nanoTime() + unit.toNanos(timeout);
+      final int hash = hash(key);
+      while (true) {
+         LockSlot slot = find(key, hash, lockOwner);
+         if (slot != null) {
+            if (lockOwner.equals(slot.owner) && slot.holds(key, hash)) {
+               // a reentrant acquisition, no one else may change the slot now
+               slot.holdCount++;
+               return slot;
+            }
+            if (!slot.awaitRelease(key, hash, deadline)) {
+               if (trace) log.tracef("Timed out attempting to acquire lock for key %s after %s", key, Util.prettyPrintTime(timeout, unit));
+               return null;
+            }
+            continue;
+         }
+
+         slot = claim(lockOwner, key, hash, deadline);
+         if (slot == null) {
+            if (trace) log.tracef("Timed out attempting to claim a lock slot for key %s after %s", key, Util.prettyPrintTime(timeout, unit));
+            return null;
+         }
+         if (!claimedElsewhere(key, hash, slot)) return slot;
+
+         // another owner claimed the same key concurrently, and may or may not have seen our claim
+         if (trace) log.tracef("Concurrent claim of key %s, backing off", key);
+         free(slot);
+         Thread.yield();
+      }
+   }
+
+   @Override
+   public void releaseLock(Object lockOwner, Object key) {
+      LockSlot slot = find(key, hash(key), lockOwner);
+      // like the other containers, ignore releases by owners not holding the lock
+      if (slot != null && lockOwner.equals(slot.owner)) {
+         if (--slot.holdCount == 0) free(slot);
+      }
+   }
+
+   @Override
+   public boolean ownsLock(Object key, Object owner) {
+      LockSlot slot = find(key, hash(key), owner);
+      return slot != null && owner.equals(slot.owner);
+   }
+
+   @Override
+   public boolean isLocked(Object key) {
+      return find(key, hash(key), null) != null;
+   }
+
+   @Override
+   public LockSlot getLock(Object key) {
+      return find(key, hash(key), null);
+   }
+
+   @Override
+   public int getNumLocksHeld() {
+      int held = 0;
+      for (LockSlot[] table : tables) {
+         for (LockSlot slot : table) {
+            if (slot.key != null) held++;
+         }
+      }
+      return held;
+   }
+
+   @Override
+   public int size() {
+      int size = 0;
+      for (LockSlot[] table : tables) size += table.length;
+      return size;
+   }
+
+   @Override
+   public int getLockId(Object key) {
+      LockSlot slot = getLock(key);
+      return slot == null ? -1 : slot.id;
+   }
+
+   @Override
+   public String toString() {
+      return "LockTableContainer{" +
+            "tables=" + tables.length +
+            ", size=" + size() +
+            ", locksHeld=" + getNumLocksHeld() +
+            '}';
+   }
+
+   /**
+    * A slot of the lock table. While a key is locked, the slot holds the key and its owner; the slot
+    * can not be locked or unlocked on its own, only through the container, and is therefore not a
+    * {@link java.util.concurrent.locks.Lock}.
+    */
+   public static final class LockSlot {
+
+      private static final AtomicReferenceFieldUpdater<LockSlot, Object> OWNER =
+            AtomicReferenceFieldUpdater.newUpdater(LockSlot.class, Object.class, "owner");
+
+      private final int id;
+      // the locked slot counter of the slot's table, null for the first table
+      private final AtomicInteger locked;
+      // claimed by a CAS on the owner, then published by writing the key; freed in reverse order
+      private volatile Object owner;
+      private volatile Object key;
+      // the spread hash of the key, compared before the key itself
+      private int hash;
+      private volatile int holdCount;
+      private volatile int waiters;
+
+      private LockSlot(int id, AtomicInteger locked) {
+         this.id = id;
+         this.locked = locked;
+      }
+
+      boolean holds(Object key, int hash) {
+         Object k = this.key;
+         return k != null && (k == key || (this.hash == hash && k.equals(key)));
+      }
+
+      /**
+       * Waits until this slot no longer holds the given key.
+       *
+       * @return false if the deadline passed first
+       */
+      boolean awaitRelease(Object key, int hash, long deadline) throws InterruptedException {
+         for (int i = 0; i < SPINS; i++) {
+            if (!holds(key, hash)) return true;
+         }
+         synchronized (this) {
+            // free() reads the waiters after clearing the key, so either we see the key cleared
+            // or the releasing thread sees us waiting and notifies us
+            waiters++;
+            try {
+               while (holds(key, hash)) {
+                  long remaining = deadline - System.nanoTime();
+                  if (remaining <= 0) return false;
+                  TimeUnit.NANOSECONDS.timedWait(this, remaining);
+               }
+               return true;
+            } finally {
+               waiters--;
+            }
+         }
+      }
+
+      void free() {
+         holdCount = 0;
+         key = null;
+         owner = null;
+         if (waiters > 0) {
+            synchronized (this) {
+               notifyAll();
+            }
+         }
+      }
+
+      /**
+       * @return the owner of the lock, or null if it is currently unlocked.
+       */
+      public Object getOwner() {
+         Object o = owner;
+         return key == null ? null : o;
+      }
+
+      /**
+       * @return true if the lock is locked, false otherwise
+       */
+      public boolean isLocked() {
+         return key != null;
+      }
+
+      @Override
+      public String toString() {
+         return "LockSlot{" +
+               "id=" + id +
+               ", key=" + key +
+               ", owner=" + owner +
+               ", holdCount=" + holdCount +
+               '}';
+      }
+   }
+}
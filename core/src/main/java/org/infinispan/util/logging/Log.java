@@ -873,5 +873,16 @@ void asyncStoreShutdownTimeoutTooHigh(long configuredAsyncStopTimeout,
 
    @Message(value = "Custom interceptor '%s' doesn't specify a position", id = 225)
    ConfigurationException missingCustomInterceptorPosition(String customInterceptorClassName);
-}
 
+   @LogMessage(level = WARN)
+   @Message(value = "Entry for key %s needs %d bytes, which exceeds the memory limit of %d bytes of its off-heap data container segment", id = 226)
+   void offHeapEntryExceedsSegmentMemory(Object key, int size, long maxSegmentMemory);
+
+   @LogMessage(level = WARN)
+   @Message(value = "Truncating log file %s at offset %d, the record found there is incomplete or corrupt", id = 227)
+   void truncatingLogFile(File file, long offset);
+
+   @LogMessage(level = WARN)
+   @Message(value = "Problems compacting log file %s", id = 228)
+   void problemsCompactingLogFile(File file, @Cause Throwable cause);
+}
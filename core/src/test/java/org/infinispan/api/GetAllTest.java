@@ -0,0 +1,138 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.infinispan.api;
+
+import org.infinispan.AdvancedCache;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.context.Flag;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.infinispan.notifications.Listener;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryVisited;
+import org.infinispan.notifications.cachelistener.event.CacheEntryVisitedEvent;
+import org.infinispan.test.SingleCacheManagerTest;
+import org.infinispan.test.fwk.TestCacheManagerFactory;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
+
+/**
+ * Tests {@link AdvancedCache#getAll(java.util.Set)} on a local cache.
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+@Test(groups = "functional", testName = "api.GetAllTest")
+public class GetAllTest extends SingleCacheManagerTest {
+
+   private AdvancedCache<Object, Object> advancedCache;
+
+   @Override
+   protected EmbeddedCacheManager createCacheManager() throws Exception {
+      ConfigurationBuilder builder = getDefaultStandaloneCacheConfig(false);
+      builder.jmxStatistics().enable();
+      EmbeddedCacheManager cm = TestCacheManagerFactory.createCacheManager(builder);
+      advancedCache = cm.getCache().getAdvancedCache();
+      return cm;
+   }
+
+   public void testGetAllReturnsOnlyExistingKeys() {
+      advancedCache.put("k1", "v1");
+      advancedCache.put("k2", "v2");
+
+      Map<Object, Object> result = advancedCache.getAll(keys("k1", "k2", "k3"));
+      assertEquals(2, result.size());
+      assertEquals("v1", result.get("k1"));
+      assertEquals("v2", result.get("k2"));
+      assertFalse(result.containsKey("k3"));
+   }
+
+   public void testGetAllOfEmptySet() {
+      Map<Object, Object> result = advancedCache.getAll(Collections.emptySet());
+      assertTrue(result.isEmpty());
+   }
+
+   @Test(expectedExceptions = NullPointerException.class)
+   public void testGetAllWithNullKey() {
+      advancedCache.getAll(keys("k1", null));
+   }
+
+   public void testGetAllSkipsExpiredEntries() throws Exception {
+      advancedCache.put("expiring", "v1", 1, TimeUnit.MILLISECONDS);
+      advancedCache.put("immortal", "v2");
+      Thread.sleep(10);
+
+      Map<Object, Object> result = advancedCache.getAll(keys("expiring", "immortal"));
+      assertEquals(1, result.size());
+      assertEquals("v2", result.get("immortal"));
+   }
+
+   public void testGetAllUpdatesStatistics() {
+      advancedCache.put("s1", "v1");
+      long hits = advancedCache.getStats().getHits();
+      long misses = advancedCache.getStats().getMisses();
+
+      advancedCache.getAll(keys("s1", "s2", "s3"));
+      assertEquals(hits + 1, advancedCache.getStats().getHits());
+      assertEquals(misses + 2, advancedCache.getStats().getMisses());
+   }
+
+   public void testGetAllNotifiesVisitedEntries() {
+      advancedCache.put("n1", "v1");
+      VisitedListener listener = new VisitedListener();
+      advancedCache.addListener(listener);
+      try {
+         advancedCache.getAll(keys("n1", "n2"));
+         assertEquals(Collections.<Object>singleton("n1"), listener.visited);
+      } finally {
+         advancedCache.removeListener(listener);
+      }
+   }
+
+   public void testGetAllWithFlags() {
+      advancedCache.put("f1", "v1");
+      Map<Object, Object> result = advancedCache.withFlags(Flag.SKIP_CACHE_LOAD)
+            .getAll(keys("f1"));
+      assertEquals("v1", result.get("f1"));
+   }
+
+   private static Set<Object> keys(Object... keys) {
+      return new HashSet<Object>(Arrays.asList(keys));
+   }
+
+   @Listener
+   public static class VisitedListener {
+      final Set<Object> visited = new HashSet<Object>();
+
+      @CacheEntryVisited
+      public void entryVisited(CacheEntryVisitedEvent<Object, Object> e) {
+         if (!e.isPre())
+            visited.add(e.getKey());
+      }
+   }
+
+}
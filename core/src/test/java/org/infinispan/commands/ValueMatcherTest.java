@@ -0,0 +1,110 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.infinispan.commands;
+
+import org.infinispan.Cache;
+import org.infinispan.commands.write.ValueMatcher;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.infinispan.test.SingleCacheManagerTest;
+import org.infinispan.test.fwk.TestCacheManagerFactory;
+import org.testng.annotations.Test;
+
+import java.io.Serializable;
+
+import static org.testng.AssertJUnit.*;
+
+/**
+ * Tests that a {@link ValueMatcher} passed as the expected value of a conditional replace or remove decides whether
+ * the current value matches.
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+@Test(groups = "functional", testName = "commands.ValueMatcherTest")
+public class ValueMatcherTest extends SingleCacheManagerTest {
+
+   @Override
+   protected EmbeddedCacheManager createCacheManager() throws Exception {
+      EmbeddedCacheManager cm = TestCacheManagerFactory.createCacheManager(getDefaultStandaloneCacheConfig(false));
+      ConfigurationBuilder binary = getDefaultStandaloneCacheConfig(false);
+      binary.storeAsBinary().enable();
+      cm.defineConfiguration("binary", binary.build());
+      return cm;
+   }
+
+   public void testReplaceWithMatcher() {
+      doTestReplaceWithMatcher(cache);
+   }
+
+   public void testReplaceWithMatcherStoringAsBinary() {
+      doTestReplaceWithMatcher(cacheManager.<Object, Object>getCache("binary"));
+   }
+
+   public void testRemoveWithMatcher() {
+      doTestRemoveWithMatcher(cache);
+   }
+
+   public void testRemoveWithMatcherStoringAsBinary() {
+      doTestRemoveWithMatcher(cacheManager.<Object, Object>getCache("binary"));
+   }
+
+   public void testPlainExpectedValuesStillCompareByEquality() {
+      cache.put("k", "v1");
+      assertFalse(cache.replace("k", "v2", "v3"));
+      assertTrue(cache.replace("k", "v1", "v2"));
+      assertFalse(cache.remove("k", "v1"));
+      assertTrue(cache.remove("k", "v2"));
+      assertNull(cache.get("k"));
+   }
+
+   private void doTestReplaceWithMatcher(Cache<Object, Object> c) {
+      assertFalse(c.replace("k", new PrefixMatcher("a"), "b1"));
+      assertNull(c.get("k"));
+
+      c.put("k", "a1");
+      assertFalse(c.replace("k", new PrefixMatcher("b"), "b1"));
+      assertEquals("a1", c.get("k"));
+      assertTrue(c.replace("k", new PrefixMatcher("a"), "b1"));
+      assertEquals("b1", c.get("k"));
+   }
+
+   private void doTestRemoveWithMatcher(Cache<Object, Object> c) {
+      assertFalse(c.remove("k", new PrefixMatcher("a")));
+
+      c.put("k", "a1");
+      assertFalse(c.remove("k", new PrefixMatcher("b")));
+      assertEquals("a1", c.get("k"));
+      assertTrue(c.remove("k", new PrefixMatcher("a")));
+      assertNull(c.get("k"));
+   }
+
+   static class PrefixMatcher implements ValueMatcher, Serializable {
+      final String prefix;
+
+      PrefixMatcher(String prefix) {
+         this.prefix = prefix;
+      }
+
+      @Override
+      public boolean matches(Object currentValue) {
+         return currentValue instanceof String && ((String) currentValue).startsWith(prefix);
+      }
+   }
+}
@@ -0,0 +1,196 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+
+package org.infinispan.container;
+
+import org.infinispan.container.entries.ImmortalCacheEntry;
+import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.container.entries.MortalCacheEntry;
+import org.infinispan.container.entries.TransientCacheEntry;
+import org.infinispan.test.AbstractInfinispanTest;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests {@link ExpirationWheel}.
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+@Test(groups = "unit", testName = "container.ExpirationWheelTest")
+public class ExpirationWheelTest extends AbstractInfinispanTest {
+
+   private static final long NOW = 1000000000L;
+
+   public void testDeadlineIsNeverLaterThanExpiry() {
+      Random random = new Random(17);
+      for (int i = 0; i < 100000; i++) {
+         long delay = 1 + (random.nextLong() & Long.MAX_VALUE) % (1L << (1 + random.nextInt(40)));
+         long expiryTime = NOW + delay;
+         long deadline = ExpirationWheel.deadline(expiryTime, NOW);
+         assertTrue(deadline > NOW, "Deadline " + deadline + " is not in the future for delay " + delay);
+         assertTrue(deadline <= expiryTime);
+         assertTrue(expiryTime - deadline <= delay / ExpirationWheel.BUCKETS_PER_LEVEL);
+      }
+   }
+
+   public void testPurgeVisitsOnlyDueEntries() {
+      ExpirationWheel wheel = new ExpirationWheel();
+      DataContainer container = mock(DataContainer.class);
+      for (int i = 0; i < 10; i++) {
+         InternalCacheEntry entry = new MortalCacheEntry("due" + i, "v", 100, NOW);
+         wheel.register(entry.getKey(), entry, NOW);
+         when(container.peek(entry.getKey())).thenReturn(entry);
+      }
+      for (int i = 0; i < 1000; i++) {
+         InternalCacheEntry entry = new MortalCacheEntry("later" + i, "v", 3600000, NOW);
+         wheel.register(entry.getKey(), entry, NOW);
+      }
+      assertEquals(wheel.size(), 1010);
+
+      wheel.purge(NOW + 100, container);
+      verify(container, never()).peek("due0");
+      assertEquals(wheel.size(), 1010);
+
+      wheel.purge(NOW + 101, container);
+      for (int i = 0; i < 10; i++) {
+         verify(container).remove("due" + i);
+      }
+      verify(container, never()).peek("later0");
+      assertEquals(wheel.size(), 1000);
+   }
+
+   public void testAccessedEntryIsRescheduled() {
+      ExpirationWheel wheel = new ExpirationWheel();
+      DataContainer container = mock(DataContainer.class);
+      InternalCacheEntry entry = new TransientCacheEntry("k", "v", 100, NOW);
+      when(container.peek("k")).thenReturn(entry);
+      wheel.register("k", entry, NOW);
+
+      entry.touch(NOW + 80);
+      wheel.purge(NOW + 101, container);
+      verify(container, never()).remove("k");
+      assertEquals(wheel.size(), 1);
+
+      wheel.purge(NOW + 181, container);
+      verify(container).remove("k");
+      assertEquals(wheel.size(), 0);
+   }
+
+   public void testFarExpiryIsCascaded() {
+      ExpirationWheel wheel = new ExpirationWheel();
+      DataContainer container = mock(DataContainer.class);
+      InternalCacheEntry entry = new MortalCacheEntry("k", "v", 24 * 3600000L, NOW);
+      when(container.peek("k")).thenReturn(entry);
+      wheel.register("k", entry, NOW);
+
+      long expiredAt = entry.getExpiryTime() + 1;
+      long now = NOW;
+      int purges = 0;
+      while (wheel.size() > 0 && purges < 100) {
+         now = ExpirationWheel.deadline(expiredAt, now);
+         wheel.purge(now, container);
+         purges++;
+      }
+      assertEquals(now, expiredAt);
+      assertTrue(purges <= 6, "Entry was moved " + purges + " times");
+      verify(container, times(purges)).peek("k");
+      verify(container).remove("k");
+   }
+
+   public void testUpdatedEntryIsNotRemoved() {
+      ExpirationWheel wheel = new ExpirationWheel();
+      DataContainer container = mock(DataContainer.class);
+      InternalCacheEntry mortal = new MortalCacheEntry("k", "v", 100, NOW);
+      wheel.register("k", mortal, NOW);
+      // updated to an immortal entry
+      when(container.peek("k")).thenReturn(new ImmortalCacheEntry("k", "v2"));
+
+      wheel.purge(NOW + 101, container);
+      verify(container, never()).remove("k");
+      assertEquals(wheel.size(), 0);
+   }
+
+   public void testCancel() {
+      ExpirationWheel wheel = new ExpirationWheel();
+      DataContainer container = mock(DataContainer.class);
+      InternalCacheEntry first = new MortalCacheEntry("k", "v", 100, NOW);
+      InternalCacheEntry second = new MortalCacheEntry("k", "v", 200, NOW);
+      wheel.register("k", first, NOW);
+      wheel.cancel("k", first);
+      assertEquals(wheel.size(), 0);
+
+      wheel.register("k", second, NOW);
+      // a late notification about the first entry must not cancel the second one
+      wheel.cancel("k", first);
+      assertEquals(wheel.size(), 1);
+
+      when(container.peek("k")).thenReturn(second);
+      wheel.purge(NOW + 201, container);
+      verify(container).remove("k");
+   }
+
+   public void testCancelledEntriesAreRemovedFromTheirBuckets() {
+      ExpirationWheel wheel = new ExpirationWheel();
+      InternalCacheEntry[] entries = new InternalCacheEntry[1000];
+      for (int i = 0; i < entries.length; i++) {
+         entries[i] = new MortalCacheEntry("k" + i, "v", 3600000, NOW);
+         wheel.register(entries[i].getKey(), entries[i], NOW);
+      }
+      assertEquals(wheel.scheduled(), 1000);
+
+      for (InternalCacheEntry entry : entries) {
+         wheel.cancel(entry.getKey(), entry);
+      }
+      assertEquals(wheel.size(), 0);
+      assertEquals(wheel.scheduled(), 0);
+
+      // rescheduling an entry earlier replaces its previous check
+      InternalCacheEntry later = new MortalCacheEntry("k", "v", 3600000, NOW);
+      InternalCacheEntry earlier = new MortalCacheEntry("k", "v", 100, NOW);
+      wheel.register("k", later, NOW);
+      wheel.register("k", earlier, NOW);
+      assertEquals(wheel.scheduled(), 1);
+   }
+
+   public void testContainerPurgesExpiredEntries() throws Exception {
+      DefaultDataContainer dc = new DefaultDataContainer(16);
+      dc.initialize(null, null, new InternalEntryFactoryImpl(), null, null);
+      for (int i = 0; i < 100; i++) {
+         dc.put("immortal" + i, "v", null, -1, -1);
+         dc.put("mortal" + i, "v", null, 10, -1);
+      }
+      assertEquals(dc.expirationWheel.size(), 100);
+      dc.remove("mortal0");
+      assertEquals(dc.expirationWheel.size(), 99);
+      Thread.sleep(50);
+      dc.purgeExpired();
+      assertEquals(dc.size(), 100);
+      assertEquals(dc.expirationWheel.size(), 0);
+   }
+}
@@ -0,0 +1,235 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+
+package org.infinispan.container;
+
+import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.eviction.ActivationManager;
+import org.infinispan.eviction.EvictionManager;
+import org.infinispan.eviction.EvictionStrategy;
+import org.infinispan.eviction.EvictionThreadPolicy;
+import org.infinispan.eviction.PassivationManager;
+import org.infinispan.marshall.TestObjectStreamMarshaller;
+import org.testng.annotations.Test;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNotNull;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
+import static org.testng.AssertJUnit.fail;
+
+/**
+ * Runs the {@link SimpleDataContainerTest} against an {@link OffHeapDataContainer} and tests memory bounded eviction.
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+@Test(groups = "unit", testName = "container.OffHeapDataContainerTest")
+public class OffHeapDataContainerTest extends SimpleDataContainerTest {
+
+   @Override
+   protected DataContainer createContainer() {
+      OffHeapDataContainer dc = new OffHeapDataContainer(16);
+      dc.initialize(new TestObjectStreamMarshaller(), new InternalEntryFactoryImpl(), null, null, null);
+      return dc;
+   }
+
+   private OffHeapDataContainer createBoundedContainer(long maxMemory, EvictionStrategy strategy, final Set<Object> evicted) {
+      OffHeapDataContainer dc = new OffHeapDataContainer(1, maxMemory, strategy, EvictionThreadPolicy.DEFAULT);
+      EvictionManager evictionManager = new EvictionManagerStub(evicted);
+      PassivationManager passivator = mock(PassivationManager.class);
+      when(passivator.isEnabled()).thenReturn(false);
+      dc.initialize(new TestObjectStreamMarshaller(), new InternalEntryFactoryImpl(), evictionManager, passivator,
+                    mock(ActivationManager.class));
+      return dc;
+   }
+
+   @Override
+   public void testUpdatingLastUsed() throws Exception {
+      // entries are materialized on every read, so the last used stamp shows up on the entry returned by the next get
+      long idle = 600000;
+      dc.put("k", "v", null, -1, idle);
+      long oldTime = System.currentTimeMillis();
+      Thread.sleep(100); // for time calc granularity
+      InternalCacheEntry ice = dc.get("k");
+      assertEquals(transienttype(), ice.getClass());
+      assertTrue(ice.getLastUsed() > oldTime);
+      assertEquals(idle, ice.getMaxIdle());
+
+      oldTime = System.currentTimeMillis();
+      Thread.sleep(100); // for time calc granularity
+      assertTrue(dc.get("k").getLastUsed() > oldTime);
+      assertTrue(dc.peek("k").getLastUsed() > oldTime);
+   }
+
+   public void testOverwriteAndRemoveReclaimMemory() {
+      OffHeapDataContainer offHeap = (OffHeapDataContainer) dc;
+      byte[] value = new byte[1024];
+      for (int i = 0; i < 5000; i++) {
+         offHeap.put("key" + (i % 10), value, null, -1, -1);
+      }
+      assertEquals(10, offHeap.size());
+      // without reclamation 5000 values would need several slabs per segment
+      assertTrue(offHeap.getAllocatedMemory() <= 16L * 3 * OffHeapDataContainer.DEFAULT_SLAB_SIZE);
+
+      for (int i = 0; i < 10; i++) {
+         assertNotNull(offHeap.remove("key" + i));
+         assertNull(offHeap.get("key" + i));
+      }
+      assertEquals(0, offHeap.size());
+      assertFalse(offHeap.iterator().hasNext());
+   }
+
+   public void testManyEntries() {
+      for (int i = 0; i < 10000; i++) {
+         dc.put(i, "value" + i, null, -1, -1);
+      }
+      assertEquals(10000, dc.size());
+      for (int i = 0; i < 10000; i++) {
+         assertEquals("value" + i, dc.get(i).getValue());
+      }
+      for (int i = 0; i < 10000; i += 2) {
+         dc.remove(i);
+      }
+      assertEquals(5000, dc.size());
+      for (int i = 0; i < 10000; i++) {
+         assertEquals(i % 2 == 1, dc.containsKey(i));
+      }
+   }
+
+   public void testMemoryBoundedEviction() {
+      Set<Object> evicted = new HashSet<Object>();
+      long maxMemory = 64 * 1024;
+      OffHeapDataContainer bounded = createBoundedContainer(maxMemory, EvictionStrategy.FIFO, evicted);
+      byte[] value = new byte[100];
+      for (int i = 0; i < 2000; i++) {
+         bounded.put(i, value, null, -1, -1);
+         // eviction may overshoot the limit by the slab holding the new record
+         assertTrue(bounded.getAllocatedMemory() <= maxMemory + OffHeapDataContainer.MIN_SLAB_SIZE * 2);
+      }
+      assertFalse(evicted.isEmpty());
+      assertEquals(2000, bounded.size() + evicted.size());
+      // FIFO evicts the oldest entries first
+      assertTrue(evicted.contains(0));
+      assertNotNull(bounded.get(1999));
+      for (Object key : evicted) {
+         assertFalse(bounded.containsKey(key));
+      }
+   }
+
+   public void testSecondChanceForRecentlyReadEntries() {
+      Set<Object> evicted = new HashSet<Object>();
+      OffHeapDataContainer bounded = createBoundedContainer(64 * 1024, EvictionStrategy.LRU, evicted);
+      byte[] value = new byte[100];
+      bounded.put("hot", value, null, -1, -1);
+      for (int i = 0; i < 2000; i++) {
+         bounded.put(i, value, null, -1, -1);
+         assertNotNull(bounded.get("hot"));
+      }
+      assertFalse(evicted.isEmpty());
+      assertFalse(evicted.contains("hot"));
+      assertTrue(evicted.contains(0));
+   }
+
+   public void testEntryLargerThanLimitIsStored() {
+      Set<Object> evicted = new HashSet<Object>();
+      OffHeapDataContainer bounded = createBoundedContainer(16 * 1024, EvictionStrategy.LRU, evicted);
+      bounded.put("small", "v", null, -1, -1);
+      bounded.put("large", new byte[32 * 1024], null, -1, -1);
+      assertNotNull(bounded.get("large"));
+      assertTrue(evicted.contains("small"));
+   }
+
+   public void testRePutOfEvictedKeyIsAnUpdate() {
+      byte[] value = new byte[1000];
+      // find how many entries to add after "k" so that putting "k" again recycles the slab holding its old value
+      for (int fillers = 1; fillers < 100; fillers++) {
+         Set<Object> evicted = new HashSet<Object>();
+         OffHeapDataContainer bounded = new OffHeapDataContainer(1, 16 * 1024, EvictionStrategy.FIFO,
+                                                                 EvictionThreadPolicy.DEFAULT);
+         PassivationManager passivator = mock(PassivationManager.class);
+         when(passivator.isEnabled()).thenReturn(false);
+         ActivationManager activator = mock(ActivationManager.class);
+         bounded.initialize(new TestObjectStreamMarshaller(), new InternalEntryFactoryImpl(),
+                            new EvictionManagerStub(evicted), passivator, activator);
+         bounded.put("k", value, null, -1, -1);
+         for (int i = 0; i < fillers; i++) {
+            bounded.put(i, value, null, -1, -1);
+         }
+         if (!evicted.isEmpty()) {
+            break;
+         }
+         reset(activator);
+         bounded.put("k", value, null, -1, -1);
+         if (evicted.contains(0)) {
+            // the first filler shared the slab of the old value of "k", which was evicted by the put itself
+            assertFalse(evicted.contains("k"));
+            verify(activator, never()).activate("k");
+            assertNotNull(bounded.get("k"));
+            return;
+         }
+      }
+      fail("Putting an existing key never recycled the slab holding its previous value");
+   }
+
+   public void testClearReleasesMemory() {
+      OffHeapDataContainer offHeap = (OffHeapDataContainer) dc;
+      for (int i = 0; i < 1000; i++) {
+         offHeap.put(i, new byte[1024], null, -1, -1);
+      }
+      assertTrue(offHeap.getAllocatedMemory() > 0);
+      offHeap.clear();
+      assertEquals(0, offHeap.getAllocatedMemory());
+      assertEquals(0, offHeap.size());
+      offHeap.put("k", "v", null, -1, -1);
+      assertEquals("v", offHeap.get("k").getValue());
+   }
+
+   private static class EvictionManagerStub implements EvictionManager {
+      private final Set<Object> evicted;
+
+      EvictionManagerStub(Set<Object> evicted) {
+         this.evicted = evicted;
+      }
+
+      @Override
+      public void processEviction() {
+      }
+
+      @Override
+      public boolean isEnabled() {
+         return true;
+      }
+
+      @Override
+      public void onEntryEviction(Map<Object, InternalCacheEntry> evicted) {
+         this.evicted.addAll(evicted.keySet());
+      }
+   }
+}
@@ -0,0 +1,125 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+
+package org.infinispan.container;
+
+import org.infinispan.commons.hash.MurmurHash3;
+import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.distribution.TestAddress;
+import org.infinispan.distribution.ch.DefaultConsistentHash;
+import org.infinispan.remoting.transport.Address;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+/**
+ * Runs the {@link SimpleDataContainerTest} against a {@link SegmentedDataContainer} and tests the segment-scoped
+ * operations.
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+@Test(groups = "unit", testName = "container.SegmentedDataContainerTest")
+public class SegmentedDataContainerTest extends SimpleDataContainerTest {
+
+   private static final int NUM_SEGMENTS = 20;
+
+   @Override
+   protected DataContainer createContainer() {
+      SegmentedDataContainer dc = new SegmentedDataContainer(16, NUM_SEGMENTS, new MurmurHash3());
+      dc.initialize(null, new InternalEntryFactoryImpl(), null);
+      return dc;
+   }
+
+   public void testSegmentMatchesConsistentHash() {
+      SegmentAwareDataContainer sdc = (SegmentAwareDataContainer) dc;
+      DefaultConsistentHash ch = createConsistentHash();
+      assertEquals(ch.getNumSegments(), sdc.getNumSegments());
+      for (int i = 0; i < 1000; i++) {
+         Object key = "key" + i;
+         assertEquals(ch.getSegment(key), sdc.getSegment(key));
+      }
+   }
+
+   public void testSegmentScopedOperations() {
+      SegmentAwareDataContainer sdc = (SegmentAwareDataContainer) dc;
+      for (int i = 0; i < 100; i++) {
+         dc.put("key" + i, "value" + i, null, -1, -1);
+      }
+
+      int total = 0;
+      for (int segment = 0; segment < NUM_SEGMENTS; segment++) {
+         Collection<InternalCacheEntry> entries = sdc.segmentEntries(segment);
+         assertEquals(entries.size(), sdc.segmentSize(segment));
+         for (InternalCacheEntry ice : entries) {
+            assertEquals(segment, sdc.getSegment(ice.getKey()));
+         }
+         total += entries.size();
+      }
+      assertEquals(100, total);
+      assertEquals(100, dc.size());
+
+      int segment = sdc.getSegment("key0");
+      int segmentSize = sdc.segmentSize(segment);
+      Collection<InternalCacheEntry> removed = sdc.removeSegments(Collections.singleton(segment));
+      assertEquals(segmentSize, removed.size());
+      assertEquals(0, sdc.segmentSize(segment));
+      assertEquals(100 - segmentSize, dc.size());
+      assertNull(dc.get("key0"));
+      assertFalse(dc.containsKey("key0"));
+      for (InternalCacheEntry ice : removed) {
+         assertEquals(segment, sdc.getSegment(ice.getKey()));
+      }
+   }
+
+   public void testRemoveAllSegments() {
+      SegmentAwareDataContainer sdc = (SegmentAwareDataContainer) dc;
+      for (int i = 0; i < 50; i++) {
+         dc.put(i, "value", null, -1, -1);
+      }
+      Set<Integer> segments = new HashSet<Integer>();
+      for (int segment = 0; segment < NUM_SEGMENTS; segment++) {
+         segments.add(segment);
+      }
+      assertEquals(50, sdc.removeSegments(segments).size());
+      assertEquals(0, dc.size());
+      assertTrue(sdc.removeSegments(segments).isEmpty());
+   }
+
+   @SuppressWarnings("unchecked")
+   private DefaultConsistentHash createConsistentHash() {
+      Address address = new TestAddress(0);
+      List<Address> members = Collections.singletonList(address);
+      List<Address>[] segmentOwners = new List[NUM_SEGMENTS];
+      for (int i = 0; i < NUM_SEGMENTS; i++) {
+         segmentOwners[i] = new ArrayList<Address>(members);
+      }
+      return new DefaultConsistentHash(new MurmurHash3(), 1, NUM_SEGMENTS, members, segmentOwners);
+   }
+}
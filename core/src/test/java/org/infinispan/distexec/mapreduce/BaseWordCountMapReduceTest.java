@@ -30,6 +30,7 @@
 import java.util.Map.Entry;
 import java.util.StringTokenizer;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.infinispan.Cache;
 import org.infinispan.CacheException;
@@ -328,6 +329,51 @@ public Integer collate(Map<String, Integer> reducedResults) {
      assertWordCount(totalWords, 13); 
    }
 
+   public void testinvokeMapReduceOnAllKeysWithListener() throws Exception {
+      MapReduceTask<String,String,String,Integer> task = invokeMapReduce(null);
+      final Map<String, Integer> mapReduce = new HashMap<String, Integer>();
+      task.execute(new ReducedResultListener<String, Integer>() {
+
+         @Override
+         public boolean onResult(String key, Integer reducedValue) {
+            Integer previous = mapReduce.put(key, reducedValue);
+            assert previous == null : "key " + key + " delivered twice";
+            return true;
+         }
+      });
+      verifyResults(mapReduce);
+      assertWordCount(countWords(mapReduce), 56);
+   }
+
+   public void testinvokeMapReduceWithListenerAndOnePendingReducePart() throws Exception {
+      MapReduceTask<String,String,String,Integer> task = invokeMapReduce(null);
+      final Map<String, Integer> mapReduce = new HashMap<String, Integer>();
+      task.execute(new ReducedResultListener<String, Integer>() {
+
+         @Override
+         public boolean onResult(String key, Integer reducedValue) {
+            mapReduce.put(key, reducedValue);
+            return true;
+         }
+      }, 1);
+      verifyResults(mapReduce);
+      assertWordCount(countWords(mapReduce), 56);
+   }
+
+   public void testListenerStopsResultDelivery() throws Exception {
+      MapReduceTask<String,String,String,Integer> task = invokeMapReduce(null);
+      final AtomicInteger delivered = new AtomicInteger();
+      task.execute(new ReducedResultListener<String, Integer>() {
+
+         @Override
+         public boolean onResult(String key, Integer reducedValue) {
+            delivered.incrementAndGet();
+            return false;
+         }
+      });
+      AssertJUnit.assertEquals(1, delivered.get());
+   }
+
    @Test(expectedExceptions = CacheException.class)
    public void testCombinerForDistributedReductionWithException() throws Exception {
       MapReduceTask<String, String, String, Integer> task = invokeMapReduce(null);
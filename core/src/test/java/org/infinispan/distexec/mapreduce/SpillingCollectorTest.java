@@ -0,0 +1,126 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.infinispan.distexec.mapreduce;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.infinispan.marshall.StreamingMarshaller;
+import org.infinispan.test.SingleCacheManagerTest;
+import org.infinispan.test.TestingUtil;
+import org.infinispan.test.fwk.TestCacheManagerFactory;
+import org.testng.annotations.Test;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
+
+/**
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+@Test(groups = "functional", testName = "distexec.mapreduce.SpillingCollectorTest")
+public class SpillingCollectorTest extends SingleCacheManagerTest {
+
+   @Override
+   protected EmbeddedCacheManager createCacheManager() throws Exception {
+      EmbeddedCacheManager cm = TestCacheManagerFactory.createLocalCacheManager(false);
+      cache = cm.getCache();
+      return cm;
+   }
+
+   public void testSpilledValuesAreMergedPerKey() {
+      SpillingCollector<Object, Integer> collector = newCollector(7);
+      Map<Object, List<Integer>> expected = new HashMap<Object, List<Integer>>();
+      for (int i = 0; i < 200; i++) {
+         // few distinct hash codes, so that runs contain several keys with the same hash
+         Object key = i % 3 == 0 ? "key" + (i % 10) : new CollidingKey(i % 13);
+         collector.emit(key, i);
+         List<Integer> values = expected.get(key);
+         if (values == null) {
+            values = new ArrayList<Integer>();
+            expected.put(key, values);
+         }
+         values.add(i);
+      }
+      assertTrue(collector.hasSpilled());
+      assertCollected(expected, collector);
+      collector.dispose();
+      assertFalse(collector.hasSpilled());
+   }
+
+   public void testMergeFrom() {
+      SpillingCollector<Object, Integer> first = newCollector(5);
+      SpillingCollector<Object, Integer> second = newCollector(5);
+      Map<Object, List<Integer>> expected = new HashMap<Object, List<Integer>>();
+      for (int i = 0; i < 30; i++) {
+         Object key = new CollidingKey(i % 4);
+         (i % 2 == 0 ? first : second).emit(key, i);
+         if (!expected.containsKey(key)) expected.put(key, new ArrayList<Integer>());
+         expected.get(key).add(i);
+      }
+      first.mergeFrom(second);
+      assertFalse(second.hasSpilled());
+      assertCollected(expected, first);
+      first.dispose();
+   }
+
+   private SpillingCollector<Object, Integer> newCollector(int threshold) {
+      StreamingMarshaller marshaller = TestingUtil.extractCacheMarshaller(cache);
+      return new SpillingCollector<Object, Integer>(threshold, marshaller);
+   }
+
+   private void assertCollected(Map<Object, List<Integer>> expected, SpillingCollector<Object, Integer> collector) {
+      int keys = 0;
+      for (Iterator<Entry<Object, List<Integer>>> it = collector.iterator(); it.hasNext(); ) {
+         Entry<Object, List<Integer>> e = it.next();
+         List<Integer> values = new ArrayList<Integer>(e.getValue());
+         Collections.sort(values);
+         assertEquals(expected.get(e.getKey()), values);
+         keys++;
+      }
+      assertEquals(expected.size(), keys);
+   }
+
+   static class CollidingKey implements Serializable {
+      private static final long serialVersionUID = -3281431924851233215L;
+      private final int id;
+
+      CollidingKey(int id) {
+         this.id = id;
+      }
+
+      @Override
+      public boolean equals(Object o) {
+         return o instanceof CollidingKey && ((CollidingKey) o).id == id;
+      }
+
+      @Override
+      public int hashCode() {
+         return id % 2;
+      }
+   }
+}
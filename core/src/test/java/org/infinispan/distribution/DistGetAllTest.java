@@ -0,0 +1,117 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.infinispan.distribution;
+
+import org.infinispan.Cache;
+import org.infinispan.context.Flag;
+import org.testng.annotations.Test;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
+
+/**
+ * Tests {@link org.infinispan.AdvancedCache#getAll(java.util.Set)} on a
+ * distributed cache where the keys are spread over several owners.
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+@Test(groups = "functional", testName = "distribution.DistGetAllTest")
+public class DistGetAllTest extends BaseDistFunctionalTest {
+
+   public DistGetAllTest() {
+      sync = true;
+      tx = false;
+      l1CacheEnabled = true;
+   }
+
+   public void testGetAllFromEveryNode() {
+      Set<Object> keys = new HashSet<Object>();
+      int i = 0;
+      for (Cache<Object, String> c : caches) {
+         MagicKey key = new MagicKey("everyNode" + i++, c);
+         c.put(key, "value-" + key.name);
+         keys.add(key);
+      }
+      MagicKey missing = new MagicKey("everyNodeMissing", c1);
+      keys.add(missing);
+
+      for (Cache<Object, String> c : caches) {
+         Map<Object, String> result = c.getAdvancedCache().getAll(keys);
+         assertEquals(caches.size(), result.size());
+         assertFalse(result.containsKey(missing));
+         for (Map.Entry<Object, String> e : result.entrySet())
+            assertEquals("value-" + ((MagicKey) e.getKey()).name, e.getValue());
+      }
+   }
+
+   public void testRemotelyFetchedEntriesStoredInL1() {
+      MagicKey k1 = new MagicKey("l1-1", c1, c2);
+      MagicKey k2 = new MagicKey("l1-2", c2, c3);
+      c1.put(k1, "v1");
+      c2.put(k2, "v2");
+
+      Set<Object> keys = new HashSet<Object>();
+      keys.add(k1);
+      keys.add(k2);
+      Map<Object, String> result = c4.getAdvancedCache().getAll(keys);
+      assertEquals("v1", result.get(k1));
+      assertEquals("v2", result.get(k2));
+
+      if (l1CacheEnabled) {
+         assertIsInL1(c4, k1);
+         assertIsInL1(c4, k2);
+      } else {
+         assertIsNotInL1(c4, k1);
+         assertIsNotInL1(c4, k2);
+      }
+   }
+
+   public void testSkipRemoteLookup() {
+      MagicKey remote = new MagicKey("skip-remote", c1, c2);
+      MagicKey local = new MagicKey("skip-local", c3, c4);
+      c1.put(remote, "remote");
+      c1.put(local, "local");
+
+      Set<Object> keys = new HashSet<Object>();
+      keys.add(remote);
+      keys.add(local);
+      Map<Object, String> result = c3.getAdvancedCache()
+            .withFlags(Flag.SKIP_REMOTE_LOOKUP).getAll(keys);
+      assertEquals(1, result.size());
+      assertEquals("local", result.get(local));
+      assertIsNotInL1(c3, remote);
+   }
+
+   public void testGetAllAfterRemove() {
+      MagicKey k1 = new MagicKey("removed", c1, c2);
+      c1.put(k1, "v1");
+      c1.remove(k1);
+
+      Set<Object> keys = new HashSet<Object>();
+      keys.add(k1);
+      assertTrue(c3.getAdvancedCache().getAll(keys).isEmpty());
+   }
+
+}
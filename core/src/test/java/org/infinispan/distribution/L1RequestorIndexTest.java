@@ -0,0 +1,87 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.infinispan.distribution;
+
+import org.infinispan.remoting.transport.Address;
+import org.testng.annotations.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNull;
+
+/**
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+@Test(groups = "unit", testName = "distribution.L1RequestorIndexTest")
+public class L1RequestorIndexTest {
+
+   public void testRemoveReturnsAllRequestors() {
+      L1RequestorIndex index = new L1RequestorIndex();
+      Address a = new TestAddress(1), b = new TestAddress(2);
+      index.add("k", a);
+      index.add("k", b);
+      index.add("k", a);
+      index.add("other", b);
+
+      assertEquals(set(a, b), index.remove("k"));
+      assertNull(index.remove("k"));
+      assertEquals(set(b), index.remove("other"));
+   }
+
+   public void testManyMembers() {
+      L1RequestorIndex index = new L1RequestorIndex();
+      Set<Address> expected = new HashSet<Address>();
+      for (int i = 0; i < 150; i++) {
+         Address member = new TestAddress(i);
+         index.add("unrelated", member);
+         if (i % 7 == 0) {
+            index.add("k", member);
+            expected.add(member);
+         }
+      }
+      assertEquals(expected, index.remove("k"));
+      assertEquals(150, index.remove("unrelated").size());
+   }
+
+   public void testAging() {
+      L1RequestorIndex index = new L1RequestorIndex();
+      Address a = new TestAddress(1);
+      index.add("stale", a);
+      index.add("fresh", a);
+
+      index.age(2);
+      index.age(2);
+      index.add("fresh", a);
+      assertEquals(2, index.size());
+
+      index.age(2);
+      assertEquals(1, index.size());
+      assertNull(index.remove("stale"));
+      assertEquals(set(a), index.remove("fresh"));
+   }
+
+   private static Set<Address> set(Address... addresses) {
+      Set<Address> set = new HashSet<Address>();
+      for (Address a : addresses) set.add(a);
+      return set;
+   }
+}
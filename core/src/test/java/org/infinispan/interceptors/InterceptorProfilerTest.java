@@ -0,0 +1,66 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.infinispan.interceptors;
+
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.infinispan.test.SingleCacheManagerTest;
+import org.infinispan.test.TestingUtil;
+import org.infinispan.test.fwk.TestCacheManagerFactory;
+import org.testng.annotations.Test;
+
+/**
+ * Tests that the {@link InterceptorProfiler} only samples when enabled, and reports every interceptor a command
+ * passed through.
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+@Test(groups = "functional", testName = "interceptors.InterceptorProfilerTest")
+public class InterceptorProfilerTest extends SingleCacheManagerTest {
+
+   @Override
+   protected EmbeddedCacheManager createCacheManager() throws Exception {
+      return TestCacheManagerFactory.createLocalCacheManager(false);
+   }
+
+   public void testProfile() {
+      InterceptorProfiler profiler = TestingUtil.extractComponent(cache, InterceptorProfiler.class);
+      assert !profiler.isEnabled();
+      cache.put("k", "v");
+      assert !profiler.getProfile().contains("PutKeyValueCommand");
+
+      profiler.setSamplingInterval(1);
+      profiler.setEnabled(true);
+      try {
+         cache.put("k", "v2");
+         cache.get("k");
+      } finally {
+         profiler.setEnabled(false);
+      }
+
+      String profile = profiler.getProfile();
+      assert profile.contains("PutKeyValueCommand") : profile;
+      assert profile.contains("GetKeyValueCommand") : profile;
+      assert profile.contains(InvocationContextInterceptor.class.getSimpleName()) : profile;
+      assert profile.contains(CallInterceptor.class.getSimpleName()) : profile;
+
+      profiler.resetStatistics();
+      assert !profiler.getProfile().contains("PutKeyValueCommand");
+   }
+}
@@ -182,6 +182,24 @@ public void testRemoves() throws Exception {
       assertRemoveMisses(1);
    }
 
+   public void testLatencies() throws Exception {
+      cache.put("key", "value");
+      cache.get("key");
+      cache.get("key_ne");
+      cache.remove("key");
+      assert 1 == advanced.getStats().getStoreLatency().getCount();
+      assert 1 == advanced.getStats().getHitLatency().getCount();
+      assert 1 == advanced.getStats().getMissLatency().getCount();
+      assert 1 == advanced.getStats().getRemoveLatency().getCount();
+      long median = (Long) server.getAttribute(mgmtInterceptor, "StoreTimePercentile50");
+      long max = (Long) server.getAttribute(mgmtInterceptor, "StoreTimeMax");
+      assert median == max : "a single sample must be reported as both median and maximum";
+
+      resetStats();
+      assert 0 == advanced.getStats().getStoreLatency().getCount();
+      assertAttributeValue("StoreTimeMax", 0);
+   }
+
    private void assertAttributeValue(String attrName, float expectedValue) throws Exception {
       String receivedVal = server.getAttribute(mgmtInterceptor, attrName).toString();
       assert Float.parseFloat(receivedVal) == expectedValue : "expecting " + expectedValue + " for " + attrName + ", but received " + receivedVal;
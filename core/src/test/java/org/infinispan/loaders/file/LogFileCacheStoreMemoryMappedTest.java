@@ -0,0 +1,87 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.infinispan.loaders.file;
+
+import org.infinispan.test.fwk.TestInternalCacheEntryFactory;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+@Test(groups = "unit", testName = "loaders.file.LogFileCacheStoreMemoryMappedTest")
+public class LogFileCacheStoreMemoryMappedTest extends LogFileCacheStoreTest {
+
+   @Override
+   protected boolean isMemoryMappedReads() {
+      return true;
+   }
+
+   public void testLoadFromSealedAndCurrentFiles() throws Exception {
+      for (int i = 0; i < 200; i++) {
+         lfcs.store(TestInternalCacheEntryFactory.create("k" + i, "v" + i));
+      }
+      assertTrue(lfcs.getLogFileCount() > 1);
+      // both mapped and positional reads, twice to reuse the mappings
+      for (int round = 0; round < 2; round++) {
+         for (int i = 0; i < 200; i++) {
+            assertEquals("v" + i, lfcs.load("k" + i).getValue());
+         }
+      }
+      lfcs.remove("k0");
+      assertNull(lfcs.load("k0"));
+      assertEquals(199, lfcs.loadAll().size());
+   }
+
+   public void testLoadsWhileCompactionUnmapsFiles() throws Exception {
+      for (int i = 0; i < 100; i++) {
+         lfcs.store(TestInternalCacheEntryFactory.create("k" + i, "v" + i));
+      }
+      final AtomicBoolean done = new AtomicBoolean();
+      Future<Integer> reader = fork(new Callable<Integer>() {
+         @Override
+         public Integer call() throws Exception {
+            int loads = 0;
+            while (!done.get()) {
+               for (int i = 0; i < 100; i++) {
+                  assertEquals("v" + i, lfcs.load("k" + i).getValue());
+                  loads++;
+               }
+            }
+            return loads;
+         }
+      });
+      try {
+         for (int round = 0; round < 20; round++) {
+            // rewrite the same values so that the files the reader maps get compacted and unmapped
+            for (int i = 0; i < 100; i++) {
+               lfcs.store(TestInternalCacheEntryFactory.create("k" + i, "v" + i));
+            }
+            assertTrue(lfcs.compact());
+         }
+      } finally {
+         done.set(true);
+      }
+      assertTrue(reader.get() > 0);
+   }
+}
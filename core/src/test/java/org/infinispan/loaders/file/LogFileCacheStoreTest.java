@@ -0,0 +1,207 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.infinispan.loaders.file;
+
+import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.loaders.BaseCacheStoreTest;
+import org.infinispan.loaders.CacheLoaderException;
+import org.infinispan.loaders.CacheStore;
+import org.infinispan.test.TestingUtil;
+import org.infinispan.test.fwk.TestInternalCacheEntryFactory;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+@Test(groups = "unit", testName = "loaders.file.LogFileCacheStoreTest")
+public class LogFileCacheStoreTest extends BaseCacheStoreTest {
+
+   LogFileCacheStore lfcs;
+   String tmpDirectory;
+
+   @BeforeClass
+   protected void setUpTempDir() {
+      tmpDirectory = TestingUtil.tmpDirectory(this);
+   }
+
+   @AfterClass(alwaysRun = true)
+   protected void clearTempDir() {
+      TestingUtil.recursiveFileRemove(tmpDirectory);
+   }
+
+   @Override
+   protected CacheStore createCacheStore() throws CacheLoaderException {
+      clearTempDir();
+      lfcs = new LogFileCacheStore();
+      LogFileCacheStoreConfig cfg = new LogFileCacheStoreConfig()
+         .fetchPersistentState(true)
+         .fsyncMode(getFsyncMode())
+         .memoryMappedReads(isMemoryMappedReads())
+         .maxFileSize(4096) // roll over often so that compaction gets exercised
+         .location(tmpDirectory)
+         .purgeSynchronously(true); // for more accurate unit testing
+      lfcs.init(cfg, getCache(), getMarshaller());
+      lfcs.start();
+      return lfcs;
+   }
+
+   protected FileCacheStoreConfig.FsyncMode getFsyncMode() {
+      return FileCacheStoreConfig.FsyncMode.DEFAULT;
+   }
+
+   protected boolean isMemoryMappedReads() {
+      return false;
+   }
+
+   public void testIndexRebuiltOnRestart() throws Exception {
+      for (int i = 0; i < 100; i++) {
+         lfcs.store(TestInternalCacheEntryFactory.create("k" + i, "v" + i));
+      }
+      lfcs.remove("k3");
+      lfcs.store(TestInternalCacheEntryFactory.create("k4", "updated"));
+      lfcs.store(TestInternalCacheEntryFactory.create("k5", "v5", 1));
+      Thread.sleep(10);
+
+      lfcs.stop();
+      lfcs.start();
+
+      assertEquals(98, lfcs.loadAllKeys(null).size());
+      assertNull(lfcs.load("k3"));
+      assertNull(lfcs.load("k5"));
+      assertEquals("updated", lfcs.load("k4").getValue());
+      assertEquals("v99", lfcs.load("k99").getValue());
+   }
+
+   public void testCompactionReclaimsSpace() throws Exception {
+      for (int i = 0; i < 1000; i++) {
+         lfcs.store(TestInternalCacheEntryFactory.create("k" + (i % 10), "v" + i));
+      }
+      // around 20 files have been written, most of them garbage by now
+      assertTrue(lfcs.compact());
+      assertTrue("Too many log files left: " + lfcs.getLogFileCount(), lfcs.getLogFileCount() <= 3);
+      for (int i = 0; i < 10; i++) {
+         assertEquals("v" + (990 + i), lfcs.load("k" + i).getValue());
+      }
+
+      lfcs.stop();
+      lfcs.start();
+      assertEquals(10, lfcs.loadAllKeys(null).size());
+      for (int i = 0; i < 10; i++) {
+         assertEquals("v" + (990 + i), lfcs.load("k" + i).getValue());
+      }
+   }
+
+   public void testCompactionDoesNotResurrectRemovedEntries() throws Exception {
+      Map<String, String> expected = new HashMap<String, String>();
+      Random random = new Random(42);
+      for (int i = 0; i < 3000; i++) {
+         String key = "k" + random.nextInt(50);
+         if (random.nextInt(10) < 3) {
+            lfcs.remove(key);
+            expected.remove(key);
+         } else {
+            String value = "v" + i;
+            lfcs.store(TestInternalCacheEntryFactory.create(key, value));
+            expected.put(key, value);
+         }
+         if (i % 500 == 0) lfcs.compact();
+      }
+      lfcs.compact();
+
+      lfcs.stop();
+      lfcs.start();
+
+      assertEquals(expected.keySet(), lfcs.loadAllKeys(null));
+      for (Map.Entry<String, String> e : expected.entrySet()) {
+         InternalCacheEntry entry = lfcs.load(e.getKey());
+         assertEquals(e.getValue(), entry.getValue());
+      }
+   }
+
+   public void testTombstonesAreDroppedByCompaction() throws Exception {
+      // live entries keep the first files from ever being compacted
+      for (int i = 0; i < 50; i++) {
+         lfcs.store(TestInternalCacheEntryFactory.create("k" + i, "v" + i));
+      }
+      long maxSize = 0;
+      for (int round = 0; round < 50; round++) {
+         for (int i = 0; i < 100; i++) {
+            lfcs.store(TestInternalCacheEntryFactory.create("r" + round + "-" + i, "v" + i));
+         }
+         for (int i = 0; i < 100; i++) {
+            lfcs.remove("r" + round + "-" + i);
+         }
+         assertTrue(lfcs.compact());
+         if (round == 10) maxSize = 2 * lfcs.getLogSize();
+         if (round > 10) assertTrue("Log grew to " + lfcs.getLogSize(), lfcs.getLogSize() <= maxSize);
+      }
+
+      lfcs.stop();
+      lfcs.start();
+      assertEquals(50, lfcs.loadAllKeys(null).size());
+      assertNull(lfcs.load("r0-0"));
+      assertEquals("v49", lfcs.load("k49").getValue());
+   }
+
+   public void testIncompleteRecordIsTruncated() throws Exception {
+      lfcs.store(TestInternalCacheEntryFactory.create("k1", "v1"));
+      lfcs.store(TestInternalCacheEntryFactory.create("k2", "v2"));
+      lfcs.stop();
+
+      File[] logFiles = lfcs.getRoot().listFiles();
+      assertEquals(1, logFiles.length);
+      File logFile = logFiles[0];
+      long length = logFile.length();
+      // simulate a crash in the middle of an append
+      FileOutputStream out = new FileOutputStream(logFile, true);
+      try {
+         out.write(new byte[] {0, 0, 0, 5, 0, 0});
+      } finally {
+         out.close();
+      }
+
+      lfcs.start();
+      assertEquals(length, logFile.length());
+      assertEquals("v1", lfcs.load("k1").getValue());
+      assertEquals("v2", lfcs.load("k2").getValue());
+
+      lfcs.store(TestInternalCacheEntryFactory.create("k3", "v3"));
+      lfcs.stop();
+      lfcs.start();
+      assertEquals(3, lfcs.loadAllKeys(null).size());
+      assertEquals("v3", lfcs.load("k3").getValue());
+   }
+
+   public void testRemoveOfMissingKey() throws Exception {
+      assertFalse(lfcs.remove("missing"));
+      lfcs.store(TestInternalCacheEntryFactory.create("k1", "v1"));
+      assertTrue(lfcs.remove("k1"));
+      assertFalse(lfcs.remove("k1"));
+   }
+}
@@ -0,0 +1,226 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.infinispan.lock;
+
+import org.infinispan.test.AbstractInfinispanTest;
+import org.infinispan.util.concurrent.locks.containers.LockTableContainer;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNotNull;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertSame;
+import static org.testng.AssertJUnit.assertTrue;
+
+/**
+ * Tests the {@link LockTableContainer}.
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+@Test(groups = "functional", testName = "lock.LockTableContainerTest")
+public class LockTableContainerTest extends AbstractInfinispanTest {
+
+   private LockTableContainer lc;
+
+   @BeforeMethod
+   public void setUp() {
+      lc = new LockTableContainer(1);
+   }
+
+   public void testReentrantLocking() throws Exception {
+      Object owner = new Object();
+      assertNotNull(lc.acquireLock(owner, "k", 0, TimeUnit.MILLISECONDS));
+      assertNotNull(lc.acquireLock(owner, "k", 0, TimeUnit.MILLISECONDS));
+      assertTrue(lc.isLocked("k"));
+      assertTrue(lc.ownsLock("k", owner));
+      assertSame(owner, lc.getLock("k").getOwner());
+      assertEquals(1, lc.getNumLocksHeld());
+
+      lc.releaseLock(owner, "k");
+      assertTrue(lc.ownsLock("k", owner));
+      lc.releaseLock(owner, "k");
+      assertFalse(lc.isLocked("k"));
+      assertNull(lc.getLock("k"));
+      assertEquals(-1, lc.getLockId("k"));
+      assertEquals(0, lc.getNumLocksHeld());
+   }
+
+   public void testLockedByOtherOwner() throws Exception {
+      Object owner = new Object();
+      Object other = new Object();
+      lc.acquireLock(owner, "k", 0, TimeUnit.MILLISECONDS);
+      assertNull(lc.acquireLock(other, "k", 0, TimeUnit.MILLISECONDS));
+      assertNull(lc.acquireLock(other, "k", 50, TimeUnit.MILLISECONDS));
+      assertFalse(lc.ownsLock("k", other));
+
+      // a release by an owner not holding the lock is ignored
+      lc.releaseLock(other, "k");
+      assertTrue(lc.ownsLock("k", owner));
+
+      // other keys are not affected
+      assertNotNull(lc.acquireLock(other, "k2", 0, TimeUnit.MILLISECONDS));
+      assertTrue(lc.getLockId("k") != lc.getLockId("k2"));
+   }
+
+   public void testWaiterAcquiresReleasedLock() throws Exception {
+      final Object owner = new Object();
+      final Object other = new Object();
+      lc.acquireLock(owner, "k", 0, TimeUnit.MILLISECONDS);
+      final CountDownLatch waiting = new CountDownLatch(1);
+      Future<Boolean> acquired = fork(new Callable<Boolean>() {
+         @Override
+         public Boolean call() throws Exception {
+            waiting.countDown();
+            return lc.acquireLock(other, "k", 10, TimeUnit.SECONDS) != null;
+         }
+      });
+      waiting.await();
+      Thread.sleep(100);
+      assertFalse(acquired.isDone());
+      lc.releaseLock(owner, "k");
+      assertTrue(acquired.get(10, TimeUnit.SECONDS));
+      assertTrue(lc.ownsLock("k", other));
+   }
+
+   public void testTableGrowsWhenProbeWindowIsFull() throws Exception {
+      int initialSize = lc.size();
+      List<Object> owners = new ArrayList<Object>();
+      List<CollidingKey> keys = new ArrayList<CollidingKey>();
+      for (int i = 0; i < 50; i++) {
+         Object owner = new Object();
+         CollidingKey key = new CollidingKey(i);
+         assertNotNull(lc.acquireLock(owner, key, 0, TimeUnit.MILLISECONDS));
+         owners.add(owner);
+         keys.add(key);
+      }
+      assertTrue(lc.size() > initialSize);
+      assertEquals(50, lc.getNumLocksHeld());
+      for (int i = 0; i < 50; i++) {
+         assertTrue(lc.ownsLock(keys.get(i), owners.get(i)));
+         assertNull(lc.acquireLock(new Object(), keys.get(i), 0, TimeUnit.MILLISECONDS));
+      }
+      for (int i = 0; i < 50; i++) {
+         lc.releaseLock(owners.get(i), keys.get(i));
+      }
+      assertEquals(0, lc.getNumLocksHeld());
+      // the added tables are dropped once empty
+      assertEquals(initialSize, lc.size());
+   }
+
+   public void testNumberOfTablesIsCapped() throws Exception {
+      int capacity = LockTableContainer.MAX_TABLES * LockTableContainer.PROBE_WINDOW;
+      List<Object> owners = new ArrayList<Object>();
+      for (int i = 0; i < capacity; i++) {
+         Object owner = new Object();
+         assertNotNull(lc.acquireLock(owner, new CollidingKey(i), 0, TimeUnit.MILLISECONDS));
+         owners.add(owner);
+      }
+      int size = lc.size();
+      // all the windows of colliding keys are taken, and no table can be added
+      assertNull(lc.acquireLock(new Object(), new CollidingKey(capacity), 0, TimeUnit.MILLISECONDS));
+      assertNull(lc.acquireLock(new Object(), new CollidingKey(capacity), 50, TimeUnit.MILLISECONDS));
+      assertEquals(size, lc.size());
+      assertEquals(capacity, lc.getNumLocksHeld());
+
+      final Object waiter = new Object();
+      Future<Boolean> acquired = fork(new Callable<Boolean>() {
+         @Override
+         public Boolean call() throws Exception {
+            return lc.acquireLock(waiter, new CollidingKey(-1), 10, TimeUnit.SECONDS) != null;
+         }
+      });
+      Thread.sleep(50);
+      assertFalse(acquired.isDone());
+      lc.releaseLock(owners.get(0), new CollidingKey(0));
+      assertTrue(acquired.get(10, TimeUnit.SECONDS));
+      assertTrue(lc.ownsLock(new CollidingKey(-1), waiter));
+
+      lc.releaseLock(waiter, new CollidingKey(-1));
+      for (int i = 1; i < capacity; i++) {
+         lc.releaseLock(owners.get(i), new CollidingKey(i));
+      }
+      assertEquals(0, lc.getNumLocksHeld());
+      assertEquals(new LockTableContainer(1).size(), lc.size());
+   }
+
+   public void testMutualExclusion() throws Exception {
+      final int threads = 4;
+      final int iterations = 2000;
+      final int[] counters = new int[3];
+      List<Future<Void>> futures = new ArrayList<Future<Void>>();
+      for (int t = 0; t < threads; t++) {
+         futures.add(fork(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+               Object owner = new Object();
+               for (int i = 0; i < iterations; i++) {
+                  // colliding keys, so claims for different keys race in the same window
+                  CollidingKey key = new CollidingKey(i % counters.length);
+                  if (lc.acquireLock(owner, key, 10, TimeUnit.SECONDS) == null)
+                     throw new IllegalStateException("Could not lock " + key);
+                  try {
+                     counters[key.id]++;
+                  } finally {
+                     lc.releaseLock(owner, key);
+                  }
+               }
+               return null;
+            }
+         }));
+      }
+      for (Future<Void> f : futures) f.get(60, TimeUnit.SECONDS);
+      int total = 0;
+      for (int c : counters) total += c;
+      assertEquals(threads * iterations, total);
+      assertEquals(0, lc.getNumLocksHeld());
+   }
+
+   static final class CollidingKey {
+      final int id;
+
+      CollidingKey(int id) {
+         this.id = id;
+      }
+
+      @Override
+      public boolean equals(Object o) {
+         return o instanceof CollidingKey && ((CollidingKey) o).id == id;
+      }
+
+      @Override
+      public int hashCode() {
+         return 42;
+      }
+
+      @Override
+      public String toString() {
+         return "CollidingKey{" + id + '}';
+      }
+   }
+}
@@ -0,0 +1,87 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.infinispan.lock;
+
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.infinispan.test.SingleCacheManagerTest;
+import org.infinispan.test.TestingUtil;
+import org.infinispan.test.fwk.TestCacheManagerFactory;
+import org.infinispan.transaction.LockingMode;
+import org.infinispan.util.concurrent.TimeoutException;
+import org.infinispan.util.concurrent.locks.LockManager;
+import org.infinispan.util.concurrent.locks.containers.LockTableContainer;
+import org.testng.annotations.Test;
+
+import javax.transaction.Transaction;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
+
+/**
+ * Tests a transactional cache configured to lock its keys in a {@link LockTableContainer}.
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+@Test(groups = "functional", testName = "lock.LockTableTest")
+public class LockTableTest extends SingleCacheManagerTest {
+
+   @Override
+   protected EmbeddedCacheManager createCacheManager() throws Exception {
+      ConfigurationBuilder builder = TestCacheManagerFactory.getDefaultCacheConfiguration(true);
+      builder.transaction().lockingMode(LockingMode.PESSIMISTIC)
+            .locking().useLockTable(true).lockAcquisitionTimeout(100);
+      return TestCacheManagerFactory.createCacheManager(builder);
+   }
+
+   public void testLockTableIsUsed() {
+      assertTrue(TestingUtil.extractField(lockManager(), "lockContainer") instanceof LockTableContainer);
+   }
+
+   public void testLocksHeldUntilCommit() throws Exception {
+      LockManager lm = lockManager();
+      tm().begin();
+      cache.put("k1", "v1");
+      cache.getAdvancedCache().lock("k2");
+      assertTrue(lm.isLocked("k1"));
+      assertTrue(lm.isLocked("k2"));
+      assertEquals(2, lm.getNumberOfLocksHeld());
+      Object owner = lm.getOwner("k1");
+      assertTrue(lm.ownsLock("k2", owner));
+      Transaction tx = tm().suspend();
+
+      tm().begin();
+      try {
+         cache.put("k1", "v2");
+         assert false : "k1 should still be locked";
+      } catch (TimeoutException expected) {
+      } finally {
+         tm().rollback();
+      }
+
+      tm().resume(tx);
+      tm().commit();
+      assertFalse(lm.isLocked("k1"));
+      assertFalse(lm.isLocked("k2"));
+      assertEquals(0, lm.getNumberOfLocksHeld());
+      assertEquals("v1", cache.get("k1"));
+   }
+}
@@ -26,14 +26,21 @@
 import org.infinispan.manager.EmbeddedCacheManager;
 import org.infinispan.test.fwk.TestCacheManagerFactory;
 import org.infinispan.notifications.cachelistener.annotation.CacheEntryCreated;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryModified;
 import org.infinispan.notifications.cachelistener.event.CacheEntryCreatedEvent;
+import org.infinispan.notifications.cachelistener.event.CacheEntryEvent;
+import org.infinispan.notifications.cachelistener.event.CacheEntryModifiedEvent;
 import org.infinispan.test.AbstractInfinispanTest;
 import org.infinispan.test.TestingUtil;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 @Test(groups = "functional", testName = "notifications.AsyncNotificationTest")
 public class AsyncNotificationTest extends AbstractInfinispanTest {
@@ -65,6 +72,21 @@ public void testAsyncNotification() throws InterruptedException {
       assert asyncListener.caller != Thread.currentThread();
    }
 
+   public void testBatchedNotificationsAreOrdered() throws InterruptedException {
+      int updates = 1000;
+      BatchingListener listener = new BatchingListener(new CountDownLatch(updates));
+      c.addListener(listener);
+      for (int i = 0; i < updates; i++) {
+         c.put("k", Integer.toString(i));
+      }
+      assert listener.latch.await(10, TimeUnit.SECONDS);
+      assert listener.values.size() == updates;
+      for (int i = 0; i < updates; i++) {
+         assert listener.values.get(i).equals(Integer.toString(i)) : "Out of order at " + i + ": " + listener.values;
+      }
+      assert listener.caller != Thread.currentThread();
+   }
+
    public abstract static class AbstractListener {
       Thread caller;
       CountDownLatch latch;
@@ -104,4 +126,22 @@ public void handle(CacheEntryCreatedEvent e) {
       }
    }
 
+   @Listener(sync = false, batching = true, observation = Listener.Observation.POST)
+   public static class BatchingListener extends AbstractListener {
+      final List<Object> values = Collections.synchronizedList(new ArrayList<Object>());
+
+      public BatchingListener(CountDownLatch latch) {
+         super(latch);
+      }
+
+      @CacheEntryCreated
+      @CacheEntryModified
+      public void handle(CacheEntryEvent e) {
+         if (e instanceof CacheEntryModifiedEvent && ((CacheEntryModifiedEvent) e).isCreated()) return;
+         caller = Thread.currentThread();
+         values.add(e instanceof CacheEntryModifiedEvent ? ((CacheEntryModifiedEvent) e).getValue() : "0");
+         latch.countDown();
+      }
+   }
+
 }
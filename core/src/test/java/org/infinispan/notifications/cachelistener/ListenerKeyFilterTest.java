@@ -0,0 +1,140 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.infinispan.notifications.cachelistener;
+
+import org.infinispan.container.entries.ImmortalCacheEntry;
+import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.infinispan.notifications.KeyFilter;
+import org.infinispan.notifications.Listener;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntriesEvicted;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryCreated;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryModified;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryRemoved;
+import org.infinispan.notifications.cachelistener.event.CacheEntriesEvictedEvent;
+import org.infinispan.notifications.cachelistener.event.CacheEntryEvent;
+import org.infinispan.test.SingleCacheManagerTest;
+import org.infinispan.test.TestingUtil;
+import org.infinispan.test.fwk.CleanupAfterMethod;
+import org.infinispan.test.fwk.TestCacheManagerFactory;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+/**
+ * Tests listeners registered with a {@link KeyFilter}.
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+@Test(groups = "functional", testName = "notifications.cachelistener.ListenerKeyFilterTest")
+@CleanupAfterMethod
+public class ListenerKeyFilterTest extends SingleCacheManagerTest {
+
+   @Override
+   protected EmbeddedCacheManager createCacheManager() throws Exception {
+      return TestCacheManagerFactory.createLocalCacheManager(false);
+   }
+
+   public void testFilteredListener() {
+      KeyListener filtered = new KeyListener();
+      KeyListener unfiltered = new KeyListener();
+      cache.getAdvancedCache().addListener(filtered, new KeyFilter() {
+         @Override
+         public boolean accept(Object key) {
+            return "watched".equals(key);
+         }
+      });
+      cache.addListener(unfiltered);
+
+      cache.put("ignored", "v");
+      cache.put("watched", "v");
+      cache.put("watched", "v2");
+      cache.remove("ignored");
+      cache.remove("watched");
+
+      // created, modified on creation, modified and removed
+      assertEquals(4, filtered.events.size());
+      for (CacheEntryEvent<?, ?> e : filtered.events) assertEquals("watched", e.getKey());
+      assertEquals(7, unfiltered.events.size());
+      assert cache.getListeners().contains(filtered);
+
+      cache.removeListener(filtered);
+      cache.put("watched", "v3");
+      assertEquals(4, filtered.events.size());
+   }
+
+   public void testFilteredEvictionListener() {
+      EvictionListener filtered = new EvictionListener();
+      EvictionListener rejecting = new EvictionListener();
+      EvictionListener unfiltered = new EvictionListener();
+      cache.getAdvancedCache().addListener(filtered, new KeyFilter() {
+         @Override
+         public boolean accept(Object key) {
+            return "watched".equals(key);
+         }
+      });
+      cache.getAdvancedCache().addListener(rejecting, new KeyFilter() {
+         @Override
+         public boolean accept(Object key) {
+            return false;
+         }
+      });
+      cache.addListener(unfiltered);
+
+      CacheNotifier notifier = TestingUtil.extractComponent(cache, CacheNotifier.class);
+      List<InternalCacheEntry> evicted = Arrays.<InternalCacheEntry>asList(
+            new ImmortalCacheEntry("ignored", "v1"), new ImmortalCacheEntry("watched", "v2"));
+      notifier.notifyCacheEntriesEvicted(evicted, null, null);
+
+      assertEquals(1, filtered.events.size());
+      assertEquals(Collections.singletonMap("watched", "v2"), filtered.events.get(0));
+      assertEquals(0, rejecting.events.size());
+      assertEquals(1, unfiltered.events.size());
+      assertEquals(2, unfiltered.events.get(0).size());
+   }
+
+   @Listener(observation = Listener.Observation.POST)
+   public static class EvictionListener {
+      final List<Map<Object, Object>> events = new ArrayList<Map<Object, Object>>();
+
+      @CacheEntriesEvicted
+      public void evicted(CacheEntriesEvictedEvent<Object, Object> e) {
+         events.add(e.getEntries());
+      }
+   }
+
+   @Listener(observation = Listener.Observation.POST)
+   public static class KeyListener {
+      final List<CacheEntryEvent<?, ?>> events = new ArrayList<CacheEntryEvent<?, ?>>();
+
+      @CacheEntryCreated
+      @CacheEntryModified
+      @CacheEntryRemoved
+      public void record(CacheEntryEvent<?, ?> e) {
+         events.add(e);
+      }
+   }
+}
@@ -0,0 +1,99 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.infinispan.notifications.cachelistener;
+
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.infinispan.notifications.Listener;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryCreated;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryModified;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryRemoved;
+import org.infinispan.notifications.cachelistener.event.CacheEntryEvent;
+import org.infinispan.test.SingleCacheManagerTest;
+import org.infinispan.test.fwk.CleanupAfterMethod;
+import org.infinispan.test.fwk.TestCacheManagerFactory;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+/**
+ * Tests that listeners only receive the notification phases they observe.
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+@Test(groups = "functional", testName = "notifications.cachelistener.ListenerObservationTest")
+@CleanupAfterMethod
+public class ListenerObservationTest extends SingleCacheManagerTest {
+
+   @Override
+   protected EmbeddedCacheManager createCacheManager() throws Exception {
+      return TestCacheManagerFactory.createLocalCacheManager(false);
+   }
+
+   public void testPostOnly() {
+      PostListener post = new PostListener();
+      cache.addListener(post);
+      cache.put("k", "v");
+      cache.put("k", "v2");
+      cache.remove("k");
+      // created, modified on creation, modified and removed
+      assertEquals(4, post.events.size());
+      for (CacheEntryEvent<?, ?> e : post.events) assert !e.isPre() : "Unexpected pre event " + e;
+   }
+
+   public void testMixedObservations() {
+      PreListener pre = new PreListener();
+      PostListener post = new PostListener();
+      BothListener both = new BothListener();
+      cache.addListener(pre);
+      cache.addListener(post);
+      cache.addListener(both);
+      cache.put("k", "v");
+      assertEquals(2, pre.events.size());
+      for (CacheEntryEvent<?, ?> e : pre.events) assert e.isPre() : "Unexpected post event " + e;
+      assertEquals(2, post.events.size());
+      assertEquals(4, both.events.size());
+   }
+
+   public static abstract class RecordingListener {
+      final List<CacheEntryEvent<?, ?>> events = new ArrayList<CacheEntryEvent<?, ?>>();
+
+      @CacheEntryCreated
+      @CacheEntryModified
+      @CacheEntryRemoved
+      public void record(CacheEntryEvent<?, ?> e) {
+         events.add(e);
+      }
+   }
+
+   @Listener(observation = Listener.Observation.PRE)
+   public static class PreListener extends RecordingListener {
+   }
+
+   @Listener(observation = Listener.Observation.POST)
+   public static class PostListener extends RecordingListener {
+   }
+
+   @Listener
+   public static class BothListener extends RecordingListener {
+   }
+}
@@ -0,0 +1,131 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.infinispan.profiling;
+
+import org.infinispan.test.AbstractInfinispanTest;
+import org.infinispan.util.concurrent.locks.containers.KeyLockContainer;
+import org.infinispan.util.concurrent.locks.containers.LockTableContainer;
+import org.infinispan.util.concurrent.locks.containers.OwnableReentrantPerEntryLockContainer;
+import org.infinispan.util.concurrent.locks.containers.OwnableReentrantStripedLockContainer;
+import org.infinispan.util.concurrent.locks.containers.ReentrantPerEntryLockContainer;
+import org.infinispan.util.concurrent.locks.containers.ReentrantStripedLockContainer;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the throughput of all {@link KeyLockContainer} implementations.
+ * <pre>
+ * Test description:
+ *    {@link #THREAD_COUNT} threads repeatedly lock and unlock a key drawn from a pool of {@link #KEY_POOL_SIZE}
+ * keys, for {@link #BENCHMARK_DURATION} milliseconds per container after a warm up of the same length. Keys are
+ * drawn as keyIndex = KEY_POOL_SIZE * random^skew, so a skew of 1 accesses all keys uniformly while higher skews
+ * concentrate the accesses on the first keys of the pool. The number of lock/unlock pairs per second is printed
+ * for each container and skew.
+ * </pre>
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+@Test(groups = "profiling", enabled = false, testName = "profiling.LockContainerPerformanceTest")
+public class LockContainerPerformanceTest extends AbstractInfinispanTest {
+
+   public static final int KEY_POOL_SIZE = 10000;
+
+   public static final int THREAD_COUNT = 8;
+
+   public static final int CONCURRENCY_LEVEL = 32;
+
+   public static final long BENCHMARK_DURATION = 5000;
+
+   public static final double[] SKEWS = {1, 4, 16, 64};
+
+   public void testLockContainerThroughput() throws Exception {
+      for (double skew : SKEWS) {
+         int[][] keySequences = keySequences(skew);
+         for (KeyLockContainer<?> lc : containers()) {
+            run(lc, keySequences);
+            long ops = run(lc, keySequences);
+            System.out.printf("skew=%s %s: %,d lock/unlock per second%n", skew, lc.getClass().getSimpleName(),
+                  ops * 1000 / BENCHMARK_DURATION);
+         }
+      }
+   }
+
+   private List<KeyLockContainer<?>> containers() {
+      List<KeyLockContainer<?>> containers = new ArrayList<KeyLockContainer<?>>();
+      containers.add(new ReentrantPerEntryLockContainer(CONCURRENCY_LEVEL));
+      containers.add(new OwnableReentrantPerEntryLockContainer(CONCURRENCY_LEVEL));
+      containers.add(new ReentrantStripedLockContainer(CONCURRENCY_LEVEL));
+      containers.add(new OwnableReentrantStripedLockContainer(CONCURRENCY_LEVEL));
+      containers.add(new LockTableContainer(CONCURRENCY_LEVEL));
+      return containers;
+   }
+
+   private int[][] keySequences(double skew) {
+      // drawing keys up front keeps the Random out of the measured loop
+      Random random = new Random(skew > 1 ? (long) skew : 1);
+      int[][] sequences = new int[THREAD_COUNT][1 << 16];
+      for (int[] sequence : sequences) {
+         for (int i = 0; i < sequence.length; i++) {
+            sequence[i] = (int) (KEY_POOL_SIZE * Math.pow(random.nextDouble(), skew));
+         }
+      }
+      return sequences;
+   }
+
+   private long run(final KeyLockContainer<?> lc, int[][] keySequences) throws Exception {
+      final String[] keys = new String[KEY_POOL_SIZE];
+      for (int i = 0; i < keys.length; i++) keys[i] = "key" + i;
+      final CountDownLatch start = new CountDownLatch(1);
+      final long end = System.currentTimeMillis() + BENCHMARK_DURATION;
+      List<Future<Long>> futures = new ArrayList<Future<Long>>();
+      for (final int[] sequence : keySequences) {
+         futures.add(fork(new Callable<Long>() {
+            @Override
+            public Long call() throws Exception {
+               // the thread based containers need the current thread as owner
+               Object owner = Thread.currentThread();
+               start.await();
+               long ops = 0;
+               int mask = sequence.length - 1;
+               while (System.currentTimeMillis() < end) {
+                  for (int i = 0; i < 1000; i++) {
+                     String key = keys[sequence[(int) (ops++ & mask)]];
+                     if (lc.acquireLock(owner, key, 10, TimeUnit.SECONDS) == null)
+                        throw new IllegalStateException("Could not lock " + key);
+                     lc.releaseLock(owner, key);
+                  }
+               }
+               return ops;
+            }
+         }));
+      }
+      start.countDown();
+      long total = 0;
+      for (Future<Long> f : futures) total += f.get();
+      return total;
+   }
+}
@@ -0,0 +1,145 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.infinispan.replication;
+
+import org.infinispan.Cache;
+import org.infinispan.configuration.cache.CacheMode;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.remoting.CoalescingReplicationQueue;
+import org.infinispan.remoting.ReplicationQueue;
+import org.infinispan.test.MultipleCacheManagersTest;
+import org.infinispan.test.TestingUtil;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests {@link CoalescingReplicationQueue}.
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+@Test(groups = "functional", testName = "replication.CoalescingReplQueueTest")
+public class CoalescingReplQueueTest extends MultipleCacheManagersTest {
+
+   private static final String BOUNDED = "bounded";
+
+   @Override
+   protected void createCacheManagers() throws Throwable {
+      ConfigurationBuilder queued = getDefaultClusteredCacheConfig(CacheMode.REPL_ASYNC, false);
+      queued.clustering().async().useReplQueue(true).replQueue(new CoalescingReplicationQueue())
+            .replQueueInterval(100000).replQueueMaxElements(100);
+      ConfigurationBuilder direct = getDefaultClusteredCacheConfig(CacheMode.REPL_ASYNC, false);
+      addClusterEnabledCacheManager(queued);
+      addClusterEnabledCacheManager(direct);
+
+      ConfigurationBuilder bounded = getDefaultClusteredCacheConfig(CacheMode.REPL_ASYNC, false);
+      bounded.clustering().async().useReplQueue(true).replQueue(new CoalescingReplicationQueue())
+            .replQueueInterval(100000).replQueueMaxElements(100).replQueueMaxBytes(1000);
+      manager(0).defineConfiguration(BOUNDED, bounded.build());
+      manager(1).defineConfiguration(BOUNDED, direct.build());
+      waitForClusterToForm();
+      waitForClusterToForm(BOUNDED);
+   }
+
+   public void testWritesToSameKeyAreCoalesced() {
+      CoalescingReplicationQueue queue = replQueue(cache(0));
+      for (int i = 0; i < 5; i++) {
+         cache(0).put("k", "v" + i);
+      }
+      cache(0).put("other", "v");
+      assertEquals(queue.getElementsCount(), 2);
+      assertNull(cache(1).get("k"));
+
+      queue.flush();
+      assertEquals(queue.getElementsCount(), 0);
+      assertEquals(queue.getEstimatedBytes(), 0);
+      assertReplicated("k", "v4");
+      assertReplicated("other", "v");
+   }
+
+   public void testRemoveReplacesQueuedPut() {
+      CoalescingReplicationQueue queue = replQueue(cache(0));
+      cache(0).put("removed", "v");
+      queue.flush();
+      assertReplicated("removed", "v");
+
+      cache(0).put("removed", "v2");
+      cache(0).remove("removed");
+      assertEquals(queue.getElementsCount(), 1);
+      queue.flush();
+      assertReplicated("removed", null);
+   }
+
+   public void testConditionalWritesAreNotCoalesced() {
+      CoalescingReplicationQueue queue = replQueue(cache(0));
+      cache(0).put("cond", "v1");
+      cache(0).replace("cond", "v1", "v2");
+      cache(0).put("cond", "v3");
+      assertEquals(queue.getElementsCount(), 3);
+      queue.flush();
+      assertReplicated("cond", "v3");
+   }
+
+   public void testWritesAreNotCoalescedAcrossBarriers() {
+      CoalescingReplicationQueue queue = replQueue(cache(0));
+      cache(0).put("barrier", "v1");
+      cache(0).clear();
+      cache(0).put("barrier", "v2");
+      cache(0).put("barrier", "v3");
+      assertEquals(queue.getElementsCount(), 3);
+      queue.flush();
+      assertReplicated("barrier", "v3");
+   }
+
+   public void testFlushOnMaxBytes() {
+      Cache<Object, Object> bounded = cache(0, BOUNDED);
+      CoalescingReplicationQueue queue = replQueue(bounded);
+      bounded.put("a", new byte[400]);
+      bounded.put("a", new byte[600]);
+      assertEquals(queue.getElementsCount(), 1);
+      assertTrue(queue.getEstimatedBytes() >= 600);
+      bounded.put("b", new byte[600]);
+      assertEquals(queue.getElementsCount(), 0);
+      assertEquals(queue.getEstimatedBytes(), 0);
+      eventually(new Condition() {
+         @Override
+         public boolean isSatisfied() throws Exception {
+            byte[] a = (byte[]) cache(1, BOUNDED).get("a");
+            return a != null && a.length == 600 && cache(1, BOUNDED).get("b") != null;
+         }
+      });
+   }
+
+   private CoalescingReplicationQueue replQueue(Cache<?, ?> cache) {
+      return (CoalescingReplicationQueue) TestingUtil.extractComponent(cache, ReplicationQueue.class);
+   }
+
+   private void assertReplicated(final Object key, final Object value) {
+      eventually(new Condition() {
+         @Override
+         public boolean isSatisfied() throws Exception {
+            Object replicated = cache(1).get(key);
+            return value == null ? replicated == null : value.equals(replicated);
+         }
+      });
+   }
+}
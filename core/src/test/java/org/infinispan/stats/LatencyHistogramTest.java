@@ -0,0 +1,75 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.infinispan.stats;
+
+import org.testng.annotations.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+/**
+ * Tests the bucketing and percentile computation of {@link LatencyHistogram}.
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+@Test(groups = "unit", testName = "stats.LatencyHistogramTest")
+public class LatencyHistogramTest {
+
+   public void testBucketsAreContiguous() {
+      assertEquals(0, LatencyHistogram.bucketIndex(0));
+      for (int i = 1; i < LatencyHistogram.BUCKETS; i++) {
+         long lowest = LatencyHistogram.highestValueInBucket(i - 1) + 1;
+         assertEquals(i, LatencyHistogram.bucketIndex(lowest));
+         assertEquals(i, LatencyHistogram.bucketIndex(LatencyHistogram.highestValueInBucket(i)));
+      }
+      assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucketIndex(Long.MAX_VALUE));
+   }
+
+   public void testPercentiles() {
+      LatencyHistogram histogram = new LatencyHistogram();
+      for (int i = 1; i <= 1000; i++) {
+         histogram.record(TimeUnit.MICROSECONDS.toNanos(i));
+      }
+      LatencySnapshot snapshot = histogram.snapshot();
+      assertEquals(1000, snapshot.getCount());
+      assertEquals(500, snapshot.getMean(TimeUnit.MICROSECONDS));
+      assertEquals(1000, snapshot.getMax(TimeUnit.MICROSECONDS));
+      assertWithinPrecision(500, snapshot.getPercentile(50, TimeUnit.MICROSECONDS));
+      assertWithinPrecision(990, snapshot.getPercentile(99, TimeUnit.MICROSECONDS));
+      assertEquals(1000, snapshot.getPercentile(99.9, TimeUnit.MICROSECONDS));
+      assertEquals(1000, snapshot.getPercentile(100, TimeUnit.MICROSECONDS));
+   }
+
+   public void testReset() {
+      LatencyHistogram histogram = new LatencyHistogram();
+      histogram.record(42);
+      histogram.reset();
+      LatencySnapshot snapshot = histogram.snapshot();
+      assertEquals(0, snapshot.getCount());
+      assertEquals(0, snapshot.getMax(TimeUnit.NANOSECONDS));
+      assertEquals(0, snapshot.getPercentile(50, TimeUnit.NANOSECONDS));
+   }
+
+   private void assertWithinPrecision(long expected, long actual) {
+      assert actual >= expected && actual <= expected + expected / LatencyHistogram.SUB_BUCKETS
+            : "Expected " + actual + " to be within the precision of " + expected;
+   }
+}
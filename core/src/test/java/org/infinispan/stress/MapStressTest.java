@@ -114,6 +114,9 @@ public Object[][] readWriteRatioParams() {
       return new Object[][]{
             new Object[]{CAPACITY, 3 * CAPACITY, 32, 100, 9},
             new Object[]{CAPACITY, 3 * CAPACITY, 32, 10, 9},
+            new Object[]{CAPACITY, 3 * CAPACITY, 32, 1, 9},
+            new Object[]{CAPACITY, 3 * CAPACITY, 32, 8, 9},
+            new Object[]{CAPACITY, 3 * CAPACITY, 32, 32, 9},
       };
    }
 
@@ -122,6 +125,9 @@ public Object[][] writeOnMissParams() {
       return new Object[][]{
             new Object[]{CAPACITY, 3 * CAPACITY, 32, 100},
             new Object[]{CAPACITY, 3 * CAPACITY, 32, 10},
+            new Object[]{CAPACITY, 3 * CAPACITY, 32, 1},
+            new Object[]{CAPACITY, 3 * CAPACITY, 32, 8},
+            new Object[]{CAPACITY, 3 * CAPACITY, 32, 32},
       };
    }
 
@@ -129,6 +135,7 @@ private Map<String, Map<String, Integer>> createMaps(int capacity, int numKeys,
       Map<String, Map<String, Integer>> maps = new TreeMap<String, Map<String, Integer>>();
       maps.put("BCHM:LRU", new BoundedConcurrentHashMap<String, Integer>(capacity, concurrency, BoundedConcurrentHashMap.Eviction.LRU));
       maps.put("BCHM:LIRS", new BoundedConcurrentHashMap<String, Integer>(capacity, concurrency, BoundedConcurrentHashMap.Eviction.LIRS));
+      maps.put("BCHM:TINY_LFU", new BoundedConcurrentHashMap<String, Integer>(capacity, concurrency, BoundedConcurrentHashMap.Eviction.TINY_LFU));
       // CHM doesn't have eviction, so we size it to the total number of keys to avoid resizing
       maps.put("CHM", new ConcurrentHashMap<String, Integer>(numKeys, MAP_LOAD_FACTOR, concurrency));
       maps.put("SLHM", synchronizedLinkedHashMap(capacity, MAP_LOAD_FACTOR));
@@ -157,7 +164,7 @@ private void mapTestReadWriteRemove(String name, Map<String, Integer> map, int n
       // real test
       TotalStats perf = runMapTestReadWriteRemove(map, readerThreads, writerThreads, removerThreads, RUNNING_TIME);
 
-      System.out.printf("Container %-12s  ", name);
+      System.out.printf("Container %-14s  ", name);
       System.out.printf("Ops/s %10.2f  ", perf.getTotalOpsPerSec());
       System.out.printf("Gets/s %10.2f  ", perf.getOpsPerSec("GET"));
       System.out.printf("Puts/s %10.2f  ", perf.getOpsPerSec("PUT"));
@@ -220,7 +227,7 @@ private void mapTestMixedReadWrite(String name, Map<String, Integer> map, int nu
       // real test
       TotalStats perf = runMapTestMixedReadWrite(map, threads, readToWriteRatio, RUNNING_TIME);
 
-      System.out.printf("Container %-12s  ", name);
+      System.out.printf("Container %-14s  ", name);
       System.out.printf("Ops/s %10.2f  ", perf.getTotalOpsPerSec());
       System.out.printf("Gets/s %10.2f  ", perf.getTotalOpsPerSec() * readToWriteRatio / (readToWriteRatio + 1));
       System.out.printf("Puts/s %10.2f  ", perf.getTotalOpsPerSec() * 1 / (readToWriteRatio + 1));
@@ -273,7 +280,7 @@ private void mapTestWriteOnMiss(String name, Map<String, Integer> map, int numKe
       // real test
       TotalStats perf = runMapTestWriteOnMiss(map, threads, RUNNING_TIME);
 
-      System.out.printf("Container %-12s  ", name);
+      System.out.printf("Container %-14s  ", name);
       System.out.printf("Ops/s %10.2f  ", perf.getTotalOpsPerSec());
       System.out.printf("HitRatio %10.2f  ", perf.getTotalHitRatio() * 100);
       System.out.printf("Size %10d  ", map.size());
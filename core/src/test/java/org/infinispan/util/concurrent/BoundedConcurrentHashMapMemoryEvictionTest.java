@@ -0,0 +1,173 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+
+package org.infinispan.util.concurrent;
+
+import org.infinispan.eviction.EntrySizeCalculator;
+import org.infinispan.util.concurrent.BoundedConcurrentHashMap.Eviction;
+import org.infinispan.util.concurrent.BoundedConcurrentHashMap.EvictionListener;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.Map;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests memory-bounded eviction in {@link BoundedConcurrentHashMap}.
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+@Test(groups = "unit", testName = "util.concurrent.BoundedConcurrentHashMapMemoryEvictionTest")
+public class BoundedConcurrentHashMapMemoryEvictionTest {
+
+   private static final EntrySizeCalculator<Integer, byte[]> VALUE_LENGTH = new EntrySizeCalculator<Integer, byte[]>() {
+      @Override
+      public long getEntrySize(Integer key, byte[] value) {
+         return value.length;
+      }
+   };
+
+   @DataProvider(name = "strategies")
+   public Object[][] strategies() {
+      return new Object[][] { { Eviction.LRU }, { Eviction.LIRS }, { Eviction.TINY_LFU } };
+   }
+
+   @Test(dataProvider = "strategies")
+   public void testMemoryIsBounded(Eviction eviction) {
+      CountingListener listener = new CountingListener();
+      BoundedConcurrentHashMap<Integer, byte[]> map = createMap(1000, eviction, listener);
+      for (int i = 0; i < 500; i++) {
+         map.put(i, new byte[10]);
+      }
+      assertTrue(weight(map) <= 1000, "Weight " + weight(map) + " exceeds the limit");
+      assertTrue(map.size() > 0);
+      assertEquals(map.size() + listener.evicted, 500);
+   }
+
+   @Test(dataProvider = "strategies")
+   public void testHeavyEntryEvictsSeveralEntries(Eviction eviction) {
+      CountingListener listener = new CountingListener();
+      BoundedConcurrentHashMap<Integer, byte[]> map = createMap(1000, eviction, listener);
+      for (int i = 0; i < 10; i++) {
+         map.put(i, new byte[100]);
+      }
+      assertEquals(listener.evicted, 0);
+      map.put(10, new byte[500]);
+      assertTrue(listener.evicted >= 5, "Only " + listener.evicted + " entries evicted");
+      assertTrue(weight(map) <= 1000, "Weight " + weight(map) + " exceeds the limit");
+   }
+
+   @Test(dataProvider = "strategies")
+   public void testUpdateReweighsEntry(Eviction eviction) {
+      CountingListener listener = new CountingListener();
+      BoundedConcurrentHashMap<Integer, byte[]> map = createMap(1000, eviction, listener);
+      for (int i = 0; i < 10; i++) {
+         map.put(i, new byte[50]);
+      }
+      map.put(0, new byte[10]);
+      // 450 + 10 + 540 fits exactly if the update was accounted for
+      map.put(10, new byte[540]);
+      assertEquals(listener.evicted, 0);
+      assertEquals(map.size(), 11);
+
+      map.replace(1, new byte[100]);
+      map.put(11, new byte[1]);
+      assertTrue(listener.evicted > 0);
+      assertTrue(weight(map) <= 1000, "Weight " + weight(map) + " exceeds the limit");
+   }
+
+   @Test(dataProvider = "strategies")
+   public void testRemoveReleasesMemory(Eviction eviction) {
+      CountingListener listener = new CountingListener();
+      BoundedConcurrentHashMap<Integer, byte[]> map = createMap(1000, eviction, listener);
+      for (int i = 0; i < 10; i++) {
+         map.put(i, new byte[100]);
+      }
+      for (int i = 0; i < 5; i++) {
+         map.remove(i);
+      }
+      for (int i = 10; i < 15; i++) {
+         map.put(i, new byte[100]);
+      }
+      assertEquals(listener.evicted, 0);
+      assertEquals(map.size(), 10);
+   }
+
+   @Test(dataProvider = "strategies")
+   public void testTableGrowsBeyondInitialCapacity(Eviction eviction) {
+      CountingListener listener = new CountingListener();
+      BoundedConcurrentHashMap<Integer, byte[]> map = createMap(100000, eviction, listener);
+      for (int i = 0; i < 10000; i++) {
+         map.put(i, new byte[1]);
+      }
+      assertEquals(listener.evicted, 0);
+      assertEquals(map.size(), 10000);
+      for (int i = 0; i < 10000; i++) {
+         assertTrue(map.containsKey(i), "Missing key " + i);
+      }
+   }
+
+   @Test(dataProvider = "strategies")
+   public void testOversizedEntryIsKept(Eviction eviction) {
+      CountingListener listener = new CountingListener();
+      BoundedConcurrentHashMap<Integer, byte[]> map = createMap(100, eviction, listener);
+      map.put(0, new byte[10]);
+      map.put(1, new byte[1000]);
+      assertTrue(map.containsKey(1));
+      assertFalse(map.containsKey(0));
+   }
+
+   private BoundedConcurrentHashMap<Integer, byte[]> createMap(long maxMemory, Eviction eviction,
+         CountingListener listener) {
+      return new BoundedConcurrentHashMap<Integer, byte[]>(maxMemory, 1, eviction, listener, VALUE_LENGTH);
+   }
+
+   private long weight(Map<Integer, byte[]> map) {
+      long weight = 0;
+      for (byte[] value : map.values()) {
+         weight += value.length;
+      }
+      return weight;
+   }
+
+   private static class CountingListener implements EvictionListener<Integer, byte[]> {
+      int evicted;
+
+      @Override
+      public void onEntryEviction(Map<Integer, byte[]> evicted) {
+         this.evicted += evicted.size();
+      }
+
+      @Override
+      public void onEntryChosenForEviction(byte[] internalCacheEntry) {
+      }
+
+      @Override
+      public void onEntryActivated(Object key) {
+      }
+
+      @Override
+      public void onEntryRemoved(Object key) {
+      }
+   }
+}
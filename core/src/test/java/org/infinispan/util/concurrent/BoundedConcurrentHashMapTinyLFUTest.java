@@ -0,0 +1,165 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+
+package org.infinispan.util.concurrent;
+
+import org.infinispan.util.concurrent.BoundedConcurrentHashMap.Eviction;
+import org.infinispan.util.concurrent.BoundedConcurrentHashMap.FrequencySketch;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests the {@link Eviction#TINY_LFU} policy of {@link BoundedConcurrentHashMap}.
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+@Test(groups = "unit", testName = "util.concurrent.BoundedConcurrentHashMapTinyLFUTest")
+public class BoundedConcurrentHashMapTinyLFUTest {
+
+   public void testSizeIsBounded() {
+      BoundedConcurrentHashMap<Integer, Integer> map = createMap(100, 1);
+      for (int i = 0; i < 1000; i++) {
+         map.put(i, i);
+      }
+      assertEquals(map.size(), 100);
+      assertTrue(map.containsKey(999), "The most recent entry must never be evicted");
+   }
+
+   public void testFrequentlyReadEntriesSurviveScan() {
+      BoundedConcurrentHashMap<Integer, Integer> map = createMap(100, 1);
+      for (int i = 0; i < 50; i++) {
+         map.put(i, i);
+      }
+      for (int round = 0; round < 20; round++) {
+         for (int i = 0; i < 50; i++) {
+            map.get(i);
+         }
+      }
+      // a scan of entries which are never read again
+      for (int i = 1000; i < 2000; i++) {
+         map.put(i, i);
+      }
+      int survivors = 0;
+      for (int i = 0; i < 50; i++) {
+         if (map.containsKey(i)) {
+            survivors++;
+         }
+      }
+      assertTrue(survivors >= 45, "Only " + survivors + " frequently read entries survived the scan");
+      assertTrue(map.size() <= 100);
+   }
+
+   public void testRemove() {
+      BoundedConcurrentHashMap<Integer, Integer> map = createMap(10, 1);
+      for (int i = 0; i < 10; i++) {
+         map.put(i, i);
+      }
+      for (int i = 0; i < 10; i += 2) {
+         assertEquals(map.remove(i), Integer.valueOf(i));
+      }
+      assertEquals(map.size(), 5);
+      for (int i = 10; i < 15; i++) {
+         map.put(i, i);
+      }
+      assertEquals(map.size(), 10);
+      assertNull(map.get(0));
+      map.clear();
+      assertEquals(map.size(), 0);
+      for (int i = 0; i < 20; i++) {
+         map.put(i, i);
+      }
+      assertEquals(map.size(), 10);
+   }
+
+   public void testConcurrentAccess() throws Exception {
+      final BoundedConcurrentHashMap<Integer, Integer> map = createMap(256, 4);
+      ExecutorService executor = Executors.newFixedThreadPool(8);
+      try {
+         List<Future<Void>> futures = new ArrayList<Future<Void>>();
+         for (int t = 0; t < 8; t++) {
+            final int seed = t;
+            futures.add(executor.submit(new Callable<Void>() {
+               @Override
+               public Void call() throws Exception {
+                  Random random = new Random(seed);
+                  for (int i = 0; i < 100000; i++) {
+                     int key = random.nextInt(1000);
+                     int op = random.nextInt(10);
+                     if (op < 7) {
+                        map.get(key);
+                     } else if (op < 9) {
+                        map.put(key, key);
+                     } else {
+                        map.remove(key);
+                     }
+                  }
+                  return null;
+               }
+            }));
+         }
+         for (Future<Void> future : futures) {
+            future.get();
+         }
+      } finally {
+         executor.shutdownNow();
+      }
+      assertTrue(map.size() <= 256, "Size " + map.size() + " exceeds the capacity");
+      int entries = 0;
+      for (Integer key : map.keySet()) {
+         assertEquals(map.get(key), key);
+         entries++;
+      }
+      assertEquals(entries, map.size());
+   }
+
+   public void testFrequencySketch() {
+      FrequencySketch sketch = new FrequencySketch(64);
+      for (int i = 0; i < 10; i++) {
+         sketch.increment(42);
+      }
+      sketch.increment(43);
+      assertTrue(sketch.frequency(42) >= 10);
+      assertTrue(sketch.frequency(43) >= 1);
+      for (int i = 0; i < 10; i++) {
+         sketch.increment(42);
+      }
+      assertEquals(sketch.frequency(42), 15);
+      // enough distinct increments to age all counters
+      for (int i = 0; i < 10 * 64; i++) {
+         sketch.increment(1000 + i);
+      }
+      assertTrue(sketch.frequency(42) < 15, "Frequencies should have been halved");
+   }
+
+   private BoundedConcurrentHashMap<Integer, Integer> createMap(int capacity, int concurrencyLevel) {
+      return new BoundedConcurrentHashMap<Integer, Integer>(capacity, concurrencyLevel, Eviction.TINY_LFU);
+   }
+}
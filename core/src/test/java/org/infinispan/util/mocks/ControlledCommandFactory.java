@@ -28,6 +28,7 @@
 import org.infinispan.commands.control.LockControlCommand;
 import org.infinispan.commands.read.DistributedExecuteCommand;
 import org.infinispan.commands.read.EntrySetCommand;
+import org.infinispan.commands.read.GetAllCommand;
 import org.infinispan.commands.read.GetCacheEntryCommand;
 import org.infinispan.commands.read.GetKeyValueCommand;
 import org.infinispan.commands.read.KeySetCommand;
@@ -35,6 +36,7 @@
 import org.infinispan.commands.read.ReduceCommand;
 import org.infinispan.commands.read.SizeCommand;
 import org.infinispan.commands.read.ValuesCommand;
+import org.infinispan.commands.remote.ClusteredGetAllCommand;
 import org.infinispan.commands.remote.ClusteredGetCommand;
 import org.infinispan.commands.remote.MultipleRpcCommand;
 import org.infinispan.commands.remote.SingleRpcCommand;
@@ -190,6 +192,11 @@ public GetCacheEntryCommand buildGetCacheEntryCommand(Object key, Set<Flag> flag
       return actual.buildGetCacheEntryCommand(key, flags);
    }
 
+   @Override
+   public GetAllCommand buildGetAllCommand(Collection<?> keys, Set<Flag> flags, boolean returnEntries) {
+      return actual.buildGetAllCommand(keys, flags, returnEntries);
+   }
+
    @Override
    public KeySetCommand buildKeySetCommand() {
       return actual.buildKeySetCommand();
@@ -260,6 +267,11 @@ public ClusteredGetCommand buildClusteredGetCommand(Object key, Set<Flag> flags,
       return actual.buildClusteredGetCommand(key, flags, acquireRemoteLock, gtx);
    }
 
+   @Override
+   public ClusteredGetAllCommand buildClusteredGetAllCommand(Collection<Object> keys, Set<Flag> flags) {
+      return actual.buildClusteredGetAllCommand(keys, flags);
+   }
+
    @Override
    public LockControlCommand buildLockControlCommand(Collection<Object> keys, Set<Flag> flags, GlobalTransaction gtx) {
       return actual.buildLockControlCommand(keys, flags, gtx);
@@ -21,6 +21,7 @@
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -185,14 +186,33 @@ public Map<K, V> getAll(Set<? extends K> keys) {
          return InfinispanCollections.emptyMap();
       }
 
-      /**
-       * TODO: Just an idea here to consider down the line: if keys.size() is big (TBD...), each of
-       * this get calls could maybe be swapped by getAsync() in order to paralelise the retrieval of
-       * entries. It'd be interesting to do a small performance test to see after which number of
-       * elements doing it in paralel becomes more efficient than sequential :)
-       */
-      Map<K, V> result = new HashMap<K, V>(keys.size());
+      // Keys locked by an entry processor must be read one by one under
+      // the processor lock, the rest are retrieved in a single invocation
+      Set<K> lockedKeys = null;
       for (K key : keys) {
+         if (lockRequired(key)) {
+            if (lockedKeys == null)
+               lockedKeys = new HashSet<K>();
+            lockedKeys.add(key);
+         }
+      }
+
+      if (lockedKeys == null) {
+         Map<K, V> result = cache.getAll(keys);
+         for (Map.Entry<K, V> entry : result.entrySet())
+            updateTTLForAccessed(cache,
+                  new JCacheEntry<K, V>(entry.getKey(), entry.getValue()));
+
+         return result;
+      }
+
+      Map<K, V> result = new HashMap<K, V>(keys.size());
+      Set<K> unlockedKeys = new HashSet<K>(keys);
+      unlockedKeys.removeAll(lockedKeys);
+      if (!unlockedKeys.isEmpty())
+         result.putAll(getAll(unlockedKeys));
+
+      for (K key : lockedKeys) {
          V value = get(key);
          if (value != null) {
             result.put(key, value);
@@ -39,7 +39,7 @@
  * @author Galder Zamarreño
  * @since 5.3
  */
-@Listener
+@Listener(observation = Listener.Observation.POST)
 public class JCacheListenerAdapter<K, V> {
 
    private static final Log log =
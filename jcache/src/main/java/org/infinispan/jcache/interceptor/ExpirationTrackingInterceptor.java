@@ -23,6 +23,7 @@
 
 package org.infinispan.jcache.interceptor;
 
+import org.infinispan.commands.read.GetAllCommand;
 import org.infinispan.commands.read.GetKeyValueCommand;
 import org.infinispan.container.DataContainer;
 import org.infinispan.container.entries.InternalCacheEntry;
@@ -65,12 +66,23 @@ public ExpirationTrackingInterceptor(DataContainer container,
    @Override
    public Object visitGetKeyValueCommand
          (InvocationContext ctx, GetKeyValueCommand command) throws Throwable {
-      Object key = command.getKey();
+      notifyIfExpired(command.getKey());
+      return super.visitGetKeyValueCommand(ctx, command);
+   }
+
+   @Override
+   public Object visitGetAllCommand
+         (InvocationContext ctx, GetAllCommand command) throws Throwable {
+      for (Object key : command.getKeys())
+         notifyIfExpired(key);
+
+      return super.visitGetAllCommand(ctx, command);
+   }
+
+   private void notifyIfExpired(Object key) {
       InternalCacheEntry entry = container.peek(key);
       if (entry != null && entry.canExpire() && entry.isExpired())
          notifier.notifyEntryExpired(cache, key, entry.getValue());
-
-      return super.visitGetKeyValueCommand(ctx, command);
    }
 
    // TODO: Implement any other visitX methods?
@@ -60,6 +60,9 @@ abstract class AbstractProtocolDecoder[K, V <: CacheValue](transport: NettyTrans
    protected var key: K = null.asInstanceOf[K]
    protected var rawValue: Array[Byte] = null.asInstanceOf[Array[Byte]]
    protected var cache: Cache[K, V] = null
+   // Version generated for a conditional write that was not executed, it was never handed out so the next write reuses it
+   private var unusedVersion = 0L
+   private var unusedVersionCache: Cache[K, V] = null
 
    override def decode(ctx: ChannelHandlerContext, ch: Channel, buffer: ChannelBuffer, state: DecoderState): AnyRef = {
       val ch = ctx.getChannel
@@ -173,7 +176,7 @@ abstract class AbstractProtocolDecoder[K, V <: CacheValue](transport: NettyTrans
             if (isTrace) trace("Write response %s", response)
             response match {
                // We only expect Lists of ChannelBuffer instances, so don't worry about type erasure
-               case l: Array[ChannelBuffer] => l.foreach(ch.write(_))
+               case l: Array[ChannelBuffer] => ch.write(ChannelBuffers.wrappedBuffer(l: _*))
                case a: Array[Byte] => ch.write(wrappedBuffer(a))
                case cs: CharSequence => ch.write(ChannelBuffers.copiedBuffer(cs, CharsetUtil.UTF_8))
                case _ => ch.write(response)
@@ -195,7 +198,7 @@ abstract class AbstractProtocolDecoder[K, V <: CacheValue](transport: NettyTrans
    }
 
    private def put: AnyRef = {
-      val v = createValue(generateVersion(cache))
+      val v = createValue(nextVersion)
       // Get an optimised cache in case we can make the operation more efficient
       val prev = (params.lifespan, params.maxIdle) match {
          case (EXPIRATION_DEFAULT, EXPIRATION_DEFAULT) => getOptimizedCache(cache).put(key, v)
@@ -211,64 +214,89 @@ abstract class AbstractProtocolDecoder[K, V <: CacheValue](transport: NettyTrans
    protected def getOptimizedCache(c: Cache[K, V]): Cache[K, V] = c
 
    private def putIfAbsent: AnyRef = {
-      var prev = cache.get(key)
-      if (prev == null) { // Generate new version only if key not present
-         val v = createValue(generateVersion(cache))
-         prev = (params.lifespan, params.maxIdle) match {
-            case (EXPIRATION_DEFAULT, EXPIRATION_DEFAULT) => getOptimizedCache(cache).putIfAbsent(key, v)
-            case (_, EXPIRATION_DEFAULT) => getOptimizedCache(cache).putIfAbsent(key, v, toMillis(params.lifespan), DefaultTimeUnit)
-            case (_, _) => getOptimizedCache(cache).putIfAbsent(key, v,
-                  toMillis(params.lifespan), DefaultTimeUnit,
-                  toMillis(params.maxIdle), DefaultTimeUnit)
-         }
+      // A single conditional write, its return value tells whether the key was present, so it must not be ignored
+      val v = createValue(nextVersion)
+      val prev = (params.lifespan, params.maxIdle) match {
+         case (EXPIRATION_DEFAULT, EXPIRATION_DEFAULT) => cache.putIfAbsent(key, v)
+         case (_, EXPIRATION_DEFAULT) => cache.putIfAbsent(key, v, toMillis(params.lifespan), DefaultTimeUnit)
+         case (_, _) => cache.putIfAbsent(key, v,
+               toMillis(params.lifespan), DefaultTimeUnit,
+               toMillis(params.maxIdle), DefaultTimeUnit)
       }
-      if (prev == null)
+      if (prev == null) {
          createSuccessResponse(prev)
-      else
+      } else {
+         versionUnused(v)
          createNotExecutedResponse(prev)
+      }
    }
 
    private def replace: AnyRef = {
-      var prev = cache.get(key)
-      if (prev != null) { // Generate new version only if key present
-         val v = createValue(generateVersion(cache))
-         prev = (params.lifespan, params.maxIdle) match {
-            case (EXPIRATION_DEFAULT, EXPIRATION_DEFAULT) => cache.replace(key, v)
-            case (_, EXPIRATION_DEFAULT) => cache.replace(key, v, toMillis(params.lifespan), DefaultTimeUnit)
-            case (_, _) => cache.replace(key, v,
-                  toMillis(params.lifespan), DefaultTimeUnit,
-                  toMillis(params.maxIdle), DefaultTimeUnit)
-         }
+      val v = createValue(nextVersion)
+      val prev = (params.lifespan, params.maxIdle) match {
+         case (EXPIRATION_DEFAULT, EXPIRATION_DEFAULT) => cache.replace(key, v)
+         case (_, EXPIRATION_DEFAULT) => cache.replace(key, v, toMillis(params.lifespan), DefaultTimeUnit)
+         case (_, _) => cache.replace(key, v,
+               toMillis(params.lifespan), DefaultTimeUnit,
+               toMillis(params.maxIdle), DefaultTimeUnit)
       }
-      if (prev != null)
+      if (prev != null) {
          createSuccessResponse(prev)
-      else
+      } else {
+         versionUnused(v)
          createNotExecutedResponse(prev)
+      }
    }
 
    private def replaceIfUnmodified: AnyRef = {
-      val prev = cache.get(key)
-      if (prev != null) {
-         if (prev.version == params.streamVersion) {
-            // Generate new version only if key present and version has not changed, otherwise it's wasteful
-            val v = createValue(generateVersion(cache))
-            val replaced = (params.lifespan, params.maxIdle) match {
-               case (EXPIRATION_DEFAULT, EXPIRATION_DEFAULT) => cache.replace(key, prev, v)
-               case (_, EXPIRATION_DEFAULT) => cache.replace(key, prev, v, toMillis(params.lifespan), DefaultTimeUnit)
-               case (_, _) => cache.replace(key, prev, v,
-                     toMillis(params.lifespan), DefaultTimeUnit,
-                     toMillis(params.maxIdle), DefaultTimeUnit)
-            }
-            if (replaced)
-               createSuccessResponse(prev)
-            else
+      if (isPreviousValueRequired) {
+         // The previous value has to be sent back, so read it and then replace it only if it is still the same
+         val prev = cache.get(key)
+         if (prev != null) {
+            if (prev.version == params.streamVersion) {
+               // Generate new version only if key present and version has not changed, otherwise it's wasteful
+               val v = createValue(nextVersion)
+               if (replaceIfMatches(prev, v)) {
+                  createSuccessResponse(prev)
+               } else {
+                  versionUnused(v)
+                  createNotExecutedResponse(prev)
+               }
+            } else {
                createNotExecutedResponse(prev)
+            }
+         } else createNotExistResponse
+      } else {
+         // Compare the version and replace in a single invocation, reading the value only if that failed
+         val v = createValue(nextVersion)
+         if (replaceIfMatches(new VersionMatcher(params.streamVersion), v)) {
+            createSuccessResponse(null.asInstanceOf[V])
          } else {
-            createNotExecutedResponse(prev)
+            versionUnused(v)
+            val prev = cache.get(key)
+            if (prev != null) createNotExecutedResponse(prev) else createNotExistResponse
          }
-      } else createNotExistResponse
+      }
+   }
+
+   private def replaceIfMatches(expected: AnyRef, v: V): Boolean = {
+      // The expected value can be a version matcher rather than a V
+      val c = cache.asInstanceOf[Cache[K, AnyRef]]
+      (params.lifespan, params.maxIdle) match {
+         case (EXPIRATION_DEFAULT, EXPIRATION_DEFAULT) => c.replace(key, expected, v)
+         case (_, EXPIRATION_DEFAULT) => c.replace(key, expected, v, toMillis(params.lifespan), DefaultTimeUnit)
+         case (_, _) => c.replace(key, expected, v,
+               toMillis(params.lifespan), DefaultTimeUnit,
+               toMillis(params.maxIdle), DefaultTimeUnit)
+      }
    }
 
+   /**
+    * Whether the response to the current request has to carry the previous value, in which case conditional
+    * operations cannot be executed in a single invocation.
+    */
+   protected def isPreviousValueRequired: Boolean = false
+
    private def remove: AnyRef = {
       val prev = cache.remove(key)
       if (prev != null)
@@ -351,6 +379,24 @@ abstract class AbstractProtocolDecoder[K, V <: CacheValue](transport: NettyTrans
 
    protected def createServerException(e: Exception, b: ChannelBuffer): (Exception, Boolean)
 
+   /**
+    * The version for a value about to be written to the current cache, reusing the one generated for the last
+    * conditional write on this connection if that write was not executed.
+    */
+   private def nextVersion: Long = {
+      if (unusedVersionCache eq cache) {
+         unusedVersionCache = null
+         unusedVersion
+      } else {
+         generateVersion(cache)
+      }
+   }
+
+   private def versionUnused(v: V) {
+      unusedVersion = v.version
+      unusedVersionCache = cache
+   }
+
    protected def generateVersion(cache: Cache[K, V]): Long = {
       val rpcManager = cache.getAdvancedCache.getRpcManager
       versionGenerator.newVersion(rpcManager != null)
@@ -0,0 +1,44 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+
+package org.infinispan.server.core
+
+import org.infinispan.eviction.DefaultEntrySizeCalculator
+import org.infinispan.eviction.DefaultEntrySizeCalculator._
+
+/**
+ * An [[org.infinispan.eviction.EntrySizeCalculator]] which also computes the exact size of the
+ * [[org.infinispan.server.core.CacheValue]] instances stored by the protocol servers, so that
+ * caches exposed through them can be bounded by memory with
+ * `eviction().maxMemory(...).sizeCalculator(new CacheValueSizeCalculator)`.
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+class CacheValueSizeCalculator extends DefaultEntrySizeCalculator {
+
+   override protected def getObjectSize(o: AnyRef): Long = {
+      o match {
+         // reference to the data array and the version
+         case v: CacheValue => align(OBJECT_HEADER + REFERENCE + 8) + byteArraySize(v.data.length)
+         case _ => super.getObjectSize(o)
+      }
+   }
+
+}
@@ -38,5 +38,6 @@ object ExternalizerIds {
    val TOPOLOGY_ADDRESS = 1102
    val TOPOLOGY_VIEW = 1103
    val SERVER_ADDRESS = 1104
+   val SERVER_VERSION_MATCHER = 1105
 
 }
\ No newline at end of file
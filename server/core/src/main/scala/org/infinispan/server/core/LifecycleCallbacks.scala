@@ -47,9 +47,11 @@ class LifecycleCallbacks extends AbstractModuleLifecycle {
    override def cacheStarting(cr: ComponentRegistry, cfg: Configuration, cacheName: String) =
       cfg.storeAsBinary().enabled(false)
 
-   private[core] def addExternalizer(globalCfg : GlobalConfiguration) =
-      globalCfg.serialization().advancedExternalizers().put(
-         SERVER_CACHE_VALUE, new CacheValue.Externalizer)
+   private[core] def addExternalizer(globalCfg : GlobalConfiguration) {
+      val externalizers = globalCfg.serialization().advancedExternalizers()
+      externalizers.put(SERVER_CACHE_VALUE, new CacheValue.Externalizer)
+      externalizers.put(SERVER_VERSION_MATCHER, new VersionMatcher.Externalizer)
+   }
 
 }
 
@@ -49,10 +49,12 @@ object Main extends Log {
    val PROP_KEY_HOST = "infinispan.server.host"
    val PROP_KEY_MASTER_THREADS = "infinispan.server.master_threads"
    val PROP_KEY_WORKER_THREADS = "infinispan.server.worker_threads"
+   val PROP_KEY_REQUEST_THREADS = "infinispan.server.request_threads"
    val PROP_KEY_CACHE_CONFIG = "infinispan.server.cache_config"
    val PROP_KEY_PROTOCOL = "infinispan.server.protocol"
    val PROP_KEY_IDLE_TIMEOUT = "infinispan.server.idle_timeout"
    val PROP_KEY_TCP_NO_DELAY = "infinispan.server.tcp_no_delay"
+   val PROP_KEY_COALESCE_WRITES = "infinispan.server.coalesce_writes"
    val PROP_KEY_SEND_BUF_SIZE = "infinispan.server.send_buf_size"
    val PROP_KEY_RECV_BUF_SIZE = "infinispan.server.recv_buf_size"
    val PROP_KEY_PROXY_HOST = "infinispan.server.proxy_host"
@@ -64,8 +66,10 @@ object Main extends Log {
    val PROP_KEY_CACHE_MANAGER_CLASS = "infinispan.server.cache_manager_class"
    val HOST_DEFAULT = "127.0.0.1"
    val WORKER_THREADS_DEFAULT = 2 * Runtime.getRuntime.availableProcessors()
+   val REQUEST_THREADS_DEFAULT = 0
    val IDLE_TIMEOUT_DEFAULT = -1
    val TCP_NO_DELAY_DEFAULT = true
+   val COALESCE_WRITES_DEFAULT = true
    val SEND_BUF_SIZE_DEFAULT = 0
    val RECV_BUF_SIZE_DEFAULT = 0
    val TOPO_LOCK_TIMEOUT_DEFAULT = 10000L
@@ -185,7 +189,7 @@ object Main extends Log {
    }
 
    private def processCommandLine(args: Array[String]) {
-      val sopts = "-:hD:Vp:l:m:t:c:r:i:n:s:e:o:x:k:u:a:f:d:"
+      val sopts = "-:hD:Vp:l:m:t:q:c:r:i:n:w:s:e:o:x:k:u:a:f:d:"
       val lopts = Array(
          new LongOpt("help", LongOpt.NO_ARGUMENT, null, 'h'),
          new LongOpt("version", LongOpt.NO_ARGUMENT, null, 'V'),
@@ -193,10 +197,12 @@ object Main extends Log {
          new LongOpt("host", LongOpt.REQUIRED_ARGUMENT, null, 'l'),
          new LongOpt("master_threads", LongOpt.REQUIRED_ARGUMENT, null, 'm'),
          new LongOpt("worker_threads", LongOpt.REQUIRED_ARGUMENT, null, 't'),
+         new LongOpt("request_threads", LongOpt.REQUIRED_ARGUMENT, null, 'q'),
          new LongOpt("cache_config", LongOpt.REQUIRED_ARGUMENT, null, 'c'),
          new LongOpt("protocol", LongOpt.REQUIRED_ARGUMENT, null, 'r'),
          new LongOpt("idle_timeout", LongOpt.REQUIRED_ARGUMENT, null, 'i'),
          new LongOpt("tcp_no_delay", LongOpt.REQUIRED_ARGUMENT, null, 'n'),
+         new LongOpt("coalesce_writes", LongOpt.REQUIRED_ARGUMENT, null, 'w'),
          new LongOpt("send_buf_size", LongOpt.REQUIRED_ARGUMENT, null, 's'),
          new LongOpt("recv_buf_size", LongOpt.REQUIRED_ARGUMENT, null, 'e'),
          new LongOpt("proxy_host", LongOpt.REQUIRED_ARGUMENT, null, 'o'),
@@ -221,10 +227,12 @@ object Main extends Log {
             case 'l' => props.setProperty(PROP_KEY_HOST, getopt.getOptarg)
             case 'm' => props.setProperty(PROP_KEY_MASTER_THREADS, getopt.getOptarg)
             case 't' => props.setProperty(PROP_KEY_WORKER_THREADS, getopt.getOptarg)
+            case 'q' => props.setProperty(PROP_KEY_REQUEST_THREADS, getopt.getOptarg)
             case 'c' => props.setProperty(PROP_KEY_CACHE_CONFIG, getopt.getOptarg)
             case 'r' => props.setProperty(PROP_KEY_PROTOCOL, getopt.getOptarg)
             case 'i' => props.setProperty(PROP_KEY_IDLE_TIMEOUT, getopt.getOptarg)
             case 'n' => props.setProperty(PROP_KEY_TCP_NO_DELAY, getopt.getOptarg)
+            case 'w' => props.setProperty(PROP_KEY_COALESCE_WRITES, getopt.getOptarg)
             case 's' => props.setProperty(PROP_KEY_SEND_BUF_SIZE, getopt.getOptarg)
             case 'e' => props.setProperty(PROP_KEY_RECV_BUF_SIZE, getopt.getOptarg)
             case 'o' => props.setProperty(PROP_KEY_PROXY_HOST, getopt.getOptarg)
@@ -278,6 +286,9 @@ object Main extends Log {
       println
       println("    -t, --worker_threads=<num>         Number of threads processing incoming requests and sending responses (default: 20 * number of processors)")
       println
+      println("    -q, --request_threads=<num>        Number of threads executing requests, so that requests blocking on the cache do not hold up the")
+      println("                                       worker threads. Requests of a connection are executed in order (default: 0, worker threads execute requests).")
+      println
       println("    -c, --cache_config=<filename>      Cache configuration file (default: creates cache with default values)")
       println
       println("    -r, --protocol=                    Protocol to understand by the server. This is a mandatory option and you should choose one of these options")
@@ -289,6 +300,8 @@ object Main extends Log {
       println
       println("    -n, --tcp_no_delay=[true|false]    TCP no delay flag switch (default: true).")
       println
+      println("    -w, --coalesce_writes=[true|false] Write the responses to the requests found in a single read at once (default: true).")
+      println
       println("    -s, --send_buf_size=<num>          Send buffer size (default: as defined by the OS).")
       println
       println("    -e, --recv_buf_size=<num>          Receive buffer size (default: as defined by the OS).")
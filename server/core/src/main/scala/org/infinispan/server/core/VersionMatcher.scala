@@ -0,0 +1,75 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.infinispan.server.core
+
+import java.io.{ObjectOutput, ObjectInput}
+import org.infinispan.marshall.AbstractExternalizer
+import org.infinispan.commands.write.ValueMatcher
+import scala.collection.JavaConversions._
+import java.lang.StringBuilder
+
+/**
+ * Stands in for the expected value of a conditional replace or remove, matching any cache value with the given
+ * version whatever its data. The replace and remove commands hand the current value to it rather than comparing
+ * the two, so the version is checked and the value replaced or removed in a single invocation, atomically where
+ * the entry lives, instead of reading the value first.
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+class VersionMatcher(val version: Long) extends ValueMatcher {
+
+   override def matches(currentValue: AnyRef): Boolean = {
+      currentValue match {
+         case v: CacheValue => v.version == version
+         case _ => false
+      }
+   }
+
+   override def toString = {
+      new StringBuilder().append("VersionMatcher").append("{")
+         .append("version=").append(version)
+         .append("}").toString
+   }
+
+   override def equals(obj: Any) = {
+      obj match {
+         case m: VersionMatcher => m.version == this.version
+         case _ => false
+      }
+   }
+
+   override def hashCode: Int = {
+      41 + (version ^ (version >>> 32)).toInt
+   }
+
+}
+
+object VersionMatcher {
+   class Externalizer extends AbstractExternalizer[VersionMatcher] {
+      override def writeObject(output: ObjectOutput, matcher: VersionMatcher) {
+         output.writeLong(matcher.version)
+      }
+
+      override def readObject(input: ObjectInput): VersionMatcher = new VersionMatcher(input.readLong)
+
+      override def getTypeClasses =
+         asJavaSet(Set[java.lang.Class[_ <: VersionMatcher]](classOf[VersionMatcher]))
+   }
+}
@@ -32,8 +32,10 @@ public abstract class ProtocolServerConfiguration {
    private final int sendBufSize;
    private final boolean tcpNoDelay;
    private final int workerThreads;
+   private final int requestThreads;
+   private final boolean coalesceWrites;
 
-   protected ProtocolServerConfiguration(String host, int port, int idleTimeout, int recvBufSize, int sendBufSize, boolean tcpNoDelay, int workerThreads) {
+   protected ProtocolServerConfiguration(String host, int port, int idleTimeout, int recvBufSize, int sendBufSize, boolean tcpNoDelay, int workerThreads, int requestThreads, boolean coalesceWrites) {
       this.host = host;
       this.port = port;
       this.idleTimeout = idleTimeout;
@@ -41,6 +43,8 @@ protected ProtocolServerConfiguration(String host, int port, int idleTimeout, in
       this.sendBufSize = sendBufSize;
       this.tcpNoDelay = tcpNoDelay;
       this.workerThreads = workerThreads;
+      this.requestThreads = requestThreads;
+      this.coalesceWrites = coalesceWrites;
    }
 
    public String host() {
@@ -71,10 +75,27 @@ public int workerThreads() {
       return workerThreads;
    }
 
+   /**
+    * The number of threads executing requests on behalf of the worker threads, so that a request blocking on the
+    * cache does not hold up the other connections served by the same worker thread. 0 means that requests are
+    * executed by the worker threads themselves.
+    */
+   public int requestThreads() {
+      return requestThreads;
+   }
+
+   /**
+    * Whether the responses to the requests found in a single read are gathered and written at once, rather than one
+    * write per response.
+    */
+   public boolean coalesceWrites() {
+      return coalesceWrites;
+   }
+
    @Override
    public String toString() {
       return "ServerConfiguration [host=" + host + ", port=" + port + ", idleTimeout=" + idleTimeout + ", recvBufSize=" + recvBufSize + ", sendBufSize=" + sendBufSize
-            + ", tcpNoDelay=" + tcpNoDelay + ", workerThreads=" + workerThreads + "]";
+            + ", tcpNoDelay=" + tcpNoDelay + ", workerThreads=" + workerThreads + ", requestThreads=" + requestThreads + ", coalesceWrites=" + coalesceWrites + "]";
    }
 
 }
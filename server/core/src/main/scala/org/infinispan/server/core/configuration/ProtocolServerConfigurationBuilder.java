@@ -36,6 +36,8 @@
    protected int sendBufSize = 0;
    protected boolean tcpNoDelay = true;
    protected int workerThreads = 2 * Runtime.getRuntime().availableProcessors();
+   protected int requestThreads = 0;
+   protected boolean coalesceWrites = true;
 
    protected ProtocolServerConfigurationBuilder(int port) {
       this.port = port;
@@ -89,6 +91,8 @@ public S withProperties(Properties properties) {
          this.sendBufSize(typed.getIntProperty(Main.PROP_KEY_SEND_BUF_SIZE(), sendBufSize, true));
          this.tcpNoDelay(typed.getBooleanProperty(Main.PROP_KEY_TCP_NO_DELAY(), tcpNoDelay, true));
          this.workerThreads(typed.getIntProperty(Main.PROP_KEY_WORKER_THREADS(), workerThreads, true));
+         this.requestThreads(typed.getIntProperty(Main.PROP_KEY_REQUEST_THREADS(), requestThreads, true));
+         this.coalesceWrites(typed.getBooleanProperty(Main.PROP_KEY_COALESCE_WRITES(), coalesceWrites, true));
       }
 
       return this.self();
@@ -100,6 +104,18 @@ public S workerThreads(int workerThreads) {
       return this.self();
    }
 
+   @Override
+   public S requestThreads(int requestThreads) {
+      this.requestThreads = requestThreads;
+      return this.self();
+   }
+
+   @Override
+   public S coalesceWrites(boolean coalesceWrites) {
+      this.coalesceWrites = coalesceWrites;
+      return this.self();
+   }
+
    @Override
    public void validate() {
       if (idleTimeout < -1) {
@@ -114,6 +130,9 @@ public void validate() {
       if (workerThreads < 0) {
          throw log.illegalWorkerThreads(workerThreads);
       }
+      if (requestThreads < 0) {
+         throw log.illegalRequestThreads(requestThreads);
+      }
    }
 
    @Override
@@ -125,6 +144,8 @@ public Builder<?> read(T template) {
       this.sendBufSize = template.sendBufSize();
       this.tcpNoDelay = template.tcpNoDelay();
       this.workerThreads = template.workerThreads();
+      this.requestThreads = template.requestThreads();
+      this.coalesceWrites = template.coalesceWrites();
       return this;
    }
 }
@@ -63,6 +63,19 @@
     */
    S workerThreads(int workerThreads);
 
+   /**
+    * Sets the number of threads executing requests, so that requests blocking on the cache do not hold up the worker
+    * threads. Requests of a connection are still executed one after the other. Defaults to 0, executing requests on
+    * the worker threads
+    */
+   S requestThreads(int requestThreads);
+
+   /**
+    * Sets whether the responses to the requests found in a single read are gathered and written at once, saving a
+    * write per response for clients pipelining requests. Defaults to true
+    */
+   S coalesceWrites(boolean coalesceWrites);
+
    /**
     * Builds a configuration object
     */
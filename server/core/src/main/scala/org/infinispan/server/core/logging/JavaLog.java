@@ -89,4 +89,7 @@ public interface JavaLog extends org.infinispan.util.logging.Log {
 
    @Message(value = "Send Buffer Size can't be lower than 0: %d", id = 5013)
    IllegalArgumentException illegalSendBufferSize(int sendBufSize);
+
+   @Message(value = "Illegal number of requestThreads: %d", id = 5014)
+   IllegalArgumentException illegalRequestThreads(int requestThreads);
 }
@@ -28,6 +28,11 @@ import org.jboss.netty.util.CharsetUtil
 
 object ExtendedChannelBuffer {
 
+   /**
+    * Byte arrays of at least this many bytes are referenced from response buffers rather than copied into them.
+    */
+   val ZeroCopyThreshold = 8 * 1024
+
    def wrappedBuffer(array: Array[Byte]*) = ChannelBuffers.wrappedBuffer(array : _*)
    def buffer(capacity: Int) = ChannelBuffers.buffer(capacity)
    def dynamicBuffer = ChannelBuffers.dynamicBuffer()
@@ -65,6 +70,21 @@ object ExtendedChannelBuffer {
       bf.writeBytes(src)
    }
 
+   /**
+    * Writes the length of the array and then the array itself, which must be the last thing written to the buffer.
+    * Arrays of at least ZeroCopyThreshold bytes are not copied, a composite of the buffer and the wrapped array
+    * is returned instead, so callers must carry on with the returned buffer.
+    */
+   def writeTrailingRangedBytes(src: Array[Byte], bf: ChannelBuffer): ChannelBuffer = {
+      if (src.length >= ZeroCopyThreshold) {
+         writeUnsignedInt(src.length, bf)
+         ChannelBuffers.wrappedBuffer(bf, ChannelBuffers.wrappedBuffer(src))
+      } else {
+         writeRangedBytes(src, bf)
+         bf
+      }
+   }
+
    def writeString(msg: String, bf: ChannelBuffer) = writeRangedBytes(msg.getBytes(CharsetUtil.UTF_8), bf)
 
 }
\ No newline at end of file
@@ -23,23 +23,33 @@
 package org.infinispan.server.core.transport
 
 import org.jboss.netty.channel._
+import org.jboss.netty.handler.execution.ExecutionHandler
 import org.infinispan.server.core.ProtocolServer
 
 /**
  * Pipeline factory for Netty based channels. For each pipeline created, a new decoder is created which means that
  * each incoming connection deals with a unique decoder instance. Since the encoder does not maintain any state,
  * a single encoder instance is shared by all incoming connections, if and only if, the protocol mandates an encoder.
+ * If an execution handler is given, it is shared too and placed in front of the decoder, so that requests are decoded
+ * and executed by its threads rather than by the I/O worker threads. Unless disabled, each pipeline also gets its own
+ * write coalescer so that the responses to requests pipelined in a single read are written at once.
  *
  * @author Galder Zamarreño
  * @since 4.1
  */
 class NettyChannelPipelineFactory(server: ProtocolServer,
                                   encoder: ChannelDownstreamHandler,
-                                  transport: NettyTransport)
+                                  transport: NettyTransport,
+                                  executionHandler: ExecutionHandler,
+                                  coalesceWrites: Boolean)
       extends ChannelPipelineFactory {
 
    override def getPipeline: ChannelPipeline = {
       val pipeline = Channels.pipeline
+      if (executionHandler != null)
+         pipeline.addLast("executionHandler", executionHandler)
+      if (coalesceWrites)
+         pipeline.addLast("writeCoalescer", new WriteCoalescingHandler)
       pipeline.addLast("decoder", server.getDecoder)
       if (encoder != null)
          pipeline.addLast("encoder", encoder)
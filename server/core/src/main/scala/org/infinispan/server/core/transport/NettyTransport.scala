@@ -31,7 +31,7 @@ import org.infinispan.util.Util
 import org.jboss.netty.util.ThreadNameDeterminer
 import org.jboss.netty.logging.{InternalLoggerFactory, Log4JLoggerFactory}
 import org.infinispan.server.core.logging.Log
-import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.{AtomicInteger, AtomicLong}
 import org.jboss.netty.channel.{WriteCompletionEvent, MessageEvent, ChannelDownstreamHandler}
 import org.jboss.netty.buffer.ChannelBuffer
 import java.net.InetSocketAddress
@@ -41,7 +41,8 @@ import org.infinispan.Cache
 import java.util
 import org.infinispan.jmx.JmxUtil
 import javax.management.ObjectName
-import util.concurrent.{TimeUnit, Executors}
+import util.concurrent.{ThreadFactory, TimeUnit, Executors}
+import org.jboss.netty.handler.execution.{OrderedMemoryAwareThreadPoolExecutor, ExecutionHandler}
 import org.infinispan.server.core.configuration.ProtocolServerConfiguration
 
 /**
@@ -54,13 +55,30 @@ class NettyTransport(server: ProtocolServer, encoder: ChannelDownstreamHandler,
                      address: InetSocketAddress, configuration: ProtocolServerConfiguration, threadNamePrefix: String, cacheManager: EmbeddedCacheManager)
         extends Transport with Log {
 
+   import NettyTransport._
+
    private val serverChannels = new DefaultChannelGroup(threadNamePrefix + "-Channels")
    val acceptedChannels = new DefaultChannelGroup(threadNamePrefix + "-Accepted")
+   // Requests of a channel are executed in order, and reading from a channel is suspended while the requests
+   // queued for it exceed the channel memory limit
+   private val executionHandler =
+      if (configuration.requestThreads > 0)
+         new ExecutionHandler(new OrderedMemoryAwareThreadPoolExecutor(configuration.requestThreads,
+            MaxChannelMemorySize, MaxTotalMemorySize, 60, TimeUnit.SECONDS, new ThreadFactory {
+               private val threadCount = new AtomicInteger
+               override def newThread(r: Runnable): Thread = {
+                  val t = new Thread(r, threadNamePrefix + "ServerRequest-" + threadCount.incrementAndGet)
+                  t.setDaemon(true)
+                  t
+               }
+            }))
+      else null // Requests are executed by the worker threads
    private val pipeline =
       if (configuration.idleTimeout > 0)
-         new TimeoutEnabledChannelPipelineFactory(server, encoder, this, configuration.idleTimeout)
+         new TimeoutEnabledChannelPipelineFactory(server, encoder, this, executionHandler,
+            configuration.coalesceWrites, configuration.idleTimeout)
       else // Idle timeout logic is disabled with -1 or 0 values
-         new NettyChannelPipelineFactory(server, encoder, this)
+         new NettyChannelPipelineFactory(server, encoder, this, executionHandler, configuration.coalesceWrites)
 
    private val masterPool = new NioServerBossPool(Executors.newCachedThreadPool, 1, new ThreadNameDeterminer {
      override def determineThreadName(currentThreadName: String, proposedThreadName: String): String = {
@@ -143,6 +161,8 @@ class NettyTransport(server: ProtocolServer, encoder: ChannelDownstreamHandler,
          }
       }
       pipeline.stop
+      if (executionHandler != null)
+         executionHandler.releaseExternalResources()
       if (isDebugEnabled)
          debug("Channel group completely closed, release external resources")
       factory.shutdown()
@@ -159,6 +179,8 @@ class NettyTransport(server: ProtocolServer, encoder: ChannelDownstreamHandler,
 
    override def getNumberWorkerThreads = configuration.workerThreads.toString
 
+   override def getNumberRequestThreads = configuration.requestThreads.toString
+
    override def getIdleTimeout = configuration.idleTimeout.toString
 
    override def getTcpNoDelay = configuration.tcpNoDelay.toString
@@ -241,4 +263,9 @@ class ConnectionAdderTask(serverName: String)
       this.cache = cache
    }
 
-}
\ No newline at end of file
+}
+
+object NettyTransport {
+   private val MaxChannelMemorySize = 1024 * 1024L
+   private val MaxTotalMemorySize = 64 * 1024 * 1024L
+}
@@ -23,6 +23,7 @@ import org.jboss.netty.util.HashedWheelTimer
 import org.jboss.netty.handler.timeout.IdleStateHandler
 import org.infinispan.server.core.ProtocolServer
 import org.jboss.netty.channel.{ChannelDownstreamHandler, Channels, ChannelPipeline}
+import org.jboss.netty.handler.execution.ExecutionHandler
 
 /**
  * A channel pipeline factory for environments where idle timeout is enabled.
@@ -33,13 +34,19 @@ import org.jboss.netty.channel.{ChannelDownstreamHandler, Channels, ChannelPipel
 class TimeoutEnabledChannelPipelineFactory(server: ProtocolServer,
                                            encoder: ChannelDownstreamHandler,
                                            transport: NettyTransport,
+                                           executionHandler: ExecutionHandler,
+                                           coalesceWrites: Boolean,
                                            idleTimeout: Int)
-      extends NettyChannelPipelineFactory(server, encoder, transport) {
+      extends NettyChannelPipelineFactory(server, encoder, transport, executionHandler, coalesceWrites) {
 
    import TimeoutEnabledChannelPipelineFactory._
 
    override def getPipeline: ChannelPipeline = {
       val pipeline = Channels.pipeline
+      if (executionHandler != null)
+         pipeline.addLast("executionHandler", executionHandler)
+      if (coalesceWrites)
+         pipeline.addLast("writeCoalescer", new WriteCoalescingHandler)
       pipeline.addLast("decoder", server.getDecoder)
       if (encoder != null)
          pipeline.addLast("encoder", encoder)
@@ -82,6 +82,14 @@ public interface Transport {
    )
    String getNumberWorkerThreads();
 
+   @ManagedAttribute(
+         description = "Returns the number of threads executing requests, 0 if worker threads execute them.",
+         displayName = "Number of request threads",
+         dataType = DataType.TRAIT,
+         displayType = DisplayType.SUMMARY
+   )
+   String getNumberRequestThreads();
+
    @ManagedAttribute(
          description = "Returns the idle timeout.",
          displayName = "Idle timeout",
@@ -0,0 +1,168 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.infinispan.server.core.transport;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.ChannelEvent;
+import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.ChannelFutureListener;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.Channels;
+import org.jboss.netty.channel.MessageEvent;
+import org.jboss.netty.channel.SimpleChannelHandler;
+
+/**
+ * A Netty channel handler that coalesces the responses written while a read is being processed. Clients pipelining
+ * requests get all the responses to the requests found in a single read gathered into one composite buffer, which is
+ * written once the read has been processed, instead of one write, and hence one system call, per response.
+ * <p/>
+ * Downstream events are queued in order and sent by a single thread at a time, outside of the handler's monitor, so
+ * that a write completing synchronously, or another thread writing to the channel, never waits on the monitor while
+ * events are being sent, and events are never reordered.
+ * <p/>
+ * The handler keeps per channel state, so a new instance must be created for each pipeline. It must sit between the
+ * execution handler, if any, and the decoder, so that the read is processed in the calling thread.
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+public class WriteCoalescingHandler extends SimpleChannelHandler {
+
+   /**
+    * Pending responses are written as soon as they exceed this many bytes, to bound the memory held per channel.
+    */
+   static final int MAX_PENDING_BYTES = 64 * 1024;
+
+   private final List<ChannelEvent> pending = new ArrayList<ChannelEvent>();
+   private int pendingBytes;
+   private boolean coalescing;
+   private boolean sending;
+
+   @Override
+   public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
+      synchronized (this) {
+         coalescing = true;
+      }
+      try {
+         ctx.sendUpstream(e);
+      } finally {
+         boolean send;
+         synchronized (this) {
+            coalescing = false;
+            send = startSending();
+         }
+         if (send)
+            send(ctx);
+      }
+   }
+
+   @Override
+   public void handleDownstream(ChannelHandlerContext ctx, ChannelEvent e) throws Exception {
+      boolean send;
+      synchronized (this) {
+         pending.add(e);
+         if (coalescing && isBuffer(e)) {
+            pendingBytes += ((ChannelBuffer) ((MessageEvent) e).getMessage()).readableBytes();
+            if (pendingBytes < MAX_PENDING_BYTES)
+               return;
+         }
+         // Anything else, such as a close request, is sent right away behind the pending responses
+         send = startSending();
+      }
+      if (send)
+         send(ctx);
+   }
+
+   /**
+    * Must be called while holding the monitor.
+    *
+    * @return whether the calling thread is to send the pending events
+    */
+   private boolean startSending() {
+      if (sending || pending.isEmpty())
+         return false;
+      sending = true;
+      return true;
+   }
+
+   /**
+    * Sends the pending events, including those queued while sending, until there are none left.
+    */
+   private void send(ChannelHandlerContext ctx) {
+      while (true) {
+         ChannelEvent[] events;
+         synchronized (this) {
+            if (pending.isEmpty()) {
+               sending = false;
+               return;
+            }
+            events = pending.toArray(new ChannelEvent[pending.size()]);
+            pending.clear();
+            pendingBytes = 0;
+         }
+         int i = 0;
+         while (i < events.length) {
+            int end = i;
+            while (end < events.length && isBuffer(events[end]))
+               end++;
+            if (end - i > 1) {
+               write(ctx, events, i, end);
+               i = end;
+            } else {
+               ctx.sendDownstream(events[i++]);
+            }
+         }
+      }
+   }
+
+   private static boolean isBuffer(ChannelEvent e) {
+      return e instanceof MessageEvent && ((MessageEvent) e).getMessage() instanceof ChannelBuffer;
+   }
+
+   /**
+    * Writes the buffers of the given events as one composite buffer, completing each event's future with the outcome
+    * of the write.
+    */
+   private static void write(ChannelHandlerContext ctx, ChannelEvent[] events, int start, int end) {
+      final ChannelFuture[] futures = new ChannelFuture[end - start];
+      ChannelBuffer[] buffers = new ChannelBuffer[end - start];
+      for (int i = start; i < end; i++) {
+         futures[i - start] = events[i].getFuture();
+         buffers[i - start] = (ChannelBuffer) ((MessageEvent) events[i]).getMessage();
+      }
+      ChannelFuture future = Channels.future(ctx.getChannel());
+      future.addListener(new ChannelFutureListener() {
+         @Override
+         public void operationComplete(ChannelFuture future) {
+            for (ChannelFuture f : futures) {
+               if (future.isSuccess())
+                  f.setSuccess();
+               else
+                  f.setFailure(future.getCause());
+            }
+         }
+      });
+      Channels.write(ctx, future, ChannelBuffers.wrappedBuffer(buffers));
+   }
+
+}
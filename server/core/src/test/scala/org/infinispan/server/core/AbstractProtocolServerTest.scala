@@ -49,6 +49,12 @@ class AbstractProtocolServerTest {
       expectIllegalArgument(b, createServer)
    }
 
+   def testValidateNegativeRequestThreads() {
+      val b = new MockServerConfigurationBuilder
+      b.requestThreads(-1);
+      expectIllegalArgument(b, createServer)
+   }
+
    def testValidateNegativeIdleTimeout() {
       val b = new MockServerConfigurationBuilder
       b.idleTimeout(-2);
@@ -0,0 +1,62 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.infinispan.server.core
+
+import org.testng.annotations.Test
+import org.testng.Assert._
+import org.infinispan.util.ByteArrayKey
+
+/**
+ * Tests the size estimates of the cache value size calculator.
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+@Test(groups = Array("unit"), testName = "server.core.CacheValueSizeCalculatorTest")
+class CacheValueSizeCalculatorTest {
+
+   private val calculator = new CacheValueSizeCalculator
+
+   def testCacheValueSize {
+      // 12 byte header + data reference + version, then a 16 byte header array
+      assertEquals(calculator.getEntrySize(null, new CacheValue(Array.empty[Byte], 1)), 24L + 16L)
+      assertEquals(calculator.getEntrySize(null, new CacheValue(new Array[Byte](10), 1)), 24L + 32L)
+      assertEquals(calculator.getEntrySize(null, new CacheValue(new Array[Byte](1000), 1)), 24L + 1016L)
+   }
+
+   def testCacheValueSizeGrowsWithData {
+      val small = calculator.getEntrySize(null, new CacheValue(new Array[Byte](100), 1))
+      val large = calculator.getEntrySize(null, new CacheValue(new Array[Byte](100100), 1))
+      assertEquals(large - small, 100000L)
+   }
+
+   def testEntrySizeAddsKeyAndValue {
+      // 24 bytes for the key itself and 24 bytes for its 5 byte array
+      val key = new ByteArrayKey(new Array[Byte](5))
+      assertEquals(calculator.getEntrySize(key, null), 48L)
+      assertEquals(calculator.getEntrySize(key, new CacheValue(new Array[Byte](10), 1)), 48L + 56L)
+   }
+
+   def testOtherValuesUseDefaultEstimates {
+      assertEquals(calculator.getEntrySize(null, new Array[Byte](10)), 32L)
+      assertEquals(calculator.getEntrySize(null, java.lang.Long.valueOf(1)), 24L)
+      assertEquals(calculator.getEntrySize(null, new Object), 64L)
+   }
+
+}
@@ -41,4 +41,13 @@ class MarshallingTest extends AbstractMarshallingTest {
       assertEquals(readValue, cacheValue)
    }
 
+   def testMarshallingVersionMatcher {
+      val matcher = new VersionMatcher(9)
+      val bytes = marshaller.objectToByteBuffer(matcher)
+      val readMatcher = marshaller.objectFromByteBuffer(bytes).asInstanceOf[VersionMatcher]
+      assertEquals(readMatcher, matcher)
+      assertTrue(readMatcher.matches(new CacheValue(getBigByteArray, 9)))
+      assertFalse(readMatcher.matches(new CacheValue(getBigByteArray, 10)))
+   }
+
 }
\ No newline at end of file
@@ -20,8 +20,8 @@
 
 public class MockServerConfiguration extends ProtocolServerConfiguration {
 
-   protected MockServerConfiguration(String host, int port, int idleTimeout, int recvBufSize, int sendBufSize, boolean tcpNoDelay, int workerThreads) {
-      super(host, port, idleTimeout, recvBufSize, sendBufSize, tcpNoDelay, workerThreads);
+   protected MockServerConfiguration(String host, int port, int idleTimeout, int recvBufSize, int sendBufSize, boolean tcpNoDelay, int workerThreads, int requestThreads, boolean coalesceWrites) {
+      super(host, port, idleTimeout, recvBufSize, sendBufSize, tcpNoDelay, workerThreads, requestThreads, coalesceWrites);
    }
 
 }
@@ -48,6 +48,6 @@ public MockServerConfiguration build(boolean validate) {
 
    @Override
    public MockServerConfiguration create() {
-      return new MockServerConfiguration(host, port, idleTimeout, recvBufSize, sendBufSize, tcpNoDelay, workerThreads);
+      return new MockServerConfiguration(host, port, idleTimeout, recvBufSize, sendBufSize, tcpNoDelay, workerThreads, requestThreads, coalesceWrites);
    }
 }
@@ -0,0 +1,120 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.infinispan.server.core.transport
+
+import org.testng.annotations.Test
+import org.testng.Assert._
+import org.jboss.netty.buffer.{ChannelBuffers, ChannelBuffer}
+import org.jboss.netty.channel._
+import org.jboss.netty.handler.codec.embedder.DecoderEmbedder
+import scala.collection.mutable.ArrayBuffer
+
+/**
+ * Tests the write coalescing handler.
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+@Test(groups = Array("unit"), testName = "server.core.transport.WriteCoalescingHandlerTest")
+class WriteCoalescingHandlerTest {
+
+   def testPipelinedResponsesAreWrittenOnce() {
+      val channel = new CoalescingChannel(10, 20, 30)
+      channel.read()
+      assertEquals(channel.sunk.toList, List(60))
+      assertEquals(channel.futures.size, 3)
+      assertTrue(channel.futures.forall(_.isSuccess))
+
+      channel.read()
+      assertEquals(channel.sunk.toList, List(60, 60))
+   }
+
+   def testPendingResponsesAreFlushedAboveLimit() {
+      val channel = new CoalescingChannel(40000, 40000, 30)
+      channel.read()
+      // the first two exceed the limit together, the third one is written with the end of the read
+      assertEquals(channel.sunk.toList, List(80000, 30))
+      assertTrue(channel.futures.forall(_.isSuccess))
+   }
+
+   def testCloseDoesNotOvertakeResponses() {
+      val channel = new CoalescingChannel(10, 20)
+      channel.closeAfterResponses = true
+      channel.read()
+      assertEquals(channel.sunk.toList, List(30, "close"))
+   }
+
+   def testFailedWriteFailsEachResponse() {
+      val channel = new CoalescingChannel(10, 20, 30)
+      val cause = new Exception("Write failed")
+      channel.writeFailure = cause
+      channel.read()
+      assertEquals(channel.futures.size, 3)
+      channel.futures.foreach(f => assertSame(f.getCause, cause))
+   }
+
+   def testWriteOutsideReadIsNotDelayed() {
+      val channel = new CoalescingChannel
+      Channels.write(channel.embedder.getPipeline.getChannel, ChannelBuffers.wrappedBuffer(new Array[Byte](10)))
+      assertEquals(channel.sunk.toList, List(10))
+   }
+
+}
+
+/**
+ * A channel answering each read with responses of the given sizes, whose writes and close requests are recorded
+ * instead of being sent.
+ */
+class CoalescingChannel(responseSizes: Int*) {
+
+   val sunk = new ArrayBuffer[Any]
+   val futures = new ArrayBuffer[ChannelFuture]
+   var closeAfterResponses = false
+   var writeFailure: Throwable = null
+
+   private val recorder = new SimpleChannelHandler {
+      override def writeRequested(ctx: ChannelHandlerContext, e: MessageEvent) {
+         sunk += e.getMessage.asInstanceOf[ChannelBuffer].readableBytes
+         if (writeFailure == null) e.getFuture.setSuccess() else e.getFuture.setFailure(writeFailure)
+      }
+
+      override def closeRequested(ctx: ChannelHandlerContext, e: ChannelStateEvent) {
+         sunk += "close"
+      }
+   }
+
+   private val responder = new SimpleChannelUpstreamHandler {
+      override def messageReceived(ctx: ChannelHandlerContext, e: MessageEvent) {
+         for (size <- responseSizes) {
+            val future = Channels.future(ctx.getChannel)
+            futures += future
+            Channels.write(ctx, future, ChannelBuffers.wrappedBuffer(new Array[Byte](size)))
+         }
+         if (closeAfterResponses)
+            Channels.close(ctx, Channels.future(ctx.getChannel))
+      }
+   }
+
+   val embedder = new DecoderEmbedder[AnyRef](recorder, new WriteCoalescingHandler, responder)
+
+   def read() {
+      embedder.offer("request")
+   }
+
+}
@@ -68,13 +68,15 @@ abstract class AbstractEncoder1x extends AbstractVersionedEncoder with Constants
    }
 
    override def writeResponse(r: Response, buf: ChannelBuffer,
-           cacheManager: EmbeddedCacheManager, server: HotRodServer) {
+           cacheManager: EmbeddedCacheManager, server: HotRodServer): ChannelBuffer = {
       r match {
          case r: ResponseWithPrevious => {
-            if (r.previous == None)
+            if (r.previous == None) {
                writeUnsignedInt(0, buf)
-            else
-               writeRangedBytes(r.previous.get, buf)
+               buf
+            } else {
+               writeTrailingRangedBytes(r.previous.get, buf)
+            }
          }
          case s: StatsResponse => {
             writeUnsignedInt(s.stats.size, buf)
@@ -82,11 +84,14 @@ abstract class AbstractEncoder1x extends AbstractVersionedEncoder with Constants
                writeString(key, buf)
                writeString(value, buf)
             }
+            buf
          }
          case g: GetWithVersionResponse => {
             if (g.status == Success) {
                buf.writeLong(g.dataVersion)
-               writeRangedBytes(g.data.get, buf)
+               writeTrailingRangedBytes(g.data.get, buf)
+            } else {
+               buf
             }
          }
          case g: GetWithMetadataResponse => {
@@ -102,7 +107,9 @@ abstract class AbstractEncoder1x extends AbstractVersionedEncoder with Constants
                   writeUnsignedInt(g.maxIdle, buf)
                }
                buf.writeLong(g.dataVersion)
-               writeRangedBytes(g.data.get, buf)
+               writeTrailingRangedBytes(g.data.get, buf)
+            } else {
+               buf
             }
          }
          case g: BulkGetResponse => {
@@ -122,6 +129,7 @@ abstract class AbstractEncoder1x extends AbstractVersionedEncoder with Constants
                }
                buf.writeByte(0) // Done
             }
+            buf
          }
          case g: BulkGetKeysResponse => {
          	log.trace("About to respond to bulk get keys request")
@@ -137,12 +145,33 @@ abstract class AbstractEncoder1x extends AbstractVersionedEncoder with Constants
                }
                buf.writeByte(0) // Done
             }
+            buf
+         }
+         case g: GetAllResponse => {
+            if (g.status == Success) {
+               writeUnsignedInt(g.entries.size, buf)
+               for (entry <- asScalaIterator(g.entries.entrySet.iterator)) {
+                  writeRangedBytes(entry.getKey.getData, buf)
+                  writeRangedBytes(entry.getValue.data, buf)
+               }
+            }
+            buf
          }
          case g: GetResponse =>
-            if (g.status == Success) writeRangedBytes(g.data.get, buf)
-         case e: ErrorResponse => writeString(e.msg, buf)
-         case _ => if (buf == null)
-            throw new IllegalArgumentException("Response received is unknown: " + r)
+            if (g.status == Success) writeTrailingRangedBytes(g.data.get, buf) else buf
+         case i: InvalidationEvent => {
+            writeRangedBytes(i.key, buf)
+            buf
+         }
+         case e: ErrorResponse => {
+            writeString(e.msg, buf)
+            buf
+         }
+         case _ => {
+            if (buf == null)
+               throw new IllegalArgumentException("Response received is unknown: " + r)
+            buf
+         }
       }
    }
 
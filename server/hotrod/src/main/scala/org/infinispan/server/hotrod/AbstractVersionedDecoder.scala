@@ -52,6 +52,12 @@ abstract class AbstractVersionedDecoder {
     */
    def readParameters(header: HotRodHeader, buffer: ChannelBuffer): (RequestParameters, Boolean)
 
+   /**
+    * Read the expiration parameters and the entries of a multi-key put. The
+    * whole request is read before any of the entries is stored.
+    */
+   def readPutAllRequest(header: HotRodHeader, buffer: ChannelBuffer): (RequestParameters, Seq[(ByteArrayKey, Array[Byte])])
+
    /**
     * Read the value part of the operation.
     */
@@ -106,4 +112,9 @@ abstract class AbstractVersionedDecoder {
     * Get an optimized cache instance depending on the operation parameters.
     */
    def getOptimizedCache(h: HotRodHeader, c: Cache[ByteArrayKey, CacheValue]): Cache[ByteArrayKey, CacheValue]
+
+   /**
+    * Whether the client asked for the previous value to be returned.
+    */
+   def isPreviousValueRequired(h: HotRodHeader): Boolean
 }
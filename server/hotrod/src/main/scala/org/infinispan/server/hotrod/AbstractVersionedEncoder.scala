@@ -40,8 +40,9 @@ abstract class AbstractVersionedEncoder {
          addressCache: Cache[Address, ServerAddress], server: HotRodServer)
 
    /**
-    * Write operation response using the given channel buffer
+    * Write operation response using the given channel buffer, returning the buffer to send. Large values are not
+    * copied into the given buffer, so the returned buffer can be a composite of it and the values.
     */
-   def writeResponse(r: Response, buf: ChannelBuffer, cacheManager: EmbeddedCacheManager, server: HotRodServer)
+   def writeResponse(r: Response, buf: ChannelBuffer, cacheManager: EmbeddedCacheManager, server: HotRodServer): ChannelBuffer
 
 }
@@ -76,6 +76,10 @@ object Decoder10 extends AbstractVersionedDecoder with ServerConstants with Log
          case 0x19 => (BulkGetRequest, false)
          case 0x1B => (GetWithMetadataRequest, false)
          case 0x1D => (BulkGetKeysRequest, false)
+         case 0x1F if version >= Constants.VERSION_13 => (PutAllRequest, false)
+         case 0x21 if version >= Constants.VERSION_13 => (GetAllRequest, false)
+         case 0x23 if version >= Constants.VERSION_13 => (RemoveAllRequest, false)
+         case 0x25 if version >= Constants.VERSION_13 => (AddNearCacheListenerRequest, true)
          case _ => throw new HotRodUnknownOperationException(
                "Unknown operation: " + streamOp, version, messageId)
       }
@@ -110,6 +114,24 @@ object Decoder10 extends AbstractVersionedDecoder with ServerConstants with Log
 
    private def readKey(buffer: ChannelBuffer): ByteArrayKey = new ByteArrayKey(readRangedBytes(buffer))
 
+   private def readKeys(buffer: ChannelBuffer): java.util.Set[ByteArrayKey] = {
+      val count = readUnsignedInt(buffer)
+      val keys = new HashSet[ByteArrayKey](count * 4 / 3 + 1)
+      for (i <- 0 until count)
+         keys.add(readKey(buffer))
+      keys
+   }
+
+   override def readPutAllRequest(h: HotRodHeader, buffer: ChannelBuffer): (RequestParameters, Seq[(ByteArrayKey, Array[Byte])]) = {
+      val lifespan = readLifespanOrMaxIdle(buffer, hasFlag(h, ProtocolFlag.DefaultLifespan))
+      val maxIdle = readLifespanOrMaxIdle(buffer, hasFlag(h, ProtocolFlag.DefaultMaxIdle))
+      val count = readUnsignedInt(buffer)
+      val entries = new mutable.ArrayBuffer[(ByteArrayKey, Array[Byte])](count)
+      for (i <- 0 until count)
+         entries += ((readKey(buffer), readRangedBytes(buffer)))
+      (new RequestParameters(-1, lifespan, maxIdle, -1), entries)
+   }
+
    override def readParameters(header: HotRodHeader, buffer: ChannelBuffer): (RequestParameters, Boolean) = {
       header.op match {
          case RemoveRequest => (null, true)
@@ -200,19 +222,31 @@ object Decoder10 extends AbstractVersionedDecoder with ServerConstants with Log
          case RemoveIfUnmodifiedRequest => {
             val k = readKey(buffer)
             val params = readParameters(h, buffer)._1
-            val prev = cache.get(k)
-            if (prev != null) {
-               if (prev.version == params.streamVersion) {
-                  val removed = cache.remove(k, prev);
-                  if (removed)
-                     createResponse(h, RemoveIfUnmodifiedResponse, Success, prev)
-                  else
+            if (isPreviousValueRequired(h)) {
+               // The previous value has to be sent back, so read it and then remove it only if it is still the same
+               val prev = cache.get(k)
+               if (prev != null) {
+                  if (prev.version == params.streamVersion) {
+                     val removed = cache.remove(k, prev);
+                     if (removed)
+                        createResponse(h, RemoveIfUnmodifiedResponse, Success, prev)
+                     else
+                        createResponse(h, RemoveIfUnmodifiedResponse, OperationNotExecuted, prev)
+                  } else {
                      createResponse(h, RemoveIfUnmodifiedResponse, OperationNotExecuted, prev)
+                  }
                } else {
-                  createResponse(h, RemoveIfUnmodifiedResponse, OperationNotExecuted, prev)
+                  createResponse(h, RemoveIfUnmodifiedResponse, KeyDoesNotExist, prev)
                }
             } else {
-               createResponse(h, RemoveIfUnmodifiedResponse, KeyDoesNotExist, prev)
+               // Compare the version and remove in a single invocation, reading the value only if that failed
+               if (cache.remove(k, new VersionMatcher(params.streamVersion))) {
+                  createResponse(h, RemoveIfUnmodifiedResponse, Success, null)
+               } else {
+                  val prev = cache.get(k)
+                  val status = if (prev != null) OperationNotExecuted else KeyDoesNotExist
+                  createResponse(h, RemoveIfUnmodifiedResponse, status, prev)
+               }
             }
          }
          case ContainsKeyRequest => {
@@ -240,6 +274,22 @@ object Decoder10 extends AbstractVersionedDecoder with ServerConstants with Log
             val k = readKey(buffer)
             getKeyMetadata(h, k, cache)
          }
+         case GetAllRequest => {
+            val keys = readKeys(buffer)
+            if (isTrace) trace("About to create get all response, keys = %d", keys.size)
+            new GetAllResponse(h.version, h.messageId, h.cacheName, h.clientIntel,
+                               GetAllResponse, Success, h.topologyId, cache.getAdvancedCache.getAll(keys))
+         }
+         case RemoveAllRequest => {
+            val keys = readKeys(buffer)
+            // Previous values are never returned for a multi-key remove
+            val c = cache.getAdvancedCache.withFlags(IGNORE_RETURN_VALUES)
+            val it = keys.iterator
+            while (it.hasNext)
+               c.remove(it.next)
+            new Response(h.version, h.messageId, h.cacheName, h.clientIntel,
+                         RemoveAllResponse, Success, h.topologyId)
+         }
       }
    }
 
@@ -293,8 +343,10 @@ object Decoder10 extends AbstractVersionedDecoder with ServerConstants with Log
       }
    }
 
+   override def isPreviousValueRequired(h: HotRodHeader): Boolean = hasFlag(h, ForceReturnPreviousValue)
+
    override def getOptimizedCache(h: HotRodHeader, c: Cache[ByteArrayKey, CacheValue]): Cache[ByteArrayKey, CacheValue] = {
-      if (!hasFlag(h, ForceReturnPreviousValue)) {
+      if (!isPreviousValueRequired(h)) {
          c.getAdvancedCache.withFlags(IGNORE_RETURN_VALUES)
       } else {
          c
@@ -318,6 +370,10 @@ object Decoder10 extends AbstractVersionedDecoder with ServerConstants with Log
          case BulkGetRequest => BulkGetResponse
          case GetWithMetadataRequest => GetWithMetadataResponse
          case BulkGetKeysRequest => BulkGetKeysResponse
+         case PutAllRequest => PutAllResponse
+         case GetAllRequest => GetAllResponse
+         case RemoveAllRequest => RemoveAllResponse
+         case AddNearCacheListenerRequest => AddNearCacheListenerResponse
       }
    }
 
@@ -340,7 +396,13 @@ object OperationResponse extends Enumeration {
    val BulkGetResponse = Value(0x1A)
    val GetWithMetadataResponse = Value(0x1C)
    val BulkGetKeysResponse = Value(0x1E)
+   val PutAllResponse = Value(0x20)
+   val GetAllResponse = Value(0x22)
+   val RemoveAllResponse = Value(0x24)
+   val AddNearCacheListenerResponse = Value(0x26)
    val ErrorResponse = Value(0x50)
+   // Pushed by the server rather than sent in response to a request
+   val InvalidationEvent = Value(0x60)
 }
 
 object ProtocolFlag extends Enumeration {
@@ -54,4 +54,9 @@ object Encoders {
     * Encoder for version 1.2 of the Hot Rod protocol.
     */
    object Encoder12 extends AbstractTopologyAwareEncoder1x with Log
+
+   /**
+    * Encoder for version 1.3 of the Hot Rod protocol.
+    */
+   object Encoder13 extends AbstractTopologyAwareEncoder1x with Log
 }
@@ -34,6 +34,7 @@ import java.io.{IOException, StreamCorruptedException}
 import org.jboss.netty.buffer.ChannelBuffer
 import org.jboss.netty.channel.Channel
 import java.lang.StringBuilder
+import java.util.concurrent.TimeUnit
 
 /**
  * Top level Hot Rod decoder that after figuring out the version, delegates the rest of the reading to the
@@ -76,7 +77,7 @@ class HotRodDecoder(cacheManager: EmbeddedCacheManager, transport: NettyTranspor
 
       try {
          val decoder = version match {
-            case VERSION_10 | VERSION_11 | VERSION_12 => Decoder10
+            case VERSION_10 | VERSION_11 | VERSION_12 | VERSION_13 => Decoder10
             case _ => throw new UnknownVersionException(
                "Unknown version:" + version, version, messageId)
          }
@@ -153,11 +154,50 @@ class HotRodDecoder(cacheManager: EmbeddedCacheManager, transport: NettyTranspor
    override def createMultiGetResponse(pairs: Map[ByteArrayKey, CacheValue]): AnyRef =
       null // Unsupported
 
-   override protected def customDecodeHeader(ch: Channel, buffer: ChannelBuffer): AnyRef =
-      writeResponse(ch, header.decoder.customReadHeader(header, buffer, cache))
+   override protected def customDecodeHeader(ch: Channel, buffer: ChannelBuffer): AnyRef = {
+      header.op match {
+         case HotRodOperation.AddNearCacheListenerRequest => {
+            // Register before answering, so the client misses no change once it has the response
+            server.addNearCacheListener(header.cacheName, cache, ch, header.version)
+            writeResponse(ch, new Response(header.version, header.messageId, header.cacheName, header.clientIntel,
+                  OperationResponse.AddNearCacheListenerResponse, Success, header.topologyId))
+         }
+         case HotRodOperation.ClearRequest => {
+            val response = header.decoder.customReadHeader(header, buffer, cache)
+            server.nearCacheCleared(header.cacheName)
+            writeResponse(ch, response)
+         }
+         case _ => writeResponse(ch, header.decoder.customReadHeader(header, buffer, cache))
+      }
+   }
+
+   override protected def customDecodeKey(ch: Channel, buffer: ChannelBuffer): AnyRef = {
+      header.op match {
+         case HotRodOperation.PutAllRequest => writeResponse(ch, putAll(buffer))
+         case _ => writeResponse(ch, header.decoder.customReadKey(header, buffer, cache))
+      }
+   }
 
-   override protected def customDecodeKey(ch: Channel, buffer: ChannelBuffer): AnyRef =
-      writeResponse(ch, header.decoder.customReadKey(header, buffer, cache))
+   private def putAll(buffer: ChannelBuffer): AnyRef = {
+      // Read the whole request before touching the cache, since the read
+      // is replayed from the start if the buffer does not hold all of it
+      val (params, rawEntries) = header.decoder.readPutAllRequest(header, buffer)
+      val entries = new java.util.HashMap[ByteArrayKey, CacheValue](rawEntries.size * 4 / 3 + 1)
+      for ((k, rawValue) <- rawEntries)
+         entries.put(k, header.decoder.createValue(params, generateVersion(cache), rawValue))
+
+      val c = getOptimizedCache(cache)
+      (params.lifespan, params.maxIdle) match {
+         case (EXPIRATION_DEFAULT, EXPIRATION_DEFAULT) => c.putAll(entries)
+         case (_, EXPIRATION_DEFAULT) => c.putAll(entries,
+               toMillis(params.lifespan), TimeUnit.MILLISECONDS)
+         case (_, _) => c.putAll(entries,
+               toMillis(params.lifespan), TimeUnit.MILLISECONDS,
+               toMillis(params.maxIdle), TimeUnit.MILLISECONDS)
+      }
+      new Response(header.version, header.messageId, header.cacheName,
+            header.clientIntel, OperationResponse.PutAllResponse, Success, header.topologyId)
+   }
 
    override protected def customDecodeValue(ch: Channel, buffer: ChannelBuffer): AnyRef =
       writeResponse(ch, header.decoder.customReadValue(header, buffer, cache))
@@ -179,6 +219,9 @@ class HotRodDecoder(cacheManager: EmbeddedCacheManager, transport: NettyTranspor
    override protected def getOptimizedCache(c: Cache[ByteArrayKey, CacheValue]): Cache[ByteArrayKey, CacheValue] =
       header.decoder.getOptimizedCache(header, c)
 
+   override protected def isPreviousValueRequired: Boolean =
+      header.decoder.isPreviousValueRequired(header)
+
    override protected def createServerException(e: Exception, b: ChannelBuffer): (HotRodException, Boolean) = {
       e match {
          case i: InvalidMagicIdException => {
@@ -39,4 +39,8 @@ object HotRodOperation extends Enumeration(20) {
    val BulkGetRequest = Value
    val GetWithMetadataRequest = Value
    val BulkGetKeysRequest = Value
+   val PutAllRequest = Value
+   val GetAllRequest = Value
+   val RemoveAllRequest = Value
+   val AddNearCacheListenerRequest = Value
 }
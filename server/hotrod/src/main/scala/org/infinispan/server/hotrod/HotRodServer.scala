@@ -44,6 +44,7 @@ import org.infinispan.upgrade.RollingUpgradeManager
 import org.infinispan.server.hotrod.configuration.HotRodServerConfiguration
 import org.infinispan.server.hotrod.configuration.HotRodServerConfiguration
 import org.infinispan.server.hotrod.configuration.HotRodServerConfigurationBuilder
+import org.jboss.netty.channel.Channel
 
 /**
  * Hot Rod server, in charge of defining its encoder/decoder and, if clustered, update the topology information
@@ -66,6 +67,7 @@ class HotRodServer extends AbstractProtocolServer("HotRod") with Log {
    private var address: ServerAddress = _
    private var addressCache: Cache[Address, ServerAddress] = _
    private val knownCaches : java.util.Map[String, Cache[ByteArrayKey, CacheValue]] = ConcurrentMapFactory.makeConcurrentMap(4, 0.9f, 16)
+   private val nearCacheInvalidators : java.util.Map[String, NearCacheInvalidator] = ConcurrentMapFactory.makeConcurrentMap(4, 0.9f, 16)
    private val isTrace = isTraceEnabled
 
    def getAddress: ServerAddress = address
@@ -184,6 +186,52 @@ class HotRodServer extends AbstractProtocolServer("HotRod") with Log {
       if (migrationManager != null) migrationManager.addSourceMigrator(new HotRodSourceMigrator(cache))
    }
 
+   /**
+    * Pushes an invalidation event to the given channel whenever an entry of the cache changes on this node.
+    */
+   def addNearCacheListener(cacheName: String, cache: Cache[ByteArrayKey, CacheValue], ch: Channel, version: Byte) {
+      var invalidator = nearCacheInvalidators.get(cacheName)
+      if (invalidator == null) {
+         synchronized {
+            invalidator = nearCacheInvalidators.get(cacheName)
+            if (invalidator == null) {
+               invalidator = new NearCacheInvalidator(cacheName)
+               cache.addListener(invalidator)
+               nearCacheInvalidators.put(cacheName, invalidator)
+            }
+         }
+      }
+      invalidator.addChannel(ch, version)
+   }
+
+   /**
+    * Invalidates the near caches of a cache cleared through this server, clears not being notified to listeners.
+    */
+   def nearCacheCleared(cacheName: String) {
+      val invalidator = nearCacheInvalidators.get(cacheName)
+      if (invalidator != null) invalidator.invalidateAll()
+   }
+
+   override def stop {
+      stopNearCacheInvalidators()
+      super.stop
+   }
+
+   private def stopNearCacheInvalidators() {
+      synchronized {
+         val it = nearCacheInvalidators.entrySet.iterator
+         while (it.hasNext) {
+            val entry = it.next
+            it.remove()
+            val cache = knownCaches.get(entry.getKey)
+            if (cache != null && cache.getStatus.allowInvocations) cache.removeListener(entry.getValue)
+            entry.getValue.stop()
+         }
+      }
+   }
+
+   private[hotrod] def getNearCacheInvalidator(cacheName: String) = nearCacheInvalidators.get(cacheName)
+
    private[hotrod] def getAddressCache = addressCache
 
 }
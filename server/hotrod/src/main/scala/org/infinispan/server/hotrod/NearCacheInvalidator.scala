@@ -0,0 +1,116 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.infinispan.server.hotrod
+
+import logging.Log
+import org.infinispan.notifications.Listener
+import org.infinispan.notifications.cachelistener.annotation.{CacheEntriesEvicted, CacheEntryRemoved, CacheEntryModified}
+import org.infinispan.notifications.cachelistener.event.{CacheEntriesEvictedEvent, CacheEntryRemovedEvent, CacheEntryModifiedEvent}
+import org.infinispan.server.core.CacheValue
+import org.infinispan.util.ByteArrayKey
+import org.infinispan.util.concurrent.ConcurrentMapFactory
+import org.jboss.netty.channel.{ChannelFuture, ChannelFutureListener, Channel}
+
+/**
+ * Listener that pushes an invalidation event to the channels of the clients keeping a near cache of the cache
+ * whenever one of its entries is modified, removed or evicted on this node. Clients are notified of all changes
+ * rather than of those to the keys they read, which keeps the server free of any per client state beyond the
+ * channel. Channels are forgotten once closed.
+ * <p/>
+ * Notifications are asynchronous so that writes do not wait for the events to be queued. A client that does not
+ * keep up, leaving its channel not writable, is disconnected rather than sent events it might never read: losing
+ * the connection makes it clear its near cache before registering again.
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+@Listener(sync = false, observation = Listener.Observation.POST)
+class NearCacheInvalidator(cacheName: String) extends Log {
+
+   private val channels: java.util.Map[Channel, java.lang.Byte] = ConcurrentMapFactory.makeConcurrentMap(4, 0.9f, 16)
+
+   private val closeListener = new ChannelFutureListener {
+      override def operationComplete(future: ChannelFuture) {
+         channels.remove(future.getChannel)
+      }
+   }
+
+   def addChannel(ch: Channel, version: Byte) {
+      if (channels.put(ch, version) == null) {
+         ch.getCloseFuture.addListener(closeListener)
+         trace("Channel %s registered for near cache invalidations of cache %s", ch, cacheName)
+      }
+   }
+
+   @CacheEntryModified
+   def entryModified(e: CacheEntryModifiedEvent[ByteArrayKey, CacheValue]) {
+      invalidate(e.getKey.getData)
+   }
+
+   @CacheEntryRemoved
+   def entryRemoved(e: CacheEntryRemovedEvent[ByteArrayKey, CacheValue]) {
+      invalidate(e.getKey.getData)
+   }
+
+   @CacheEntriesEvicted
+   def entriesEvicted(e: CacheEntriesEvictedEvent[ByteArrayKey, CacheValue]) {
+      val keys = e.getEntries.keySet.iterator
+      while (keys.hasNext)
+         invalidate(keys.next.getData)
+   }
+
+   /**
+    * Invalidates all entries, the cache having been cleared, which is not notified to listeners.
+    */
+   def invalidateAll() {
+      invalidate(Array.empty[Byte])
+   }
+
+   /**
+    * Forgets all channels, closing them so that their clients clear their near caches.
+    */
+   def stop() {
+      val it = channels.keySet.iterator
+      while (it.hasNext) {
+         val ch = it.next
+         it.remove()
+         ch.close
+      }
+   }
+
+   def channelCount: Int = channels.size
+
+   private def invalidate(key: Array[Byte]) {
+      if (!channels.isEmpty) {
+         val it = channels.entrySet.iterator
+         while (it.hasNext) {
+            val entry = it.next
+            val ch = entry.getKey
+            if (ch.isWritable) {
+               ch.write(new InvalidationEvent(entry.getValue.byteValue, cacheName, key))
+            } else {
+               trace("Closing channel %s, which is not keeping up with the invalidations of cache %s", ch, cacheName)
+               it.remove()
+               ch.close
+            }
+         }
+      }
+   }
+
+}
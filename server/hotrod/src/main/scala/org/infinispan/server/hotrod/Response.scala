@@ -26,6 +26,8 @@ import OperationStatus._
 import OperationResponse._
 import org.infinispan.util.Util
 import org.infinispan.remoting.transport.Address
+import org.infinispan.util.ByteArrayKey
+import org.infinispan.server.core.CacheValue
 import java.lang.StringBuilder
 
 /**
@@ -80,6 +82,22 @@ class GetResponse(override val version: Byte, override val messageId: Long, over
          .append("}").toString
    }
 }
+/**
+ * Pushed to the clients that asked for near cache invalidations whenever an entry of the cache changes. An empty key
+ * invalidates all entries.
+ */
+class InvalidationEvent(override val version: Byte, override val cacheName: String, val key: Array[Byte])
+      extends Response(version, 0, cacheName, Constants.INTELLIGENCE_BASIC, OperationResponse.InvalidationEvent,
+         Success, 0) {
+   override def toString = {
+      new StringBuilder().append("InvalidationEvent").append("{")
+         .append("version=").append(version)
+         .append(", cacheName=").append(cacheName)
+         .append(", key=").append(Util.printArray(key, true))
+         .append("}").toString
+   }
+}
+
 class BulkGetResponse(override val version: Byte, override val messageId: Long, override val cacheName: String, override val clientIntel: Short,
                   override val operation: OperationResponse, override val status: OperationStatus,
                   override val topologyId: Int, val count: Int)
@@ -110,6 +128,21 @@ class BulkGetKeysResponse(override val version: Byte, override val messageId: Lo
    }
 }
 
+class GetAllResponse(override val version: Byte, override val messageId: Long, override val cacheName: String, override val clientIntel: Short,
+                     override val operation: OperationResponse, override val status: OperationStatus,
+                     override val topologyId: Int, val entries: java.util.Map[ByteArrayKey, CacheValue])
+      extends Response(version, messageId, cacheName, clientIntel, operation, status, topologyId) {
+   override def toString = {
+      new StringBuilder().append("GetAllResponse").append("{")
+         .append("version=").append(version)
+         .append(", messageId=").append(messageId)
+         .append(", operation=").append(operation)
+         .append(", status=").append(status)
+         .append(", entries=").append(entries.size)
+         .append("}").toString
+   }
+}
+
 class GetWithVersionResponse(override val version: Byte, override val messageId: Long, override val cacheName: String,
                              override val clientIntel: Short, override val operation: OperationResponse,
                              override val status: OperationStatus,
@@ -31,8 +31,8 @@ public class HotRodServerConfiguration extends ProtocolServerConfiguration {
    private final long topologyUpdateTimeout;
 
    HotRodServerConfiguration(String proxyHost, int proxyPort, long topologyLockTimeout, long topologyReplTimeout, boolean topologyStateTransfer, long topologyUpdateTimeout,
-         String host, int port, int idleTimeout, int recvBufSize, int sendBufSize, boolean tcpNoDelay, int workerThreads) {
-      super(host, port, idleTimeout, recvBufSize, sendBufSize, tcpNoDelay, workerThreads);
+         String host, int port, int idleTimeout, int recvBufSize, int sendBufSize, boolean tcpNoDelay, int workerThreads, int requestThreads, boolean coalesceWrites) {
+      super(host, port, idleTimeout, recvBufSize, sendBufSize, tcpNoDelay, workerThreads, requestThreads, coalesceWrites);
       this.proxyHost = proxyHost;
       this.proxyPort = proxyPort;
       this.topologyLockTimeout = topologyLockTimeout;
@@ -101,7 +101,7 @@ public HotRodServerConfigurationBuilder withProperties(Properties properties) {
    @Override
    public HotRodServerConfiguration create() {
       return new HotRodServerConfiguration(proxyHost, proxyPort, topologyLockTimeout, topologyReplTimeout, topologyStateTransfer, topologyUpdateTimeout, host, port, idleTimeout,
-            recvBufSize, sendBufSize, tcpNoDelay, workerThreads);
+            recvBufSize, sendBufSize, tcpNoDelay, workerThreads, requestThreads, coalesceWrites);
    }
 
    @Override
@@ -0,0 +1,107 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.infinispan.server.hotrod
+
+import java.lang.reflect.Method
+import java.util.Arrays
+import test.HotRodTestingUtil._
+import test.{TestGetAllResponse, HotRodClient}
+import org.infinispan.server.hotrod.OperationStatus._
+import org.infinispan.util.ByteArrayKey
+import org.testng.Assert._
+import org.testng.annotations.Test
+
+/**
+ * Tests the multi-key putAll (0x1F), getAll (0x21) and removeAll (0x23) operations of version 1.3 of the Hot Rod
+ * protocol.
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+@Test(groups = Array("functional"), testName = "server.hotrod.HotRod13MultiKeyOperationsTest")
+class HotRod13MultiKeyOperationsTest extends HotRodSingleNodeTest {
+
+   override protected def connectClient: HotRodClient =
+      new HotRodClient("127.0.0.1", server.getPort, cacheName, 60, 13)
+
+   def testPutAllAndGetAll(m: Method) {
+      val entries = entriesFor(m, 3)
+      assertStatus(client.putAll(entries, 0, 0), Success)
+      for ((key, value) <- entries)
+         assertSuccess(client.get(key, 0), value)
+
+      val resp = client.getAll(entries.map(_._1) :+ k(m, "missing-")).asInstanceOf[TestGetAllResponse]
+      assertStatus(resp, Success)
+      assertEquals(resp.entries.size, entries.size)
+      for ((key, value) <- entries)
+         assertTrue(Arrays.equals(resp.entries(new ByteArrayKey(key)), value))
+   }
+
+   def testPutAllGivesEachEntryItsOwnVersion(m: Method) {
+      val entries = entriesFor(m, 3)
+      assertStatus(client.putAll(entries, 0, 0), Success)
+      val versions = entries.map(e => client.getWithVersion(e._1, 0).dataVersion)
+      assertEquals(versions.distinct.size, entries.size)
+   }
+
+   def testPutAllWithLifespan(m: Method) {
+      val entries = entriesFor(m, 3)
+      assertStatus(client.putAll(entries, 1, 0), Success)
+      Thread.sleep(1100)
+      val resp = client.getAll(entries.map(_._1)).asInstanceOf[TestGetAllResponse]
+      assertStatus(resp, Success)
+      assertTrue(resp.entries.isEmpty)
+   }
+
+   def testPutAllOverwrites(m: Method) {
+      client.assertPut(m, "k0-", "v-")
+      val entries = entriesFor(m, 2)
+      assertStatus(client.putAll(entries, 0, 0), Success)
+      assertSuccess(client.get(k(m, "k0-"), 0), entries.head._2)
+   }
+
+   def testGetAllOfNoKeys(m: Method) {
+      val resp = client.getAll(Seq.empty).asInstanceOf[TestGetAllResponse]
+      assertStatus(resp, Success)
+      assertTrue(resp.entries.isEmpty)
+   }
+
+   def testRemoveAll(m: Method) {
+      val entries = entriesFor(m, 3)
+      assertStatus(client.putAll(entries, 0, 0), Success)
+      client.assertPut(m, "kept-", "v-")
+      assertStatus(client.removeAll(entries.map(_._1) :+ k(m, "missing-")), Success)
+      for ((key, _) <- entries)
+         assertKeyDoesNotExist(client.get(key, 0))
+      assertSuccess(client.get(k(m, "kept-"), 0), v(m, "v-"))
+   }
+
+   def testMultiKeyOperationsNeedVersion13(m: Method) {
+      val client12 = new HotRodClient("127.0.0.1", server.getPort, cacheName, 60, 12)
+      try {
+         assertEquals(client12.getAll(Seq(k(m))).status, UnknownOperation)
+      } finally {
+         killClient(client12)
+      }
+   }
+
+   private def entriesFor(m: Method, count: Int): Seq[(Array[Byte], Array[Byte])] =
+      for (i <- 0 until count) yield (k(m, "k" + i + "-"), v(m, "v" + i + "-"))
+
+}
@@ -0,0 +1,139 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.infinispan.server.hotrod
+
+import java.lang.reflect.Method
+import java.util.Arrays
+import test.HotRodTestingUtil._
+import test.{TestInvalidationEvent, HotRodClient}
+import org.infinispan.server.hotrod.OperationStatus._
+import org.infinispan.server.core.test.ServerTestingUtil._
+import org.infinispan.test.TestingUtil
+import org.testng.Assert._
+import org.testng.annotations.Test
+
+/**
+ * Tests the near cache invalidations that version 1.3 of the Hot Rod protocol pushes to the clients registered with
+ * the add near cache listener operation (0x25).
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+@Test(groups = Array("functional"), testName = "server.hotrod.HotRod13NearCacheTest")
+class HotRod13NearCacheTest extends HotRodSingleNodeTest {
+
+   override protected def connectClient: HotRodClient =
+      new HotRodClient("127.0.0.1", server.getPort, cacheName, 60, 13)
+
+   def testRegistration(m: Method) {
+      val listener = connectClient
+      try {
+         val resp = listener.addNearCacheListener
+         assertStatus(resp, Success)
+         assertEquals(resp.operation, OperationResponse.AddNearCacheListenerResponse)
+         assertTrue(server.getNearCacheInvalidator(cacheName).channelCount > 0)
+      } finally {
+         killClient(listener)
+      }
+   }
+
+   def testInvalidationOnPut(m: Method) {
+      val listener = registeredClient
+      try {
+         client.assertPut(m)
+         assertInvalidated(listener, k(m))
+      } finally {
+         killClient(listener)
+      }
+   }
+
+   def testInvalidationOnRemove(m: Method) {
+      client.assertPut(m)
+      val listener = registeredClient
+      try {
+         assertStatus(client.remove(k(m)), Success)
+         assertInvalidated(listener, k(m))
+      } finally {
+         killClient(listener)
+      }
+   }
+
+   def testInvalidateAllOnClear(m: Method) {
+      val listener = registeredClient
+      try {
+         assertStatus(client.clear, Success)
+         val event = listener.pollInvalidation(10000)
+         assertNotNull(event)
+         assertTrue(event.isInvalidateAll)
+      } finally {
+         killClient(listener)
+      }
+   }
+
+   def testClosedChannelIsUnregistered(m: Method) {
+      val listener = registeredClient
+      val invalidator = server.getNearCacheInvalidator(cacheName)
+      val registered = invalidator.channelCount
+      listener.stop.awaitUninterruptibly
+      waitFor(invalidator.channelCount < registered)
+      // Writes keep working with one channel less to notify
+      client.assertPut(m)
+   }
+
+   def testStopRemovesListener(m: Method) {
+      val stoppedServer = startHotRodServer(cacheManager, server.getPort + 50)
+      val listener = new HotRodClient("127.0.0.1", stoppedServer.getPort, cacheName, 60, 13)
+      try {
+         assertStatus(listener.addNearCacheListener, Success)
+         val invalidator = stoppedServer.getNearCacheInvalidator(cacheName)
+         assertTrue(cacheManager.getCache(cacheName).getListeners.contains(invalidator))
+         killServer(stoppedServer)
+         assertFalse(cacheManager.getCache(cacheName).getListeners.contains(invalidator))
+         assertEquals(invalidator.channelCount, 0)
+         waitFor(!listener.isConnected)
+      } finally {
+         killClient(listener)
+      }
+   }
+
+   private def registeredClient: HotRodClient = {
+      val listener = connectClient
+      assertStatus(listener.addNearCacheListener, Success)
+      listener
+   }
+
+   private def assertInvalidated(listener: HotRodClient, key: Array[Byte]) {
+      // Earlier writes may still be notified, the listener being asynchronous
+      var event: TestInvalidationEvent = null
+      do {
+         event = listener.pollInvalidation(10000)
+         assertNotNull(event, "No invalidation received for " + Arrays.toString(key))
+      } while (!Arrays.equals(event.key, key))
+   }
+
+   private def waitFor(condition: => Boolean) {
+      var i = 0
+      while (!condition && i < 100) {
+         TestingUtil.sleepThread(100)
+         i += 1
+      }
+      assertTrue(condition)
+   }
+
+}
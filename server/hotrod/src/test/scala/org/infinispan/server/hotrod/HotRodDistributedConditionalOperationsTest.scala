@@ -0,0 +1,123 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.infinispan.server.hotrod
+
+import org.testng.annotations.Test
+import java.lang.reflect.Method
+import java.util.Arrays
+import org.infinispan.server.hotrod.OperationStatus._
+import test.HotRodTestingUtil._
+import test.TestResponseWithPrevious
+import org.testng.Assert._
+import org.infinispan.test.AbstractCacheTest._
+import org.infinispan.configuration.cache.{CacheMode, ConfigurationBuilder}
+
+/**
+ * Tests replaceIfUnmodified and removeIfUnmodified against a distributed cache with a single owner per key, so
+ * that the version check runs on whichever node owns the key, local or remote to the server that got the request.
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+@Test(groups = Array("functional"), testName = "server.hotrod.HotRodDistributedConditionalOperationsTest")
+class HotRodDistributedConditionalOperationsTest extends HotRodMultiNodeTest {
+
+   private val numKeys = 10
+
+   override protected def cacheName: String = "hotRodDistConditional"
+
+   override protected def createCacheConfig: ConfigurationBuilder = {
+      val cfg = getDefaultClusteredCacheConfig(CacheMode.DIST_SYNC, false)
+      cfg.clustering().hash().numOwners(1).l1().disable()
+      cfg
+   }
+
+   override protected def protocolVersion : Byte = 12
+
+   def testReplaceIfUnmodified(m: Method) {
+      val (client1, client2) = (clients.head, clients.tail.head)
+      for (i <- 0 until numKeys) {
+         val key = k(m, "k" + i + "-")
+         assertStatus(client1.replaceIfUnmodified(key, 0, 0, v(m), 999), KeyDoesNotExist)
+         assertStatus(client1.put(key, 0, 0, v(m)), Success)
+         val resp = client2.getWithVersion(key, 0)
+         assertSuccess(resp, v(m), 0)
+         assertStatus(client2.replaceIfUnmodified(key, 0, 0, v(m, "v1-"), resp.dataVersion), Success)
+         assertSuccess(client1.get(key, 0), v(m, "v1-"))
+         assertStatus(client1.replaceIfUnmodified(key, 0, 0, v(m, "v2-"), resp.dataVersion), OperationNotExecuted)
+         assertSuccess(client2.get(key, 0), v(m, "v1-"))
+      }
+   }
+
+   def testReplaceIfUnmodifiedWithPreviousValue(m: Method) {
+      val (client1, client2) = (clients.head, clients.tail.head)
+      for (i <- 0 until numKeys) {
+         val key = k(m, "k" + i + "-")
+         var resp = client1.replaceIfUnmodified(key, 0, 0, v(m), 999, 1).asInstanceOf[TestResponseWithPrevious]
+         assertStatus(resp, KeyDoesNotExist)
+         assertEquals(resp.previous, None)
+         assertStatus(client1.put(key, 0, 0, v(m)), Success)
+         val getResp = client2.getWithVersion(key, 0)
+         assertSuccess(getResp, v(m), 0)
+         resp = client1.replaceIfUnmodified(key, 0, 0, v(m, "v2-"), 888, 1).asInstanceOf[TestResponseWithPrevious]
+         assertStatus(resp, OperationNotExecuted)
+         assertTrue(Arrays.equals(v(m), resp.previous.get))
+         resp = client2.replaceIfUnmodified(key, 0, 0, v(m, "v3-"), getResp.dataVersion, 1).asInstanceOf[TestResponseWithPrevious]
+         assertStatus(resp, Success)
+         assertTrue(Arrays.equals(v(m), resp.previous.get))
+         assertSuccess(client1.get(key, 0), v(m, "v3-"))
+      }
+   }
+
+   def testRemoveIfUnmodified(m: Method) {
+      val (client1, client2) = (clients.head, clients.tail.head)
+      for (i <- 0 until numKeys) {
+         val key = k(m, "k" + i + "-")
+         assertStatus(client1.removeIfUnmodified(key, 0, 0, v(m), 999), KeyDoesNotExist)
+         assertStatus(client1.put(key, 0, 0, v(m)), Success)
+         val resp = client2.getWithVersion(key, 0)
+         assertSuccess(resp, v(m), 0)
+         assertStatus(client1.removeIfUnmodified(key, 0, 0, v(m), resp.dataVersion + 1), OperationNotExecuted)
+         assertSuccess(client2.get(key, 0), v(m))
+         assertStatus(client2.removeIfUnmodified(key, 0, 0, v(m), resp.dataVersion), Success)
+         assertKeyDoesNotExist(client1.get(key, 0))
+      }
+   }
+
+   def testRemoveIfUnmodifiedWithPreviousValue(m: Method) {
+      val (client1, client2) = (clients.head, clients.tail.head)
+      for (i <- 0 until numKeys) {
+         val key = k(m, "k" + i + "-")
+         var resp = client1.removeIfUnmodified(key, 0, 0, v(m), 999, 1).asInstanceOf[TestResponseWithPrevious]
+         assertStatus(resp, KeyDoesNotExist)
+         assertEquals(resp.previous, None)
+         assertStatus(client1.put(key, 0, 0, v(m)), Success)
+         val getResp = client2.getWithVersion(key, 0)
+         assertSuccess(getResp, v(m), 0)
+         resp = client1.removeIfUnmodified(key, 0, 0, v(m), 888, 1).asInstanceOf[TestResponseWithPrevious]
+         assertStatus(resp, OperationNotExecuted)
+         assertTrue(Arrays.equals(v(m), resp.previous.get))
+         resp = client2.removeIfUnmodified(key, 0, 0, v(m), getResp.dataVersion, 1).asInstanceOf[TestResponseWithPrevious]
+         assertStatus(resp, Success)
+         assertTrue(Arrays.equals(v(m), resp.previous.get))
+         assertKeyDoesNotExist(client1.get(key, 0))
+      }
+   }
+
+}
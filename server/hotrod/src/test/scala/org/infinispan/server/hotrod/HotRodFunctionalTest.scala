@@ -35,6 +35,7 @@ import org.infinispan.test.TestingUtil.generateRandomString
 import org.infinispan.config.Configuration
 import java.util.concurrent.TimeUnit
 import org.infinispan.server.core.test.Stoppable
+import org.infinispan.server.core.transport.ExtendedChannelBuffer.ZeroCopyThreshold
 
 /**
  * Hot Rod server functional test.
@@ -113,6 +114,14 @@ class HotRodFunctionalTest extends HotRodSingleNodeTest {
       assertSuccess(client.assertGet(m), v(m))
    }
 
+   def testGetLargeValue(m: Method) {
+      val value = generateRandomString(ZeroCopyThreshold * 4).getBytes
+      assertStatus(client.put(k(m), 0, 0, value), Success)
+      assertSuccess(client.assertGet(m), value)
+      assertSuccess(client.getWithVersion(k(m), 0), value, 0)
+      assertSuccess(client.put(k(m), 0, 0, v(m), 1).asInstanceOf[TestResponseWithPrevious], value)
+   }
+
    def testGetDoesNotExist(m: Method) {
       assertKeyDoesNotExist(client.assertGet(m))
    }
@@ -128,6 +137,20 @@ class HotRodFunctionalTest extends HotRodSingleNodeTest {
       assertStatus(resp, OperationNotExecuted)
    }
 
+   def testPutIfAbsentExistReusesVersion(m: Method) {
+      client.assertPut(m)
+      val resp = client.getWithVersion(k(m), 0)
+      assertSuccess(resp, v(m), 0)
+      assertStatus(client.putIfAbsent(k(m) , 0, 0, v(m, "v2-")), OperationNotExecuted)
+      // The version generated for the rejected putIfAbsent was never handed out, so the next write gets it
+      assertStatus(client.put(k(m, "k1-"), 0, 0, v(m, "v1-")), Success)
+      val resp2 = client.getWithVersion(k(m, "k1-"), 0)
+      assertSuccess(resp2, v(m, "v1-"), 0)
+      assertEquals(resp2.dataVersion, resp.dataVersion + 1)
+      assertStatus(client.replaceIfUnmodified(k(m), 0, 0, v(m, "v3-"), resp2.dataVersion), OperationNotExecuted)
+      assertStatus(client.replaceIfUnmodified(k(m), 0, 0, v(m, "v3-"), resp.dataVersion), Success)
+   }
+
    def testPutIfAbsentWithLifespan(m: Method) {
       val resp = client.putIfAbsent(k(m) , 1, 0, v(m))
       assertStatus(resp, Success)
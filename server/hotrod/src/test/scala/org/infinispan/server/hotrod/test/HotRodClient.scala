@@ -36,7 +36,7 @@ import collection.mutable
 import collection.immutable
 import java.lang.reflect.Method
 import HotRodTestingUtil._
-import java.util.concurrent.{ConcurrentHashMap, Executors}
+import java.util.concurrent.{TimeUnit, LinkedBlockingQueue, ConcurrentHashMap, Executors}
 import java.util.concurrent.atomic.{AtomicLong}
 import mutable.ListBuffer
 import org.infinispan.test.TestingUtil
@@ -247,6 +247,34 @@ class HotRodClient(host: String, port: Int, defaultCacheName: String, rspTimeout
       val handler = ch.getPipeline.getLast.asInstanceOf[ClientHandler]
       handler.getResponse(op.id).asInstanceOf[TestBulkGetKeysResponse]
    }
+
+   def putAll(entries: Seq[(Array[Byte], Array[Byte])], lifespan: Int, maxIdle: Int): TestResponse = {
+      val op = new PutAllOp(0xA0, protocolVersion, 0x1F, defaultCacheName, 1, 0, lifespan, maxIdle, entries)
+      execute(op, op.id)
+   }
+
+   def getAll(keys: Seq[Array[Byte]]): TestResponse = {
+      val op = new MultiKeyOp(0xA0, protocolVersion, 0x21, defaultCacheName, 1, 0, keys)
+      execute(op, op.id)
+   }
+
+   def removeAll(keys: Seq[Array[Byte]]): TestResponse = {
+      val op = new MultiKeyOp(0xA0, protocolVersion, 0x23, defaultCacheName, 1, 0, keys)
+      execute(op, op.id)
+   }
+
+   def addNearCacheListener: TestResponse =
+      execute(0xA0, 0x25, defaultCacheName, null, 0, 0, null, 0, 1 ,0)
+
+   /**
+    * Waits for the next invalidation event pushed by the server, returning null if none arrives in time.
+    */
+   def pollInvalidation(timeoutMillis: Long): TestInvalidationEvent = {
+      val handler = ch.getPipeline.getLast.asInstanceOf[ClientHandler]
+      handler.pollEvent(timeoutMillis)
+   }
+
+   def isConnected: Boolean = ch.isConnected
 }
 
 private class ClientPipelineFactory(client: HotRodClient, rspTimeoutSeconds: Int) extends ChannelPipelineFactory {
@@ -274,22 +302,27 @@ private class Encoder extends OneToOneEncoder {
             buffer.writeByte(partial.code) // opcode
             buffer
          }
-         case op: Op => {
-            val buffer = dynamicBuffer
-            buffer.writeByte(op.magic.asInstanceOf[Byte]) // magic
-            writeUnsignedLong(op.id, buffer) // message id
-            buffer.writeByte(op.version) // version
-            buffer.writeByte(op.code) // opcode
-            if (!op.cacheName.isEmpty) {
-               writeRangedBytes(op.cacheName.getBytes(), buffer) // cache name length + cache name
-            } else {
-               writeUnsignedInt(0, buffer) // Zero length
+         case putAll: PutAllOp => {
+            val buffer = writeHeader(putAll)
+            writeUnsignedInt(putAll.lifespan, buffer) // lifespan
+            writeUnsignedInt(putAll.maxIdle, buffer) // maxIdle
+            writeUnsignedInt(putAll.entries.size, buffer) // entry count
+            for ((k, v) <- putAll.entries) {
+               writeRangedBytes(k, buffer) // key length + key
+               writeRangedBytes(v, buffer) // value length + value
             }
-            writeUnsignedInt(op.flags, buffer) // flags
-            buffer.writeByte(op.clientIntel) // client intelligence
-            writeUnsignedInt(op.topologyId, buffer) // topology id
-            writeRangedBytes(new Array[Byte](0), buffer)
-            if (op.code != 0x13 && op.code != 0x15 && op.code != 0x17 && op.code != 0x19 && op.code != 0x1D) { // if it's a key based op...
+            buffer
+         }
+         case multiKey: MultiKeyOp => {
+            val buffer = writeHeader(multiKey)
+            writeUnsignedInt(multiKey.keys.size, buffer) // key count
+            multiKey.keys.foreach(writeRangedBytes(_, buffer)) // key length + key
+            buffer
+         }
+         case op: Op => {
+            val buffer = writeHeader(op)
+            if (op.code != 0x13 && op.code != 0x15 && op.code != 0x17 && op.code != 0x19 && op.code != 0x1D
+                  && op.code != 0x25) { // if it's a key based op...
                writeRangedBytes(op.key, buffer) // key length + key
                if (op.value != null) {
                   if (op.code != 0x0D) { // If it's not removeIfUnmodified...
@@ -313,6 +346,24 @@ private class Encoder extends OneToOneEncoder {
       }
    }
 
+   private def writeHeader(op: Op): ChannelBuffer = {
+      val buffer = dynamicBuffer
+      buffer.writeByte(op.magic.asInstanceOf[Byte]) // magic
+      writeUnsignedLong(op.id, buffer) // message id
+      buffer.writeByte(op.version) // version
+      buffer.writeByte(op.code) // opcode
+      if (!op.cacheName.isEmpty) {
+         writeRangedBytes(op.cacheName.getBytes(), buffer) // cache name length + cache name
+      } else {
+         writeUnsignedInt(0, buffer) // Zero length
+      }
+      writeUnsignedInt(op.flags, buffer) // flags
+      buffer.writeByte(op.clientIntel) // client intelligence
+      writeUnsignedInt(op.topologyId, buffer) // topology id
+      writeRangedBytes(new Array[Byte](0), buffer)
+      buffer
+   }
+
 }
 
 object HotRodClient {
@@ -388,7 +439,8 @@ private class Decoder(client: HotRodClient) extends ReplayingDecoder[VoidEnum] w
             } else new TestResponse(op.version, id, op.cacheName, op.clientIntel,
                      opCode, status, op.topologyId, topologyChangeResponse)
          }
-         case ContainsKeyResponse | ClearResponse | PingResponse =>
+         case ContainsKeyResponse | ClearResponse | PingResponse | PutAllResponse | RemoveAllResponse
+              | AddNearCacheListenerResponse =>
             new TestResponse(op.version, id, op.cacheName, op.clientIntel, opCode,
                   status, op.topologyId, topologyChangeResponse)
          case GetWithVersionResponse  => {
@@ -462,6 +514,19 @@ private class Decoder(client: HotRodClient) extends ReplayingDecoder[VoidEnum] w
             new TestBulkGetKeysResponse(op.version, id, op.cacheName, op.clientIntel,
                   bulk, op.topologyId, topologyChangeResponse)
          }
+         case GetAllResponse => {
+            val entries = mutable.Map.empty[ByteArrayKey, Array[Byte]]
+            if (status == Success) {
+               val count = readUnsignedInt(buf)
+               for (i <- 0 until count)
+                  entries += (new ByteArrayKey(readRangedBytes(buf)) -> readRangedBytes(buf))
+            }
+            new TestGetAllResponse(op.version, id, op.cacheName, op.clientIntel, status,
+                  immutable.Map[ByteArrayKey, Array[Byte]]() ++ entries, op.topologyId, topologyChangeResponse)
+         }
+         case OperationResponse.InvalidationEvent =>
+            // Pushed by the server, so there is no operation it answers
+            new TestInvalidationEvent(readRangedBytes(buf))
          case ErrorResponse => {
             if (op == null)
                new TestErrorResponse(10, id, "", 0, status, 0,
@@ -539,12 +604,23 @@ private class ClientHandler(rspTimeoutSeconds: Int) extends SimpleChannelUpstrea
 
    private val responses = new ConcurrentHashMap[Long, TestResponse]
 
+   private val events = new LinkedBlockingQueue[TestInvalidationEvent]
+
    override def messageReceived(ctx: ChannelHandlerContext, e: MessageEvent) {
-      val resp = e.getMessage.asInstanceOf[TestResponse]
-      trace("Put %s in responses", resp)
-      responses.put(resp.messageId, resp)
+      e.getMessage match {
+         case event: TestInvalidationEvent => {
+            trace("Put %s in events", event)
+            events.put(event)
+         }
+         case resp: TestResponse => {
+            trace("Put %s in responses", resp)
+            responses.put(resp.messageId, resp)
+         }
+      }
    }
 
+   def pollEvent(timeoutMillis: Long): TestInvalidationEvent = events.poll(timeoutMillis, TimeUnit.MILLISECONDS)
+
    def getResponse(messageId: Long): TestResponse = {
       // TODO: Very very primitive way of waiting for a response. Convert to a Future
       var i = 0
@@ -640,6 +716,28 @@ class BulkGetKeysOp(override val magic: Int,
      extends Op(magic, version, code, cacheName, null, 0, 0, null, 0, 0,
                 clientIntel, topologyId)
 
+class PutAllOp(override val magic: Int,
+               override val version: Byte,
+               override val code: Byte,
+               override val cacheName: String,
+               override val clientIntel: Byte,
+               override val topologyId: Int,
+               override val lifespan: Int,
+               override val maxIdle: Int,
+               val entries: Seq[(Array[Byte], Array[Byte])])
+     extends Op(magic, version, code, cacheName, null, lifespan, maxIdle, null, 0, 0,
+                clientIntel, topologyId)
+
+class MultiKeyOp(override val magic: Int,
+                 override val version: Byte,
+                 override val code: Byte,
+                 override val cacheName: String,
+                 override val clientIntel: Byte,
+                 override val topologyId: Int,
+                 val keys: Seq[Array[Byte]])
+     extends Op(magic, version, code, cacheName, null, 0, 0, null, 0, 0,
+                clientIntel, topologyId)
+
 class TestResponse(override val version: Byte, override val messageId: Long,
                    override val cacheName: String, override val clientIntel: Short,
                    override val operation: OperationResponse,
@@ -720,6 +818,19 @@ class TestBulkGetResponse(override val version: Byte, override val messageId: Lo
                           override val topologyId: Int, override val topologyResponse: Option[AbstractTestTopologyAwareResponse])
       extends TestResponse(version, messageId, cacheName, clientIntel, BulkGetResponse, Success, topologyId, topologyResponse)
 
+class TestGetAllResponse(override val version: Byte, override val messageId: Long,
+                         override val cacheName: String, override val clientIntel: Short,
+                         override val status: OperationStatus,
+                         val entries: Map[ByteArrayKey, Array[Byte]],
+                         override val topologyId: Int, override val topologyResponse: Option[AbstractTestTopologyAwareResponse])
+      extends TestResponse(version, messageId, cacheName, clientIntel, GetAllResponse, status, topologyId, topologyResponse)
+
+class TestInvalidationEvent(val key: Array[Byte])
+      extends TestResponse(Constants.VERSION_13, 0, "", Constants.INTELLIGENCE_BASIC,
+                           OperationResponse.InvalidationEvent, Success, 0, None) {
+   def isInvalidateAll: Boolean = key.length == 0
+}
+
 class TestBulkGetKeysResponse(override val version: Byte, override val messageId: Long,
                           override val cacheName: String, override val clientIntel: Short,
                           val bulkData: Set[ByteArrayKey],
@@ -34,7 +34,7 @@ import org.infinispan.server.core.transport.ExtendedChannelBuffer._
 import org.infinispan.{AdvancedCache, Version, CacheException, Cache}
 import collection.mutable.ListBuffer
 import collection.{mutable, immutable}
-import org.jboss.netty.buffer.ChannelBuffer
+import org.jboss.netty.buffer.{ChannelBuffers, ChannelBuffer}
 import transport.NettyTransport
 import DecoderState._
 import java.lang.StringBuilder
@@ -106,11 +106,16 @@ class MemcachedDecoder(memcachedCache: Cache[String, MemcachedValue], scheduler:
    override protected def get(buffer: ChannelBuffer): AnyRef = {
       val keys = readKeys(buffer)
       if (keys.length > 1) {
+         val keySet = new java.util.LinkedHashSet[String]()
+         for (k <- keys)
+            keySet.add(checkKeyLength(k, endOfOp = true, buffer))
+         // Retrieve all keys in a single invocation, which in clustered
+         // caches fetches remote keys with one request per owner
          val map = new mutable.HashMap[String, MemcachedValue]()
-         for (k <- keys) {
-            val v = cache.get(checkKeyLength(k, endOfOp = true, buffer))
-            if (v != null)
-               map += (k -> v)
+         val it = cache.getAdvancedCache.getAll(keySet).entrySet().iterator()
+         while (it.hasNext) {
+            val entry = it.next()
+            map += (entry.getKey -> entry.getValue)
          }
          createMultiGetResponse(new immutable.HashMap ++ map)
       } else {
@@ -540,13 +545,12 @@ class MemcachedDecoder(memcachedCache: Cache[String, MemcachedValue], scheduler:
 
    private def buildGetResponse(op: Enumeration#Value, k: String, v: MemcachedValue): ChannelBuffer = {
       val buf = buildGetHeaderBegin(k, v, 0)
-      writeGetHeaderData(v.data, buf)
+      writeGetHeaderData(v.data, buf, false)
    }
 
    private def buildSingleGetResponse(k: String, v: MemcachedValue): ChannelBuffer = {
       val buf = buildGetHeaderBegin(k, v, END_SIZE)
-      writeGetHeaderData(v.data, buf)
-      writeGetHeaderEnd(buf)
+      writeGetHeaderData(v.data, buf, true)
    }
    
    private def buildGetHeaderBegin(k: String, v: MemcachedValue,
@@ -560,7 +564,9 @@ class MemcachedDecoder(memcachedCache: Cache[String, MemcachedValue], scheduler:
          else ZERO
 
       val flagsSize = flags.length
-      val buf = buffer(VALUE_SIZE + key.length + data.length + flagsSize
+      // Large values are not copied into the response, so no room is needed for them
+      val dataSpace = if (data.length >= ZeroCopyThreshold) 0 else data.length
+      val buf = buffer(VALUE_SIZE + key.length + dataSpace + flagsSize
               + dataSize.length + 6 + extraSpace)
       buf.writeBytes(VALUE)
       buf.writeBytes(key)
@@ -571,16 +577,17 @@ class MemcachedDecoder(memcachedCache: Cache[String, MemcachedValue], scheduler:
       buf
    }
 
-   private def writeGetHeaderData(data: Array[Byte], buf: ChannelBuffer): ChannelBuffer = {
+   private def writeGetHeaderData(data: Array[Byte], buf: ChannelBuffer, withEnd: Boolean): ChannelBuffer = {
       buf.writeBytes(CRLFBytes)
-      buf.writeBytes(data)
-      buf.writeBytes(CRLFBytes)
-      buf
-   }
-
-   private def writeGetHeaderEnd(buf: ChannelBuffer): ChannelBuffer = {
-      buf.writeBytes(END)
-      buf
+      if (data.length >= ZeroCopyThreshold) {
+         val end = if (withEnd) wrappedBuffer(CRLFBytes, END) else wrappedBuffer(CRLFBytes)
+         ChannelBuffers.wrappedBuffer(buf, wrappedBuffer(data), end)
+      } else {
+         buf.writeBytes(data)
+         buf.writeBytes(CRLFBytes)
+         if (withEnd) buf.writeBytes(END)
+         buf
+      }
    }
 
    private def buildSingleGetWithVersionResponse(k: String, v: MemcachedValue): ChannelBuffer = {
@@ -588,8 +595,7 @@ class MemcachedDecoder(memcachedCache: Cache[String, MemcachedValue], scheduler:
       val buf = buildGetHeaderBegin(k, v, version.length + 1 + END_SIZE)
       buf.writeByte(SP) // 1
       buf.writeBytes(version) // version.length
-      writeGetHeaderData(v.data, buf)
-      writeGetHeaderEnd(buf)
+      writeGetHeaderData(v.data, buf, true)
    }
 
    private def friendlyMaxIntCheck(number: String, message: String): Int = {
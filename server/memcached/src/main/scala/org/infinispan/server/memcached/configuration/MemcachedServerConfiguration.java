@@ -30,7 +30,7 @@
 @BuiltBy(MemcachedServerConfigurationBuilder.class)
 public class MemcachedServerConfiguration extends ProtocolServerConfiguration {
 
-   MemcachedServerConfiguration(String host, int port, int idleTimeout, int recvBufSize, int sendBufSize, boolean tcpNoDelay, int workerThreads) {
-      super(host, port, idleTimeout, recvBufSize, sendBufSize, tcpNoDelay, workerThreads);
+   MemcachedServerConfiguration(String host, int port, int idleTimeout, int recvBufSize, int sendBufSize, boolean tcpNoDelay, int workerThreads, int requestThreads, boolean coalesceWrites) {
+      super(host, port, idleTimeout, recvBufSize, sendBufSize, tcpNoDelay, workerThreads, requestThreads, coalesceWrites);
    }
 }
@@ -41,7 +41,7 @@ public MemcachedServerConfigurationBuilder self() {
 
    @Override
    public MemcachedServerConfiguration create() {
-      return new MemcachedServerConfiguration(host, port, idleTimeout, recvBufSize, sendBufSize, tcpNoDelay, workerThreads);
+      return new MemcachedServerConfiguration(host, port, idleTimeout, recvBufSize, sendBufSize, tcpNoDelay, workerThreads, requestThreads, coalesceWrites);
    }
 
    public MemcachedServerConfiguration build(boolean validate) {
@@ -0,0 +1,85 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.infinispan.server.memcached
+
+import org.testng.Assert._
+import org.infinispan.test.TestingUtil._
+import org.testng.annotations.Test
+import java.util.concurrent.TimeUnit
+import java.lang.reflect.Method
+import net.spy.memcached.CASResponse
+import org.infinispan.manager.EmbeddedCacheManager
+import org.infinispan.test.fwk.TestCacheManagerFactory
+import org.infinispan.configuration.cache.{CacheMode, ConfigurationBuilder}
+
+/**
+ * Tests cas against distributed Infinispan Memcached servers with a single owner per key, so that the version
+ * check runs on whichever node owns the key, local or remote to the server that got the request.
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+@Test(groups = Array("functional"), testName = "server.memcached.MemcachedDistributionTest")
+class MemcachedDistributionTest extends MemcachedMultiNodeTest {
+
+   private val numKeys = 10
+
+   protected def createCacheManager(index: Int): EmbeddedCacheManager = {
+      val builder = new ConfigurationBuilder
+      builder.clustering().cacheMode(CacheMode.DIST_SYNC).hash().numOwners(1).l1().disable()
+      TestCacheManagerFactory.createClusteredCacheManager(builder)
+   }
+
+   def testDistributedCas(m: Method) {
+      val (client1, client2) = (clients.head, clients.tail.head)
+      for (i <- 0 until numKeys) {
+         val key = k(m, "k" + i + "-")
+         assertEquals(client1.cas(key, 999, v(m)), CASResponse.NOT_FOUND)
+         val f = client1.set(key, 0, v(m))
+         assertTrue(f.get(timeout, TimeUnit.SECONDS).booleanValue)
+         var value = client2.gets(key)
+         assertEquals(value.getValue, v(m))
+         val old = value.getCas
+         assertEquals(client2.cas(key, old, v(m, "v1-")), CASResponse.OK)
+         value = client1.gets(key)
+         assertEquals(value.getValue, v(m, "v1-"))
+         assertTrue(value.getCas != old)
+         assertEquals(client1.cas(key, old, v(m, "v2-")), CASResponse.EXISTS)
+         assertEquals(client2.get(key), v(m, "v1-"))
+         assertEquals(client1.cas(key, value.getCas, v(m, "v2-")), CASResponse.OK)
+         assertEquals(client2.get(key), v(m, "v2-"))
+      }
+   }
+
+   def testDistributedAddThenCas(m: Method) {
+      val (client1, client2) = (clients.head, clients.tail.head)
+      for (i <- 0 until numKeys) {
+         val key = k(m, "k" + i + "-")
+         var f = client1.add(key, 0, v(m))
+         assertTrue(f.get(timeout, TimeUnit.SECONDS).booleanValue)
+         f = client2.add(key, 0, v(m, "v1-"))
+         assertFalse(f.get(timeout, TimeUnit.SECONDS).booleanValue)
+         val value = client2.gets(key)
+         assertEquals(value.getValue, v(m))
+         assertEquals(client2.cas(key, value.getCas, v(m, "v2-")), CASResponse.OK)
+         assertEquals(client1.get(key), v(m, "v2-"))
+      }
+   }
+
+}
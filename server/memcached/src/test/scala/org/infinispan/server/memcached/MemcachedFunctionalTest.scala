@@ -88,6 +88,15 @@ class MemcachedFunctionalTest extends MemcachedSingleNodeTest {
       assertEquals(ret.get(k(m, "k3-")), v(m, "v3-"))
    }
 
+   def testGetLargeValue(m: Method) {
+      val value = generateRandomString(ZeroCopyThreshold * 4)
+      val f = client.set(k(m), 0, value)
+      assertTrue(f.get(timeout, TimeUnit.SECONDS).booleanValue)
+      assertEquals(client.get(k(m)), value)
+      val ret = client.getBulk(k(m), k(m, "k1-"))
+      assertEquals(ret.get(k(m)), value)
+   }
+
    def testAddBasic(m: Method) {
       addAndGet(m)
    }
@@ -226,6 +235,22 @@ class MemcachedFunctionalTest extends MemcachedSingleNodeTest {
       assertEquals(resp, CASResponse.OK)
    }
 
+   def testCasAfterRejectedAdd(m: Method) {
+      addAndGet(m)
+      val value = client.gets(k(m))
+      assertEquals(value.getValue(), v(m))
+      val f = client.add(k(m), 0, v(m, "v1-"))
+      assertFalse(f.get(timeout, TimeUnit.SECONDS).booleanValue)
+      // The version generated for the rejected add was never handed out, so the next write gets it
+      val f2 = client.set(k(m, "k1-"), 0, v(m, "v1-"))
+      assertTrue(f2.get(timeout, TimeUnit.SECONDS).booleanValue)
+      val value2 = client.gets(k(m, "k1-"))
+      assertEquals(value2.getCas, value.getCas + 1)
+      assertEquals(client.cas(k(m), value2.getCas, v(m, "v2-")), CASResponse.EXISTS)
+      assertEquals(client.cas(k(m), value.getCas, v(m, "v2-")), CASResponse.OK)
+      assertEquals(client.get(k(m)), v(m, "v2-"))
+   }
+
    def testInvalidCas {
       var resp = send("cas bad blah 0 0 0\r\n\r\n")
       assertClientError(resp)
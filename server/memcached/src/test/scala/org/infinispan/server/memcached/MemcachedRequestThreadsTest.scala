@@ -0,0 +1,87 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.infinispan.server.memcached
+
+import test.MemcachedTestingUtil._
+import test.UniquePortThreadLocal
+import java.lang.reflect.Method
+import java.net.Socket
+import java.util.concurrent.{Callable, TimeUnit}
+import java.lang.StringBuilder
+import org.testng.Assert._
+import org.testng.annotations.Test
+import org.infinispan.manager.EmbeddedCacheManager
+import org.infinispan.test.TestingUtil._
+import org.infinispan.server.memcached.configuration.MemcachedServerConfigurationBuilder
+
+/**
+ * Tests that requests executed by request threads, rather than by the worker threads, are still answered in the
+ * order they were sent on each connection.
+ *
+ * @author Olaf Bergner
+ * @since 5.3
+ */
+@Test(groups = Array("functional"), testName = "server.memcached.MemcachedRequestThreadsTest")
+class MemcachedRequestThreadsTest extends MemcachedSingleNodeTest {
+
+   private val Connections = 4
+   private val Requests = 500
+
+   override protected def startServer(cacheManager: EmbeddedCacheManager): MemcachedServer =
+      startMemcachedTextServer(cacheManager, new MemcachedServerConfigurationBuilder()
+         .port(UniquePortThreadLocal.get.intValue).requestThreads(Connections))
+
+   def testPipelinedResponsesAreInOrder(m: Method) {
+      assertEquals(server.getConfiguration.requestThreads, Connections)
+      val futures = for (c <- 0 until Connections) yield fork(new Callable[Void] {
+         override def call: Void = {
+            sendPipelined(k(m, "c" + c + "-"))
+            null
+         }
+      })
+      futures.foreach(_.get(60, TimeUnit.SECONDS))
+   }
+
+   private def sendPipelined(prefix: String) {
+      val socket = new Socket(server.getHost, server.getPort)
+      try {
+         socket.setSoTimeout(60000)
+         // a set and a get per key, all written at once
+         val req = new StringBuilder
+         for (i <- 0 until Requests) {
+            val value = "v" + i
+            req.append("set ").append(prefix).append(i).append(" 0 0 ").append(value.length).append("\r\n")
+               .append(value).append("\r\n")
+            req.append("get ").append(prefix).append(i).append("\r\n")
+         }
+         socket.getOutputStream.write(req.toString.getBytes)
+         val in = socket.getInputStream
+         for (i <- 0 until Requests) {
+            val value = "v" + i
+            assertEquals(readLine(in, new StringBuilder), "STORED")
+            assertEquals(readLine(in, new StringBuilder), "VALUE " + prefix + i + " 0 " + value.length)
+            assertEquals(readLine(in, new StringBuilder), value)
+            assertEquals(readLine(in, new StringBuilder), "END")
+         }
+      } finally {
+         socket.close()
+      }
+   }
+
+}
@@ -47,7 +47,7 @@ abstract class MemcachedSingleNodeTest extends SingleCacheManagerTest {
 
    override def createCacheManager: EmbeddedCacheManager = {
       cacheManager = createTestCacheManager
-      memcachedServer = startMemcachedTextServer(cacheManager)
+      memcachedServer = startServer(cacheManager)
       memcachedClient = createMemcachedClient(60000, server.getPort)
       cache = cacheManager.getCache[AnyRef, AnyRef](MemcachedServer.cacheName)
       cacheManager
@@ -55,6 +55,8 @@ abstract class MemcachedSingleNodeTest extends SingleCacheManagerTest {
 
    protected def createTestCacheManager: EmbeddedCacheManager = TestCacheManagerFactory.createLocalCacheManager(false)
 
+   protected def startServer(cacheManager: EmbeddedCacheManager): MemcachedServer = startMemcachedTextServer(cacheManager)
+
    @AfterClass(alwaysRun = true)
    override def destroyAfterClass() {
       super.destroyAfterClass()
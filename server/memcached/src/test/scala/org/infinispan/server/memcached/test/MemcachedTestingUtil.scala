@@ -52,9 +52,12 @@ object MemcachedTestingUtil {
    def startMemcachedTextServer(cacheManager: EmbeddedCacheManager): MemcachedServer =
       startMemcachedTextServer(cacheManager, UniquePortThreadLocal.get.intValue)
 
-   def startMemcachedTextServer(cacheManager: EmbeddedCacheManager, port: Int): MemcachedServer = {
+   def startMemcachedTextServer(cacheManager: EmbeddedCacheManager, port: Int): MemcachedServer =
+      startMemcachedTextServer(cacheManager, new MemcachedServerConfigurationBuilder().port(port))
+
+   def startMemcachedTextServer(cacheManager: EmbeddedCacheManager, builder: MemcachedServerConfigurationBuilder): MemcachedServer = {
       val server = new MemcachedServer
-      server.start(new MemcachedServerConfigurationBuilder().host(host).port(port).build(), cacheManager)
+      server.start(builder.host(host).build(), cacheManager)
       server
    }
 
@@ -23,10 +23,14 @@
 package org.infinispan.server.websocket;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.infinispan.Cache;
+import org.infinispan.notifications.KeyFilter;
 import org.infinispan.notifications.Listener;
 import org.infinispan.notifications.cachelistener.annotation.CacheEntryCreated;
 import org.infinispan.notifications.cachelistener.annotation.CacheEntryModified;
@@ -50,10 +54,18 @@
  * 
  * @author <a href="mailto:tom.fennelly@gmail.com">tom.fennelly@gmail.com</a>
  */
-@Listener
-public class CacheListener {
+@Listener(observation = Listener.Observation.POST)
+public class CacheListener implements KeyFilter {
 	
 	private List<ChannelNotifyParams> channels = new CopyOnWriteArrayList<ChannelNotifyParams>();
+	// the keys the channels are interested in, recomputed when channels are added or removed
+	private volatile Set<String> watchedKeys = Collections.emptySet();
+	private volatile boolean watchAllKeys;
+
+	@Override
+	public boolean accept(Object key) {
+		return watchAllKeys || watchedKeys.contains(key);
+	}
 
 	@CacheEntryCreated
 	public void cacheEntryCreated(CacheEntryCreatedEvent<Object, Object> event) {
@@ -118,15 +130,31 @@ private void notifyChannels(CacheEntryEvent<Object, Object> event, Event.Type ev
 		}
 	}
 	
-	public void addChannel(ChannelNotifyParams channel) {
+	public synchronized void addChannel(ChannelNotifyParams channel) {
 		if(!channels.contains(channel)) {
 			channels.add(channel);
+			updateWatchedKeys();
 			channel.channel.getCloseFuture().addListener(new ChannelCloseFutureListener());
 		}
 	}
 	
-	public void removeChannel(ChannelNotifyParams channel) {
+	public synchronized void removeChannel(ChannelNotifyParams channel) {
 		channels.remove(channel);
+		updateWatchedKeys();
+	}
+
+	private void updateWatchedKeys() {
+		Set<String> keys = new HashSet<String>();
+		boolean all = false;
+		for(ChannelNotifyParams channel : channels) {
+			if(channel.key == null || channel.key.equals("*")) {
+				all = true;
+			} else {
+				keys.add(channel.key);
+			}
+		}
+		watchedKeys = keys;
+		watchAllKeys = all;
 	}
 	
 	public static class ChannelNotifyParams {
@@ -32,6 +32,9 @@
 import java.util.Properties;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.infinispan.Cache;
 import org.infinispan.manager.CacheContainer;
@@ -56,6 +59,8 @@
 import org.jboss.netty.handler.codec.http.HttpRequestDecoder;
 import org.jboss.netty.handler.codec.http.HttpResponseEncoder;
 import org.jboss.netty.handler.codec.oneone.OneToOneEncoder;
+import org.jboss.netty.handler.execution.ExecutionHandler;
+import org.jboss.netty.handler.execution.OrderedMemoryAwareThreadPoolExecutor;
 
 /**
  * An HTTP server which serves Web Socket requests on an Infinispan cacheManager.
@@ -68,6 +73,7 @@ public class WebSocketServer extends AbstractProtocolServer {
 
    private static String javascript;
    private Channel channel;
+   private ExecutionHandler executionHandler;
    private WebSocketServerConfiguration configuration;
 
    public WebSocketServer() {
@@ -108,8 +114,14 @@ public void startTransport() {
       // Configure the server.
       ServerBootstrap bootstrap = new ServerBootstrap(factory);
 
+      // Run requests off the I/O threads if a request thread pool has been configured
+      if (configuration.requestThreads() > 0)
+         executionHandler = new ExecutionHandler(new OrderedMemoryAwareThreadPoolExecutor(
+               configuration.requestThreads(), 1024 * 1024, 64 * 1024 * 1024, 60, TimeUnit.SECONDS,
+               new RequestThreadFactory()));
+
       // Set up the event pipeline factory.
-      bootstrap.setPipelineFactory(new WebSocketServerPipelineFactory(cacheManager()));
+      bootstrap.setPipelineFactory(new WebSocketServerPipelineFactory(cacheManager(), executionHandler));
 
       // Bind and start to accept incoming connections.
       bootstrap.setOption("child.tcpNoDelay", configuration.tcpNoDelay());
@@ -122,6 +134,19 @@ public void startTransport() {
    @Override
    public void stop() {
       if (channel != null) channel.close();
+      if (executionHandler != null) executionHandler.releaseExternalResources();
+   }
+
+   private static class RequestThreadFactory implements ThreadFactory {
+
+      private final AtomicInteger threadCounter = new AtomicInteger();
+
+      @Override
+      public Thread newThread(Runnable r) {
+         Thread t = new Thread(r, "WebSocketServerRequest-" + threadCounter.incrementAndGet());
+         t.setDaemon(true);
+         return t;
+      }
    }
 
    private static class WebSocketServerPipelineFactory implements ChannelPipelineFactory {
@@ -129,9 +154,11 @@ private static class WebSocketServerPipelineFactory implements ChannelPipelineFa
       private CacheContainer cacheContainer;
       private Map<String, OpHandler> operationHandlers;
       private Map<String, Cache> startedCaches = ConcurrentMapFactory.makeConcurrentMap();
+      private ExecutionHandler executionHandler;
 
-      public WebSocketServerPipelineFactory(CacheContainer cacheContainer) {
+      public WebSocketServerPipelineFactory(CacheContainer cacheContainer, ExecutionHandler executionHandler) {
          this.cacheContainer = cacheContainer;
+         this.executionHandler = executionHandler;
 
          operationHandlers = new HashMap<String, OpHandler>();
          operationHandlers.put("put", new PutHandler());
@@ -150,6 +177,7 @@ public ChannelPipeline getPipeline() throws Exception {
          pipeline.addLast("decoder", new HttpRequestDecoder());
          pipeline.addLast("aggregator", new HttpChunkAggregator(65536));
          pipeline.addLast("encoder", new HttpResponseEncoder());
+         if (executionHandler != null) pipeline.addLast("executionHandler", executionHandler);
          pipeline.addLast("handler", new WebSocketServerHandler(cacheContainer, operationHandlers, startedCaches));
 
          return pipeline;
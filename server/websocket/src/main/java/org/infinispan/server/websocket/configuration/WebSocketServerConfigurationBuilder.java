@@ -41,7 +41,7 @@ public WebSocketServerConfigurationBuilder self() {
 
    @Override
    public WebSocketServerConfiguration create() {
-      return new WebSocketServerConfiguration(host, port, idleTimeout, recvBufSize, sendBufSize, tcpNoDelay, workerThreads);
+      return new WebSocketServerConfiguration(host, port, idleTimeout, recvBufSize, sendBufSize, tcpNoDelay, workerThreads, requestThreads, coalesceWrites);
    }
 
    public WebSocketServerConfiguration build(boolean validate) {
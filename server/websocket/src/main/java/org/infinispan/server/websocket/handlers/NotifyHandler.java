@@ -61,7 +61,7 @@ public void handleOp(JSONObject opPayload, Cache<Object, Object> cache, ChannelH
 				if(listener == null) {
 					listener = new CacheListener();
 					listeners.put(cache, listener);	
-					cache.addListener(listener);
+					cache.getAdvancedCache().addListener(listener, listener);
 				}
 			}
 		}
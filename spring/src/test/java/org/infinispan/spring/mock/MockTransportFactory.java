@@ -68,6 +68,16 @@ public Transport getTransport(final byte[] key) {
       return null;
    }
 
+   @Override
+   public SocketAddress getServer(final byte[] key) {
+      return null;
+   }
+
+   @Override
+   public Transport getTransport(final SocketAddress server) {
+      return null;
+   }
+
    @Override
    public boolean isTcpNoDelay() {
       return false;